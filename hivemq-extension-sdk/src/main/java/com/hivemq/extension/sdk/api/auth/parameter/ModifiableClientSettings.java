@@ -45,6 +45,49 @@ public interface ModifiableClientSettings {
      */
     void setOverloadProtectionThrottlingLevel(@NotNull OverloadProtectionThrottlingLevel level);
 
+    /**
+     * Limit the bytes that are sent to the client per second.
+     * The new value overwrites the limit of the listener the client is connected to.
+     *
+     * @param bytesPerSecond The maximum bytes per second, 0 to not limit the bytes.
+     * @throws IllegalArgumentException If the value is negative.
+     * @since 4.2.0
+     */
+    void setOutgoingBytesPerSecond(long bytesPerSecond);
+
+    /**
+     * Limit the PUBLISH packets that are sent to the client per second.
+     * The new value overwrites the limit of the listener the client is connected to.
+     *
+     * @param publishesPerSecond The maximum PUBLISH packets per second, 0 to not limit the PUBLISH packets.
+     * @throws IllegalArgumentException If the value is negative.
+     * @since 4.2.0
+     */
+    void setOutgoingPublishesPerSecond(long publishesPerSecond);
+
+    /**
+     * Limit the bytes that are read from the client per second.
+     * Reading from the client is suspended until the limit allows more bytes, the client is not disconnected.
+     * The new value overwrites the limit of the listener the client is connected to.
+     *
+     * @param bytesPerSecond The maximum bytes per second, 0 to not limit the bytes.
+     * @throws IllegalArgumentException If the value is negative.
+     * @since 4.2.0
+     */
+    void setIncomingBytesPerSecond(long bytesPerSecond);
+
+    /**
+     * Limit the PUBLISH packets that are read from the client per second.
+     * Reading from the client is suspended until the limit allows more PUBLISH packets, the client is not
+     * disconnected.
+     * The new value overwrites the limit of the listener the client is connected to.
+     *
+     * @param publishesPerSecond The maximum PUBLISH packets per second, 0 to not limit the PUBLISH packets.
+     * @throws IllegalArgumentException If the value is negative.
+     * @since 4.2.0
+     */
+    void setIncomingPublishesPerSecond(long publishesPerSecond);
+
     /**
      * @return The value that will be used as receive maximum for this client.
      * @since 4.2.0
@@ -56,4 +99,30 @@ public interface ModifiableClientSettings {
      * @since 4.2.0
      */
     @NotNull OverloadProtectionThrottlingLevel getOverloadProtectionThrottlingLevel();
+
+    /**
+     * @return The maximum bytes per second that will be sent to this client, 0 if the bytes are not limited.
+     * @since 4.2.0
+     */
+    long getOutgoingBytesPerSecond();
+
+    /**
+     * @return The maximum PUBLISH packets per second that will be sent to this client, 0 if the PUBLISH packets are
+     * not limited.
+     * @since 4.2.0
+     */
+    long getOutgoingPublishesPerSecond();
+
+    /**
+     * @return The maximum bytes per second that will be read from this client, 0 if the bytes are not limited.
+     * @since 4.2.0
+     */
+    long getIncomingBytesPerSecond();
+
+    /**
+     * @return The maximum PUBLISH packets per second that will be read from this client, 0 if the PUBLISH packets are
+     * not limited.
+     * @since 4.2.0
+     */
+    long getIncomingPublishesPerSecond();
 }
@@ -21,6 +21,7 @@ import com.hivemq.extension.sdk.api.annotations.DoNotImplement;
 import com.hivemq.extension.sdk.api.annotations.NotNull;
 import com.hivemq.extension.sdk.api.services.exception.DoNotImplementException;
 
+import java.util.Collection;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -48,6 +49,26 @@ public interface PublishService {
      */
     @NotNull CompletableFuture<Void> publish(@NotNull Publish publish);
 
+    /**
+     * Publishes a batch of new MQTT {@link Publish} messages. The standard MQTT topic matching mechanism of HiveMQ
+     * will apply and only subscribed MQTT clients will receive the published messages.
+     * <p>
+     * The subscribers of a topic are only looked up once for all messages of the batch with the same topic and the
+     * messages for a client are queued together. The whole batch counts as a single call for the extension service
+     * rate limit.
+     * <p>
+     * {@link CompletableFuture} fails with a {@link RateLimitExceededException} if the extension service rate limit was exceeded.
+     * <p>
+     * {@link CompletableFuture} fails with a {@link DoNotImplementException} if any of the Publishes is implemented by
+     * the extension. In this case none of the Publishes is published.
+     *
+     * @param publishes Objects with topic, QoS and message, which should be published to all subscribed clients.
+     * @return A {@link CompletableFuture} which is complete when all PublishPackets have been processed by HiveMQ.
+     * @throws NullPointerException If the given collection or any of its publishes is <code>null</code>.
+     * @since 4.1.0
+     */
+    @NotNull CompletableFuture<Void> publish(@NotNull Collection<Publish> publishes);
+
 
     /**
      * Publishes a new MQTT {@link Publish} message to a single client.
@@ -31,6 +31,7 @@ import com.hivemq.configuration.service.InternalConfigurations;
 import com.hivemq.extension.sdk.api.services.admin.AdminService;
 import com.hivemq.extensions.PluginBootstrap;
 import com.hivemq.extensions.services.admin.AdminServiceImpl;
+import com.hivemq.mqtt.services.InternalPublishService;
 import com.hivemq.metrics.MetricRegistryLogger;
 import com.hivemq.persistence.PersistenceStartup;
 import com.hivemq.persistence.payload.PublishPayloadPersistence;
@@ -55,23 +56,28 @@ public class HiveMQServer {
     private final @NotNull PublishPayloadPersistence payloadPersistence;
     private final @NotNull PluginBootstrap pluginBootstrap;
     private final @NotNull AdminService adminService;
+    private final @NotNull InternalPublishService internalPublishService;
 
     @Inject
     HiveMQServer(final @NotNull HiveMQNettyBootstrap nettyBootstrap,
                  final @NotNull PublishPayloadPersistence payloadPersistence,
                  final @NotNull PluginBootstrap pluginBootstrap,
-                 final @NotNull AdminService adminService) {
+                 final @NotNull AdminService adminService,
+                 final @NotNull InternalPublishService internalPublishService) {
 
         this.nettyBootstrap = nettyBootstrap;
         this.payloadPersistence = payloadPersistence;
         this.pluginBootstrap = pluginBootstrap;
         this.adminService = adminService;
+        this.internalPublishService = internalPublishService;
     }
 
     public void start() throws Exception {
 
         payloadPersistence.init();
 
+        internalPublishService.replayInboundPublishLog();
+
         pluginBootstrap.startPluginSystem();
 
         final ListenableFuture<List<ListenerStartupInformation>> startFuture = nettyBootstrap.bootstrapServer();
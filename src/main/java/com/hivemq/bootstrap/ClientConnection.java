@@ -0,0 +1,268 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.bootstrap;
+
+import com.hivemq.annotations.NotNull;
+import com.hivemq.annotations.Nullable;
+import com.hivemq.codec.encoder.mqtt5.OutboundTopicAliasMapping;
+import com.hivemq.mqtt.handler.publish.PublishProcessingExecutor;
+import com.hivemq.mqtt.message.ProtocolVersion;
+import com.hivemq.mqtt.message.connect.Mqtt5CONNECT;
+import com.hivemq.util.ChannelAttributes;
+import io.netty.channel.Channel;
+import io.netty.util.Attribute;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.hivemq.codec.encoder.mqtt5.MqttVariableByteInteger.MAXIMUM_PACKET_SIZE_LIMIT;
+
+/**
+ * The state of a single client connection that is read on the hot paths of the broker.
+ * <p>
+ * The object is attached to the channel once (see {@link ChannelAttributes#CLIENT_CONNECTION}), so reading any of its
+ * values costs a single attribute lookup and no additional per channel attribute objects are created.
+ * <p>
+ * Threading model: the values that are only accessed by the event loop of the channel (the topic alias mappings, the
+ * maximum packet size of the client, whether problem information is requested and the read suspensions) are plain
+ * fields. The client id and the protocol version are written by the event loop while the CONNECT is handled and read
+ * by the persistence, extension and callback executors. The in flight state and the publish processing lane are
+ * written by the single writer callback executor of the client or by the publish processing pool. These fields are
+ * volatile. Compound updates of the in flight message count are done on the {@link AtomicInteger} itself. A
+ * <code>null</code> value has the same meaning as a missing channel attribute had before.
+ */
+public class ClientConnection {
+
+    /**
+     * Reading is suspended until the CONNACK is sent.
+     */
+    public static final int READS_SUSPENDED_BY_CONNECT = 1;
+    /**
+     * Reading is suspended until the SUBACK or UNSUBACK is sent.
+     */
+    public static final int READS_SUSPENDED_BY_SUBSCRIBE = 1 << 1;
+    /**
+     * Reading is suspended because too many PUBLISHes of the client wait in its publish processing lane.
+     */
+    public static final int READS_SUSPENDED_BY_PUBLISH_LANE = 1 << 2;
+    /**
+     * Reading is suspended because the client exceeded its incoming rate limits.
+     */
+    public static final int READS_SUSPENDED_BY_RATE_LIMIT = 1 << 3;
+
+    // also accessed by other threads than the event loop of the channel
+    private volatile @Nullable String clientId;
+    private volatile @Nullable ProtocolVersion protocolVersion;
+    private volatile @Nullable Boolean inFlightMessagesSent;
+    private volatile @Nullable AtomicInteger inFlightMessages;
+    private volatile @Nullable Boolean noSharedSubscription;
+    private volatile @Nullable Integer clientReceiveMaximum;
+    private volatile boolean pollingSuspended;
+    private volatile @Nullable PublishProcessingExecutor.PublisherLane publishProcessingLane;
+
+    // only accessed by the event loop of the channel
+    private long maxPacketSizeSend = MAXIMUM_PACKET_SIZE_LIMIT;
+    private boolean problemInformationRequested = Mqtt5CONNECT.DEFAULT_PROBLEM_INFORMATION_REQUESTED;
+    private @Nullable String[] topicAliasMapping;
+    private @Nullable OutboundTopicAliasMapping outboundTopicAliasMapping;
+    private int readSuspensions;
+
+    /**
+     * Returns the connection state of the channel and attaches a new one if the channel has none yet.
+     *
+     * @param channel the channel of the client
+     * @return the connection state of the channel, never null
+     */
+    public static @NotNull ClientConnection of(final @NotNull Channel channel) {
+        final Attribute<ClientConnection> attribute = channel.attr(ChannelAttributes.CLIENT_CONNECTION);
+        final ClientConnection clientConnection = attribute.get();
+        if (clientConnection != null) {
+            return clientConnection;
+        }
+        final ClientConnection newConnection = new ClientConnection();
+        final ClientConnection previous = attribute.setIfAbsent(newConnection);
+        return previous != null ? previous : newConnection;
+    }
+
+    /**
+     * The client identifier, <code>null</code> until the CONNECT of the client is decoded.
+     */
+    public @Nullable String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(final @Nullable String clientId) {
+        this.clientId = clientId;
+    }
+
+    /**
+     * The MQTT version of the client, <code>null</code> until the CONNECT of the client is decoded.
+     */
+    public @Nullable ProtocolVersion getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    public void setProtocolVersion(final @Nullable ProtocolVersion protocolVersion) {
+        this.protocolVersion = protocolVersion;
+    }
+
+    /**
+     * This refers to the in-flight messages in the client queue, not the ones in the ordered topic queue.
+     * <code>null</code> means false, false is never set.
+     */
+    public @Nullable Boolean getInFlightMessagesSent() {
+        return inFlightMessagesSent;
+    }
+
+    public void setInFlightMessagesSent(final @Nullable Boolean inFlightMessagesSent) {
+        this.inFlightMessagesSent = inFlightMessagesSent;
+    }
+
+    /**
+     * The amount of messages that have been polled but not yet delivered.
+     */
+    public @Nullable AtomicInteger getInFlightMessages() {
+        return inFlightMessages;
+    }
+
+    public void setInFlightMessages(final @Nullable AtomicInteger inFlightMessages) {
+        this.inFlightMessages = inFlightMessages;
+    }
+
+    /**
+     * True if it is guarantied that this client has no shared subscriptions, if null it is unclear.
+     */
+    public @Nullable Boolean getNoSharedSubscription() {
+        return noSharedSubscription;
+    }
+
+    public void setNoSharedSubscription(final @Nullable Boolean noSharedSubscription) {
+        this.noSharedSubscription = noSharedSubscription;
+    }
+
+    public @Nullable Integer getClientReceiveMaximum() {
+        return clientReceiveMaximum;
+    }
+
+    public void setClientReceiveMaximum(final @Nullable Integer clientReceiveMaximum) {
+        this.clientReceiveMaximum = clientReceiveMaximum;
+    }
+
+    /**
+     * The maximum packet size the client accepts, the MQTT maximum if the client did not restrict it.
+     */
+    public long getMaxPacketSizeSend() {
+        return maxPacketSizeSend;
+    }
+
+    public void setMaxPacketSizeSend(final long maxPacketSizeSend) {
+        this.maxPacketSizeSend = maxPacketSizeSend;
+    }
+
+    /**
+     * Whether a MQTT 5 client requested problem information, the MQTT default if it did not send the property.
+     */
+    public boolean isProblemInformationRequested() {
+        return problemInformationRequested;
+    }
+
+    public void setProblemInformationRequested(final boolean problemInformationRequested) {
+        this.problemInformationRequested = problemInformationRequested;
+    }
+
+    /**
+     * The inbound topic alias mapping of a MQTT 5 client, <code>null</code> if topic aliases are not used.
+     * The array is only modified by the event loop of the channel.
+     */
+    public @Nullable String[] getTopicAliasMapping() {
+        return topicAliasMapping;
+    }
+
+    public void setTopicAliasMapping(final @Nullable String[] topicAliasMapping) {
+        this.topicAliasMapping = topicAliasMapping;
+    }
+
+    /**
+     * The outbound topic alias mapping of a MQTT 5 client, <code>null</code> if the broker does not send topic aliases
+     * to the client. The mapping is only used by the event loop of the channel.
+     */
+    public @Nullable OutboundTopicAliasMapping getOutboundTopicAliasMapping() {
+        return outboundTopicAliasMapping;
+    }
+
+    public void setOutboundTopicAliasMapping(final @Nullable OutboundTopicAliasMapping outboundTopicAliasMapping) {
+        this.outboundTopicAliasMapping = outboundTopicAliasMapping;
+    }
+
+    /**
+     * @return whether a poll of the queues of the client was skipped because the channel was not writable
+     */
+    public boolean isPollingSuspended() {
+        return pollingSuspended;
+    }
+
+    public void setPollingSuspended(final boolean pollingSuspended) {
+        this.pollingSuspended = pollingSuspended;
+    }
+
+    /**
+     * The queue of PUBLISHes of the client that wait for the staged publish processing, <code>null</code> until the
+     * first PUBLISH is processed, see {@link PublishProcessingExecutor}.
+     */
+    public @Nullable PublishProcessingExecutor.PublisherLane getPublishProcessingLane() {
+        return publishProcessingLane;
+    }
+
+    public void setPublishProcessingLane(final @Nullable PublishProcessingExecutor.PublisherLane publishProcessingLane) {
+        this.publishProcessingLane = publishProcessingLane;
+    }
+
+    /**
+     * The reasons reading from the channel is currently suspended for, a bitmask of the READS_SUSPENDED_BY_ constants.
+     */
+    public int getReadSuspensions() {
+        return readSuspensions;
+    }
+
+    /**
+     * Suspends reading from the channel for the given reason. Must be called on the event loop of the channel.
+     *
+     * @param channel the channel of the client
+     * @param reason  one of the READS_SUSPENDED_BY_ constants
+     */
+    public static void suspendReads(final @NotNull Channel channel, final int reason) {
+        final ClientConnection clientConnection = of(channel);
+        clientConnection.readSuspensions |= reason;
+        channel.config().setAutoRead(false);
+    }
+
+    /**
+     * Removes the given reason for the suspension of reading from the channel. Reading is only resumed once no other
+     * reason is left, so the reasons do not resume each other's suspension. Must be called on the event loop of the
+     * channel.
+     *
+     * @param channel the channel of the client
+     * @param reason  one of the READS_SUSPENDED_BY_ constants
+     */
+    public static void resumeReads(final @NotNull Channel channel, final int reason) {
+        final ClientConnection clientConnection = of(channel);
+        final int readSuspensions = clientConnection.readSuspensions & ~reason;
+        clientConnection.readSuspensions = readSuspensions;
+        if (readSuspensions == 0) {
+            channel.config().setAutoRead(true);
+        }
+    }
+}
@@ -36,6 +36,7 @@ import com.hivemq.mqtt.handler.auth.AuthHandler;
 import com.hivemq.mqtt.handler.auth.AuthInProgressMessageHandler;
 import com.hivemq.mqtt.handler.connect.ConnectHandler;
 import com.hivemq.mqtt.handler.connect.ConnectPersistenceUpdateHandler;
+import com.hivemq.mqtt.handler.connect.KeepAliveManager;
 import com.hivemq.mqtt.handler.connect.StopReadingAfterConnectHandler;
 import com.hivemq.mqtt.handler.disconnect.DisconnectHandler;
 import com.hivemq.mqtt.handler.ping.PingRequestHandler;
@@ -43,11 +44,13 @@ import com.hivemq.mqtt.handler.publish.DropOutgoingPublishesHandler;
 import com.hivemq.mqtt.handler.publish.PublishMessageExpiryHandler;
 import com.hivemq.mqtt.handler.publish.PublishUserEventReceivedHandler;
 import com.hivemq.mqtt.handler.publish.ReturnMessageIdToPoolHandler;
+import com.hivemq.mqtt.handler.publish.SlowConsumerTracker;
 import com.hivemq.mqtt.handler.publish.qos.QoSReceiverHandler;
 import com.hivemq.mqtt.handler.publish.qos.QoSSenderHandler;
 import com.hivemq.mqtt.handler.subscribe.SubscribeHandler;
 import com.hivemq.mqtt.handler.unsubscribe.UnsubscribeHandler;
 import com.hivemq.security.ssl.SslParameterHandler;
+import com.hivemq.throttling.ClientTrafficShaper;
 import io.netty.channel.group.ChannelGroup;
 import io.netty.handler.traffic.GlobalTrafficShapingHandler;
 
@@ -96,6 +99,12 @@ public class ChannelDependencies {
     @NotNull
     private final GlobalTrafficShapingHandler globalTrafficShapingHandler;
 
+    @NotNull
+    private final ClientTrafficShaper clientTrafficShaper;
+
+    @NotNull
+    private final SlowConsumerTracker slowConsumerTracker;
+
     @NotNull
     private final MetricsHolder metricsHolder;
 
@@ -165,6 +174,9 @@ public class ChannelDependencies {
     @NotNull
     private final ConnackOutboundInterceptorHandler connackOutboundInterceptorHandler;
 
+    @NotNull
+    private final KeepAliveManager keepAliveManager;
+
     @Inject
     public ChannelDependencies(
             @NotNull final Provider<MetricsInitializer> statisticsInitializer,
@@ -179,6 +191,8 @@ public class ChannelDependencies {
             @NotNull final ChannelGroup channelGroup,
             @NotNull final FullConfigurationService fullConfigurationService,
             @NotNull final GlobalTrafficShapingHandler globalTrafficShapingHandler,
+            @NotNull final ClientTrafficShaper clientTrafficShaper,
+            @NotNull final SlowConsumerTracker slowConsumerTracker,
             @NotNull final MetricsHolder metricsHolder,
             @NotNull final ExceptionHandler exceptionHandler,
             @NotNull final PingRequestHandler pingRequestHandler,
@@ -201,7 +215,8 @@ public class ChannelDependencies {
             @NotNull final Provider<PublishMessageExpiryHandler> publishMessageExpiryHandlerProvider,
             @NotNull final PublishOutboundInterceptorHandler publishOutboundInterceptorHandler,
             @NotNull final ConnectInboundInterceptorHandler connectInboundInterceptorHandler,
-            @NotNull final ConnackOutboundInterceptorHandler connackOutboundInterceptorHandler) {
+            @NotNull final ConnackOutboundInterceptorHandler connackOutboundInterceptorHandler,
+            @NotNull final KeepAliveManager keepAliveManager) {
 
 
         this.statisticsInitializer = statisticsInitializer;
@@ -216,6 +231,8 @@ public class ChannelDependencies {
         this.channelGroup = channelGroup;
         this.fullConfigurationService = fullConfigurationService;
         this.globalTrafficShapingHandler = globalTrafficShapingHandler;
+        this.clientTrafficShaper = clientTrafficShaper;
+        this.slowConsumerTracker = slowConsumerTracker;
         this.metricsHolder = metricsHolder;
         this.exceptionHandler = exceptionHandler;
         this.pingRequestHandler = pingRequestHandler;
@@ -239,6 +256,7 @@ public class ChannelDependencies {
         this.publishOutboundInterceptorHandler = publishOutboundInterceptorHandler;
         this.connectInboundInterceptorHandler = connectInboundInterceptorHandler;
         this.connackOutboundInterceptorHandler = connackOutboundInterceptorHandler;
+        this.keepAliveManager = keepAliveManager;
     }
 
     @NotNull
@@ -296,6 +314,16 @@ public class ChannelDependencies {
         return globalTrafficShapingHandler;
     }
 
+    @NotNull
+    public ClientTrafficShaper getClientTrafficShaper() {
+        return clientTrafficShaper;
+    }
+
+    @NotNull
+    public SlowConsumerTracker getSlowConsumerTracker() {
+        return slowConsumerTracker;
+    }
+
     @NotNull
     public MetricsHolder getMetricsHolder() {
         return metricsHolder;
@@ -415,4 +443,9 @@ public class ChannelDependencies {
     public ConnackOutboundInterceptorHandler getConnackOutboundInterceptorHandler() {
         return connackOutboundInterceptorHandler;
     }
+
+    @NotNull
+    public KeepAliveManager getKeepAliveManager() {
+        return keepAliveManager;
+    }
 }
@@ -34,6 +34,10 @@ public class ChannelHandlerNames {
     public static final String MQTT_MESSAGE_DECODER = "mqtt_message_decoder";
 
     public static final String GLOBAL_THROTTLING_HANDLER = "global_throttling_handler";
+    public static final String CLIENT_THROTTLING_HANDLER = "client_throttling_handler";
+
+    public static final String FLUSH_METRICS_HANDLER = "flush_metrics_handler";
+    public static final String FLUSH_CONSOLIDATION_HANDLER = "flush_consolidation_handler";
 
     public static final String NEW_CONNECTION_IDLE_HANDLER = "new_connection_idle_handler";
     public static final String NO_CONNECT_IDLE_EVENT_HANDLER = "no_connect_idle_event_handler";
@@ -64,6 +68,7 @@ public class ChannelHandlerNames {
 
     public static final String MQTT_ORDERED_TOPIC_HANDLER = "mqtt_ordered_topic_handler";
     public static final String MQTT_MESSAGE_ID_RETURN_HANDLER = "mqtt_message_id_return_handler";
+    public static final String MQTT_MESSAGE_DISPATCHER = "mqtt_message_dispatcher";
 
     public static final String HTTP_SERVER_CODEC = "http_server_codec";
     public static final String HTTP_OBJECT_AGGREGATOR = "http_object_aggregator";
@@ -91,6 +96,7 @@ public class ChannelHandlerNames {
     public static final String MQTT_MESSAGE_ENCODER = "mqtt_message_encoder";
     public static final String MQTT_WEBSOCKET_ENCODER = "mqtt_websocket_encoder";
     public static final String DROP_OUTGOING_PUBLISHES_HANDLER = "drop_outgoing_publishes_handler";
+    public static final String SLOW_CONSUMER_HANDLER = "slow_consumer_handler";
     public static final String CHANNEL_INACTIVE_HANDLER = "channel_inactive_handler";
     public static final String PUBLISH_MESSAGE_EXPIRY_HANDLER = "publish_message_expiry_handler";
 
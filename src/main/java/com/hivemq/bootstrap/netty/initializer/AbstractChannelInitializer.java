@@ -18,22 +18,27 @@ package com.hivemq.bootstrap.netty.initializer;
 
 import com.google.common.base.Preconditions;
 import com.hivemq.annotations.NotNull;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.bootstrap.netty.ChannelDependencies;
 import com.hivemq.codec.decoder.MQTTMessageDecoder;
 import com.hivemq.configuration.service.RestrictionsConfigurationService;
+import com.hivemq.configuration.service.entity.ClientShapingProperties;
 import com.hivemq.configuration.service.entity.Listener;
 import com.hivemq.logging.EventLog;
+import com.hivemq.metrics.handler.FlushMetricsHandler;
 import com.hivemq.mqtt.handler.connect.MessageBarrier;
 import com.hivemq.mqtt.handler.connect.NoConnectIdleHandler;
 import com.hivemq.mqtt.handler.connect.RemoveConnectIdleHandler;
 import com.hivemq.mqtt.handler.connect.SubscribeMessageBarrier;
 import com.hivemq.mqtt.handler.publish.ChannelInactiveHandler;
 import com.hivemq.security.exception.SslException;
+import com.hivemq.util.ChannelAttributes;
 import com.hivemq.util.ChannelUtils;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
-import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,6 +46,8 @@ import java.util.concurrent.TimeUnit;
 
 import static com.hivemq.bootstrap.netty.ChannelHandlerNames.*;
 import static com.hivemq.configuration.service.InternalConfigurations.DROP_MESSAGES_QOS_0;
+import static com.hivemq.configuration.service.InternalConfigurations.SLOW_CONSUMER_DISCONNECT_TIMEOUT_MILLIS;
+import static com.hivemq.configuration.service.InternalConfigurations.WRITABILITY_DRIVEN_POLLING_ENABLED;
 
 /**
  * @author Dominik Obermaier
@@ -72,13 +79,19 @@ public abstract class AbstractChannelInitializer extends ChannelInitializer<Chan
 
         Preconditions.checkNotNull(ch, "Channel must never be null");
 
+        ch.attr(ChannelAttributes.CLIENT_CONNECTION).set(new ClientConnection());
+
         addNoConnectIdleHandler(ch);
 
         ch.pipeline().addLast(FIRST_ABSTRACT_HANDLER, new ChannelGroupHandler(channelDependencies.getChannelGroup()));
 
         ch.pipeline().addLast(GLOBAL_THROTTLING_HANDLER, channelDependencies.getGlobalTrafficShapingHandler());
 
-        ch.pipeline().addLast(MQTT_MESSAGE_DECODER, new MQTTMessageDecoder(channelDependencies));
+        addClientTrafficShapingHandler(ch);
+
+        addFlushConsolidationHandler(ch);
+
+        ch.pipeline().addLast(MQTT_MESSAGE_DECODER, createMqttMessageDecoder(ch));
 
         ch.pipeline().addLast(MQTT_MESSAGE_ENCODER, channelDependencies.getMqttMessageEncoder());
 
@@ -107,6 +120,10 @@ public abstract class AbstractChannelInitializer extends ChannelInitializer<Chan
             ch.pipeline().addLast(DROP_OUTGOING_PUBLISHES_HANDLER, channelDependencies.getDropOutgoingPublishesHandler());
         }
 
+        if (WRITABILITY_DRIVEN_POLLING_ENABLED.get() || SLOW_CONSUMER_DISCONNECT_TIMEOUT_MILLIS.get() > 0) {
+            ch.pipeline().addLast(SLOW_CONSUMER_HANDLER, channelDependencies.getSlowConsumerTracker().newHandler());
+        }
+
         ch.pipeline().addLast(PUBLISH_MESSAGE_EXPIRY_HANDLER, channelDependencies.getPublishMessageExpiryHandler());
 
         ch.pipeline().addLast(CONNACK_OUTBOUND_INTERCEPTOR_HANDLER, channelDependencies.getConnackOutboundInterceptorHandler());
@@ -144,13 +161,56 @@ public abstract class AbstractChannelInitializer extends ChannelInitializer<Chan
         final long timeoutMillis = restrictionsConfig.noConnectIdleTimeout();
 
         if (timeoutMillis > 0) {
-            final IdleStateHandler idleStateHandler = new IdleStateHandler(timeoutMillis, 0, 0, TimeUnit.MILLISECONDS);
+            final ChannelHandler idleHandler = channelDependencies.getKeepAliveManager().newIdleHandler(timeoutMillis, TimeUnit.MILLISECONDS);
 
-            ch.pipeline().addLast(NEW_CONNECTION_IDLE_HANDLER, idleStateHandler);
+            ch.pipeline().addLast(NEW_CONNECTION_IDLE_HANDLER, idleHandler);
             ch.pipeline().addLast(NO_CONNECT_IDLE_EVENT_HANDLER, new NoConnectIdleHandler(eventLog));
         }
     }
 
+    /**
+     * Consolidates the flushes of the channel if the listener enables it. Flushes during a read are consolidated until
+     * the read is complete, all other flushes until the current event loop tick is done or the limit is reached.
+     */
+    private void addFlushConsolidationHandler(@NotNull final Channel ch) {
+
+        final int flushConsolidationLimit = listener.getFlushConsolidationLimit();
+
+        if (flushConsolidationLimit > 0) {
+            //Must be before the consolidation handler to only count the flushes that reach the socket
+            ch.pipeline().addLast(FLUSH_METRICS_HANDLER, new FlushMetricsHandler(channelDependencies.getMetricsHolder().getMessagesPerFlushHistogram()));
+            ch.pipeline().addLast(FLUSH_CONSOLIDATION_HANDLER, new FlushConsolidationHandler(flushConsolidationLimit, true));
+        }
+    }
+
+    /**
+     * Shapes the outgoing traffic of every single client if the listener has client shaping budgets. Extensions may
+     * still add the handler for a single client when it connects.
+     */
+    private void addClientTrafficShapingHandler(@NotNull final Channel ch) {
+
+        final ClientShapingProperties clientShapingProperties = listener.getClientShapingProperties();
+
+        if (clientShapingProperties.isShapingOutgoing()) {
+            ch.pipeline().addLast(CLIENT_THROTTLING_HANDLER, channelDependencies.getClientTrafficShaper().newHandler(clientShapingProperties));
+        }
+    }
+
+    /**
+     * Limits the incoming traffic of every single client if the listener has client rate limits. Extensions may still
+     * set the limits for a single client when it connects.
+     */
+    private @NotNull MQTTMessageDecoder createMqttMessageDecoder(@NotNull final Channel ch) {
+
+        final MQTTMessageDecoder decoder = new MQTTMessageDecoder(channelDependencies);
+        final ClientShapingProperties clientShapingProperties = listener.getClientShapingProperties();
+
+        if (clientShapingProperties.isLimitingIncoming()) {
+            decoder.setIncomingRateLimiter(channelDependencies.getClientTrafficShaper().newIncomingRateLimiter(clientShapingProperties, ch));
+        }
+        return decoder;
+    }
+
     protected abstract void addSpecialHandlers(@NotNull final Channel ch) throws Exception;
 
 
@@ -16,6 +16,9 @@
 
 package com.hivemq.codec.decoder;
 
+import com.hivemq.annotations.NotNull;
+import com.hivemq.annotations.Nullable;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.bootstrap.netty.ChannelDependencies;
 import com.hivemq.configuration.service.MqttConfigurationService;
 import com.hivemq.extensions.events.OnServerDisconnectEvent;
@@ -38,6 +41,7 @@ import com.hivemq.mqtt.message.suback.SUBACK;
 import com.hivemq.mqtt.message.subscribe.SUBSCRIBE;
 import com.hivemq.mqtt.message.unsuback.UNSUBACK;
 import com.hivemq.mqtt.message.unsubscribe.UNSUBSCRIBE;
+import com.hivemq.throttling.ClientIncomingRateLimiter;
 import com.hivemq.util.ChannelAttributes;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelFutureListener;
@@ -72,6 +76,14 @@ public class MQTTMessageDecoder extends ByteToMessageDecoder {
 
     private final boolean strict;
 
+    /**
+     * The protocol version never changes after the CONNECT, so it is cached here to avoid a channel attribute lookup
+     * for every message. This decoder is created per channel.
+     */
+    private @Nullable ProtocolVersion protocolVersion;
+
+    private @Nullable ClientIncomingRateLimiter incomingRateLimiter;
+
     public MQTTMessageDecoder(final MqttConnectDecoder connectDecoder,
                               final boolean strict,
                               final MqttConfigurationService mqttConfig,
@@ -128,7 +140,7 @@ public class MQTTMessageDecoder extends ByteToMessageDecoder {
 
         final int fixedHeaderSize = getFixedHeaderSize(remainingLength);
 
-        final ProtocolVersion protocolVersion = ctx.channel().attr(ChannelAttributes.MQTT_VERSION).get();
+        final ProtocolVersion protocolVersion = protocolVersion(ctx);
         //this is the message size HiveMQ allows for incoming messages
         if (remainingLength + fixedHeaderSize > mqttConfig.maxPacketSize()) {
             if (log.isDebugEnabled()) {
@@ -286,6 +298,29 @@ public class MQTTMessageDecoder extends ByteToMessageDecoder {
 
         out.add(message);
 
+        if (incomingRateLimiter != null) {
+            incomingRateLimiter.messageDecoded(fixedHeaderSize + remainingLength, messageType == MessageType.PUBLISH);
+        }
+    }
+
+    public @Nullable ClientIncomingRateLimiter getIncomingRateLimiter() {
+        return incomingRateLimiter;
+    }
+
+    /**
+     * Must be called on the event loop of the channel.
+     *
+     * @param incomingRateLimiter the rate limiter every decoded message is reported to
+     */
+    public void setIncomingRateLimiter(final @Nullable ClientIncomingRateLimiter incomingRateLimiter) {
+        this.incomingRateLimiter = incomingRateLimiter;
+    }
+
+    private @Nullable ProtocolVersion protocolVersion(final @NotNull ChannelHandlerContext ctx) {
+        if (protocolVersion == null) {
+            protocolVersion = ClientConnection.of(ctx.channel()).getProtocolVersion();
+        }
+        return protocolVersion;
     }
 
     private int getFixedHeaderSize(final int remainingLength) {
@@ -19,6 +19,7 @@ package com.hivemq.codec.decoder;
 import com.google.inject.Inject;
 import com.hivemq.annotations.NotNull;
 import com.hivemq.annotations.Nullable;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.bootstrap.ioc.lazysingleton.LazySingleton;
 import com.hivemq.codec.decoder.mqtt3.Mqtt311ConnectDecoder;
 import com.hivemq.codec.decoder.mqtt3.Mqtt31ConnectDecoder;
@@ -31,7 +32,6 @@ import com.hivemq.mqtt.handler.disconnect.Mqtt3ServerDisconnector;
 import com.hivemq.mqtt.handler.disconnect.Mqtt5ServerDisconnector;
 import com.hivemq.mqtt.message.ProtocolVersion;
 import com.hivemq.mqtt.message.connect.CONNECT;
-import com.hivemq.util.ChannelAttributes;
 import com.hivemq.util.ClientIds;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
@@ -124,7 +124,7 @@ public class MqttConnectDecoder {
                 return null;
         }
 
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(protocolVersion);
+        ClientConnection.of(channel).setProtocolVersion(protocolVersion);
 
         if (protocolVersion == ProtocolVersion.MQTTv5) {
             return mqtt5ConnectDecoder.decode(channel, buf, fixedHeader);
@@ -18,6 +18,7 @@ package com.hivemq.codec.decoder;
 
 import com.google.inject.Inject;
 import com.hivemq.annotations.NotNull;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.bootstrap.ioc.lazysingleton.LazySingleton;
 import com.hivemq.logging.EventLog;
 import com.hivemq.mqtt.message.PINGREQ;
@@ -27,7 +28,6 @@ import io.netty.channel.Channel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import static com.hivemq.util.ChannelAttributes.MQTT_VERSION;
 import static com.hivemq.util.ChannelUtils.getChannelIP;
 
 /**
@@ -49,7 +49,7 @@ public class MqttPingreqDecoder extends MqttDecoder<PINGREQ> {
     @Override
     public PINGREQ decode(@NotNull final Channel channel, @NotNull final ByteBuf buf, final byte header) {
 
-        final ProtocolVersion protocolVersion = channel.attr(MQTT_VERSION).get();
+        final ProtocolVersion protocolVersion = ClientConnection.of(channel).getProtocolVersion();
 
         //Pingreq of MQTTv5 is equal to MQTTv3_1_1
         if (ProtocolVersion.MQTTv5 == protocolVersion || ProtocolVersion.MQTTv3_1_1 == protocolVersion) {
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.codec.decoder;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.hivemq.annotations.Immutable;
+import com.hivemq.annotations.NotNull;
+import com.hivemq.annotations.Nullable;
+import com.hivemq.configuration.service.InternalConfigurations;
+import com.hivemq.metrics.HiveMQMetrics;
+import com.hivemq.mqtt.topic.TokenizedTopic;
+import io.netty.buffer.ByteBuf;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded cache of the topics of incoming PUBLISHes, keyed by the encoded bytes of the topic.
+ * <p>
+ * Clients usually publish to the same few topics over and over again. If the encoded topic of a PUBLISH is found in
+ * the cache, the topic is neither decoded nor validated again and the same {@link TokenizedTopic} is returned, so no
+ * topic strings are allocated.
+ * <p>
+ * The cache is direct mapped, a topic simply replaces the topic that was mapped to the same slot before. Only topics
+ * which passed the validation of the PUBLISH decoders may be added.
+ */
+@Singleton
+public class TopicInternCache {
+
+    // estimated overhead of an entry, its byte array, its TokenizedTopic and the topic String
+    private static final int ENTRY_OVERHEAD = 24 + 12 + 24 + 38;
+    private static final int LEVEL_OVERHEAD = 4 + 38;
+
+    private final @Nullable AtomicReferenceArray<Entry> entries;
+    private final int mask;
+    private final int maxTopicLength;
+
+    private final @NotNull Counter hitCounter;
+    private final @NotNull Counter missCounter;
+    private final @NotNull AtomicLong entryCount = new AtomicLong();
+    private final @NotNull AtomicLong memory = new AtomicLong();
+
+    @Inject
+    public TopicInternCache(final @NotNull MetricRegistry metricRegistry) {
+        this(metricRegistry, InternalConfigurations.MQTT_TOPIC_INTERN_CACHE_ENABLED.get(),
+                InternalConfigurations.MQTT_TOPIC_INTERN_CACHE_SIZE, InternalConfigurations.MQTT_TOPIC_INTERN_CACHE_MAX_TOPIC_LENGTH);
+    }
+
+    @VisibleForTesting
+    TopicInternCache(final @NotNull MetricRegistry metricRegistry, final boolean enabled, final int size, final int maxTopicLength) {
+        this.entries = enabled ? new AtomicReferenceArray<>(size) : null;
+        this.mask = size - 1;
+        this.maxTopicLength = maxTopicLength;
+
+        hitCounter = metricRegistry.counter(HiveMQMetrics.TOPIC_INTERN_CACHE_HIT_COUNT.name());
+        missCounter = metricRegistry.counter(HiveMQMetrics.TOPIC_INTERN_CACHE_MISS_COUNT.name());
+        metricRegistry.register(HiveMQMetrics.TOPIC_INTERN_CACHE_ENTRIES_CURRENT.name(), (Gauge<Number>) entryCount::get);
+        metricRegistry.register(HiveMQMetrics.TOPIC_INTERN_CACHE_MEMORY_CURRENT.name(), (Gauge<Number>) memory::get);
+    }
+
+    /**
+     * Looks up the topic that is encoded at the reader index of the buffer. If it is found, the reader index is moved
+     * behind the topic.
+     *
+     * @param buf    the buffer positioned at the first byte of the topic
+     * @param length the length of the encoded topic
+     * @return the cached topic or null if the topic has to be decoded
+     */
+    public @Nullable TokenizedTopic get(final @NotNull ByteBuf buf, final int length) {
+        if (entries == null || length == 0 || length > maxTopicLength || buf.readableBytes() < length) {
+            return null;
+        }
+        final int index = buf.readerIndex();
+        final int hash = hash(buf, index, length);
+        final Entry entry = entries.get(hash & mask);
+        if (entry != null && entry.hash == hash && entry.matches(buf, index, length)) {
+            hitCounter.inc();
+            buf.skipBytes(length);
+            return entry.topic;
+        }
+        missCounter.inc();
+        return null;
+    }
+
+    /**
+     * Adds a decoded and validated topic to the cache.
+     *
+     * @param buf    the buffer the topic was decoded from
+     * @param index  the index of the first byte of the topic in the buffer
+     * @param length the length of the encoded topic
+     * @param topic  the decoded topic
+     * @return the tokenized topic or null if the topic is not cached
+     */
+    public @Nullable TokenizedTopic put(
+            final @NotNull ByteBuf buf, final int index, final int length, final @NotNull String topic) {
+
+        if (entries == null || length == 0 || length > maxTopicLength) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        buf.getBytes(index, bytes);
+        final int hash = hash(buf, index, length);
+        final Entry entry = new Entry(bytes, hash, TokenizedTopic.of(topic));
+
+        final int slot = hash & mask;
+        final Entry previous = entries.get(slot);
+        // if another decoder replaced the entry concurrently, its topic is kept
+        if (entries.compareAndSet(slot, previous, entry)) {
+            if (previous == null) {
+                entryCount.incrementAndGet();
+                memory.addAndGet(entry.memory);
+            } else {
+                memory.addAndGet(entry.memory - previous.memory);
+            }
+        }
+        return entry.topic;
+    }
+
+    private static int hash(final @NotNull ByteBuf buf, final int index, final int length) {
+        int hash = 1;
+        for (int i = index; i < index + length; i++) {
+            hash = 31 * hash + buf.getByte(i);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    @Immutable
+    private static class Entry {
+
+        private final @NotNull byte[] bytes;
+        private final int hash;
+        private final @NotNull TokenizedTopic topic;
+        private final int memory;
+
+        Entry(final @NotNull byte[] bytes, final int hash, final @NotNull TokenizedTopic topic) {
+            this.bytes = bytes;
+            this.hash = hash;
+            this.topic = topic;
+
+            int memory = ENTRY_OVERHEAD + bytes.length + topic.getTopic().length() * 2;
+            for (final String level : topic.getLevels()) {
+                memory += LEVEL_OVERHEAD + level.length() * 2;
+            }
+            this.memory = memory;
+        }
+
+        boolean matches(final @NotNull ByteBuf buf, final int index, final int length) {
+            if (bytes.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (bytes[i] != buf.getByte(index + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
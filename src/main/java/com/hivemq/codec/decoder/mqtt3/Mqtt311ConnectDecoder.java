@@ -16,6 +16,7 @@
 
 package com.hivemq.codec.decoder.mqtt3;
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.bootstrap.ioc.lazysingleton.LazySingleton;
 import com.hivemq.codec.decoder.AbstractMqttConnectDecoder;
 import com.hivemq.configuration.HivemqId;
@@ -222,7 +223,7 @@ public class Mqtt311ConnectDecoder extends AbstractMqttConnectDecoder {
             password = null;
         }
 
-        channel.attr(ChannelAttributes.CLIENT_ID).set(clientId);
+        ClientConnection.of(channel).setClientId(clientId);
         channel.attr(ChannelAttributes.CONNECT_KEEP_ALIVE).set(keepAlive);
         channel.attr(ChannelAttributes.CLEAN_START).set(isCleanSessionFlag);
 
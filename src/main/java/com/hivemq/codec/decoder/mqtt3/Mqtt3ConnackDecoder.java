@@ -17,6 +17,7 @@
 package com.hivemq.codec.decoder.mqtt3;
 
 import com.google.inject.Inject;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.bootstrap.ioc.lazysingleton.LazySingleton;
 import com.hivemq.codec.decoder.MqttDecoder;
 import com.hivemq.logging.EventLog;
@@ -28,7 +29,6 @@ import io.netty.channel.Channel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import static com.hivemq.util.ChannelAttributes.MQTT_VERSION;
 import static com.hivemq.util.ChannelUtils.getChannelIP;
 
 /**
@@ -49,7 +49,7 @@ public class Mqtt3ConnackDecoder extends MqttDecoder<CONNACK> {
 
     @Override
     public CONNACK decode(final Channel channel, final ByteBuf buf, final byte header) {
-        final boolean isMqtt311 = ProtocolVersion.MQTTv3_1_1 == channel.attr(MQTT_VERSION).get();
+        final boolean isMqtt311 = ProtocolVersion.MQTTv3_1_1 == ClientConnection.of(channel).getProtocolVersion();
         final byte connectAcknowledgeFlags = buf.readByte();
         if (isMqtt311) {
             if (!validateHeader(header)) {
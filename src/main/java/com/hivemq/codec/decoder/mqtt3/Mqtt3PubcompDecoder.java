@@ -17,6 +17,7 @@
 package com.hivemq.codec.decoder.mqtt3;
 
 import com.google.inject.Inject;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.bootstrap.ioc.lazysingleton.LazySingleton;
 import com.hivemq.codec.decoder.MqttDecoder;
 import com.hivemq.logging.EventLog;
@@ -27,7 +28,6 @@ import io.netty.channel.Channel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import static com.hivemq.util.ChannelAttributes.MQTT_VERSION;
 import static com.hivemq.util.ChannelUtils.getChannelIP;
 
 /**
@@ -48,7 +48,7 @@ public class Mqtt3PubcompDecoder extends MqttDecoder<PUBCOMP> {
     @Override
     public PUBCOMP decode(final Channel channel, final ByteBuf buf, final byte header) {
 
-        if (ProtocolVersion.MQTTv3_1_1 == channel.attr(MQTT_VERSION).get()) {
+        if (ProtocolVersion.MQTTv3_1_1 == ClientConnection.of(channel).getProtocolVersion()) {
             if (!validateHeader(header)) {
                 if (log.isDebugEnabled()) {
                     log.debug("A client (IP: {}) sent a Pubcomp with an invalid fixed header. Disconnecting client.", getChannelIP(channel).or("UNKNOWN"));
@@ -20,6 +20,7 @@ import com.google.inject.Inject;
 import com.hivemq.annotations.NotNull;
 import com.hivemq.bootstrap.ioc.lazysingleton.LazySingleton;
 import com.hivemq.codec.decoder.AbstractMqttPublishDecoder;
+import com.hivemq.codec.decoder.TopicInternCache;
 import com.hivemq.configuration.HivemqId;
 import com.hivemq.configuration.service.FullConfigurationService;
 import com.hivemq.mqtt.handler.disconnect.Mqtt3ServerDisconnector;
@@ -27,6 +28,7 @@ import com.hivemq.mqtt.message.MessageType;
 import com.hivemq.mqtt.message.QoS;
 import com.hivemq.mqtt.message.publish.Mqtt3PUBLISH;
 import com.hivemq.mqtt.message.publish.PUBLISHFactory;
+import com.hivemq.mqtt.topic.TokenizedTopic;
 import com.hivemq.util.Strings;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
@@ -39,11 +41,14 @@ import io.netty.channel.Channel;
 public class Mqtt3PublishDecoder extends AbstractMqttPublishDecoder<Mqtt3PUBLISH> {
 
     private final HivemqId hivemqId;
+    private final TopicInternCache topicInternCache;
 
     @Inject
-    public Mqtt3PublishDecoder(final HivemqId hivemqId, final Mqtt3ServerDisconnector disconnector, final FullConfigurationService fullConfigurationService) {
+    public Mqtt3PublishDecoder(final HivemqId hivemqId, final Mqtt3ServerDisconnector disconnector, final FullConfigurationService fullConfigurationService,
+                               final TopicInternCache topicInternCache) {
         super(disconnector, fullConfigurationService);
         this.hivemqId = hivemqId;
+        this.topicInternCache = topicInternCache;
     }
 
     @Override
@@ -70,19 +75,30 @@ public class Mqtt3PublishDecoder extends AbstractMqttPublishDecoder<Mqtt3PUBLISH
             return null;
         }
 
+        //a cached topic was already validated
+        TokenizedTopic tokenizedTopic = topicInternCache.get(buf, utf8StringLength);
         final String topicName;
 
-        if (validateUTF8) {
-            topicName = decodeUTF8Topic(channel, buf, utf8StringLength, "topic", MessageType.PUBLISH);
-            if (topicName == null) {
-                return null;
-            }
+        if (tokenizedTopic != null) {
+            topicName = tokenizedTopic.getTopic();
         } else {
-            topicName = Strings.getPrefixedString(buf, utf8StringLength);
-        }
+            final int topicIndex = buf.readerIndex();
+            if (validateUTF8) {
+                topicName = decodeUTF8Topic(channel, buf, utf8StringLength, "topic", MessageType.PUBLISH);
+                if (topicName == null) {
+                    return null;
+                }
+            } else {
+                topicName = Strings.getPrefixedString(buf, utf8StringLength);
+            }
 
-        if (topicInvalid(channel, topicName, MessageType.PUBLISH)) {
-            return null;
+            if (topicInvalid(channel, topicName, MessageType.PUBLISH)) {
+                return null;
+            }
+            //only validated topics may be used by other decoders
+            if (validateUTF8) {
+                tokenizedTopic = topicInternCache.put(buf, topicIndex, utf8StringLength, topicName);
+            }
         }
 
         final int packetIdentifier;
@@ -103,6 +119,7 @@ public class Mqtt3PublishDecoder extends AbstractMqttPublishDecoder<Mqtt3PUBLISH
                 .withMessageExpiryInterval(maxMessageExpiryInterval)
                 .withQoS(QoS.valueOf(qos))
                 .withTopic(topicName)
+                .withTokenizedTopic(tokenizedTopic)
                 .withDuplicateDelivery(dup)
                 .withPacketIdentifier(packetIdentifier)
                 .withRetain(retain)
@@ -17,6 +17,7 @@
 package com.hivemq.codec.decoder.mqtt3;
 
 import com.google.inject.Inject;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.bootstrap.ioc.lazysingleton.LazySingleton;
 import com.hivemq.codec.decoder.MqttDecoder;
 import com.hivemq.logging.EventLog;
@@ -31,7 +32,6 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.List;
 
-import static com.hivemq.util.ChannelAttributes.MQTT_VERSION;
 import static com.hivemq.util.ChannelUtils.getChannelIP;
 
 /**
@@ -51,7 +51,7 @@ public class Mqtt3SubackDecoder extends MqttDecoder<SUBACK> {
 
     @Override
     public SUBACK decode(final Channel channel, final ByteBuf buf, final byte header) {
-        if (ProtocolVersion.MQTTv3_1_1 == channel.attr(MQTT_VERSION).get()) {
+        if (ProtocolVersion.MQTTv3_1_1 == ClientConnection.of(channel).getProtocolVersion()) {
             if (!validateHeader(header)) {
                 log.error("A client (IP: {}) sent a Suback with an invalid fixed header. Disconnecting client.", getChannelIP(channel).or("UNKNOWN"));
                 eventLog.clientWasDisconnected(channel, "Invalid SUBACK fixed header");
@@ -18,6 +18,7 @@ package com.hivemq.codec.decoder.mqtt3;
 
 import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.bootstrap.ioc.lazysingleton.LazySingleton;
 import com.hivemq.codec.decoder.MqttDecoder;
 import com.hivemq.logging.EventLog;
@@ -31,7 +32,6 @@ import io.netty.channel.Channel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import static com.hivemq.util.ChannelAttributes.MQTT_VERSION;
 import static com.hivemq.util.ChannelUtils.getChannelIP;
 
 /**
@@ -52,7 +52,7 @@ public class Mqtt3SubscribeDecoder extends MqttDecoder<SUBSCRIBE> {
     @Override
     public SUBSCRIBE decode(final Channel channel, final ByteBuf buf, final byte header) {
 
-        if (ProtocolVersion.MQTTv3_1_1 == channel.attr(MQTT_VERSION).get()) {
+        if (ProtocolVersion.MQTTv3_1_1 == ClientConnection.of(channel).getProtocolVersion()) {
             //Must match 0b0000_0010
             if ((header & 0b0000_1111) != 2) {
                 if (log.isDebugEnabled()) {
@@ -63,7 +63,7 @@ public class Mqtt3SubscribeDecoder extends MqttDecoder<SUBSCRIBE> {
                 buf.clear();
                 return null;
             }
-        } else if (ProtocolVersion.MQTTv3_1 == channel.attr(MQTT_VERSION).get()) {
+        } else if (ProtocolVersion.MQTTv3_1 == ClientConnection.of(channel).getProtocolVersion()) {
             //Must match 0b0000_0010 or 0b0000_0011
             if ((header & 0b0000_1111) > 3) {
                 if (log.isDebugEnabled()) {
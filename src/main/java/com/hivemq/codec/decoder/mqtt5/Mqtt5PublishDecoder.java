@@ -19,8 +19,10 @@ package com.hivemq.codec.decoder.mqtt5;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.bootstrap.ioc.lazysingleton.LazySingleton;
 import com.hivemq.codec.decoder.AbstractMqttPublishDecoder;
+import com.hivemq.codec.decoder.TopicInternCache;
 import com.hivemq.codec.encoder.mqtt5.Mqtt5PayloadFormatIndicator;
 import com.hivemq.codec.encoder.mqtt5.MqttVariableByteInteger;
 import com.hivemq.configuration.HivemqId;
@@ -34,7 +36,7 @@ import com.hivemq.mqtt.message.mqtt5.MqttUserProperty;
 import com.hivemq.mqtt.message.publish.Mqtt5PUBLISH;
 import com.hivemq.mqtt.message.publish.PUBLISHFactory.Mqtt5Builder;
 import com.hivemq.mqtt.message.reason.Mqtt5DisconnectReasonCode;
-import com.hivemq.util.ChannelAttributes;
+import com.hivemq.mqtt.topic.TokenizedTopic;
 import com.hivemq.util.ReasonStrings;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
@@ -52,17 +54,20 @@ public class Mqtt5PublishDecoder extends AbstractMqttPublishDecoder<Mqtt5PUBLISH
     private final HivemqId hiveMQId;
     private final boolean validatePayloadFormat;
     private final TopicAliasLimiter topicAliasLimiter;
+    private final TopicInternCache topicInternCache;
 
     @VisibleForTesting
     @Inject
     public Mqtt5PublishDecoder(final Mqtt5ServerDisconnector errorHandler,
                                final HivemqId hiveMQId,
                                final FullConfigurationService fullConfigurationService,
-                               final TopicAliasLimiter topicAliasLimiter) {
+                               final TopicAliasLimiter topicAliasLimiter,
+                               final TopicInternCache topicInternCache) {
         super(errorHandler, fullConfigurationService);
         this.hiveMQId = hiveMQId;
         this.validatePayloadFormat = fullConfigurationService.securityConfiguration().payloadFormatValidation();
         this.topicAliasLimiter = topicAliasLimiter;
+        this.topicInternCache = topicInternCache;
     }
 
     @Override
@@ -83,17 +88,31 @@ public class Mqtt5PublishDecoder extends AbstractMqttPublishDecoder<Mqtt5PUBLISH
             return null;
         }
 
-        String topicName = decodeUTF8Topic(channel, buf, "topic", MessageType.PUBLISH);
-        if (topicName == null) {
+        final int topicLength = decodeUTF8StringLength(channel, buf, "topic", MessageType.PUBLISH);
+        if (topicLength == DISCONNECTED) {
             return null;
         }
 
-        if (topicName.isEmpty()) {
-            topicName = null;
+        //a cached topic was already validated
+        TokenizedTopic tokenizedTopic = topicInternCache.get(buf, topicLength);
+        String topicName;
+        if (tokenizedTopic != null) {
+            topicName = tokenizedTopic.getTopic();
         } else {
-            if (topicInvalid(channel, topicName, MessageType.PUBLISH)) {
+            final int topicIndex = buf.readerIndex();
+            topicName = decodeUTF8Topic(channel, buf, topicLength, "topic", MessageType.PUBLISH);
+            if (topicName == null) {
                 return null;
             }
+
+            if (topicName.isEmpty()) {
+                topicName = null;
+            } else {
+                if (topicInvalid(channel, topicName, MessageType.PUBLISH)) {
+                    return null;
+                }
+                tokenizedTopic = topicInternCache.put(buf, topicIndex, topicLength, topicName);
+            }
         }
 
         final int packetIdentifier;
@@ -117,6 +136,7 @@ public class Mqtt5PublishDecoder extends AbstractMqttPublishDecoder<Mqtt5PUBLISH
         }
 
         return publishBuilder
+                .withTokenizedTopic(tokenizedTopic)
                 .withHivemqId(hiveMQId.get())
                 .withQoS(QoS.valueOf(qos))
                 .withRetain(retain)
@@ -261,7 +281,7 @@ public class Mqtt5PublishDecoder extends AbstractMqttPublishDecoder<Mqtt5PUBLISH
         boolean isNewTopicAlias = false;
         if (topicAlias != DEFAULT_NO_TOPIC_ALIAS) {
 
-            final String[] topicAliasMapping = channel.attr(ChannelAttributes.TOPIC_ALIAS_MAPPING).get();
+            final String[] topicAliasMapping = ClientConnection.of(channel).getTopicAliasMapping();
             if (topicAliasMapping == null || topicAlias > topicAliasMapping.length) {
                 disconnector.disconnect(channel,
                         "A client (IP: {}) sent a PUBLISH with a too large topic alias. This is not allowed. Disconnecting client.",
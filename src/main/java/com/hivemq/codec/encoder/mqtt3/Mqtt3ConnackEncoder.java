@@ -17,12 +17,12 @@
 package com.hivemq.codec.encoder.mqtt3;
 
 import com.hivemq.annotations.NotNull;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.codec.encoder.FixedSizeMessageEncoder;
 import com.hivemq.codec.encoder.MqttEncoder;
 import com.hivemq.mqtt.message.connack.CONNACK;
 import com.hivemq.mqtt.message.connack.Mqtt3CONNACK;
 import com.hivemq.mqtt.message.connack.Mqtt3ConnAckReturnCode;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
@@ -47,7 +47,7 @@ public class Mqtt3ConnackEncoder extends FixedSizeMessageEncoder<Mqtt3CONNACK> i
         out.writeByte(CONNACK_REMAINING_LENGTH);
 
         final Mqtt3ConnAckReturnCode returnCode = msg.getReturnCode();
-        switch (ctx.channel().attr(ChannelAttributes.MQTT_VERSION).get()) {
+        switch (ClientConnection.of(ctx.channel()).getProtocolVersion()) {
             case MQTTv3_1:
                 out.writeByte(CONNACK_FLAGS_EMPTY);
                 break;
@@ -17,11 +17,11 @@
 package com.hivemq.codec.encoder.mqtt3;
 
 import com.hivemq.annotations.NotNull;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.codec.encoder.MqttEncoder;
 import com.hivemq.mqtt.message.ProtocolVersion;
 import com.hivemq.mqtt.message.reason.Mqtt5SubAckReasonCode;
 import com.hivemq.mqtt.message.suback.SUBACK;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import org.slf4j.Logger;
@@ -67,7 +67,7 @@ public class Mqtt3SubackEncoder extends AbstractVariableHeaderLengthEncoder<SUBA
     }
 
     private boolean closedIfNotAllowed(final ChannelHandlerContext ctx, final SUBACK msg) {
-        final ProtocolVersion protocolVersion = ctx.channel().attr(ChannelAttributes.MQTT_VERSION).get();
+        final ProtocolVersion protocolVersion = ClientConnection.of(ctx.channel()).getProtocolVersion();
         final List<Mqtt5SubAckReasonCode> grantedQos = msg.getReasonCodes();
 
         if (grantedQos.size() == 0) {
@@ -18,32 +18,28 @@ package com.hivemq.codec.encoder.mqtt5;
 
 import com.google.common.base.Preconditions;
 import com.hivemq.annotations.NotNull;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.codec.encoder.FixedSizeMessageEncoder;
 import com.hivemq.configuration.service.SecurityConfigurationService;
 import com.hivemq.mqtt.message.Message;
 import com.hivemq.mqtt.message.QoS;
 import com.hivemq.mqtt.message.connack.CONNACK;
-import com.hivemq.mqtt.message.connect.Mqtt5CONNECT;
 import com.hivemq.mqtt.message.disconnect.DISCONNECT;
 import com.hivemq.mqtt.message.dropping.MessageDroppedService;
 import com.hivemq.mqtt.message.mqtt5.Mqtt5UserProperties;
 import com.hivemq.mqtt.message.mqtt5.MqttMessageWithUserProperties;
 import com.hivemq.mqtt.message.publish.PUBLISH;
 import com.hivemq.mqtt.message.reason.Mqtt5ReasonCode;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Objects;
-
 import static com.hivemq.codec.encoder.mqtt5.Mqtt5MessageEncoderUtil.encodeNullableProperty;
 import static com.hivemq.codec.encoder.mqtt5.Mqtt5MessageEncoderUtil.nullablePropertyEncodedLength;
 import static com.hivemq.codec.encoder.mqtt5.MqttMessageEncoderUtil.encodedLengthWithHeader;
 import static com.hivemq.codec.encoder.mqtt5.MqttMessageEncoderUtil.encodedPacketLength;
-import static com.hivemq.codec.encoder.mqtt5.MqttVariableByteInteger.MAXIMUM_PACKET_SIZE_LIMIT;
 import static com.hivemq.mqtt.message.mqtt5.MessageProperties.REASON_STRING;
 
 /**
@@ -71,9 +67,23 @@ abstract class Mqtt5MessageWithUserPropertiesEncoder<T extends Message> extends
         Preconditions.checkNotNull(message, "Message must never be null");
         Preconditions.checkNotNull(out, "ByteBuf must never be null");
 
+        if (drop(ctx, message)) {
+            return;
+        }
+
+        encode(message, out);
+    }
+
+    /**
+     * Drops the message if it must not be sent to the client.
+     *
+     * @return whether the message was dropped.
+     */
+    boolean drop(@NotNull final ChannelHandlerContext ctx, @NotNull final T message) {
+
         if (message.getOmittedProperties() > 0) {
 
-            final String clientIdFromChannel = ctx.channel().attr(ChannelAttributes.CLIENT_ID).get();
+            final String clientIdFromChannel = ClientConnection.of(ctx.channel()).getClientId();
             final String clientId = clientIdFromChannel != null ? clientIdFromChannel : "UNKNOWN";
 
             final long maximumPacketSize = calculateMaxMessageSize(ctx.channel());
@@ -84,13 +94,13 @@ abstract class Mqtt5MessageWithUserPropertiesEncoder<T extends Message> extends
                 ctx.fireUserEventTriggered(new PublishDroppedEvent((PUBLISH) message));
                 messageDroppedService.publishMaxPacketSizeExceeded(clientId, ((PUBLISH) message).getTopic(), ((PUBLISH) message).getQoS().getQosNumber(), maximumPacketSize, message.getEncodedLength());
                 log.trace("Could not encode publish message for client ({}): Maximum packet size limit exceeded", clientId);
-                return;
+                return true;
             }
 
             if (message.getPropertyLength() < 0 && message.getEncodedLength() > maximumPacketSize) {
                 messageDroppedService.messageMaxPacketSizeExceeded(clientId, message.getType().name(), maximumPacketSize, message.getEncodedLength());
                 log.trace("Could not encode message of type {} for client {}: Packet to large", message.getType(), clientId);
-                return;
+                return true;
             }
         }
 
@@ -100,20 +110,35 @@ abstract class Mqtt5MessageWithUserPropertiesEncoder<T extends Message> extends
             final boolean drop = publish.getMessageExpiryInterval() == 0 && !(publish.getQoS() == QoS.EXACTLY_ONCE && publish.isDuplicateDelivery());
             if (drop) {
                 ctx.fireUserEventTriggered(new PublishDroppedEvent(publish));
-                return;
+                return true;
             }
         }
 
-        encode(message, out);
+        return false;
     }
 
     @Override
     public int bufferSize(@NotNull final ChannelHandlerContext ctx, final @NotNull T message) {
+        return bufferSize(ctx, message, calculatePropertyLength(message), calculateRemainingLengthWithoutProperties(message));
+    }
+
+    /**
+     * Calculates the encoded length of the message and the properties that have to be omitted.
+     *
+     * @param fullPropertyLength               the property length of the message without omitted properties.
+     * @param remainingLengthWithoutProperties the remaining length of the message without the properties.
+     * @return the encoded length of the message.
+     */
+    int bufferSize(
+            @NotNull final ChannelHandlerContext ctx,
+            final @NotNull T message,
+            final int fullPropertyLength,
+            final int remainingLengthWithoutProperties) {
 
         int omittedProperties = 0;
-        int propertyLength = calculatePropertyLength(message);
+        int propertyLength = fullPropertyLength;
 
-        if (!securityConfigurationService.allowRequestProblemInformation() || !Objects.requireNonNullElse(ctx.channel().attr(ChannelAttributes.REQUEST_PROBLEM_INFORMATION).get(), Mqtt5CONNECT.DEFAULT_PROBLEM_INFORMATION_REQUESTED)) {
+        if (!securityConfigurationService.allowRequestProblemInformation() || !ClientConnection.of(ctx.channel()).isProblemInformationRequested()) {
 
             //Must omit user properties and reason string for any other packet than PUBLISH, CONNACK, DISCONNECT
             //if no problem information requested.
@@ -128,7 +153,6 @@ abstract class Mqtt5MessageWithUserPropertiesEncoder<T extends Message> extends
         }
 
         final long maximumPacketSize = calculateMaxMessageSize(ctx.channel());
-        final int remainingLengthWithoutProperties = calculateRemainingLengthWithoutProperties(message);
         int remainingLength = remainingLength(message, remainingLengthWithoutProperties, propertyLength);
         int encodedLength = encodedPacketLength(remainingLength);
         while (encodedLength > maximumPacketSize) {
@@ -152,10 +176,9 @@ abstract class Mqtt5MessageWithUserPropertiesEncoder<T extends Message> extends
         return encodedLength;
     }
 
-    private @NotNull Long calculateMaxMessageSize(final @NotNull Channel channel) {
+    private long calculateMaxMessageSize(final @NotNull Channel channel) {
         Preconditions.checkNotNull(channel, "A Channel must never be null");
-        final Long maxMessageSize = channel.attr(ChannelAttributes.MAX_PACKET_SIZE_SEND).get();
-        return Objects.requireNonNullElse(maxMessageSize, (long) MAXIMUM_PACKET_SIZE_LIMIT);
+        return ClientConnection.of(channel).getMaxPacketSizeSend();
     }
 
     abstract void encode(@NotNull final T message, @NotNull final ByteBuf out);
@@ -16,8 +16,12 @@
 
 package com.hivemq.codec.encoder.mqtt5;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
 import com.hivemq.annotations.NotNull;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.codec.encoder.MqttEncoder;
+import com.hivemq.configuration.service.InternalConfigurations;
 import com.hivemq.configuration.service.SecurityConfigurationService;
 import com.hivemq.mqtt.message.MessageType;
 import com.hivemq.mqtt.message.QoS;
@@ -25,6 +29,8 @@ import com.hivemq.mqtt.message.dropping.MessageDroppedService;
 import com.hivemq.mqtt.message.mqtt5.Mqtt5UserProperties;
 import com.hivemq.mqtt.message.publish.PUBLISH;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
 
 import javax.inject.Singleton;
 import java.util.List;
@@ -42,26 +48,91 @@ public class Mqtt5PublishEncoder extends Mqtt5MessageWithUserPropertiesEncoder<P
 
     private static final int FIXED_HEADER = MessageType.PUBLISH.ordinal() << 4;
 
+    private final boolean sharedPropertiesEncoding;
+
     public Mqtt5PublishEncoder(final @NotNull MessageDroppedService messageDroppedService,
                                final @NotNull SecurityConfigurationService securityConfigurationService) {
+        this(messageDroppedService, securityConfigurationService,
+                InternalConfigurations.MQTT_PUBLISH_SHARED_PROPERTIES_ENCODING_ENABLED.get());
+    }
+
+    @VisibleForTesting
+    Mqtt5PublishEncoder(final @NotNull MessageDroppedService messageDroppedService,
+                        final @NotNull SecurityConfigurationService securityConfigurationService,
+                        final boolean sharedPropertiesEncoding) {
         super(messageDroppedService, securityConfigurationService);
+        this.sharedPropertiesEncoding = sharedPropertiesEncoding;
+    }
+
+    @Override
+    public int bufferSize(@NotNull final ChannelHandlerContext ctx, @NotNull final PUBLISH publish) {
+
+        final OutboundTopicAliasMapping topicAliasMapping =
+                ClientConnection.of(ctx.channel()).getOutboundTopicAliasMapping();
+        final int topicAlias = topicAliasMapping == null ?
+                OutboundTopicAliasMapping.NO_TOPIC_ALIAS : topicAliasMapping.lookup(publish);
+
+        return bufferSize(ctx, publish, calculatePropertyLength(publish, topicAlias),
+                calculateRemainingLengthWithoutProperties(publish, topicAlias));
+    }
+
+    @Override
+    public void encode(@NotNull final ChannelHandlerContext ctx,
+                       @NotNull final PUBLISH publish,
+                       @NotNull final ByteBuf out) {
+
+        Preconditions.checkNotNull(ctx, "ChannelHandlerContext must never be null");
+        Preconditions.checkNotNull(publish, "Message must never be null");
+        Preconditions.checkNotNull(out, "ByteBuf must never be null");
+
+        final OutboundTopicAliasMapping topicAliasMapping =
+                ClientConnection.of(ctx.channel()).getOutboundTopicAliasMapping();
+        final int topicAlias = topicAliasMapping == null ?
+                OutboundTopicAliasMapping.NO_TOPIC_ALIAS : topicAliasMapping.pollTopicAlias(publish);
+
+        if (drop(ctx, publish)) {
+            return;
+        }
+
+        encode(publish, topicAlias, out);
+
+        //a new topic alias is only mapped and a known one only counts as used if the PUBLISH was not dropped
+        if (topicAlias != OutboundTopicAliasMapping.NO_TOPIC_ALIAS) {
+            topicAliasMapping.sent(publish.getTopic(), topicAlias);
+        }
     }
 
     @Override
     void encode(@NotNull final PUBLISH publish,
                 @NotNull final ByteBuf out) {
 
+        encode(publish, OutboundTopicAliasMapping.NO_TOPIC_ALIAS, out);
+    }
+
+    private void encode(@NotNull final PUBLISH publish,
+                        final int topicAlias,
+                        @NotNull final ByteBuf out) {
+
         encodeFixedHeader(publish, out);
-        encodeVariableHeader(publish, out);
+        encodeVariableHeader(publish, topicAlias, out);
         encodePayload(publish, out);
     }
 
     @Override
     int calculateRemainingLengthWithoutProperties(@NotNull final PUBLISH publish) {
+        return calculateRemainingLengthWithoutProperties(publish, OutboundTopicAliasMapping.NO_TOPIC_ALIAS);
+    }
+
+    private int calculateRemainingLengthWithoutProperties(@NotNull final PUBLISH publish, final int topicAlias) {
 
         int remainingLength = 0;
 
-        remainingLength += MqttBinaryData.encodedLength(publish.getTopic());
+        if (topicAlias > 0) {
+            //empty topic, the client knows the topic of the alias
+            remainingLength += 2;
+        } else {
+            remainingLength += MqttBinaryData.encodedLength(publish.getTopic());
+        }
 
         //packetIdentifier
         if (publish.getQoS() != QoS.AT_MOST_ONCE) {
@@ -78,12 +149,21 @@ public class Mqtt5PublishEncoder extends Mqtt5MessageWithUserPropertiesEncoder<P
 
     @Override
     int calculatePropertyLength(@NotNull final PUBLISH publish) {
+        return calculatePropertyLength(publish, OutboundTopicAliasMapping.NO_TOPIC_ALIAS);
+    }
+
+    private int calculatePropertyLength(@NotNull final PUBLISH publish, final int topicAlias) {
 
         int propertyLength = 0;
 
-        propertyLength += fixedPropertyLength(publish);
+        propertyLength += intPropertyEncodedLength(publish.getMessageExpiryInterval(), MAX_EXPIRY_INTERVAL_DEFAULT);
+        propertyLength += shortPropertyEncodedLength(Math.abs(topicAlias), OutboundTopicAliasMapping.NO_TOPIC_ALIAS);
 
-        propertyLength += publish.getUserProperties().encodedLength();
+        if (sharedPropertiesEncoding) {
+            propertyLength += sharedProperties(publish).length;
+        } else {
+            propertyLength += sharedPropertyLength(publish);
+        }
 
         final List<Integer> subscriptionIdentifiers = publish.getSubscriptionIdentifiers();
         if (subscriptionIdentifiers != null) {
@@ -100,18 +180,38 @@ public class Mqtt5PublishEncoder extends Mqtt5MessageWithUserPropertiesEncoder<P
         return publish.getUserProperties();
     }
 
-    private int fixedPropertyLength(@NotNull final PUBLISH publish) {
+    /**
+     * Calculates the length of the properties that are the same for every subscriber of the PUBLISH.
+     */
+    private int sharedPropertyLength(@NotNull final PUBLISH publish) {
         int propertyLength = 0;
 
-        propertyLength += intPropertyEncodedLength(publish.getMessageExpiryInterval(), MAX_EXPIRY_INTERVAL_DEFAULT);
         propertyLength += nullablePropertyEncodedLength(publish.getPayloadFormatIndicator());
         propertyLength += nullablePropertyEncodedLength(publish.getContentType());
         propertyLength += nullablePropertyEncodedLength(publish.getResponseTopic());
         propertyLength += nullablePropertyEncodedLength(publish.getCorrelationData());
+        propertyLength += publish.getUserProperties().encodedLength();
 
         return propertyLength;
     }
 
+    /**
+     * Returns the properties that are the same for every subscriber of the PUBLISH, which are encoded only once and
+     * then shared by all copies of the PUBLISH.
+     */
+    private @NotNull byte[] sharedProperties(@NotNull final PUBLISH publish) {
+        final byte[] encodedSharedProperties = publish.getEncodedSharedProperties();
+        if (encodedSharedProperties != null) {
+            return encodedSharedProperties;
+        }
+        final byte[] encoded = new byte[sharedPropertyLength(publish)];
+        final ByteBuf buf = Unpooled.wrappedBuffer(encoded).clear();
+        encodeFixedProperties(publish, buf);
+        publish.getUserProperties().encode(buf);
+        publish.setEncodedSharedProperties(encoded);
+        return encoded;
+    }
+
     private void encodeFixedHeader(@NotNull final PUBLISH publish,
                                    @NotNull final ByteBuf out) {
 
@@ -130,24 +230,37 @@ public class Mqtt5PublishEncoder extends Mqtt5MessageWithUserPropertiesEncoder<P
     }
 
     private void encodeVariableHeader(@NotNull final PUBLISH publish,
+                                      final int topicAlias,
                                       @NotNull final ByteBuf out) {
 
-        MqttBinaryData.encode(publish.getTopic(), out);
+        if (topicAlias > 0) {
+            out.writeShort(0);
+        } else {
+            MqttBinaryData.encode(publish.getTopic(), out);
+        }
 
         if (publish.getQoS() != QoS.AT_MOST_ONCE) {
             out.writeShort(publish.getPacketIdentifier());
         }
 
-        encodeProperties(publish, out);
+        encodeProperties(publish, topicAlias, out);
     }
 
     private void encodeProperties(@NotNull final PUBLISH publish,
+                                  final int topicAlias,
                                   @NotNull final ByteBuf out) {
 
         MqttVariableByteInteger.encode(publish.getPropertyLength(), out);
 
-        encodeFixedProperties(publish, out);
-        encodeOmissibleProperties(publish, out);
+        encodeIntProperty(MESSAGE_EXPIRY_INTERVAL, publish.getMessageExpiryInterval(), MAX_EXPIRY_INTERVAL_DEFAULT, out);
+        encodeShortProperty(TOPIC_ALIAS, Math.abs(topicAlias), OutboundTopicAliasMapping.NO_TOPIC_ALIAS, out);
+
+        if (sharedPropertiesEncoding) {
+            out.writeBytes(sharedProperties(publish));
+        } else {
+            encodeFixedProperties(publish, out);
+            encodeOmissibleProperties(publish, out);
+        }
 
         final List<Integer> subscriptionIdentifiers = publish.getSubscriptionIdentifiers();
         if (subscriptionIdentifiers != null) {
@@ -159,14 +272,12 @@ public class Mqtt5PublishEncoder extends Mqtt5MessageWithUserPropertiesEncoder<P
 
     private void encodeFixedProperties(@NotNull final PUBLISH publish, @NotNull final ByteBuf out) {
 
-        encodeIntProperty(MESSAGE_EXPIRY_INTERVAL, publish.getMessageExpiryInterval(), MAX_EXPIRY_INTERVAL_DEFAULT, out);
         encodeNullableProperty(PAYLOAD_FORMAT_INDICATOR, publish.getPayloadFormatIndicator(), out);
         encodeNullableProperty(CONTENT_TYPE, publish.getContentType(), out);
         encodeNullableProperty(RESPONSE_TOPIC, publish.getResponseTopic(), out);
         encodeNullableProperty(CORRELATION_DATA, publish.getCorrelationData(), out);
     }
 
-
     private void encodePayload(@NotNull final PUBLISH publish, @NotNull final ByteBuf out) {
         final byte[] payload = publish.getPayload();
         if ((payload != null)) {
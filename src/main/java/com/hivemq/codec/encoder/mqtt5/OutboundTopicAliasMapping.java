@@ -0,0 +1,152 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.codec.encoder.mqtt5;
+
+import com.hivemq.annotations.NotNull;
+import com.hivemq.annotations.Nullable;
+import com.hivemq.limitation.TopicAliasLimiter;
+import com.hivemq.mqtt.message.publish.PUBLISH;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The topic aliases the broker uses for the outgoing PUBLISHes of a single MQTT 5 client.
+ * <p>
+ * If all aliases are in use, the alias of the least recently sent topic is mapped to the new topic. The memory of the
+ * mapped topics is accounted in the {@link TopicAliasLimiter}, no new topics are mapped if its soft limit is reached.
+ * <p>
+ * The mapping is only used by the event loop of the channel. The alias of a PUBLISH is decided when the size of the
+ * PUBLISH is calculated and kept for exactly this PUBLISH until it is encoded. Only after the PUBLISH is actually
+ * written the topic is mapped or counts as recently sent, so the client always knows the aliases that are used and
+ * dropped PUBLISHes do not change the order in which aliases are reused.
+ */
+public class OutboundTopicAliasMapping {
+
+    public static final int NO_TOPIC_ALIAS = 0;
+
+    private final @NotNull TopicAliasLimiter topicAliasLimiter;
+    private final int minTopicLength;
+    private final @NotNull String[] topics;
+    // ordered by the last time the alias was sent, so the first entry is the least recently sent topic
+    private final @NotNull LinkedHashMap<String, Integer> aliases;
+
+    private @Nullable PUBLISH lookedUpPublish;
+    private int lookedUpAlias;
+
+    public OutboundTopicAliasMapping(
+            final int topicAliasMaximum, final int minTopicLength, final @NotNull TopicAliasLimiter topicAliasLimiter) {
+
+        this.topicAliasLimiter = topicAliasLimiter;
+        this.minTopicLength = minTopicLength;
+        this.topics = new String[topicAliasMaximum];
+        this.aliases = new LinkedHashMap<>();
+    }
+
+    /**
+     * Decides the alias for a PUBLISH and keeps it until {@link #pollTopicAlias(PUBLISH)} is called for the same
+     * PUBLISH. The topic is not mapped yet.
+     *
+     * @param publish the PUBLISH of which the size is calculated
+     * @return the alias of the topic if it is already mapped, the negated alias if the alias has to be sent together
+     *         with the topic to map it, or {@link #NO_TOPIC_ALIAS} if no alias is used
+     */
+    public int lookup(final @NotNull PUBLISH publish) {
+        final int alias = lookup(publish.getTopic());
+        lookedUpPublish = publish;
+        lookedUpAlias = alias;
+        return alias;
+    }
+
+    /**
+     * Returns and forgets the alias that was decided for the PUBLISH.
+     *
+     * @param publish the PUBLISH that is encoded
+     * @return the alias returned by {@link #lookup(PUBLISH)} for this PUBLISH, or {@link #NO_TOPIC_ALIAS} if no alias
+     *         was decided for it
+     */
+    public int pollTopicAlias(final @NotNull PUBLISH publish) {
+        if (lookedUpPublish != publish) {
+            return NO_TOPIC_ALIAS;
+        }
+        lookedUpPublish = null;
+        return lookedUpAlias;
+    }
+
+    /**
+     * Maps the topic to a new alias or marks the alias as recently sent, after the PUBLISH was written.
+     *
+     * @param topic the topic of the PUBLISH
+     * @param alias the alias returned by {@link #pollTopicAlias(PUBLISH)}, not {@link #NO_TOPIC_ALIAS}
+     */
+    public void sent(final @NotNull String topic, final int alias) {
+        if (alias < 0) {
+            map(topic, -alias);
+        } else {
+            aliases.remove(topic);
+            aliases.put(topic, alias);
+        }
+    }
+
+    int lookup(final @NotNull String topic) {
+        final Integer alias = aliases.get(topic);
+        if (alias != null) {
+            return alias;
+        }
+        if (topic.length() < minTopicLength || !topicAliasLimiter.aliasesAvailable()) {
+            return NO_TOPIC_ALIAS;
+        }
+        if (aliases.size() < topics.length) {
+            return -(aliases.size() + 1);
+        }
+        return -aliases.values().iterator().next();
+    }
+
+    private void map(final @NotNull String topic, final int alias) {
+        final String previousTopic = topics[alias - 1];
+        if (previousTopic != null) {
+            aliases.remove(previousTopic);
+            topicAliasLimiter.removeUsage(previousTopic);
+        }
+        topics[alias - 1] = topic;
+        aliases.put(topic, alias);
+        topicAliasLimiter.addUsage(topic);
+    }
+
+    /**
+     * @return the mapped topics by alias, an unused alias is null
+     */
+    public @NotNull String[] getTopics() {
+        return topics;
+    }
+
+    /**
+     * @return the amount of mapped topics
+     */
+    public int size() {
+        return aliases.size();
+    }
+
+    @Override
+    public @NotNull String toString() {
+        final StringBuilder builder = new StringBuilder("OutboundTopicAliasMapping{");
+        for (final Map.Entry<String, Integer> entry : aliases.entrySet()) {
+            builder.append(entry.getValue()).append('=').append(entry.getKey()).append(", ");
+        }
+        return builder.append('}').toString();
+    }
+}
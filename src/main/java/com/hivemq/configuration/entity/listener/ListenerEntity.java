@@ -36,6 +36,21 @@ public abstract class ListenerEntity {
     @XmlElement(name = "name")
     private @Nullable String name;
 
+    @XmlElement(name = "flush-consolidation-limit")
+    private int flushConsolidationLimit = 0;
+
+    @XmlElement(name = "client-outgoing-bytes-per-second")
+    private long clientOutgoingBytesPerSecond = 0;
+
+    @XmlElement(name = "client-outgoing-publishes-per-second")
+    private long clientOutgoingPublishesPerSecond = 0;
+
+    @XmlElement(name = "client-incoming-bytes-per-second")
+    private long clientIncomingBytesPerSecond = 0;
+
+    @XmlElement(name = "client-incoming-publishes-per-second")
+    private long clientIncomingPublishesPerSecond = 0;
+
     public int getPort() {
         return port;
     }
@@ -47,4 +62,24 @@ public abstract class ListenerEntity {
     public @Nullable String getName() {
         return name;
     }
+
+    public int getFlushConsolidationLimit() {
+        return flushConsolidationLimit;
+    }
+
+    public long getClientOutgoingBytesPerSecond() {
+        return clientOutgoingBytesPerSecond;
+    }
+
+    public long getClientOutgoingPublishesPerSecond() {
+        return clientOutgoingPublishesPerSecond;
+    }
+
+    public long getClientIncomingBytesPerSecond() {
+        return clientIncomingBytesPerSecond;
+    }
+
+    public long getClientIncomingPublishesPerSecond() {
+        return clientIncomingPublishesPerSecond;
+    }
 }
\ No newline at end of file
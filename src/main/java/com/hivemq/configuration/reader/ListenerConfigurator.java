@@ -84,7 +84,9 @@ public class ListenerConfigurator {
     @NotNull TcpListener convertTcpListener(final @NotNull TCPListenerEntity entity) {
         return new TcpListener(entity.getPort(),
                 entity.getBindAddress(),
-                getName(entity,"tcp-listener-"));
+                getName(entity,"tcp-listener-"),
+                flushConsolidationLimit(entity),
+                clientShapingProperties(entity));
     }
 
     @NotNull WebsocketListener convertWebsocketListener(final @NotNull WebsocketListenerEntity entity) {
@@ -95,12 +97,14 @@ public class ListenerConfigurator {
                 .port(entity.getPort())
                 .setSubprotocols(entity.getSubprotocols())
                 .name(getName(entity, "websocket-listener-"))
+                .flushConsolidationLimit(flushConsolidationLimit(entity))
+                .clientShapingProperties(clientShapingProperties(entity))
                 .build();
     }
 
     @NotNull TlsTcpListener convertTlsTcpListener(final @NotNull TlsTCPListenerEntity entity) {
         return new TlsTcpListener(entity.getPort(), entity.getBindAddress(), convertTls(entity.getTls()),
-                getName(entity, "tls-tcp-listener-"));
+                getName(entity, "tls-tcp-listener-"), flushConsolidationLimit(entity), clientShapingProperties(entity));
     }
 
     @NotNull TlsWebsocketListener convertTlsWebsocketListener(final @NotNull TlsWebsocketListenerEntity entity) {
@@ -112,9 +116,52 @@ public class ListenerConfigurator {
                 .tls(convertTls(entity.getTls()))
                 .setSubprotocols(entity.getSubprotocols())
                 .name(getName(entity, "tls-websocket-listener-"))
+                .flushConsolidationLimit(flushConsolidationLimit(entity))
+                .clientShapingProperties(clientShapingProperties(entity))
                 .build();
     }
 
+    private int flushConsolidationLimit(final @NotNull ListenerEntity entity) {
+        final int flushConsolidationLimit = entity.getFlushConsolidationLimit();
+        if (flushConsolidationLimit < 0) {
+            log.warn("Flush consolidation limit '{}' for listener with address '{}' and port '{}' must not be negative, flush consolidation is disabled for this listener",
+                    flushConsolidationLimit, entity.getBindAddress(), entity.getPort());
+            return 0;
+        }
+        return flushConsolidationLimit;
+    }
+
+    private @NotNull ClientShapingProperties clientShapingProperties(final @NotNull ListenerEntity entity) {
+        final long outgoingBytesPerSecond =
+                perSecondLimit(entity, entity.getClientOutgoingBytesPerSecond(), "outgoing bytes", "outgoing bytes");
+        final long outgoingPublishesPerSecond =
+                perSecondLimit(entity, entity.getClientOutgoingPublishesPerSecond(), "outgoing publishes", "outgoing PUBLISHes");
+        final long incomingBytesPerSecond =
+                perSecondLimit(entity, entity.getClientIncomingBytesPerSecond(), "incoming bytes", "incoming bytes");
+        final long incomingPublishesPerSecond =
+                perSecondLimit(entity, entity.getClientIncomingPublishesPerSecond(), "incoming publishes", "incoming PUBLISHes");
+        if (outgoingBytesPerSecond == ClientShapingProperties.UNLIMITED &&
+                outgoingPublishesPerSecond == ClientShapingProperties.UNLIMITED &&
+                incomingBytesPerSecond == ClientShapingProperties.UNLIMITED &&
+                incomingPublishesPerSecond == ClientShapingProperties.UNLIMITED) {
+            return ClientShapingProperties.NO_SHAPING;
+        }
+        return new ClientShapingProperties(outgoingBytesPerSecond, outgoingPublishesPerSecond,
+                incomingBytesPerSecond, incomingPublishesPerSecond);
+    }
+
+    private long perSecondLimit(
+            final @NotNull ListenerEntity entity, final long limit, final @NotNull String name,
+            final @NotNull String traffic) {
+
+        if (limit < 0) {
+            log.warn("Client {} per second '{}' for listener with address '{}' and port '{}' must not be negative, the {} of the clients are not limited",
+                    name, limit, entity.getBindAddress(), entity.getPort(), traffic);
+            return ClientShapingProperties.UNLIMITED;
+        }
+        return limit;
+    }
+
     @NotNull
     private String getName(final @NotNull ListenerEntity entity, final @NotNull String defaultPrefix) {
 
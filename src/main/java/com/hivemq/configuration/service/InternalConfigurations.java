@@ -55,6 +55,10 @@ public class InternalConfigurations {
 	public static final AtomicInteger PERSISTENCE_STARTUP_THREAD_POOL_SIZE = new AtomicInteger(
 			AVAILABLE_PROCESSORS_TIMES_FOUR);
 
+	// write the state that is derived from the file persistences to a checkpoint on a clean shutdown
+	// and restore it on the next start instead of scanning all persisted entries
+	public static final AtomicBoolean PERSISTENCE_BOOTSTRAP_CHECKPOINT_ENABLED = new AtomicBoolean(false);
+
 	public static final AtomicInteger PERSISTENCE_BUCKET_COUNT = new AtomicInteger(64);
 	public static final AtomicInteger SINGLE_WRITER_THREAD_POOL_SIZE = new AtomicInteger(
 			AVAILABLE_PROCESSORS_TIMES_TWO);
@@ -71,6 +75,30 @@ public class InternalConfigurations {
 	// max amount of clients to pull from the peristence for extension iterate chunk
 	public static final int PERSISTENCE_CLIENT_SESSIONS_MAX_CHUNK_SIZE = 2000;
 
+	// max amount of subscribers to copy from the topic tree for extension iterate chunk
+	public static final int TOPIC_TREE_ITERATION_MAX_CHUNK_SIZE = 2000;
+
+	/**
+	 * Reads the client sessions and subscriptions for the extension iterations from read-only snapshots of all buckets
+	 * concurrently instead of through the single writer queues
+	 */
+	public static final AtomicBoolean PERSISTENCE_PARALLEL_ITERATION_ENABLED = new AtomicBoolean(false);
+
+	/**
+	 * The amount of threads which read the buckets for a parallel iteration
+	 */
+	public static final AtomicInteger PERSISTENCE_PARALLEL_ITERATION_THREADS = new AtomicInteger(Math.max(1, AVAILABLE_PROCESSORS / 2));
+
+	/**
+	 * The max amount of entries a chunk of a parallel iteration contains over all buckets
+	 */
+	public static final AtomicInteger PERSISTENCE_PARALLEL_ITERATION_MAX_CHUNK_SIZE = new AtomicInteger(10000);
+
+	/**
+	 * The max amount of entries per second that are read for all parallel iterations together, 0 means unlimited
+	 */
+	public static final AtomicInteger PERSISTENCE_PARALLEL_ITERATION_MAX_ENTRIES_PER_SECOND = new AtomicInteger(0);
+
 	// The threshold at which the topic tree starts to map entries instead of
 	// storing them in an array
 	public static final AtomicInteger TOPIC_TREE_MAP_CREATION_THRESHOLD = new AtomicInteger(16);
@@ -142,6 +170,52 @@ public class InternalConfigurations {
 			AVAILABLE_PROCESSORS_TIMES_TWO);
 	// The bucket count for the payload persistence.
 	public static final AtomicInteger PAYLOAD_PERSISTENCE_BUCKET_COUNT = new AtomicInteger(64);
+	/**
+	 * If set, the payload hashes of all referenced payloads are indexed in memory, so identical payloads are found even
+	 * if the lookup table entry was overwritten by a colliding payload. The payloads are only compared while they are
+	 * cached.
+	 */
+	public static final AtomicBoolean PAYLOAD_PERSISTENCE_CONTENT_ADDRESSED_ENABLED = new AtomicBoolean(false);
+	/**
+	 * If set, new payloads are staged in memory and written to the local persistence in batches by a background
+	 * writer, instead of one transaction per payload on the publishing thread.
+	 * <p>
+	 * A QoS 1 or 2 PUBLISH is only added to the client queues once its payload is written, so it is delayed by up to
+	 * {@link #PAYLOAD_PERSISTENCE_WRITE_BEHIND_INTERVAL}. Without this, a queued message would reference a payload
+	 * that is lost if the process stops before the next flush.
+	 */
+	public static final AtomicBoolean PAYLOAD_PERSISTENCE_WRITE_BEHIND_ENABLED = new AtomicBoolean(false);
+	/**
+	 * The maximum amount of payloads that are written by the write behind in one batch
+	 */
+	public static final AtomicInteger PAYLOAD_PERSISTENCE_WRITE_BEHIND_BATCH_SIZE = new AtomicInteger(256);
+	/**
+	 * The interval in milliseconds in which the write behind writes the staged payloads, if the batch size is not
+	 * reached before
+	 */
+	public static final AtomicInteger PAYLOAD_PERSISTENCE_WRITE_BEHIND_INTERVAL = new AtomicInteger(10);
+	/**
+	 * The amount of staged payloads at which new payloads are written directly again, so the staging is bounded
+	 */
+	public static final AtomicInteger PAYLOAD_PERSISTENCE_WRITE_BEHIND_MAX_STAGED = new AtomicInteger(10_000);
+	/**
+	 * If set, the retained messages are additionally kept in memory mapped segments with an in-memory topic index, so
+	 * retained messages for exact topics are read without a transaction of the local persistence. The payloads stay in
+	 * the payload persistence. The segments are reused after a clean shutdown and rebuilt after a crash.
+	 */
+	public static final AtomicBoolean RETAINED_MESSAGE_MAPPED_STORE_ENABLED = new AtomicBoolean(false);
+	/**
+	 * The size in bytes of a memory mapped segment of the retained message store
+	 */
+	public static final int RETAINED_MESSAGE_MAPPED_STORE_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	/**
+	 * The maximum time in milliseconds the payload references of a persistence are kept in a snapshot after bootstrap,
+	 * so the restored payload reference counts can be reconciled. The snapshot holds a read-only transaction per bucket,
+	 * which prevents the log cleaning of the bucket. If the references were not counted in time, the restored reference
+	 * counts are kept.
+	 */
+	public static final AtomicLong PAYLOAD_REFERENCE_SNAPSHOT_MAX_LIFETIME_MILLIS = new AtomicLong(300_000);
 
 	// In case we tried to decrement a reference count that was already zero, a
 	// stacktrace will be logged to warn, if this flag is true (default is debug)
@@ -171,12 +245,87 @@ public class InternalConfigurations {
 
 	public static final AtomicInteger MESSAGE_ID_PRODUCER_LOCK_SIZE = new AtomicInteger(8);
 
+	/**
+	 * Dispatch the inbound messages of established connections directly to the handler responsible for the message
+	 * type, instead of passing them through every handler of the pipeline.
+	 */
+	public static final AtomicBoolean MQTT_FUSED_MESSAGE_DISPATCH_ENABLED = new AtomicBoolean(false);
+
+	/**
+	 * Check the keep alive and CONNECT timeouts of all channels with one hashed timer wheel per event loop, instead of
+	 * scheduling a timer task for every channel.
+	 */
+	public static final AtomicBoolean KEEP_ALIVE_TIMER_WHEEL_ENABLED = new AtomicBoolean(false);
+
+	/**
+	 * The tick duration of the keep alive timer wheels in milliseconds, timeouts are detected with this precision
+	 */
+	public static final int KEEP_ALIVE_TIMER_WHEEL_TICK_MILLIS = 1000;
+
+	/**
+	 * The amount of buckets of a keep alive timer wheel, must be a power of two
+	 */
+	public static final int KEEP_ALIVE_TIMER_WHEEL_SIZE = 512;
+
+	/**
+	 * Return the same topic String for PUBLISHes with the same topic bytes, without decoding and validating the topic
+	 * again, by using a bounded cache that is shared by all PUBLISH decoders.
+	 */
+	public static final AtomicBoolean MQTT_TOPIC_INTERN_CACHE_ENABLED = new AtomicBoolean(false);
+
+	/**
+	 * The amount of topics in the topic intern cache, must be a power of two
+	 */
+	public static final int MQTT_TOPIC_INTERN_CACHE_SIZE = 65536;
+
+	/**
+	 * The maximum length of a topic in bytes that is added to the topic intern cache
+	 */
+	public static final int MQTT_TOPIC_INTERN_CACHE_MAX_TOPIC_LENGTH = 256;
+
+	/**
+	 * Match and distribute incoming PUBLISHes on a dedicated work stealing pool instead of the event loop of the
+	 * publisher. The PUBLISHes of a client are processed in order, decoding and acknowledging stays on the event loop.
+	 */
+	public static final AtomicBoolean MQTT_STAGED_PUBLISH_PROCESSING_ENABLED = new AtomicBoolean(false);
+
+	/**
+	 * The amount of threads of the staged publish processing pool
+	 */
+	public static final AtomicInteger MQTT_STAGED_PUBLISH_PROCESSING_THREADS = new AtomicInteger(AVAILABLE_PROCESSORS);
+
+	/**
+	 * The amount of queued PUBLISHes of a client at which reading from the client is paused, reading is resumed when
+	 * half of them are processed
+	 */
+	public static final int MQTT_STAGED_PUBLISH_PROCESSING_MAX_QUEUED_PER_CLIENT = 1000;
+
 	/**
 	 * The amount of clean up job tasks that are processed at the same time, in each
 	 * schedule interval
 	 */
 	public static final AtomicBoolean ACKNOWLEDGE_AFTER_PERSIST = new AtomicBoolean(true);
 
+	/**
+	 * If set, a QoS 1 or 2 PUBLISH is acknowledged as soon as it is durably recorded in the inbound publish log and
+	 * is distributed to the subscribers afterwards. PUBLISHes that were not distributed completely are replayed from the
+	 * log after a restart. Only has an effect if {@link #ACKNOWLEDGE_AFTER_PERSIST} is set.
+	 */
+	public static final AtomicBoolean PIPELINED_ACKNOWLEDGE_ENABLED = new AtomicBoolean(false);
+	/**
+	 * The size in bytes at which a new segment of the inbound publish log is started
+	 */
+	public static final int INBOUND_PUBLISH_LOG_SEGMENT_SIZE = 64 * 1024 * 1024;
+	/**
+	 * The maximum amount of records that are written to the inbound publish log before it is synced to disk
+	 */
+	public static final int INBOUND_PUBLISH_LOG_MAX_BATCH_SIZE = 1024;
+	/**
+	 * The amount of times the distribution of a PUBLISH from the inbound publish log is tried before the PUBLISH is
+	 * dropped, so a PUBLISH that can not be distributed does not keep its segment of the log until a restart
+	 */
+	public static final int INBOUND_PUBLISH_LOG_MAX_DELIVERY_ATTEMPTS = 3;
+
 	public static final boolean XODUS_LOG_CACHE_USE_NIO = true;
 
 	/**
@@ -218,6 +367,18 @@ public class InternalConfigurations {
 	public static final int LISTENER_CLIENT_WRITE_BUFFER_HIGH_THRESHOLD = 65536; // 64Kb
 	public static final int LISTENER_CLIENT_WRITE_BUFFER_LOW_THRESHOLD = 32768; // 32Kb
 
+	/**
+	 * Stops polling the queues of a client while its channel is not writable and polls again when the channel is
+	 * writable, so the backlog of a slow client stays in its queues instead of its outbound buffer
+	 */
+	public static final AtomicBoolean WRITABILITY_DRIVEN_POLLING_ENABLED = new AtomicBoolean(false);
+
+	/**
+	 * The amount of milliseconds the channel of a client may stay not writable before the client is disconnected,
+	 * 0 to never disconnect slow clients
+	 */
+	public static final AtomicInteger SLOW_CONSUMER_DISCONNECT_TIMEOUT_MILLIS = new AtomicInteger(0);
+
 	/**
 	 * the outgoing bandwidth throttling config in bytes per second.
 	 */
@@ -258,6 +419,27 @@ public class InternalConfigurations {
 	 * the global memory soft limit topic aliases may use in bytes.
 	 */
 	public static final AtomicInteger TOPIC_ALIAS_GLOBAL_MEMORY_SOFT_LIMIT = new AtomicInteger(1024 * 1024 * 50); // 50Mb
+
+	/**
+	 * Replace the topics of outgoing PUBLISHes with topic aliases for MQTT 5 clients that accept topic aliases.
+	 */
+	public static final AtomicBoolean MQTT_OUTBOUND_TOPIC_ALIASES_ENABLED = new AtomicBoolean(false);
+
+	/**
+	 * The maximum amount of outbound topic aliases per client, the client may accept less
+	 */
+	public static final int MQTT_OUTBOUND_TOPIC_ALIAS_MAXIMUM = 128;
+
+	/**
+	 * The minimum length of a topic for which an outbound topic alias is used
+	 */
+	public static final int MQTT_OUTBOUND_TOPIC_ALIAS_MIN_TOPIC_LENGTH = 8;
+
+	/**
+	 * Encode the subscriber independent properties of an outgoing MQTT 5 PUBLISH only once for all its subscribers
+	 */
+	public static final AtomicBoolean MQTT_PUBLISH_SHARED_PROPERTIES_ENCODING_ENABLED = new AtomicBoolean(false);
+
 	/**
 	 * Disconnect Client with reason code?
 	 */
@@ -327,6 +509,18 @@ public class InternalConfigurations {
 	 */
 	public static final AtomicInteger PLUGIN_SERVICE_RATE_LIMIT = new AtomicInteger(0); // unlimited
 
+	/**
+	 * Gives every extension its own token bucket per extension service instead of sharing one fixed window counter
+	 * between all extensions. The buckets are refilled at {@link #PLUGIN_SERVICE_RATE_LIMIT} calls per second.
+	 */
+	public static final AtomicBoolean PLUGIN_SERVICE_RATE_LIMIT_PER_EXTENSION_ENABLED = new AtomicBoolean(false);
+
+	/**
+	 * The amount of service calls an extension can do in a burst when the rate limit is tracked per extension.
+	 * 0 means the burst is the same as {@link #PLUGIN_SERVICE_RATE_LIMIT}.
+	 */
+	public static final AtomicInteger PLUGIN_SERVICE_RATE_LIMIT_BURST = new AtomicInteger(0);
+
 	/*
 	 * ******************** Auth *
 	 **********************/
@@ -335,4 +529,20 @@ public class InternalConfigurations {
 	 */
 	public static final boolean AUTH_DENY_UNAUTHENTICATED_CONNECTIONS = true;
 
+	/**
+	 * Compile the default permissions of a client into a topic tree, that is shared by all clients with the same
+	 * permissions, instead of checking every permission for every PUBLISH and SUBSCRIBE
+	 */
+	public static final AtomicBoolean AUTH_COMPILED_PERMISSIONS_ENABLED = new AtomicBoolean(false);
+
+	/**
+	 * The minimum amount of permissions of a client for which its permissions are compiled
+	 */
+	public static final int AUTH_COMPILED_PERMISSIONS_THRESHOLD = 8;
+
+	/**
+	 * The amount of PUBLISH authorization decisions which are cached per client, must be a power of two
+	 */
+	public static final int AUTH_PUBLISH_DECISION_CACHE_SIZE = 16;
+
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.configuration.service.entity;
+
+import com.hivemq.annotations.Immutable;
+import com.hivemq.annotations.NotNull;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The outgoing traffic budgets and the incoming rate limits of every single client of a listener.
+ *
+ * @since 4.1
+ */
+@Immutable
+public class ClientShapingProperties {
+
+    public static final long UNLIMITED = 0;
+
+    public static final @NotNull ClientShapingProperties NO_SHAPING =
+            new ClientShapingProperties(UNLIMITED, UNLIMITED, UNLIMITED, UNLIMITED);
+
+    private final long outgoingBytesPerSecond;
+    private final long outgoingPublishesPerSecond;
+    private final long incomingBytesPerSecond;
+    private final long incomingPublishesPerSecond;
+
+    /**
+     * @param outgoingBytesPerSecond     the maximum amount of bytes that are sent to a client per second,
+     *                                   {@link #UNLIMITED} to not limit the bytes
+     * @param outgoingPublishesPerSecond the maximum amount of PUBLISHes that are sent to a client per second,
+     *                                   {@link #UNLIMITED} to not limit the PUBLISHes
+     * @param incomingBytesPerSecond     the maximum amount of bytes that are read from a client per second,
+     *                                   {@link #UNLIMITED} to not limit the bytes
+     * @param incomingPublishesPerSecond the maximum amount of PUBLISHes that are read from a client per second,
+     *                                   {@link #UNLIMITED} to not limit the PUBLISHes
+     */
+    public ClientShapingProperties(
+            final long outgoingBytesPerSecond,
+            final long outgoingPublishesPerSecond,
+            final long incomingBytesPerSecond,
+            final long incomingPublishesPerSecond) {
+
+        checkArgument(outgoingBytesPerSecond >= 0, "outgoingBytesPerSecond must not be negative");
+        checkArgument(outgoingPublishesPerSecond >= 0, "outgoingPublishesPerSecond must not be negative");
+        checkArgument(incomingBytesPerSecond >= 0, "incomingBytesPerSecond must not be negative");
+        checkArgument(incomingPublishesPerSecond >= 0, "incomingPublishesPerSecond must not be negative");
+        this.outgoingBytesPerSecond = outgoingBytesPerSecond;
+        this.outgoingPublishesPerSecond = outgoingPublishesPerSecond;
+        this.incomingBytesPerSecond = incomingBytesPerSecond;
+        this.incomingPublishesPerSecond = incomingPublishesPerSecond;
+    }
+
+    public long getOutgoingBytesPerSecond() {
+        return outgoingBytesPerSecond;
+    }
+
+    public long getOutgoingPublishesPerSecond() {
+        return outgoingPublishesPerSecond;
+    }
+
+    public long getIncomingBytesPerSecond() {
+        return incomingBytesPerSecond;
+    }
+
+    public long getIncomingPublishesPerSecond() {
+        return incomingPublishesPerSecond;
+    }
+
+    /**
+     * @return whether the outgoing traffic of a client is limited at all
+     */
+    public boolean isShapingOutgoing() {
+        return outgoingBytesPerSecond != UNLIMITED || outgoingPublishesPerSecond != UNLIMITED;
+    }
+
+    /**
+     * @return whether the incoming traffic of a client is limited at all
+     */
+    public boolean isLimitingIncoming() {
+        return incomingBytesPerSecond != UNLIMITED || incomingPublishesPerSecond != UNLIMITED;
+    }
+}
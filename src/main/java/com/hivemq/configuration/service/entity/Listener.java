@@ -54,4 +54,21 @@ public interface Listener {
     @NotNull
     String getName();
 
+    /**
+     * @return the maximum amount of flushes that are consolidated into a single flush on the socket,
+     * <code>0</code> if flush consolidation is disabled for this listener
+     * @since 4.1
+     */
+    default int getFlushConsolidationLimit() {
+        return 0;
+    }
+
+    /**
+     * @return the traffic budgets and rate limits of every single client of this listener
+     * @since 4.1
+     */
+    default @NotNull ClientShapingProperties getClientShapingProperties() {
+        return ClientShapingProperties.NO_SHAPING;
+    }
+
 }
@@ -19,6 +19,7 @@ package com.hivemq.configuration.service.entity;
 import com.hivemq.annotations.Immutable;
 import com.hivemq.annotations.NotNull;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -34,6 +35,8 @@ public class TcpListener implements Listener {
 
     private final int port;
     private final String name;
+    private final int flushConsolidationLimit;
+    private final @NotNull ClientShapingProperties clientShapingProperties;
 
     private final @NotNull String bindAddress;
 
@@ -55,12 +58,43 @@ public class TcpListener implements Listener {
      * @param name        the name of the listener
      */
     public TcpListener(final int port, @NotNull final String bindAddress, final @NotNull String name) {
+        this(port, bindAddress, name, 0);
+    }
+
+    /**
+     * Creates a new TCP listener which listens to a specific port and bind address
+     *
+     * @param port                    the port
+     * @param bindAddress             the bind address
+     * @param name                    the name of the listener
+     * @param flushConsolidationLimit the maximum amount of consolidated flushes, 0 to disable flush consolidation
+     */
+    public TcpListener(final int port, @NotNull final String bindAddress, final @NotNull String name,
+                       final int flushConsolidationLimit) {
+        this(port, bindAddress, name, flushConsolidationLimit, ClientShapingProperties.NO_SHAPING);
+    }
+
+    /**
+     * Creates a new TCP listener which listens to a specific port and bind address
+     *
+     * @param port                    the port
+     * @param bindAddress             the bind address
+     * @param name                    the name of the listener
+     * @param flushConsolidationLimit the maximum amount of consolidated flushes, 0 to disable flush consolidation
+     * @param clientShapingProperties the traffic budgets and rate limits of every single client
+     */
+    public TcpListener(final int port, @NotNull final String bindAddress, final @NotNull String name,
+                       final int flushConsolidationLimit, final @NotNull ClientShapingProperties clientShapingProperties) {
 
         checkNotNull(bindAddress, "bindAddress must not be null");
+        checkArgument(flushConsolidationLimit >= 0, "flushConsolidationLimit must not be negative");
+        checkNotNull(clientShapingProperties, "clientShapingProperties must not be null");
 
         this.port = port;
         this.bindAddress = bindAddress;
         this.name = name;
+        this.flushConsolidationLimit = flushConsolidationLimit;
+        this.clientShapingProperties = clientShapingProperties;
     }
 
     /**
@@ -94,4 +128,20 @@ public class TcpListener implements Listener {
         return name;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getFlushConsolidationLimit() {
+        return flushConsolidationLimit;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public @NotNull ClientShapingProperties getClientShapingProperties() {
+        return clientShapingProperties;
+    }
+
 }
@@ -60,7 +60,45 @@ public class TlsTcpListener extends TcpListener {
             final @NotNull String bindAddress,
             final @NotNull Tls tls,
             final @NotNull String name) {
-        super(port, bindAddress, name);
+        this(port, bindAddress, tls, name, 0);
+    }
+
+    /**
+     * Creates a new TLS Listener which listens to a specific port and bind address
+     *
+     * @param port                    the port
+     * @param bindAddress             the bind address
+     * @param tls                     the TLS configuration
+     * @param name                    the name of the listener
+     * @param flushConsolidationLimit the maximum amount of consolidated flushes, 0 to disable flush consolidation
+     */
+    public TlsTcpListener(
+            final int port,
+            final @NotNull String bindAddress,
+            final @NotNull Tls tls,
+            final @NotNull String name,
+            final int flushConsolidationLimit) {
+        this(port, bindAddress, tls, name, flushConsolidationLimit, ClientShapingProperties.NO_SHAPING);
+    }
+
+    /**
+     * Creates a new TLS Listener which listens to a specific port and bind address
+     *
+     * @param port                    the port
+     * @param bindAddress             the bind address
+     * @param tls                     the TLS configuration
+     * @param name                    the name of the listener
+     * @param flushConsolidationLimit the maximum amount of consolidated flushes, 0 to disable flush consolidation
+     * @param clientShapingProperties the traffic budgets and rate limits of every single client
+     */
+    public TlsTcpListener(
+            final int port,
+            final @NotNull String bindAddress,
+            final @NotNull Tls tls,
+            final @NotNull String name,
+            final int flushConsolidationLimit,
+            final @NotNull ClientShapingProperties clientShapingProperties) {
+        super(port, bindAddress, name, flushConsolidationLimit, clientShapingProperties);
         checkNotNull(tls);
         this.tls = tls;
     }
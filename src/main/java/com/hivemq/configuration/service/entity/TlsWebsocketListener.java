@@ -45,8 +45,11 @@ public class TlsWebsocketListener extends WebsocketListener {
             final @NotNull Boolean allowExtensions,
             final @NotNull List<String> subprotocols,
             final @NotNull Tls tls,
-            final @NotNull String name) {
-        super(port, bindAddress, path, allowExtensions, subprotocols, name);
+            final @NotNull String name,
+            final int flushConsolidationLimit,
+            final @NotNull ClientShapingProperties clientShapingProperties) {
+        super(port, bindAddress, path, allowExtensions, subprotocols, name, flushConsolidationLimit,
+                clientShapingProperties);
         this.tls = tls;
     }
 
@@ -168,6 +171,32 @@ public class TlsWebsocketListener extends WebsocketListener {
             return this;
         }
 
+        /**
+         * Sets the maximum amount of flushes that are consolidated into a single flush on the socket
+         *
+         * @param flushConsolidationLimit the maximum amount of consolidated flushes, 0 to disable flush consolidation
+         * @return the Builder
+         */
+        @NotNull
+        @Override
+        public Builder flushConsolidationLimit(final int flushConsolidationLimit) {
+            super.flushConsolidationLimit(flushConsolidationLimit);
+            return this;
+        }
+
+        /**
+         * Sets the traffic budgets and rate limits of every single client of the TLS websocket listener
+         *
+         * @param clientShapingProperties the traffic budgets and rate limits of every single client
+         * @return the Builder
+         */
+        @NotNull
+        @Override
+        public Builder clientShapingProperties(final @NotNull ClientShapingProperties clientShapingProperties) {
+            super.clientShapingProperties(clientShapingProperties);
+            return this;
+        }
+
         /**
          * Creates the TLS Websocket Listener
          *
@@ -186,7 +215,8 @@ public class TlsWebsocketListener extends WebsocketListener {
                 name = "tls-websocket-listener-" + port;
             }
 
-            return new TlsWebsocketListener(port, bindAddress, path, allowExtensions, subprotocols, tls, name);
+            return new TlsWebsocketListener(port, bindAddress, path, allowExtensions, subprotocols, tls, name,
+                    flushConsolidationLimit, clientShapingProperties);
         }
 
     }
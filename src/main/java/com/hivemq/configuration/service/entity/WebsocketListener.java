@@ -23,6 +23,7 @@ import com.hivemq.annotations.NotNull;
 import java.util.ArrayList;
 import java.util.List;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -49,6 +50,10 @@ public class WebsocketListener implements Listener {
 
     private final @NotNull String name;
 
+    private final int flushConsolidationLimit;
+
+    private final @NotNull ClientShapingProperties clientShapingProperties;
+
     protected WebsocketListener(
             final int port,
             final String bindAddress,
@@ -56,12 +61,38 @@ public class WebsocketListener implements Listener {
             final boolean allowExtensions,
             final List<String> subprotocols,
             final String name) {
+        this(port, bindAddress, path, allowExtensions, subprotocols, name, 0);
+    }
+
+    protected WebsocketListener(
+            final int port,
+            final String bindAddress,
+            final String path,
+            final boolean allowExtensions,
+            final List<String> subprotocols,
+            final String name,
+            final int flushConsolidationLimit) {
+        this(port, bindAddress, path, allowExtensions, subprotocols, name, flushConsolidationLimit,
+                ClientShapingProperties.NO_SHAPING);
+    }
+
+    protected WebsocketListener(
+            final int port,
+            final String bindAddress,
+            final String path,
+            final boolean allowExtensions,
+            final List<String> subprotocols,
+            final String name,
+            final int flushConsolidationLimit,
+            final @NotNull ClientShapingProperties clientShapingProperties) {
         this.port = port;
         this.bindAddress = bindAddress;
         this.path = path;
         this.allowExtensions = allowExtensions;
         this.subprotocols = subprotocols;
         this.name = name;
+        this.flushConsolidationLimit = flushConsolidationLimit;
+        this.clientShapingProperties = clientShapingProperties;
     }
 
     /**
@@ -96,6 +127,22 @@ public class WebsocketListener implements Listener {
         return name;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getFlushConsolidationLimit() {
+        return flushConsolidationLimit;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public @NotNull ClientShapingProperties getClientShapingProperties() {
+        return clientShapingProperties;
+    }
+
     /**
      * @return the path of the websocket
      */
@@ -128,6 +175,8 @@ public class WebsocketListener implements Listener {
         protected String name;
         protected boolean allowExtensions = false;
         protected List<String> subprotocols = new ArrayList<>();
+        protected int flushConsolidationLimit = 0;
+        protected @NotNull ClientShapingProperties clientShapingProperties = ClientShapingProperties.NO_SHAPING;
 
         public Builder() {
             //Add default subprotocol which is required by the MQTT spec
@@ -212,6 +261,32 @@ public class WebsocketListener implements Listener {
             return this;
         }
 
+        /**
+         * Sets the maximum amount of flushes that are consolidated into a single flush on the socket
+         *
+         * @param flushConsolidationLimit the maximum amount of consolidated flushes, 0 to disable flush consolidation
+         * @return the Builder
+         */
+        @NotNull
+        public Builder flushConsolidationLimit(final int flushConsolidationLimit) {
+            checkArgument(flushConsolidationLimit >= 0, "flushConsolidationLimit must not be negative");
+            this.flushConsolidationLimit = flushConsolidationLimit;
+            return this;
+        }
+
+        /**
+         * Sets the traffic budgets and rate limits of every single client of the websocket listener
+         *
+         * @param clientShapingProperties the traffic budgets and rate limits of every single client
+         * @return the Builder
+         */
+        @NotNull
+        public Builder clientShapingProperties(final @NotNull ClientShapingProperties clientShapingProperties) {
+            checkNotNull(clientShapingProperties);
+            this.clientShapingProperties = clientShapingProperties;
+            return this;
+        }
+
         /**
          * Creates the Websocket Listener
          *
@@ -231,7 +306,8 @@ public class WebsocketListener implements Listener {
                 name = "websocket-listener-" + port;
             }
 
-            return new WebsocketListener(port, bindAddress, path, allowExtensions, subprotocols, name);
+            return new WebsocketListener(port, bindAddress, path, allowExtensions, subprotocols, name, flushConsolidationLimit,
+                    clientShapingProperties);
         }
     }
 }
@@ -22,6 +22,7 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.SettableFuture;
 import com.hivemq.annotations.NotNull;
 import com.hivemq.annotations.Nullable;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.configuration.service.FullConfigurationService;
 import com.hivemq.extension.sdk.api.async.TimeoutFallback;
 import com.hivemq.extension.sdk.api.client.parameter.ServerInformation;
@@ -116,7 +117,7 @@ public class ConnackOutboundInterceptorHandler extends ChannelOutboundHandlerAda
             return;
         }
 
-        final String clientId = channel.attr(ChannelAttributes.CLIENT_ID).get();
+        final String clientId = ClientConnection.of(channel).getClientId();
         if (clientId == null) {
             return;
         }
@@ -6,6 +6,7 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.SettableFuture;
 import com.hivemq.annotations.NotNull;
 import com.hivemq.annotations.Nullable;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.configuration.HivemqId;
 import com.hivemq.configuration.service.FullConfigurationService;
 import com.hivemq.extension.sdk.api.async.TimeoutFallback;
@@ -102,7 +103,7 @@ public class ConnectInboundInterceptorHandler extends SimpleChannelInboundHandle
             return;
         }
 
-        final String clientId = channel.attr(ChannelAttributes.CLIENT_ID).get();
+        final String clientId = ClientConnection.of(channel).getClientId();
         if (clientId == null) {
             return;
         }
@@ -279,7 +280,7 @@ public class ConnectInboundInterceptorHandler extends SimpleChannelInboundHandle
         public void onSuccess(final @Nullable Void result) {
             try {
                 final CONNECT finalConnect = CONNECT.mergeConnectPacket(output.getConnectPacket(), connect, clusterId);
-                ctx.channel().attr(ChannelAttributes.CLIENT_ID).set(finalConnect.getClientIdentifier());
+                ClientConnection.of(ctx.channel()).setClientId(finalConnect.getClientIdentifier());
                 ctx.channel().attr(ChannelAttributes.PLUGIN_CLIENT_INFORMATION).set(new ClientInformationImpl(finalConnect.getClientIdentifier()));
                 ctx.channel().attr(ChannelAttributes.CLEAN_START).set(finalConnect.isCleanStart());
                 ctx.channel().attr(ChannelAttributes.CONNECT_KEEP_ALIVE).set(finalConnect.getKeepAlive());
@@ -21,6 +21,7 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.SettableFuture;
 import com.hivemq.annotations.NotNull;
 import com.hivemq.annotations.Nullable;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.configuration.service.FullConfigurationService;
 import com.hivemq.extension.sdk.api.async.TimeoutFallback;
 import com.hivemq.extension.sdk.api.interceptor.publish.PublishInboundInterceptor;
@@ -130,7 +131,7 @@ public class IncomingPublishHandler extends SimpleChannelInboundHandler<PUBLISH>
             return;
         }
 
-        final String clientId = channel.attr(ChannelAttributes.CLIENT_ID).get();
+        final String clientId = ClientConnection.of(channel).getClientId();
         if (clientId == null) {
             return;
         }
@@ -303,7 +304,7 @@ public class IncomingPublishHandler extends SimpleChannelInboundHandler<PUBLISH>
 
         private void dropMessage() {
 
-            final ProtocolVersion protocolVersion = channel.attr(ChannelAttributes.MQTT_VERSION).get();
+            final ProtocolVersion protocolVersion = ClientConnection.of(channel).getProtocolVersion();
             //MQTT 3
             if (protocolVersion != ProtocolVersion.MQTTv5) {
                 if (inboundOutput.getReasonCode() != AckReasonCode.SUCCESS) {
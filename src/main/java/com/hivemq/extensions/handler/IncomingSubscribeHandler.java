@@ -21,6 +21,7 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.SettableFuture;
 import com.hivemq.annotations.NotNull;
 import com.hivemq.annotations.Nullable;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.configuration.service.FullConfigurationService;
 import com.hivemq.extension.sdk.api.async.TimeoutFallback;
 import com.hivemq.extension.sdk.api.interceptor.subscribe.SubscribeInboundInterceptor;
@@ -102,7 +103,7 @@ public class IncomingSubscribeHandler extends SimpleChannelInboundHandler<SUBSCR
             return;
         }
 
-        final String clientId = channel.attr(ChannelAttributes.CLIENT_ID).get();
+        final String clientId = ClientConnection.of(channel).getClientId();
         if (clientId == null) {
             return;
         }
@@ -22,6 +22,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import com.hivemq.annotations.NotNull;
 import com.hivemq.annotations.Nullable;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.extension.sdk.api.client.parameter.ServerInformation;
 import com.hivemq.extension.sdk.api.packets.auth.ModifiableDefaultPermissions;
 import com.hivemq.extension.sdk.api.services.intializer.ClientInitializer;
@@ -127,7 +128,7 @@ public class PluginInitializerHandler extends ChannelDuplexHandler {
             return;
         }
 
-        final String clientId = ctx.channel().attr(ChannelAttributes.CLIENT_ID).get();
+        final String clientId = ClientConnection.of(ctx.channel()).getClientId();
 
         if (clientContext == null) {
             ModifiableDefaultPermissions defaultPermissions =
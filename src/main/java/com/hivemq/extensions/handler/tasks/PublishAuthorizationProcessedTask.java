@@ -18,6 +18,7 @@ package com.hivemq.extensions.handler.tasks;
 
 import com.google.common.util.concurrent.FutureCallback;
 import com.hivemq.annotations.NotNull;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.extension.sdk.api.packets.publish.AckReasonCode;
 import com.hivemq.extensions.auth.parameter.PublishAuthorizerOutputImpl;
 import com.hivemq.mqtt.handler.disconnect.Mqtt3ServerDisconnector;
@@ -26,7 +27,6 @@ import com.hivemq.mqtt.handler.publish.IncomingPublishService;
 import com.hivemq.mqtt.message.ProtocolVersion;
 import com.hivemq.mqtt.message.publish.PUBLISH;
 import com.hivemq.mqtt.message.reason.Mqtt5DisconnectReasonCode;
-import com.hivemq.util.ChannelAttributes;
 import com.hivemq.util.Exceptions;
 import io.netty.channel.ChannelHandlerContext;
 import com.hivemq.annotations.Nullable;
@@ -108,7 +108,7 @@ public class PublishAuthorizationProcessedTask implements FutureCallback<Publish
         final String logMessage = "A client (IP: {}) sent a PUBLISH to an unauthorized topic '" + publish.getTopic() + "'. Disconnecting client from extension.";
         final String eventLogMessage = "Sent a PUBLISH to an unauthorized topic '" + publish.getTopic() + "', extension requested disconnect";
 
-        if (ctx.channel().attr(ChannelAttributes.MQTT_VERSION).get() == ProtocolVersion.MQTTv5) {
+        if (ClientConnection.of(ctx.channel()).getProtocolVersion() == ProtocolVersion.MQTTv5) {
             mqtt5ServerDisconnector.disconnect(ctx.channel(),
                     logMessage,
                     eventLogMessage,
@@ -19,11 +19,13 @@ package com.hivemq.extensions.packets.general;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.annotations.Nullable;
 import com.hivemq.extension.sdk.api.auth.parameter.TopicPermission;
 import com.hivemq.extension.sdk.api.packets.auth.DefaultAuthorizationBehaviour;
 import com.hivemq.extension.sdk.api.packets.auth.ModifiableDefaultPermissions;
 import com.hivemq.extension.sdk.api.services.exception.DoNotImplementException;
 import com.hivemq.extensions.auth.parameter.TopicPermissionImpl;
+import com.hivemq.mqtt.handler.publish.CompiledPermissions;
 
 import java.util.Collection;
 import java.util.List;
@@ -43,6 +45,9 @@ public class ModifiableDefaultPermissionsImpl implements ModifiableDefaultPermis
 
     private final AtomicBoolean defaultAuthorizationBehaviourOverridden = new AtomicBoolean(false);
 
+    private volatile boolean compiled;
+    private volatile @Nullable CompiledPermissions compiledPermissions;
+
     @Override
     public @NotNull List<TopicPermission> asList() {
         return ImmutableList.copyOf(topicPermissions);
@@ -59,6 +64,7 @@ public class ModifiableDefaultPermissionsImpl implements ModifiableDefaultPermis
         }
 
         topicPermissions.add(permission);
+        invalidateCompiledPermissions();
     }
 
     @Override
@@ -77,6 +83,7 @@ public class ModifiableDefaultPermissionsImpl implements ModifiableDefaultPermis
         }
 
         topicPermissions.addAll(permissions);
+        invalidateCompiledPermissions();
     }
 
     @Override
@@ -86,11 +93,13 @@ public class ModifiableDefaultPermissionsImpl implements ModifiableDefaultPermis
             throw new DoNotImplementException("Topic permission must be created with Builders.topicPermission()");
         }
         topicPermissions.remove(permission);
+        invalidateCompiledPermissions();
     }
 
     @Override
     public void clear() {
         topicPermissions.clear();
+        invalidateCompiledPermissions();
     }
 
     @Override
@@ -108,4 +117,27 @@ public class ModifiableDefaultPermissionsImpl implements ModifiableDefaultPermis
     public boolean isDefaultAuthorizationBehaviourOverridden() {
         return defaultAuthorizationBehaviourOverridden.get();
     }
+
+    /**
+     * The permissions are compiled on first use and compiled again after they were changed.
+     *
+     * @return the compiled permissions or null if the permissions are not compiled
+     */
+    public @Nullable CompiledPermissions getCompiledPermissions() {
+        if (compiled) {
+            return compiledPermissions;
+        }
+        synchronized (this) {
+            if (!compiled) {
+                compiledPermissions = CompiledPermissions.compile(asList());
+                compiled = true;
+            }
+            return compiledPermissions;
+        }
+    }
+
+    private synchronized void invalidateCompiledPermissions() {
+        compiled = false;
+        compiledPermissions = null;
+    }
 }
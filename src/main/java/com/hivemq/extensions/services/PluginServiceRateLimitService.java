@@ -16,15 +16,33 @@
 
 package com.hivemq.extensions.services;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.MapMaker;
+import com.hivemq.annotations.NotNull;
 import com.hivemq.bootstrap.ioc.lazysingleton.LazySingleton;
 import com.hivemq.extension.sdk.api.services.exception.RateLimitExceededException;
+import com.hivemq.extensions.classloader.IsolatedPluginClassloader;
+import com.hivemq.metrics.HiveMQMetrics;
 
+import javax.inject.Inject;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
-import static com.hivemq.configuration.service.InternalConfigurations.PLUGIN_SERVICE_RATE_LIMIT;
+import static com.hivemq.configuration.service.InternalConfigurations.*;
 
 /**
+ * Limits the calls of the extension services.
+ * <p>
+ * By default all extensions share one counter per second. If {@link
+ * com.hivemq.configuration.service.InternalConfigurations#PLUGIN_SERVICE_RATE_LIMIT_PER_EXTENSION_ENABLED} is set,
+ * every extension gets its own token bucket for every {@link RateLimitedService}, so a single extension can not use up
+ * the budget of the others. The extension is identified by the context classloader of the calling thread, calls from
+ * threads without an extension classloader share one set of buckets.
+ *
  * @author Lukas Brandl
  */
 @LazySingleton
@@ -38,20 +56,76 @@ public class PluginServiceRateLimitService {
     private final AtomicLong resetTime = new AtomicLong(0);
 
     private final int rateLimit;
+    private final boolean perExtension;
+    private final long refillIntervalNanos;
+    private final long capacityNanos;
+
+    private final @NotNull ConcurrentMap<ClassLoader, TokenBuckets> extensionBuckets = new MapMaker().weakKeys().makeMap();
+    private final @NotNull TokenBuckets defaultBuckets;
+
+    private final @NotNull Counter admittedCounter;
+    private final @NotNull Counter rejectedCounter;
+
+    @Inject
+    public PluginServiceRateLimitService(final @NotNull MetricRegistry metricRegistry) {
+        this(metricRegistry, PLUGIN_SERVICE_RATE_LIMIT.get(), PLUGIN_SERVICE_RATE_LIMIT_BURST.get(),
+                PLUGIN_SERVICE_RATE_LIMIT_PER_EXTENSION_ENABLED.get());
+    }
+
+    @VisibleForTesting
+    PluginServiceRateLimitService(
+            final @NotNull MetricRegistry metricRegistry, final int rateLimit, final int burst, final boolean perExtension) {
 
-    public PluginServiceRateLimitService() {
-        rateLimit = PLUGIN_SERVICE_RATE_LIMIT.get();
+        this.rateLimit = rateLimit;
+        this.perExtension = perExtension && rateLimit > 0;
+        this.refillIntervalNanos = rateLimit > 0 ? Math.max(1, TimeUnit.SECONDS.toNanos(1) / rateLimit) : 0;
+        this.capacityNanos = refillIntervalNanos * (burst > 0 ? burst : rateLimit);
+        this.defaultBuckets = new TokenBuckets(System.nanoTime());
+
+        admittedCounter = metricRegistry.counter(HiveMQMetrics.EXTENSION_SERVICE_RATE_LIMIT_ADMITTED_COUNT.name());
+        rejectedCounter = metricRegistry.counter(HiveMQMetrics.EXTENSION_SERVICE_RATE_LIMIT_REJECTED_COUNT.name());
     }
 
     static {
         RATE_LIMIT_EXCEEDED_EXCEPTION.setStackTrace(new StackTraceElement[0]);
     }
 
-    public boolean rateLimitExceeded() {
+    /**
+     * @param service the service that is called
+     * @return true if the call must be rejected
+     */
+    public boolean rateLimitExceeded(final @NotNull RateLimitedService service) {
 
         if (rateLimit <= 0) {
             return false;
         }
+        if (!perExtension) {
+            return globalRateLimitExceeded();
+        }
+
+        final TokenBuckets buckets = bucketsForCaller();
+        if (buckets.tryAcquire(service, System.nanoTime(), refillIntervalNanos, capacityNanos)) {
+            admittedCounter.inc();
+            return false;
+        }
+        rejectedCounter.inc();
+        return true;
+    }
+
+    private @NotNull TokenBuckets bucketsForCaller() {
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (!(classLoader instanceof IsolatedPluginClassloader)) {
+            return defaultBuckets;
+        }
+        final TokenBuckets buckets = extensionBuckets.get(classLoader);
+        if (buckets != null) {
+            return buckets;
+        }
+        return extensionBuckets.computeIfAbsent(classLoader, key -> new TokenBuckets(System.nanoTime()));
+    }
+
+    private boolean globalRateLimitExceeded() {
+
         final long currentTime = System.currentTimeMillis();
         final long rateTimer = startTime.get();
         if (currentTime - rateTimer >= 1000) {
@@ -70,6 +144,7 @@ public class PluginServiceRateLimitService {
                 }
 
                 //first call in this second window
+                admittedCounter.inc();
                 return false;
             }
         }
@@ -77,8 +152,49 @@ public class PluginServiceRateLimitService {
         final boolean exceeded = counter.incrementAndGet() > rateLimit;
         if (exceeded) {
             // if counter is exceeded try if there is still a reserve. This allows to handle short bursts even if the second limit is breached.
-            return reserveCounter.incrementAndGet() > rateLimit;
+            if (reserveCounter.incrementAndGet() > rateLimit) {
+                rejectedCounter.inc();
+                return true;
+            }
         }
+        admittedCounter.inc();
         return false;
     }
+
+    /**
+     * The token buckets of one extension, one for every {@link RateLimitedService}.
+     * <p>
+     * A bucket only stores the time at which it is full again. Taking a token moves this time one refill interval into
+     * the future, a call is rejected if the bucket would then be full later than its capacity allows. So a call needs a
+     * single compare and set and a rejected call does not write at all.
+     */
+    private static class TokenBuckets {
+
+        private final @NotNull AtomicLong[] fullAt;
+
+        TokenBuckets(final long now) {
+            final RateLimitedService[] services = RateLimitedService.values();
+            fullAt = new AtomicLong[services.length];
+            for (int i = 0; i < services.length; i++) {
+                fullAt[i] = new AtomicLong(now);
+            }
+        }
+
+        boolean tryAcquire(
+                final @NotNull RateLimitedService service, final long now, final long refillInterval,
+                final long capacity) {
+
+            final AtomicLong bucket = fullAt[service.ordinal()];
+            while (true) {
+                final long current = bucket.get();
+                final long next = (current - now > 0 ? current : now) + refillInterval;
+                if (next - now > capacity) {
+                    return false;
+                }
+                if (bucket.compareAndSet(current, next)) {
+                    return true;
+                }
+            }
+        }
+    }
 }
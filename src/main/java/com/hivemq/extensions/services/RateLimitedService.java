@@ -0,0 +1,29 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.extensions.services;
+
+/**
+ * The extension services which are guarded by the {@link PluginServiceRateLimitService}. Every service has its own
+ * budget per extension.
+ */
+public enum RateLimitedService {
+
+    PUBLISH_SERVICE,
+    SUBSCRIPTION_STORE,
+    CLIENT_SERVICE,
+    RETAINED_MESSAGE_STORE
+}
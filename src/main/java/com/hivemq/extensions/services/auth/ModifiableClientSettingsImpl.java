@@ -16,6 +16,7 @@
 package com.hivemq.extensions.services.auth;
 
 import com.google.common.base.Preconditions;
+import com.hivemq.configuration.service.entity.ClientShapingProperties;
 import com.hivemq.extension.sdk.api.annotations.NotNull;
 import com.hivemq.extension.sdk.api.auth.parameter.ModifiableClientSettings;
 import com.hivemq.extension.sdk.api.auth.parameter.OverloadProtectionThrottlingLevel;
@@ -28,10 +29,22 @@ public class ModifiableClientSettingsImpl implements ModifiableClientSettings {
     private int receiveMaximum;
     @NotNull
     private OverloadProtectionThrottlingLevel overloadProtectionThrottlingLevel = OverloadProtectionThrottlingLevel.DEFAULT;
+    private long outgoingBytesPerSecond;
+    private long outgoingPublishesPerSecond;
+    private long incomingBytesPerSecond;
+    private long incomingPublishesPerSecond;
     private boolean modified = false;
 
     public ModifiableClientSettingsImpl(final int receiveMaximum) {
+        this(receiveMaximum, ClientShapingProperties.NO_SHAPING);
+    }
+
+    public ModifiableClientSettingsImpl(final int receiveMaximum, @NotNull final ClientShapingProperties shapingProperties) {
         this.receiveMaximum = receiveMaximum;
+        this.outgoingBytesPerSecond = shapingProperties.getOutgoingBytesPerSecond();
+        this.outgoingPublishesPerSecond = shapingProperties.getOutgoingPublishesPerSecond();
+        this.incomingBytesPerSecond = shapingProperties.getIncomingBytesPerSecond();
+        this.incomingPublishesPerSecond = shapingProperties.getIncomingPublishesPerSecond();
     }
 
     @Override
@@ -55,6 +68,46 @@ public class ModifiableClientSettingsImpl implements ModifiableClientSettings {
         modified = true;
     }
 
+    @Override
+    public void setOutgoingBytesPerSecond(final long bytesPerSecond) {
+        Preconditions.checkArgument(bytesPerSecond >= 0, "Outgoing bytes per second must NOT be negative was " + bytesPerSecond + ".");
+        if (this.outgoingBytesPerSecond == bytesPerSecond) {
+            return;
+        }
+        this.outgoingBytesPerSecond = bytesPerSecond;
+        modified = true;
+    }
+
+    @Override
+    public void setOutgoingPublishesPerSecond(final long publishesPerSecond) {
+        Preconditions.checkArgument(publishesPerSecond >= 0, "Outgoing publishes per second must NOT be negative was " + publishesPerSecond + ".");
+        if (this.outgoingPublishesPerSecond == publishesPerSecond) {
+            return;
+        }
+        this.outgoingPublishesPerSecond = publishesPerSecond;
+        modified = true;
+    }
+
+    @Override
+    public void setIncomingBytesPerSecond(final long bytesPerSecond) {
+        Preconditions.checkArgument(bytesPerSecond >= 0, "Incoming bytes per second must NOT be negative was " + bytesPerSecond + ".");
+        if (this.incomingBytesPerSecond == bytesPerSecond) {
+            return;
+        }
+        this.incomingBytesPerSecond = bytesPerSecond;
+        modified = true;
+    }
+
+    @Override
+    public void setIncomingPublishesPerSecond(final long publishesPerSecond) {
+        Preconditions.checkArgument(publishesPerSecond >= 0, "Incoming publishes per second must NOT be negative was " + publishesPerSecond + ".");
+        if (this.incomingPublishesPerSecond == publishesPerSecond) {
+            return;
+        }
+        this.incomingPublishesPerSecond = publishesPerSecond;
+        modified = true;
+    }
+
     @Override
     public @NotNull OverloadProtectionThrottlingLevel getOverloadProtectionThrottlingLevel() {
         return overloadProtectionThrottlingLevel;
@@ -65,6 +118,26 @@ public class ModifiableClientSettingsImpl implements ModifiableClientSettings {
         return receiveMaximum;
     }
 
+    @Override
+    public long getOutgoingBytesPerSecond() {
+        return outgoingBytesPerSecond;
+    }
+
+    @Override
+    public long getOutgoingPublishesPerSecond() {
+        return outgoingPublishesPerSecond;
+    }
+
+    @Override
+    public long getIncomingBytesPerSecond() {
+        return incomingBytesPerSecond;
+    }
+
+    @Override
+    public long getIncomingPublishesPerSecond() {
+        return incomingPublishesPerSecond;
+    }
+
     public boolean isModified() {
         return modified;
     }
@@ -32,6 +32,7 @@ import com.hivemq.extension.sdk.api.services.publish.PublishService;
 import com.hivemq.extension.sdk.api.services.publish.PublishToClientResult;
 import com.hivemq.extensions.ListenableFutureConverter;
 import com.hivemq.extensions.services.PluginServiceRateLimitService;
+import com.hivemq.extensions.services.RateLimitedService;
 import com.hivemq.mqtt.handler.publish.PublishReturnCode;
 import com.hivemq.mqtt.handler.publish.PublishStatus;
 import com.hivemq.mqtt.message.QoS;
@@ -49,6 +50,9 @@ import com.hivemq.util.Bytes;
 import com.hivemq.annotations.Nullable;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -94,7 +98,7 @@ public class PublishServiceImpl implements PublishService {
     @NotNull
     public CompletableFuture<Void> publish(@NotNull final Publish publish) {
         checkNotNull(publish, "Publish must never be null");
-        if (rateLimitService.rateLimitExceeded()) {
+        if (rateLimitService.rateLimitExceeded(RateLimitedService.PUBLISH_SERVICE)) {
             return CompletableFuture.failedFuture(PluginServiceRateLimitService.RATE_LIMIT_EXCEEDED_EXCEPTION);
         }
         if (!(publish instanceof PublishImpl)) {
@@ -107,13 +111,41 @@ public class PublishServiceImpl implements PublishService {
         return ListenableFutureConverter.toCompletable(FutureUtils.voidFutureFromAnyFuture(publishFuture));
     }
 
+    @Override
+    @NotNull
+    public CompletableFuture<Void> publish(@NotNull final Collection<Publish> publishes) {
+        checkNotNull(publishes, "Publishes must never be null");
+        for (final Publish publish : publishes) {
+            checkNotNull(publish, "Publish must never be null");
+        }
+        if (rateLimitService.rateLimitExceeded(RateLimitedService.PUBLISH_SERVICE)) {
+            return CompletableFuture.failedFuture(PluginServiceRateLimitService.RATE_LIMIT_EXCEEDED_EXCEPTION);
+        }
+        for (final Publish publish : publishes) {
+            if (!(publish instanceof PublishImpl)) {
+                return CompletableFuture.failedFuture(new DoNotImplementException(Publish.class.getSimpleName()));
+            }
+        }
+        if (publishes.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final List<PUBLISH> internalPublishes = new ArrayList<>(publishes.size());
+        for (final Publish publish : publishes) {
+            internalPublishes.add(publishToPUBLISH(publish));
+        }
+        final ListenableFuture<Void> publishFuture =
+                internalPublishService.publish(internalPublishes, MoreExecutors.newDirectExecutorService(), null);
+        return ListenableFutureConverter.toCompletable(publishFuture);
+    }
+
     @Override
     @NotNull
     public CompletableFuture<PublishToClientResult> publishToClient(@NotNull final Publish publish, @NotNull final String clientId) {
         checkNotNull(publish, "Publish must never be null");
         checkNotNull(clientId, "Client ID must never be null");
         checkArgument(!clientId.isEmpty(), "Client ID must not be empty");
-        if (rateLimitService.rateLimitExceeded()) {
+        if (rateLimitService.rateLimitExceeded(RateLimitedService.PUBLISH_SERVICE)) {
             return CompletableFuture.failedFuture(PluginServiceRateLimitService.RATE_LIMIT_EXCEEDED_EXCEPTION);
         }
         if (!(publish instanceof PublishImpl)) {
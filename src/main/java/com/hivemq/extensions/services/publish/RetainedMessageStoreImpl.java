@@ -25,6 +25,7 @@ import com.hivemq.extension.sdk.api.services.publish.RetainedMessageStore;
 import com.hivemq.extension.sdk.api.services.publish.RetainedPublish;
 import com.hivemq.extensions.ListenableFutureConverter;
 import com.hivemq.extensions.services.PluginServiceRateLimitService;
+import com.hivemq.extensions.services.RateLimitedService;
 import com.hivemq.persistence.RetainedMessage;
 import com.hivemq.persistence.retained.RetainedMessagePersistence;
 
@@ -60,7 +61,7 @@ public class RetainedMessageStoreImpl implements RetainedMessageStore {
     @Override
     public CompletableFuture<Optional<RetainedPublish>> getRetainedMessage(@NotNull final String topic) {
         Preconditions.checkNotNull(topic, "A topic must never be null");
-        if (pluginServiceRateLimitService.rateLimitExceeded()) {
+        if (pluginServiceRateLimitService.rateLimitExceeded(RateLimitedService.RETAINED_MESSAGE_STORE)) {
             return CompletableFuture.failedFuture(PluginServiceRateLimitService.RATE_LIMIT_EXCEEDED_EXCEPTION);
         }
         final ListenableFuture<RetainedMessage> retainedMessageFuture = retainedMessagePersistence.get(topic);
@@ -74,7 +75,7 @@ public class RetainedMessageStoreImpl implements RetainedMessageStore {
     @Override
     public CompletableFuture<Void> remove(@NotNull final String topic) {
         Preconditions.checkNotNull(topic, "A topic must never be null");
-        if (pluginServiceRateLimitService.rateLimitExceeded()) {
+        if (pluginServiceRateLimitService.rateLimitExceeded(RateLimitedService.RETAINED_MESSAGE_STORE)) {
             return CompletableFuture.failedFuture(PluginServiceRateLimitService.RATE_LIMIT_EXCEEDED_EXCEPTION);
         }
         return ListenableFutureConverter.toCompletable(retainedMessagePersistence.remove(topic));
@@ -86,7 +87,7 @@ public class RetainedMessageStoreImpl implements RetainedMessageStore {
     @NotNull
     @Override
     public CompletableFuture<Void> clear() {
-        if (pluginServiceRateLimitService.rateLimitExceeded()) {
+        if (pluginServiceRateLimitService.rateLimitExceeded(RateLimitedService.RETAINED_MESSAGE_STORE)) {
             return CompletableFuture.failedFuture(PluginServiceRateLimitService.RATE_LIMIT_EXCEEDED_EXCEPTION);
         }
         return ListenableFutureConverter.toCompletable(retainedMessagePersistence.clear());
@@ -99,7 +100,7 @@ public class RetainedMessageStoreImpl implements RetainedMessageStore {
     @Override
     public CompletableFuture<Void> addOrReplace(@NotNull final RetainedPublish retainedPublish) {
         Preconditions.checkNotNull(retainedPublish, "A retained publish must never be null");
-        if (pluginServiceRateLimitService.rateLimitExceeded()) {
+        if (pluginServiceRateLimitService.rateLimitExceeded(RateLimitedService.RETAINED_MESSAGE_STORE)) {
             return CompletableFuture.failedFuture(PluginServiceRateLimitService.RATE_LIMIT_EXCEEDED_EXCEPTION);
         }
         if (!(retainedPublish instanceof RetainedPublishImpl)) {
@@ -34,6 +34,7 @@ import com.hivemq.extensions.iteration.AsyncIteratorFactory;
 import com.hivemq.extensions.iteration.ChunkResult;
 import com.hivemq.extensions.iteration.FetchCallback;
 import com.hivemq.extensions.services.PluginServiceRateLimitService;
+import com.hivemq.extensions.services.RateLimitedService;
 import com.hivemq.extensions.services.executor.GlobalManagedPluginExecutorService;
 import com.hivemq.extensions.services.general.IterationContextImpl;
 import com.hivemq.persistence.clientsession.ChunkCursor;
@@ -80,7 +81,7 @@ public class ClientServiceImpl implements ClientService {
     @Override
     public CompletableFuture<Boolean> isClientConnected(@NotNull final String clientId) {
         Preconditions.checkNotNull(clientId, "A client id must never be null");
-        if (pluginServiceRateLimitService.rateLimitExceeded()) {
+        if (pluginServiceRateLimitService.rateLimitExceeded(RateLimitedService.CLIENT_SERVICE)) {
             return CompletableFuture.failedFuture(PluginServiceRateLimitService.RATE_LIMIT_EXCEEDED_EXCEPTION);
         }
         final ClientSession session = clientSessionPersistence.getSession(clientId, false);
@@ -94,7 +95,7 @@ public class ClientServiceImpl implements ClientService {
     @Override
     public CompletableFuture<Optional<SessionInformation>> getSession(@NotNull final String clientId) {
         Preconditions.checkNotNull(clientId, "A client id must never be null");
-        if (pluginServiceRateLimitService.rateLimitExceeded()) {
+        if (pluginServiceRateLimitService.rateLimitExceeded(RateLimitedService.CLIENT_SERVICE)) {
             return CompletableFuture.failedFuture(PluginServiceRateLimitService.RATE_LIMIT_EXCEEDED_EXCEPTION);
         }
 
@@ -117,7 +118,7 @@ public class ClientServiceImpl implements ClientService {
     public CompletableFuture<Boolean> disconnectClient(
             @NotNull final String clientId, final boolean preventWillMessage) {
         Preconditions.checkNotNull(clientId, "A client id must never be null");
-        if (pluginServiceRateLimitService.rateLimitExceeded()) {
+        if (pluginServiceRateLimitService.rateLimitExceeded(RateLimitedService.CLIENT_SERVICE)) {
             return CompletableFuture.failedFuture(PluginServiceRateLimitService.RATE_LIMIT_EXCEEDED_EXCEPTION);
         }
         return ListenableFutureConverter.toCompletable(
@@ -128,7 +129,7 @@ public class ClientServiceImpl implements ClientService {
     @Override
     public CompletableFuture<Boolean> invalidateSession(@NotNull final String clientId) {
         Preconditions.checkNotNull(clientId, "A client id must never be null");
-        if (pluginServiceRateLimitService.rateLimitExceeded()) {
+        if (pluginServiceRateLimitService.rateLimitExceeded(RateLimitedService.CLIENT_SERVICE)) {
             return CompletableFuture.failedFuture(PluginServiceRateLimitService.RATE_LIMIT_EXCEEDED_EXCEPTION);
         }
         final SettableFuture<Boolean> setSessionSettableFuture = SettableFuture.create();
@@ -166,7 +167,7 @@ public class ClientServiceImpl implements ClientService {
         Preconditions.checkNotNull(callback, "Callback cannot be null");
         Preconditions.checkNotNull(callbackExecutor, "Callback executor cannot be null");
 
-        if (pluginServiceRateLimitService.rateLimitExceeded()) {
+        if (pluginServiceRateLimitService.rateLimitExceeded(RateLimitedService.CLIENT_SERVICE)) {
             return CompletableFuture.failedFuture(PluginServiceRateLimitService.RATE_LIMIT_EXCEEDED_EXCEPTION);
         }
 
@@ -35,9 +35,11 @@ import com.hivemq.extensions.iteration.AsyncIteratorFactory;
 import com.hivemq.extensions.iteration.ChunkResult;
 import com.hivemq.extensions.iteration.FetchCallback;
 import com.hivemq.extensions.services.PluginServiceRateLimitService;
+import com.hivemq.extensions.services.RateLimitedService;
 import com.hivemq.extensions.services.executor.GlobalManagedPluginExecutorService;
 import com.hivemq.extensions.services.general.IterationContextImpl;
 import com.hivemq.mqtt.message.subscribe.Topic;
+import com.hivemq.mqtt.topic.tree.ChunkedSubscriberIterator;
 import com.hivemq.mqtt.topic.tree.LocalTopicTree;
 import com.hivemq.mqtt.topic.tree.SubscriptionTypeItemFilter;
 import com.hivemq.persistence.clientsession.ChunkCursor;
@@ -54,6 +56,8 @@ import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import static com.hivemq.configuration.service.InternalConfigurations.TOPIC_TREE_ITERATION_MAX_CHUNK_SIZE;
+
 /**
  * @author Florian Limpöck
  * @since 4.0.0
@@ -87,7 +91,7 @@ public class SubscriptionStoreImpl implements SubscriptionStore {
         Preconditions.checkArgument(!clientID.isEmpty(), "Client id must never be empty");
         Preconditions.checkNotNull(subscription, "Topic subscription must never be null");
 
-        if (rateLimitService.rateLimitExceeded()) {
+        if (rateLimitService.rateLimitExceeded(RateLimitedService.SUBSCRIPTION_STORE)) {
             return CompletableFuture.failedFuture(PluginServiceRateLimitService.RATE_LIMIT_EXCEEDED_EXCEPTION);
         }
         if (!(subscription instanceof TopicSubscriptionImpl)) {
@@ -126,7 +130,7 @@ public class SubscriptionStoreImpl implements SubscriptionStore {
         Preconditions.checkNotNull(subscriptions, "Subscriptions must never be null");
         Preconditions.checkArgument(!subscriptions.isEmpty(), "Subscriptions must never be empty");
 
-        if (rateLimitService.rateLimitExceeded()) {
+        if (rateLimitService.rateLimitExceeded(RateLimitedService.SUBSCRIPTION_STORE)) {
             return CompletableFuture.failedFuture(PluginServiceRateLimitService.RATE_LIMIT_EXCEEDED_EXCEPTION);
         }
 
@@ -175,7 +179,7 @@ public class SubscriptionStoreImpl implements SubscriptionStore {
         Preconditions.checkArgument(!clientID.isEmpty(), "Client id must never be empty");
         Preconditions.checkNotNull(topicFilter, "Topic filter must never be null");
 
-        if (rateLimitService.rateLimitExceeded()) {
+        if (rateLimitService.rateLimitExceeded(RateLimitedService.SUBSCRIPTION_STORE)) {
             return CompletableFuture.failedFuture(PluginServiceRateLimitService.RATE_LIMIT_EXCEEDED_EXCEPTION);
         }
         if (!Topics.isValidToSubscribe(topicFilter)) {
@@ -192,7 +196,7 @@ public class SubscriptionStoreImpl implements SubscriptionStore {
         Preconditions.checkNotNull(topicFilters, "Topic-filters must never be null");
         Preconditions.checkArgument(!topicFilters.isEmpty(), "Topics-filters must never be empty");
 
-        if (rateLimitService.rateLimitExceeded()) {
+        if (rateLimitService.rateLimitExceeded(RateLimitedService.SUBSCRIPTION_STORE)) {
             return CompletableFuture.failedFuture(PluginServiceRateLimitService.RATE_LIMIT_EXCEEDED_EXCEPTION);
         }
 
@@ -216,7 +220,7 @@ public class SubscriptionStoreImpl implements SubscriptionStore {
         Preconditions.checkNotNull(clientID, "Client id must never be null");
         Preconditions.checkArgument(!clientID.isEmpty(), "Client id must never be empty");
 
-        if (rateLimitService.rateLimitExceeded()) {
+        if (rateLimitService.rateLimitExceeded(RateLimitedService.SUBSCRIPTION_STORE)) {
             return CompletableFuture.failedFuture(PluginServiceRateLimitService.RATE_LIMIT_EXCEEDED_EXCEPTION);
         }
         return CompletableFuture.completedFuture(ClientSubscriptionsToTopicSubscriptions.INSTANCE.apply(subscriptionPersistence.getSubscriptions(clientID)));
@@ -255,41 +259,17 @@ public class SubscriptionStoreImpl implements SubscriptionStore {
                 Topics.isValidTopicToPublish(topic),
                 "Topic must be a valid topic and cannot contain wildcard characters, got '" + topic + "'");
 
-        if (rateLimitService.rateLimitExceeded()) {
+        if (rateLimitService.rateLimitExceeded(RateLimitedService.SUBSCRIPTION_STORE)) {
             return CompletableFuture.failedFuture(PluginServiceRateLimitService.RATE_LIMIT_EXCEEDED_EXCEPTION);
         }
 
-        final ImmutableSet<String> subscribers = topicTree.getSubscribersForTopic(topic, new SubscriptionTypeItemFilter(subscriptionType), false);
-
-        final CompletableFuture<Void> iterationFinishedFuture = new CompletableFuture<>();
-
-        callbackExecutor.execute(() -> {
-
-            final ClassLoader previousClassLoader = Thread.currentThread().getContextClassLoader();
-            final IterationContextImpl iterationContext = new IterationContextImpl();
-            try {
-                Thread.currentThread().setContextClassLoader(callback.getClass().getClassLoader());
-
-                for (final String subscriber : subscribers) {
-                    try {
-                        callback.iterate(iterationContext, new SubscriberForTopicResultImpl(subscriber));
-                        if (iterationContext.isAborted()) {
-                            iterationFinishedFuture.complete(null);
-                            return;
-                        }
-
-                    } catch (final Exception e) {
-                        iterationFinishedFuture.completeExceptionally(e);
-                        return;
-                    }
-                }
-                iterationFinishedFuture.complete(null);
-            } finally {
-                Thread.currentThread().setContextClassLoader(previousClassLoader);
-            }
-        });
+        final ChunkedSubscriberIterator subscribers =
+                topicTree.iterateSubscribersForTopic(topic, new SubscriptionTypeItemFilter(subscriptionType), false);
 
-        return iterationFinishedFuture;
+        final SubscriberChunkIteration<SubscriberForTopicResult> iteration = new SubscriberChunkIteration<>(
+                subscribers, SubscriberForTopicResultImpl::new, callback, callbackExecutor);
+        callbackExecutor.execute(iteration);
+        return iteration.getFinishedFuture();
     }
 
     @Override
@@ -325,41 +305,17 @@ public class SubscriptionStoreImpl implements SubscriptionStore {
         Preconditions.checkNotNull(subscriptionType, "SubscriptionType cannot be null");
         Preconditions.checkArgument(Topics.isValidToSubscribe(topicFilter), "Topic filter must be a valid MQTT topic filter, got '" + topicFilter + "'");
 
-        if (rateLimitService.rateLimitExceeded()) {
+        if (rateLimitService.rateLimitExceeded(RateLimitedService.SUBSCRIPTION_STORE)) {
             return CompletableFuture.failedFuture(PluginServiceRateLimitService.RATE_LIMIT_EXCEEDED_EXCEPTION);
         }
 
-        final ImmutableSet<String> subscribers =
-                topicTree.getSubscribersWithFilter(topicFilter, new SubscriptionTypeItemFilter(subscriptionType));
+        final ChunkedSubscriberIterator subscribers =
+                topicTree.iterateSubscribersWithFilter(topicFilter, new SubscriptionTypeItemFilter(subscriptionType));
 
-        final CompletableFuture<Void> iterationFinishedFuture = new CompletableFuture<>();
-        callbackExecutor.execute(() -> {
-
-            final ClassLoader previousClassLoader = Thread.currentThread().getContextClassLoader();
-            final IterationContextImpl iterationContext = new IterationContextImpl();
-            try {
-                Thread.currentThread().setContextClassLoader(callback.getClass().getClassLoader());
-
-                for (final String subscriber : subscribers) {
-                    try {
-                        callback.iterate(iterationContext, new SubscriberWithFilterResultImpl(subscriber));
-                        if (iterationContext.isAborted()) {
-                            iterationFinishedFuture.complete(null);
-                            return;
-                        }
-
-                    } catch (final Exception e) {
-                        iterationFinishedFuture.completeExceptionally(e);
-                        return;
-                    }
-                }
-                iterationFinishedFuture.complete(null);
-            } finally {
-                Thread.currentThread().setContextClassLoader(previousClassLoader);
-            }
-        });
-
-        return iterationFinishedFuture;
+        final SubscriberChunkIteration<SubscriberWithFilterResult> iteration = new SubscriberChunkIteration<>(
+                subscribers, SubscriberWithFilterResultImpl::new, callback, callbackExecutor);
+        callbackExecutor.execute(iteration);
+        return iteration.getFinishedFuture();
     }
 
     @Override
@@ -374,7 +330,7 @@ public class SubscriptionStoreImpl implements SubscriptionStore {
         Preconditions.checkNotNull(callback, "Callback cannot be null");
         Preconditions.checkNotNull(callback, "Callback executor cannot be null");
 
-        if (rateLimitService.rateLimitExceeded()) {
+        if (rateLimitService.rateLimitExceeded(RateLimitedService.SUBSCRIPTION_STORE)) {
             return CompletableFuture.failedFuture(PluginServiceRateLimitService.RATE_LIMIT_EXCEEDED_EXCEPTION);
         }
 
@@ -398,6 +354,64 @@ public class SubscriptionStoreImpl implements SubscriptionStore {
         }
     }
 
+    /**
+     * Hands the subscribers of the topic tree to the callback chunk by chunk. The next chunk is only copied from the
+     * topic tree after the callback has processed the previous one, and every chunk is a new task for the callback
+     * executor.
+     */
+    static class SubscriberChunkIteration<T> implements Runnable {
+
+        private final @NotNull ChunkedSubscriberIterator subscribers;
+        private final @NotNull Function<String, T> resultFactory;
+        private final @NotNull IterationCallback<T> callback;
+        private final @NotNull Executor callbackExecutor;
+        private final @NotNull IterationContextImpl iterationContext = new IterationContextImpl();
+        private final @NotNull CompletableFuture<Void> finishedFuture = new CompletableFuture<>();
+
+        SubscriberChunkIteration(@NotNull final ChunkedSubscriberIterator subscribers,
+                                 @NotNull final Function<String, T> resultFactory,
+                                 @NotNull final IterationCallback<T> callback,
+                                 @NotNull final Executor callbackExecutor) {
+            this.subscribers = subscribers;
+            this.resultFactory = resultFactory;
+            this.callback = callback;
+            this.callbackExecutor = callbackExecutor;
+        }
+
+        @Override
+        public void run() {
+
+            final ClassLoader previousClassLoader = Thread.currentThread().getContextClassLoader();
+            try {
+                Thread.currentThread().setContextClassLoader(callback.getClass().getClassLoader());
+
+                final ImmutableList<String> chunk = subscribers.nextChunk(TOPIC_TREE_ITERATION_MAX_CHUNK_SIZE);
+                for (final String subscriber : chunk) {
+                    callback.iterate(iterationContext, resultFactory.apply(subscriber));
+                    if (iterationContext.isAborted()) {
+                        finishedFuture.complete(null);
+                        return;
+                    }
+                }
+            } catch (final Exception e) {
+                finishedFuture.completeExceptionally(e);
+                return;
+            } finally {
+                Thread.currentThread().setContextClassLoader(previousClassLoader);
+            }
+
+            if (subscribers.isFinished()) {
+                finishedFuture.complete(null);
+            } else {
+                callbackExecutor.execute(this);
+            }
+        }
+
+        @NotNull CompletableFuture<Void> getFinishedFuture() {
+            return finishedFuture;
+        }
+    }
+
     static class AllSubscribersResultItemCallback implements AsyncIterator.ItemCallback<SubscriptionsForClientResult> {
         private @NotNull
         final Executor callbackExecutor;
@@ -18,6 +18,7 @@ package com.hivemq.logging;
 
 import com.hivemq.annotations.NotNull;
 import com.hivemq.annotations.Nullable;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.bootstrap.ioc.lazysingleton.LazySingleton;
 import com.hivemq.util.ChannelAttributes;
 import com.hivemq.util.ChannelUtils;
@@ -98,7 +99,7 @@ public class EventLog {
      * @param channel of the client connection
      */
     public void clientConnected(@NotNull final Channel channel) {
-        final String clientId = channel.attr(ChannelAttributes.CLIENT_ID).get();
+        final String clientId = ClientConnection.of(channel).getClientId();
         final String ip = ChannelUtils.getChannelIP(channel).orNull();
         final Boolean cleanStart = channel.attr(ChannelAttributes.CLEAN_START).get();
         final Long sessionExpiry = channel.attr(ChannelAttributes.CLIENT_SESSION_EXPIRY_INTERVAL).get();
@@ -118,7 +119,7 @@ public class EventLog {
             return;
         }
 
-        final String clientId = channel.attr(ChannelAttributes.CLIENT_ID).get();
+        final String clientId = ClientConnection.of(channel).getClientId();
         final String ip = ChannelUtils.getChannelIP(channel).orNull();
         final boolean graceful = channel.attr(ChannelAttributes.GRACEFUL_DISCONNECT).get() != null;
 
@@ -143,7 +144,7 @@ public class EventLog {
      */
     public void clientWasDisconnected(@NotNull final Channel channel, @NotNull final String reason) {
         channel.attr(ChannelAttributes.DISCONNECT_EVENT_LOGGED).set(true);
-        final String clientId = channel.attr(ChannelAttributes.CLIENT_ID).get();
+        final String clientId = ClientConnection.of(channel).getClientId();
         final String ip = ChannelUtils.getChannelIP(channel).orNull();
         logClientDisconnected.debug("Client ID: {}, IP: {} was disconnected. reason: {}.", valueOrUnknown(clientId), valueOrUnknown(ip), reason);
     }
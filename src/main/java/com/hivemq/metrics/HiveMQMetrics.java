@@ -18,6 +18,8 @@ package com.hivemq.metrics;
 
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Timer;
 
 /**
  * This class holds a constant {@link HiveMQMetric} for every metric which is provided by HiveMQ
@@ -118,6 +120,274 @@ public class HiveMQMetrics {
             HiveMQMetric.valueOf("com.hivemq.networking.connections-closed.total.count", Counter.class);
 
 
+    /**
+     * represents a {@link Histogram}, which measures the amount of messages that are written to the socket with a
+     * single flush on listeners with flush consolidation
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Histogram> MESSAGES_PER_FLUSH =
+            HiveMQMetric.valueOf("com.hivemq.networking.messages-per-flush", Histogram.class);
+    /**
+     * represents a {@link Counter}, which is increased every time the topic of an incoming PUBLISH was found in the
+     * topic intern cache
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Counter> TOPIC_INTERN_CACHE_HIT_COUNT =
+            HiveMQMetric.valueOf("com.hivemq.networking.topic-intern-cache.hit.count", Counter.class);
+    /**
+     * represents a {@link Counter}, which is increased every time the topic of an incoming PUBLISH was not found in
+     * the topic intern cache
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Counter> TOPIC_INTERN_CACHE_MISS_COUNT =
+            HiveMQMetric.valueOf("com.hivemq.networking.topic-intern-cache.miss.count", Counter.class);
+    /**
+     * represents a {@link Gauge}, which holds the current amount of topics in the topic intern cache
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Gauge<Number>> TOPIC_INTERN_CACHE_ENTRIES_CURRENT =
+            HiveMQMetric.gaugeValue("com.hivemq.networking.topic-intern-cache.entries.current");
+    /**
+     * represents a {@link Gauge}, which holds the estimated memory of the topic intern cache in bytes
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Gauge<Number>> TOPIC_INTERN_CACHE_MEMORY_CURRENT =
+            HiveMQMetric.gaugeValue("com.hivemq.networking.topic-intern-cache.memory.bytes.current");
+
+    /**
+     * represents a {@link Counter}, which is increased every time reading from a client is paused because too many
+     * of its PUBLISHes are queued for the staged publish processing
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Counter> STAGED_PUBLISH_PROCESSING_READS_PAUSED_COUNT =
+            HiveMQMetric.valueOf("com.hivemq.networking.staged-publish-processing.reads-paused.count", Counter.class);
+
+    /**
+     * represents a {@link Gauge}, which holds the current amount of PUBLISHes that are queued for the staged publish
+     * processing
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Gauge<Number>> STAGED_PUBLISH_PROCESSING_QUEUED_CURRENT =
+            HiveMQMetric.gaugeValue("com.hivemq.networking.staged-publish-processing.queued.current");
+
+    /**
+     * represents a {@link Timer}, which measures how long the outgoing traffic of a client is throttled by its
+     * traffic shaping budgets until all delayed messages are written
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Timer> CLIENT_TRAFFIC_SHAPING_THROTTLED_TIME =
+            HiveMQMetric.valueOf("com.hivemq.networking.client-traffic-shaping.throttled.time", Timer.class);
+
+    /**
+     * represents a {@link Counter}, which is increased every time an outgoing message is delayed because a traffic
+     * shaping budget of the client is exhausted
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Counter> CLIENT_TRAFFIC_SHAPING_DELAYED_MESSAGES_COUNT =
+            HiveMQMetric.valueOf("com.hivemq.networking.client-traffic-shaping.delayed-messages.count", Counter.class);
+
+    /**
+     * represents a {@link Gauge}, which holds the current amount of clients whose outgoing traffic is throttled
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Gauge<Number>> CLIENT_TRAFFIC_SHAPING_THROTTLED_CLIENTS_CURRENT =
+            HiveMQMetric.gaugeValue("com.hivemq.networking.client-traffic-shaping.throttled-clients.current");
+
+    /**
+     * represents a {@link Timer}, which measures how long reading from a client is suspended because the client
+     * exceeded its incoming rate limits
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Timer> CLIENT_INCOMING_RATE_LIMIT_SUSPENDED_TIME =
+            HiveMQMetric.valueOf("com.hivemq.networking.client-incoming-rate-limit.suspended.time", Timer.class);
+
+    /**
+     * represents a {@link Gauge}, which holds the current amount of clients reading is suspended from because they
+     * exceeded their incoming rate limits
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Gauge<Number>> CLIENT_INCOMING_RATE_LIMIT_SUSPENDED_CLIENTS_CURRENT =
+            HiveMQMetric.gaugeValue("com.hivemq.networking.client-incoming-rate-limit.suspended-clients.current");
+
+    /**
+     * represents a {@link Gauge}, which holds the total amount of bytes that are pending in the outbound buffers of
+     * all clients
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Gauge<Number>> OUTBOUND_BUFFER_BYTES_CURRENT =
+            HiveMQMetric.gaugeValue("com.hivemq.networking.outbound-buffer.bytes.current");
+
+    /**
+     * represents a {@link Gauge}, which holds the amount of bytes that are pending in the largest outbound buffer of a
+     * single client
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Gauge<Number>> OUTBOUND_BUFFER_MAX_CLIENT_BYTES_CURRENT =
+            HiveMQMetric.gaugeValue("com.hivemq.networking.outbound-buffer.max-client-bytes.current");
+
+    /**
+     * represents a {@link Gauge}, which holds the current amount of clients whose channel is not writable
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Gauge<Number>> SLOW_CONSUMER_NOT_WRITABLE_CLIENTS_CURRENT =
+            HiveMQMetric.gaugeValue("com.hivemq.networking.slow-consumer.not-writable-clients.current");
+
+    /**
+     * represents a {@link Timer}, which measures how long the channel of a client stays not writable
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Timer> SLOW_CONSUMER_NOT_WRITABLE_TIME =
+            HiveMQMetric.valueOf("com.hivemq.networking.slow-consumer.not-writable.time", Timer.class);
+
+    /**
+     * represents a {@link Counter}, which is increased every time a client is disconnected because its channel was
+     * not writable for too long
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Counter> SLOW_CONSUMER_DISCONNECTED_COUNT =
+            HiveMQMetric.valueOf("com.hivemq.networking.slow-consumer.disconnected.count", Counter.class);
+
+    /**
+     * represents a {@link Counter}, which is increased every time an extension service call is admitted by the
+     * per extension rate limit
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Counter> EXTENSION_SERVICE_RATE_LIMIT_ADMITTED_COUNT =
+            HiveMQMetric.valueOf("com.hivemq.extensions.services.rate-limit.admitted.count", Counter.class);
+
+    /**
+     * represents a {@link Counter}, which is increased every time an extension service call is rejected by the
+     * per extension rate limit
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Counter> EXTENSION_SERVICE_RATE_LIMIT_REJECTED_COUNT =
+            HiveMQMetric.valueOf("com.hivemq.extensions.services.rate-limit.rejected.count", Counter.class);
+
+    /**
+     * represents a {@link Counter}, which is increased every time a payload is added to the payload persistence and
+     * an identical payload is already stored
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Counter> PAYLOAD_DEDUPLICATION_HIT_COUNT =
+            HiveMQMetric.valueOf("com.hivemq.persistence.payload.deduplication.hit.count", Counter.class);
+
+    /**
+     * represents a {@link Counter}, which is increased every time a payload is added to the payload persistence and
+     * the payload is stored as a new entry
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Counter> PAYLOAD_DEDUPLICATION_MISS_COUNT =
+            HiveMQMetric.valueOf("com.hivemq.persistence.payload.deduplication.miss.count", Counter.class);
+
+    /**
+     * represents a {@link Counter}, which counts the payload bytes that were not stored again because an identical
+     * payload was already stored
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Counter> PAYLOAD_DEDUPLICATION_SAVED_BYTES_COUNT =
+            HiveMQMetric.valueOf("com.hivemq.persistence.payload.deduplication.saved.bytes.count", Counter.class);
+
+    /**
+     * represents a {@link Gauge}, which holds the ratio of added payloads that were deduplicated
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Gauge<Number>> PAYLOAD_DEDUPLICATION_RATIO_CURRENT =
+            HiveMQMetric.gaugeValue("com.hivemq.persistence.payload.deduplication.ratio.current");
+
+    /**
+     * represents a {@link Histogram}, which measures the amount of payloads that are written to the payload
+     * persistence with a single batch of the write behind
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Histogram> PAYLOAD_WRITE_BEHIND_BATCH_SIZE =
+            HiveMQMetric.valueOf("com.hivemq.persistence.payload.write-behind.batch.size", Histogram.class);
+
+    /**
+     * represents a {@link Timer}, which measures the time it takes the write behind to write a batch of payloads to
+     * the payload persistence
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Timer> PAYLOAD_WRITE_BEHIND_FLUSH_TIME =
+            HiveMQMetric.valueOf("com.hivemq.persistence.payload.write-behind.flush.time", Timer.class);
+
+    /**
+     * represents a {@link Gauge}, which holds the current amount of payloads that are staged by the write behind
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Gauge<Number>> PAYLOAD_WRITE_BEHIND_STAGED_CURRENT =
+            HiveMQMetric.gaugeValue("com.hivemq.persistence.payload.write-behind.staged.current");
+
+    /**
+     * represents a {@link Timer}, which measures the time until a PUBLISH appended to the inbound publish log is
+     * durable
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Timer> INBOUND_PUBLISH_LOG_APPEND_TIME =
+            HiveMQMetric.valueOf("com.hivemq.persistence.inbound-publish-log.append.time", Timer.class);
+
+    /**
+     * represents a {@link Gauge}, which holds the current amount of PUBLISHes in the inbound publish log that are not
+     * yet distributed to all subscribers
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Gauge<Number>> INBOUND_PUBLISH_LOG_PENDING_CURRENT =
+            HiveMQMetric.gaugeValue("com.hivemq.persistence.inbound-publish-log.pending.current");
+
+    /**
+     * represents a {@link Counter}, which is increased every time a PUBLISH is replayed from the inbound publish log
+     * after a restart
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Counter> INBOUND_PUBLISH_LOG_REPLAYED_COUNT =
+            HiveMQMetric.valueOf("com.hivemq.persistence.inbound-publish-log.replayed.count", Counter.class);
+
+    /**
+     * represents a {@link Gauge}, which holds the current amount of bytes of the live retained message records which
+     * are stored in the memory mapped retained message store
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Gauge<Number>> RETAINED_MESSAGE_MAPPED_STORE_RECORD_BYTES_CURRENT =
+            HiveMQMetric.gaugeValue("com.hivemq.persistence.retained.mapped-store.record.bytes.current");
+
+    /**
+     * represents a {@link Gauge}, which holds the current amount of memory mapped segments of the retained message
+     * store
+     *
+     * @since 4.1
+     */
+    public static final HiveMQMetric<Gauge<Number>> RETAINED_MESSAGE_MAPPED_STORE_SEGMENTS_CURRENT =
+            HiveMQMetric.gaugeValue("com.hivemq.persistence.retained.mapped-store.segments.current");
+
     /**
      * represents a {@link Counter}, which measures the current count of subscriptions
      *
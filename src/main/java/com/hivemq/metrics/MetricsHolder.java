@@ -17,6 +17,7 @@
 package com.hivemq.metrics;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
 import com.hivemq.annotations.NotNull;
 
@@ -46,6 +47,8 @@ public class MetricsHolder {
 
     private final @NotNull Counter closedConnectionsCounter;
 
+    private final @NotNull Histogram messagesPerFlushHistogram;
+
     public MetricsHolder(final MetricRegistry metricRegistry) {
 
         this.metricRegistry = metricRegistry;
@@ -63,6 +66,8 @@ public class MetricsHolder {
         closedConnectionsCounter = metricRegistry.counter(CONNECTIONS_CLOSED_COUNT.name());
 
         subscriptionCounter = metricRegistry.counter(SUBSCRIPTIONS_CURRENT.name());
+
+        messagesPerFlushHistogram = metricRegistry.histogram(MESSAGES_PER_FLUSH.name());
     }
 
     public @NotNull MetricRegistry getMetricRegistry() {
@@ -100,4 +105,8 @@ public class MetricsHolder {
     public @NotNull Counter getClosedConnectionsCounter() {
         return closedConnectionsCounter;
     }
+
+    public @NotNull Histogram getMessagesPerFlushHistogram() {
+        return messagesPerFlushHistogram;
+    }
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.metrics.handler;
+
+import com.codahale.metrics.Histogram;
+import com.hivemq.annotations.NotNull;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+
+/**
+ * This handler measures how many messages are written to the socket with a single flush.
+ * <p>
+ * It must be placed between the head of the pipeline and the flush consolidation, so it only sees the flushes that
+ * actually reach the socket. A handler instance holds the amount of written messages of its channel, so it must not be
+ * shared.
+ */
+public class FlushMetricsHandler extends ChannelOutboundHandlerAdapter {
+
+    private final @NotNull Histogram messagesPerFlush;
+
+    private int writtenSinceLastFlush;
+
+    public FlushMetricsHandler(final @NotNull Histogram messagesPerFlush) {
+        this.messagesPerFlush = messagesPerFlush;
+    }
+
+    @Override
+    public void write(final @NotNull ChannelHandlerContext ctx, final @NotNull Object msg, final @NotNull ChannelPromise promise) throws Exception {
+        writtenSinceLastFlush++;
+        super.write(ctx, msg, promise);
+    }
+
+    @Override
+    public void flush(final @NotNull ChannelHandlerContext ctx) throws Exception {
+        if (writtenSinceLastFlush > 0) {
+            messagesPerFlush.update(writtenSinceLastFlush);
+            writtenSinceLastFlush = 0;
+        }
+        super.flush(ctx);
+    }
+}
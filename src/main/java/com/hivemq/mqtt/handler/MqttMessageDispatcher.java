@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.mqtt.handler;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.hivemq.annotations.NotNull;
+import com.hivemq.annotations.Nullable;
+import com.hivemq.mqtt.message.Message;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+
+import java.util.List;
+
+import static com.hivemq.bootstrap.netty.ChannelHandlerNames.*;
+
+/**
+ * Dispatches the inbound MQTT messages of an established connection directly to the first handler in the pipeline
+ * that is interested in the message type.
+ * <p>
+ * Without this handler every message is passed through all handlers between the barriers and its actual handler,
+ * each of them doing its own type check. The dispatcher is added after the CONNACK was sent (see {@link
+ * com.hivemq.mqtt.handler.connect.PostConnectPipelineListener}) and resolves the target contexts once, so a message
+ * costs a single switch on its {@link com.hivemq.mqtt.message.MessageType}.
+ * <p>
+ * A message is fired from the context right before its target handler, so Netty invokes the target handler with its
+ * own context, on its own executor and with its own exception handling, like for any other message.
+ * <p>
+ * If a target handler or the handler before it is not (or no longer) part of the pipeline, the message is passed on
+ * the regular way.
+ */
+public class MqttMessageDispatcher extends ChannelInboundHandlerAdapter {
+
+    private @Nullable Route messageIdReturnRoute;
+    private @Nullable Route orderedTopicRoute;
+    private @Nullable Route authRoute;
+    private @Nullable Route disconnectRoute;
+    private @Nullable Route qosReceiverRoute;
+    private @Nullable Route pingRequestRoute;
+    private @Nullable Route incomingSubscribeRoute;
+    private @Nullable Route unsubscribeRoute;
+
+    @Override
+    public void handlerAdded(final @NotNull ChannelHandlerContext ctx) throws Exception {
+        final ChannelPipeline pipeline = ctx.pipeline();
+        final List<String> names = pipeline.names();
+        final int dispatcherIndex = names.indexOf(ctx.name());
+        messageIdReturnRoute = route(pipeline, names, dispatcherIndex, MQTT_MESSAGE_ID_RETURN_HANDLER);
+        orderedTopicRoute = route(pipeline, names, dispatcherIndex, MQTT_ORDERED_TOPIC_HANDLER);
+        authRoute = route(pipeline, names, dispatcherIndex, MQTT_AUTH_HANDLER);
+        disconnectRoute = route(pipeline, names, dispatcherIndex, MQTT_DISCONNECT_HANDLER);
+        qosReceiverRoute = route(pipeline, names, dispatcherIndex, MQTT_QOS_RECEIVER_HANDLER);
+        pingRequestRoute = route(pipeline, names, dispatcherIndex, MQTT_PINGREQ_HANDLER);
+        incomingSubscribeRoute = route(pipeline, names, dispatcherIndex, INCOMING_SUBSCRIBE_HANDLER);
+        unsubscribeRoute = route(pipeline, names, dispatcherIndex, MQTT_UNSUBSCRIBE_HANDLER);
+    }
+
+    /**
+     * @return the route to the handler, null if the handler is not part of the pipeline after the dispatcher
+     */
+    private static @Nullable Route route(
+            final @NotNull ChannelPipeline pipeline,
+            final @NotNull List<String> names,
+            final int dispatcherIndex,
+            final @NotNull String handlerName) {
+
+        final int index = names.indexOf(handlerName);
+        if (index <= dispatcherIndex) {
+            return null;
+        }
+        final ChannelHandlerContext target = pipeline.context(handlerName);
+        final ChannelHandlerContext previous = pipeline.context(names.get(index - 1));
+        if (target == null || previous == null) {
+            return null;
+        }
+        return new Route(target, previous);
+    }
+
+    @Override
+    public void channelRead(final @NotNull ChannelHandlerContext ctx, final @NotNull Object msg) throws Exception {
+
+        if (!(msg instanceof Message)) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+
+        final Route route = route((Message) msg);
+        if (route == null || route.target.isRemoved() || route.previous.isRemoved()) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        route.previous.fireChannelRead(msg);
+    }
+
+    @VisibleForTesting
+    @Nullable Route route(final @NotNull Message message) {
+        switch (message.getType()) {
+            case PUBLISH:
+            case PUBREL:
+                return qosReceiverRoute;
+            case PUBACK:
+            case PUBCOMP:
+                return messageIdReturnRoute;
+            case PUBREC:
+                return orderedTopicRoute;
+            case SUBSCRIBE:
+                return incomingSubscribeRoute;
+            case UNSUBSCRIBE:
+                return unsubscribeRoute;
+            case PINGREQ:
+                return pingRequestRoute;
+            case DISCONNECT:
+                return disconnectRoute;
+            case AUTH:
+                return authRoute;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * The context of a target handler and the context before it, from which messages for the handler are fired.
+     */
+    @VisibleForTesting
+    static class Route {
+
+        final @NotNull ChannelHandlerContext target;
+        final @NotNull ChannelHandlerContext previous;
+
+        Route(final @NotNull ChannelHandlerContext target, final @NotNull ChannelHandlerContext previous) {
+            this.target = target;
+            this.previous = previous;
+        }
+    }
+}
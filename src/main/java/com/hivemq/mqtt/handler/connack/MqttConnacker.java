@@ -19,11 +19,11 @@ package com.hivemq.mqtt.handler.connack;
 import com.google.common.base.Preconditions;
 import com.hivemq.annotations.NotNull;
 import com.hivemq.annotations.Nullable;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.configuration.service.InternalConfigurations;
 import com.hivemq.mqtt.message.ProtocolVersion;
 import com.hivemq.mqtt.message.connack.Mqtt3ConnAckReturnCode;
 import com.hivemq.mqtt.message.reason.Mqtt5ConnAckReasonCode;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.channel.Channel;
 
 import javax.inject.Inject;
@@ -95,7 +95,7 @@ public class MqttConnacker {
         Preconditions.checkNotNull(channel, "Channel must never be null");
         Preconditions.checkArgument(mqtt5ReasonCode != Mqtt5ConnAckReasonCode.SUCCESS, "Success is no error");
 
-        final ProtocolVersion protocolVersion = channel.attr(ChannelAttributes.MQTT_VERSION).get();
+        final ProtocolVersion protocolVersion = ClientConnection.of(channel).getProtocolVersion();
         connackSendUtil.logConnack(channel, logMessage, eventLogMessage);
         if (ProtocolVersion.MQTTv3_1 == protocolVersion || ProtocolVersion.MQTTv3_1_1 == protocolVersion) {
             connackSendUtil.connackMqtt3Error(channel, connackWithReasonCode, mqtt3ReasonCode, event);
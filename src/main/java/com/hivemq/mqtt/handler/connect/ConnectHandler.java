@@ -19,9 +19,14 @@ package com.hivemq.mqtt.handler.connect;
 import com.google.common.util.concurrent.*;
 import com.hivemq.annotations.NotNull;
 import com.hivemq.annotations.Nullable;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.bootstrap.netty.ChannelDependencies;
+import com.hivemq.codec.decoder.MQTTMessageDecoder;
+import com.hivemq.codec.encoder.mqtt5.OutboundTopicAliasMapping;
 import com.hivemq.configuration.service.FullConfigurationService;
 import com.hivemq.configuration.service.InternalConfigurations;
+import com.hivemq.configuration.service.entity.ClientShapingProperties;
+import com.hivemq.configuration.service.entity.Listener;
 import com.hivemq.extension.sdk.api.auth.parameter.AuthenticatorProviderInput;
 import com.hivemq.extension.sdk.api.packets.auth.ModifiableDefaultPermissions;
 import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectReasonCode;
@@ -57,9 +62,11 @@ import com.hivemq.persistence.ChannelPersistence;
 import com.hivemq.persistence.clientsession.ClientSessionPersistence;
 import com.hivemq.persistence.clientsession.SharedSubscriptionService;
 import com.hivemq.security.auth.ClientToken;
+import com.hivemq.throttling.ClientIncomingRateLimiter;
+import com.hivemq.throttling.ClientTrafficShaper;
+import com.hivemq.throttling.ClientTrafficShapingHandler;
 import com.hivemq.util.*;
 import io.netty.channel.*;
-import io.netty.handler.timeout.IdleStateHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -107,6 +114,7 @@ public class ConnectHandler extends SimpleChannelInboundHandler<CONNECT> impleme
     private final @NotNull ChannelDependencies channelDependencies;
     private final @NotNull PluginOutPutAsyncer asyncer;
     private final @NotNull ConnackSentListener connackSentListener = new ConnackSentListener();
+    private final @NotNull PostConnectPipelineListener postConnectPipelineListener = new PostConnectPipelineListener();
     private final @NotNull Authenticators authenticators;
     private final @NotNull Authorizers authorizers;
     private final @NotNull AuthenticatorProviderInputFactory authenticatorProviderInputFactory;
@@ -211,10 +219,10 @@ public class ConnectHandler extends SimpleChannelInboundHandler<CONNECT> impleme
 
         ctx.channel().attr(ChannelAttributes.TAKEN_OVER).set(false);
         ctx.channel().attr(ChannelAttributes.DISCONNECT_FUTURE).set(SettableFuture.create());
-        ctx.channel().attr(ChannelAttributes.CLIENT_RECEIVE_MAXIMUM).set(connect.getReceiveMaximum());
+        ClientConnection.of(ctx.channel()).setClientReceiveMaximum(connect.getReceiveMaximum());
 
         ctx.channel().attr(ChannelAttributes.REQUEST_RESPONSE_INFORMATION).set(connect.isResponseInformationRequested());
-        ctx.channel().attr(ChannelAttributes.REQUEST_PROBLEM_INFORMATION).set(connect.isProblemInformationRequested());
+        ClientConnection.of(ctx.channel()).setProblemInformationRequested(connect.isProblemInformationRequested());
 
         addOrderedTopicHandler(ctx, connect);
 
@@ -254,7 +262,7 @@ public class ConnectHandler extends SimpleChannelInboundHandler<CONNECT> impleme
         final ConnectAuthTaskInput input = new ConnectAuthTaskInput(connect, ctx);
         final ConnectAuthTaskContext context =
                 new ConnectAuthTaskContext(connect.getClientIdentifier(), this, mqttConnacker, ctx, connect, asyncer,
-                        authenticatorProviderMap.size(), configurationService.securityConfiguration().validateUTF8(), createClientSettings(connect));
+                        authenticatorProviderMap.size(), configurationService.securityConfiguration().validateUTF8(), createClientSettings(connect, ctx.channel()));
 
         final AuthenticatorProviderInput authenticatorProviderInput = authenticatorProviderInputFactory.createInput(ctx, connect.getClientIdentifier());
 
@@ -265,8 +273,11 @@ public class ConnectHandler extends SimpleChannelInboundHandler<CONNECT> impleme
         }
     }
 
-    private ModifiableClientSettingsImpl createClientSettings(@NotNull final CONNECT connect) {
-        return new ModifiableClientSettingsImpl(connect.getReceiveMaximum());
+    private ModifiableClientSettingsImpl createClientSettings(@NotNull final CONNECT connect, @NotNull final Channel channel) {
+        final Listener listener = channel.attr(ChannelAttributes.LISTENER).get();
+        final ClientShapingProperties shapingProperties =
+                listener != null ? listener.getClientShapingProperties() : ClientShapingProperties.NO_SHAPING;
+        return new ModifiableClientSettingsImpl(connect.getReceiveMaximum(), shapingProperties);
     }
 
     public void connectSuccessfulUnauthenticated(final @NotNull ChannelHandlerContext ctx,
@@ -461,8 +472,39 @@ public class ConnectHandler extends SimpleChannelInboundHandler<CONNECT> impleme
                                      final @NotNull CONNECT msg,
                                      @NotNull final Channel channel) {
         msg.setReceiveMaximum(clientSettings.getClientReceiveMaximum());
-        channel.attr(ChannelAttributes.CLIENT_RECEIVE_MAXIMUM).set(clientSettings.getClientReceiveMaximum());
+        ClientConnection.of(channel).setClientReceiveMaximum(clientSettings.getClientReceiveMaximum());
         channel.attr(ChannelAttributes.OVERLOAD_PROTECTION_THROTTLING_LEVEL).set(clientSettings.getOverloadProtectionThrottlingLevel());
+        applyClientShaping(clientSettings, channel);
+    }
+
+    private void applyClientShaping(final @NotNull ModifiableClientSettingsImpl clientSettings,
+                                    final @NotNull Channel channel) {
+
+        final ClientShapingProperties shapingProperties = new ClientShapingProperties(
+                clientSettings.getOutgoingBytesPerSecond(), clientSettings.getOutgoingPublishesPerSecond(),
+                clientSettings.getIncomingBytesPerSecond(), clientSettings.getIncomingPublishesPerSecond());
+        final ClientTrafficShaper clientTrafficShaper = channelDependencies.getClientTrafficShaper();
+
+        final ChannelHandler handler = channel.pipeline().get(CLIENT_THROTTLING_HANDLER);
+        if (handler instanceof ClientTrafficShapingHandler) {
+            ((ClientTrafficShapingHandler) handler).setLimits(
+                    shapingProperties.getOutgoingBytesPerSecond(), shapingProperties.getOutgoingPublishesPerSecond());
+        } else if (shapingProperties.isShapingOutgoing()) {
+            channel.pipeline().addAfter(GLOBAL_THROTTLING_HANDLER, CLIENT_THROTTLING_HANDLER,
+                    clientTrafficShaper.newHandler(shapingProperties));
+        }
+
+        final MQTTMessageDecoder decoder = channel.pipeline().get(MQTTMessageDecoder.class);
+        if (decoder == null) {
+            return;
+        }
+        final ClientIncomingRateLimiter rateLimiter = decoder.getIncomingRateLimiter();
+        if (rateLimiter != null) {
+            rateLimiter.setLimits(
+                    shapingProperties.getIncomingBytesPerSecond(), shapingProperties.getIncomingPublishesPerSecond());
+        } else if (shapingProperties.isLimitingIncoming()) {
+            decoder.setIncomingRateLimiter(clientTrafficShaper.newIncomingRateLimiter(shapingProperties, channel));
+        }
     }
 
     private void continueAfterWillAuthorization(@NotNull final ChannelHandlerContext ctx, @NotNull final CONNECT msg) {
@@ -618,8 +660,9 @@ public class ConnectHandler extends SimpleChannelInboundHandler<CONNECT> impleme
         }
 
         connackSent.addListener(connackSentListener);
+        connackSent.addListener(postConnectPipelineListener);
         //send out queued messages (from inflight and client-session queue) for client after connack is sent
-        connackSent.addListener(new PollInflightMessageListener(publishPollService, ctx.channel().attr(ChannelAttributes.CLIENT_ID).get()));
+        connackSent.addListener(new PollInflightMessageListener(publishPollService, ClientConnection.of(ctx.channel()).getClientId()));
     }
 
     private @NotNull CONNACK buildMqtt5Connack(final @NotNull Channel channel, final @NotNull CONNECT msg, final boolean sessionPresent) {
@@ -649,7 +692,7 @@ public class ConnectHandler extends SimpleChannelInboundHandler<CONNECT> impleme
 
         //Set max packet size to send to channel
         if (msg.getMaximumPacketSize() <= DEFAULT_MAXIMUM_PACKET_SIZE_NO_LIMIT) {
-            channel.attr(ChannelAttributes.MAX_PACKET_SIZE_SEND).set(msg.getMaximumPacketSize());
+            ClientConnection.of(channel).setMaxPacketSizeSend(msg.getMaximumPacketSize());
         }
 
         //send server keep alive max when connect keep alive is zero and zero is not allowed or keep alive > server keep alive maximum
@@ -663,11 +706,22 @@ public class ConnectHandler extends SimpleChannelInboundHandler<CONNECT> impleme
 
         //init Topic Alias Mapping if maximum is greater than zero and aliases are available
         if (topicAliasMaximum > 0 && topicAliasLimiter.aliasesAvailable()) {
-            channel.attr(ChannelAttributes.TOPIC_ALIAS_MAPPING).set(new String[topicAliasMaximum]);
+            ClientConnection.of(channel).setTopicAliasMapping(new String[topicAliasMaximum]);
             builder.withTopicAliasMaximum(topicAliasMaximum);
             topicAliasLimiter.initUsage(topicAliasMaximum);
         }
 
+        //init outbound Topic Alias Mapping if the client accepts topic aliases and aliases are available
+        if (InternalConfigurations.MQTT_OUTBOUND_TOPIC_ALIASES_ENABLED.get() && msg.getTopicAliasMaximum() > 0 &&
+                topicAliasLimiter.aliasesAvailable()) {
+            final int outboundTopicAliasMaximum =
+                    Math.min(msg.getTopicAliasMaximum(), InternalConfigurations.MQTT_OUTBOUND_TOPIC_ALIAS_MAXIMUM);
+            ClientConnection.of(channel).setOutboundTopicAliasMapping(new OutboundTopicAliasMapping(
+                    outboundTopicAliasMaximum, InternalConfigurations.MQTT_OUTBOUND_TOPIC_ALIAS_MIN_TOPIC_LENGTH,
+                    topicAliasLimiter));
+            topicAliasLimiter.initUsage(outboundTopicAliasMaximum);
+        }
+
         //Set session expiry interval to channel for DISCONNECT
         channel.attr(ChannelAttributes.CLIENT_SESSION_EXPIRY_INTERVAL).set(sessionExpiryInterval);
 
@@ -747,7 +801,7 @@ public class ConnectHandler extends SimpleChannelInboundHandler<CONNECT> impleme
             // The MQTT spec defines a 1.5 grace period
             final Double keepAliveValue = msg.getKeepAlive() * getGracePeriod();
             log.trace("Client specified a keepAlive value of {}s. The maximum timeout before disconnecting is {}s", msg.getKeepAlive(), keepAliveValue);
-            ctx.pipeline().addFirst(MQTT_KEEPALIVE_IDLE_NOTIFIER_HANDLER, new IdleStateHandler(keepAliveValue.intValue(), 0, 0, TimeUnit.SECONDS));
+            ctx.pipeline().addFirst(MQTT_KEEPALIVE_IDLE_NOTIFIER_HANDLER, channelDependencies.getKeepAliveManager().newIdleHandler(keepAliveValue.intValue(), TimeUnit.SECONDS));
             ctx.pipeline().addAfter(MQTT_KEEPALIVE_IDLE_NOTIFIER_HANDLER, MQTT_KEEPALIVE_IDLE_HANDLER, new KeepAliveIdleHandler(eventLog));
         }
     }
@@ -22,6 +22,7 @@ import com.google.common.util.concurrent.SettableFuture;
 import com.hivemq.annotations.Immutable;
 import com.hivemq.annotations.NotNull;
 import com.hivemq.annotations.Nullable;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.message.MessageIDPools;
 import com.hivemq.mqtt.message.connect.CONNECT;
 import com.hivemq.mqtt.message.connect.MqttWillPublish;
@@ -95,7 +96,7 @@ public class ConnectPersistenceUpdateHandler extends ChannelInboundHandlerAdapte
             return;
         }
 
-        final String clientId = ctx.channel().attr(ChannelAttributes.CLIENT_ID).get();
+        final String clientId = ClientConnection.of(ctx.channel()).getClientId();
 
         final Boolean authenticated = ctx.channel().attr(ChannelAttributes.AUTHENTICATED_OR_AUTHENTICATION_BYPASSED).get();
         final SettableFuture<Void> disconnectFuture = ctx.channel().attr(ChannelAttributes.DISCONNECT_FUTURE).get();
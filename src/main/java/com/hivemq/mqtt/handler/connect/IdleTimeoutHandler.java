@@ -0,0 +1,124 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.mqtt.handler.connect;
+
+import com.hivemq.annotations.NotNull;
+import com.hivemq.annotations.Nullable;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.timeout.IdleStateEvent;
+
+/**
+ * Fires a {@link IdleStateEvent#FIRST_READER_IDLE_STATE_EVENT} if nothing was read from the channel for the given
+ * timeout, like a reader idle {@link io.netty.handler.timeout.IdleStateHandler} does.
+ * <p>
+ * The timeout is checked by the {@link IdleTimeoutWheel} of the event loop of the channel instead of a timer task of its
+ * own, a read only updates the last read timestamp. The event is fired at most once.
+ */
+public class IdleTimeoutHandler extends ChannelInboundHandlerAdapter {
+
+    private final @NotNull KeepAliveManager keepAliveManager;
+    private final long timeoutNanos;
+
+    private @Nullable ChannelHandlerContext ctx;
+    private long lastReadNanos;
+    private boolean reading;
+    private boolean initialized;
+    private boolean cancelled;
+
+    IdleTimeoutHandler(final @NotNull KeepAliveManager keepAliveManager, final long timeoutNanos) {
+        this.keepAliveManager = keepAliveManager;
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    @Override
+    public void handlerAdded(final @NotNull ChannelHandlerContext ctx) throws Exception {
+        final Channel channel = ctx.channel();
+        if (channel.isActive() && channel.isRegistered()) {
+            initialize(ctx);
+        }
+    }
+
+    @Override
+    public void handlerRemoved(final @NotNull ChannelHandlerContext ctx) throws Exception {
+        cancelled = true;
+    }
+
+    @Override
+    public void channelRegistered(final @NotNull ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isActive()) {
+            initialize(ctx);
+        }
+        super.channelRegistered(ctx);
+    }
+
+    @Override
+    public void channelActive(final @NotNull ChannelHandlerContext ctx) throws Exception {
+        initialize(ctx);
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelInactive(final @NotNull ChannelHandlerContext ctx) throws Exception {
+        cancelled = true;
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void channelRead(final @NotNull ChannelHandlerContext ctx, final @NotNull Object msg) throws Exception {
+        reading = true;
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelReadComplete(final @NotNull ChannelHandlerContext ctx) throws Exception {
+        if (reading) {
+            lastReadNanos = System.nanoTime();
+            reading = false;
+        }
+        ctx.fireChannelReadComplete();
+    }
+
+    private void initialize(final @NotNull ChannelHandlerContext ctx) {
+        if (initialized || cancelled) {
+            return;
+        }
+        initialized = true;
+        this.ctx = ctx;
+        lastReadNanos = System.nanoTime();
+        keepAliveManager.register(this, ctx.channel().eventLoop());
+    }
+
+    long deadlineNanos() {
+        if (reading) {
+            return System.nanoTime() + timeoutNanos;
+        }
+        return lastReadNanos + timeoutNanos;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    void timeout() {
+        cancelled = true;
+        if (ctx != null) {
+            ctx.fireUserEventTriggered(IdleStateEvent.FIRST_READER_IDLE_STATE_EVENT);
+        }
+    }
+}
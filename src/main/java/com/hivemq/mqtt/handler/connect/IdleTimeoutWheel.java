@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.mqtt.handler.connect;
+
+import com.google.common.base.Preconditions;
+import com.hivemq.annotations.NotNull;
+import io.netty.channel.EventLoop;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A coarse grained hashed timer wheel which checks the read idle timeouts of all channels of a single event loop.
+ * <p>
+ * A channel is put into the bucket of its current deadline. Reads only update the last read timestamp of the
+ * {@link IdleTimeoutHandler}, the deadline is evaluated again when the bucket expires and the channel is either timed out
+ * or moved to the bucket of its new deadline. So there is a single scheduled task per event loop, regardless of the
+ * amount of channels and reads.
+ * <p>
+ * The wheel must only be accessed from its event loop.
+ */
+class IdleTimeoutWheel implements Runnable {
+
+    private final long tickNanos;
+    private final int mask;
+    private final long startNanos;
+
+    private final @NotNull ArrayDeque<IdleTimeoutHandler>[] buckets;
+    private @NotNull ArrayDeque<IdleTimeoutHandler> spareBucket = new ArrayDeque<>();
+
+    private long processedTicks;
+
+    @SuppressWarnings("unchecked")
+    IdleTimeoutWheel(final @NotNull EventLoop eventLoop, final long tickMillis, final int wheelSize) {
+        Preconditions.checkArgument(tickMillis > 0, "Tick duration must be greater than 0");
+        Preconditions.checkArgument(wheelSize > 0 && (wheelSize & (wheelSize - 1)) == 0, "Wheel size must be a power of two");
+
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.mask = wheelSize - 1;
+        this.startNanos = System.nanoTime();
+        this.buckets = new ArrayDeque[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+
+        eventLoop.scheduleAtFixedRate(this, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void add(final @NotNull IdleTimeoutHandler handler) {
+        schedule(handler, handler.deadlineNanos());
+    }
+
+    @Override
+    public void run() {
+        final long now = System.nanoTime();
+        final long currentTick = (now - startNanos) / tickNanos;
+        while (processedTicks < currentTick) {
+            processedTicks++;
+            expire((int) (processedTicks & mask), now);
+        }
+    }
+
+    private void schedule(final @NotNull IdleTimeoutHandler handler, final long deadlineNanos) {
+        // round up, a timeout is never detected before its deadline
+        long tick = (deadlineNanos - startNanos + tickNanos - 1) / tickNanos;
+        if (tick <= processedTicks) {
+            tick = processedTicks + 1;
+        }
+        buckets[(int) (tick & mask)].add(handler);
+    }
+
+    private void expire(final int index, final long now) {
+        final ArrayDeque<IdleTimeoutHandler> bucket = buckets[index];
+        if (bucket.isEmpty()) {
+            return;
+        }
+        // swap the bucket, channels with a deadline in a later round are added to the same index again
+        buckets[index] = spareBucket;
+
+        IdleTimeoutHandler handler;
+        while ((handler = bucket.poll()) != null) {
+            if (handler.isCancelled()) {
+                continue;
+            }
+            final long deadlineNanos = handler.deadlineNanos();
+            if (deadlineNanos - now <= 0) {
+                handler.timeout();
+            } else {
+                schedule(handler, deadlineNanos);
+            }
+        }
+        spareBucket = bucket;
+    }
+}
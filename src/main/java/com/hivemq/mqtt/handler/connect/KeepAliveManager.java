@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.mqtt.handler.connect;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.hivemq.annotations.NotNull;
+import com.hivemq.configuration.service.InternalConfigurations;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.EventLoop;
+import io.netty.handler.timeout.IdleStateHandler;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the handlers which detect that a client was idle for too long, either before it sent its CONNECT or after
+ * its keep alive expired.
+ * <p>
+ * If {@link InternalConfigurations#KEEP_ALIVE_TIMER_WHEEL_ENABLED} is set, all timeouts of an event loop are checked by
+ * a single {@link IdleTimeoutWheel}. Otherwise every channel gets its own {@link IdleStateHandler}.
+ */
+@Singleton
+public class KeepAliveManager {
+
+    private final @NotNull Map<EventLoop, IdleTimeoutWheel> wheels = new ConcurrentHashMap<>();
+    private final long tickMillis;
+    private final int wheelSize;
+
+    @Inject
+    public KeepAliveManager() {
+        this(InternalConfigurations.KEEP_ALIVE_TIMER_WHEEL_TICK_MILLIS, InternalConfigurations.KEEP_ALIVE_TIMER_WHEEL_SIZE);
+    }
+
+    @VisibleForTesting
+    KeepAliveManager(final long tickMillis, final int wheelSize) {
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+    }
+
+    /**
+     * Creates a handler that fires a reader idle {@link io.netty.handler.timeout.IdleStateEvent} if nothing was read
+     * from the channel for the given timeout.
+     *
+     * @param timeout the read idle timeout
+     * @param unit    the unit of the timeout
+     * @return the idle handler for a single channel
+     */
+    public @NotNull ChannelHandler newIdleHandler(final long timeout, final @NotNull TimeUnit unit) {
+        if (InternalConfigurations.KEEP_ALIVE_TIMER_WHEEL_ENABLED.get()) {
+            return new IdleTimeoutHandler(this, unit.toNanos(timeout));
+        }
+        return new IdleStateHandler(timeout, 0, 0, unit);
+    }
+
+    void register(final @NotNull IdleTimeoutHandler handler, final @NotNull EventLoop eventLoop) {
+        wheels.computeIfAbsent(eventLoop, loop -> new IdleTimeoutWheel(loop, tickMillis, wheelSize)).add(handler);
+    }
+}
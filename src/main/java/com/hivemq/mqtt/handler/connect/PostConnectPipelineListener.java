@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.mqtt.handler.connect;
+
+import com.hivemq.annotations.NotNull;
+import com.hivemq.configuration.service.InternalConfigurations;
+import com.hivemq.mqtt.handler.MqttMessageDispatcher;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelPipeline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.NoSuchElementException;
+
+import static com.hivemq.bootstrap.netty.ChannelHandlerNames.*;
+
+/**
+ * Shrinks the pipeline of a client as soon as the CONNACK was sent successfully.
+ * <p>
+ * The handlers that only take part in the CONNECT flow are removed and, if enabled, the {@link MqttMessageDispatcher}
+ * is added right after the subscribe barrier.
+ * <p>
+ * This listener is stateless, so the same instance can be used for all channels.
+ */
+public class PostConnectPipelineListener implements ChannelFutureListener {
+
+    private static final Logger log = LoggerFactory.getLogger(PostConnectPipelineListener.class);
+
+    private static final String[] CONNECT_ONLY_HANDLERS = {
+            STOP_READING_AFTER_CONNECT_HANDLER,
+            CONNECT_INBOUND_INTERCEPTOR_HANDLER,
+            CONNACK_OUTBOUND_INTERCEPTOR_HANDLER
+    };
+
+    @Override
+    public void operationComplete(final @NotNull ChannelFuture future) throws Exception {
+        if (!future.isSuccess() || !future.channel().isActive()) {
+            return;
+        }
+
+        final ChannelPipeline pipeline = future.channel().pipeline();
+        for (final String handlerName : CONNECT_ONLY_HANDLERS) {
+            removeIfPresent(pipeline, handlerName);
+        }
+
+        if (InternalConfigurations.MQTT_FUSED_MESSAGE_DISPATCH_ENABLED.get()
+                && pipeline.get(MQTT_SUBSCRIBE_MESSAGE_BARRIER) != null
+                && pipeline.get(MQTT_MESSAGE_DISPATCHER) == null) {
+            pipeline.addAfter(MQTT_SUBSCRIBE_MESSAGE_BARRIER, MQTT_MESSAGE_DISPATCHER, new MqttMessageDispatcher());
+        }
+    }
+
+    private static void removeIfPresent(final @NotNull ChannelPipeline pipeline, final @NotNull String handlerName) {
+        try {
+            if (pipeline.get(handlerName) != null) {
+                pipeline.remove(handlerName);
+            }
+        } catch (final NoSuchElementException e) {
+            //noop since handler has already been removed
+            log.trace("Not able to remove handler {} after CONNACK", handlerName);
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package com.hivemq.mqtt.handler.connect;
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.message.connack.CONNACK;
 import com.hivemq.mqtt.message.connect.CONNECT;
 import com.hivemq.mqtt.message.reason.Mqtt5ConnAckReasonCode;
@@ -51,7 +52,7 @@ public class StopReadingAfterConnectHandler extends ChannelDuplexHandler {
             if (log.isTraceEnabled()) {
                 log.trace("Suspending read operations for MQTT client with clientId {} and IP {}", ((CONNECT) msg).getClientIdentifier(), ChannelUtils.getChannelIP(ctx.channel()).or("UNKNOWN"));
             }
-            ctx.channel().config().setAutoRead(false);
+            ClientConnection.suspendReads(ctx.channel(), ClientConnection.READS_SUSPENDED_BY_CONNECT);
         }
         super.channelRead(ctx, msg);
     }
@@ -79,7 +80,7 @@ public class StopReadingAfterConnectHandler extends ChannelDuplexHandler {
                 if (log.isTraceEnabled()) {
                     log.trace("Restarting read operations for MQTT client with IP {}", ChannelUtils.getChannelIP(future.channel()).or("UNKNOWN"));
                 }
-                future.channel().config().setAutoRead(true);
+                ClientConnection.resumeReads(future.channel(), ClientConnection.READS_SUSPENDED_BY_CONNECT);
             }
         }
     }
@@ -18,6 +18,7 @@ package com.hivemq.mqtt.handler.connect;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.hivemq.annotations.NotNull;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.message.Message;
 import com.hivemq.mqtt.message.PINGREQ;
 import com.hivemq.mqtt.message.suback.SUBACK;
@@ -51,7 +52,7 @@ public class SubscribeMessageBarrier extends ChannelDuplexHandler {
 
             if ((msg instanceof SUBSCRIBE || msg instanceof UNSUBSCRIBE) &&
                     subscribeInProcess.compareAndSet(false, true)) {
-                ctx.channel().config().setAutoRead(false);
+                ClientConnection.suspendReads(ctx.channel(), ClientConnection.READS_SUSPENDED_BY_SUBSCRIBE);
                 super.channelRead(ctx, msg);
                 return;
             }
@@ -77,7 +78,9 @@ public class SubscribeMessageBarrier extends ChannelDuplexHandler {
                     if (future.isSuccess()) {
                         final boolean allMessagesReleased = releaseQueuedMessages(ctx);
                         subscribeInProcess.set(!allMessagesReleased);
-                        ctx.channel().config().setAutoRead(allMessagesReleased);
+                        if (allMessagesReleased) {
+                            ClientConnection.resumeReads(ctx.channel(), ClientConnection.READS_SUSPENDED_BY_SUBSCRIBE);
+                        }
                     }
                 }
 
@@ -17,6 +17,8 @@
 package com.hivemq.mqtt.handler.disconnect;
 
 
+import com.hivemq.bootstrap.ClientConnection;
+import com.hivemq.codec.encoder.mqtt5.OutboundTopicAliasMapping;
 import com.hivemq.configuration.service.InternalConfigurations;
 import com.hivemq.extensions.events.OnClientDisconnectEvent;
 import com.hivemq.limitation.TopicAliasLimiter;
@@ -66,14 +68,14 @@ public class DisconnectHandler extends SimpleChannelInboundHandler<DISCONNECT> {
     protected void channelRead0(final ChannelHandlerContext ctx, final DISCONNECT msg) throws Exception {
 
         ctx.channel().attr(GRACEFUL_DISCONNECT).set(true);
-        final String clientId = ctx.channel().attr(CLIENT_ID).get();
+        final String clientId = ClientConnection.of(ctx.channel()).getClientId();
 
         //no version check necessary, because mqtt 3 disconnect session expiry interval = SESSION_EXPIRY_NOT_SET
         if (msg.getSessionExpiryInterval() != CONNECT.SESSION_EXPIRY_NOT_SET) {
             ctx.channel().attr(CLIENT_SESSION_EXPIRY_INTERVAL).set(msg.getSessionExpiryInterval());
         }
 
-        if (ProtocolVersion.MQTTv5 == ctx.channel().attr(MQTT_VERSION).get()) {
+        if (ProtocolVersion.MQTTv5 == ClientConnection.of(ctx.channel()).getProtocolVersion()) {
             final String reasonString = msg.getReasonString();
             if (logClientReasonString && reasonString != null) {
                 eventLog.clientDisconnected(ctx.channel(), reasonString);
@@ -96,8 +98,10 @@ public class DisconnectHandler extends SimpleChannelInboundHandler<DISCONNECT> {
     public void channelInactive(final ChannelHandlerContext ctx) throws Exception {
 
         final Channel channel = ctx.channel();
-        final String clientId = channel.attr(CLIENT_ID).get();
-        final String[] topicAliasMapping = channel.attr(TOPIC_ALIAS_MAPPING).get();
+        final String clientId = ClientConnection.of(channel).getClientId();
+        final String[] topicAliasMapping = ClientConnection.of(channel).getTopicAliasMapping();
+        final OutboundTopicAliasMapping outboundTopicAliasMapping =
+                ClientConnection.of(channel).getOutboundTopicAliasMapping();
         final boolean gracefulDisconnect = channel.attr(GRACEFUL_DISCONNECT).get() != null;
         final boolean preventLwt = channel.attr(PREVENT_LWT).get() != null ? channel.attr(PREVENT_LWT).get() : false;
         final boolean takenOver = channel.attr(TAKEN_OVER).get() != null ? channel.attr(TAKEN_OVER).get() : false;
@@ -125,6 +129,9 @@ public class DisconnectHandler extends SimpleChannelInboundHandler<DISCONNECT> {
         if (topicAliasMapping != null) {
             topicAliasLimiter.finishUsage(topicAliasMapping);
         }
+        if (outboundTopicAliasMapping != null) {
+            topicAliasLimiter.finishUsage(outboundTopicAliasMapping.getTopics());
+        }
 
         super.channelInactive(ctx);
     }
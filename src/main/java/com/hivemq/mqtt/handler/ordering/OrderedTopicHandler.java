@@ -21,6 +21,7 @@ import com.google.common.util.concurrent.SettableFuture;
 import com.hivemq.annotations.Immutable;
 import com.hivemq.annotations.NotNull;
 import com.hivemq.annotations.Nullable;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.codec.encoder.mqtt5.PublishDroppedEvent;
 import com.hivemq.mqtt.handler.publish.PublishStatus;
 import com.hivemq.mqtt.message.MessageWithID;
@@ -31,22 +32,20 @@ import com.hivemq.mqtt.message.publish.PublishWithFuture;
 import com.hivemq.mqtt.message.publish.PubrelWithFuture;
 import com.hivemq.mqtt.message.pubrec.PUBREC;
 import com.hivemq.mqtt.message.reason.Mqtt5PubRecReasonCode;
-import com.hivemq.util.ChannelAttributes;
 import com.hivemq.util.ChannelUtils;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.channels.ClosedChannelException;
 import java.util.ArrayDeque;
-import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author Dominik Obermaier
@@ -56,6 +55,7 @@ public class OrderedTopicHandler extends ChannelDuplexHandler {
 
     private static final Logger log = LoggerFactory.getLogger(OrderedTopicHandler.class);
     private static final ClosedChannelException CLOSED_CHANNEL_EXCEPTION = new ClosedChannelException();
+    private static final int INITIAL_INFLIGHT_CAPACITY = 16;
 
     static {
         //remove the stacktrace from the static exception
@@ -63,13 +63,17 @@ public class OrderedTopicHandler extends ChannelDuplexHandler {
     }
 
 
-    private final Map<Integer, SettableFuture<PublishStatus>> messageIdToFutureMap = new ConcurrentHashMap<>();
+    /**
+     * All state of this handler is only accessed from the event loop of the channel, so primitive keyed maps without
+     * synchronization are used to avoid boxing the packet identifiers of every outgoing message.
+     */
+    private final IntObjectMap<SettableFuture<PublishStatus>> messageIdToFutureMap = new IntObjectHashMap<>(INITIAL_INFLIGHT_CAPACITY);
 
     @VisibleForTesting
     final Queue<QueuedMessage> queue = new ArrayDeque<>();
 
-    private final AtomicBoolean closedAlready = new AtomicBoolean(false);
-    private final Set<Integer> unacknowledgedMessages = ConcurrentHashMap.newKeySet();
+    private boolean closedAlready = false;
+    private final IntObjectMap<Boolean> unacknowledgedMessages = new IntObjectHashMap<>(INITIAL_INFLIGHT_CAPACITY);
 
     @Override
     public void channelRead(final ChannelHandlerContext ctx, @NotNull final Object msg) throws Exception {
@@ -89,15 +93,14 @@ public class OrderedTopicHandler extends ChannelDuplexHandler {
     }
 
     private void messageFlowComplete(@NotNull final ChannelHandlerContext ctx, final int packetId){
-        final SettableFuture<PublishStatus> publishStatusFuture = messageIdToFutureMap.get(packetId);
+        final SettableFuture<PublishStatus> publishStatusFuture = messageIdToFutureMap.remove(packetId);
 
         if (publishStatusFuture != null) {
-            messageIdToFutureMap.remove(packetId);
             publishStatusFuture.set(PublishStatus.DELIVERED);
         }
 
-        final boolean removed = unacknowledgedMessages.remove(packetId);
-        if (!removed) {
+        final Boolean removed = unacknowledgedMessages.remove(packetId);
+        if (removed == null) {
             return;
         }
 
@@ -112,7 +115,7 @@ public class OrderedTopicHandler extends ChannelDuplexHandler {
             if (poll == null) {
                 return;
             }
-            unacknowledgedMessages.add(poll.publish.getPacketIdentifier());
+            unacknowledgedMessages.put(poll.publish.getPacketIdentifier(), Boolean.TRUE);
             ctx.writeAndFlush(poll.getPublish(), poll.getPromise());
         } while (unacknowledgedMessages.size() < maxInflightWindow);
     }
@@ -151,7 +154,7 @@ public class OrderedTopicHandler extends ChannelDuplexHandler {
         }
 
         final PUBLISH publish = (PUBLISH) msg;
-        final String clientId = channel.attr(ChannelAttributes.CLIENT_ID).get();
+        final String clientId = ClientConnection.of(channel).getClientId();
         final int qosNumber = publish.getQoS().getQosNumber();
         if (log.isTraceEnabled()) {
             log.trace("Client {}: Sending PUBLISH QoS {} Message with packet id {}", clientId, publish.getQoS().getQosNumber(), publish.getPacketIdentifier());
@@ -167,7 +170,7 @@ public class OrderedTopicHandler extends ChannelDuplexHandler {
         }
 
         //do not store in OrderedTopicHandler if channelInactive has been called already
-        if (closedAlready.get()) {
+        if (closedAlready) {
             promise.setFailure(CLOSED_CHANNEL_EXCEPTION);
             return;
         }
@@ -177,7 +180,7 @@ public class OrderedTopicHandler extends ChannelDuplexHandler {
         if (unacknowledgedMessages.size() >= maxInflightWindow) {
             queueMessage(promise, publish, clientId);
         } else {
-            unacknowledgedMessages.add(publish.getPacketIdentifier());
+            unacknowledgedMessages.put(publish.getPacketIdentifier(), Boolean.TRUE);
             super.write(ctx, publish, promise);
         }
     }
@@ -185,7 +188,7 @@ public class OrderedTopicHandler extends ChannelDuplexHandler {
     @Override
     public void channelInactive(final ChannelHandlerContext ctx) throws Exception {
 
-        closedAlready.set(true);
+        closedAlready = true;
 
         for (final QueuedMessage queuedMessage : queue) {
             if (queuedMessage != null) {
@@ -197,8 +200,7 @@ public class OrderedTopicHandler extends ChannelDuplexHandler {
 
         // In case the client is disconnected, we return all the publish status futures
         // This is particularly important for shared subscriptions, because the publish wont be resent otherwise
-        for (final Map.Entry<Integer, SettableFuture<PublishStatus>> entry : messageIdToFutureMap.entrySet()) {
-            final SettableFuture<PublishStatus> publishStatusFuture = entry.getValue();
+        for (final SettableFuture<PublishStatus> publishStatusFuture : messageIdToFutureMap.values()) {
             publishStatusFuture.set(PublishStatus.NOT_CONNECTED);
         }
 
@@ -224,9 +226,13 @@ public class OrderedTopicHandler extends ChannelDuplexHandler {
         super.write(ctx, publish, promise);
     }
 
+    /**
+     * @return a view of the packet identifiers that were sent but not yet acknowledged, must only be used from the
+     * event loop of the channel
+     */
     @NotNull
     public Set<Integer> unacknowledgedMessages() {
-        return unacknowledgedMessages;
+        return unacknowledgedMessages.keySet();
     }
 
     @Immutable
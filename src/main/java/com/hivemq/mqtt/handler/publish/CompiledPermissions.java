@@ -0,0 +1,121 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.mqtt.handler.publish;
+
+import com.hivemq.annotations.Immutable;
+import com.hivemq.annotations.NotNull;
+import com.hivemq.annotations.Nullable;
+import com.hivemq.configuration.service.InternalConfigurations;
+import com.hivemq.extension.sdk.api.auth.parameter.TopicPermission;
+import com.hivemq.mqtt.message.QoS;
+import com.hivemq.mqtt.topic.PermissionTopicTree;
+import com.hivemq.mqtt.topic.TokenizedTopic;
+
+import java.util.List;
+
+/**
+ * The default permissions of a single client compiled into a {@link PermissionTopicTree}, together with a small cache
+ * of the last PUBLISH authorization decisions of the client.
+ * <p>
+ * The cache is direct mapped, an entry is simply replaced if another topic is mapped to the same slot. Entries are
+ * immutable, so concurrent access can only lead to a cache miss but never to a wrong decision.
+ */
+public class CompiledPermissions {
+
+    private final @NotNull PermissionTopicTree tree;
+    private final @NotNull PublishDecision[] publishDecisions;
+    private final int mask;
+
+    private CompiledPermissions(final @NotNull PermissionTopicTree tree, final int cacheSize) {
+        this.tree = tree;
+        this.publishDecisions = new PublishDecision[cacheSize];
+        this.mask = cacheSize - 1;
+    }
+
+    /**
+     * Compiles the permissions of a client if {@link InternalConfigurations#AUTH_COMPILED_PERMISSIONS_ENABLED} is set
+     * and the client has enough permissions.
+     *
+     * @param permissions the permissions in the order they are evaluated
+     * @return the compiled permissions or null if the permissions are checked one after the other
+     */
+    public static @Nullable CompiledPermissions compile(final @NotNull List<TopicPermission> permissions) {
+        if (!InternalConfigurations.AUTH_COMPILED_PERMISSIONS_ENABLED.get() ||
+                permissions.size() < InternalConfigurations.AUTH_COMPILED_PERMISSIONS_THRESHOLD) {
+            return null;
+        }
+        final PermissionTopicTree tree = PermissionTopicTree.of(permissions);
+        if (tree == null) {
+            return null;
+        }
+        return new CompiledPermissions(tree, InternalConfigurations.AUTH_PUBLISH_DECISION_CACHE_SIZE);
+    }
+
+    /**
+     * @return the first permission that implies the PUBLISH or null if no permission implies it
+     */
+    @Nullable TopicPermission publishPermission(
+            final @NotNull TokenizedTopic tokenizedTopic, final @NotNull QoS qos, final boolean retain) {
+
+        final String topic = tokenizedTopic.getTopic();
+        final int hash = topic.hashCode() * 31 + qos.ordinal() * 2 + (retain ? 1 : 0);
+        final int slot = (hash ^ (hash >>> 16)) & mask;
+
+        final PublishDecision decision = publishDecisions[slot];
+        final int index;
+        if (decision != null && decision.isFor(topic, qos, retain)) {
+            index = decision.permissionIndex;
+        } else {
+            index = tree.firstMatch(tokenizedTopic.getStrippedTopic(), tokenizedTopic.getLevels(),
+                    i -> DefaultPermissionsEvaluator.publishPropertiesImplied(tree.get(i), qos, retain));
+            publishDecisions[slot] = new PublishDecision(topic, qos, retain, index);
+        }
+        return index < 0 ? null : tree.get(index);
+    }
+
+    /**
+     * @return the first permission that implies the subscription or null if no permission implies it
+     */
+    @Nullable TopicPermission subscriptionPermission(
+            final @NotNull TokenizedTopic topicFilter, final @NotNull QoS qos, final boolean isShared,
+            final @Nullable String sharedGroup) {
+
+        final int index = tree.firstMatch(topicFilter.getStrippedTopic(), topicFilter.getLevels(),
+                i -> DefaultPermissionsEvaluator.subscriptionPropertiesImplied(tree.get(i), qos, isShared, sharedGroup));
+        return index < 0 ? null : tree.get(index);
+    }
+
+    @Immutable
+    private static class PublishDecision {
+
+        private final @NotNull String topic;
+        private final @NotNull QoS qos;
+        private final boolean retain;
+        private final int permissionIndex;
+
+        PublishDecision(final @NotNull String topic, final @NotNull QoS qos, final boolean retain, final int permissionIndex) {
+            this.topic = topic;
+            this.qos = qos;
+            this.retain = retain;
+            this.permissionIndex = permissionIndex;
+        }
+
+        boolean isFor(final @NotNull String topic, final @NotNull QoS qos, final boolean retain) {
+            return this.qos == qos && this.retain == retain && this.topic.equals(topic);
+        }
+    }
+}
@@ -22,12 +22,14 @@ import com.hivemq.extension.sdk.api.auth.parameter.TopicPermission;
 import com.hivemq.extension.sdk.api.packets.auth.DefaultAuthorizationBehaviour;
 import com.hivemq.extension.sdk.api.packets.auth.ModifiableDefaultPermissions;
 import com.hivemq.extensions.auth.parameter.InternalTopicPermission;
+import com.hivemq.extensions.packets.general.ModifiableDefaultPermissionsImpl;
 import com.hivemq.mqtt.message.QoS;
 import com.hivemq.mqtt.message.connect.MqttWillPublish;
 import com.hivemq.mqtt.message.publish.PUBLISH;
 import com.hivemq.mqtt.message.subscribe.Topic;
 import com.hivemq.mqtt.topic.InvalidTopicException;
 import com.hivemq.mqtt.topic.PermissionTopicMatcher;
+import com.hivemq.mqtt.topic.TokenizedTopic;
 import com.hivemq.util.Topics;
 import org.apache.commons.lang3.StringUtils;
 
@@ -44,35 +46,39 @@ public class DefaultPermissionsEvaluator {
     private static final PermissionTopicMatcher topicMatcher = new PermissionTopicMatcher();
 
     public static boolean checkWillPublish(@Nullable final ModifiableDefaultPermissions permissions, @NotNull final MqttWillPublish willPublish) {
-        return checkPublish(permissions, willPublish.getTopic(), willPublish.getQos(), willPublish.isRetain());
+        return checkPublish(permissions, TokenizedTopic.of(willPublish.getTopic()), willPublish.getQos(), willPublish.isRetain());
     }
 
     public static boolean checkPublish(@Nullable final ModifiableDefaultPermissions permissions, @NotNull final PUBLISH publish) {
-        return checkPublish(permissions, publish.getTopic(), publish.getQoS(), publish.isRetain());
+        return checkPublish(permissions, publish.getTokenizedTopic(), publish.getQoS(), publish.isRetain());
     }
 
-    private static boolean checkPublish(@Nullable final ModifiableDefaultPermissions permissions, @NotNull final String topic,
+    private static boolean checkPublish(@Nullable final ModifiableDefaultPermissions permissions, @NotNull final TokenizedTopic topic,
                                         @NotNull final QoS qos, final boolean retain) {
         if (permissions == null) {
             //no permissions set -> default to DENY
             return false;
         }
 
+        final CompiledPermissions compiledPermissions = getCompiledPermissions(permissions);
+        if (compiledPermissions != null) {
+            final TopicPermission topicPermission = compiledPermissions.publishPermission(topic, qos, retain);
+            if (topicPermission != null) {
+                return topicPermission.getType() == TopicPermission.PermissionType.ALLOW;
+            }
+            return permissions.getDefaultBehaviour() == DefaultAuthorizationBehaviour.ALLOW;
+        }
+
         final List<TopicPermission> topicPermissions = permissions.asList();
 
         if (topicPermissions.size() < 1) {
             return permissions.getDefaultBehaviour() == DefaultAuthorizationBehaviour.ALLOW;
         }
 
-        final String[] splitTopic = StringUtils.splitPreserveAllTokens(topic, "/");
-        final String stripedTopic;
-        if (topic.length() > 1) {
-            stripedTopic = StringUtils.stripEnd(topic, "/");
-        } else {
-            stripedTopic = topic;
-        }
+        final String[] splitTopic = topic.getLevels();
+        final String stripedTopic = topic.getStrippedTopic();
         for (final TopicPermission topicPermission : permissions.asList()) {
-            if (implied(topicPermission, stripedTopic, splitTopic, qos, TopicPermission.MqttActivity.PUBLISH, retain)) {
+            if (implied(topicPermission, stripedTopic, splitTopic, qos, retain)) {
                 return topicPermission.getType() == TopicPermission.PermissionType.ALLOW;
             }
         }
@@ -110,16 +116,22 @@ public class DefaultPermissionsEvaluator {
             isShared = false;
         }
 
-        final String[] splitTopic = StringUtils.splitPreserveAllTokens(topic, "/");
-        final String stripedTopic;
-        if (topic.length() > 1) {
-            stripedTopic = StringUtils.stripEnd(topic, "/");
-        } else {
-            stripedTopic = topic;
+        final TokenizedTopic tokenizedTopic = TokenizedTopic.of(topic);
+        final CompiledPermissions compiledPermissions = getCompiledPermissions(permissions);
+        if (compiledPermissions != null) {
+            final TopicPermission topicPermission =
+                    compiledPermissions.subscriptionPermission(tokenizedTopic, subscription.getQoS(), isShared, sharedGroup);
+            if (topicPermission != null) {
+                return topicPermission.getType() == TopicPermission.PermissionType.ALLOW;
+            }
+            return permissions.getDefaultBehaviour() == DefaultAuthorizationBehaviour.ALLOW;
         }
+
+        final String[] splitTopic = tokenizedTopic.getLevels();
+        final String stripedTopic = tokenizedTopic.getStrippedTopic();
         for (final TopicPermission topicPermission : permissions.asList()) {
 
-            if (implied(topicPermission, stripedTopic, splitTopic, subscription.getQoS(), TopicPermission.MqttActivity.SUBSCRIBE, isShared, sharedGroup)) {
+            if (implied(topicPermission, stripedTopic, splitTopic, subscription.getQoS(), isShared, sharedGroup)) {
                 return topicPermission.getType() == TopicPermission.PermissionType.ALLOW;
             }
         }
@@ -128,29 +140,50 @@ public class DefaultPermissionsEvaluator {
     }
 
     private static boolean implied(@NotNull final TopicPermission topicPermission, @NotNull final String stripedTopic,
-                                   @NotNull final String[] splitTopic, @NotNull final QoS messageQoS,
-                                   @NotNull final TopicPermission.MqttActivity activity, final boolean retain) {
+                                   @NotNull final String[] splitTopic, @NotNull final QoS messageQoS, final boolean retain) {
 
+        if (!publishPropertiesImplied(topicPermission, messageQoS, retain)) {
+            return false;
+        }
 
-        if (activity == TopicPermission.MqttActivity.PUBLISH) {
-            //retained
-            if (retain && (topicPermission.getPublishRetain() == TopicPermission.Retain.NOT_RETAINED)) {
-                return false;
-            }
+        //topic
+        return topicImplied(topicPermission, stripedTopic, splitTopic);
+    }
 
-            if (!retain && (topicPermission.getPublishRetain() == TopicPermission.Retain.RETAINED)) {
-                return false;
-            }
-        }
+    private static boolean implied(@NotNull final TopicPermission topicPermission, @NotNull final String stripedTopic, @NotNull final String[] splitTopic,
+                                   @NotNull final QoS messageQoS, final boolean isShared, @Nullable final String sharedGroup) {
 
-        return implied(topicPermission, stripedTopic, splitTopic, messageQoS, activity);
+        if (!subscriptionPropertiesImplied(topicPermission, messageQoS, isShared, sharedGroup)) {
+            return false;
+        }
 
+        //topic
+        return topicImplied(topicPermission, stripedTopic, splitTopic);
     }
 
-    private static boolean implied(@NotNull final TopicPermission topicPermission, @NotNull final String stripedTopic, @NotNull final String[] splitTopic,
-                                   @NotNull final QoS messageQoS, @NotNull final TopicPermission.MqttActivity activity, @NotNull final boolean isShared,
-                                   @Nullable final String sharedGroup) {
+    /**
+     * Checks everything except the topic of a permission for a PUBLISH.
+     */
+    static boolean publishPropertiesImplied(@NotNull final TopicPermission topicPermission, @NotNull final QoS messageQoS,
+                                            final boolean retain) {
 
+        //retained
+        if (retain && (topicPermission.getPublishRetain() == TopicPermission.Retain.NOT_RETAINED)) {
+            return false;
+        }
+
+        if (!retain && (topicPermission.getPublishRetain() == TopicPermission.Retain.RETAINED)) {
+            return false;
+        }
+
+        return propertiesImplied(topicPermission, messageQoS, TopicPermission.MqttActivity.PUBLISH);
+    }
+
+    /**
+     * Checks everything except the topic of a permission for a subscription.
+     */
+    static boolean subscriptionPropertiesImplied(@NotNull final TopicPermission topicPermission, @NotNull final QoS messageQoS,
+                                                 final boolean isShared, @Nullable final String sharedGroup) {
 
         if (topicPermission.getSharedSubscription() == TopicPermission.SharedSubscription.NOT_SHARED && isShared) {
             return false;
@@ -164,12 +197,11 @@ public class DefaultPermissionsEvaluator {
             return false;
         }
 
-        return implied(topicPermission, stripedTopic, splitTopic, messageQoS, activity);
+        return propertiesImplied(topicPermission, messageQoS, TopicPermission.MqttActivity.SUBSCRIBE);
     }
 
-    private static boolean implied(@NotNull final TopicPermission topicPermission, @NotNull final String stripedTopic, @NotNull final String[] splitTopic,
-                                   @NotNull final QoS messageQoS, @NotNull final TopicPermission.MqttActivity activity) {
-
+    private static boolean propertiesImplied(@NotNull final TopicPermission topicPermission, @NotNull final QoS messageQoS,
+                                             @NotNull final TopicPermission.MqttActivity activity) {
 
         //activity
         if (topicPermission.getActivity() != TopicPermission.MqttActivity.ALL && topicPermission.getActivity() != activity) {
@@ -177,12 +209,15 @@ public class DefaultPermissionsEvaluator {
         }
 
         //qos
-        if (!qosImplied(topicPermission, messageQoS)) {
-            return false;
-        }
+        return qosImplied(topicPermission, messageQoS);
+    }
 
-        //topic
-        return topicImplied(topicPermission, stripedTopic, splitTopic);
+    @Nullable
+    private static CompiledPermissions getCompiledPermissions(@NotNull final ModifiableDefaultPermissions permissions) {
+        if (permissions instanceof ModifiableDefaultPermissionsImpl) {
+            return ((ModifiableDefaultPermissionsImpl) permissions).getCompiledPermissions();
+        }
+        return null;
     }
 
     private static boolean qosImplied(@NotNull final TopicPermission topicPermission, @NotNull final QoS qos) {
@@ -21,6 +21,7 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.hivemq.annotations.NotNull;
 import com.hivemq.annotations.Nullable;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.configuration.service.MqttConfigurationService;
 import com.hivemq.extension.sdk.api.packets.auth.DefaultAuthorizationBehaviour;
 import com.hivemq.extension.sdk.api.packets.auth.ModifiableDefaultPermissions;
@@ -47,8 +48,8 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.concurrent.ExecutorService;
 
-import static com.hivemq.util.ChannelAttributes.MQTT_VERSION;
 
 /**
  * This Service is responsible for PUBLISH message processing after interception and authorisation.
@@ -66,29 +67,32 @@ public class IncomingPublishService {
     private final @NotNull EventLog eventLog;
     private final @NotNull MqttConfigurationService mqttConfigurationService;
     private final @NotNull Mqtt5ServerDisconnector mqtt5ServerDisconnector;
+    private final @NotNull PublishProcessingExecutor publishProcessingExecutor;
 
     @Inject
     IncomingPublishService(final @NotNull InternalPublishService publishService,
                            final @NotNull EventLog eventLog,
                            final @NotNull MqttConfigurationService mqttConfigurationService,
-                           final @NotNull Mqtt5ServerDisconnector mqtt5ServerDisconnector) {
+                           final @NotNull Mqtt5ServerDisconnector mqtt5ServerDisconnector,
+                           final @NotNull PublishProcessingExecutor publishProcessingExecutor) {
 
         this.publishService = publishService;
         this.eventLog = eventLog;
         this.mqttConfigurationService = mqttConfigurationService;
         this.mqtt5ServerDisconnector = mqtt5ServerDisconnector;
+        this.publishProcessingExecutor = publishProcessingExecutor;
     }
 
     public void processPublish(@NotNull final ChannelHandlerContext ctx,
                                @NotNull final PUBLISH publish,
                                @Nullable final PublishAuthorizerResult authorizerResult) {
 
-        final ProtocolVersion protocolVersion = ctx.channel().attr(MQTT_VERSION).get();
+        final ProtocolVersion protocolVersion = ClientConnection.of(ctx.channel()).getProtocolVersion();
 
         final int maxQos = mqttConfigurationService.maximumQos().getQosNumber();
         final int qos = publish.getQoS().getQosNumber();
         if (qos > maxQos) {
-            if (ProtocolVersion.MQTTv5 == ctx.channel().attr(ChannelAttributes.MQTT_VERSION).get()) {
+            if (ProtocolVersion.MQTTv5 == ClientConnection.of(ctx.channel()).getProtocolVersion()) {
                 // We must send a DISCONNECT with reason protocol error in this case
 
                 final String clientId = ChannelUtils.getClientId(ctx.channel());
@@ -176,7 +180,7 @@ public class IncomingPublishService {
                 + publish.getQoS().getQosNumber() + "' and retain '" + publish.isRetain() + "'";
 
         //MQTT 3.x.x -> disconnect (without DISCONNECT packet)
-        if (ctx.channel().attr(ChannelAttributes.MQTT_VERSION).get() != ProtocolVersion.MQTTv5) {
+        if (ClientConnection.of(ctx.channel()).getProtocolVersion() != ProtocolVersion.MQTTv5) {
 
             final String clientId = ChannelUtils.getClientId(ctx.channel());
 
@@ -220,8 +224,19 @@ public class IncomingPublishService {
 
     private void publishMessage(final ChannelHandlerContext ctx, @NotNull final PUBLISH publish) {
 
+        if (publishProcessingExecutor.isEnabled()) {
+            //the PUBLISH is matched and distributed off the event loop, the ack is still sent by the event loop
+            publishProcessingExecutor.execute(ctx.channel(),
+                    () -> publishMessage(ctx, publish, publishProcessingExecutor.executorService()));
+        } else {
+            publishMessage(ctx, publish, ctx.channel().eventLoop());
+        }
+    }
+
+    private void publishMessage(final ChannelHandlerContext ctx, @NotNull final PUBLISH publish, @NotNull final ExecutorService executorService) {
+
         final String clientId = ChannelUtils.getClientId(ctx.channel());
-        final ListenableFuture<PublishReturnCode> publishFinishedFuture = publishService.publish(publish, ctx.channel().eventLoop(), clientId);
+        final ListenableFuture<PublishReturnCode> publishFinishedFuture = publishService.publish(publish, executorService, clientId);
         Futures.addCallback(publishFinishedFuture, new FutureCallback<>() {
             @Override
             public void onSuccess(@Nullable final PublishReturnCode result) {
@@ -263,9 +278,9 @@ public class IncomingPublishService {
 
     private boolean isMessageSizeAllowed(final ChannelHandlerContext ctx, @NotNull final PUBLISH publish) {
 
-        final Long maxPublishSize = ctx.channel().attr(ChannelAttributes.MAX_PACKET_SIZE_SEND).get();
+        final long maxPublishSize = ClientConnection.of(ctx.channel()).getMaxPacketSizeSend();
 
-        if (maxPublishSize != null && publish.getPayload() != null && maxPublishSize < publish.getPayload().length) {
+        if (publish.getPayload() != null && maxPublishSize < publish.getPayload().length) {
             if (log.isDebugEnabled()) {
 
                 final String clientId = ChannelUtils.getClientId(ctx.channel());
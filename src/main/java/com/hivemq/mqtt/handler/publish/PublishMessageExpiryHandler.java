@@ -17,10 +17,10 @@
 package com.hivemq.mqtt.handler.publish;
 
 import com.hivemq.annotations.NotNull;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.message.ProtocolVersion;
 import com.hivemq.mqtt.message.QoS;
 import com.hivemq.mqtt.message.publish.PUBLISH;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelOutboundHandlerAdapter;
@@ -45,7 +45,7 @@ public class PublishMessageExpiryHandler extends ChannelOutboundHandlerAdapter {
     @Override
     public void write(final @NotNull ChannelHandlerContext ctx, final @NotNull Object msg, final @NotNull ChannelPromise promise) throws Exception {
 
-        final ProtocolVersion version = ctx.channel().attr(ChannelAttributes.MQTT_VERSION).get();
+        final ProtocolVersion version = ClientConnection.of(ctx.channel()).getProtocolVersion();
 
         if (msg instanceof PUBLISH && ProtocolVersion.MQTTv5 == version) {
             checkAndSetPublishExpiry(ctx, (PUBLISH) msg);
@@ -61,7 +61,7 @@ public class PublishMessageExpiryHandler extends ChannelOutboundHandlerAdapter {
             final long remainingInterval = Math.max(0, message.getMessageExpiryInterval() - waitingInSeconds);
 
             if (remainingInterval == 0 && !(message.getQoS() == QoS.EXACTLY_ONCE && message.isDuplicateDelivery())) {
-                final String clientIdFromChannel = ctx.channel().attr(ChannelAttributes.CLIENT_ID).get();
+                final String clientIdFromChannel = ClientConnection.of(ctx.channel()).getClientId();
                 final String clientId = clientIdFromChannel != null ? clientIdFromChannel : "UNKNOWN";
                 log.trace("Publish message with topic '{}' and qos '{}' for client '{}' expired after {} seconds.", message.getTopic(), message.getQoS().getQosNumber(), clientId, waitingInSeconds);
             }
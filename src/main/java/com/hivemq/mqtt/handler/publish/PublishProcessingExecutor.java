@@ -0,0 +1,278 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.mqtt.handler.publish;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.hivemq.annotations.NotNull;
+import com.hivemq.annotations.Nullable;
+import com.hivemq.bootstrap.ClientConnection;
+import com.hivemq.bootstrap.ioc.lazysingleton.LazySingleton;
+import com.hivemq.common.shutdown.HiveMQShutdownHook;
+import com.hivemq.common.shutdown.ShutdownHooks;
+import com.hivemq.metrics.HiveMQMetrics;
+import com.hivemq.util.Exceptions;
+import io.netty.channel.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.hivemq.configuration.service.InternalConfigurations.*;
+
+/**
+ * Processes incoming PUBLISHes on a dedicated work stealing pool, so matching the subscribers, storing the payload and
+ * queueing the PUBLISH for a large amount of subscribers does not block the event loop of the publisher and all other
+ * channels of that event loop.
+ * <p>
+ * Every publisher has its own lane, which processes the PUBLISHes of the publisher one after the other in the order
+ * they were read. If too many PUBLISHes of a publisher are queued, reading from the publisher is paused until half of
+ * them are processed.
+ * <p>
+ * The threads are only started with the first PUBLISH and are stopped on shutdown, after the queued PUBLISHes are
+ * processed.
+ */
+@LazySingleton
+public class PublishProcessingExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(PublishProcessingExecutor.class);
+
+    // the amount of PUBLISHes a lane processes before it gives up its thread to other lanes
+    private static final int LANE_BATCH_SIZE = 64;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final boolean enabled;
+    private final int threads;
+    private final int maxQueued;
+    private final int resumeQueued;
+
+    private final @NotNull ShutdownHooks shutdownHooks;
+    private final @NotNull Counter readsPausedCounter;
+    private final @NotNull AtomicLong queued = new AtomicLong();
+
+    private volatile @Nullable ForkJoinPool pool;
+
+    @Inject
+    public PublishProcessingExecutor(final @NotNull MetricRegistry metricRegistry, final @NotNull ShutdownHooks shutdownHooks) {
+        this(metricRegistry, shutdownHooks, MQTT_STAGED_PUBLISH_PROCESSING_ENABLED.get(),
+                MQTT_STAGED_PUBLISH_PROCESSING_THREADS.get(), MQTT_STAGED_PUBLISH_PROCESSING_MAX_QUEUED_PER_CLIENT);
+    }
+
+    @VisibleForTesting
+    PublishProcessingExecutor(
+            final @NotNull MetricRegistry metricRegistry,
+            final @NotNull ShutdownHooks shutdownHooks,
+            final boolean enabled,
+            final int threads,
+            final int maxQueued) {
+
+        this.shutdownHooks = shutdownHooks;
+        this.enabled = enabled;
+        this.threads = Math.max(1, threads);
+        this.maxQueued = Math.max(1, maxQueued);
+        this.resumeQueued = this.maxQueued / 2;
+
+        readsPausedCounter = metricRegistry.counter(HiveMQMetrics.STAGED_PUBLISH_PROCESSING_READS_PAUSED_COUNT.name());
+        metricRegistry.register(HiveMQMetrics.STAGED_PUBLISH_PROCESSING_QUEUED_CURRENT.name(), (Gauge<Number>) queued::get);
+    }
+
+    /**
+     * @return true if PUBLISHes must be processed with {@link #execute(Channel, Runnable)} instead of the event loop
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues the processing of a PUBLISH in the lane of the publisher.
+     *
+     * @param channel the channel of the publisher
+     * @param task    the processing of the PUBLISH
+     */
+    public void execute(final @NotNull Channel channel, final @NotNull Runnable task) {
+        getLane(channel).submit(task);
+    }
+
+    /**
+     * @return the pool that processes the PUBLISHes, which is also used for the callbacks of the processing
+     */
+    public @NotNull ExecutorService executorService() {
+        ForkJoinPool pool = this.pool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = this.pool;
+                if (pool == null) {
+                    pool = new ForkJoinPool(threads, forkJoinPool -> {
+                        final ForkJoinWorkerThread thread =
+                                ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                        thread.setName("publish-processing-" + thread.getPoolIndex());
+                        return thread;
+                    }, null, true);
+                    shutdownHooks.add(new PublishProcessingShutdownHook(pool));
+                    this.pool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    private @NotNull PublisherLane getLane(final @NotNull Channel channel) {
+        final ClientConnection clientConnection = ClientConnection.of(channel);
+        PublisherLane lane = clientConnection.getPublishProcessingLane();
+        if (lane != null) {
+            return lane;
+        }
+        synchronized (clientConnection) {
+            lane = clientConnection.getPublishProcessingLane();
+            if (lane == null) {
+                lane = new PublisherLane(channel);
+                clientConnection.setPublishProcessingLane(lane);
+            }
+        }
+        return lane;
+    }
+
+    /**
+     * The PUBLISHes of a single publisher that wait to be processed.
+     * <p>
+     * At most one thread of the pool runs a lane at the same time. Reading from the channel is only paused and resumed
+     * by the event loop of the channel, which always decides on the current amount of queued PUBLISHes.
+     */
+    public class PublisherLane implements Runnable {
+
+        private final @NotNull Channel channel;
+        private final @NotNull Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final @NotNull AtomicInteger queuedTasks = new AtomicInteger();
+        private final @NotNull AtomicBoolean scheduled = new AtomicBoolean();
+
+        // only accessed by the event loop of the channel
+        private boolean readsPaused;
+
+        private PublisherLane(final @NotNull Channel channel) {
+            this.channel = channel;
+        }
+
+        void submit(final @NotNull Runnable task) {
+            tasks.add(task);
+            queued.incrementAndGet();
+            if (queuedTasks.incrementAndGet() >= maxQueued) {
+                updateReads();
+            }
+            schedule();
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int i = 0; i < LANE_BATCH_SIZE; i++) {
+                    final Runnable task = tasks.poll();
+                    if (task == null) {
+                        break;
+                    }
+                    try {
+                        task.run();
+                    } catch (final Throwable t) {
+                        Exceptions.rethrowError("Exception during staged publish processing.", t);
+                    } finally {
+                        queued.decrementAndGet();
+                        // tasks are removed one by one, so exactly one task crosses the threshold
+                        if (queuedTasks.decrementAndGet() == resumeQueued) {
+                            channel.eventLoop().execute(this::updateReads);
+                        }
+                    }
+                }
+            } finally {
+                scheduled.set(false);
+                if (!tasks.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                executorService().execute(this);
+            }
+        }
+
+        private void updateReads() {
+            if (!channel.eventLoop().inEventLoop()) {
+                channel.eventLoop().execute(this::updateReads);
+                return;
+            }
+            final int current = queuedTasks.get();
+            if (!readsPaused && current >= maxQueued) {
+                readsPaused = true;
+                readsPausedCounter.inc();
+                ClientConnection.suspendReads(channel, ClientConnection.READS_SUSPENDED_BY_PUBLISH_LANE);
+            } else if (readsPaused && current <= resumeQueued) {
+                readsPaused = false;
+                ClientConnection.resumeReads(channel, ClientConnection.READS_SUSPENDED_BY_PUBLISH_LANE);
+            }
+        }
+    }
+
+    private static class PublishProcessingShutdownHook extends HiveMQShutdownHook {
+
+        private final @NotNull ForkJoinPool pool;
+
+        PublishProcessingShutdownHook(final @NotNull ForkJoinPool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public @NotNull String name() {
+            return "Publish Processing Shutdown Hook";
+        }
+
+        @Override
+        public @NotNull Priority priority() {
+            // after the listeners are closed, so no PUBLISHes are added anymore
+            return Priority.LOW;
+        }
+
+        @Override
+        public boolean isAsynchronous() {
+            return false;
+        }
+
+        @Override
+        public void run() {
+            // the queued PUBLISHes are processed, so they are queued for their subscribers before the persistences close
+            pool.shutdown();
+            try {
+                if (!pool.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    log.warn("Not all incoming PUBLISHes were processed before the shutdown.");
+                    pool.shutdownNow();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pool.shutdownNow();
+            }
+        }
+    }
+}
@@ -16,12 +16,12 @@
 
 package com.hivemq.mqtt.handler.publish;
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.message.MessageIDPools;
 import com.hivemq.mqtt.message.MessageWithID;
 import com.hivemq.mqtt.message.pool.MessageIDPool;
 import com.hivemq.mqtt.message.puback.PUBACK;
 import com.hivemq.mqtt.message.pubcomp.PUBCOMP;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
@@ -63,7 +63,7 @@ public class ReturnMessageIdToPoolHandler extends ChannelInboundHandlerAdapter {
             //Such a message ID must never be null, but better be safe than sorry
             if (messageId > 0) {
 
-                final String client = ctx.channel().attr(ChannelAttributes.CLIENT_ID).get();
+                final String client = ClientConnection.of(ctx.channel()).getClientId();
 
                 if (client != null) {
 
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.mqtt.handler.publish;
+
+import com.hivemq.annotations.NotNull;
+import com.hivemq.annotations.Nullable;
+import com.hivemq.throttling.ClientTrafficShapingHandler;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the writability of the channel of a single client. When the channel is writable again, the queues of the
+ * client are polled if a poll was skipped. A client whose channel stays not writable for longer than the disconnect
+ * timeout is disconnected.
+ * <p>
+ * Only the back-pressure of the socket counts, a channel that is not writable because the traffic of the client is
+ * shaped by the {@link ClientTrafficShapingHandler} is treated as writable. A poll that was skipped while the traffic
+ * was shaped is still resumed once the channel is writable.
+ * <p>
+ * The handler is only used by the event loop of the channel.
+ */
+public class SlowConsumerHandler extends ChannelInboundHandlerAdapter {
+
+    private final @NotNull SlowConsumerTracker tracker;
+    private final long disconnectTimeoutMillis;
+
+    private boolean notWritable;
+    private long notWritableSince;
+    private @Nullable ScheduledFuture<?> disconnectFuture;
+
+    SlowConsumerHandler(final @NotNull SlowConsumerTracker tracker, final long disconnectTimeoutMillis) {
+        this.tracker = tracker;
+        this.disconnectTimeoutMillis = disconnectTimeoutMillis;
+    }
+
+    @Override
+    public void channelWritabilityChanged(final @NotNull ChannelHandlerContext ctx) throws Exception {
+        if (socketWritable(ctx.channel())) {
+            writable(ctx);
+        } else {
+            notWritable(ctx);
+        }
+        if (ctx.channel().isWritable()) {
+            // polling is also suspended while the traffic is shaped, which does not count as not writable
+            tracker.resumePolling(ctx.channel());
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void channelInactive(final @NotNull ChannelHandlerContext ctx) throws Exception {
+        if (notWritable) {
+            notWritable = false;
+            cancelDisconnect();
+            tracker.inactive(System.nanoTime() - notWritableSince);
+        }
+        super.channelInactive(ctx);
+    }
+
+    private void notWritable(final @NotNull ChannelHandlerContext ctx) {
+        if (notWritable || !ctx.channel().isActive()) {
+            return;
+        }
+        notWritable = true;
+        notWritableSince = System.nanoTime();
+        tracker.notWritable();
+        if (disconnectTimeoutMillis > 0) {
+            disconnectFuture = ctx.executor().schedule(() -> {
+                disconnectFuture = null;
+                if (notWritable && ctx.channel().isActive()) {
+                    tracker.disconnect(ctx.channel());
+                }
+            }, disconnectTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void writable(final @NotNull ChannelHandlerContext ctx) {
+        if (!notWritable) {
+            return;
+        }
+        notWritable = false;
+        cancelDisconnect();
+        tracker.writable(System.nanoTime() - notWritableSince);
+    }
+
+    private static boolean socketWritable(final @NotNull Channel channel) {
+        if (channel.isWritable()) {
+            return true;
+        }
+        final ChannelOutboundBuffer outboundBuffer = channel.unsafe().outboundBuffer();
+        if (outboundBuffer == null ||
+                outboundBuffer.getUserDefinedWritability(ClientTrafficShapingHandler.WRITABILITY_INDEX)) {
+            return false;
+        }
+        // the delayed messages of the traffic shaping are not in the outbound buffer
+        return outboundBuffer.totalPendingWriteBytes() <= channel.config().getWriteBufferHighWaterMark();
+    }
+
+    private void cancelDisconnect() {
+        if (disconnectFuture != null) {
+            disconnectFuture.cancel(false);
+            disconnectFuture = null;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.mqtt.handler.publish;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.hivemq.annotations.NotNull;
+import com.hivemq.bootstrap.ClientConnection;
+import com.hivemq.bootstrap.ioc.lazysingleton.LazySingleton;
+import com.hivemq.configuration.service.InternalConfigurations;
+import com.hivemq.logging.EventLog;
+import com.hivemq.metrics.HiveMQMetrics;
+import com.hivemq.mqtt.services.PublishPollService;
+import com.hivemq.util.ChannelUtils;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.group.ChannelGroup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creates the {@link SlowConsumerHandler}s of the clients and exposes the metrics of the outbound buffers.
+ * <p>
+ * While the channel of a client is not writable, its queues are not polled (see
+ * {@link InternalConfigurations#WRITABILITY_DRIVEN_POLLING_ENABLED}) and the backlog stays in the queues. A client
+ * whose channel stays not writable for longer than {@link InternalConfigurations#SLOW_CONSUMER_DISCONNECT_TIMEOUT_MILLIS}
+ * is disconnected.
+ */
+@LazySingleton
+public class SlowConsumerTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowConsumerTracker.class);
+
+    private final @NotNull ChannelGroup channelGroup;
+    private final @NotNull Provider<PublishPollService> publishPollServiceProvider;
+    private final @NotNull EventLog eventLog;
+    private final long disconnectTimeoutMillis;
+
+    private final @NotNull Timer notWritableTimer;
+    private final @NotNull Counter disconnectedCounter;
+    private final @NotNull AtomicLong notWritableClients = new AtomicLong();
+
+    @Inject
+    public SlowConsumerTracker(
+            final @NotNull MetricRegistry metricRegistry,
+            final @NotNull ChannelGroup channelGroup,
+            final @NotNull Provider<PublishPollService> publishPollServiceProvider,
+            final @NotNull EventLog eventLog) {
+
+        this(metricRegistry, channelGroup, publishPollServiceProvider, eventLog,
+                InternalConfigurations.SLOW_CONSUMER_DISCONNECT_TIMEOUT_MILLIS.get());
+    }
+
+    @VisibleForTesting
+    SlowConsumerTracker(
+            final @NotNull MetricRegistry metricRegistry,
+            final @NotNull ChannelGroup channelGroup,
+            final @NotNull Provider<PublishPollService> publishPollServiceProvider,
+            final @NotNull EventLog eventLog,
+            final long disconnectTimeoutMillis) {
+
+        this.channelGroup = channelGroup;
+        this.publishPollServiceProvider = publishPollServiceProvider;
+        this.eventLog = eventLog;
+        this.disconnectTimeoutMillis = disconnectTimeoutMillis;
+
+        notWritableTimer = metricRegistry.timer(HiveMQMetrics.SLOW_CONSUMER_NOT_WRITABLE_TIME.name());
+        disconnectedCounter = metricRegistry.counter(HiveMQMetrics.SLOW_CONSUMER_DISCONNECTED_COUNT.name());
+        metricRegistry.register(HiveMQMetrics.SLOW_CONSUMER_NOT_WRITABLE_CLIENTS_CURRENT.name(),
+                (Gauge<Number>) notWritableClients::get);
+        metricRegistry.register(HiveMQMetrics.OUTBOUND_BUFFER_BYTES_CURRENT.name(),
+                (Gauge<Number>) this::outboundBufferBytes);
+        metricRegistry.register(HiveMQMetrics.OUTBOUND_BUFFER_MAX_CLIENT_BYTES_CURRENT.name(),
+                (Gauge<Number>) this::maxClientOutboundBufferBytes);
+    }
+
+    /**
+     * @return a new handler for a single channel
+     */
+    public @NotNull SlowConsumerHandler newHandler() {
+        return new SlowConsumerHandler(this, disconnectTimeoutMillis);
+    }
+
+    void notWritable() {
+        notWritableClients.incrementAndGet();
+    }
+
+    void writable(final long notWritableNanos) {
+        notWritableClients.decrementAndGet();
+        notWritableTimer.update(notWritableNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Polls the queues of the client again if a poll was skipped while its channel was not writable.
+     */
+    void resumePolling(final @NotNull Channel channel) {
+        final ClientConnection clientConnection = ClientConnection.of(channel);
+        if (!clientConnection.isPollingSuspended()) {
+            return;
+        }
+        clientConnection.setPollingSuspended(false);
+        final String clientId = ClientConnection.of(channel).getClientId();
+        if (clientId == null || ChannelUtils.messagesInFlight(channel)) {
+            return;
+        }
+        publishPollServiceProvider.get().pollMessages(clientId, channel);
+    }
+
+    void inactive(final long notWritableNanos) {
+        notWritableClients.decrementAndGet();
+        notWritableTimer.update(notWritableNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void disconnect(final @NotNull Channel channel) {
+        disconnectedCounter.inc();
+        final String clientId = ClientConnection.of(channel).getClientId();
+        log.debug("Client '{}' (IP: {}) was not writable for more than {} ms. Disconnecting client",
+                clientId, ChannelUtils.getChannelIP(channel).or("UNKNOWN"), disconnectTimeoutMillis);
+        eventLog.clientWasDisconnected(channel, "Channel was not writable for more than " + disconnectTimeoutMillis + " ms");
+        channel.close();
+    }
+
+    private long outboundBufferBytes() {
+        long bytes = 0;
+        for (final Channel channel : channelGroup) {
+            bytes += pendingBytes(channel);
+        }
+        return bytes;
+    }
+
+    private long maxClientOutboundBufferBytes() {
+        long max = 0;
+        for (final Channel channel : channelGroup) {
+            max = Math.max(max, pendingBytes(channel));
+        }
+        return max;
+    }
+
+    private static long pendingBytes(final @NotNull Channel channel) {
+        final ChannelOutboundBuffer outboundBuffer = channel.unsafe().outboundBuffer();
+        return outboundBuffer == null ? 0 : outboundBuffer.totalPendingWriteBytes();
+    }
+}
@@ -17,6 +17,7 @@
 package com.hivemq.mqtt.handler.publish.qos;
 
 import com.hivemq.annotations.Immutable;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.message.MessageWithID;
 import com.hivemq.mqtt.message.puback.PUBACK;
 import com.hivemq.mqtt.message.pubcomp.PUBCOMP;
@@ -76,7 +77,7 @@ public class QoSReceiverHandler extends ChannelDuplexHandler {
 
         if (msg instanceof PUBACK) {
             final PUBACK puback = (PUBACK) msg;
-            final String client = ctx.channel().attr(ChannelAttributes.CLIENT_ID).get();
+            final String client = ClientConnection.of(ctx.channel()).getClientId();
             final int messageId = puback.getPacketIdentifier();
             persistence.addOrReplace(client, messageId, puback);
             promise.addListener(new PUBLISHFlowCompleteListener(messageId, client, qos1And2AlreadySentMap, persistence));
@@ -96,7 +97,7 @@ public class QoSReceiverHandler extends ChannelDuplexHandler {
             // QoS 1 or 2 duplicate delivery handling
             default:
                 UNACKNOWLEDGED_PUBLISHES_COUNTER.incrementAndGet();
-                final String client = ctx.channel().attr(ChannelAttributes.CLIENT_ID).get();
+                final String client = ClientConnection.of(ctx.channel()).getClientId();
                 final int messageId = publish.getPacketIdentifier();
                 final MessageWithID savedMessage = persistence.get(client, messageId);
 
@@ -142,7 +143,7 @@ public class QoSReceiverHandler extends ChannelDuplexHandler {
     }
 
     private void handlePubrel(final ChannelHandlerContext ctx, final PUBREL pubrel) {
-        final String client = ctx.channel().attr(ChannelAttributes.CLIENT_ID).get();
+        final String client = ClientConnection.of(ctx.channel()).getClientId();
 
         final int messageId = pubrel.getPacketIdentifier();
 
@@ -159,7 +160,7 @@ public class QoSReceiverHandler extends ChannelDuplexHandler {
 
         //remove incoming message flow for not persisted client
         if (sessionExpiryInterval != null && sessionExpiryInterval == SESSION_EXPIRE_ON_DISCONNECT) {
-            final String clientId = ctx.channel().attr(ChannelAttributes.CLIENT_ID).get();
+            final String clientId = ClientConnection.of(ctx.channel()).getClientId();
             if (clientId != null) {   //Just to be save. The client id should never be null, if the persistent session is not null.
                 persistence.delete(clientId);
             }
@@ -18,6 +18,7 @@ package com.hivemq.mqtt.handler.publish.qos;
 
 import com.google.common.util.concurrent.ListenableFuture;
 import com.hivemq.annotations.NotNull;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.message.connect.CONNECT;
 import com.hivemq.mqtt.message.puback.PUBACK;
 import com.hivemq.mqtt.message.pubcomp.PUBCOMP;
@@ -25,7 +26,6 @@ import com.hivemq.mqtt.message.pubrec.PUBREC;
 import com.hivemq.mqtt.message.pubrel.PUBREL;
 import com.hivemq.mqtt.services.PublishPollService;
 import com.hivemq.persistence.util.FutureUtils;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.channel.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,7 +52,7 @@ public class QoSSenderHandler extends ChannelDuplexHandler {
     @Override
     public void channelRead(final ChannelHandlerContext ctx, @NotNull final Object msg) throws Exception {
 
-        final String client = ctx.channel().attr(ChannelAttributes.CLIENT_ID).get();
+        final String client = ClientConnection.of(ctx.channel()).getClientId();
 
         if (msg instanceof CONNECT) {
 
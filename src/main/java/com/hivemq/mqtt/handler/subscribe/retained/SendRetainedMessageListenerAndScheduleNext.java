@@ -20,9 +20,9 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.hivemq.annotations.NotNull;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.message.pool.exception.NoMessageIdAvailableException;
 import com.hivemq.mqtt.message.subscribe.Topic;
-import com.hivemq.util.ChannelAttributes;
 import com.hivemq.util.Exceptions;
 import io.netty.channel.Channel;
 import org.slf4j.Logger;
@@ -107,7 +107,7 @@ public class SendRetainedMessageListenerAndScheduleNext implements FutureCallbac
                 channel.eventLoop().schedule(() -> {
                     if (log.isTraceEnabled()) {
                         log.trace("Retrying retained message for client '{}' on topic '{}'.",
-                                channel.attr(ChannelAttributes.CLIENT_ID).get(), subscription.getTopic());
+                                ClientConnection.of(channel).getClientId(), subscription.getTopic());
                     }
                     send();
                 }, 1, TimeUnit.SECONDS);
@@ -115,7 +115,7 @@ public class SendRetainedMessageListenerAndScheduleNext implements FutureCallbac
 
         } else {
             Exceptions.rethrowError("Unable to send retained message for subscription " + subscription.getTopic() +
-                    " to client " + channel.attr(ChannelAttributes.CLIENT_ID).get() + ".", throwable);
+                    " to client " + ClientConnection.of(channel).getClientId() + ".", throwable);
             channel.disconnect();
         }
     }
@@ -21,9 +21,9 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.hivemq.annotations.NotNull;
 import com.hivemq.annotations.Nullable;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.message.pool.exception.NoMessageIdAvailableException;
 import com.hivemq.mqtt.message.subscribe.Topic;
-import com.hivemq.util.ChannelAttributes;
 import com.hivemq.util.Exceptions;
 import io.netty.channel.Channel;
 import org.slf4j.Logger;
@@ -71,7 +71,7 @@ public class SendRetainedMessageResultListener implements FutureCallback<Void> {
             channel.eventLoop().schedule(() -> {
                 if (log.isTraceEnabled()) {
                     log.trace("Retrying retained message for client '{}' on topic '{}'.",
-                            channel.attr(ChannelAttributes.CLIENT_ID).get(), subscription.getTopic());
+                            ClientConnection.of(channel).getClientId(), subscription.getTopic());
                 }
                 final ListenableFuture<Void> sentFuture =
                         retainedMessagesSender.writeRetainedMessages(channel, subscription);
@@ -80,7 +80,7 @@ public class SendRetainedMessageResultListener implements FutureCallback<Void> {
 
         } else {
             Exceptions.rethrowError("Unable to send retained message on topic " + subscription.getTopic() +
-                    " to client " + channel.attr(ChannelAttributes.CLIENT_ID).get() + ".", throwable);
+                    " to client " + ClientConnection.of(channel).getClientId() + ".", throwable);
         }
     }
 }
\ No newline at end of file
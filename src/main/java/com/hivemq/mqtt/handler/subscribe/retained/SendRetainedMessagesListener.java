@@ -21,10 +21,10 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.hivemq.annotations.NotNull;
 import com.hivemq.annotations.Nullable;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.message.subscribe.Topic;
 import com.hivemq.persistence.clientsession.callback.SubscriptionResult;
 import com.hivemq.persistence.retained.RetainedMessagePersistence;
-import com.hivemq.util.ChannelAttributes;
 import com.hivemq.util.ChannelUtils;
 import com.hivemq.util.Exceptions;
 import io.netty.channel.Channel;
@@ -193,7 +193,7 @@ public class SendRetainedMessagesListener implements ChannelFutureListener {
             //Attention, this set is immutable, so we need a fresh mutable collection
             final Queue<String> topics = new ConcurrentLinkedQueue<>(retainedMessageTopics);
 
-            final Integer clientReceiveMaximum = channel.attr(ChannelAttributes.CLIENT_RECEIVE_MAXIMUM).get();
+            final Integer clientReceiveMaximum = ClientConnection.of(channel).getClientReceiveMaximum();
 
             int concurrentMessages = clientReceiveMaximum == null ? CONCURRENT_MESSAGES :
                     Math.min(clientReceiveMaximum, CONCURRENT_MESSAGES);
@@ -28,6 +28,7 @@ import com.hivemq.mqtt.message.QoS;
 import com.hivemq.mqtt.message.mqtt5.Mqtt5UserProperties;
 import com.hivemq.mqtt.message.mqtt5.MqttMessageWithUserProperties;
 import com.hivemq.mqtt.message.mqtt5.MqttUserProperty;
+import com.hivemq.mqtt.topic.TokenizedTopic;
 import com.hivemq.persistence.payload.PublishPayloadPersistence;
 
 import java.util.Arrays;
@@ -52,21 +53,16 @@ public class PUBLISH extends MqttMessageWithUserProperties implements Mqtt3PUBLI
     private static final AtomicLong PUBLISH_COUNTER = new AtomicLong(1);
     protected long timestamp;
 
+    // the fields that are the same for all copies of a PUBLISH, e.g. for every subscriber it is delivered to
+    private final @NotNull Body body;
+
     private @Nullable byte[] payload;
     private boolean duplicateDelivery;
-    private final @NotNull String topic;
     private final boolean retain;
     private final @NotNull QoS qoS;
 
     private long messageExpiryInterval;
 
-    private final long publishId;
-    private final @NotNull String hivemqId;
-    private final @NotNull String uniqueId;
-    private final @Nullable Mqtt5PayloadFormatIndicator payloadFormatIndicator;
-    private final @Nullable String contentType;
-    private final @Nullable String responseTopic;
-    private final @Nullable byte[] correlationData;
     private final boolean isNewTopicAlias;
     private final @Nullable ImmutableList<Integer> subscriptionIdentifiers;
 
@@ -97,48 +93,9 @@ public class PUBLISH extends MqttMessageWithUserProperties implements Mqtt3PUBLI
             final long timestamp,
             final long publishId) {
 
-        super(userProperties);
-
-        Preconditions.checkNotNull(hivemqId, "HivemqId may never be null");
-        Preconditions.checkNotNull(topic, "Topic may never be null");
-        Preconditions.checkNotNull(qos, "Quality of service may never be null");
-
-        Preconditions.checkArgument(payloadId != null || payload != null, "Payload and Payload ID must never be null at the same time");
-        if (payloadId != null) {
-            Preconditions.checkArgument(persistence != null, "Persistence must be present if Payload ID is present");
-        }
-
-        this.topic = topic;
-        this.payload = payload;
-        this.qoS = qos;
-        this.retain = isRetain;
-        this.duplicateDelivery = isDup;
-        this.isNewTopicAlias = isNewTopicAlias;
-        this.subscriptionIdentifiers = subscriptionIdentifiers;
-        this.messageExpiryInterval = messageExpiryInterval;
-        this.payloadFormatIndicator = payloadFormatIndicator;
-        this.contentType = contentType;
-        this.responseTopic = responseTopic;
-        this.correlationData = correlationData;
-
-        if (publishId > NO_PUBLISH_ID_SET) {
-            this.publishId = publishId;
-        } else {
-            this.publishId = PUBLISH_COUNTER.getAndIncrement();
-        }
-        this.hivemqId = hivemqId;
-        this.uniqueId = hivemqId + "_pub_" + this.publishId;
-
-        if (timestamp > -1) {
-            this.timestamp = timestamp;
-        } else {
-            this.timestamp = System.currentTimeMillis();
-        }
-
-        setPacketIdentifier(packetIdentifier);
-
-        this.persistence = persistence;
-        this.payloadId = payloadId;
+        this(new Body(hivemqId, topic, publishId, payloadFormatIndicator, contentType, responseTopic, correlationData),
+                payload, qos, isRetain, messageExpiryInterval, userProperties, packetIdentifier, isDup, isNewTopicAlias,
+                subscriptionIdentifiers, persistence, payloadId, timestamp);
     }
 
     //MQTT 3
@@ -155,32 +112,92 @@ public class PUBLISH extends MqttMessageWithUserProperties implements Mqtt3PUBLI
             final long publishId,
             final long timestamp) {
 
-        super(Mqtt5UserProperties.NO_USER_PROPERTIES);
+        //MQTT 5 Only properties are not set
+        this(new Body(hivemqId, topic, publishId, null, null, null, null), payload, qos, isRetain,
+                messageExpiryInterval, Mqtt5UserProperties.NO_USER_PROPERTIES, packetIdentifier, isDup, false, null,
+                publishPayloadPersistence, payloadId, timestamp);
+    }
+
+    PUBLISH(@NotNull final PUBLISH publish,
+            @Nullable final Long payloadId,
+            @Nullable final PublishPayloadPersistence persistence) {
+
+        this(publish.body, publish.getPayload(), publish.getQoS(), publish.isRetain(),
+                publish.getMessageExpiryInterval(), publish.getUserProperties(), publish.getPacketIdentifier(),
+                publish.isDuplicateDelivery(), publish.isNewTopicAlias(), publish.getSubscriptionIdentifiers(),
+                persistence, payloadId, publish.getTimestamp());
+    }
+
+    /**
+     * A copy of a PUBLISH for a single subscriber, which shares all subscriber independent fields with the PUBLISH.
+     * Topic aliases are negotiated per connection, so the copy never uses a new topic alias.
+     */
+    PUBLISH(@NotNull final PUBLISH publish,
+            @NotNull final QoS qos,
+            final boolean isRetain,
+            final int packetIdentifier,
+            @Nullable final ImmutableList<Integer> subscriptionIdentifiers,
+            @Nullable final Long payloadId,
+            @Nullable final PublishPayloadPersistence persistence) {
+
+        this(publish.body, publish.payload, qos, isRetain, publish.getMessageExpiryInterval(),
+                publish.getUserProperties(), packetIdentifier, publish.isDuplicateDelivery(), false,
+                subscriptionIdentifiers, persistence, payloadId, publish.getTimestamp());
+    }
+
+    /**
+     * A PUBLISH that shares the subscriber independent fields with another PUBLISH, see
+     * {@link PUBLISHFactory.Mqtt5Builder#fromPublish(PUBLISH)}.
+     */
+    PUBLISH(@NotNull final PUBLISH bodySource,
+            @Nullable final byte[] payload,
+            @NotNull final QoS qos,
+            final boolean isRetain,
+            final long messageExpiryInterval,
+            @NotNull final Mqtt5UserProperties userProperties,
+            final int packetIdentifier,
+            final boolean isDup,
+            final boolean isNewTopicAlias,
+            @Nullable final ImmutableList<Integer> subscriptionIdentifiers,
+            final @Nullable PublishPayloadPersistence persistence,
+            final @Nullable Long payloadId,
+            final long timestamp) {
+
+        this(bodySource.body, payload, qos, isRetain, messageExpiryInterval, userProperties, packetIdentifier, isDup,
+                isNewTopicAlias, subscriptionIdentifiers, persistence, payloadId, timestamp);
+    }
+
+    private PUBLISH(@NotNull final Body body,
+                    @Nullable final byte[] payload,
+                    @NotNull final QoS qos,
+                    final boolean isRetain,
+                    final long messageExpiryInterval,
+                    @NotNull final Mqtt5UserProperties userProperties,
+                    final int packetIdentifier,
+                    final boolean isDup,
+                    final boolean isNewTopicAlias,
+                    @Nullable final ImmutableList<Integer> subscriptionIdentifiers,
+                    final @Nullable PublishPayloadPersistence persistence,
+                    final @Nullable Long payloadId,
+                    final long timestamp) {
+
+        super(userProperties);
 
-        Preconditions.checkNotNull(hivemqId, "Hivemq Id may never be null");
-        Preconditions.checkNotNull(topic, "Topic may never be null");
         Preconditions.checkNotNull(qos, "Quality of service may never be null");
 
         Preconditions.checkArgument(payloadId != null || payload != null, "Payload and Payload ID must never be null at the same time");
         if (payloadId != null) {
-            Preconditions.checkArgument(publishPayloadPersistence != null, "Persistence must be present if Payload ID is present");
+            Preconditions.checkArgument(persistence != null, "Persistence must be present if Payload ID is present");
         }
-        this.hivemqId = hivemqId;
-        this.topic = topic;
+
+        this.body = body;
         this.payload = payload;
         this.qoS = qos;
         this.retain = isRetain;
-        this.messageExpiryInterval = messageExpiryInterval;
-        this.payloadId = payloadId;
-        this.persistence = publishPayloadPersistence;
         this.duplicateDelivery = isDup;
-
-        if (publishId > NO_PUBLISH_ID_SET) {
-            this.publishId = publishId;
-        } else {
-            this.publishId = PUBLISH_COUNTER.getAndIncrement();
-        }
-        this.uniqueId = hivemqId + "_pub_" + this.publishId;
+        this.isNewTopicAlias = isNewTopicAlias;
+        this.subscriptionIdentifiers = subscriptionIdentifiers;
+        this.messageExpiryInterval = messageExpiryInterval;
 
         if (timestamp > -1) {
             this.timestamp = timestamp;
@@ -190,35 +207,28 @@ public class PUBLISH extends MqttMessageWithUserProperties implements Mqtt3PUBLI
 
         setPacketIdentifier(packetIdentifier);
 
-        //MQTT 5 Only
-        this.isNewTopicAlias = false;
-        this.subscriptionIdentifiers = null;
-        this.payloadFormatIndicator = null;
-        this.contentType = null;
-        this.responseTopic = null;
-        this.correlationData = null;
-    }
-
-    PUBLISH(@NotNull final PUBLISH publish,
-            @Nullable final Long payloadId,
-            @Nullable final PublishPayloadPersistence persistence) {
-
-        this(publish.getHivemqId(), publish.getTopic(), publish.getPayload(), publish.getQoS(), publish.isRetain(),
-                publish.getMessageExpiryInterval(), publish.getPayloadFormatIndicator(), publish.getContentType(),
-                publish.getResponseTopic(), publish.getCorrelationData(), publish.getUserProperties(),
-                publish.getPacketIdentifier(), publish.isDuplicateDelivery(), publish.isNewTopicAlias(),
-                publish.getSubscriptionIdentifiers(), persistence, payloadId, publish.getTimestamp(), publish.getLocalPublishId());
+        this.persistence = persistence;
+        this.payloadId = payloadId;
     }
 
     @NotNull
     @Override
     public String getHivemqId() {
-        return hivemqId;
+        return body.hivemqId;
     }
 
+    /**
+     * The unique id is created when it is needed for the first time and is shared by all copies of this PUBLISH.
+     */
     @NotNull
     @Override
     public String getUniqueId() {
+        // racy single check, at worst the unique id is created more than once
+        String uniqueId = body.uniqueId;
+        if (uniqueId == null) {
+            uniqueId = body.hivemqId + "_pub_" + body.publishId;
+            body.uniqueId = uniqueId;
+        }
         return uniqueId;
     }
 
@@ -231,24 +241,24 @@ public class PUBLISH extends MqttMessageWithUserProperties implements Mqtt3PUBLI
     @Nullable
     @Override
     public Mqtt5PayloadFormatIndicator getPayloadFormatIndicator() {
-        return payloadFormatIndicator;
+        return body.payloadFormatIndicator;
     }
 
     @Nullable
     @Override
     public String getContentType() {
-        return contentType;
+        return body.contentType;
     }
 
     @Nullable
     @Override
     public String getResponseTopic() {
-        return responseTopic;
+        return body.responseTopic;
     }
 
     @Override
     public @Nullable byte[] getCorrelationData() {
-        return correlationData;
+        return body.correlationData;
     }
 
     @Override
@@ -276,7 +286,27 @@ public class PUBLISH extends MqttMessageWithUserProperties implements Mqtt3PUBLI
     @NotNull
     @Override
     public String getTopic() {
-        return topic;
+        return body.topic;
+    }
+
+    /**
+     * The topic is split when it is needed for the first time, all later calls return the same levels.
+     *
+     * @return the tokenized topic of this PUBLISH
+     */
+    public @NotNull TokenizedTopic getTokenizedTopic() {
+        // racy single check, at worst the topic is split more than once
+        TokenizedTopic tokenizedTopic = body.tokenizedTopic;
+        if (tokenizedTopic == null) {
+            tokenizedTopic = TokenizedTopic.of(body.topic);
+            body.tokenizedTopic = tokenizedTopic;
+        }
+        return tokenizedTopic;
+    }
+
+    void setTokenizedTopic(final @NotNull TokenizedTopic tokenizedTopic) {
+        Preconditions.checkArgument(body.topic.equals(tokenizedTopic.getTopic()), "Tokenized topic must be the topic of the PUBLISH");
+        body.tokenizedTopic = tokenizedTopic;
     }
 
     @Override
@@ -288,6 +318,27 @@ public class PUBLISH extends MqttMessageWithUserProperties implements Mqtt3PUBLI
         this.duplicateDelivery = duplicateDelivery;
     }
 
+    /**
+     * The encoded properties are shared by all copies of the PUBLISH with the same user properties.
+     *
+     * @return the encoded subscriber independent MQTT 5 properties or null if they are not encoded yet
+     */
+    public @Nullable byte[] getEncodedSharedProperties() {
+        final EncodedProperties encodedProperties = body.encodedProperties;
+        if (encodedProperties == null || encodedProperties.userProperties != getUserProperties()) {
+            return null;
+        }
+        return encodedProperties.bytes;
+    }
+
+    /**
+     * @param encodedSharedProperties the encoded subscriber independent MQTT 5 properties, which must not be modified
+     *                                afterwards
+     */
+    public void setEncodedSharedProperties(@NotNull final byte[] encodedSharedProperties) {
+        body.encodedProperties = new EncodedProperties(getUserProperties(), encodedSharedProperties);
+    }
+
     @Override
     public boolean isRetain() {
         return retain;
@@ -310,7 +361,7 @@ public class PUBLISH extends MqttMessageWithUserProperties implements Mqtt3PUBLI
 
     @Override
     public long getLocalPublishId() {
-        return publishId;
+        return body.publishId;
     }
 
     @Nullable
@@ -331,7 +382,7 @@ public class PUBLISH extends MqttMessageWithUserProperties implements Mqtt3PUBLI
 
     @Override
     public @NotNull String toString() {
-        return "PUBLISH{uniqueId=" + uniqueId +
+        return "PUBLISH{uniqueId=" + getUniqueId() +
                 ", timestamp=" + timestamp +
                 '}';
     }
@@ -345,18 +396,17 @@ public class PUBLISH extends MqttMessageWithUserProperties implements Mqtt3PUBLI
                 duplicateDelivery == publish.duplicateDelivery &&
                 retain == publish.retain &&
                 messageExpiryInterval == publish.messageExpiryInterval &&
-                publishId == publish.publishId &&
+                body.publishId == publish.body.publishId &&
                 isNewTopicAlias == publish.isNewTopicAlias &&
                 Arrays.equals(payload, publish.payload) &&
-                Objects.equals(topic, publish.topic) &&
+                Objects.equals(body.topic, publish.body.topic) &&
                 qoS == publish.qoS &&
-                Objects.equals(hivemqId, publish.hivemqId) &&
-                Objects.equals(uniqueId, publish.uniqueId) &&
+                Objects.equals(body.hivemqId, publish.body.hivemqId) &&
                 Objects.equals(payloadId, publish.payloadId) &&
-                payloadFormatIndicator == publish.payloadFormatIndicator &&
-                Objects.equals(contentType, publish.contentType) &&
-                Objects.equals(responseTopic, publish.responseTopic) &&
-                Arrays.equals(correlationData, publish.correlationData) &&
+                body.payloadFormatIndicator == publish.body.payloadFormatIndicator &&
+                Objects.equals(body.contentType, publish.body.contentType) &&
+                Objects.equals(body.responseTopic, publish.body.responseTopic) &&
+                Arrays.equals(body.correlationData, publish.body.correlationData) &&
                 Objects.equals(subscriptionIdentifiers, publish.subscriptionIdentifiers) &&
                 Objects.equals(persistence, publish.persistence);
     }
@@ -364,12 +414,12 @@ public class PUBLISH extends MqttMessageWithUserProperties implements Mqtt3PUBLI
     @Override
     public int hashCode() {
 
-        int result = Objects.hash(timestamp, topic, duplicateDelivery, retain, qoS,
-                messageExpiryInterval, publishId, hivemqId, uniqueId, payloadId,
-                payloadFormatIndicator, contentType, responseTopic,
+        int result = Objects.hash(timestamp, body.topic, duplicateDelivery, retain, qoS,
+                messageExpiryInterval, body.publishId, body.hivemqId, payloadId,
+                body.payloadFormatIndicator, body.contentType, body.responseTopic,
                 isNewTopicAlias, subscriptionIdentifiers, persistence);
         result = 31 * result + Arrays.hashCode(payload);
-        result = 31 * result + Arrays.hashCode(correlationData);
+        result = 31 * result + Arrays.hashCode(body.correlationData);
         return result;
     }
 
@@ -399,6 +449,9 @@ public class PUBLISH extends MqttMessageWithUserProperties implements Mqtt3PUBLI
         if (sizeInMemory != SIZE_NOT_CALCULATED) {
             return sizeInMemory;
         }
+        final String topic = body.topic;
+        final byte[] correlationData = body.correlationData;
+        final String responseTopic = body.responseTopic;
         int size = (topic.length() * 2);
         size += 38; //String Object Overhead
         if (payload != null) {
@@ -432,4 +485,78 @@ public class PUBLISH extends MqttMessageWithUserProperties implements Mqtt3PUBLI
         sizeInMemory = size;
         return sizeInMemory;
     }
+
+    /**
+     * @return true if the subscriber independent fields of the PUBLISH are the given ones
+     */
+    boolean hasBody(@NotNull final String hivemqId,
+                    @NotNull final String topic,
+                    final long publishId,
+                    @Nullable final Mqtt5PayloadFormatIndicator payloadFormatIndicator,
+                    @Nullable final String contentType,
+                    @Nullable final String responseTopic,
+                    @Nullable final byte[] correlationData) {
+
+        return body.publishId == publishId && body.topic.equals(topic) && body.hivemqId.equals(hivemqId) &&
+                body.payloadFormatIndicator == payloadFormatIndicator && Objects.equals(body.contentType, contentType) &&
+                Objects.equals(body.responseTopic, responseTopic) && body.correlationData == correlationData;
+    }
+
+    /**
+     * The fields of a PUBLISH that do not depend on the subscriber the PUBLISH is delivered to.
+     */
+    private static class Body {
+
+        private final @NotNull String hivemqId;
+        private final @NotNull String topic;
+        private final long publishId;
+        private final @Nullable Mqtt5PayloadFormatIndicator payloadFormatIndicator;
+        private final @Nullable String contentType;
+        private final @Nullable String responseTopic;
+        private final @Nullable byte[] correlationData;
+
+        // created lazily, see getUniqueId(), getTokenizedTopic() and getEncodedSharedProperties()
+        private @Nullable String uniqueId;
+        private @Nullable TokenizedTopic tokenizedTopic;
+        private @Nullable EncodedProperties encodedProperties;
+
+        Body(@NotNull final String hivemqId,
+             @NotNull final String topic,
+             final long publishId,
+             @Nullable final Mqtt5PayloadFormatIndicator payloadFormatIndicator,
+             @Nullable final String contentType,
+             @Nullable final String responseTopic,
+             @Nullable final byte[] correlationData) {
+
+            Preconditions.checkNotNull(hivemqId, "HivemqId may never be null");
+            Preconditions.checkNotNull(topic, "Topic may never be null");
+
+            this.hivemqId = hivemqId;
+            this.topic = topic;
+            if (publishId > NO_PUBLISH_ID_SET) {
+                this.publishId = publishId;
+            } else {
+                this.publishId = PUBLISH_COUNTER.getAndIncrement();
+            }
+            this.payloadFormatIndicator = payloadFormatIndicator;
+            this.contentType = contentType;
+            this.responseTopic = responseTopic;
+            this.correlationData = correlationData;
+        }
+    }
+
+    /**
+     * The encoded subscriber independent properties together with the user properties they were encoded with, as
+     * copies of a PUBLISH may have different user properties.
+     */
+    private static class EncodedProperties {
+
+        private final @NotNull Mqtt5UserProperties userProperties;
+        private final @NotNull byte[] bytes;
+
+        EncodedProperties(@NotNull final Mqtt5UserProperties userProperties, @NotNull final byte[] bytes) {
+            this.userProperties = userProperties;
+            this.bytes = bytes;
+        }
+    }
 }
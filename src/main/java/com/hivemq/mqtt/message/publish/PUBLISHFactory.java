@@ -28,6 +28,7 @@ import com.hivemq.extensions.packets.publish.ModifiablePublishPacketImpl;
 import com.hivemq.mqtt.message.QoS;
 import com.hivemq.mqtt.message.mqtt5.Mqtt5UserProperties;
 import com.hivemq.mqtt.message.mqtt5.MqttUserProperty;
+import com.hivemq.mqtt.topic.TokenizedTopic;
 import com.hivemq.persistence.payload.PublishPayloadPersistence;
 import com.hivemq.util.Bytes;
 
@@ -47,11 +48,38 @@ import static com.hivemq.mqtt.message.publish.PUBLISH.MESSAGE_EXPIRY_INTERVAL_NO
  */
 public class PUBLISHFactory {
 
+    /**
+     * Creates the copy of a PUBLISH that is queued for a single subscriber. In contrast to
+     * {@link Mqtt5Builder#fromPublish(PUBLISH)}, the copy does not copy the subscriber independent fields but shares them
+     * with the PUBLISH, so a PUBLISH with many subscribers only creates small copies.
+     *
+     * @param publish                 the PUBLISH that is delivered to the subscriber
+     * @param qos                     the QoS for the subscriber
+     * @param retain                  the retain flag for the subscriber
+     * @param packetIdentifier        the packet identifier for the subscriber
+     * @param subscriptionIdentifiers the subscription identifiers of the subscriber
+     * @param payloadId               the id of the payload in the payload persistence
+     * @param persistence             the payload persistence
+     * @return the copy for the subscriber
+     */
+    @NotNull
+    public static PUBLISH forSubscriber(final @NotNull PUBLISH publish,
+                                        final @NotNull QoS qos,
+                                        final boolean retain,
+                                        final int packetIdentifier,
+                                        final @Nullable ImmutableList<Integer> subscriptionIdentifiers,
+                                        final @Nullable Long payloadId,
+                                        final @Nullable PublishPayloadPersistence persistence) {
+
+        return new PUBLISH(publish, qos, retain, packetIdentifier, subscriptionIdentifiers, payloadId, persistence);
+    }
+
     public static class Mqtt5Builder {
 
         private long timestamp = System.currentTimeMillis();
         private @Nullable byte[] payload;
         private @Nullable String topic;
+        private @Nullable TokenizedTopic tokenizedTopic;
         private boolean duplicateDelivery;
         private boolean retain;
         private @Nullable QoS qoS;
@@ -68,9 +96,15 @@ public class PUBLISHFactory {
         private @NotNull Mqtt5UserProperties userProperties = Mqtt5UserProperties.NO_USER_PROPERTIES;
         private int packetIdentifier;
         private long publishId = PUBLISH.NO_PUBLISH_ID_SET;
+        private @Nullable PUBLISH source;
 
+        /**
+         * Copies all fields of the PUBLISH. If none of the subscriber independent fields are changed, the built PUBLISH
+         * shares them with the PUBLISH.
+         */
         @NotNull
         public Mqtt5Builder fromPublish(final @NotNull PUBLISH publish) {
+            this.source = publish;
             this.hivemqId = publish.getHivemqId();
             this.topic = publish.getTopic();
             this.qoS = publish.getQoS();
@@ -99,10 +133,22 @@ public class PUBLISHFactory {
             Preconditions.checkNotNull(topic, "Topic may never be null");
             Preconditions.checkNotNull(qoS, "Quality of service may never be null");
 
-            return new PUBLISH(hivemqId, topic, payload, qoS, retain, messageExpiryInterval,
-                    payloadFormatIndicator, contentType, responseTopic, correlationData,
-                    userProperties, packetIdentifier, duplicateDelivery, isNewTopicAlias, subscriptionIdentifiers,
-                    persistence, payloadId, timestamp, publishId);
+            final PUBLISH publish;
+            if (source != null && source.hasBody(hivemqId, topic, publishId, payloadFormatIndicator, contentType,
+                    responseTopic, correlationData)) {
+                publish = new PUBLISH(source, payload, qoS, retain, messageExpiryInterval, userProperties,
+                        packetIdentifier, duplicateDelivery, isNewTopicAlias, subscriptionIdentifiers, persistence,
+                        payloadId, timestamp);
+            } else {
+                publish = new PUBLISH(hivemqId, topic, payload, qoS, retain, messageExpiryInterval,
+                        payloadFormatIndicator, contentType, responseTopic, correlationData,
+                        userProperties, packetIdentifier, duplicateDelivery, isNewTopicAlias, subscriptionIdentifiers,
+                        persistence, payloadId, timestamp, publishId);
+            }
+            if (tokenizedTopic != null && tokenizedTopic.getTopic().equals(topic)) {
+                publish.setTokenizedTopic(tokenizedTopic);
+            }
+            return publish;
         }
 
         @NotNull
@@ -123,6 +169,15 @@ public class PUBLISHFactory {
             return this;
         }
 
+        /**
+         * The tokenized topic is only used if it is the topic of the PUBLISH when it is built.
+         */
+        @NotNull
+        public Mqtt5Builder withTokenizedTopic(final @Nullable TokenizedTopic tokenizedTopic) {
+            this.tokenizedTopic = tokenizedTopic;
+            return this;
+        }
+
         @NotNull
         public Mqtt5Builder withDuplicateDelivery(final boolean duplicateDelivery) {
             this.duplicateDelivery = duplicateDelivery;
@@ -224,6 +279,7 @@ public class PUBLISHFactory {
 
         private @Nullable String hivemqId;
         private @Nullable String topic;
+        private @Nullable TokenizedTopic tokenizedTopic;
         private @Nullable PublishPayloadPersistence persistence;
 
         private @Nullable QoS qoS;
@@ -263,8 +319,12 @@ public class PUBLISHFactory {
             Preconditions.checkNotNull(topic, "Topic may never be null");
             Preconditions.checkNotNull(qoS, "Quality of service may never be null");
 
-            return new PUBLISH(hivemqId, topic, payload, qoS, retain,
+            final PUBLISH publish = new PUBLISH(hivemqId, topic, payload, qoS, retain,
                     messageExpiryInterval, payloadId, persistence, packetIdentifier, duplicateDelivery, publishId, timestamp);
+            if (tokenizedTopic != null && tokenizedTopic.getTopic().equals(topic)) {
+                publish.setTokenizedTopic(tokenizedTopic);
+            }
+            return publish;
         }
 
         @NotNull
@@ -285,6 +345,15 @@ public class PUBLISHFactory {
             return this;
         }
 
+        /**
+         * The tokenized topic is only used if it is the topic of the PUBLISH when it is built.
+         */
+        @NotNull
+        public Mqtt3Builder withTokenizedTopic(final @Nullable TokenizedTopic tokenizedTopic) {
+            this.tokenizedTopic = tokenizedTopic;
+            return this;
+        }
+
         @NotNull
         public Mqtt3Builder withPersistence(final @Nullable PublishPayloadPersistence persistence) {
             this.persistence = persistence;
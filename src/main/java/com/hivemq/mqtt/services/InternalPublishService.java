@@ -18,10 +18,13 @@ package com.hivemq.mqtt.services;
 
 import com.google.common.util.concurrent.ListenableFuture;
 import com.hivemq.annotations.NotNull;
+import com.hivemq.configuration.service.InternalConfigurations;
 import com.hivemq.extension.sdk.api.annotations.Nullable;
 import com.hivemq.mqtt.handler.publish.PublishReturnCode;
 import com.hivemq.mqtt.message.publish.PUBLISH;
 
+import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 
 /**
@@ -38,4 +41,26 @@ public interface InternalPublishService {
     @NotNull
     ListenableFuture<PublishReturnCode> publish(@NotNull final PUBLISH publish, @NotNull final ExecutorService executorService, @Nullable final String sender);
 
+    /**
+     * Send a batch of messages to all clients and shared subscription groups which have an active subscription.
+     * The subscribers are looked up once per distinct topic of the batch. With
+     * {@link InternalConfigurations#PIPELINED_ACKNOWLEDGE_ENABLED} the returned future completes as soon as the batch is
+     * durable in the inbound publish log, like for a single message.
+     *
+     * @param publishes       the messages to send
+     * @param executorService the executor service in which all callbacks are executed
+     * @param sender          client identifier of the client which sent the messages
+     */
+    @NotNull
+    ListenableFuture<Void> publish(@NotNull final List<PUBLISH> publishes, @NotNull final ExecutorService executorService, @Nullable final String sender);
+
+    /**
+     * Distributes the messages which were acknowledged but not distributed completely before the last shutdown. They
+     * are replayed even if {@link InternalConfigurations#PIPELINED_ACKNOWLEDGE_ENABLED} was disabled after the last
+     * shutdown, because they were already acknowledged. Must be called before any message is sent.
+     *
+     * @throws IOException if the inbound publish log can not be recovered
+     */
+    void replayInboundPublishLog() throws IOException;
+
 }
@@ -17,19 +17,23 @@
 package com.hivemq.mqtt.services;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
 import com.hivemq.annotations.NotNull;
 import com.hivemq.annotations.Nullable;
 import com.hivemq.bootstrap.ioc.lazysingleton.LazySingleton;
 import com.hivemq.mqtt.handler.publish.PublishReturnCode;
+import com.hivemq.mqtt.message.QoS;
 import com.hivemq.mqtt.message.publish.PUBLISH;
 import com.hivemq.mqtt.topic.SubscriberWithIdentifiers;
 import com.hivemq.mqtt.topic.tree.LocalTopicTree;
 import com.hivemq.persistence.RetainedMessage;
+import com.hivemq.persistence.inbound.InboundPublishLog;
 import com.hivemq.persistence.retained.RetainedMessagePersistence;
 import com.hivemq.persistence.util.FutureUtils;
 import com.hivemq.util.Exceptions;
@@ -37,13 +41,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import javax.inject.Provider;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 
 import static com.hivemq.configuration.service.InternalConfigurations.ACKNOWLEDGE_AFTER_PERSIST;
+import static com.hivemq.configuration.service.InternalConfigurations.INBOUND_PUBLISH_LOG_MAX_DELIVERY_ATTEMPTS;
+import static com.hivemq.configuration.service.InternalConfigurations.PIPELINED_ACKNOWLEDGE_ENABLED;
 
 /**
  * @author Christoph Schäbel
@@ -57,18 +63,23 @@ public class InternalPublishServiceImpl implements InternalPublishService {
     private final RetainedMessagePersistence retainedMessagePersistence;
     private final LocalTopicTree topicTree;
     private final PublishDistributor publishDistributor;
+    private final @NotNull Provider<InboundPublishLog> inboundPublishLogProvider;
+    private final @Nullable InboundPublishLog inboundPublishLog;
 
     private final boolean acknowledgeAfterPersist;
 
     @Inject
     public InternalPublishServiceImpl(final RetainedMessagePersistence retainedMessagePersistence,
                                       final LocalTopicTree topicTree,
-                                      final PublishDistributor publishDistributor) {
+                                      final PublishDistributor publishDistributor,
+                                      final Provider<InboundPublishLog> inboundPublishLogProvider) {
 
         this.retainedMessagePersistence = retainedMessagePersistence;
         this.topicTree = topicTree;
         this.publishDistributor = publishDistributor;
         this.acknowledgeAfterPersist = ACKNOWLEDGE_AFTER_PERSIST.get();
+        this.inboundPublishLogProvider = inboundPublishLogProvider;
+        this.inboundPublishLog = acknowledgeAfterPersist && PIPELINED_ACKNOWLEDGE_ENABLED.get() ? inboundPublishLogProvider.get() : null;
     }
 
     @NotNull
@@ -86,6 +97,64 @@ public class InternalPublishServiceImpl implements InternalPublishService {
         return Futures.whenAllComplete(publishReturnCodeFuture, persistFuture).call(() -> publishReturnCodeFuture.get(), executorService);
     }
 
+    @NotNull
+    public ListenableFuture<Void> publish(@NotNull final List<PUBLISH> publishes, @NotNull final ExecutorService executorService, @Nullable final String sender) {
+
+        Preconditions.checkNotNull(publishes, "PUBLISHes can not be null");
+        Preconditions.checkNotNull(executorService, "executorService can not be null");
+
+        final ImmutableList.Builder<ListenableFuture<Void>> persistFutures = ImmutableList.builder();
+        final List<Map<String, SubscriberWithIdentifiers>> nonSharedSubscribers = new ArrayList<>(publishes.size());
+        final List<Set<String>> sharedSubscriptions = new ArrayList<>(publishes.size());
+        final Map<String, MatchingSubscribers> subscribersPerTopic = new HashMap<>();
+
+        for (final PUBLISH publish : publishes) {
+            //reset dup-flag
+            publish.setDuplicateDelivery(false);
+            persistFutures.add(persistRetainedMessage(publish, executorService));
+
+            MatchingSubscribers matchingSubscribers = subscribersPerTopic.get(publish.getTopic());
+            if (matchingSubscribers == null) {
+                matchingSubscribers = new MatchingSubscribers(topicTree.getSubscribers(publish.getTokenizedTopic()), sender);
+                subscribersPerTopic.put(publish.getTopic(), matchingSubscribers);
+            }
+            nonSharedSubscribers.add(matchingSubscribers.nonSharedSubscribers);
+            sharedSubscriptions.add(matchingSubscribers.sharedSubscriptions);
+        }
+
+        final ListenableFuture<Void> distributeFuture;
+        if (inboundPublishLog != null) {
+            distributeFuture = pipelineBatch(publishes, nonSharedSubscribers, sharedSubscriptions, sender, executorService,
+                    inboundPublishLog);
+        } else {
+            distributeFuture = publishDistributor.distributeBatch(publishes, nonSharedSubscribers, sharedSubscriptions,
+                    executorService);
+        }
+        if (!acknowledgeAfterPersist) {
+            return Futures.immediateFuture(null);
+        }
+        return FutureUtils.mergeVoidFutures(distributeFuture, FutureUtils.voidFutureFromList(persistFutures.build()));
+    }
+
+    @Override
+    public void replayInboundPublishLog() throws IOException {
+        InboundPublishLog replayLog = inboundPublishLog;
+        if (replayLog == null) {
+            // the PUBLISHes of a previous run with pipelined acknowledgement were already acknowledged
+            replayLog = inboundPublishLogProvider.get();
+            if (!replayLog.hasSegments()) {
+                return;
+            }
+            log.info("Replaying the inbound publish log of a previous run, although pipelined acknowledgement is disabled");
+        }
+        final ExecutorService executorService = MoreExecutors.newDirectExecutorService();
+        for (final InboundPublishLog.Entry entry : replayLog.recover()) {
+            final PUBLISH publish = entry.getPublish();
+            distributeLogged(entry.getSequence(), topicTree.getSubscribers(publish.getTokenizedTopic()),
+                    entry.getSender(), publish, executorService, replayLog, 1);
+        }
+    }
+
     private ListenableFuture<Void> persistRetainedMessage(final PUBLISH publish, final ExecutorService executorService) {
 
         //Retained messages need to be persisted and thus we need to make that non-blocking
@@ -133,76 +202,260 @@ public class InternalPublishServiceImpl implements InternalPublishService {
     @NotNull
     private ListenableFuture<PublishReturnCode> handlePublish(@NotNull final PUBLISH publish, @NotNull final ExecutorService executorService, @Nullable final String sender) {
 
-        final ImmutableSet<SubscriberWithIdentifiers> subscribers = topicTree.getSubscribers(publish.getTopic());
+        final ImmutableSet<SubscriberWithIdentifiers> subscribers = topicTree.getSubscribers(publish.getTokenizedTopic());
 
         if (subscribers.size() < 1) {
             return Futures.immediateFuture(PublishReturnCode.NO_MATCHING_SUBSCRIBERS);
         }
 
 
+        if (inboundPublishLog != null && publish.getQoS() != QoS.AT_MOST_ONCE) {
+            return pipelinePublish(subscribers, sender, publish, executorService, inboundPublishLog);
+        }
+
+        final ListenableFuture<PublishReturnCode> returnCodeFuture =
+                returnCode(deliverPublish(subscribers, sender, publish, executorService), publish, executorService);
         if (!acknowledgeAfterPersist) {
-            deliverPublish(subscribers, sender, publish, executorService, null);
             return Futures.immediateFuture(PublishReturnCode.DELIVERED);
         }
-        final SettableFuture<PublishReturnCode> returnCodeFuture = SettableFuture.create();
-        deliverPublish(subscribers, sender, publish, executorService, returnCodeFuture);
         return returnCodeFuture;
     }
 
-    private void deliverPublish(final ImmutableSet<SubscriberWithIdentifiers> subscribers,
-                                @Nullable final String sender,
-                                @NotNull final PUBLISH publish,
-                                @NotNull final ExecutorService executorService,
-                                @Nullable final SettableFuture<PublishReturnCode> returnCodeFuture) {
-        Set<String> sharedSubscriptions = null;
-        final Map<String, SubscriberWithIdentifiers> notSharedSubscribers = new HashMap<>(subscribers.size());
+    /**
+     * Acknowledges the PUBLISH as soon as it is durable in the inbound publish log, instead of waiting until it is
+     * added to the queues of all subscribers. The PUBLISH is only distributed once it is durable, so a PUBLISH that is
+     * not acknowledged is never delivered. It is marked complete in the log once it is distributed, so it is replayed
+     * after a restart otherwise.
+     */
+    @NotNull
+    private ListenableFuture<PublishReturnCode> pipelinePublish(@NotNull final ImmutableSet<SubscriberWithIdentifiers> subscribers,
+                                                                @Nullable final String sender,
+                                                                @NotNull final PUBLISH publish,
+                                                                @NotNull final ExecutorService executorService,
+                                                                @NotNull final InboundPublishLog inboundPublishLog) {
+
+        final SettableFuture<PublishReturnCode> returnCodeFuture = SettableFuture.create();
+        Futures.addCallback(inboundPublishLog.append(publish, sender), new FutureCallback<>() {
+            @Override
+            public void onSuccess(@Nullable final Long sequence) {
+                returnCodeFuture.set(PublishReturnCode.DELIVERED);
+                distributeLogged(sequence, subscribers, sender, publish, executorService, inboundPublishLog, 1);
+            }
+
+            @Override
+            public void onFailure(@NotNull final Throwable throwable) {
+                Exceptions.rethrowError("Unable to append message for topic " + publish.getTopic() + " with message id "
+                        + publish.getUniqueId() + " to the inbound publish log.", throwable);
+                returnCodeFuture.set(PublishReturnCode.FAILED);
+            }
+        }, executorService);
+        return returnCodeFuture;
+    }
 
-        for (final SubscriberWithIdentifiers subscriber : subscribers) {
-            if (!subscriber.isSharedSubscription()) {
+    /**
+     * Appends the QoS 1 and 2 PUBLISHes of a batch to the inbound publish log and distributes the batch once all of
+     * them are durable, see {@link #pipelinePublish}. If an append fails, the batch fails and none of its PUBLISHes is
+     * distributed. A PUBLISH of a batch whose distribution failed is distributed on its own again.
+     *
+     * @return a future which completes as soon as all PUBLISHes of the batch are durable
+     */
+    @NotNull
+    private ListenableFuture<Void> pipelineBatch(@NotNull final List<PUBLISH> publishes,
+                                                 @NotNull final List<Map<String, SubscriberWithIdentifiers>> nonSharedSubscribers,
+                                                 @NotNull final List<Set<String>> sharedSubscriptions,
+                                                 @Nullable final String sender,
+                                                 @NotNull final ExecutorService executorService,
+                                                 @NotNull final InboundPublishLog inboundPublishLog) {
+
+        final List<ListenableFuture<Long>> appendFutures = new ArrayList<>(publishes.size());
+        for (final PUBLISH publish : publishes) {
+            appendFutures.add(publish.getQoS() == QoS.AT_MOST_ONCE ?
+                    Futures.<Long>immediateFuture(null) : inboundPublishLog.append(publish, sender));
+        }
 
-                if (subscriber.isNoLocal() && sender != null && sender.equals(subscriber.getSubscriber())) {
-                    //do not send to this subscriber, because NoLocal Option is set and subscriber == sender
-                    continue;
+        final SettableFuture<Void> loggedFuture = SettableFuture.create();
+        Futures.addCallback(Futures.successfulAsList(appendFutures), new FutureCallback<>() {
+            @Override
+            public void onSuccess(@Nullable final List<Long> sequences) {
+                for (int i = 0; i < appendFutures.size(); i++) {
+                    if (publishes.get(i).getQoS() != QoS.AT_MOST_ONCE && sequences.get(i) == null) {
+                        // the batch is not acknowledged, so the PUBLISHes that were logged are never distributed
+                        completeAll(sequences, inboundPublishLog);
+                        try {
+                            Futures.getDone(appendFutures.get(i));
+                        } catch (final ExecutionException e) {
+                            loggedFuture.setException(e.getCause());
+                        }
+                        return;
+                    }
                 }
+                loggedFuture.set(null);
+                distributeLoggedBatch(sequences, publishes, nonSharedSubscribers, sharedSubscriptions, sender,
+                        executorService, inboundPublishLog);
+            }
 
-                notSharedSubscribers.put(subscriber.getSubscriber(), subscriber);
-                continue;
+            @Override
+            public void onFailure(@NotNull final Throwable throwable) {
+                loggedFuture.setException(throwable);
+            }
+        }, executorService);
+        return loggedFuture;
+    }
+
+    private void distributeLoggedBatch(@NotNull final List<Long> sequences,
+                                       @NotNull final List<PUBLISH> publishes,
+                                       @NotNull final List<Map<String, SubscriberWithIdentifiers>> nonSharedSubscribers,
+                                       @NotNull final List<Set<String>> sharedSubscriptions,
+                                       @Nullable final String sender,
+                                       @NotNull final ExecutorService executorService,
+                                       @NotNull final InboundPublishLog inboundPublishLog) {
+
+        final ListenableFuture<Void> distributeFuture =
+                publishDistributor.distributeBatch(publishes, nonSharedSubscribers, sharedSubscriptions, executorService);
+        Futures.addCallback(distributeFuture, new FutureCallback<>() {
+            @Override
+            public void onSuccess(@Nullable final Void result) {
+                completeAll(sequences, inboundPublishLog);
+            }
+
+            @Override
+            public void onFailure(@NotNull final Throwable throwable) {
+                log.debug("Unable to publish a batch of {} messages, trying each message again.", publishes.size(), throwable);
+                for (int i = 0; i < publishes.size(); i++) {
+                    final Long sequence = sequences.get(i);
+                    if (sequence != null) {
+                        final PUBLISH publish = publishes.get(i);
+                        distributeLogged(sequence, topicTree.getSubscribers(publish.getTokenizedTopic()), sender,
+                                publish, executorService, inboundPublishLog, 2);
+                    }
+                }
             }
+        }, executorService);
+    }
 
-            //only instantiate list if shared subscribers are available
-            if (sharedSubscriptions == null) {
-                sharedSubscriptions = new HashSet<>(subscribers.size());
+    private static void completeAll(@NotNull final List<Long> sequences, @NotNull final InboundPublishLog inboundPublishLog) {
+        for (final Long sequence : sequences) {
+            if (sequence != null) {
+                inboundPublishLog.complete(sequence);
             }
+        }
+    }
 
-            sharedSubscriptions.add(subscriber.getSharedName() + "/" + subscriber.getTopicFilter());
+    /**
+     * Distributes a PUBLISH from the inbound publish log and marks it complete afterwards. A failed distribution is
+     * tried again with the current subscribers. The PUBLISH is already acknowledged, so it is dropped after
+     * {@link com.hivemq.configuration.service.InternalConfigurations#INBOUND_PUBLISH_LOG_MAX_DELIVERY_ATTEMPTS} instead
+     * of keeping its segment of the log until a restart.
+     */
+    private void distributeLogged(final long sequence,
+                                  @NotNull final ImmutableSet<SubscriberWithIdentifiers> subscribers,
+                                  @Nullable final String sender,
+                                  @NotNull final PUBLISH publish,
+                                  @NotNull final ExecutorService executorService,
+                                  @NotNull final InboundPublishLog inboundPublishLog,
+                                  final int attempt) {
+
+        if (subscribers.isEmpty()) {
+            inboundPublishLog.complete(sequence);
+            return;
         }
+        Futures.addCallback(deliverPublish(subscribers, sender, publish, executorService), new FutureCallback<>() {
+            @Override
+            public void onSuccess(@Nullable final Void result) {
+                inboundPublishLog.complete(sequence);
+            }
+
+            @Override
+            public void onFailure(@NotNull final Throwable throwable) {
+                if (attempt < INBOUND_PUBLISH_LOG_MAX_DELIVERY_ATTEMPTS) {
+                    log.debug("Unable to publish message for topic {} with message id {}, trying again.",
+                            publish.getTopic(), publish.getUniqueId(), throwable);
+                    distributeLogged(sequence, topicTree.getSubscribers(publish.getTokenizedTopic()), sender, publish,
+                            executorService, inboundPublishLog, attempt + 1);
+                    return;
+                }
+                inboundPublishLog.complete(sequence);
+                Exceptions.rethrowError("Unable to publish message for topic " + publish.getTopic() + " with message id "
+                        + publish.getUniqueId() + " after " + attempt + " attempts, the message is dropped.", throwable);
+            }
+        }, executorService);
+    }
+
+    @NotNull
+    private ListenableFuture<PublishReturnCode> returnCode(@NotNull final ListenableFuture<Void> deliverFuture,
+                                                           @NotNull final PUBLISH publish,
+                                                           @NotNull final ExecutorService executorService) {
+
+        final SettableFuture<PublishReturnCode> returnCodeFuture = SettableFuture.create();
+        Futures.addCallback(deliverFuture, new FutureCallback<>() {
+            @Override
+            public void onSuccess(@Nullable final Void result) {
+                returnCodeFuture.set(PublishReturnCode.DELIVERED);
+            }
+
+            @Override
+            public void onFailure(@NotNull final Throwable throwable) {
+                Exceptions.rethrowError("Unable to publish message for topic " + publish.getTopic() + " with message id" + publish.getUniqueId() + ".", throwable);
+                returnCodeFuture.set(PublishReturnCode.FAILED);
+            }
+        }, executorService);
+        return returnCodeFuture;
+    }
+
+    @NotNull
+    private ListenableFuture<Void> deliverPublish(final ImmutableSet<SubscriberWithIdentifiers> subscribers,
+                                                  @Nullable final String sender,
+                                                  @NotNull final PUBLISH publish,
+                                                  @NotNull final ExecutorService executorService) {
+        final MatchingSubscribers matchingSubscribers = new MatchingSubscribers(subscribers, sender);
 
         //Send out the messages to the channel of the subscribers
-        final ListenableFuture<Void> publishFinishedFutureNonShared = publishDistributor.distributeToNonSharedSubscribers(notSharedSubscribers, publish, executorService);
+        final ListenableFuture<Void> publishFinishedFutureNonShared =
+                publishDistributor.distributeToNonSharedSubscribers(matchingSubscribers.nonSharedSubscribers, publish, executorService);
 
         final ListenableFuture<Void> publishFinishedFutureShared;
         //Shared subscriptions are currently not batched, since it is unlikely that there are many groups of shared subscribers for the same topic.
-        if (sharedSubscriptions != null) {
-            publishFinishedFutureShared = publishDistributor.distributeToSharedSubscribers(sharedSubscriptions, publish, executorService);
+        if (!matchingSubscribers.sharedSubscriptions.isEmpty()) {
+            publishFinishedFutureShared = publishDistributor.distributeToSharedSubscribers(matchingSubscribers.sharedSubscriptions, publish, executorService);
         } else {
             publishFinishedFutureShared = Futures.immediateFuture(null);
         }
 
-        Futures.addCallback(FutureUtils.mergeVoidFutures(publishFinishedFutureNonShared, publishFinishedFutureShared), new FutureCallback<>() {
-            @Override
-            public void onSuccess(@Nullable final Void result) {
-                if (returnCodeFuture != null) {
-                    returnCodeFuture.set(PublishReturnCode.DELIVERED);
+        return FutureUtils.mergeVoidFutures(publishFinishedFutureNonShared, publishFinishedFutureShared);
+    }
+
+    /**
+     * The subscribers of a topic, split into the non-shared subscribers and the shared subscriptions.
+     */
+    private static class MatchingSubscribers {
+
+        private final @NotNull Map<String, SubscriberWithIdentifiers> nonSharedSubscribers;
+        private final @NotNull Set<String> sharedSubscriptions;
+
+        MatchingSubscribers(@NotNull final ImmutableSet<SubscriberWithIdentifiers> subscribers, @Nullable final String sender) {
+            Set<String> sharedSubscriptions = null;
+            nonSharedSubscribers = new HashMap<>(subscribers.size());
+
+            for (final SubscriberWithIdentifiers subscriber : subscribers) {
+                if (!subscriber.isSharedSubscription()) {
+
+                    if (subscriber.isNoLocal() && sender != null && sender.equals(subscriber.getSubscriber())) {
+                        //do not send to this subscriber, because NoLocal Option is set and subscriber == sender
+                        continue;
+                    }
+
+                    nonSharedSubscribers.put(subscriber.getSubscriber(), subscriber);
+                    continue;
                 }
-            }
 
-            @Override
-            public void onFailure(@NotNull final Throwable throwable) {
-                Exceptions.rethrowError("Unable to publish message for topic " + publish.getTopic() + " with message id" + publish.getUniqueId() + ".", throwable);
-                if (returnCodeFuture != null) {
-                    returnCodeFuture.set(PublishReturnCode.FAILED);
+                //only instantiate list if shared subscribers are available
+                if (sharedSubscriptions == null) {
+                    sharedSubscriptions = new HashSet<>(subscribers.size());
                 }
+
+                sharedSubscriptions.add(subscriber.getSharedName() + "/" + subscriber.getTopicFilter());
             }
-        }, executorService);
+            this.sharedSubscriptions = sharedSubscriptions != null ? sharedSubscriptions : Collections.emptySet();
+        }
     }
 }
@@ -56,6 +56,22 @@ public interface PublishDistributor {
     ListenableFuture<Void> distributeToSharedSubscribers(@NotNull Set<String> sharedSubscriptions, @NotNull PUBLISH publish,
                                                          @NotNull ExecutorService executorService);
 
+    /**
+     * Sends a batch of messages to their subscribers. All messages of the batch for the same client or shared
+     * subscription are added to its queue at once.
+     *
+     * @param publishes            the messages to send, in the order in which they are queued
+     * @param nonSharedSubscribers the non-shared subscribers of each message, key is client identifier, value is the
+     *                             subscription information
+     * @param sharedSubscriptions  the shared subscriptions (group + '/'+ topic-filter) of each message
+     * @param executorService      the executor service in which all callbacks are executed
+     */
+    @NotNull
+    ListenableFuture<Void> distributeBatch(@NotNull List<PUBLISH> publishes,
+                                           @NotNull List<Map<String, SubscriberWithIdentifiers>> nonSharedSubscribers,
+                                           @NotNull List<Set<String>> sharedSubscriptions,
+                                           @NotNull ExecutorService executorService);
+
     /**
      * Sends a message to a discrete subscriber
      *
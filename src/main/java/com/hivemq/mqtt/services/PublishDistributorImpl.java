@@ -20,6 +20,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
 import com.hivemq.annotations.NotNull;
 import com.hivemq.annotations.Nullable;
@@ -34,9 +35,12 @@ import com.hivemq.persistence.clientsession.ClientSession;
 import com.hivemq.persistence.clientsession.ClientSessionPersistence;
 import com.hivemq.persistence.payload.PublishPayloadPersistence;
 import com.hivemq.persistence.util.FutureUtils;
+import com.hivemq.util.Exceptions;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -109,6 +113,82 @@ public class PublishDistributorImpl implements PublishDistributor {
         return FutureUtils.voidFutureFromList(publishResultFutureBuilder.build());
     }
 
+    @NotNull
+    @Override
+    public ListenableFuture<Void> distributeBatch(@NotNull final List<PUBLISH> publishes,
+                                                  @NotNull final List<Map<String, SubscriberWithIdentifiers>> nonSharedSubscribers,
+                                                  @NotNull final List<Set<String>> sharedSubscriptions,
+                                                  @NotNull final ExecutorService executorService) {
+
+        final Map<String, List<PUBLISH>> clientQueues = new HashMap<>();
+        final Map<String, List<PUBLISH>> sharedQueues = new HashMap<>();
+        // the sessions are looked up once per batch, null if the client has no session
+        final Map<String, ClientSession> clientSessions = new HashMap<>();
+
+        for (int i = 0; i < publishes.size(); i++) {
+            final PUBLISH publish = publishes.get(i);
+
+            for (final Map.Entry<String, SubscriberWithIdentifiers> entry : nonSharedSubscribers.get(i).entrySet()) {
+                final String client = entry.getKey();
+                final SubscriberWithIdentifiers subscriber = entry.getValue();
+
+                if (!clientSessions.containsKey(client)) {
+                    clientSessions.put(client, clientSessionPersistence.getSession(client, false));
+                }
+                final ClientSession clientSession = clientSessions.get(client);
+                final boolean qos0Message = Math.min(subscriber.getQos(), publish.getQoS().getQosNumber()) == 0;
+
+                //no session present or session already expired, or a QoS 0 message for an offline client
+                if (clientSession == null || (qos0Message && !clientSession.isConnected())) {
+                    continue;
+                }
+                clientQueues.computeIfAbsent(client, key -> new ArrayList<>())
+                        .add(createPublish(publish, subscriber.getQos(), subscriber.isRetainAsPublished(), subscriber.getSubscriptionIdentifier()));
+            }
+
+            for (final String sharedSubscription : sharedSubscriptions.get(i)) {
+                sharedQueues.computeIfAbsent(sharedSubscription, key -> new ArrayList<>())
+                        .add(createPublish(publish, publish.getQoS().getQosNumber(), false, null));
+            }
+        }
+
+        final ImmutableList.Builder<ListenableFuture<Void>> queueFutures = ImmutableList.builder();
+        for (final Map.Entry<String, List<PUBLISH>> entry : clientQueues.entrySet()) {
+            queueFutures.add(addBatchToQueue(entry.getKey(), false, entry.getValue(), executorService));
+        }
+        for (final Map.Entry<String, List<PUBLISH>> entry : sharedQueues.entrySet()) {
+            queueFutures.add(addBatchToQueue(entry.getKey(), true, entry.getValue(), executorService));
+        }
+        return FutureUtils.voidFutureFromList(queueFutures.build());
+    }
+
+    @NotNull
+    private ListenableFuture<Void> addBatchToQueue(@NotNull final String queueId, final boolean shared,
+                                                   @NotNull final List<PUBLISH> publishes, @NotNull final ExecutorService executorService) {
+
+        final ImmutableList.Builder<ListenableFuture<Void>> payloadFutures = ImmutableList.builder();
+        for (final PUBLISH publish : publishes) {
+            payloadFutures.add(payloadPersisted(publish));
+        }
+        final ListenableFuture<Void> addFuture = Futures.transformAsync(FutureUtils.voidFutureFromList(payloadFutures.build()),
+                ignored -> clientQueuePersistence.add(queueId, shared, publishes, false), MoreExecutors.directExecutor());
+
+        final SettableFuture<Void> queuedFuture = SettableFuture.create();
+        Futures.addCallback(addFuture, new FutureCallback<>() {
+            @Override
+            public void onSuccess(@Nullable final Void result) {
+                queuedFuture.set(null);
+            }
+
+            @Override
+            public void onFailure(@NotNull final Throwable throwable) {
+                queuedFuture.setException(throwable);
+                Exceptions.rethrowError(throwable);
+            }
+        }, executorService);
+        return queuedFuture;
+    }
+
     @NotNull
     @Override
     public ListenableFuture<PublishStatus> sendMessageToSubscriber(@NotNull final PUBLISH publish, @NotNull final String clientId, final int subscriptionQos,
@@ -148,7 +228,9 @@ public class PublishDistributorImpl implements PublishDistributor {
                                                        final int subscriptionQos, final boolean shared, final boolean retainAsPublished,
                                                        @Nullable final List<Integer> subscriptionIdentifier) {
 
-        final ListenableFuture<Void> future = clientQueuePersistence.add(client, shared, createPublish(publish, subscriptionQos, retainAsPublished, subscriptionIdentifier));
+        final PUBLISH subscriberPublish = createPublish(publish, subscriptionQos, retainAsPublished, subscriptionIdentifier);
+        final ListenableFuture<Void> future = Futures.transformAsync(payloadPersisted(subscriberPublish),
+                ignored -> clientQueuePersistence.add(client, shared, subscriberPublish), MoreExecutors.directExecutor());
         final SettableFuture<PublishStatus> statusFuture = SettableFuture.create();
 
         Futures.addCallback(future, new FutureCallback<Void>() {
@@ -165,6 +247,17 @@ public class PublishDistributorImpl implements PublishDistributor {
         return statusFuture;
     }
 
+    /**
+     * A queued QoS 1 or 2 PUBLISH is persisted, so it must not be queued before its payload is persisted.
+     */
+    @NotNull
+    private ListenableFuture<Void> payloadPersisted(@NotNull final PUBLISH publish) {
+        if (publish.getQoS() == QoS.AT_MOST_ONCE) {
+            return Futures.immediateFuture(null);
+        }
+        return payloadPersistence.whenPersisted(publish.getPayloadId());
+    }
+
     @NotNull
     private PUBLISH createPublish(@NotNull final PUBLISH publish, final int subscriptionQos, final boolean retainAsPublished, @Nullable final List<Integer> subscriptionIdentifier) {
         final long payloadId = payloadPersistence.add(publish.getPayload(), 1);
@@ -175,20 +268,9 @@ public class PublishDistributorImpl implements PublishDistributor {
             identifiers = ImmutableList.copyOf(subscriptionIdentifier);
         }
 
-        final PUBLISHFactory.Mqtt5Builder builder = new PUBLISHFactory.Mqtt5Builder()
-                .fromPublish(publish)
-                .withPayloadId(payloadId)
-                .withPersistence(payloadPersistence)
-                .withRetain(publish.isRetain() && retainAsPublished)
-                .withSubscriptionIdentifiers(ImmutableList.copyOf(identifiers));
-
         final int qos = Math.min(publish.getQoS().getQosNumber(), subscriptionQos);
-        builder.withQoS(QoS.valueOf(qos));
-
-        if (qos == 0) {
-            builder.withPacketIdentifier(0);
-        }
 
-        return builder.build();
+        return PUBLISHFactory.forSubscriber(publish, QoS.valueOf(qos), publish.isRetain() && retainAsPublished,
+                qos == 0 ? 0 : publish.getPacketIdentifier(), identifiers, payloadId, payloadPersistence);
     }
 }
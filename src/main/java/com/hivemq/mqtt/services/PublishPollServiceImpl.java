@@ -22,6 +22,7 @@ import com.google.common.primitives.ImmutableIntArray;
 import com.google.common.util.concurrent.*;
 import com.hivemq.annotations.NotNull;
 import com.hivemq.annotations.Nullable;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.bootstrap.ioc.lazysingleton.LazySingleton;
 import com.hivemq.configuration.service.InternalConfigurations;
 import com.hivemq.mqtt.callback.PublishChannelInactiveCallback;
@@ -29,6 +30,7 @@ import com.hivemq.mqtt.callback.PublishStatusFutureCallback;
 import com.hivemq.mqtt.callback.PublishStoredInPersistenceCallback;
 import com.hivemq.mqtt.handler.publish.ChannelInactiveHandler;
 import com.hivemq.mqtt.handler.publish.PublishStatus;
+import com.hivemq.mqtt.handler.publish.SlowConsumerHandler;
 import com.hivemq.mqtt.message.MessageIDPools;
 import com.hivemq.mqtt.message.MessageWithID;
 import com.hivemq.mqtt.message.QoS;
@@ -49,7 +51,6 @@ import com.hivemq.persistence.clientsession.SharedSubscriptionService;
 import com.hivemq.persistence.payload.PayloadPersistenceException;
 import com.hivemq.persistence.payload.PublishPayloadPersistence;
 import com.hivemq.persistence.util.FutureUtils;
-import com.hivemq.util.ChannelAttributes;
 import com.hivemq.util.ChannelUtils;
 import com.hivemq.util.Exceptions;
 import io.netty.channel.Channel;
@@ -115,17 +116,18 @@ public class PublishPollServiceImpl implements PublishPollService {
         checkNotNull(client, "Client must not be null");
         checkNotNull(channel, "Channel must not be null");
         // Null equal false, true will never be set
-        final boolean inflightMessagesSent = channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES_SENT).get() != null;
+        final ClientConnection clientConnection = ClientConnection.of(channel);
+        final boolean inflightMessagesSent = clientConnection.getInFlightMessagesSent() != null;
         if (inflightMessagesSent) {
             pollNewMessages(client, channel);
-            final Boolean noSharedSubscriptions = channel.attr(ChannelAttributes.NO_SHARED_SUBSCRIPTION).get();
+            final Boolean noSharedSubscriptions = clientConnection.getNoSharedSubscription();
             if (noSharedSubscriptions != null && noSharedSubscriptions) {
                 return;
             }
             try {
                 final ImmutableSet<Topic> topics = sharedSubscriptionService.getSharedSubscriptions(client);
-                if (topics.isEmpty()) {
-                    channel.attr(ChannelAttributes.NO_SHARED_SUBSCRIPTION).setIfAbsent(true);
+                if (topics.isEmpty() && clientConnection.getNoSharedSubscription() == null) {
+                    clientConnection.setNoSharedSubscription(true);
                 }
                 for (final Topic topic : topics) {
                     final String sharedSubscriptions = sharedSubscriptionService.removePrefix(topic.getTopic());
@@ -158,6 +160,9 @@ public class PublishPollServiceImpl implements PublishPollService {
      */
     @Override
     public void pollNewMessages(@NotNull final String client, @NotNull final Channel channel) {
+        if (suspendPolling(channel)) {
+            return;
+        }
         final MessageIDPool messageIDPool = messageIDPools.forClient(client);
         final ImmutableIntArray messageIds;
         try {
@@ -219,7 +224,7 @@ public class PublishPollServiceImpl implements PublishPollService {
             @Override
             public void onSuccess(final ImmutableList<MessageWithID> messages) {
                 if (messages.isEmpty()) {
-                    channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES_SENT).set(true);
+                    ClientConnection.of(channel).setInFlightMessagesSent(true);
                     pollMessages(client, channel); // No more inflight messages
                     return;
                 }
@@ -272,11 +277,27 @@ public class PublishPollServiceImpl implements PublishPollService {
         }, singleWriterService.callbackExecutor(client));
     }
 
+    /**
+     * The messages of a client whose channel is not writable stay in the queues until the channel is writable again,
+     * the {@link SlowConsumerHandler} then polls again.
+     *
+     * @return whether polling is suspended
+     */
+    private boolean suspendPolling(@NotNull final Channel channel) {
+        if (!InternalConfigurations.WRITABILITY_DRIVEN_POLLING_ENABLED.get() || channel.isWritable()) {
+            return false;
+        }
+        ClientConnection.of(channel).setPollingSuspended(true);
+        // the channel may have become writable before the flag was set
+        return !channel.isWritable();
+    }
+
     private AtomicInteger inFlightMessageCount(@NotNull final Channel channel) {
-        AtomicInteger qos0InFlightMessages = channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES).get();
+        final ClientConnection clientConnection = ClientConnection.of(channel);
+        AtomicInteger qos0InFlightMessages = clientConnection.getInFlightMessages();
         if (qos0InFlightMessages == null) {
             qos0InFlightMessages = new AtomicInteger(0);
-            channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES).set(qos0InFlightMessages);
+            clientConnection.setInFlightMessages(qos0InFlightMessages);
         }
         return qos0InFlightMessages;
     }
@@ -308,7 +329,7 @@ public class PublishPollServiceImpl implements PublishPollService {
                                              final int qos,
                                              @Nullable final Integer subscriptionIdentifier,
                                              @NotNull final Channel channel) {
-        if (ChannelUtils.messagesInFlight(channel)) {
+        if (ChannelUtils.messagesInFlight(channel) || suspendPolling(channel)) {
             return;
         }
 
@@ -487,7 +508,7 @@ public class PublishPollServiceImpl implements PublishPollService {
                 FutureUtils.addExceptionLogger(future);
             }
 
-            final AtomicInteger inFlightMessages = channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES).get();
+            final AtomicInteger inFlightMessages = ClientConnection.of(channel).getInFlightMessages();
             if (inFlightMessages != null && inFlightMessages.decrementAndGet() > 0) {
                 return;
             }
@@ -498,7 +519,7 @@ public class PublishPollServiceImpl implements PublishPollService {
         public void onFailure(final Throwable t) {
             Exceptions.rethrowError("Pubrel delivery failed", t);
             messageIDPool.returnId(message.getPacketIdentifier());
-            final AtomicInteger inFlightMessages = channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES).get();
+            final AtomicInteger inFlightMessages = ClientConnection.of(channel).getInFlightMessages();
             if (inFlightMessages != null) {
                 inFlightMessages.decrementAndGet();
             }
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.mqtt.topic;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.hivemq.annotations.Immutable;
+import com.hivemq.annotations.NotNull;
+import com.hivemq.annotations.Nullable;
+import com.hivemq.extension.sdk.api.auth.parameter.TopicPermission;
+import com.hivemq.extensions.auth.parameter.InternalTopicPermission;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * The topic filters of a list of {@link TopicPermission}s compiled into a tree, so the permissions that match a topic
+ * are found in time proportional to the depth of the topic instead of the amount of permissions.
+ * <p>
+ * A topic matches exactly the same permissions as with the {@link PermissionTopicMatcher}. Permissions without
+ * wildcards are compared with the stripped topic, permissions with wildcards are matched level by level.
+ * <p>
+ * Trees are shared by all lists of permissions which are equal by value, as most clients get their permissions from a
+ * small set of roles.
+ */
+@Immutable
+public class PermissionTopicTree {
+
+    private static final int[] NO_PERMISSIONS = new int[0];
+
+    private static final @NotNull Cache<List<PermissionKey>, PermissionTopicTree> sharedTrees =
+            CacheBuilder.newBuilder().weakValues().build();
+
+    private final @NotNull TopicPermission[] permissions;
+    private final @NotNull Map<String, int[]> exactTopics;
+    private final @NotNull Node root;
+
+    private PermissionTopicTree(
+            final @NotNull TopicPermission[] permissions,
+            final @NotNull Map<String, int[]> exactTopics,
+            final @NotNull Node root) {
+        this.permissions = permissions;
+        this.exactTopics = exactTopics;
+        this.root = root;
+    }
+
+    /**
+     * Returns the tree for the given permissions, an existing tree is reused if it was compiled for permissions that
+     * are equal by value.
+     *
+     * @param permissions the permissions in the order they are evaluated
+     * @return the tree or null if the permissions contain a topic filter that can not be compiled
+     */
+    public static @Nullable PermissionTopicTree of(final @NotNull List<TopicPermission> permissions) {
+        final ImmutableList.Builder<PermissionKey> keyBuilder = ImmutableList.builder();
+        for (final TopicPermission permission : permissions) {
+            keyBuilder.add(new PermissionKey(permission));
+        }
+        final List<PermissionKey> key = keyBuilder.build();
+
+        final PermissionTopicTree sharedTree = sharedTrees.getIfPresent(key);
+        if (sharedTree != null) {
+            return sharedTree;
+        }
+        final PermissionTopicTree tree = compile(permissions);
+        if (tree == null) {
+            return null;
+        }
+        final PermissionTopicTree previousTree = sharedTrees.asMap().putIfAbsent(key, tree);
+        return previousTree != null ? previousTree : tree;
+    }
+
+    private static @Nullable PermissionTopicTree compile(final @NotNull List<TopicPermission> permissions) {
+        final TopicPermission[] permissionArray = permissions.toArray(new TopicPermission[0]);
+        final Map<String, List<Integer>> exactTopics = new HashMap<>();
+        final Node root = new Node();
+
+        for (int i = 0; i < permissionArray.length; i++) {
+            if (!(permissionArray[i] instanceof InternalTopicPermission)) {
+                return null;
+            }
+            final InternalTopicPermission permission = (InternalTopicPermission) permissionArray[i];
+            final String strippedTopicFilter = StringUtils.stripEnd(permission.getTopicFilter(), "/");
+
+            if (!permission.containsWildcardCharacter()) {
+                exactTopics.computeIfAbsent(strippedTopicFilter, topic -> new ArrayList<>()).add(i);
+                continue;
+            }
+            if (permission.isRootWildcard() && !permission.endsWithWildcard() && strippedTopicFilter.length() > 1) {
+                // a multi level wildcard that is not the last level never matches
+                continue;
+            }
+
+            final String[] levels = permission.getSplitTopic();
+            final boolean multiLevel = levels.length > 0 && "#".equals(levels[levels.length - 1]);
+            final int depth = multiLevel ? levels.length - 1 : levels.length;
+
+            Node node = root;
+            for (int level = 0; level < depth; level++) {
+                if ("#".equals(levels[level])) {
+                    // a multi level wildcard before the last level is not matched like in a topic filter, it is not compiled
+                    return null;
+                }
+                node = node.child(levels[level]);
+            }
+            if (multiLevel) {
+                node.multiLevelPermissions.add(i);
+            } else {
+                node.permissions.add(i);
+            }
+        }
+
+        final Map<String, int[]> exactTopicArrays = new HashMap<>();
+        for (final Map.Entry<String, List<Integer>> entry : exactTopics.entrySet()) {
+            exactTopicArrays.put(entry.getKey(), toArray(entry.getValue()));
+        }
+        root.seal();
+        return new PermissionTopicTree(permissionArray, exactTopicArrays, root);
+    }
+
+    /**
+     * @return the amount of permissions
+     */
+    public int size() {
+        return permissions.length;
+    }
+
+    /**
+     * @param index the index of the permission
+     * @return the permission at the given index
+     */
+    public @NotNull TopicPermission get(final int index) {
+        return permissions[index];
+    }
+
+    /**
+     * Finds the first permission which matches the topic and is accepted by the filter.
+     *
+     * @param strippedTopic the topic without trailing slashes
+     * @param splitTopic    the levels of the topic
+     * @param filter        the filter for the other properties of the permissions
+     * @return the index of the first permission or -1 if no permission matches
+     */
+    public int firstMatch(
+            final @NotNull String strippedTopic, final @NotNull String[] splitTopic, final @NotNull IntPredicate filter) {
+
+        int first = Integer.MAX_VALUE;
+        final int[] exactPermissions = exactTopics.get(strippedTopic);
+        if (exactPermissions != null) {
+            first = first(exactPermissions, filter, first);
+        }
+        first = firstMatch(root, splitTopic, 0, filter, first);
+        return first == Integer.MAX_VALUE ? -1 : first;
+    }
+
+    private static int firstMatch(
+            final @NotNull Node node, final @NotNull String[] splitTopic, final int level,
+            final @NotNull IntPredicate filter, int first) {
+
+        first = first(node.multiLevelIndices, filter, first);
+        if (level == splitTopic.length) {
+            return first(node.indices, filter, first);
+        }
+        final Node child = node.children.get(splitTopic[level]);
+        if (child != null) {
+            first = firstMatch(child, splitTopic, level + 1, filter, first);
+        }
+        if (node.singleLevelChild != null) {
+            first = firstMatch(node.singleLevelChild, splitTopic, level + 1, filter, first);
+        }
+        return first;
+    }
+
+    private static int first(final @NotNull int[] indices, final @NotNull IntPredicate filter, final int first) {
+        // the indices are sorted, so only indices before the current first have to be checked
+        for (final int index : indices) {
+            if (index >= first) {
+                return first;
+            }
+            if (filter.test(index)) {
+                return index;
+            }
+        }
+        return first;
+    }
+
+    private static @NotNull int[] toArray(final @NotNull List<Integer> list) {
+        if (list.isEmpty()) {
+            return NO_PERMISSIONS;
+        }
+        final int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    private static class Node {
+
+        private @NotNull Map<String, Node> children = new HashMap<>();
+        private @Nullable Node singleLevelChild;
+
+        private final @NotNull List<Integer> permissions = new ArrayList<>();
+        private final @NotNull List<Integer> multiLevelPermissions = new ArrayList<>();
+        private @NotNull int[] indices = NO_PERMISSIONS;
+        private @NotNull int[] multiLevelIndices = NO_PERMISSIONS;
+
+        @NotNull Node child(final @NotNull String level) {
+            if ("+".equals(level)) {
+                if (singleLevelChild == null) {
+                    singleLevelChild = new Node();
+                }
+                return singleLevelChild;
+            }
+            return children.computeIfAbsent(level, key -> new Node());
+        }
+
+        void seal() {
+            indices = toArray(permissions);
+            multiLevelIndices = toArray(multiLevelPermissions);
+            permissions.clear();
+            multiLevelPermissions.clear();
+            if (children.isEmpty()) {
+                children = Collections.emptyMap();
+            }
+            for (final Node child : children.values()) {
+                child.seal();
+            }
+            if (singleLevelChild != null) {
+                singleLevelChild.seal();
+            }
+        }
+    }
+
+    /**
+     * The properties of a permission, used to share the trees of permissions that are equal by value.
+     */
+    private static class PermissionKey {
+
+        private final @NotNull String topicFilter;
+        private final @NotNull TopicPermission.PermissionType type;
+        private final @NotNull TopicPermission.Qos qos;
+        private final @NotNull TopicPermission.MqttActivity activity;
+        private final @NotNull TopicPermission.Retain retain;
+        private final @NotNull TopicPermission.SharedSubscription sharedSubscription;
+        private final @NotNull String sharedGroup;
+
+        PermissionKey(final @NotNull TopicPermission permission) {
+            topicFilter = permission.getTopicFilter();
+            type = permission.getType();
+            qos = permission.getQos();
+            activity = permission.getActivity();
+            retain = permission.getPublishRetain();
+            sharedSubscription = permission.getSharedSubscription();
+            sharedGroup = permission.getSharedGroup();
+        }
+
+        @Override
+        public boolean equals(final @Nullable Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final PermissionKey that = (PermissionKey) o;
+            return topicFilter.equals(that.topicFilter) && type == that.type && qos == that.qos &&
+                    activity == that.activity && retain == that.retain &&
+                    sharedSubscription == that.sharedSubscription && sharedGroup.equals(that.sharedGroup);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(topicFilter, type, qos, activity, retain, sharedSubscription, sharedGroup);
+        }
+    }
+}
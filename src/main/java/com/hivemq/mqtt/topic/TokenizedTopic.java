@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.mqtt.topic;
+
+import com.google.common.base.Preconditions;
+import com.hivemq.annotations.Immutable;
+import com.hivemq.annotations.NotNull;
+import com.hivemq.annotations.Nullable;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * A topic (or topic filter) together with its levels, so a topic is split only once no matter how many times it is
+ * matched.
+ * <p>
+ * A PUBLISH carries its tokenized topic, which is then used by the topic tree and the permission checks.
+ */
+@Immutable
+public class TokenizedTopic {
+
+    private final @NotNull String topic;
+    private final @NotNull String strippedTopic;
+    private final @NotNull String[] levels;
+
+    private TokenizedTopic(final @NotNull String topic) {
+        this.topic = topic;
+        this.strippedTopic = topic.length() > 1 ? StringUtils.stripEnd(topic, "/") : topic;
+        this.levels = StringUtils.splitPreserveAllTokens(topic, '/');
+    }
+
+    public static @NotNull TokenizedTopic of(final @NotNull String topic) {
+        Preconditions.checkNotNull(topic, "Topic must not be null");
+        return new TokenizedTopic(topic);
+    }
+
+    /**
+     * @return the original topic
+     */
+    public @NotNull String getTopic() {
+        return topic;
+    }
+
+    /**
+     * @return the topic without trailing slashes, a topic consisting of a single character is not stripped
+     */
+    public @NotNull String getStrippedTopic() {
+        return strippedTopic;
+    }
+
+    /**
+     * The levels are shared by all users of the topic and must not be modified.
+     *
+     * @return the levels of the topic, empty levels are preserved
+     */
+    public @NotNull String[] getLevels() {
+        return levels;
+    }
+
+    @Override
+    public boolean equals(final @Nullable Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return topic.equals(((TokenizedTopic) o).topic);
+    }
+
+    @Override
+    public int hashCode() {
+        return topic.hashCode();
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return topic;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.mqtt.topic.tree;
+
+import com.google.common.collect.ImmutableList;
+import com.hivemq.annotations.NotNull;
+import com.hivemq.annotations.Nullable;
+import com.hivemq.mqtt.topic.SubscriberWithQoS;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Iterates the ids of the subscribers of the topic tree nodes which matched a topic or a topic filter, chunk by chunk.
+ * <p>
+ * The matching nodes are found when the iterator is created. The subscribers of a node are only copied under the read
+ * lock of its segment when the iteration reaches the node, so no complete result set is built and no lock is held
+ * while the chunks are handed out. Subscriptions which are added or removed during the iteration may or may not be
+ * returned.
+ * <p>
+ * Every subscriber id is returned only once. The returned ids are only remembered if more than one node matched or the
+ * node contains shared subscriptions, because only then an id can occur more than once.
+ */
+@NotThreadSafe
+public class ChunkedSubscriberIterator {
+
+    private static final @NotNull SubscriberWithQoS[] EMPTY = new SubscriberWithQoS[0];
+
+    private final @NotNull List<Source> sources;
+    private final @NotNull LocalTopicTree.ItemFilter itemFilter;
+    private @Nullable Set<String> returned;
+
+    private int sourceIndex = 0;
+    private @Nullable SubscriberWithQoS[] subscribers;
+    private int position = 0;
+
+    ChunkedSubscriberIterator(final @NotNull List<Source> sources, final @NotNull LocalTopicTree.ItemFilter itemFilter) {
+        this.sources = sources;
+        this.itemFilter = itemFilter;
+        this.returned = sources.size() > 1 ? new HashSet<>() : null;
+    }
+
+    /**
+     * @param maxSize the maximum amount of subscriber ids in the chunk
+     * @return the next subscriber ids, the chunk is only empty if the iteration is finished
+     */
+    public @NotNull ImmutableList<String> nextChunk(final int maxSize) {
+        final ImmutableList.Builder<String> chunk = ImmutableList.builder();
+        int size = 0;
+        while (size < maxSize) {
+            if (subscribers == null || position == subscribers.length) {
+                if (sourceIndex == sources.size()) {
+                    break;
+                }
+                subscribers = sources.get(sourceIndex++).copySubscribers();
+                position = 0;
+                if (returned == null && containsSharedSubscriber(subscribers)) {
+                    returned = new HashSet<>();
+                }
+                continue;
+            }
+            final SubscriberWithQoS subscriber = subscribers[position];
+            // release the copy as early as possible
+            subscribers[position++] = null;
+            if (subscriber == null || !itemFilter.checkItem(subscriber)) {
+                continue;
+            }
+            if (returned != null && !returned.add(subscriber.getSubscriber())) {
+                continue;
+            }
+            chunk.add(subscriber.getSubscriber());
+            size++;
+        }
+        return chunk.build();
+    }
+
+    /**
+     * @return true if all subscribers were returned
+     */
+    public boolean isFinished() {
+        return sourceIndex == sources.size() && (subscribers == null || position == subscribers.length);
+    }
+
+    private static boolean containsSharedSubscriber(final @NotNull SubscriberWithQoS[] subscribers) {
+        for (final SubscriberWithQoS subscriber : subscribers) {
+            if (subscriber != null && subscriber.getSharedName() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The exact or wildcard subscribers of a matching node, or the root wildcard subscribers.
+     */
+    static class Source {
+
+        private final @Nullable Node node;
+        private final boolean wildcard;
+        private final @Nullable Lock lock;
+        private final @Nullable Collection<SubscriberWithQoS> rootWildcardSubscribers;
+
+        private Source(
+                final @Nullable Node node, final boolean wildcard, final @Nullable Lock lock,
+                final @Nullable Collection<SubscriberWithQoS> rootWildcardSubscribers) {
+            this.node = node;
+            this.wildcard = wildcard;
+            this.lock = lock;
+            this.rootWildcardSubscribers = rootWildcardSubscribers;
+        }
+
+        static @NotNull Source exact(final @NotNull Node node, final @NotNull Lock lock) {
+            return new Source(node, false, lock, null);
+        }
+
+        static @NotNull Source wildcard(final @NotNull Node node, final @NotNull Lock lock) {
+            return new Source(node, true, lock, null);
+        }
+
+        /**
+         * @param rootWildcardSubscribers a collection that can be copied without a lock
+         */
+        static @NotNull Source rootWildcard(final @NotNull Collection<SubscriberWithQoS> rootWildcardSubscribers) {
+            return new Source(null, true, null, rootWildcardSubscribers);
+        }
+
+        @NotNull SubscriberWithQoS[] copySubscribers() {
+            if (rootWildcardSubscribers != null) {
+                return rootWildcardSubscribers.toArray(EMPTY);
+            }
+            if (node == null || lock == null) {
+                return EMPTY;
+            }
+            lock.lock();
+            try {
+                if (wildcard) {
+                    if (node.wildcardSubscriberMap != null) {
+                        return node.wildcardSubscriberMap.values().toArray(EMPTY);
+                    }
+                    final SubscriberWithQoS[] wildcardSubscribers = node.getWildcardSubscribers();
+                    return wildcardSubscribers != null ? wildcardSubscribers.clone() : EMPTY;
+                }
+                if (node.exactSubscriberMap != null) {
+                    return node.exactSubscriberMap.values().toArray(EMPTY);
+                }
+                final SubscriberWithQoS[] exactSubscribers = node.getExactSubscribers();
+                return exactSubscribers != null ? exactSubscribers.clone() : EMPTY;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -22,6 +22,7 @@ import com.hivemq.annotations.Nullable;
 import com.hivemq.mqtt.message.subscribe.Topic;
 import com.hivemq.mqtt.topic.SubscriberWithIdentifiers;
 import com.hivemq.mqtt.topic.SubscriberWithQoS;
+import com.hivemq.mqtt.topic.TokenizedTopic;
 
 /**
  * @author Lukas Brandl
@@ -40,6 +41,15 @@ public interface LocalTopicTree {
     @NotNull
     ImmutableSet<SubscriberWithIdentifiers> getSubscribers(@NotNull String topic);
 
+    /**
+     * All subscribers for a topic (PUBLISH) which is already split into its levels
+     *
+     * @param topic the tokenized topic to publish to (no wildcards)
+     * @return the subscribers interested in this topic with all their identifiers
+     */
+    @NotNull
+    ImmutableSet<SubscriberWithIdentifiers> getSubscribers(@NotNull TokenizedTopic topic);
+
     /**
      * All subscribers that have subscribed to this exact topic filter
      *
@@ -60,6 +70,27 @@ public interface LocalTopicTree {
     @NotNull
     ImmutableSet<String> getSubscribersForTopic(@NotNull String topic, @NotNull ItemFilter itemFilter, boolean excludeRootLevelWildcard);
 
+    /**
+     * Iterates all subscribers that have subscribed to this exact topic filter in chunks
+     *
+     * @param topicFilter the topic filter (including wildcards)
+     * @param itemFilter  the filter for the subscribers
+     * @return an iterator over the ids of the subscribers with a subscription with this topic filter
+     */
+    @NotNull
+    ChunkedSubscriberIterator iterateSubscribersWithFilter(@NotNull String topicFilter, @NotNull ItemFilter itemFilter);
+
+    /**
+     * Iterates all subscribers for a topic in chunks
+     *
+     * @param topic                    the topic to match (no wildcards)
+     * @param itemFilter               the filter for the subscribers
+     * @param excludeRootLevelWildcard if the subscribers of a root level wildcard must not be returned
+     * @return an iterator over the ids of the subscribers with a subscription for this topic
+     */
+    @NotNull
+    ChunkedSubscriberIterator iterateSubscribersForTopic(@NotNull String topic, @NotNull ItemFilter itemFilter, boolean excludeRootLevelWildcard);
+
     @NotNull
     ImmutableSet<SubscriberWithIdentifiers> getSubscribers(@NotNull String topic, boolean excludeRootLevelWildcard);
 
@@ -27,6 +27,7 @@ import com.hivemq.metrics.MetricsHolder;
 import com.hivemq.mqtt.message.subscribe.Topic;
 import com.hivemq.mqtt.topic.SubscriberWithIdentifiers;
 import com.hivemq.mqtt.topic.SubscriberWithQoS;
+import com.hivemq.mqtt.topic.TokenizedTopic;
 import com.hivemq.persistence.PersistenceFilter;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -170,12 +171,29 @@ public class TopicTreeImpl implements LocalTopicTree {
         return getSubscribers(topic, false);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    public ImmutableSet<SubscriberWithIdentifiers> getSubscribers(@NotNull final TokenizedTopic topic) {
+        return getSubscribers(topic, false);
+    }
+
     @Override
     @NotNull
     public ImmutableSet<SubscriberWithIdentifiers> getSubscribers(@NotNull final String topic, final boolean excludeRootLevelWildcard) {
 
         checkNotNull(topic, "Topic must not be null");
 
+        return getSubscribers(TokenizedTopic.of(topic), excludeRootLevelWildcard);
+    }
+
+    @NotNull
+    private ImmutableSet<SubscriberWithIdentifiers> getSubscribers(@NotNull final TokenizedTopic topic, final boolean excludeRootLevelWildcard) {
+
+        checkNotNull(topic, "Topic must not be null");
+
         final ImmutableList.Builder<SubscriberWithQoS> subscribers = ImmutableList.builder();
 
         //Root wildcard subscribers always match
@@ -186,12 +204,12 @@ public class TopicTreeImpl implements LocalTopicTree {
         }
 
         //This is a shortcut in case there are no nodes beside the root node
-        if (segments.isEmpty() || topic.isEmpty()) {
+        if (segments.isEmpty() || topic.getTopic().isEmpty()) {
             return createDistinctSubscribers(subscribers.build());
         }
 
 
-        final String[] topicPart = StringUtils.splitPreserveAllTokens(topic, '/');
+        final String[] topicPart = topic.getLevels();
         final String segmentKey = topicPart[0];
 
         final Lock lock = segmentLocks.get(segmentKey).readLock();
@@ -862,6 +880,179 @@ public class TopicTreeImpl implements LocalTopicTree {
         }
     }
 
+    @Override
+    public @NotNull ChunkedSubscriberIterator iterateSubscribersForTopic(
+            @NotNull final String topic, @NotNull final ItemFilter itemFilter, final boolean excludeRootLevelWildcard) {
+        checkNotNull(topic, "Topic must not be null");
+
+        final ImmutableList.Builder<ChunkedSubscriberIterator.Source> sources = ImmutableList.builder();
+
+        //Root wildcard subscribers always match
+        if (!excludeRootLevelWildcard) {
+            sources.add(ChunkedSubscriberIterator.Source.rootWildcard(rootWildcardSubscribers));
+        }
+
+        //This is a shortcut in case there are no nodes beside the root node
+        if (segments.isEmpty() || topic.isEmpty()) {
+            return new ChunkedSubscriberIterator(sources.build(), itemFilter);
+        }
+
+        final String[] topicPart = StringUtils.splitPreserveAllTokens(topic, '/');
+        collectMatchingNodes(topicPart[0], sources, topicPart);
+
+        //We now have to traverse the wildcard node if something matches here
+        if (!excludeRootLevelWildcard) {
+            collectMatchingNodes("+", sources, topicPart);
+        }
+
+        return new ChunkedSubscriberIterator(sources.build(), itemFilter);
+    }
+
+    private void collectMatchingNodes(@NotNull final String segmentKey,
+                                      @NotNull final ImmutableList.Builder<ChunkedSubscriberIterator.Source> sources,
+                                      @NotNull final String[] topicPart) {
+        final Lock lock = segmentLocks.get(segmentKey).readLock();
+        lock.lock();
+        try {
+            final Node firstSegmentNode = segments.get(segmentKey);
+            if (firstSegmentNode != null) {
+                collectMatchingNodes(firstSegmentNode, sources, topicPart, 0, lock);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Finds the same nodes as {@link #traverseTreeWithFilter}, but only remembers the nodes instead of adding their
+     * subscribers.
+     */
+    private void collectMatchingNodes(@NotNull final Node node,
+                                      @NotNull final ImmutableList.Builder<ChunkedSubscriberIterator.Source> sources,
+                                      @NotNull final String[] topicPart, final int depth, @NotNull final Lock lock) {
+
+        if (!topicPart[depth].equals(node.getTopicPart()) && !"+".equals(node.getTopicPart())) {
+            return;
+        }
+
+        if (node.wildcardSubscriberMap != null || node.getWildcardSubscribers() != null) {
+            sources.add(ChunkedSubscriberIterator.Source.wildcard(node, lock));
+        }
+
+        final boolean end = topicPart.length - 1 == depth;
+        if (end) {
+            if (NodeUtils.getExactSubscriberCount(node) > 0) {
+                sources.add(ChunkedSubscriberIterator.Source.exact(node, lock));
+            }
+            return;
+        }
+
+        if (NodeUtils.getChildrenCount(node) == 0) {
+            return;
+        }
+
+        //if the node has an index, we can just use the index instead of traversing the whole node set
+        if (node.getChildrenMap() != null) {
+            final Node matchingChildNode = getIndexForChildNode(topicPart[depth + 1], node);
+            final Node matchingWildcardNode = getIndexForChildNode("+", node);
+
+            if (matchingChildNode != null) {
+                collectMatchingNodes(matchingChildNode, sources, topicPart, depth + 1, lock);
+            }
+            if (matchingWildcardNode != null) {
+                collectMatchingNodes(matchingWildcardNode, sources, topicPart, depth + 1, lock);
+            }
+            return;
+        }
+
+        final Node[] children = node.getChildren();
+        if (children == null) {
+            return;
+        }
+        for (final Node childNode : children) {
+            if (childNode != null) {
+                collectMatchingNodes(childNode, sources, topicPart, depth + 1, lock);
+            }
+        }
+    }
+
+    @Override
+    public @NotNull ChunkedSubscriberIterator iterateSubscribersWithFilter(
+            @NotNull final String topicFilter, @NotNull final ItemFilter itemFilter) {
+        checkNotNull(topicFilter, "Topic filter must not be null");
+
+        if (topicFilter.equals("#")) {
+            return new ChunkedSubscriberIterator(
+                    ImmutableList.of(ChunkedSubscriberIterator.Source.rootWildcard(rootWildcardSubscribers)), itemFilter);
+        }
+
+        final String[] contents = StringUtils.splitPreserveAllTokens(topicFilter, '/');
+        final Lock lock = segmentLocks.get(contents[0]).readLock();
+        final Node node;
+        lock.lock();
+        try {
+            node = findNodeForTopicFilter(contents);
+        } finally {
+            lock.unlock();
+        }
+        if (node == null) {
+            return new ChunkedSubscriberIterator(ImmutableList.of(), itemFilter);
+        }
+
+        final ChunkedSubscriberIterator.Source source = contents[contents.length - 1].equals("#") ?
+                ChunkedSubscriberIterator.Source.wildcard(node, lock) :
+                ChunkedSubscriberIterator.Source.exact(node, lock);
+        return new ChunkedSubscriberIterator(ImmutableList.of(source), itemFilter);
+    }
+
+    /**
+     * Must be called while the read lock of the segment of the topic filter is held.
+     *
+     * @param contents the levels of the topic filter
+     * @return the node that stores the subscriptions of the topic filter or null if there is no such node
+     */
+    @Nullable
+    private Node findNodeForTopicFilter(@NotNull final String[] contents) {
+        Node node = segments.get(contents[0]);
+        if (node == null) {
+            return null;
+        }
+
+        contentLoop:
+        for (int i = 1; i < contents.length; i++) {
+            if (contents[i].equals("#")) {
+                break;
+            }
+
+            if (node.getChildren() == null && node.getChildrenMap() == null) {
+                // No matching node in the topic tree
+                return null;
+            }
+
+            final Node[] children = node.getChildren();
+            if (children != null) {
+                for (final Node child : children) {
+                    if (child != null && child.getTopicPart().equals(contents[i])) {
+                        node = child;
+                        continue contentLoop;
+                    }
+                    // No matching node in the topic tree
+                }
+            } else if (node.getChildrenMap() != null) {
+
+                for (final Node child : node.getChildrenMap().values()) {
+                    if (child != null && child.getTopicPart().equals(contents[i])) {
+                        node = child;
+                        continue contentLoop;
+                    }
+                    // No matching node in the topic tree
+                }
+            }
+            return null;
+        }
+        return node;
+    }
+
     @NotNull
     private ImmutableSet<String> createDistinctSubscriberIds(final ImmutableSet<SubscriberWithQoS> subscriptionsByFilters) {
 
@@ -887,44 +1078,11 @@ public class TopicTreeImpl implements LocalTopicTree {
         final Lock lock = segmentLocks.get(firstSegment).readLock();
         lock.lock();
         try {
-            Node node = segments.get(firstSegment);
+            final Node node = findNodeForTopicFilter(contents);
             if (node == null) {
                 return subscribers.build();
             }
 
-            contentLoop:
-            for (int i = 1; i < contents.length; i++) {
-                if (contents[i].equals("#")) {
-                    break;
-                }
-
-                if (node.getChildren() == null && node.getChildrenMap() == null) {
-                    // No matching node in the topic tree
-                    return subscribers.build();
-                }
-
-                final Node[] children = node.getChildren();
-                if (children != null) {
-                    for (final Node child : children) {
-                        if (child != null && child.getTopicPart().equals(contents[i])) {
-                            node = child;
-                            continue contentLoop;
-                        }
-                        // No matching node in the topic tree
-                    }
-                } else if (node.getChildrenMap() != null) {
-
-                    for (final Node child : node.getChildrenMap().values()) {
-                        if (child != null && child.getTopicPart().equals(contents[i])) {
-                            node = child;
-                            continue contentLoop;
-                        }
-                        // No matching node in the topic tree
-                    }
-                }
-                return subscribers.build();
-            }
-
             if (contents[contents.length - 1].equals("#")) {
                 if (node.wildcardSubscriberMap != null) {
                     for (final SubscriberWithQoS value : node.wildcardSubscriberMap.values()) {
@@ -116,15 +116,15 @@ public class PersistenceShutdownHook extends HiveMQShutdownHook {
         builder.add(retainedMessagePersistence.closeDB());
         builder.add(clientQueuePersistence.closeDB());
 
-        payloadPersistence.closeDB();
-
         //We have to use a direct executor service here because the usual persistence executor might already be shut down
         final ListenableFuture<Void> combinedFuture = FutureUtils.voidFutureFromList(builder.build());
 
         final int shutdownTimeout = PERSISTENCE_SHUTDOWN_TIMEOUT.get();
 
+        boolean closed = false;
         try {
             combinedFuture.get(shutdownTimeout, TimeUnit.SECONDS);
+            closed = true;
             if (log.isTraceEnabled()) {
                 log.trace("Finished persistence shutdown in {} ms", (System.currentTimeMillis() - start));
             }
@@ -135,6 +135,13 @@ public class PersistenceShutdownHook extends HiveMQShutdownHook {
             log.debug("Original Exception: ", e);
         }
 
+        // No persistence may change the payload reference counts anymore. References that are still held in memory
+        // are written as well and are reconciled with the persisted references after the next start.
+        if (closed) {
+            payloadPersistence.checkpointReferenceCounters();
+        }
+        payloadPersistence.closeDB();
+
         if (log.isTraceEnabled()) {
             start = System.currentTimeMillis();
             log.trace("Shutting down persistent stores");
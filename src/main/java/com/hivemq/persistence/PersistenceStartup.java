@@ -26,6 +26,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import static com.hivemq.configuration.service.InternalConfigurations.PERSISTENCE_STARTUP_SHUTDOWN_TIMEOUT;
@@ -60,6 +61,21 @@ public class PersistenceStartup extends HiveMQShutdownHook {
         environmentCreateExecutor.submit(createTask);
     }
 
+    /**
+     * Submits the initialization of a single persistence bucket. The environment create executor is used, because
+     * the buckets of a persistence are initialized right after all of its environments were created. If the startup
+     * is already finished, the task is run by the calling thread.
+     *
+     * @param initTask the initialization of a single bucket
+     */
+    public void submitBucketInit(@NotNull final Runnable initTask) {
+        try {
+            environmentCreateExecutor.submit(initTask);
+        } catch (final RejectedExecutionException e) {
+            initTask.run();
+        }
+    }
+
     public void submitPersistenceStart(@NotNull final FilePersistence filePersistence) {
         filePersistenceList.add(filePersistence);
         persistenceStartExecutor.submit(filePersistence::start);
@@ -79,7 +95,7 @@ public class PersistenceStartup extends HiveMQShutdownHook {
             log.trace("Waiting for environment create execution");
         }
 
-        log.trace("Initialized persistences in {}ms", System.currentTimeMillis() - start);
+        log.debug("Initialized persistences in {}ms", System.currentTimeMillis() - start);
     }
 
     public @NotNull String name() {
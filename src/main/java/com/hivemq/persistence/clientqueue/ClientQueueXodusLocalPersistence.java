@@ -32,8 +32,10 @@ import com.hivemq.mqtt.message.dropping.MessageDroppedService;
 import com.hivemq.mqtt.message.publish.PUBLISH;
 import com.hivemq.mqtt.message.pubrel.PUBREL;
 import com.hivemq.persistence.PersistenceStartup;
+import com.hivemq.persistence.local.xodus.BootstrapCheckpoint;
 import com.hivemq.persistence.local.xodus.EnvironmentUtil;
 import com.hivemq.persistence.local.xodus.XodusLocalPersistence;
+import com.hivemq.persistence.local.xodus.XodusPayloadReferenceSnapshot;
 import com.hivemq.persistence.local.xodus.bucket.Bucket;
 import com.hivemq.persistence.local.xodus.bucket.BucketUtils;
 import com.hivemq.persistence.payload.PublishPayloadPersistence;
@@ -50,6 +52,9 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
@@ -94,6 +99,9 @@ public class ClientQueueXodusLocalPersistence extends XodusLocalPersistence impl
     private final @NotNull AtomicLong qos0MessagesMemory = new AtomicLong();
     private final long qos0MemoryLimit;
 
+    // the persisted payload references on bootstrap, if the reference counts were restored instead of counted
+    private @Nullable XodusPayloadReferenceSnapshot referenceSnapshot;
+
     @Inject
     ClientQueueXodusLocalPersistence(
             final @NotNull PublishPayloadPersistence payloadPersistence,
@@ -166,21 +174,22 @@ public class ClientQueueXodusLocalPersistence extends XodusLocalPersistence impl
 
         Preconditions.checkNotNull(buckets, "Buckets must be initialized at this point");
 
-        for (int i = 0; i < buckets.length; i++) {
-            qos0MessageBuckets.put(i, new HashMap<>());
-            queueSizeBuckets.put(i, new ConcurrentSkipListMap<>());
-            retainedQueueSizeBuckets.put(i, new ConcurrentHashMap<>());
+        prepareBuckets();
+        final boolean countReferences = !payloadPersistence.restoreReferenceCountersOnBootstrap();
+        if (!countReferences) {
+            snapshotPayloadReferences();
         }
 
         final AtomicLong nextMessageIndex = new AtomicLong(Long.MAX_VALUE / 2);
 
-        for (final Bucket bucket : buckets) {
-
+        initBucketsInParallel(bucketIndex -> {
+            final Bucket bucket = buckets[bucketIndex];
             bucket.getEnvironment().executeInReadonlyTransaction(txn -> {
                 try (final Cursor cursor = bucket.getStore().openCursor(txn)) {
                     Key currentKey = null;
                     int queueSize = 0;
                     int retainedSize = 0;
+                    long maxMessageIndex = Long.MAX_VALUE / 2;
                     while (cursor.getNext()) {
 
                         final Key key = serializer.deserializeKeyId(cursor.getKey());
@@ -205,17 +214,20 @@ public class ClientQueueXodusLocalPersistence extends XodusLocalPersistence impl
                         final MessageWithID messageWithID = serializer.deserializeValue(cursor.getValue());
                         if (messageWithID instanceof PUBLISH) {
                             final long deserializeIndex = serializer.deserializeIndex(cursor.getKey());
-                            if (nextMessageIndex.get() < deserializeIndex) {
-                                nextMessageIndex.set(deserializeIndex);
+                            if (maxMessageIndex < deserializeIndex) {
+                                maxMessageIndex = deserializeIndex;
+                            }
+                            if (countReferences) {
+                                final PUBLISH publish = (PUBLISH) messageWithID;
+                                payloadPersistence.incrementReferenceCounterOnBootstrap(publish.getPayloadId());
                             }
-                            final PUBLISH publish = (PUBLISH) messageWithID;
-                            payloadPersistence.incrementReferenceCounterOnBootstrap(publish.getPayloadId());
                         }
                         queueSize++;
                         if (serializer.deserializeRetained(cursor.getValue())) {
                             retainedSize++;
                         }
                     }
+                    nextMessageIndex.accumulateAndGet(maxMessageIndex, Math::max);
 
                     //we do not put if we change bucket, therefor we must check after
                     //we must check this, because a bucket may be empty
@@ -236,11 +248,118 @@ public class ClientQueueXodusLocalPersistence extends XodusLocalPersistence impl
 
                 }
             });
-        }
+        });
 
         ClientQueuePersistenceSerializer.NEXT_PUBLISH_NUMBER.set(nextMessageIndex.get());
     }
 
+    private void snapshotPayloadReferences() {
+        referenceSnapshot = new XodusPayloadReferenceSnapshot(buckets, value -> {
+            final MessageWithID messageWithID = serializer.deserializeValue(value);
+            return messageWithID instanceof PUBLISH ? ((PUBLISH) messageWithID).getPayloadId() : null;
+        });
+        payloadPersistence.reconcileReferenceCountersOnBootstrap(referenceSnapshot);
+    }
+
+    private void prepareBuckets() {
+        for (int i = 0; i < buckets.length; i++) {
+            qos0MessageBuckets.put(i, new HashMap<>());
+            queueSizeBuckets.put(i, new ConcurrentSkipListMap<>());
+            retainedQueueSizeBuckets.put(i, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The qos 0 messages of the bucket are only kept in memory, so they are released before the bucket is closed.
+     * Afterwards the queue sizes and the payload reference counts only contain the persisted messages.
+     */
+    @Override
+    public void closeDB(final int bucketIndex) {
+        final Map<Key, LinkedList<PublishWithRetained>> qos0Messages = qos0MessageBuckets.get(bucketIndex);
+        if (qos0Messages != null) {
+            for (final Map.Entry<Key, LinkedList<PublishWithRetained>> entry : qos0Messages.entrySet()) {
+                final Key key = entry.getKey();
+                for (final PublishWithRetained qos0Message : entry.getValue()) {
+                    getOrPutQueueSize(key, bucketIndex).decrementAndGet();
+                    if (qos0Message.retained) {
+                        getOrPutRetainedQueueSize(key, bucketIndex).decrementAndGet();
+                    }
+                    increaseQos0MessagesMemory(qos0Message.publish.getEstimatedSizeInMemory() * -1);
+                    payloadPersistence.decrementReferenceCounter(qos0Message.publish.getPayloadId());
+                }
+            }
+            qos0Messages.clear();
+        }
+        if (referenceSnapshot != null) {
+            referenceSnapshot.release(bucketIndex);
+        }
+        super.closeDB(bucketIndex);
+    }
+
+    @NotNull
+    @Override
+    protected BootstrapCheckpoint.Codec checkpointCodec() {
+        return BootstrapCheckpoint.Codec.of(this::readCheckpoint, this::writeCheckpoint);
+    }
+
+    @NotNull
+    private Runnable readCheckpoint(@NotNull final DataInputStream in) throws IOException {
+        // the queue sizes are only valid together with the reference counts of the queued payloads
+        if (!payloadPersistence.restoreReferenceCountersOnBootstrap()) {
+            throw new IOException("Payload reference counts were not restored");
+        }
+        final long nextPublishNumber = in.readLong();
+        final List<Map<Key, AtomicInteger>> queueSizes = readQueueSizes(in);
+        final List<Map<Key, AtomicInteger>> retainedQueueSizes = readQueueSizes(in);
+
+        return () -> {
+            prepareBuckets();
+            for (int i = 0; i < bucketCount; i++) {
+                queueSizeBuckets.get(i).putAll(queueSizes.get(i));
+                retainedQueueSizeBuckets.get(i).putAll(retainedQueueSizes.get(i));
+            }
+            ClientQueuePersistenceSerializer.NEXT_PUBLISH_NUMBER.set(nextPublishNumber);
+            snapshotPayloadReferences();
+        };
+    }
+
+    private void writeCheckpoint(@NotNull final DataOutputStream out) throws IOException {
+        out.writeLong(ClientQueuePersistenceSerializer.NEXT_PUBLISH_NUMBER.get());
+        writeQueueSizes(out, queueSizeBuckets);
+        writeQueueSizes(out, retainedQueueSizeBuckets);
+    }
+
+    @NotNull
+    private List<Map<Key, AtomicInteger>> readQueueSizes(@NotNull final DataInputStream in) throws IOException {
+        final List<Map<Key, AtomicInteger>> queueSizes = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            final int size = in.readInt();
+            final Map<Key, AtomicInteger> bucketQueueSizes = new HashMap<>();
+            for (int j = 0; j < size; j++) {
+                final Key key = new Key(in.readUTF(), in.readBoolean());
+                bucketQueueSizes.put(key, new AtomicInteger(in.readInt()));
+            }
+            queueSizes.add(bucketQueueSizes);
+        }
+        return queueSizes;
+    }
+
+    private void writeQueueSizes(
+            @NotNull final DataOutputStream out,
+            @NotNull final Map<Integer, Map<Key, AtomicInteger>> queueSizes) throws IOException {
+        for (int i = 0; i < bucketCount; i++) {
+            final Map<Key, AtomicInteger> bucketQueueSizes = queueSizes.get(i);
+            out.writeInt(bucketQueueSizes.size());
+            for (final Map.Entry<Key, AtomicInteger> entry : bucketQueueSizes.entrySet()) {
+                out.writeUTF(entry.getKey().getQueueId());
+                out.writeBoolean(entry.getKey().isShared());
+                out.writeInt(entry.getValue().get());
+            }
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
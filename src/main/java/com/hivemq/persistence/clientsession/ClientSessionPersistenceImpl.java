@@ -23,6 +23,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.*;
 import com.hivemq.annotations.NotNull;
 import com.hivemq.annotations.Nullable;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.bootstrap.ioc.lazysingleton.LazySingleton;
 import com.hivemq.configuration.service.InternalConfigurations;
 import com.hivemq.logging.EventLog;
@@ -39,6 +40,7 @@ import com.hivemq.persistence.local.xodus.BucketChunkResult;
 import com.hivemq.persistence.local.xodus.MultipleChunkResult;
 import com.hivemq.persistence.payload.PublishPayloadPersistence;
 import com.hivemq.persistence.util.FutureUtils;
+import com.hivemq.persistence.util.ParallelBucketReader;
 import com.hivemq.util.ChannelAttributes;
 import com.hivemq.util.ClientSessions;
 import io.netty.channel.Channel;
@@ -75,6 +77,7 @@ public class ClientSessionPersistenceImpl extends AbstractPersistence implements
     private final @NotNull PendingWillMessages pendingWillMessages;
     private final @NotNull Mqtt5ServerDisconnector mqtt5ServerDisconnector;
     private final @NotNull Mqtt3ServerDisconnector mqtt3ServerDisconnector;
+    private final @NotNull ParallelBucketReader parallelBucketReader;
 
     @Inject
     public ClientSessionPersistenceImpl(final @NotNull ClientSessionLocalPersistence localPersistence,
@@ -86,13 +89,15 @@ public class ClientSessionPersistenceImpl extends AbstractPersistence implements
                                         final @NotNull PublishPayloadPersistence publishPayloadPersistence,
                                         final @NotNull PendingWillMessages pendingWillMessages,
                                         final @NotNull Mqtt5ServerDisconnector mqtt5ServerDisconnector,
-                                        final @NotNull Mqtt3ServerDisconnector mqtt3ServerDisconnector) {
+                                        final @NotNull Mqtt3ServerDisconnector mqtt3ServerDisconnector,
+                                        final @NotNull ParallelBucketReader parallelBucketReader) {
 
 
         this.localPersistence = localPersistence;
         this.subscriptionPersistence = sessionSubscriptionPersistence;
         this.clientQueuePersistence = clientQueuePersistence;
         singleWriter = singleWriterService.getClientSessionQueue();
+        this.parallelBucketReader = parallelBucketReader;
 
         this.channelPersistence = channelPersistence;
         this.eventLog = eventLog;
@@ -239,7 +244,7 @@ public class ClientSessionPersistenceImpl extends AbstractPersistence implements
             channel.attr(ChannelAttributes.CLIENT_SESSION_EXPIRY_INTERVAL).set(session.getSessionExpiryInterval());
         }
 
-        final ProtocolVersion version = channel.attr(ChannelAttributes.MQTT_VERSION).get();
+        final ProtocolVersion version = ClientConnection.of(channel).getProtocolVersion();
         final String logMessage = String.format("Disconnecting client with clientId '%s' forcibly via extension system.", clientId);
         final String eventLogMessage = "Disconnected via extension system";
 
@@ -474,14 +479,23 @@ public class ClientSessionPersistenceImpl extends AbstractPersistence implements
             final ImmutableList.Builder<ListenableFuture<@NotNull BucketChunkResult<Map<String, ClientSession>>>> builder = ImmutableList.builder();
 
             final int bucketCount = InternalConfigurations.PERSISTENCE_BUCKET_COUNT.get();
-            final int maxResults = InternalConfigurations.PERSISTENCE_CLIENT_SESSIONS_MAX_CHUNK_SIZE / (bucketCount - cursor.getFinishedBuckets().size());
+            final int unfinishedBuckets = bucketCount - cursor.getFinishedBuckets().size();
+            final int maxResults = parallelBucketReader.isEnabled() ?
+                    parallelBucketReader.maxResultsPerBucket(unfinishedBuckets) :
+                    InternalConfigurations.PERSISTENCE_CLIENT_SESSIONS_MAX_CHUNK_SIZE / unfinishedBuckets;
             for (int i = 0; i < bucketCount; i++) {
                 //skip already finished buckets
                 if (!cursor.getFinishedBuckets().contains(i)) {
                     final String lastKey = cursor.getLastKeys().get(i);
-                    builder.add(singleWriter.submit(i, (bucketIndex1, queueBuckets, queueIndex) -> {
-                        return localPersistence.getAllClientsChunk(MatchAllPersistenceFilter.INSTANCE, bucketIndex1, lastKey, maxResults);
-                    }));
+                    if (parallelBucketReader.isEnabled()) {
+                        final int bucketIndex = i;
+                        builder.add(parallelBucketReader.read(() ->
+                                localPersistence.getAllClientsChunk(MatchAllPersistenceFilter.INSTANCE, bucketIndex, lastKey, maxResults)));
+                    } else {
+                        builder.add(singleWriter.submit(i, (bucketIndex1, queueBuckets, queueIndex) -> {
+                            return localPersistence.getAllClientsChunk(MatchAllPersistenceFilter.INSTANCE, bucketIndex1, lastKey, maxResults);
+                        }));
+                    }
                 }
             }
 
@@ -24,6 +24,7 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.hivemq.annotations.NotNull;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.bootstrap.ioc.lazysingleton.LazySingleton;
 import com.hivemq.logging.EventLog;
 import com.hivemq.mqtt.message.QoS;
@@ -39,7 +40,7 @@ import com.hivemq.persistence.local.ClientSessionLocalPersistence;
 import com.hivemq.persistence.local.ClientSessionSubscriptionLocalPersistence;
 import com.hivemq.persistence.local.xodus.BucketChunkResult;
 import com.hivemq.persistence.local.xodus.MultipleChunkResult;
-import com.hivemq.util.ChannelAttributes;
+import com.hivemq.persistence.util.ParallelBucketReader;
 import io.netty.channel.Channel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -70,6 +71,7 @@ public class ClientSessionSubscriptionPersistenceImpl extends AbstractPersistenc
     private final @NotNull EventLog eventLog;
     private final @NotNull ClientSessionLocalPersistence clientSessionLocalPersistence;
     private final @NotNull PublishPollService publishPollService;
+    private final @NotNull ParallelBucketReader parallelBucketReader;
 
     @Inject
     ClientSessionSubscriptionPersistenceImpl(final @NotNull ClientSessionSubscriptionLocalPersistence localPersistence,
@@ -79,7 +81,8 @@ public class ClientSessionSubscriptionPersistenceImpl extends AbstractPersistenc
                                              final @NotNull ChannelPersistence channelPersistence,
                                              final @NotNull EventLog eventLog,
                                              final @NotNull ClientSessionLocalPersistence clientSessionLocalPersistence,
-                                             final @NotNull PublishPollService publishPollService) {
+                                             final @NotNull PublishPollService publishPollService,
+                                             final @NotNull ParallelBucketReader parallelBucketReader) {
 
         this.localPersistence = localPersistence;
         this.topicTree = topicTree;
@@ -89,6 +92,7 @@ public class ClientSessionSubscriptionPersistenceImpl extends AbstractPersistenc
         this.eventLog = eventLog;
         this.clientSessionLocalPersistence = clientSessionLocalPersistence;
         this.publishPollService = publishPollService;
+        this.parallelBucketReader = parallelBucketReader;
     }
 
     @NotNull
@@ -348,7 +352,7 @@ public class ClientSessionSubscriptionPersistenceImpl extends AbstractPersistenc
                 publishPollService.pollSharedPublishesForClient(clientId, sharedSubId, topic.getQoS().getQosNumber(), topic.getSubscriptionIdentifier(), channel);
                 sharedSubscriptionService.invalidateSharedSubscriptionCache(clientId);
                 sharedSubscriptionService.invalidateSharedSubscriberCache(sharedSubId);
-                channel.attr(ChannelAttributes.NO_SHARED_SUBSCRIPTION).set(false);
+                ClientConnection.of(channel).setNoSharedSubscription(false);
                 log.trace("Invalidated cache and polled for shared subscription '{}' and client '{}'", sharedSubId, clientId);
             }
         }
@@ -362,14 +366,23 @@ public class ClientSessionSubscriptionPersistenceImpl extends AbstractPersistenc
             final ImmutableList.Builder<ListenableFuture<@NotNull BucketChunkResult<Map<String, Set<Topic>>>>> builder = ImmutableList.builder();
 
             final int bucketCount = PERSISTENCE_BUCKET_COUNT.get();
-            final int maxResults = PERSISTENCE_SUBSCRIPTIONS_MAX_CHUNK_SIZE / (bucketCount - cursor.getFinishedBuckets().size());
+            final int unfinishedBuckets = bucketCount - cursor.getFinishedBuckets().size();
+            final int maxResults = parallelBucketReader.isEnabled() ?
+                    parallelBucketReader.maxResultsPerBucket(unfinishedBuckets) :
+                    PERSISTENCE_SUBSCRIPTIONS_MAX_CHUNK_SIZE / unfinishedBuckets;
             for (int i = 0; i < bucketCount; i++) {
                 //skip already finished buckets
                 if (!cursor.getFinishedBuckets().contains(i)) {
                     final String lastKey = cursor.getLastKeys().get(i);
-                    builder.add(singleWriter.submit(i, (bucketIndex1, queueBuckets, queueIndex) -> {
-                        return localPersistence.getAllSubscribersChunk(MatchAllPersistenceFilter.INSTANCE, bucketIndex1, lastKey, maxResults);
-                    }));
+                    if (parallelBucketReader.isEnabled()) {
+                        final int bucketIndex = i;
+                        builder.add(parallelBucketReader.read(() ->
+                                localPersistence.getAllSubscribersChunk(MatchAllPersistenceFilter.INSTANCE, bucketIndex, lastKey, maxResults)));
+                    } else {
+                        builder.add(singleWriter.submit(i, (bucketIndex1, queueBuckets, queueIndex) -> {
+                            return localPersistence.getAllSubscribersChunk(MatchAllPersistenceFilter.INSTANCE, bucketIndex1, lastKey, maxResults);
+                        }));
+                    }
                 }
             }
 
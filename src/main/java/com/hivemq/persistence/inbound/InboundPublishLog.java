@@ -0,0 +1,550 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.persistence.inbound;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.hivemq.annotations.Immutable;
+import com.hivemq.annotations.NotNull;
+import com.hivemq.annotations.Nullable;
+import com.hivemq.bootstrap.ioc.lazysingleton.LazySingleton;
+import com.hivemq.common.shutdown.HiveMQShutdownHook;
+import com.hivemq.common.shutdown.ShutdownHooks;
+import com.hivemq.configuration.service.InternalConfigurations;
+import com.hivemq.metrics.HiveMQMetrics;
+import com.hivemq.mqtt.message.publish.PUBLISH;
+import com.hivemq.util.Bytes;
+import com.hivemq.util.LocalPersistenceFileUtil;
+import com.hivemq.util.ThreadFactoryUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * A durable log of the PUBLISHes that are acknowledged before they are distributed to the subscribers.
+ * <p>
+ * The log consists of segment files which are named after the first sequence number that was assigned while they were
+ * written. Every record consists of its length, a CRC32 checksum and a body of its type, a sequence number and the
+ * serialized PUBLISH. A PUBLISH is marked as distributed with a complete record of the same sequence number.
+ * <p>
+ * All records are written by a single writer thread. The writer appends all queued records and syncs the segment only
+ * once before the append futures are completed, so the cost of the sync is shared by all concurrent publishers.
+ * A segment is deleted as soon as it is the oldest segment and all of its PUBLISHes are complete. If no PUBLISH is
+ * pending when the log is closed, all segments are deleted.
+ */
+@LazySingleton
+public class InboundPublishLog {
+
+    private static final Logger log = LoggerFactory.getLogger(InboundPublishLog.class);
+
+    public static final String PERSISTENCE_NAME = "inbound_publish_log";
+    public static final String PERSISTENCE_VERSION = "040000";
+
+    private static final String SEGMENT_FILE_SUFFIX = ".log";
+    private static final byte RECORD_PUBLISH = 1;
+    private static final byte RECORD_COMPLETE = 2;
+    // length and checksum of the body
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    // type and sequence number
+    private static final int RECORD_BODY_HEADER_SIZE = 1 + Long.BYTES;
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private final @NotNull File folder;
+    private final long segmentSize;
+    private final int maxBatchSize;
+    private final @NotNull InboundPublishLogSerializer serializer = new InboundPublishLogSerializer();
+    private final @NotNull BlockingQueue<Request> requests = new LinkedBlockingQueue<>();
+
+    private final @NotNull Timer appendTimer;
+    private final @NotNull Counter replayedCounter;
+    private final @NotNull AtomicLong pending = new AtomicLong();
+
+    // only accessed by the writer thread once it is started
+    private final @NotNull TreeMap<Long, Segment> segments = new TreeMap<>();
+    private @Nullable Segment currentSegment;
+    private long nextSequence = 1;
+
+    private volatile @Nullable Thread writer;
+    private volatile boolean closed;
+
+    @Inject
+    InboundPublishLog(final @NotNull LocalPersistenceFileUtil localPersistenceFileUtil,
+                      final @NotNull MetricRegistry metricRegistry,
+                      final @NotNull ShutdownHooks shutdownHooks) {
+        this(localPersistenceFileUtil.getVersionedLocalPersistenceFolder(PERSISTENCE_NAME, PERSISTENCE_VERSION),
+                metricRegistry, InternalConfigurations.INBOUND_PUBLISH_LOG_SEGMENT_SIZE,
+                InternalConfigurations.INBOUND_PUBLISH_LOG_MAX_BATCH_SIZE);
+        shutdownHooks.add(new InboundPublishLogShutdownHook(this));
+    }
+
+    @VisibleForTesting
+    InboundPublishLog(final @NotNull File folder,
+                      final @NotNull MetricRegistry metricRegistry,
+                      final long segmentSize,
+                      final int maxBatchSize) {
+        this.folder = folder;
+        this.segmentSize = segmentSize;
+        this.maxBatchSize = maxBatchSize;
+
+        appendTimer = metricRegistry.timer(HiveMQMetrics.INBOUND_PUBLISH_LOG_APPEND_TIME.name());
+        replayedCounter = metricRegistry.counter(HiveMQMetrics.INBOUND_PUBLISH_LOG_REPLAYED_COUNT.name());
+        metricRegistry.register(HiveMQMetrics.INBOUND_PUBLISH_LOG_PENDING_CURRENT.name(), (Gauge<Number>) pending::get);
+    }
+
+    /**
+     * @return true if the log contains segments from a previous run, which may contain PUBLISHes that have to be
+     * recovered
+     */
+    public boolean hasSegments() {
+        final File[] files = folder.listFiles((dir, name) -> name.endsWith(SEGMENT_FILE_SUFFIX));
+        return files != null && files.length > 0;
+    }
+
+    /**
+     * Reads the existing segments and starts the writer. Must be called once before any PUBLISH is appended.
+     *
+     * @return the PUBLISHes which were appended but not completed before, in the order they were appended
+     * @throws IOException if the log can not be read or a new segment can not be created
+     */
+    public synchronized @NotNull List<Entry> recover() throws IOException {
+        Preconditions.checkState(writer == null, "The inbound publish log is already recovered");
+
+        final TreeMap<Long, File> segmentFiles = new TreeMap<>();
+        final File[] files = folder.listFiles((dir, name) -> name.endsWith(SEGMENT_FILE_SUFFIX));
+        if (files != null) {
+            for (final File file : files) {
+                final String name = file.getName();
+                try {
+                    segmentFiles.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_FILE_SUFFIX.length())), file);
+                } catch (final NumberFormatException e) {
+                    log.warn("Ignoring unknown file {} in the inbound publish log", file.getAbsolutePath());
+                }
+            }
+        }
+
+        final Map<Long, Entry> incomplete = new LinkedHashMap<>();
+        long lastSequence = 0;
+        for (final Map.Entry<Long, File> segmentFile : segmentFiles.entrySet()) {
+            final Segment segment = new Segment(segmentFile.getKey(), segmentFile.getValue());
+            segments.put(segment.firstSequence, segment);
+            lastSequence = Math.max(lastSequence, Math.max(segment.firstSequence, readSegment(segment.file, incomplete)));
+        }
+        nextSequence = lastSequence + 1;
+
+        for (final Entry entry : incomplete.values()) {
+            segments.floorEntry(entry.getSequence()).getValue().pending++;
+        }
+        pending.set(incomplete.size());
+        replayedCounter.inc(incomplete.size());
+        deleteCompletedSegments();
+        openSegment();
+
+        final Thread writer = ThreadFactoryUtil.create("inbound-publish-log-writer-%d").newThread(this::writeLoop);
+        this.writer = writer;
+        writer.start();
+
+        if (!incomplete.isEmpty()) {
+            log.info("Recovered {} not yet distributed PUBLISHes from the inbound publish log", incomplete.size());
+        }
+        return new ArrayList<>(incomplete.values());
+    }
+
+    /**
+     * Appends a PUBLISH to the log.
+     *
+     * @param publish the PUBLISH to append
+     * @param sender  the client id of the sender or null if the PUBLISH was not sent by a client
+     * @return a future which completes with the sequence number of the PUBLISH as soon as it is durable
+     */
+    public @NotNull ListenableFuture<Long> append(final @NotNull PUBLISH publish, final @Nullable String sender) {
+        if (writer == null || closed) {
+            return Futures.immediateFailedFuture(new IllegalStateException("The inbound publish log is not open"));
+        }
+        final SettableFuture<Long> future = SettableFuture.create();
+        requests.add(new Request(serializer.serialize(publish, sender), future, appendTimer.time()));
+        return future;
+    }
+
+    /**
+     * Marks a PUBLISH as distributed to all of its subscribers, so it is not replayed after a restart.
+     *
+     * @param sequence the sequence number of the PUBLISH
+     */
+    public void complete(final long sequence) {
+        if (writer == null || closed) {
+            return;
+        }
+        requests.add(new Request(sequence));
+    }
+
+    /**
+     * Stops the writer after all queued records are written.
+     */
+    public synchronized void close() {
+        closed = true;
+        final Thread writer = this.writer;
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long readSegment(final @NotNull File file, final @NotNull Map<Long, Entry> incomplete) throws IOException {
+        final long fileLength = file.length();
+        long lastSequence = 0;
+        try (final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                final int length;
+                final int checksum;
+                final byte[] body;
+                try {
+                    length = input.readInt();
+                    checksum = input.readInt();
+                    if (length < RECORD_BODY_HEADER_SIZE || length > fileLength) {
+                        log.warn("Inbound publish log segment {} contains an invalid record, the rest of the segment is skipped",
+                                file.getAbsolutePath());
+                        break;
+                    }
+                    body = new byte[length];
+                    input.readFully(body);
+                } catch (final EOFException e) {
+                    // the end of the segment or a record that was not written completely
+                    break;
+                }
+                if (checksum(body) != checksum) {
+                    log.warn("Inbound publish log segment {} contains a corrupt record, the rest of the segment is skipped",
+                            file.getAbsolutePath());
+                    break;
+                }
+
+                final long sequence = Bytes.readLong(body, 1);
+                lastSequence = Math.max(lastSequence, sequence);
+                if (body[0] == RECORD_PUBLISH) {
+                    incomplete.put(sequence, serializer.deserialize(sequence, body, RECORD_BODY_HEADER_SIZE));
+                } else if (body[0] == RECORD_COMPLETE) {
+                    incomplete.remove(sequence);
+                }
+            }
+        }
+        return lastSequence;
+    }
+
+    private void writeLoop() {
+        final List<Request> batch = new ArrayList<>(maxBatchSize);
+        while (!closed || !requests.isEmpty()) {
+            try {
+                final Request request = requests.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (request == null) {
+                    continue;
+                }
+                batch.add(request);
+                requests.drainTo(batch, maxBatchSize - 1);
+                write(batch);
+            } catch (final InterruptedException e) {
+                break;
+            } catch (final Exception e) {
+                log.error("Unexpected error in the inbound publish log writer", e);
+                failAppends(batch, e);
+            } finally {
+                batch.clear();
+            }
+        }
+
+        final IllegalStateException closedException = new IllegalStateException("The inbound publish log is closed");
+        requests.drainTo(batch);
+        failAppends(batch, closedException);
+        for (final Segment segment : segments.values()) {
+            segment.closeChannel();
+        }
+        if (pending.get() == 0) {
+            // nothing has to be replayed on the next start
+            for (final Segment segment : segments.values()) {
+                if (!segment.file.delete()) {
+                    log.warn("Not able to delete the inbound publish log segment {}", segment.file.getAbsolutePath());
+                }
+            }
+            segments.clear();
+        }
+    }
+
+    private void write(final @NotNull List<Request> batch) {
+        final Segment segment = currentSegment;
+        Preconditions.checkState(segment != null && segment.channel != null, "The inbound publish log has no open segment");
+
+        final ByteBuffer[] records = new ByteBuffer[batch.size()];
+        long recordsSize = 0;
+        boolean sync = false;
+        for (int i = 0; i < batch.size(); i++) {
+            final Request request = batch.get(i);
+            if (request.future != null) {
+                request.sequence = nextSequence++;
+                sync = true;
+            }
+            records[i] = record(request);
+            recordsSize += records[i].remaining();
+        }
+
+        try {
+            long written = 0;
+            while (written < recordsSize) {
+                written += segment.channel.write(records);
+            }
+            // complete records do not have to be synced, a lost complete record only leads to a duplicate replay
+            if (sync) {
+                segment.channel.force(false);
+            }
+            segment.size += recordsSize;
+        } catch (final IOException e) {
+            log.error("Not able to write to the inbound publish log segment {}: {}", segment.file.getAbsolutePath(), e.getMessage());
+            log.debug("Original Exception:", e);
+            failAppends(batch, e);
+            // a partially written record would hide all following records during the recovery
+            try {
+                segment.channel.truncate(segment.size);
+                segment.channel.position(segment.size);
+            } catch (final IOException truncateException) {
+                log.error("Not able to truncate the inbound publish log segment {}: {}", segment.file.getAbsolutePath(),
+                        truncateException.getMessage());
+            }
+            return;
+        }
+
+        for (final Request request : batch) {
+            if (request.future != null) {
+                segment.pending++;
+                pending.incrementAndGet();
+                request.timerContext.stop();
+                request.future.set(request.sequence);
+            } else {
+                final Map.Entry<Long, Segment> entry = segments.floorEntry(request.sequence);
+                if (entry != null && entry.getValue().pending > 0) {
+                    entry.getValue().pending--;
+                    pending.decrementAndGet();
+                }
+            }
+        }
+
+        if (segment.size >= segmentSize) {
+            try {
+                openSegment();
+                segment.closeChannel();
+            } catch (final IOException e) {
+                log.error("Not able to create a new inbound publish log segment: {}", e.getMessage());
+                log.debug("Original Exception:", e);
+            }
+        }
+        deleteCompletedSegments();
+    }
+
+    private void openSegment() throws IOException {
+        if (!segments.isEmpty()) {
+            // every segment must start with a higher sequence number than the segment before
+            nextSequence = Math.max(nextSequence, segments.lastKey() + 1);
+        }
+        final Segment segment = new Segment(nextSequence, new File(folder, String.format("%020d", nextSequence) + SEGMENT_FILE_SUFFIX));
+        segment.channel = FileChannel.open(segment.file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segments.put(segment.firstSequence, segment);
+        currentSegment = segment;
+        syncFolder();
+    }
+
+    /**
+     * Syncs the folder, so a new segment can not get lost together with the records that were synced to it.
+     */
+    private void syncFolder() {
+        try (final FileChannel channel = FileChannel.open(folder.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (final IOException e) {
+            // not every platform supports to sync a directory
+            log.debug("Not able to sync the inbound publish log folder {}", folder.getAbsolutePath(), e);
+        }
+    }
+
+    private void deleteCompletedSegments() {
+        while (!segments.isEmpty()) {
+            final Segment oldest = segments.firstEntry().getValue();
+            if (oldest == currentSegment || oldest.pending > 0) {
+                return;
+            }
+            segments.pollFirstEntry();
+            oldest.closeChannel();
+            if (!oldest.file.delete()) {
+                log.warn("Not able to delete the inbound publish log segment {}", oldest.file.getAbsolutePath());
+            }
+        }
+    }
+
+    private static void failAppends(final @NotNull List<Request> batch, final @NotNull Throwable cause) {
+        for (final Request request : batch) {
+            if (request.future != null) {
+                request.future.setException(cause);
+            }
+        }
+    }
+
+    private static @NotNull ByteBuffer record(final @NotNull Request request) {
+        final byte[] publish = request.publish;
+        final int bodyLength = RECORD_BODY_HEADER_SIZE + (publish == null ? 0 : publish.length);
+        final byte[] record = new byte[RECORD_HEADER_SIZE + bodyLength];
+
+        record[RECORD_HEADER_SIZE] = publish == null ? RECORD_COMPLETE : RECORD_PUBLISH;
+        Bytes.copyLongToByteArray(request.sequence, record, RECORD_HEADER_SIZE + 1);
+        if (publish != null) {
+            System.arraycopy(publish, 0, record, RECORD_HEADER_SIZE + RECORD_BODY_HEADER_SIZE, publish.length);
+        }
+
+        final CRC32 crc = new CRC32();
+        crc.update(record, RECORD_HEADER_SIZE, bodyLength);
+        Bytes.copyIntToByteArray(bodyLength, record, 0);
+        Bytes.copyIntToByteArray((int) crc.getValue(), record, Integer.BYTES);
+        return ByteBuffer.wrap(record);
+    }
+
+    private static int checksum(final @NotNull byte[] body) {
+        final CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * A PUBLISH that was appended to the log.
+     */
+    @Immutable
+    public static class Entry {
+
+        private final long sequence;
+        private final @NotNull PUBLISH publish;
+        private final @Nullable String sender;
+
+        Entry(final long sequence, final @NotNull PUBLISH publish, final @Nullable String sender) {
+            this.sequence = sequence;
+            this.publish = publish;
+            this.sender = sender;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public @NotNull PUBLISH getPublish() {
+            return publish;
+        }
+
+        public @Nullable String getSender() {
+            return sender;
+        }
+    }
+
+    private static class Segment {
+
+        private final long firstSequence;
+        private final @NotNull File file;
+        private @Nullable FileChannel channel;
+        private long size;
+        private int pending;
+
+        Segment(final long firstSequence, final @NotNull File file) {
+            this.firstSequence = firstSequence;
+            this.file = file;
+        }
+
+        void closeChannel() {
+            final FileChannel channel = this.channel;
+            if (channel == null) {
+                return;
+            }
+            this.channel = null;
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                log.debug("Not able to close the inbound publish log segment {}", file.getAbsolutePath(), e);
+            }
+        }
+    }
+
+    private static class Request {
+
+        private final @Nullable byte[] publish;
+        private final @Nullable SettableFuture<Long> future;
+        private final @Nullable Timer.Context timerContext;
+        private long sequence;
+
+        Request(final @NotNull byte[] publish, final @NotNull SettableFuture<Long> future, final @NotNull Timer.Context timerContext) {
+            this.publish = publish;
+            this.future = future;
+            this.timerContext = timerContext;
+        }
+
+        Request(final long sequence) {
+            this.publish = null;
+            this.future = null;
+            this.timerContext = null;
+            this.sequence = sequence;
+        }
+    }
+
+    private static class InboundPublishLogShutdownHook extends HiveMQShutdownHook {
+
+        private final @NotNull InboundPublishLog inboundPublishLog;
+
+        InboundPublishLogShutdownHook(final @NotNull InboundPublishLog inboundPublishLog) {
+            this.inboundPublishLog = inboundPublishLog;
+        }
+
+        @Override
+        public @NotNull String name() {
+            return "Inbound Publish Log shutdown";
+        }
+
+        @Override
+        public @NotNull Priority priority() {
+            return Priority.DOES_NOT_MATTER;
+        }
+
+        @Override
+        public boolean isAsynchronous() {
+            return false;
+        }
+
+        @Override
+        public void run() {
+            inboundPublishLog.close();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.persistence.inbound;
+
+import com.hivemq.annotations.NotNull;
+import com.hivemq.annotations.Nullable;
+import com.hivemq.codec.encoder.mqtt5.Mqtt5PayloadFormatIndicator;
+import com.hivemq.mqtt.message.QoS;
+import com.hivemq.mqtt.message.mqtt5.Mqtt5UserProperties;
+import com.hivemq.mqtt.message.mqtt5.PropertiesSerializationUtil;
+import com.hivemq.mqtt.message.publish.PUBLISH;
+import com.hivemq.mqtt.message.publish.PUBLISHFactory;
+import com.hivemq.persistence.local.xodus.XodusUtils;
+import com.hivemq.util.Bytes;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Serializes the PUBLISHes of the {@link InboundPublishLog} together with their sender. The payload is always stored
+ * inline, because the payload persistence does not know the PUBLISH yet when it is appended to the log.
+ */
+class InboundPublishLogSerializer {
+
+    private static final byte RETAIN_BIT = (byte) 0b0010_0000;
+    private static final byte QOS_BITS = (byte) 0b0000_0011;
+
+    private static final byte SENDER_PRESENT_BIT = (byte) 0b1000_0000;
+    private static final byte RESPONSE_TOPIC_PRESENT_BIT = (byte) 0b0100_0000;
+    private static final byte CONTENT_TYPE_PRESENT_BIT = (byte) 0b0010_0000;
+    private static final byte CORRELATION_DATA_PRESENT_BIT = (byte) 0b0001_0000;
+    private static final byte USER_PROPERTIES_PRESENT_BIT = (byte) 0b0000_1000;
+
+    @NotNull
+    byte[] serialize(@NotNull final PUBLISH publish, @Nullable final String sender) {
+
+        final byte[] topic = publish.getTopic().getBytes(UTF_8);
+        final byte[] hivemqId = publish.getHivemqId().getBytes(UTF_8);
+        final byte[] senderBytes = sender == null ? null : sender.getBytes(UTF_8);
+        final byte[] responseTopic = publish.getResponseTopic() == null ? null : publish.getResponseTopic().getBytes(UTF_8);
+        final byte[] contentType = publish.getContentType() == null ? null : publish.getContentType().getBytes(UTF_8);
+        final byte[] correlationData = publish.getCorrelationData();
+        final int payloadFormatIndicator = publish.getPayloadFormatIndicator() != null ? publish.getPayloadFormatIndicator().getCode() : -1;
+        final Mqtt5UserProperties userProperties = publish.getUserProperties();
+        final byte[] payload = publish.getPayload();
+        final int payloadLength = payload == null ? 0 : payload.length;
+
+        final byte[] result = new byte[
+                1 + // retain, qos
+                        1 + // present flags
+                        XodusUtils.shortLengthArraySize(topic) + // topic
+                        XodusUtils.shortLengthArraySize(hivemqId) + // hivemq id
+                        (senderBytes == null ? 0 : XodusUtils.shortLengthArraySize(senderBytes)) + // sender
+                        Long.BYTES + // timestamp
+                        Long.BYTES + // publish id
+                        Long.BYTES + // message expiry
+                        (responseTopic == null ? 0 : XodusUtils.shortLengthArraySize(responseTopic)) + // response topic
+                        (contentType == null ? 0 : XodusUtils.shortLengthArraySize(contentType)) + // content type
+                        (correlationData == null ? 0 : XodusUtils.shortLengthArraySize(correlationData)) + // correlation data
+                        1 + // payload format indicator
+                        Integer.BYTES + payloadLength + // payload
+                        (userProperties.size() == 0 ? 0 : PropertiesSerializationUtil.encodedSize(userProperties))
+                ];
+
+        int cursor = 0;
+
+        byte flags = (byte) publish.getQoS().getQosNumber();
+        if (publish.isRetain()) {
+            flags |= RETAIN_BIT;
+        }
+        cursor = XodusUtils.serializeByte(flags, result, cursor);
+
+        byte presentFlags = (byte) 0b0000_0000;
+        if (senderBytes != null) {
+            presentFlags |= SENDER_PRESENT_BIT;
+        }
+        if (responseTopic != null) {
+            presentFlags |= RESPONSE_TOPIC_PRESENT_BIT;
+        }
+        if (contentType != null) {
+            presentFlags |= CONTENT_TYPE_PRESENT_BIT;
+        }
+        if (correlationData != null) {
+            presentFlags |= CORRELATION_DATA_PRESENT_BIT;
+        }
+        if (userProperties.size() > 0) {
+            presentFlags |= USER_PROPERTIES_PRESENT_BIT;
+        }
+        cursor = XodusUtils.serializeByte(presentFlags, result, cursor);
+
+        cursor = XodusUtils.serializeShortLengthArray(topic, result, cursor);
+        cursor = XodusUtils.serializeShortLengthArray(hivemqId, result, cursor);
+        if (senderBytes != null) {
+            cursor = XodusUtils.serializeShortLengthArray(senderBytes, result, cursor);
+        }
+        cursor = XodusUtils.serializeLong(publish.getTimestamp(), result, cursor);
+        cursor = XodusUtils.serializeLong(publish.getLocalPublishId(), result, cursor);
+        cursor = XodusUtils.serializeLong(publish.getMessageExpiryInterval(), result, cursor);
+        if (responseTopic != null) {
+            cursor = XodusUtils.serializeShortLengthArray(responseTopic, result, cursor);
+        }
+        if (contentType != null) {
+            cursor = XodusUtils.serializeShortLengthArray(contentType, result, cursor);
+        }
+        if (correlationData != null) {
+            cursor = XodusUtils.serializeShortLengthArray(correlationData, result, cursor);
+        }
+        cursor = XodusUtils.serializeByte((byte) payloadFormatIndicator, result, cursor);
+
+        Bytes.copyIntToByteArray(payloadLength, result, cursor);
+        cursor += Integer.BYTES;
+        if (payload != null) {
+            System.arraycopy(payload, 0, result, cursor, payloadLength);
+            cursor += payloadLength;
+        }
+
+        if (userProperties.size() > 0) {
+            PropertiesSerializationUtil.write(userProperties, result, cursor);
+        }
+
+        return result;
+    }
+
+    @NotNull
+    InboundPublishLog.Entry deserialize(final long sequence, @NotNull final byte[] serialized, final int offset) {
+        final PUBLISHFactory.Mqtt5Builder builder = new PUBLISHFactory.Mqtt5Builder();
+
+        int cursor = offset;
+
+        builder.withQoS(QoS.valueOf(serialized[cursor] & QOS_BITS));
+        builder.withRetain((serialized[cursor] & RETAIN_BIT) == RETAIN_BIT);
+        cursor += 1;
+
+        final byte presentFlags = serialized[cursor];
+        cursor += 1;
+
+        final int topicLength = Bytes.readUnsignedShort(serialized, cursor);
+        cursor += Short.BYTES;
+        builder.withTopic(new String(serialized, cursor, topicLength, UTF_8));
+        cursor += topicLength;
+
+        final int hivemqIdLength = Bytes.readUnsignedShort(serialized, cursor);
+        cursor += Short.BYTES;
+        builder.withHivemqId(new String(serialized, cursor, hivemqIdLength, UTF_8));
+        cursor += hivemqIdLength;
+
+        String sender = null;
+        if ((presentFlags & SENDER_PRESENT_BIT) == SENDER_PRESENT_BIT) {
+            final int senderLength = Bytes.readUnsignedShort(serialized, cursor);
+            cursor += Short.BYTES;
+            sender = new String(serialized, cursor, senderLength, UTF_8);
+            cursor += senderLength;
+        }
+
+        builder.withTimestamp(Bytes.readLong(serialized, cursor));
+        cursor += Long.BYTES;
+
+        builder.withPublishId(Bytes.readLong(serialized, cursor));
+        cursor += Long.BYTES;
+
+        builder.withMessageExpiryInterval(Bytes.readLong(serialized, cursor));
+        cursor += Long.BYTES;
+
+        if ((presentFlags & RESPONSE_TOPIC_PRESENT_BIT) == RESPONSE_TOPIC_PRESENT_BIT) {
+            final int responseTopicLength = Bytes.readUnsignedShort(serialized, cursor);
+            cursor += Short.BYTES;
+            builder.withResponseTopic(new String(serialized, cursor, responseTopicLength, UTF_8));
+            cursor += responseTopicLength;
+        }
+
+        if ((presentFlags & CONTENT_TYPE_PRESENT_BIT) == CONTENT_TYPE_PRESENT_BIT) {
+            final int contentTypeLength = Bytes.readUnsignedShort(serialized, cursor);
+            cursor += Short.BYTES;
+            builder.withContentType(new String(serialized, cursor, contentTypeLength, UTF_8));
+            cursor += contentTypeLength;
+        }
+
+        if ((presentFlags & CORRELATION_DATA_PRESENT_BIT) == CORRELATION_DATA_PRESENT_BIT) {
+            final int correlationDataLength = Bytes.readUnsignedShort(serialized, cursor);
+            cursor += Short.BYTES;
+            final byte[] correlationData = new byte[correlationDataLength];
+            System.arraycopy(serialized, cursor, correlationData, 0, correlationDataLength);
+            builder.withCorrelationData(correlationData);
+            cursor += correlationDataLength;
+        }
+
+        builder.withPayloadFormatIndicator(Mqtt5PayloadFormatIndicator.fromCode(serialized[cursor]));
+        cursor += 1;
+
+        final int payloadLength = Bytes.readInt(serialized, cursor);
+        cursor += Integer.BYTES;
+        final byte[] payload = new byte[payloadLength];
+        System.arraycopy(serialized, cursor, payload, 0, payloadLength);
+        builder.withPayload(payload);
+        cursor += payloadLength;
+
+        if ((presentFlags & USER_PROPERTIES_PRESENT_BIT) == USER_PROPERTIES_PRESENT_BIT) {
+            builder.withUserProperties(PropertiesSerializationUtil.read(serialized, cursor));
+        }
+
+        return new InboundPublishLog.Entry(sequence, builder.build(), sender);
+    }
+}
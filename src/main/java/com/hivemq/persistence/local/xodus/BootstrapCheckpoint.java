@@ -0,0 +1,189 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.persistence.local.xodus;
+
+import com.hivemq.annotations.NotNull;
+import com.hivemq.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A checkpoint of the in-memory state that a file persistence derives from its persisted entries on startup.
+ * <p>
+ * The checkpoint is written when the persistence is closed cleanly and is deleted as soon as it was read, so a
+ * checkpoint is only ever used for the start directly after a clean shutdown. After a crash the persistence falls back
+ * to scanning its entries.
+ *
+ * @since 4.1
+ */
+public class BootstrapCheckpoint {
+
+    private static final String FILE_NAME = "bootstrap.checkpoint";
+    private static final int FORMAT_VERSION = 1;
+    private static final long END_MARKER = 0x4B50_4F49_4E54_454EL;
+
+    /**
+     * Reads the persistence specific part of a checkpoint.
+     */
+    public interface Reader {
+
+        /**
+         * @param in the input to read from
+         * @return the action that applies the state that was read, it is only run if the whole checkpoint is valid
+         * @throws IOException if the checkpoint can not be read
+         */
+        @NotNull Runnable read(@NotNull DataInputStream in) throws IOException;
+    }
+
+    /**
+     * Writes the persistence specific part of a checkpoint.
+     */
+    public interface Writer {
+
+        void write(@NotNull DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Reads and writes the persistence specific part of a checkpoint.
+     */
+    public interface Codec extends Reader, Writer {
+
+        static @NotNull Codec of(final @NotNull Reader reader, final @NotNull Writer writer) {
+            return new Codec() {
+                @Override
+                public @NotNull Runnable read(final @NotNull DataInputStream in) throws IOException {
+                    return reader.read(in);
+                }
+
+                @Override
+                public void write(final @NotNull DataOutputStream out) throws IOException {
+                    writer.write(out);
+                }
+            };
+        }
+    }
+
+    private final @NotNull File file;
+    private final @NotNull String persistenceVersion;
+    private final int bucketCount;
+    private final @NotNull Logger logger;
+
+    public BootstrapCheckpoint(
+            final @NotNull File persistenceFolder,
+            final @NotNull String persistenceVersion,
+            final int bucketCount,
+            final @NotNull Logger logger) {
+        this(persistenceFolder, FILE_NAME, persistenceVersion, bucketCount, logger);
+    }
+
+    public BootstrapCheckpoint(
+            final @NotNull File persistenceFolder,
+            final @NotNull String fileName,
+            final @NotNull String persistenceVersion,
+            final int bucketCount,
+            final @NotNull Logger logger) {
+        this.file = new File(persistenceFolder, fileName);
+        this.persistenceVersion = persistenceVersion;
+        this.bucketCount = bucketCount;
+        this.logger = logger;
+    }
+
+    /**
+     * Restores the state of a checkpoint and deletes the checkpoint.
+     *
+     * @param reader the reader for the persistence specific part
+     * @return true if the state was restored, false if there is no valid checkpoint
+     */
+    public boolean restore(final @NotNull Reader reader) {
+        if (!file.exists()) {
+            return false;
+        }
+        final Runnable apply;
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            apply = readChecked(in, reader);
+        } catch (final IOException e) {
+            logger.warn("Not able to read the bootstrap checkpoint {}, the persistence is scanned instead", file.getAbsolutePath());
+            logger.debug("Original Exception:", e);
+            delete();
+            return false;
+        }
+        // the checkpoint must be gone before the state is used, it would be outdated after a crash
+        if (!delete() || apply == null) {
+            return false;
+        }
+        apply.run();
+        return true;
+    }
+
+    /**
+     * Writes a new checkpoint, an existing checkpoint is replaced atomically.
+     *
+     * @param writer the writer for the persistence specific part
+     */
+    public void write(final @NotNull Writer writer) {
+        final File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(persistenceVersion);
+                out.writeInt(bucketCount);
+                writer.write(out);
+                out.writeLong(END_MARKER);
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException e) {
+            logger.warn("Not able to write the bootstrap checkpoint {}, the persistence is scanned on the next start", file.getAbsolutePath());
+            logger.debug("Original Exception:", e);
+            if (tempFile.exists() && !tempFile.delete()) {
+                logger.debug("Not able to delete the temporary bootstrap checkpoint {}", tempFile.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * Deletes the checkpoint without restoring it. A checkpoint must not be kept if it is not restored, otherwise it is
+     * outdated once the persistence was changed.
+     */
+    public void discard() {
+        if (file.exists()) {
+            delete();
+        }
+    }
+
+    private @Nullable Runnable readChecked(final @NotNull DataInputStream in, final @NotNull Reader reader) throws IOException {
+        if (in.readInt() != FORMAT_VERSION || !persistenceVersion.equals(in.readUTF()) || in.readInt() != bucketCount) {
+            logger.debug("Ignoring bootstrap checkpoint {} of a different persistence version or bucket count", file.getAbsolutePath());
+            return null;
+        }
+        final Runnable apply = reader.read(in);
+        if (in.readLong() != END_MARKER) {
+            throw new IOException("Bootstrap checkpoint is incomplete");
+        }
+        return apply;
+    }
+
+    private boolean delete() {
+        if (!file.delete()) {
+            logger.warn("Not able to delete the bootstrap checkpoint {}, the persistence is scanned instead", file.getAbsolutePath());
+            return false;
+        }
+        return true;
+    }
+}
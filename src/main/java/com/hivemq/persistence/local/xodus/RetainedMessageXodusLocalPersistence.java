@@ -41,9 +41,13 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -68,6 +72,9 @@ public class RetainedMessageXodusLocalPersistence extends XodusLocalPersistence
 
     private final AtomicLong retainMessageCounter = new AtomicLong(0);
 
+    // the persisted payload references on bootstrap, if the reference counts were restored instead of counted
+    private @Nullable XodusPayloadReferenceSnapshot referenceSnapshot;
+
     @Inject
     public RetainedMessageXodusLocalPersistence(final @NotNull LocalPersistenceFileUtil localPersistenceFileUtil,
                                                 final @NotNull PublishPayloadPersistence payloadPersistence,
@@ -113,14 +120,19 @@ public class RetainedMessageXodusLocalPersistence extends XodusLocalPersistence
     protected void init() {
 
         try {
-            for (final Bucket bucket : buckets) {
+            final boolean countReferences = !payloadPersistence.restoreReferenceCountersOnBootstrap();
+            if (!countReferences) {
+                snapshotPayloadReferences();
+            }
+            initBucketsInParallel(bucketIndex -> {
+                final Bucket bucket = buckets[bucketIndex];
                 bucket.getEnvironment().executeInReadonlyTransaction(txn -> {
                     try (final Cursor cursor = bucket.getStore().openCursor(txn)) {
 
                         while (cursor.getNext()) {
                             final RetainedMessage message = serializer.deserializeValue(byteIterableToBytes(cursor.getValue()));
                             final Long payloadId = message.getPayloadId();
-                            if (payloadId != null) {
+                            if (countReferences && payloadId != null) {
                                 payloadPersistence.incrementReferenceCounterOnBootstrap(payloadId);
                             }
 
@@ -128,7 +140,7 @@ public class RetainedMessageXodusLocalPersistence extends XodusLocalPersistence
                         }
                     }
                 });
-            }
+            });
 
         } catch (final ExodusException e) {
             log.error("An error occurred while preparing the Retained Message persistence.");
@@ -137,6 +149,43 @@ public class RetainedMessageXodusLocalPersistence extends XodusLocalPersistence
         }
     }
 
+    @NotNull
+    @Override
+    protected BootstrapCheckpoint.Codec checkpointCodec() {
+        return BootstrapCheckpoint.Codec.of(this::readCheckpoint, this::writeCheckpoint);
+    }
+
+    @NotNull
+    private Runnable readCheckpoint(@NotNull final DataInputStream in) throws IOException {
+        // the message count is only valid together with the reference counts of the retained payloads
+        if (!payloadPersistence.restoreReferenceCountersOnBootstrap()) {
+            throw new IOException("Payload reference counts were not restored");
+        }
+        final long count = in.readLong();
+        return () -> {
+            retainMessageCounter.set(count);
+            snapshotPayloadReferences();
+        };
+    }
+
+    private void snapshotPayloadReferences() {
+        referenceSnapshot = new XodusPayloadReferenceSnapshot(buckets,
+                value -> serializer.deserializeValue(byteIterableToBytes(value)).getPayloadId());
+        payloadPersistence.reconcileReferenceCountersOnBootstrap(referenceSnapshot);
+    }
+
+    @Override
+    public void closeDB(final int bucketIndex) {
+        if (referenceSnapshot != null) {
+            referenceSnapshot.release(bucketIndex);
+        }
+        super.closeDB(bucketIndex);
+    }
+
+    private void writeCheckpoint(@NotNull final DataOutputStream out) throws IOException {
+        out.writeLong(retainMessageCounter.get());
+    }
+
     @Override
     public void clear(final int bucketIndex) {
 
@@ -285,6 +334,25 @@ public class RetainedMessageXodusLocalPersistence extends XodusLocalPersistence
         });
     }
 
+    @Override
+    public void iterate(@NotNull final BiConsumer<String, RetainedMessage> consumer, final int bucketId) {
+        checkArgument(bucketId >= 0 && bucketId < bucketCount, "Bucket index out of range");
+        ThreadPreConditions.startsWith(SINGLE_WRITER_THREAD_PREFIX);
+
+        final Bucket bucket = buckets[bucketId];
+        bucket.getEnvironment().executeInReadonlyTransaction(txn -> {
+            try (final Cursor cursor = bucket.getStore().openCursor(txn)) {
+                while (cursor.getNext()) {
+                    final RetainedMessage message = serializer.deserializeValue(byteIterableToBytes(cursor.getValue()));
+                    if (PublishUtil.isExpired(message.getTimestamp(), message.getMessageExpiryInterval())) {
+                        continue;
+                    }
+                    consumer.accept(serializer.deserializeKey(byteIterableToBytes(cursor.getKey())), message);
+                }
+            }
+        });
+    }
+
     @Override
     public void cleanUp(final int bucketId) {
         checkArgument(bucketId >= 0 && bucketId < bucketCount, "Bucket index out of range");
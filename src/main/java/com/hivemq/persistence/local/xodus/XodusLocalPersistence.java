@@ -17,6 +17,7 @@
 package com.hivemq.persistence.local.xodus;
 
 import com.hivemq.annotations.NotNull;
+import com.hivemq.annotations.Nullable;
 import com.hivemq.exceptions.UnrecoverableException;
 import com.hivemq.persistence.FilePersistence;
 import com.hivemq.persistence.LocalPersistence;
@@ -31,8 +32,12 @@ import org.slf4j.Logger;
 import java.io.File;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.hivemq.configuration.service.InternalConfigurations.PERSISTENCE_BOOTSTRAP_CHECKPOINT_ENABLED;
 import static com.hivemq.configuration.service.InternalConfigurations.PERSISTENCE_CLOSE_RETRIES;
 import static com.hivemq.configuration.service.InternalConfigurations.PERSISTENCE_CLOSE_RETRY_INTERVAL;
 
@@ -47,6 +52,9 @@ public abstract class XodusLocalPersistence implements LocalPersistence, FilePer
     private final @NotNull PersistenceStartup persistenceStartup;
     private final AtomicBoolean constructed = new AtomicBoolean(false);
     protected final AtomicBoolean stopped = new AtomicBoolean(false);
+    private final AtomicInteger closedBuckets = new AtomicInteger(0);
+    private volatile @Nullable BootstrapCheckpoint checkpoint;
+    private volatile @Nullable BootstrapCheckpoint.Codec checkpointCodec;
 
     protected @NotNull Bucket[] buckets;
     protected int bucketCount;
@@ -104,9 +112,11 @@ public abstract class XodusLocalPersistence implements LocalPersistence, FilePer
         final StoreConfig storeConfig = getStoreConfig();
         final Logger logger = getLogger();
 
+        final long start = System.currentTimeMillis();
+        final File persistenceFolder;
         try {
             final EnvironmentConfig environmentConfig = environmentUtil.createEnvironmentConfig(name);
-            final File persistenceFolder = localPersistenceFileUtil.getVersionedLocalPersistenceFolder(name, version);
+            persistenceFolder = localPersistenceFileUtil.getVersionedLocalPersistenceFolder(name, version);
 
             final CountDownLatch counter = new CountDownLatch(bucketCount);
 
@@ -131,8 +141,85 @@ public abstract class XodusLocalPersistence implements LocalPersistence, FilePer
             throw new UnrecoverableException();
         }
 
-        init();
+        final long opened = System.currentTimeMillis();
+        boolean restored = false;
+        final BootstrapCheckpoint.Codec checkpointCodec = checkpointCodec();
+        if (checkpointCodec != null) {
+            this.checkpointCodec = checkpointCodec;
+            checkpoint = new BootstrapCheckpoint(persistenceFolder, version, bucketCount, logger);
+            if (PERSISTENCE_BOOTSTRAP_CHECKPOINT_ENABLED.get()) {
+                restored = checkpoint.restore(checkpointCodec);
+            } else {
+                checkpoint.discard();
+            }
+        }
+        if (!restored) {
+            init();
+        }
+
+        final long initialized = System.currentTimeMillis();
+        logger.debug("Started {} persistence in {}ms (opening {} buckets: {}ms, {}: {}ms)", name, initialized - start,
+                bucketCount, opened - start, restored ? "restoring checkpoint" : "scanning entries", initialized - opened);
+    }
+
+    /**
+     * Runs the initialization of every bucket in parallel on the executor of the persistence startup and waits until
+     * all buckets are initialized. The initialization of a single bucket must only access state of this bucket or
+     * thread safe state.
+     *
+     * @param bucketInitializer the initialization of a single bucket, called with the bucket index
+     */
+    protected void initBucketsInParallel(final @NotNull IntConsumer bucketInitializer) {
+        final CountDownLatch counter = new CountDownLatch(bucketCount);
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        for (int i = 0; i < bucketCount; i++) {
+            final int bucketIndex = i;
+            persistenceStartup.submitBucketInit(() -> {
+                try {
+                    bucketInitializer.accept(bucketIndex);
+                } catch (final RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    counter.countDown();
+                }
+            });
+        }
 
+        try {
+            counter.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            getLogger().error("Interrupted while initializing the {} persistence.", getName());
+            throw new UnrecoverableException(false);
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    /**
+     * Creates a checkpoint with the given file name in the folder of this persistence, for state that is not part of
+     * the {@link #checkpointCodec()}. It can be used before the persistence is started.
+     *
+     * @param fileName the name of the checkpoint file
+     * @return the checkpoint
+     */
+    protected @NotNull BootstrapCheckpoint newCheckpoint(final @NotNull String fileName) {
+        final File persistenceFolder = localPersistenceFileUtil.getVersionedLocalPersistenceFolder(getName(), getVersion());
+        return new BootstrapCheckpoint(persistenceFolder, fileName, getVersion(), bucketCount, getLogger());
+    }
+
+    /**
+     * The codec reads the state that {@link #init()} derives from the persisted entries from a
+     * {@link BootstrapCheckpoint}, the state must only be applied by the action it returns. It writes the state after
+     * all buckets were closed, so the state does not change anymore.
+     *
+     * @return the codec of the checkpoint or null if this persistence does not support checkpoints
+     */
+    protected @Nullable BootstrapCheckpoint.Codec checkpointCodec() {
+        return null;
     }
 
     protected abstract void init();
@@ -163,6 +250,12 @@ public abstract class XodusLocalPersistence implements LocalPersistence, FilePer
             if (bucket.getEnvironment().isOpen()) {
                 new EnvironmentCloser(getName() + "-closer", bucket.getEnvironment(), closeRetries, closeRetryInterval).close();
             }
+            final BootstrapCheckpoint checkpoint = this.checkpoint;
+            final BootstrapCheckpoint.Codec checkpointCodec = this.checkpointCodec;
+            if (closedBuckets.incrementAndGet() == bucketCount && checkpoint != null && checkpointCodec != null &&
+                    PERSISTENCE_BOOTSTRAP_CHECKPOINT_ENABLED.get()) {
+                checkpoint.write(checkpointCodec);
+            }
         }
     }
 
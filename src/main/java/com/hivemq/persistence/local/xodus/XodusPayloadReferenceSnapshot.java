@@ -0,0 +1,154 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hivemq.persistence.local.xodus;
+
+import com.hivemq.annotations.NotNull;
+import com.hivemq.annotations.Nullable;
+import com.hivemq.configuration.service.InternalConfigurations;
+import com.hivemq.persistence.local.xodus.bucket.Bucket;
+import com.hivemq.persistence.payload.PayloadReferenceSnapshot;
+import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.env.Cursor;
+import jetbrains.exodus.env.Transaction;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Keeps a read-only transaction open on every bucket of a persistence, so the payload references as of its creation
+ * can be counted later while the persistence is already written to.
+ * <p>
+ * An open transaction prevents the log cleaning of its bucket, so the lifetime of the snapshot is bounded: the
+ * transaction of a bucket is finished as soon as the bucket is counted, and a snapshot that is older than
+ * {@link InternalConfigurations#PAYLOAD_REFERENCE_SNAPSHOT_MAX_LIFETIME_MILLIS} can not be counted anymore.
+ * <p>
+ * The transaction of a bucket is only used by one thread at a time. While a bucket is counted, the counting thread
+ * finishes the transaction, {@link #release(int)} waits for it. A bucket has to be released before it is closed.
+ *
+ * @since 4.1
+ */
+public class XodusPayloadReferenceSnapshot implements PayloadReferenceSnapshot {
+
+    private static final int OPEN = 0;
+    private static final int COUNTING = 1;
+    private static final int FINISHED = 2;
+
+    private final @NotNull Bucket[] buckets;
+    private final @NotNull Function<ByteIterable, @Nullable Long> payloadIdReader;
+    private final @NotNull Transaction[] transactions;
+    private final @NotNull int[] states;
+    private final long expiryNanos;
+    private volatile boolean released;
+
+    /**
+     * @param buckets         the opened buckets of the persistence
+     * @param payloadIdReader reads the id of the referenced payload from a persisted value, null if the value does not
+     *                        reference a payload
+     */
+    public XodusPayloadReferenceSnapshot(
+            final @NotNull Bucket[] buckets, final @NotNull Function<ByteIterable, @Nullable Long> payloadIdReader) {
+        this.buckets = buckets;
+        this.payloadIdReader = payloadIdReader;
+        this.transactions = new Transaction[buckets.length];
+        this.states = new int[buckets.length];
+        this.expiryNanos = System.nanoTime() +
+                InternalConfigurations.PAYLOAD_REFERENCE_SNAPSHOT_MAX_LIFETIME_MILLIS.get() * 1_000_000;
+        for (int i = 0; i < buckets.length; i++) {
+            transactions[i] = buckets[i].getEnvironment().beginReadonlyTransaction();
+        }
+    }
+
+    @Override
+    public boolean countReferences(final @NotNull Map<Long, Long> references) {
+        for (int i = 0; i < buckets.length; i++) {
+            synchronized (transactions[i]) {
+                if (released || expired() || states[i] != OPEN) {
+                    return false;
+                }
+                states[i] = COUNTING;
+            }
+            try {
+                if (!countReferences(i, references)) {
+                    return false;
+                }
+            } finally {
+                transactions[i].abort();
+                synchronized (transactions[i]) {
+                    states[i] = FINISHED;
+                    transactions[i].notifyAll();
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean countReferences(final int bucketIndex, final @NotNull Map<Long, Long> references) {
+        try (final Cursor cursor = buckets[bucketIndex].getStore().openCursor(transactions[bucketIndex])) {
+            while (cursor.getNext()) {
+                if (released || expired()) {
+                    return false;
+                }
+                final Long payloadId = payloadIdReader.apply(cursor.getValue());
+                if (payloadId != null) {
+                    references.merge(payloadId, 1L, Long::sum);
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean expired() {
+        return System.nanoTime() - expiryNanos > 0;
+    }
+
+    @Override
+    public void release() {
+        for (int i = 0; i < buckets.length; i++) {
+            release(i);
+        }
+    }
+
+    /**
+     * Releases the snapshot of a single bucket. A count that is in progress is stopped, as the references of the
+     * snapshot can not be counted completely anymore. If the bucket is counted at the moment, this method waits until
+     * the counting thread finished the transaction.
+     *
+     * @param bucketIndex the index of the bucket
+     */
+    public void release(final int bucketIndex) {
+        released = true;
+        boolean interrupted = false;
+        synchronized (transactions[bucketIndex]) {
+            while (states[bucketIndex] == COUNTING) {
+                try {
+                    transactions[bucketIndex].wait();
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (states[bucketIndex] == OPEN) {
+                // the transaction was never used by another thread
+                transactions[bucketIndex].abort();
+                states[bucketIndex] = FINISHED;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -28,6 +28,7 @@ import com.hivemq.mqtt.message.subscribe.Topic;
 import com.hivemq.persistence.PersistenceFilter;
 import com.hivemq.persistence.PersistenceStartup;
 import com.hivemq.persistence.local.ClientSessionSubscriptionLocalPersistence;
+import com.hivemq.persistence.local.xodus.BootstrapCheckpoint;
 import com.hivemq.persistence.local.xodus.BucketChunkResult;
 import com.hivemq.persistence.local.xodus.EnvironmentUtil;
 import com.hivemq.persistence.local.xodus.XodusLocalPersistence;
@@ -43,10 +44,12 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static com.google.common.base.Preconditions.*;
@@ -113,30 +116,22 @@ public class ClientSessionSubscriptionXodusLocalPersistence extends XodusLocalPe
 
     protected void init() {
         try {
-            for (int i = 0; i < bucketCount; i++) {
-                final Bucket bucket = buckets[i];
-                final Map<String, Long> timestampsInBucket = new ConcurrentSkipListMap<>();
-
+            initBucketsInParallel(bucketIndex -> {
+                final Bucket bucket = buckets[bucketIndex];
                 bucket.getEnvironment().executeInReadonlyTransaction(txn -> {
                     try (final Cursor cursor = bucket.getStore().openCursor(txn)) {
 
+                        long maxId = 0;
                         while (cursor.getNext()) {
-                            final String clientId = serializer.deserializeKey(byteIterableToBytes(cursor.getKey()));
-                            final long timestamp = serializer.deserializeTimestamp(byteIterableToBytes(cursor.getValue()));
                             final long id = serializer.deserializeId(byteIterableToBytes(cursor.getValue()));
-                            if (nextId.get() < id) {
-                                nextId.set(id);
-                            }
-
-                            final Long currentTimestamp = timestampsInBucket.get(clientId);
-                            if (currentTimestamp == null || currentTimestamp < timestamp) {
-                                timestampsInBucket.put(clientId, timestamp);
+                            if (maxId < id) {
+                                maxId = id;
                             }
-
                         }
+                        nextId.accumulateAndGet(maxId, Math::max);
                     }
                 });
-            }
+            });
             nextId.incrementAndGet(); // Next id = max + 1
 
         } catch (final ExodusException e) {
@@ -147,6 +142,22 @@ public class ClientSessionSubscriptionXodusLocalPersistence extends XodusLocalPe
 
     }
 
+    @NotNull
+    @Override
+    protected BootstrapCheckpoint.Codec checkpointCodec() {
+        return BootstrapCheckpoint.Codec.of(this::readCheckpoint, this::writeCheckpoint);
+    }
+
+    @NotNull
+    private Runnable readCheckpoint(@NotNull final DataInputStream in) throws IOException {
+        final long id = in.readLong();
+        return () -> nextId.set(id);
+    }
+
+    private void writeCheckpoint(@NotNull final DataOutputStream out) throws IOException {
+        out.writeLong(nextId.get());
+    }
+
     @Override
     public void addSubscription(@NotNull final String client, @NotNull final Topic topic, final long timestamp, final int bucketIndex) {
         checkNotNull(client, "Clientid must not be null");
@@ -34,6 +34,7 @@ import com.hivemq.persistence.clientsession.ClientSessionWill;
 import com.hivemq.persistence.clientsession.PendingWillMessages;
 import com.hivemq.persistence.exception.InvalidSessionExpiryIntervalException;
 import com.hivemq.persistence.local.ClientSessionLocalPersistence;
+import com.hivemq.persistence.local.xodus.BootstrapCheckpoint;
 import com.hivemq.persistence.local.xodus.BucketChunkResult;
 import com.hivemq.persistence.local.xodus.EnvironmentUtil;
 import com.hivemq.persistence.local.xodus.XodusLocalPersistence;
@@ -50,6 +51,9 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -136,8 +140,8 @@ public class ClientSessionXodusLocalPersistence extends XodusLocalPersistence im
     }
 
     protected void init() {
-        for (int i = 0; i < bucketCount; i++) {
-            final Bucket bucket = buckets[i];
+        initBucketsInParallel(bucketIndex -> {
+            final Bucket bucket = buckets[bucketIndex];
             bucket.getEnvironment().executeInReadonlyTransaction(txn -> {
                 final Cursor cursor = bucket.getStore().openCursor(txn);
                 while (cursor.getNext()) {
@@ -147,7 +151,23 @@ public class ClientSessionXodusLocalPersistence extends XodusLocalPersistence im
                     }
                 }
             });
-        }
+        });
+    }
+
+    @NotNull
+    @Override
+    protected BootstrapCheckpoint.Codec checkpointCodec() {
+        return BootstrapCheckpoint.Codec.of(this::readCheckpoint, this::writeCheckpoint);
+    }
+
+    @NotNull
+    private Runnable readCheckpoint(@NotNull final DataInputStream in) throws IOException {
+        final int count = in.readInt();
+        return () -> sessionsCount.set(count);
+    }
+
+    private void writeCheckpoint(@NotNull final DataOutputStream out) throws IOException {
+        out.writeInt(sessionsCount.get());
     }
 
     /**
@@ -380,7 +400,7 @@ public class ClientSessionXodusLocalPersistence extends XodusLocalPersistence im
         checkBucketIndex(bucketIndex);
 
         final Bucket bucket = buckets[bucketIndex];
-        return bucket.getEnvironment().computeInTransaction(txn -> {
+        return bucket.getEnvironment().computeInReadonlyTransaction(txn -> {
             final Map<String, ClientSession> resultMap = Maps.newHashMap();
 
             try (final Cursor cursor = bucket.getStore().openCursor(txn)) {
@@ -38,4 +38,8 @@ public class BucketLock {
     public Lock get(final String key) {
         return locks[BucketUtils.getBucket(key, locks.length)];
     }
+
+    public Lock get(final long id) {
+        return locks[(int) Math.floorMod(id, (long) locks.length)];
+    }
 }
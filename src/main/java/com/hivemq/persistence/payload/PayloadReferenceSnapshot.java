@@ -0,0 +1,44 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.persistence.payload;
+
+import com.hivemq.annotations.NotNull;
+
+import java.util.Map;
+
+/**
+ * The payload references of a persistence as they were persisted on bootstrap. It is used to reconcile reference
+ * counts that were restored from a checkpoint, see
+ * {@link PublishPayloadPersistence#reconcileReferenceCountersOnBootstrap(PayloadReferenceSnapshot)}.
+ *
+ * @since 4.1
+ */
+public interface PayloadReferenceSnapshot {
+
+    /**
+     * Adds the payload references of the snapshot to the given counts.
+     *
+     * @param references the reference count per payload id to add to
+     * @return false if the snapshot was released or expired before all references were counted
+     */
+    boolean countReferences(@NotNull Map<Long, Long> references);
+
+    /**
+     * Releases the snapshot. References can not be counted afterwards.
+     */
+    void release();
+}
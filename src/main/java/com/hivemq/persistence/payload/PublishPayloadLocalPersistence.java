@@ -21,6 +21,9 @@ import com.hivemq.annotations.NotNull;
 import com.hivemq.annotations.Nullable;
 import com.hivemq.annotations.ReadOnly;
 
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * @author Lukas Brandl
  */
@@ -34,6 +37,13 @@ public interface PublishPayloadLocalPersistence {
      */
     void put(long id, @NotNull byte[] payload);
 
+    /**
+     * Put the payloads for their ids, committing the payloads of a bucket together.
+     *
+     * @param payloads The payloads per payload id.
+     */
+    void putAll(@NotNull Map<Long, byte[]> payloads);
+
     /**
      * Get a payload for a specific id.
      *
@@ -62,6 +72,22 @@ public interface PublishPayloadLocalPersistence {
     @NotNull
     ImmutableList<Long> getAllIds();
 
+    /**
+     * Restores the reference counts that were written by {@link #checkpointReferenceCounters(Map)}. The checkpoint is
+     * removed afterwards, so it is restored at most once.
+     *
+     * @param referenceCounters the map the reference counts are restored to
+     * @return true if the reference counts were restored, false if there is no valid checkpoint
+     */
+    boolean restoreReferenceCounters(@NotNull Map<Long, AtomicLong> referenceCounters);
+
+    /**
+     * Writes the reference counts to a checkpoint.
+     *
+     * @param referenceCounters the reference counts per payload id
+     */
+    void checkpointReferenceCounters(@NotNull Map<Long, AtomicLong> referenceCounters);
+
     /**
      * close the persistence with all buckets.
      */
@@ -18,6 +18,7 @@ package com.hivemq.persistence.payload;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.hivemq.annotations.NotNull;
 import com.hivemq.annotations.Nullable;
 
@@ -44,6 +45,19 @@ public interface PublishPayloadPersistence {
      */
     long add(@NotNull byte[] payload, long referenceCount);
 
+    /**
+     * Returns a future that completes once the payload is written to the local persistence.
+     * <p>
+     * If {@link com.hivemq.configuration.service.InternalConfigurations#PAYLOAD_PERSISTENCE_WRITE_BEHIND_ENABLED} is
+     * set, a new payload is staged in memory first. A reference to the payload must not be persisted before the future
+     * completes, otherwise the reference outlives the payload if the process stops in between.
+     *
+     * @param id The id associated with the payload.
+     * @return A future that completes once the payload is persisted.
+     */
+    @NotNull
+    ListenableFuture<Void> whenPersisted(long id);
+
     /**
      * Get the persisted payload for an id.
      *
@@ -74,6 +88,31 @@ public interface PublishPayloadPersistence {
      */
     void incrementReferenceCounterOnBootstrap(long id);
 
+    /**
+     * Restores the reference counts that were written on the last clean shutdown.
+     * <p>
+     * Every persistence that references payloads has to call this method on bootstrap before it increments any
+     * reference count. Only the first call restores the reference counts, all calls return the same result.
+     *
+     * @return true if the reference counts were restored. In this case the reference counts must not be incremented
+     * on bootstrap.
+     */
+    boolean restoreReferenceCountersOnBootstrap();
+
+    /**
+     * Registers the persisted references of a persistence whose reference counts were restored on bootstrap.
+     * <p>
+     * The restored reference counts may contain references that were only held in memory on the last shutdown. After
+     * {@link #init()} the references of all snapshots are counted in the background and the reference counts are
+     * corrected by the difference to the restored counts. A count that would become negative is set to zero. The
+     * snapshot is released afterwards.
+     * <p>
+     * <b>Don't call this method after the persistence bootstrap is finished! </b>
+     *
+     * @param snapshot the payload references of the persistence on bootstrap
+     */
+    void reconcileReferenceCountersOnBootstrap(@NotNull PayloadReferenceSnapshot snapshot);
+
     /**
      * Decrements the current reference count for an id.
      *
@@ -96,6 +135,17 @@ public interface PublishPayloadPersistence {
     @NotNull
     List<Long> getAllIds();
 
+    /**
+     * Writes the current reference counts, so they can be restored on the next start.
+     * <p>
+     * References that are only held in memory at this point are written as well, they are corrected by
+     * {@link #reconcileReferenceCountersOnBootstrap(PayloadReferenceSnapshot)} on the next start.
+     * <p>
+     * <b>Only call this method after all persistences that reference payloads were closed! </b>
+     * Otherwise the reference counts may not match the persisted references.
+     */
+    void checkpointReferenceCounters();
+
     /**
      * close the persistence with all buckets.
      */
@@ -16,10 +16,15 @@
 
 package com.hivemq.persistence.payload;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListenableScheduledFuture;
 import com.google.common.util.concurrent.ListeningScheduledExecutorService;
 import com.google.inject.Inject;
@@ -27,6 +32,7 @@ import com.hivemq.annotations.NotNull;
 import com.hivemq.annotations.Nullable;
 import com.hivemq.bootstrap.ioc.lazysingleton.LazySingleton;
 import com.hivemq.configuration.service.InternalConfigurations;
+import com.hivemq.metrics.HiveMQMetrics;
 import com.hivemq.persistence.ioc.annotation.PayloadPersistence;
 import net.openhft.hashing.LongHashFunction;
 import org.slf4j.Logger;
@@ -60,21 +66,43 @@ public class PublishPayloadPersistenceImpl implements PublishPayloadPersistence
 
     private final AtomicLong nextPayloadId = new AtomicLong(0);
     private final @NotNull BucketLock bucketLock;
+    private final @Nullable WriteBehindPayloadLocalPersistence writeBehind;
 
     @NotNull Cache<Long, byte[]> payloadCache;
     final ConcurrentHashMap<Long, Long> lookupTable = new ConcurrentHashMap<>();
     final ConcurrentHashMap<Long, AtomicLong> referenceCounter = new ConcurrentHashMap<>();
     final Queue<RemovablePayload> removablePayloads = new LinkedTransferQueue<>();
     final Set<Long> suspectedReferences = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    // maps the hash of a payload to its id as long as the payload is referenced, null if not content addressed
+    final @Nullable ConcurrentHashMap<Long, Long> contentIndex;
+    // maps the id of an indexed payload to its hash, so the cleanup does not have to read and hash the payload again
+    final @Nullable ConcurrentHashMap<Long, Long> indexedHashes;
 
+    private final @NotNull Counter deduplicationHitCounter;
+    private final @NotNull Counter deduplicationMissCounter;
+    private final @NotNull Counter deduplicationSavedBytesCounter;
 
     private @Nullable ListenableScheduledFuture<?> removeTaskFuture;
+    private @Nullable Boolean referenceCountersRestored;
+    // the reference counts as they were restored, until they are reconciled with the persisted references
+    private @Nullable Map<Long, Long> restoredReferenceCounts;
+    private final @NotNull List<PayloadReferenceSnapshot> referenceSnapshots = new ArrayList<>();
 
     @Inject
     PublishPayloadPersistenceImpl(final @NotNull PublishPayloadLocalPersistence localPersistence,
-                                  final @NotNull @PayloadPersistence ListeningScheduledExecutorService scheduledExecutorService) {
-
-        this.localPersistence = localPersistence;
+                                  final @NotNull @PayloadPersistence ListeningScheduledExecutorService scheduledExecutorService,
+                                  final @NotNull MetricRegistry metricRegistry) {
+
+        if (InternalConfigurations.PAYLOAD_PERSISTENCE_WRITE_BEHIND_ENABLED.get()) {
+            writeBehind = new WriteBehindPayloadLocalPersistence(localPersistence, scheduledExecutorService,
+                    metricRegistry, InternalConfigurations.PAYLOAD_PERSISTENCE_WRITE_BEHIND_BATCH_SIZE.get(),
+                    InternalConfigurations.PAYLOAD_PERSISTENCE_WRITE_BEHIND_INTERVAL.get(),
+                    InternalConfigurations.PAYLOAD_PERSISTENCE_WRITE_BEHIND_MAX_STAGED.get());
+            this.localPersistence = writeBehind;
+        } else {
+            writeBehind = null;
+            this.localPersistence = localPersistence;
+        }
         this.scheduledExecutorService = scheduledExecutorService;
 
         hashFunction = LongHashFunction.xx();
@@ -88,6 +116,19 @@ public class PublishPayloadPersistenceImpl implements PublishPayloadPersistence
 
         removeSchedule = InternalConfigurations.PAYLOAD_PERSISTENCE_CLEANUP_SCHEDULE.get();
         bucketLock = new BucketLock(InternalConfigurations.PAYLOAD_PERSISTENCE_BUCKET_COUNT.get());
+        contentIndex = InternalConfigurations.PAYLOAD_PERSISTENCE_CONTENT_ADDRESSED_ENABLED.get() ?
+                new ConcurrentHashMap<>() : null;
+        indexedHashes = contentIndex != null ? new ConcurrentHashMap<>() : null;
+
+        deduplicationHitCounter = metricRegistry.counter(HiveMQMetrics.PAYLOAD_DEDUPLICATION_HIT_COUNT.name());
+        deduplicationMissCounter = metricRegistry.counter(HiveMQMetrics.PAYLOAD_DEDUPLICATION_MISS_COUNT.name());
+        deduplicationSavedBytesCounter =
+                metricRegistry.counter(HiveMQMetrics.PAYLOAD_DEDUPLICATION_SAVED_BYTES_COUNT.name());
+        metricRegistry.register(HiveMQMetrics.PAYLOAD_DEDUPLICATION_RATIO_CURRENT.name(), (Gauge<Number>) () -> {
+            final long hits = deduplicationHitCounter.getCount();
+            final long total = hits + deduplicationMissCounter.getCount();
+            return total == 0 ? 0.0 : (double) hits / total;
+        });
     }
 
     // The payload persistence has to be initialized after the other persistence bootstraps are finished.
@@ -103,10 +144,18 @@ public class PublishPayloadPersistenceImpl implements PublishPayloadPersistence
             if (!scheduledExecutorService.isShutdown()) {
                 removeTaskFuture = scheduledExecutorService.scheduleAtFixedRate(
                         new RemoveEntryTask(payloadCache, localPersistence, bucketLock, removablePayloads, removeDelay,
-                                referenceCounter, taskSchedule), initialSchedule, taskSchedule, TimeUnit.MILLISECONDS);
+                                referenceCounter, taskSchedule, contentIndex, indexedHashes), initialSchedule, taskSchedule, TimeUnit.MILLISECONDS);
             }
         }
         nextPayloadId.set(localPersistence.getMaxId() + 1);
+        if (writeBehind != null) {
+            writeBehind.start();
+        }
+        synchronized (this) {
+            if (restoredReferenceCounts != null && !scheduledExecutorService.isShutdown()) {
+                scheduledExecutorService.execute(this::reconcileReferenceCounters);
+            }
+        }
     }
 
     /**
@@ -118,14 +167,23 @@ public class PublishPayloadPersistenceImpl implements PublishPayloadPersistence
 
         final long payloadHash = hashFunction.hashBytes(payload);
 
+        if (contentIndex != null) {
+            final Long indexedId = addToIndexedPayload(payloadHash, payload, referenceCount);
+            if (indexedId != null) {
+                return indexedId;
+            }
+        }
+
         final Long currentId = currentId(payloadHash, payload);
         if (currentId != null) {
-            final Lock lock = bucketLock.get(Long.toString(currentId));
+            final Lock lock = bucketLock.get(currentId);
             lock.lock();
             try {
                 // We can't lock before we have the id, therefor we have to check the cache again inside the lock.
                 if (payloadCache.getIfPresent(currentId) != null) {
                     referenceCounter.get(currentId).addAndGet(referenceCount); //The counter can not be null if we lock correctly
+                    deduplicationHitCounter.inc();
+                    deduplicationSavedBytesCounter.inc(payload.length);
 
                     // The payload is already existent in the persistence
                     return currentId;
@@ -137,7 +195,7 @@ public class PublishPayloadPersistenceImpl implements PublishPayloadPersistence
 
         //The payload is not necessarily in the persistence yet
         final long payloadId = nextPayloadId.getAndIncrement();
-        final Lock lock = bucketLock.get(Long.toString(payloadId));
+        final Lock lock = bucketLock.get(payloadId);
         lock.lock();
         try {
             //we never overwrite in the map because the payloadId is guaranteed to be increasing on every call
@@ -148,6 +206,12 @@ public class PublishPayloadPersistenceImpl implements PublishPayloadPersistence
             an old value just means we don't profit from the optimization
             */
             lookupTable.put(payloadHash, payloadId);
+            if (contentIndex != null) {
+                // Same as for the lookup table, overwriting an entry of a colliding payload only loses the optimization.
+                contentIndex.put(payloadHash, payloadId);
+                indexedHashes.put(payloadId, payloadHash);
+            }
+            deduplicationMissCounter.inc();
 
             payloadCache.put(payloadId, payload);
             localPersistence.put(payloadId, payload);
@@ -199,10 +263,64 @@ public class PublishPayloadPersistenceImpl implements PublishPayloadPersistence
             In worst case we overwrite a newer value in the lookup table which means we kill
             the optimization. No harm is done in this case since we "just" lose performance.
          */
-        lookupTable.put(hashFunction.hashBytes(payload), id);
+        final long payloadHash = hashFunction.hashBytes(payload);
+        lookupTable.put(payloadHash, id);
+        // Fills the index again after a restart. Only referenced payloads are indexed, otherwise the entry would
+        // never be removed by the cleanup.
+        if (contentIndex != null) {
+            final Lock lock = bucketLock.get(id);
+            lock.lock();
+            try {
+                if (referenceCounter.containsKey(id)) {
+                    final Long indexedId = contentIndex.putIfAbsent(payloadHash, id);
+                    if (indexedId == null || indexedId == id) {
+                        indexedHashes.put(id, payloadHash);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
         return payload;
     }
 
+    /**
+     * Adds the references to an identical payload that was found in the content index. In contrast to the lookup
+     * table, the content index holds the id as long as the payload is referenced. The bytes are only compared with the
+     * cached payload, so the local persistence is never read while the bucket lock is held. A payload that is not
+     * cached is treated as different.
+     *
+     * @return the id of the identical payload or null if the payload has to be stored as a new entry
+     */
+    private @Nullable Long addToIndexedPayload(
+            final long payloadHash, final @NotNull byte[] payload, final long referenceCount) {
+
+        final Long indexedId = contentIndex.get(payloadHash);
+        if (indexedId == null) {
+            return null;
+        }
+        final Lock lock = bucketLock.get(indexedId);
+        lock.lock();
+        try {
+            // The cleanup removes the counter inside the same lock, so the payload can not be removed concurrently.
+            final AtomicLong counter = referenceCounter.get(indexedId);
+            if (counter == null) {
+                return null;
+            }
+            final byte[] indexedPayload = payloadCache.getIfPresent(indexedId);
+            if (indexedPayload == null || !Arrays.equals(indexedPayload, payload)) {
+                return null;
+            }
+            // A counter that is already zero is not removed by the cleanup when it is increased again.
+            counter.addAndGet(referenceCount);
+            deduplicationHitCounter.inc();
+            deduplicationSavedBytesCounter.inc(payload.length);
+            return indexedId;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -210,7 +328,7 @@ public class PublishPayloadPersistenceImpl implements PublishPayloadPersistence
     public void incrementReferenceCounterOnBootstrap(final long id) {
         // Since this method is only called during bootstrap, it is not performance critical.
         // Therefor locking is not an issue here.
-        final Lock lock = bucketLock.get(Long.toString(id));
+        final Lock lock = bucketLock.get(id);
         lock.lock();
         try {
             final AtomicLong referenceCount = referenceCounter.get(id);
@@ -224,6 +342,120 @@ public class PublishPayloadPersistenceImpl implements PublishPayloadPersistence
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean restoreReferenceCountersOnBootstrap() {
+        if (referenceCountersRestored == null) {
+            referenceCountersRestored = localPersistence.restoreReferenceCounters(referenceCounter);
+            if (referenceCountersRestored) {
+                log.debug("Restored {} payload reference counters", referenceCounter.size());
+                restoredReferenceCounts = new HashMap<>(referenceCounter.size());
+                for (final Map.Entry<Long, AtomicLong> entry : referenceCounter.entrySet()) {
+                    restoredReferenceCounts.put(entry.getKey(), entry.getValue().get());
+                }
+            }
+        }
+        return referenceCountersRestored;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void reconcileReferenceCountersOnBootstrap(final @NotNull PayloadReferenceSnapshot snapshot) {
+        if (restoredReferenceCounts == null) {
+            snapshot.release();
+            return;
+        }
+        referenceSnapshots.add(snapshot);
+    }
+
+    private void reconcileReferenceCounters() {
+        final Map<Long, Long> restored;
+        final List<PayloadReferenceSnapshot> snapshots;
+        synchronized (this) {
+            restored = restoredReferenceCounts;
+            snapshots = new ArrayList<>(referenceSnapshots);
+            restoredReferenceCounts = null;
+            referenceSnapshots.clear();
+        }
+        if (restored == null) {
+            return;
+        }
+
+        final Map<Long, Long> persisted = new HashMap<>(restored.size());
+        try {
+            for (final PayloadReferenceSnapshot snapshot : snapshots) {
+                if (!snapshot.countReferences(persisted)) {
+                    log.debug("Payload reference counts were not reconciled, a persistence was closed.");
+                    return;
+                }
+            }
+        } catch (final Throwable t) {
+            log.error("Not able to reconcile the restored payload reference counts.");
+            log.debug("Original Exception:", t);
+            return;
+        } finally {
+            for (final PayloadReferenceSnapshot snapshot : snapshots) {
+                snapshot.release();
+            }
+        }
+
+        final Set<Long> ids = new HashSet<>(restored.keySet());
+        ids.addAll(persisted.keySet());
+        int corrected = 0;
+        for (final Long id : ids) {
+            final long restoredCount = restored.getOrDefault(id, 0L);
+            final long difference = persisted.getOrDefault(id, 0L) - restoredCount;
+            if (difference != 0) {
+                correctReferenceCounter(id, restoredCount, difference);
+                corrected++;
+            }
+        }
+        log.debug("Reconciled {} payload reference counters, corrected {}.", ids.size(), corrected);
+    }
+
+    private void correctReferenceCounter(final long id, final long restoredCount, final long difference) {
+        final Lock lock = bucketLock.get(id);
+        lock.lock();
+        try {
+            final AtomicLong counter = referenceCounter.get(id);
+            if (counter == null) {
+                if (restoredCount == 0) {
+                    // the reference count was missing in the checkpoint
+                    referenceCounter.put(id, new AtomicLong(difference));
+                } else {
+                    log.warn("Payload {} was removed although it is still referenced.", id);
+                }
+                return;
+            }
+            final long previousCount = counter.get();
+            long referenceCount = previousCount + difference;
+            if (referenceCount < 0) {
+                // references were removed that were neither restored nor persisted, the cleanup only removes zero counts
+                log.warn("Payload reference counter ({}) would be negative ({}) after the reconciliation, it is set to zero.",
+                        id, referenceCount);
+                referenceCount = 0;
+            }
+            counter.set(referenceCount);
+            if (referenceCount == 0 && previousCount > 0) {
+                removablePayloads.add(new RemovablePayload(id, System.currentTimeMillis()));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void checkpointReferenceCounters() {
+        localPersistence.checkpointReferenceCounters(referenceCounter);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -281,6 +513,15 @@ public class PublishPayloadPersistenceImpl implements PublishPayloadPersistence
         return null;
     }
 
+    @NotNull
+    @Override
+    public ListenableFuture<Void> whenPersisted(final long id) {
+        if (writeBehind == null) {
+            return Futures.immediateFuture(null);
+        }
+        return writeBehind.whenWritten(id);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -295,6 +536,12 @@ public class PublishPayloadPersistenceImpl implements PublishPayloadPersistence
         if (removeTaskFuture != null) {
             removeTaskFuture.cancel(true);
         }
+        synchronized (this) {
+            for (final PayloadReferenceSnapshot snapshot : referenceSnapshots) {
+                snapshot.release();
+            }
+            referenceSnapshots.clear();
+        }
         localPersistence.closeDB();
     }
 
@@ -24,6 +24,7 @@ import com.hivemq.bootstrap.ioc.lazysingleton.LazySingleton;
 import com.hivemq.configuration.service.InternalConfigurations;
 import com.hivemq.exceptions.UnrecoverableException;
 import com.hivemq.persistence.PersistenceStartup;
+import com.hivemq.persistence.local.xodus.BootstrapCheckpoint;
 import com.hivemq.persistence.local.xodus.EnvironmentUtil;
 import com.hivemq.persistence.local.xodus.XodusLocalPersistence;
 import com.hivemq.persistence.local.xodus.bucket.Bucket;
@@ -32,16 +33,20 @@ import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.ExodusException;
 import jetbrains.exodus.env.Cursor;
 import jetbrains.exodus.env.StoreConfig;
+import jetbrains.exodus.env.Transaction;
 import jetbrains.exodus.env.TransactionalComputable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.PostConstruct;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.hivemq.configuration.service.InternalConfigurations.PERSISTENCE_BOOTSTRAP_CHECKPOINT_ENABLED;
 import static com.hivemq.persistence.local.xodus.XodusUtils.byteIterableToBytes;
 import static com.hivemq.persistence.local.xodus.XodusUtils.bytesToByteIterable;
 
@@ -57,6 +62,7 @@ public class PublishPayloadXodusLocalPersistence extends XodusLocalPersistence i
     private static final String PERSISTENCE_NAME = "publish_payload_store";
     private static final String PERSISTENCE_VERSION = "040000";
     private static final int CHUNK_SIZE = 5 * 1024 * 1024;
+    private static final String REFERENCE_COUNTERS_CHECKPOINT = "reference-counters.checkpoint";
 
     private final @NotNull PublishPayloadXodusSerializer serializer;
 
@@ -134,26 +140,50 @@ public class PublishPayloadXodusLocalPersistence extends XodusLocalPersistence i
         checkNotNull(payload, "payload must not be null");
 
         final Bucket bucket = getBucket(Long.toString(id));
-        bucket.getEnvironment().executeInTransaction(txn -> {
-            int chunkIndex = 0;
-            // We have to split the payload in chunks with less than 8MB, because Xodus can't handle entries that are bigger than the page size.
-            // The chunks are associated with an index.
-            do {
-                final ByteIterable key = bytesToByteIterable(serializer.serializeKey(id, chunkIndex));
-                if (payload.length < CHUNK_SIZE) {
-                    bucket.getStore().put(txn, key, bytesToByteIterable(payload));
-                } else {
-                    int currentChunkSize = payload.length - chunkIndex * CHUNK_SIZE;
-                    if (currentChunkSize >= CHUNK_SIZE) {
-                        currentChunkSize = CHUNK_SIZE;
-                    }
-                    final byte[] chunk = new byte[currentChunkSize];
-                    System.arraycopy(payload, chunkIndex * CHUNK_SIZE, chunk, 0, currentChunkSize);
-                    bucket.getStore().put(txn, key, bytesToByteIterable(chunk));
+        bucket.getEnvironment().executeInTransaction(txn -> put(bucket, txn, id, payload));
+    }
+
+    @Override
+    public void putAll(@NotNull final Map<Long, byte[]> payloads) {
+        checkNotNull(payloads, "payloads must not be null");
+
+        final Map<Bucket, List<Map.Entry<Long, byte[]>>> payloadsPerBucket = new HashMap<>();
+        for (final Map.Entry<Long, byte[]> entry : payloads.entrySet()) {
+            payloadsPerBucket.computeIfAbsent(getBucket(Long.toString(entry.getKey())), bucket -> new ArrayList<>())
+                    .add(entry);
+        }
+        // A single transaction per bucket commits all payloads of the bucket at once.
+        for (final Map.Entry<Bucket, List<Map.Entry<Long, byte[]>>> bucketEntry : payloadsPerBucket.entrySet()) {
+            final Bucket bucket = bucketEntry.getKey();
+            bucket.getEnvironment().executeInTransaction(txn -> {
+                for (final Map.Entry<Long, byte[]> entry : bucketEntry.getValue()) {
+                    put(bucket, txn, entry.getKey(), entry.getValue());
                 }
-                chunkIndex++;
-            } while (payload.length > chunkIndex * CHUNK_SIZE);
-        });
+            });
+        }
+    }
+
+    private void put(
+            @NotNull final Bucket bucket, @NotNull final Transaction txn, final long id, @NotNull final byte[] payload) {
+
+        int chunkIndex = 0;
+        // We have to split the payload in chunks with less than 8MB, because Xodus can't handle entries that are bigger than the page size.
+        // The chunks are associated with an index.
+        do {
+            final ByteIterable key = bytesToByteIterable(serializer.serializeKey(id, chunkIndex));
+            if (payload.length < CHUNK_SIZE) {
+                bucket.getStore().put(txn, key, bytesToByteIterable(payload));
+            } else {
+                int currentChunkSize = payload.length - chunkIndex * CHUNK_SIZE;
+                if (currentChunkSize >= CHUNK_SIZE) {
+                    currentChunkSize = CHUNK_SIZE;
+                }
+                final byte[] chunk = new byte[currentChunkSize];
+                System.arraycopy(payload, chunkIndex * CHUNK_SIZE, chunk, 0, currentChunkSize);
+                bucket.getStore().put(txn, key, bytesToByteIterable(chunk));
+            }
+            chunkIndex++;
+        } while (payload.length > chunkIndex * CHUNK_SIZE);
     }
 
     @Nullable
@@ -249,6 +279,45 @@ public class PublishPayloadXodusLocalPersistence extends XodusLocalPersistence i
         return maxId;
     }
 
+    @Override
+    public boolean restoreReferenceCounters(@NotNull final Map<Long, AtomicLong> referenceCounters) {
+        checkNotNull(referenceCounters, "Reference counters must not be null");
+
+        final BootstrapCheckpoint checkpoint = newCheckpoint(REFERENCE_COUNTERS_CHECKPOINT);
+        if (!PERSISTENCE_BOOTSTRAP_CHECKPOINT_ENABLED.get()) {
+            checkpoint.discard();
+            return false;
+        }
+        return checkpoint.restore(in -> {
+            final Map<Long, AtomicLong> restored = new HashMap<>();
+            while (in.readBoolean()) {
+                restored.put(in.readLong(), new AtomicLong(in.readLong()));
+            }
+            return () -> referenceCounters.putAll(restored);
+        });
+    }
+
+    @Override
+    public void checkpointReferenceCounters(@NotNull final Map<Long, AtomicLong> referenceCounters) {
+        checkNotNull(referenceCounters, "Reference counters must not be null");
+
+        if (!PERSISTENCE_BOOTSTRAP_CHECKPOINT_ENABLED.get()) {
+            return;
+        }
+        newCheckpoint(REFERENCE_COUNTERS_CHECKPOINT).write(out -> {
+            for (final Map.Entry<Long, AtomicLong> entry : referenceCounters.entrySet()) {
+                final long referenceCount = entry.getValue().get();
+                // payloads without references are not counted on bootstrap either
+                if (referenceCount > 0) {
+                    out.writeBoolean(true);
+                    out.writeLong(entry.getKey());
+                    out.writeLong(referenceCount);
+                }
+            }
+            out.writeBoolean(false);
+        });
+    }
+
     public static class KeyPair {
 
         private final long id;
@@ -17,6 +17,7 @@
 package com.hivemq.persistence.payload;
 
 import com.google.common.cache.Cache;
+import com.hivemq.annotations.Nullable;
 import com.hivemq.util.Exceptions;
 
 import java.util.ArrayList;
@@ -38,6 +39,8 @@ public class RemoveEntryTask implements Runnable {
     private final long removeDelay;
     private final ConcurrentHashMap<Long, AtomicLong> referenceCounter;
     private final long taskMaxDuration;
+    private final @Nullable ConcurrentHashMap<Long, Long> contentIndex;
+    private final @Nullable ConcurrentHashMap<Long, Long> indexedHashes;
 
     public RemoveEntryTask(final Cache<Long, byte[]> payloadCache,
                            final PublishPayloadLocalPersistence localPersistence,
@@ -45,7 +48,9 @@ public class RemoveEntryTask implements Runnable {
                            final Queue<RemovablePayload> removablePayloads,
                            final long removeDelay,
                            final ConcurrentHashMap<Long, AtomicLong> referenceCounter,
-                           final long taskMaxDuration) {
+                           final long taskMaxDuration,
+                           final @Nullable ConcurrentHashMap<Long, Long> contentIndex,
+                           final @Nullable ConcurrentHashMap<Long, Long> indexedHashes) {
 
         this.payloadCache = payloadCache;
         this.localPersistence = localPersistence;
@@ -54,6 +59,8 @@ public class RemoveEntryTask implements Runnable {
         this.removeDelay = removeDelay;
         this.referenceCounter = referenceCounter;
         this.taskMaxDuration = taskMaxDuration;
+        this.contentIndex = contentIndex;
+        this.indexedHashes = indexedHashes;
     }
 
     @Override
@@ -64,7 +71,7 @@ public class RemoveEntryTask implements Runnable {
             final long startTime = System.currentTimeMillis();
             while (removablePayload != null) {
                 if (System.currentTimeMillis() - removablePayload.getTimestamp() > removeDelay) {
-                    final Lock lock = bucketLock.get(Long.toString(removablePayload.getId()));
+                    final Lock lock = bucketLock.get(removablePayload.getId());
                     lock.lock();
                     final long payloadId = removablePayload.getId();
                     try {
@@ -77,6 +84,9 @@ public class RemoveEntryTask implements Runnable {
                             continue;
                         }
                         if (referenceCount.get() == 0) {
+                            if (contentIndex != null && indexedHashes != null) {
+                                removeFromContentIndex(payloadId);
+                            }
                             payloadCache.invalidate(payloadId);
                             localPersistence.remove(payloadId);
                             referenceCounter.remove(payloadId);
@@ -98,4 +108,12 @@ public class RemoveEntryTask implements Runnable {
             Exceptions.rethrowError("Exception during payload cleanup. ", t);
         }
     }
+
+    private void removeFromContentIndex(final long payloadId) {
+        final Long payloadHash = indexedHashes.remove(payloadId);
+        if (payloadHash != null) {
+            // Only removes the entry if it was not overwritten by a colliding payload.
+            contentIndex.remove(payloadHash, payloadId);
+        }
+    }
 }
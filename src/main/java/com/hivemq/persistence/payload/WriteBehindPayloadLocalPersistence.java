@@ -0,0 +1,262 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.persistence.payload;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningScheduledExecutorService;
+import com.google.common.util.concurrent.SettableFuture;
+import com.hivemq.annotations.NotNull;
+import com.hivemq.annotations.Nullable;
+import com.hivemq.annotations.ReadOnly;
+import com.hivemq.metrics.HiveMQMetrics;
+import com.hivemq.util.Exceptions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stages new payloads in memory and writes them to the local persistence in batches on the payload persistence
+ * executor, so adding a payload does not open a transaction on the publishing thread.
+ * <p>
+ * A staged payload is read from the staging until its batch is committed. A payload that is removed while it is staged
+ * is either not written at all or removed right after its batch is committed, so the cleanup of the payload
+ * persistence behaves the same as without the write behind.
+ * <p>
+ * A staged payload is lost if the process stops before its batch is committed. Everything that persists a reference
+ * to a new payload has to wait for {@link #whenWritten(long)} first, otherwise the reference may outlive the payload.
+ */
+class WriteBehindPayloadLocalPersistence implements PublishPayloadLocalPersistence {
+
+    private final @NotNull PublishPayloadLocalPersistence delegate;
+    private final @NotNull ListeningScheduledExecutorService scheduledExecutorService;
+    private final int batchSize;
+    private final long interval;
+    private final int maxStaged;
+
+    private final @NotNull Histogram batchSizeHistogram;
+    private final @NotNull Timer flushTimer;
+
+    final @NotNull ConcurrentHashMap<Long, StagedPayload> staged = new ConcurrentHashMap<>();
+    private final @NotNull Queue<Long> stagedIds = new ConcurrentLinkedQueue<>();
+    private final @NotNull AtomicInteger stagedCount = new AtomicInteger();
+    private final @NotNull ReentrantLock flushLock = new ReentrantLock();
+
+    private @Nullable ScheduledFuture<?> flushFuture;
+
+    WriteBehindPayloadLocalPersistence(
+            final @NotNull PublishPayloadLocalPersistence delegate,
+            final @NotNull ListeningScheduledExecutorService scheduledExecutorService,
+            final @NotNull MetricRegistry metricRegistry,
+            final int batchSize,
+            final long interval,
+            final int maxStaged) {
+
+        this.delegate = delegate;
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.batchSize = Math.max(1, batchSize);
+        this.interval = Math.max(1, interval);
+        this.maxStaged = maxStaged;
+
+        batchSizeHistogram = metricRegistry.histogram(HiveMQMetrics.PAYLOAD_WRITE_BEHIND_BATCH_SIZE.name());
+        flushTimer = metricRegistry.timer(HiveMQMetrics.PAYLOAD_WRITE_BEHIND_FLUSH_TIME.name());
+        metricRegistry.register(HiveMQMetrics.PAYLOAD_WRITE_BEHIND_STAGED_CURRENT.name(), (Gauge<Number>) stagedCount::get);
+    }
+
+    void start() {
+        if (!scheduledExecutorService.isShutdown()) {
+            flushFuture = scheduledExecutorService.scheduleWithFixedDelay(
+                    this::tryFlush, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void put(final long id, @NotNull final byte[] payload) {
+        if (stagedCount.get() >= maxStaged) {
+            // The writer can not keep up, so the payload is written directly like without the write behind.
+            delegate.put(id, payload);
+            return;
+        }
+        staged.put(id, new StagedPayload(payload));
+        stagedIds.add(id);
+        if (stagedCount.incrementAndGet() == batchSize && !scheduledExecutorService.isShutdown()) {
+            scheduledExecutorService.execute(this::tryFlush);
+        }
+    }
+
+    @Override
+    public void putAll(@NotNull final Map<Long, byte[]> payloads) {
+        for (final Map.Entry<Long, byte[]> entry : payloads.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public @Nullable byte[] get(final long id) {
+        final StagedPayload stagedPayload = staged.get(id);
+        if (stagedPayload != null) {
+            return stagedPayload.removed ? null : stagedPayload.payload;
+        }
+        return delegate.get(id);
+    }
+
+    @Override
+    public void remove(final long id) {
+        // The flag is set atomically with the removal of the staged payload after its batch is committed.
+        final StagedPayload stagedPayload = staged.computeIfPresent(id, (key, value) -> {
+            value.removed = true;
+            return value;
+        });
+        if (stagedPayload == null) {
+            delegate.remove(id);
+        }
+    }
+
+    /**
+     * @return a future that completes once the payload is committed to the local persistence, or immediately if the
+     * payload is not staged
+     */
+    @NotNull ListenableFuture<Void> whenWritten(final long id) {
+        final StagedPayload stagedPayload = staged.get(id);
+        if (stagedPayload == null) {
+            return Futures.immediateFuture(null);
+        }
+        return stagedPayload.written;
+    }
+
+    @Override
+    public long getMaxId() {
+        return delegate.getMaxId();
+    }
+
+    @Override
+    public @ReadOnly @NotNull ImmutableList<Long> getAllIds() {
+        flush();
+        return delegate.getAllIds();
+    }
+
+    @Override
+    public boolean restoreReferenceCounters(@NotNull final Map<Long, AtomicLong> referenceCounters) {
+        return delegate.restoreReferenceCounters(referenceCounters);
+    }
+
+    @Override
+    public void checkpointReferenceCounters(@NotNull final Map<Long, AtomicLong> referenceCounters) {
+        flush();
+        delegate.checkpointReferenceCounters(referenceCounters);
+    }
+
+    @Override
+    public void closeDB() {
+        if (flushFuture != null) {
+            flushFuture.cancel(false);
+        }
+        flush();
+        delegate.closeDB();
+    }
+
+    private void tryFlush() {
+        if (flushLock.tryLock()) {
+            try {
+                flushStaged();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    void flush() {
+        flushLock.lock();
+        try {
+            flushStaged();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushStaged() {
+        while (!stagedIds.isEmpty()) {
+            final Map<Long, byte[]> batch = new HashMap<>();
+            final List<Long> batchIds = new ArrayList<>();
+            Long id;
+            while (batchIds.size() < batchSize && (id = stagedIds.poll()) != null) {
+                batchIds.add(id);
+                final StagedPayload stagedPayload = staged.get(id);
+                if (stagedPayload != null && !stagedPayload.removed) {
+                    batch.put(id, stagedPayload.payload);
+                }
+            }
+            if (!batch.isEmpty()) {
+                final Timer.Context timer = flushTimer.time();
+                try {
+                    delegate.putAll(batch);
+                } catch (final Throwable t) {
+                    // The payloads stay staged and are written with the next flush.
+                    stagedIds.addAll(batchIds);
+                    Exceptions.rethrowError("Exception while writing staged payloads.", t);
+                    return;
+                }
+                timer.stop();
+                batchSizeHistogram.update(batch.size());
+            }
+            for (final Long batchId : batchIds) {
+                unstage(batchId, batch.containsKey(batchId));
+            }
+        }
+    }
+
+    private void unstage(final long id, final boolean written) {
+        final StagedPayload[] unstaged = new StagedPayload[1];
+        staged.compute(id, (key, value) -> {
+            unstaged[0] = value;
+            return null;
+        });
+        stagedCount.decrementAndGet();
+        if (unstaged[0] == null) {
+            return;
+        }
+        if (written && unstaged[0].removed) {
+            delegate.remove(id);
+        }
+        unstaged[0].written.set(null);
+    }
+
+    static class StagedPayload {
+
+        final @NotNull byte[] payload;
+        final @NotNull SettableFuture<Void> written = SettableFuture.create();
+        volatile boolean removed;
+
+        StagedPayload(final @NotNull byte[] payload) {
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,787 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.persistence.retained;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.hivemq.annotations.NotNull;
+import com.hivemq.annotations.Nullable;
+import com.hivemq.metrics.HiveMQMetrics;
+import com.hivemq.persistence.RetainedMessage;
+import com.hivemq.persistence.local.xodus.RetainedMessageXodusSerializer;
+import com.hivemq.util.PublishUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.CRC32;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A read optimized copy of the retained messages of the {@link RetainedMessageLocalPersistence}.
+ * <p>
+ * The retained messages are stored as records in memory mapped segment files, every bucket only keeps an in-memory
+ * index from its topics to their records. A record holds the topic and the serialized retained message with its
+ * payload id, the payload itself stays in the payload persistence. A retained message is read from the index and the
+ * segment of its record without a transaction of the local persistence.
+ * <p>
+ * The writes of a bucket must be done by the single writer of the bucket after the local persistence was updated.
+ * The buckets are written concurrently, a record is appended to the current segment by reserving its range with a
+ * CAS on the position of the segment. Only the creation of the next segment is synchronized. A replaced or removed
+ * record is marked as removed in place. A segment is deleted once all of its records are removed. Every segment
+ * tracks its live entries, so the live records of a sparse segment can be moved to the current segment without
+ * scanning the buckets and the segments do not grow unbounded.
+ * <p>
+ * The segments are forced to disk and a clean shutdown file is written when the store is closed. On the next start
+ * the segments are only used if the clean shutdown file exists and every record is valid, otherwise they are deleted
+ * and the buckets are loaded from the local persistence again. The clean shutdown file is deleted when the segments
+ * are opened, so the segments are never used after a crash.
+ */
+public class MappedRetainedMessageStore {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedRetainedMessageStore.class);
+
+    public static final String PERSISTENCE_NAME = "retained_messages_mapped";
+    public static final String PERSISTENCE_VERSION = "040001";
+
+    private static final String SEGMENT_FILE_SUFFIX = ".segment";
+    private static final String CLEAN_SHUTDOWN_FILE_NAME = "clean_shutdown";
+
+    private static final int SEGMENT_MAGIC = 0x52455453;
+    private static final int SEGMENT_HEADER_SIZE = Integer.BYTES;
+
+    // state, length of the body and CRC32 of the body
+    private static final int RECORD_HEADER_SIZE = 1 + Integer.BYTES + Integer.BYTES;
+    // sequence, bucket index and length of the topic
+    private static final int RECORD_BODY_HEADER_SIZE = Long.BYTES + Integer.BYTES + Integer.BYTES;
+    // the state of the space after the last record of a segment
+    private static final byte STATE_UNUSED = 0;
+    private static final byte STATE_LIVE = 1;
+    private static final byte STATE_REMOVED = 2;
+
+    private final @NotNull File folder;
+    private final int bucketCount;
+    private final int segmentSize;
+    private final @NotNull RetainedMessageXodusSerializer serializer = new RetainedMessageXodusSerializer();
+
+    // a bucket is null until it is loaded
+    private final @NotNull AtomicReferenceArray<ConcurrentHashMap<String, Entry>> buckets;
+
+    private final @NotNull ConcurrentHashMap<Integer, Segment> segments = new ConcurrentHashMap<>();
+    private volatile @Nullable Segment currentSegment;
+    // guarded by this
+    private int nextSegmentId;
+    private final @NotNull AtomicLong nextSequence = new AtomicLong();
+    private final @NotNull AtomicBoolean compacting = new AtomicBoolean();
+    // set if a record could not be written to a segment, the segments are then rebuilt on the next start
+    private final @NotNull AtomicBoolean incomplete = new AtomicBoolean();
+
+    private final @NotNull AtomicLong recordBytes = new AtomicLong();
+
+    MappedRetainedMessageStore(final @NotNull File folder,
+                               final @NotNull MetricRegistry metricRegistry,
+                               final int bucketCount,
+                               final int segmentSize) {
+        this.folder = folder;
+        this.bucketCount = bucketCount;
+        this.segmentSize = segmentSize;
+        this.buckets = new AtomicReferenceArray<>(bucketCount);
+
+        metricRegistry.register(HiveMQMetrics.RETAINED_MESSAGE_MAPPED_STORE_RECORD_BYTES_CURRENT.name(), (Gauge<Number>) recordBytes::get);
+        metricRegistry.register(HiveMQMetrics.RETAINED_MESSAGE_MAPPED_STORE_SEGMENTS_CURRENT.name(), (Gauge<Number>) segments::size);
+    }
+
+    /**
+     * Deletes the clean shutdown file of a store that is not used, so its segments are not used when the store is
+     * enabled again after the retained messages were changed without it.
+     *
+     * @param localPersistenceFolder the folder of all local persistences
+     */
+    static void discard(final @NotNull File localPersistenceFolder) {
+        final File cleanShutdownFile = new File(localPersistenceFolder,
+                PERSISTENCE_NAME + File.separator + PERSISTENCE_VERSION + File.separator + CLEAN_SHUTDOWN_FILE_NAME);
+        if (cleanShutdownFile.exists() && !cleanShutdownFile.delete()) {
+            log.warn("Not able to delete the retained message clean shutdown file {}", cleanShutdownFile.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Opens the segments of the last clean shutdown and loads all buckets from them. Must be called before any other
+     * method.
+     *
+     * @return true if all buckets are loaded, false if the segments were deleted and every bucket has to be loaded
+     *         from the local persistence
+     */
+    boolean open() {
+        final File cleanShutdownFile = new File(folder, CLEAN_SHUTDOWN_FILE_NAME);
+        boolean valid = readCleanShutdown(cleanShutdownFile);
+        // the segments are changed from now on, they must not be used again after a crash
+        if (cleanShutdownFile.exists() && !cleanShutdownFile.delete()) {
+            log.warn("Not able to delete the retained message clean shutdown file {}", cleanShutdownFile.getAbsolutePath());
+            valid = false;
+        }
+        if (valid) {
+            try {
+                valid = openSegments();
+            } catch (final IOException e) {
+                log.warn("Not able to open the retained message segments in {}: {}", folder.getAbsolutePath(), e.getMessage());
+                log.debug("Original Exception:", e);
+                valid = false;
+            }
+        }
+        if (!valid) {
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.set(i, null);
+            }
+            segments.clear();
+            recordBytes.set(0);
+            nextSequence.set(0);
+            synchronized (this) {
+                nextSegmentId = 0;
+            }
+            deleteSegmentFiles();
+        }
+        return valid;
+    }
+
+    /**
+     * Loads the retained messages of a bucket from the local persistence. Must be called by the single writer of the
+     * bucket before any other write to the bucket, if the segments could not be opened.
+     */
+    void load(final int bucketIndex, final @NotNull RetainedMessageLocalPersistence localPersistence) {
+        final ConcurrentHashMap<String, Entry> bucket = new ConcurrentHashMap<>();
+        localPersistence.iterate((topic, retainedMessage) -> {
+            if (retainedMessage.getPayloadId() != null) {
+                bucket.put(topic, createEntry(bucketIndex, topic, retainedMessage));
+            }
+        }, bucketIndex);
+        buckets.set(bucketIndex, bucket);
+    }
+
+    /**
+     * @return true if the retained messages of the bucket are read from this store
+     */
+    boolean isLoaded(final int bucketIndex) {
+        return buckets.get(bucketIndex) != null;
+    }
+
+    /**
+     * Reads a retained message of a loaded bucket. May be called by any thread.
+     *
+     * @return a new {@link RetainedMessage} with its payload id but without payload, or null if no retained message
+     *         is stored for the topic or it is expired
+     */
+    @Nullable RetainedMessage get(final @NotNull String topic, final int bucketIndex) {
+        final ConcurrentHashMap<String, Entry> bucket = buckets.get(bucketIndex);
+        if (bucket == null) {
+            return null;
+        }
+        final Entry entry = bucket.get(topic);
+        if (entry == null || PublishUtil.isExpired(entry.timestamp, entry.messageExpiryInterval)) {
+            return null;
+        }
+        return serializer.deserializeValue(entry.readValue());
+    }
+
+    void put(final @NotNull String topic, final @NotNull RetainedMessage retainedMessage, final int bucketIndex) {
+        final ConcurrentHashMap<String, Entry> bucket = buckets.get(bucketIndex);
+        if (bucket == null) {
+            return;
+        }
+        if (retainedMessage.getPayloadId() == null) {
+            // like the local persistence, a retained message is never stored without the id of its payload
+            release(bucket.remove(topic));
+            return;
+        }
+        release(bucket.put(topic, createEntry(bucketIndex, topic, retainedMessage)));
+    }
+
+    void remove(final @NotNull String topic, final int bucketIndex) {
+        final ConcurrentHashMap<String, Entry> bucket = buckets.get(bucketIndex);
+        if (bucket == null) {
+            return;
+        }
+        release(bucket.remove(topic));
+    }
+
+    void removeExpired(final int bucketIndex) {
+        final ConcurrentHashMap<String, Entry> bucket = buckets.get(bucketIndex);
+        if (bucket == null) {
+            return;
+        }
+        for (final Entry entry : bucket.values()) {
+            if (PublishUtil.isExpired(entry.timestamp, entry.messageExpiryInterval) &&
+                    bucket.remove(entry.topic, entry)) {
+                release(entry);
+            }
+        }
+    }
+
+    void clear(final int bucketIndex) {
+        final ConcurrentHashMap<String, Entry> bucket = buckets.get(bucketIndex);
+        if (bucket == null) {
+            return;
+        }
+        for (final String topic : bucket.keySet()) {
+            release(bucket.remove(topic));
+        }
+    }
+
+    /**
+     * Stops serving reads, forces the segments to disk and writes the clean shutdown file if all buckets are stored
+     * in the segments. Must be called after the single writers of the buckets are closed.
+     */
+    synchronized void close() {
+        boolean complete = !incomplete.get();
+        for (int i = 0; i < buckets.length(); i++) {
+            if (buckets.getAndSet(i, null) == null) {
+                complete = false;
+            }
+        }
+        for (final Segment segment : segments.values()) {
+            segment.buffer.force();
+        }
+        segments.clear();
+        currentSegment = null;
+        recordBytes.set(0);
+        if (complete) {
+            writeCleanShutdown(new File(folder, CLEAN_SHUTDOWN_FILE_NAME));
+        }
+    }
+
+    private @NotNull Entry createEntry(
+            final int bucketIndex, final @NotNull String topic, final @NotNull RetainedMessage retainedMessage) {
+        return write(bucketIndex, topic, retainedMessage.getTimestamp(), retainedMessage.getMessageExpiryInterval(),
+                serializer.serializeValue(retainedMessage));
+    }
+
+    private @NotNull Entry write(
+            final int bucketIndex,
+            final @NotNull String topic,
+            final long timestamp,
+            final long messageExpiryInterval,
+            final @NotNull byte[] value) {
+
+        final long sequence = nextSequence.getAndIncrement();
+        final byte[] body = body(sequence, bucketIndex, topic, value);
+        final int length = RECORD_HEADER_SIZE + body.length;
+        if (SEGMENT_HEADER_SIZE + length > segmentSize) {
+            // a record that does not fit into a segment gets its own segment, which is deleted with the record
+            final Segment segment = dedicatedSegment(SEGMENT_HEADER_SIZE + length);
+            if (segment != null) {
+                final Entry entry = append(segment, bucketIndex, topic, sequence, timestamp, messageExpiryInterval, body);
+                if (entry != null) {
+                    return entry;
+                }
+            }
+            incomplete.set(true);
+            return new Entry(bucketIndex, topic, sequence, timestamp, messageExpiryInterval, value);
+        }
+        boolean compacted = false;
+        while (true) {
+            final Segment segment = currentSegment;
+            if (segment != null) {
+                final Entry entry = append(segment, bucketIndex, topic, sequence, timestamp, messageExpiryInterval, body);
+                if (entry != null) {
+                    return entry;
+                }
+            }
+            // the current segment is full
+            if (!compacted) {
+                compacted = true;
+                compactSparsestSegment();
+            } else if (nextSegment(segment) == null) {
+                incomplete.set(true);
+                return new Entry(bucketIndex, topic, sequence, timestamp, messageExpiryInterval, value);
+            }
+        }
+    }
+
+    private @Nullable Entry append(
+            final @NotNull Segment segment,
+            final int bucketIndex,
+            final @NotNull String topic,
+            final long sequence,
+            final long timestamp,
+            final long messageExpiryInterval,
+            final @NotNull byte[] body) {
+
+        final int length = RECORD_HEADER_SIZE + body.length;
+        // the live bytes are increased first, so the segment is not deleted while the record is written
+        if (!segment.retain(length)) {
+            return null;
+        }
+        final int offset = segment.allocate(length);
+        if (offset < 0) {
+            release(segment, length);
+            return null;
+        }
+        final ByteBuffer buffer = segment.buffer.duplicate();
+        buffer.position(offset + 1);
+        buffer.putInt(body.length);
+        buffer.putInt(checksum(body));
+        buffer.put(body);
+        // the state is written last, a record is only live once it is complete
+        segment.buffer.put(offset, STATE_LIVE);
+        recordBytes.addAndGet(length);
+        final Entry entry = new Entry(bucketIndex, topic, sequence, timestamp, messageExpiryInterval, segment, offset,
+                length, valueOffset(body));
+        segment.liveEntries.add(entry);
+        return entry;
+    }
+
+    private void release(final @Nullable Entry entry) {
+        if (entry == null || entry.segment == null) {
+            return;
+        }
+        unlink(entry);
+        release(entry.segment, entry.length);
+    }
+
+    /**
+     * Marks the record of the entry as removed, the live bytes of its segment are not released.
+     */
+    private void unlink(final @NotNull Entry entry) {
+        entry.segment.buffer.put(entry.offset, STATE_REMOVED);
+        entry.segment.liveEntries.remove(entry);
+        recordBytes.addAndGet(-entry.length);
+    }
+
+    private void release(final @NotNull Segment segment, final int length) {
+        if (segment.liveBytes.addAndGet(-length) == 0) {
+            deleteIfUnused(segment);
+        }
+    }
+
+    /**
+     * Creates the next segment, unless the current segment was already replaced by another writer.
+     *
+     * @param full the segment that was found to be full
+     * @return the current segment or null if no segment could be created
+     */
+    private synchronized @Nullable Segment nextSegment(final @Nullable Segment full) {
+        final Segment previous = currentSegment;
+        if (previous != full) {
+            return previous;
+        }
+        final Segment segment = createSegment(segmentSize);
+        if (segment == null) {
+            return null;
+        }
+        currentSegment = segment;
+
+        if (previous != null) {
+            deleteIfUnused(previous);
+        }
+        return segment;
+    }
+
+    private synchronized @Nullable Segment dedicatedSegment(final int size) {
+        return createSegment(size);
+    }
+
+    // guarded by this
+    private @Nullable Segment createSegment(final int size) {
+        final Segment segment;
+        try {
+            segment = Segment.create(nextSegmentId++, folder, size);
+        } catch (final IOException e) {
+            log.error("Not able to create a retained message segment in {}: {}", folder.getAbsolutePath(), e.getMessage());
+            log.debug("Original Exception:", e);
+            return null;
+        }
+        segments.put(segment.id, segment);
+        return segment;
+    }
+
+    /**
+     * Moves the records of the segment with the least live bytes to the current segment, if not more than a quarter
+     * of the segment is still live. The compaction is tried every time the current segment is full, by the writer that
+     * found it full. Only one writer compacts at a time, the other writers do not wait for it.
+     */
+    private void compactSparsestSegment() {
+        if (!compacting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            final Segment current = currentSegment;
+            Segment sparsest = null;
+            for (final Segment segment : segments.values()) {
+                final long liveBytes = segment.liveBytes.get();
+                if (segment != current && liveBytes >= 0 &&
+                        (sparsest == null || liveBytes < sparsest.liveBytes.get())) {
+                    sparsest = segment;
+                }
+            }
+            if (sparsest == null || sparsest.liveBytes.get() > segmentSize / 4) {
+                return;
+            }
+
+            for (final Entry entry : sparsest.liveEntries) {
+                final ConcurrentHashMap<String, Entry> bucket = buckets.get(entry.bucketIndex);
+                if (bucket == null) {
+                    continue;
+                }
+                final Entry moved = write(entry.bucketIndex, entry.topic, entry.timestamp,
+                        entry.messageExpiryInterval, entry.readValue());
+                // the single writer of the bucket may have replaced the entry in the meantime
+                release(bucket.replace(entry.topic, entry, moved) ? entry : moved);
+            }
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    private void deleteIfUnused(final @NotNull Segment segment) {
+        if (segment == currentSegment || !segment.liveBytes.compareAndSet(0, Segment.DELETED)) {
+            return;
+        }
+        segments.remove(segment.id);
+        // readers which still reference the segment keep the mapping until it is garbage collected
+        if (!segment.file.delete()) {
+            log.debug("Not able to delete the retained message segment {}", segment.file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Reads the records of all segments into the buckets.
+     *
+     * @return false if a segment or a record is not valid
+     */
+    private boolean openSegments() throws IOException {
+        final File[] files = folder.listFiles((dir, name) -> name.endsWith(SEGMENT_FILE_SUFFIX));
+        if (files == null) {
+            return false;
+        }
+        final List<Segment> opened = new ArrayList<>(files.length);
+        for (final File file : files) {
+            final Segment segment = Segment.open(file);
+            if (segment == null) {
+                log.warn("The retained message segment {} is not valid", file.getAbsolutePath());
+                return false;
+            }
+            opened.add(segment);
+        }
+        // the records of a topic are read in the order they were written
+        opened.sort(Comparator.comparingInt(segment -> segment.id));
+
+        final List<ConcurrentHashMap<String, Entry>> loaded = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            loaded.add(new ConcurrentHashMap<>());
+        }
+        long maxSequence = -1;
+        for (final Segment segment : opened) {
+            int offset = SEGMENT_HEADER_SIZE;
+            while (offset + RECORD_HEADER_SIZE <= segment.buffer.capacity()) {
+                final byte state = segment.buffer.get(offset);
+                if (state == STATE_UNUSED) {
+                    break;
+                }
+                final int bodyLength = segment.buffer.getInt(offset + 1);
+                if ((state != STATE_LIVE && state != STATE_REMOVED) || bodyLength < RECORD_BODY_HEADER_SIZE ||
+                        offset + RECORD_HEADER_SIZE + bodyLength > segment.buffer.capacity()) {
+                    log.warn("The retained message segment {} contains an invalid record", segment.file.getAbsolutePath());
+                    return false;
+                }
+                final int length = RECORD_HEADER_SIZE + bodyLength;
+                if (state == STATE_LIVE) {
+                    final byte[] body = new byte[bodyLength];
+                    final ByteBuffer buffer = segment.buffer.duplicate();
+                    buffer.position(offset + RECORD_HEADER_SIZE);
+                    buffer.get(body);
+                    final ByteBuffer bodyBuffer = ByteBuffer.wrap(body);
+                    final long sequence = bodyBuffer.getLong();
+                    final int bucketIndex = bodyBuffer.getInt();
+                    final int topicLength = bodyBuffer.getInt();
+                    if (segment.buffer.getInt(offset + 1 + Integer.BYTES) != checksum(body) ||
+                            bucketIndex < 0 || bucketIndex >= bucketCount ||
+                            topicLength < 0 || RECORD_BODY_HEADER_SIZE + topicLength > bodyLength) {
+                        log.warn("The retained message segment {} contains an invalid record", segment.file.getAbsolutePath());
+                        return false;
+                    }
+                    final String topic = new String(body, RECORD_BODY_HEADER_SIZE, topicLength, UTF_8);
+                    final RetainedMessage retainedMessage = serializer.deserializeValue(
+                            Arrays.copyOfRange(body, valueOffset(body), bodyLength));
+                    final Entry entry = new Entry(bucketIndex, topic, sequence, retainedMessage.getTimestamp(),
+                            retainedMessage.getMessageExpiryInterval(), segment, offset, length, valueOffset(body));
+                    maxSequence = Math.max(maxSequence, sequence);
+                    segment.liveBytes.addAndGet(length);
+                    segment.liveEntries.add(entry);
+                    recordBytes.addAndGet(length);
+                    // only the newest record of a topic is live, the segments are not deleted until all are read
+                    final Entry previous = loaded.get(bucketIndex).get(topic);
+                    if (previous == null || previous.sequence < sequence) {
+                        loaded.get(bucketIndex).put(topic, entry);
+                        if (previous != null) {
+                            unlink(previous);
+                            previous.segment.liveBytes.addAndGet(-previous.length);
+                        }
+                    } else {
+                        unlink(entry);
+                        segment.liveBytes.addAndGet(-length);
+                    }
+                }
+                offset += length;
+            }
+            segment.position.set(offset);
+            segments.put(segment.id, segment);
+        }
+
+        synchronized (this) {
+            nextSegmentId = opened.isEmpty() ? 0 : opened.get(opened.size() - 1).id + 1;
+        }
+        nextSequence.set(maxSequence + 1);
+        for (final Segment segment : opened) {
+            if (segment.liveBytes.get() == 0) {
+                deleteIfUnused(segment);
+            }
+        }
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.set(i, loaded.get(i));
+        }
+        return true;
+    }
+
+    private boolean readCleanShutdown(final @NotNull File cleanShutdownFile) {
+        if (!cleanShutdownFile.exists()) {
+            return false;
+        }
+        try (final FileChannel channel = FileChannel.open(cleanShutdownFile.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + Integer.BYTES);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // read until the buffer is full or the file ends
+            }
+            buffer.flip();
+            // the bucket of a topic depends on the bucket count
+            return buffer.remaining() == buffer.capacity() &&
+                    buffer.getInt() == SEGMENT_MAGIC && buffer.getInt() == bucketCount;
+        } catch (final IOException e) {
+            log.warn("Not able to read the retained message clean shutdown file {}: {}",
+                    cleanShutdownFile.getAbsolutePath(), e.getMessage());
+            log.debug("Original Exception:", e);
+            return false;
+        }
+    }
+
+    private void writeCleanShutdown(final @NotNull File cleanShutdownFile) {
+        try (final FileChannel channel = FileChannel.open(cleanShutdownFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            final ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + Integer.BYTES);
+            buffer.putInt(SEGMENT_MAGIC).putInt(bucketCount).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        } catch (final IOException e) {
+            log.warn("Not able to write the retained message clean shutdown file {}: {}",
+                    cleanShutdownFile.getAbsolutePath(), e.getMessage());
+            log.debug("Original Exception:", e);
+        }
+    }
+
+    private void deleteSegmentFiles() {
+        final File[] files = folder.listFiles((dir, name) -> name.endsWith(SEGMENT_FILE_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        for (final File file : files) {
+            if (!file.delete()) {
+                log.warn("Not able to delete the retained message segment {}", file.getAbsolutePath());
+            }
+        }
+    }
+
+    private static @NotNull byte[] body(
+            final long sequence, final int bucketIndex, final @NotNull String topic, final @NotNull byte[] value) {
+        final byte[] topicBytes = topic.getBytes(UTF_8);
+        return ByteBuffer.allocate(RECORD_BODY_HEADER_SIZE + topicBytes.length + value.length)
+                .putLong(sequence)
+                .putInt(bucketIndex)
+                .putInt(topicBytes.length)
+                .put(topicBytes)
+                .put(value)
+                .array();
+    }
+
+    private static int valueOffset(final @NotNull byte[] body) {
+        return RECORD_BODY_HEADER_SIZE + ByteBuffer.wrap(body).getInt(Long.BYTES + Integer.BYTES);
+    }
+
+    private static int checksum(final @NotNull byte[] body) {
+        final CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+        return (int) crc.getValue();
+    }
+
+    private static class Entry {
+
+        private final int bucketIndex;
+        private final @NotNull String topic;
+        private final long sequence;
+        private final long timestamp;
+        private final long messageExpiryInterval;
+        private final @Nullable Segment segment;
+        // the offset and the length of the whole record
+        private final int offset;
+        private final int length;
+        // the offset of the serialized retained message in the body of the record
+        private final int valueOffset;
+        // only set if the record could not be written to a segment
+        private final @Nullable byte[] heapValue;
+
+        Entry(final int bucketIndex, final @NotNull String topic, final long sequence, final long timestamp,
+              final long messageExpiryInterval, final @NotNull Segment segment, final int offset, final int length,
+              final int valueOffset) {
+            this.bucketIndex = bucketIndex;
+            this.topic = topic;
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.messageExpiryInterval = messageExpiryInterval;
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.valueOffset = valueOffset;
+            this.heapValue = null;
+        }
+
+        Entry(final int bucketIndex, final @NotNull String topic, final long sequence, final long timestamp,
+              final long messageExpiryInterval, final @NotNull byte[] heapValue) {
+            this.bucketIndex = bucketIndex;
+            this.topic = topic;
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.messageExpiryInterval = messageExpiryInterval;
+            this.segment = null;
+            this.offset = 0;
+            this.length = 0;
+            this.valueOffset = 0;
+            this.heapValue = heapValue;
+        }
+
+        @NotNull byte[] readValue() {
+            if (segment == null) {
+                return heapValue;
+            }
+            // a record is never overwritten, so it can be read without a lock
+            final byte[] value = new byte[length - RECORD_HEADER_SIZE - valueOffset];
+            final ByteBuffer buffer = segment.buffer.duplicate();
+            buffer.position(offset + RECORD_HEADER_SIZE + valueOffset);
+            buffer.get(value);
+            return value;
+        }
+    }
+
+    private static class Segment {
+
+        // the live bytes of a deleted segment, no record can be appended anymore
+        private static final long DELETED = -1;
+
+        private final int id;
+        private final @NotNull File file;
+        private final @NotNull MappedByteBuffer buffer;
+        private final @NotNull AtomicInteger position;
+        private final @NotNull AtomicLong liveBytes = new AtomicLong();
+        private final @NotNull Set<Entry> liveEntries = ConcurrentHashMap.newKeySet();
+
+        private Segment(final int id, final @NotNull File file, final @NotNull MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.buffer = buffer;
+            this.position = new AtomicInteger(SEGMENT_HEADER_SIZE);
+        }
+
+        static @NotNull Segment create(final int id, final @NotNull File folder, final int size) throws IOException {
+            final File file = new File(folder, id + SEGMENT_FILE_SUFFIX);
+            try (final FileChannel channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // the mapping stays valid after the channel is closed
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(0, SEGMENT_MAGIC);
+                return new Segment(id, file, buffer);
+            }
+        }
+
+        /**
+         * @return the segment or null if the file is not a segment
+         */
+        static @Nullable Segment open(final @NotNull File file) throws IOException {
+            final String name = file.getName();
+            final int id;
+            try {
+                id = Integer.parseInt(name.substring(0, name.length() - SEGMENT_FILE_SUFFIX.length()));
+            } catch (final NumberFormatException e) {
+                return null;
+            }
+            try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                if (channel.size() < SEGMENT_HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                    return null;
+                }
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                if (buffer.getInt(0) != SEGMENT_MAGIC) {
+                    return null;
+                }
+                return new Segment(id, file, buffer);
+            }
+        }
+
+        /**
+         * @return false if the segment was deleted
+         */
+        boolean retain(final int length) {
+            while (true) {
+                final long current = liveBytes.get();
+                if (current == DELETED) {
+                    return false;
+                }
+                if (liveBytes.compareAndSet(current, current + length)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * @return the offset of the reserved range or -1 if the segment is full
+         */
+        int allocate(final int length) {
+            while (true) {
+                final int offset = position.get();
+                if (offset + length > buffer.capacity()) {
+                    return -1;
+                }
+                if (position.compareAndSet(offset, offset + length)) {
+                    return offset;
+                }
+            }
+        }
+    }
+}
@@ -24,6 +24,7 @@ import com.hivemq.persistence.PersistenceFilter;
 import com.hivemq.persistence.RetainedMessage;
 
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 /**
  * @author Dominik Obermaier
@@ -76,6 +77,15 @@ public interface RetainedMessageLocalPersistence extends LocalPersistence {
     @ReadOnly
     Set<String> getAllTopics(@NotNull PersistenceFilter filter, int bucket);
 
+    /**
+     * Iterate all retained messages of a persistence bucket which are not expired. The retained messages are passed
+     * with their payload id but without their payload.
+     *
+     * @param consumer    the consumer for the topic and the retained message.
+     * @param bucketIndex The index of the bucket in which the retained messages are stored.
+     */
+    void iterate(@NotNull BiConsumer<String, RetainedMessage> consumer, int bucketIndex);
+
     /**
      * Trigger a cleanup for a specific bucket.
      *
@@ -16,15 +16,21 @@
 
 package com.hivemq.persistence.retained;
 
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.hivemq.annotations.NotNull;
+import com.hivemq.annotations.Nullable;
 import com.hivemq.bootstrap.ioc.lazysingleton.LazySingleton;
+import com.hivemq.configuration.service.InternalConfigurations;
 import com.hivemq.mqtt.topic.TopicMatcher;
 import com.hivemq.persistence.*;
 import com.hivemq.persistence.payload.PublishPayloadPersistence;
 import com.hivemq.persistence.util.FutureUtils;
+import com.hivemq.util.LocalPersistenceFileUtil;
 
 import javax.inject.Inject;
 import java.util.HashSet;
@@ -44,19 +50,43 @@ public class RetainedMessagePersistenceImpl extends AbstractPersistence implemen
     private final @NotNull TopicMatcher topicMatcher;
     private final @NotNull PublishPayloadPersistence payloadPersistence;
     private final @NotNull ProducerQueues singleWriter;
+    private final @Nullable MappedRetainedMessageStore mappedStore;
 
     @Inject
     RetainedMessagePersistenceImpl(final @NotNull RetainedMessageLocalPersistence localPersistence,
                                    final @NotNull TopicMatcher topicMatcher,
                                    final @NotNull PublishPayloadPersistence payloadPersistence,
-                                   final @NotNull SingleWriterService singleWriterService) {
+                                   final @NotNull SingleWriterService singleWriterService,
+                                   final @NotNull LocalPersistenceFileUtil localPersistenceFileUtil,
+                                   final @NotNull MetricRegistry metricRegistry) {
+
+        this(localPersistence, topicMatcher, payloadPersistence, singleWriterService,
+                createMappedStore(localPersistenceFileUtil, metricRegistry, singleWriterService.getPersistenceBucketCount()));
+    }
+
+    @VisibleForTesting
+    RetainedMessagePersistenceImpl(final @NotNull RetainedMessageLocalPersistence localPersistence,
+                                   final @NotNull TopicMatcher topicMatcher,
+                                   final @NotNull PublishPayloadPersistence payloadPersistence,
+                                   final @NotNull SingleWriterService singleWriterService,
+                                   final @Nullable MappedRetainedMessageStore mappedStore) {
 
         this.localPersistence = localPersistence;
         this.topicMatcher = topicMatcher;
         this.payloadPersistence = payloadPersistence;
+        this.mappedStore = mappedStore;
 
         singleWriter = singleWriterService.getRetainedMessageQueue();
 
+        if (mappedStore != null && !mappedStore.open()) {
+            // the writes of a bucket are queued behind its load, so the store does not miss any of them
+            singleWriter.submitToAllQueues((bucketIndex, queueBuckets, queueIndex) -> {
+                for (final Integer bucket : queueBuckets) {
+                    mappedStore.load(bucket, localPersistence);
+                }
+                return null;
+            });
+        }
     }
 
     @NotNull
@@ -69,7 +99,7 @@ public class RetainedMessagePersistenceImpl extends AbstractPersistence implemen
             }
 
             return singleWriter.submit(topic, (bucketIndex, queueBuckets, queueIndex) -> {
-                final RetainedMessage retainedMessage = localPersistence.get(topic, bucketIndex);
+                final RetainedMessage retainedMessage = getLocally(topic, bucketIndex);
                 if (retainedMessage == null) {
                     return null;
                 }
@@ -83,6 +113,39 @@ public class RetainedMessagePersistenceImpl extends AbstractPersistence implemen
         }
     }
 
+    private @Nullable RetainedMessage getLocally(final @NotNull String topic, final int bucketIndex) {
+        if (mappedStore == null || !mappedStore.isLoaded(bucketIndex)) {
+            return localPersistence.get(topic, bucketIndex);
+        }
+        final RetainedMessage retainedMessage = mappedStore.get(topic, bucketIndex);
+        if (retainedMessage == null) {
+            return null;
+        }
+        final byte[] payload = payloadPersistence.getPayloadOrNull(retainedMessage.getPayloadId());
+        if (payload == null) {
+            // the local persistence handles a payload that was just removed
+            return localPersistence.get(topic, bucketIndex);
+        }
+        retainedMessage.setMessage(payload);
+        return retainedMessage;
+    }
+
+    private static @Nullable MappedRetainedMessageStore createMappedStore(
+            final @NotNull LocalPersistenceFileUtil localPersistenceFileUtil,
+            final @NotNull MetricRegistry metricRegistry,
+            final int bucketCount) {
+
+        if (!InternalConfigurations.RETAINED_MESSAGE_MAPPED_STORE_ENABLED.get()) {
+            // the segments would miss the changes made while the store is disabled
+            MappedRetainedMessageStore.discard(localPersistenceFileUtil.getLocalPersistenceFolder());
+            return null;
+        }
+        return new MappedRetainedMessageStore(
+                localPersistenceFileUtil.getVersionedLocalPersistenceFolder(
+                        MappedRetainedMessageStore.PERSISTENCE_NAME, MappedRetainedMessageStore.PERSISTENCE_VERSION),
+                metricRegistry, bucketCount, InternalConfigurations.RETAINED_MESSAGE_MAPPED_STORE_SEGMENT_SIZE);
+    }
+
     @Override
     public long size() {
         return localPersistence.size();
@@ -96,6 +159,9 @@ public class RetainedMessagePersistenceImpl extends AbstractPersistence implemen
 
             return singleWriter.submit(topic, (bucketIndex, queueBuckets, queueIndex) -> {
                 localPersistence.remove(topic, bucketIndex);
+                if (mappedStore != null) {
+                    mappedStore.remove(topic, bucketIndex);
+                }
                 return null;
             });
         } catch (final Throwable throwable) {
@@ -117,6 +183,9 @@ public class RetainedMessagePersistenceImpl extends AbstractPersistence implemen
 
             return singleWriter.submit(topic, (bucketIndex, queueBuckets, queueIndex) -> {
                 localPersistence.put(retainedMessage, topic, bucketIndex);
+                if (mappedStore != null) {
+                    mappedStore.put(topic, retainedMessage, bucketIndex);
+                }
                 return null;
             });
 
@@ -152,6 +221,9 @@ public class RetainedMessagePersistenceImpl extends AbstractPersistence implemen
     public ListenableFuture<Void> cleanUp(final int bucketIndex) {
         return singleWriter.submit(bucketIndex, (bucketIndex1, queueBuckets, queueIndex) -> {
             localPersistence.cleanUp(bucketIndex1);
+            if (mappedStore != null) {
+                mappedStore.removeExpired(bucketIndex1);
+            }
             return null;
         });
     }
@@ -159,7 +231,11 @@ public class RetainedMessagePersistenceImpl extends AbstractPersistence implemen
     @NotNull
     @Override
     public ListenableFuture<Void> closeDB() {
-        return closeDB(localPersistence, singleWriter);
+        final ListenableFuture<Void> closeFuture = closeDB(localPersistence, singleWriter);
+        if (mappedStore != null) {
+            closeFuture.addListener(mappedStore::close, MoreExecutors.directExecutor());
+        }
+        return closeFuture;
     }
 
     @NotNull
@@ -168,6 +244,9 @@ public class RetainedMessagePersistenceImpl extends AbstractPersistence implemen
         final List<ListenableFuture<Void>> futureList = singleWriter.submitToAllQueues((bucketIndex, queueBuckets, queueIndex) -> {
             for (final Integer bucket : queueBuckets) {
                 localPersistence.clear(bucket);
+                if (mappedStore != null) {
+                    mappedStore.clear(bucket);
+                }
             }
             return null;
         });
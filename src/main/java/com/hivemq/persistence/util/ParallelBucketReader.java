@@ -0,0 +1,156 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.persistence.util;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.RateLimiter;
+import com.hivemq.annotations.NotNull;
+import com.hivemq.annotations.Nullable;
+import com.hivemq.bootstrap.ioc.lazysingleton.LazySingleton;
+import com.hivemq.common.shutdown.HiveMQShutdownHook;
+import com.hivemq.common.shutdown.ShutdownHooks;
+import com.hivemq.persistence.local.xodus.BucketChunkResult;
+import com.hivemq.util.ThreadFactoryUtil;
+
+import javax.inject.Inject;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import static com.hivemq.configuration.service.InternalConfigurations.*;
+
+/**
+ * Reads chunks of buckets for the extension iterations on its own threads instead of the single writer queues, so an
+ * iteration does not wait behind the live traffic of the buckets and the buckets are read concurrently.
+ * <p>
+ * This is only safe for reads which use read-only transactions, because those see a consistent snapshot of the bucket
+ * without any synchronization with the single writer.
+ * <p>
+ * The amount of read entries per second of all iterations together can be capped, the thread that read a chunk then
+ * waits until the entries are admitted.
+ * <p>
+ * The threads are only started with the first read and are stopped on shutdown.
+ */
+@LazySingleton
+public class ParallelBucketReader {
+
+    private final boolean enabled;
+    private final int threads;
+    private final @Nullable RateLimiter rateLimiter;
+    private final @NotNull ShutdownHooks shutdownHooks;
+
+    private volatile @Nullable ListeningExecutorService executorService;
+
+    @Inject
+    public ParallelBucketReader(final @NotNull ShutdownHooks shutdownHooks) {
+        this(shutdownHooks, PERSISTENCE_PARALLEL_ITERATION_ENABLED.get(), PERSISTENCE_PARALLEL_ITERATION_THREADS.get(),
+                PERSISTENCE_PARALLEL_ITERATION_MAX_ENTRIES_PER_SECOND.get());
+    }
+
+    @VisibleForTesting
+    ParallelBucketReader(
+            final @NotNull ShutdownHooks shutdownHooks,
+            final boolean enabled,
+            final int threads,
+            final int maxEntriesPerSecond) {
+        this.shutdownHooks = shutdownHooks;
+        this.enabled = enabled;
+        this.threads = Math.max(1, threads);
+        this.rateLimiter = maxEntriesPerSecond > 0 ? RateLimiter.create(maxEntriesPerSecond) : null;
+    }
+
+    /**
+     * @return true if the buckets must be read with {@link #read(Supplier)} instead of the single writer
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the max amount of entries a chunk contains over the given amount of buckets
+     */
+    public int maxResultsPerBucket(final int unfinishedBuckets) {
+        return Math.max(1, PERSISTENCE_PARALLEL_ITERATION_MAX_CHUNK_SIZE.get() / Math.max(1, unfinishedBuckets));
+    }
+
+    /**
+     * @param bucketRead reads a chunk of a single bucket in a read-only transaction
+     * @return a future that completes with the chunk when it is read and its entries are admitted
+     */
+    @NotNull
+    public <V> ListenableFuture<BucketChunkResult<Map<String, V>>> read(
+            final @NotNull Supplier<BucketChunkResult<Map<String, V>>> bucketRead) {
+
+        return getExecutorService().submit(() -> {
+            final BucketChunkResult<Map<String, V>> result = bucketRead.get();
+            final int entries = result.getValue().size();
+            if (rateLimiter != null && entries > 0) {
+                rateLimiter.acquire(entries);
+            }
+            return result;
+        });
+    }
+
+    private @NotNull ListeningExecutorService getExecutorService() {
+        ListeningExecutorService executorService = this.executorService;
+        if (executorService == null) {
+            synchronized (this) {
+                executorService = this.executorService;
+                if (executorService == null) {
+                    executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(
+                            threads, ThreadFactoryUtil.create("parallel-bucket-reader-%d")));
+                    shutdownHooks.add(new ExecutorShutdownHook(executorService));
+                    this.executorService = executorService;
+                }
+            }
+        }
+        return executorService;
+    }
+
+    private static class ExecutorShutdownHook extends HiveMQShutdownHook {
+
+        private final @NotNull ListeningExecutorService executorService;
+
+        ExecutorShutdownHook(final @NotNull ListeningExecutorService executorService) {
+            this.executorService = executorService;
+        }
+
+        @Override
+        public @NotNull String name() {
+            return "Parallel Bucket Reader Shutdown Hook";
+        }
+
+        @Override
+        public @NotNull Priority priority() {
+            return Priority.HIGH;
+        }
+
+        @Override
+        public boolean isAsynchronous() {
+            return false;
+        }
+
+        @Override
+        public void run() {
+            // the reads of an iteration are not resumed after a restart, so they do not need to finish
+            executorService.shutdownNow();
+        }
+    }
+}
@@ -17,8 +17,8 @@
 package com.hivemq.security.ssl;
 
 import com.google.inject.Inject;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.logging.EventLog;
-import com.hivemq.util.ChannelAttributes;
 import com.hivemq.util.ChannelUtils;
 import io.netty.channel.ChannelHandlerAdapter;
 import io.netty.channel.ChannelHandlerContext;
@@ -85,7 +85,7 @@ public class SslExceptionHandler extends ChannelHandlerAdapter {
 
             final Throwable rootCause = ExceptionUtils.getRootCause(cause);
 
-            final String clientId = ctx.channel().attr(ChannelAttributes.CLIENT_ID).get();
+            final String clientId = ClientConnection.of(ctx.channel()).getClientId();
             if (clientId != null) {
                 log.debug("SSL message transmission for client {} failed: {}", clientId, rootCause.getMessage());
             } else {
@@ -100,7 +100,7 @@ public class SslExceptionHandler extends ChannelHandlerAdapter {
 
             final Throwable rootCause = ExceptionUtils.getRootCause(cause);
 
-            final String clientId = ctx.channel().attr(ChannelAttributes.CLIENT_ID).get();
+            final String clientId = ClientConnection.of(ctx.channel()).getClientId();
             if (clientId != null) {
                 log.debug("SSL Handshake for client {} failed: {}", clientId, rootCause.getMessage());
             } else {
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.throttling;
+
+import com.hivemq.annotations.NotNull;
+import com.hivemq.annotations.Nullable;
+import com.hivemq.bootstrap.ClientConnection;
+import com.hivemq.configuration.service.entity.ClientShapingProperties;
+import io.netty.channel.Channel;
+import io.netty.util.Timeout;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the bytes and PUBLISHes per second that are read from a single client.
+ * <p>
+ * The MQTT decoder reports every decoded message. When a budget is exhausted, reading from the channel is suspended
+ * (see {@link ClientConnection#suspendReads(Channel, int)}) instead of disconnecting the client. Messages that were already read are still decoded, so
+ * a budget may go into debt, which is paid off before reading is resumed. Reading is resumed by the timer of the
+ * {@link ClientTrafficShaper}, which is shared by all clients.
+ * <p>
+ * The rate limiter is only used by the event loop of the channel.
+ */
+public class ClientIncomingRateLimiter {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long MIN_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final @NotNull ClientTrafficShaper shaper;
+    private final @NotNull Channel channel;
+
+    private long bytesPerSecond;
+    private long publishesPerSecond;
+    private double byteBudget;
+    private double publishBudget;
+    private long lastRefill;
+
+    private boolean suspended;
+    private long suspendedSince;
+    private @Nullable Timeout resumeTimeout;
+    // invalidates a scheduled resume that was replaced by a direct resume
+    private long resumeGeneration;
+
+    ClientIncomingRateLimiter(
+            final @NotNull ClientTrafficShaper shaper,
+            final @NotNull Channel channel,
+            final long bytesPerSecond,
+            final long publishesPerSecond) {
+
+        this.shaper = shaper;
+        this.channel = channel;
+        setBudgets(bytesPerSecond, publishesPerSecond);
+    }
+
+    /**
+     * Changes the limits of the client, must be called on the event loop of the channel.
+     *
+     * @param bytesPerSecond     the bytes per second, {@link ClientShapingProperties#UNLIMITED} to not limit the bytes
+     * @param publishesPerSecond the PUBLISHes per second, {@link ClientShapingProperties#UNLIMITED} to not limit the
+     *                           PUBLISHes
+     */
+    public void setLimits(final long bytesPerSecond, final long publishesPerSecond) {
+        setBudgets(bytesPerSecond, publishesPerSecond);
+        if (suspended) {
+            cancelResume();
+            resume();
+        }
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public long getPublishesPerSecond() {
+        return publishesPerSecond;
+    }
+
+    /**
+     * Takes a decoded message from the budgets and suspends reading if a budget is exhausted.
+     *
+     * @param bytes   the encoded length of the message
+     * @param publish whether the message is a PUBLISH
+     */
+    public void messageDecoded(final int bytes, final boolean publish) {
+        refill();
+        if (bytesPerSecond != ClientShapingProperties.UNLIMITED) {
+            byteBudget -= bytes;
+        }
+        if (publish && publishesPerSecond != ClientShapingProperties.UNLIMITED) {
+            publishBudget--;
+        }
+        if (!suspended && isExhausted()) {
+            suspended = true;
+            suspendedSince = shaper.nanoTime();
+            shaper.readsSuspended();
+            ClientConnection.suspendReads(channel, ClientConnection.READS_SUSPENDED_BY_RATE_LIMIT);
+            scheduleResume();
+        }
+    }
+
+    /**
+     * Resumes reading if the budgets were refilled, runs on the event loop of the channel.
+     */
+    void resume() {
+        resumeTimeout = null;
+        if (!suspended) {
+            return;
+        }
+        if (channel.isActive()) {
+            refill();
+            if (isExhausted()) {
+                scheduleResume();
+                return;
+            }
+            ClientConnection.resumeReads(channel, ClientConnection.READS_SUSPENDED_BY_RATE_LIMIT);
+        }
+        suspended = false;
+        shaper.readsResumed(shaper.nanoTime() - suspendedSince);
+    }
+
+    private void setBudgets(final long bytesPerSecond, final long publishesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.publishesPerSecond = publishesPerSecond;
+        // the budgets allow a burst of one second
+        byteBudget = bytesPerSecond;
+        publishBudget = Math.max(publishesPerSecond, 1);
+        lastRefill = shaper.nanoTime();
+    }
+
+    private void refill() {
+        final long now = shaper.nanoTime();
+        final long elapsed = now - lastRefill;
+        if (elapsed <= 0) {
+            return;
+        }
+        lastRefill = now;
+        if (bytesPerSecond != ClientShapingProperties.UNLIMITED) {
+            byteBudget = Math.min(bytesPerSecond, byteBudget + (double) elapsed * bytesPerSecond / NANOS_PER_SECOND);
+        }
+        if (publishesPerSecond != ClientShapingProperties.UNLIMITED) {
+            publishBudget = Math.min(Math.max(publishesPerSecond, 1),
+                    publishBudget + (double) elapsed * publishesPerSecond / NANOS_PER_SECOND);
+        }
+    }
+
+    private boolean isExhausted() {
+        return (bytesPerSecond != ClientShapingProperties.UNLIMITED && byteBudget < 0) ||
+                (publishesPerSecond != ClientShapingProperties.UNLIMITED && publishBudget < 1);
+    }
+
+    private void scheduleResume() {
+        if (resumeTimeout != null) {
+            return;
+        }
+        double seconds = 0;
+        if (bytesPerSecond != ClientShapingProperties.UNLIMITED && byteBudget < 0) {
+            seconds = -byteBudget / bytesPerSecond;
+        }
+        if (publishesPerSecond != ClientShapingProperties.UNLIMITED && publishBudget < 1) {
+            seconds = Math.max(seconds, (1 - publishBudget) / publishesPerSecond);
+        }
+        final long delayNanos = Math.max(MIN_DELAY_NANOS, (long) (seconds * NANOS_PER_SECOND));
+        final long generation = resumeGeneration;
+        resumeTimeout = shaper.schedule(channel.eventLoop(), () -> {
+            if (generation == resumeGeneration) {
+                resume();
+            }
+        }, delayNanos);
+    }
+
+    private void cancelResume() {
+        if (resumeTimeout != null) {
+            resumeTimeout.cancel();
+            resumeTimeout = null;
+            resumeGeneration++;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.throttling;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.hivemq.annotations.NotNull;
+import com.hivemq.annotations.Nullable;
+import com.hivemq.bootstrap.ioc.lazysingleton.LazySingleton;
+import com.hivemq.common.shutdown.HiveMQShutdownHook;
+import com.hivemq.common.shutdown.ShutdownHooks;
+import com.hivemq.configuration.service.entity.ClientShapingProperties;
+import com.hivemq.metrics.HiveMQMetrics;
+import com.hivemq.util.ThreadFactoryUtil;
+import io.netty.channel.Channel;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+
+import javax.inject.Inject;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creates the {@link ClientTrafficShapingHandler}s and {@link ClientIncomingRateLimiter}s of the clients and owns the
+ * timer they share.
+ * <p>
+ * A single {@link HashedWheelTimer} releases the delayed writes and resumes the suspended reads of all throttled
+ * clients, so no task has to be scheduled on the event loops for clients that are not throttled. The timer is only
+ * started when the first client is throttled.
+ */
+@LazySingleton
+public class ClientTrafficShaper {
+
+    // the precision with which delayed writes are released
+    private static final long TICK_DURATION_MILLIS = 10;
+
+    private final @NotNull ShutdownHooks shutdownHooks;
+
+    private final @NotNull Timer throttledTimer;
+    private final @NotNull Counter delayedMessagesCounter;
+    private final @NotNull AtomicLong throttledClients = new AtomicLong();
+    private final @NotNull Timer suspendedTimer;
+    private final @NotNull AtomicLong suspendedClients = new AtomicLong();
+
+    private volatile @Nullable HashedWheelTimer timer;
+
+    @Inject
+    public ClientTrafficShaper(final @NotNull MetricRegistry metricRegistry, final @NotNull ShutdownHooks shutdownHooks) {
+        this.shutdownHooks = shutdownHooks;
+
+        throttledTimer = metricRegistry.timer(HiveMQMetrics.CLIENT_TRAFFIC_SHAPING_THROTTLED_TIME.name());
+        delayedMessagesCounter = metricRegistry.counter(HiveMQMetrics.CLIENT_TRAFFIC_SHAPING_DELAYED_MESSAGES_COUNT.name());
+        metricRegistry.register(HiveMQMetrics.CLIENT_TRAFFIC_SHAPING_THROTTLED_CLIENTS_CURRENT.name(),
+                (Gauge<Number>) throttledClients::get);
+        suspendedTimer = metricRegistry.timer(HiveMQMetrics.CLIENT_INCOMING_RATE_LIMIT_SUSPENDED_TIME.name());
+        metricRegistry.register(HiveMQMetrics.CLIENT_INCOMING_RATE_LIMIT_SUSPENDED_CLIENTS_CURRENT.name(),
+                (Gauge<Number>) suspendedClients::get);
+    }
+
+    /**
+     * @param properties the outgoing traffic budgets of the client
+     * @return a new handler for a single channel
+     */
+    public @NotNull ClientTrafficShapingHandler newHandler(final @NotNull ClientShapingProperties properties) {
+        return new ClientTrafficShapingHandler(this, properties.getOutgoingBytesPerSecond(),
+                properties.getOutgoingPublishesPerSecond());
+    }
+
+    /**
+     * @param properties the incoming rate limits of the client
+     * @param channel    the channel of the client
+     * @return a new rate limiter for the channel
+     */
+    public @NotNull ClientIncomingRateLimiter newIncomingRateLimiter(
+            final @NotNull ClientShapingProperties properties, final @NotNull Channel channel) {
+
+        return new ClientIncomingRateLimiter(this, channel, properties.getIncomingBytesPerSecond(),
+                properties.getIncomingPublishesPerSecond());
+    }
+
+    /**
+     * Runs a task on the executor of a channel after a delay.
+     *
+     * @param executor   the event loop of the channel
+     * @param task       the task to run
+     * @param delayNanos the delay in nanoseconds
+     * @return the timeout which can be used to cancel the task
+     */
+    @NotNull Timeout schedule(final @NotNull Executor executor, final @NotNull Runnable task, final long delayNanos) {
+        return timer().newTimeout(timeout -> executor.execute(task), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    long nanoTime() {
+        return System.nanoTime();
+    }
+
+    void writeDelayed() {
+        delayedMessagesCounter.inc();
+    }
+
+    void throttlingStarted() {
+        throttledClients.incrementAndGet();
+    }
+
+    void throttlingFinished(final long throttledNanos) {
+        throttledClients.decrementAndGet();
+        throttledTimer.update(throttledNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void readsSuspended() {
+        suspendedClients.incrementAndGet();
+    }
+
+    void readsResumed(final long suspendedNanos) {
+        suspendedClients.decrementAndGet();
+        suspendedTimer.update(suspendedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private @NotNull HashedWheelTimer timer() {
+        HashedWheelTimer timer = this.timer;
+        if (timer == null) {
+            synchronized (this) {
+                timer = this.timer;
+                if (timer == null) {
+                    timer = new HashedWheelTimer(ThreadFactoryUtil.create("client-traffic-shaper-timer-%d"),
+                            TICK_DURATION_MILLIS, TimeUnit.MILLISECONDS);
+                    shutdownHooks.add(new TimerShutdownHook(timer));
+                    this.timer = timer;
+                }
+            }
+        }
+        return timer;
+    }
+
+    private static class TimerShutdownHook extends HiveMQShutdownHook {
+
+        private final @NotNull HashedWheelTimer timer;
+
+        TimerShutdownHook(final @NotNull HashedWheelTimer timer) {
+            this.timer = timer;
+        }
+
+        @Override
+        public @NotNull String name() {
+            return "Client Traffic Shaper Timer Shutdown Hook";
+        }
+
+        @Override
+        public @NotNull Priority priority() {
+            return Priority.HIGH;
+        }
+
+        @Override
+        public boolean isAsynchronous() {
+            return false;
+        }
+
+        @Override
+        public void run() {
+            timer.stop();
+        }
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.throttling;
+
+import com.hivemq.annotations.NotNull;
+import com.hivemq.annotations.Nullable;
+import com.hivemq.configuration.service.entity.ClientShapingProperties;
+import com.hivemq.mqtt.message.MessageType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.Timeout;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shapes the outgoing traffic of a single client with a budget of bytes and a budget of PUBLISHes per second.
+ * <p>
+ * Like Netty's ChannelTrafficShapingHandler, PUBLISHes that exceed a budget are delayed in the order they were written
+ * and the channel is not writable while PUBLISHes are delayed. All other packets, like acknowledgements, PINGRESP and
+ * DISCONNECT, are written immediately. Their bytes are taken from the byte budget, so they delay the following
+ * PUBLISHes instead. Instead of a traffic counter task per channel, the
+ * budgets are refilled when a message is written and the delayed messages are released by the timer of the
+ * {@link ClientTrafficShaper}, which is shared by all clients.
+ * <p>
+ * The handler must be placed between the socket and the MQTT encoder, so every message is a single encoded MQTT packet.
+ * It is only used by the event loop of the channel.
+ */
+public class ClientTrafficShapingHandler extends ChannelOutboundHandlerAdapter {
+
+    // the index Netty's ChannelTrafficShapingHandler uses, which is never used together with this handler
+    public static final int WRITABILITY_INDEX = 1;
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long MIN_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final @NotNull ClientTrafficShaper shaper;
+    private final @NotNull ArrayDeque<DelayedWrite> delayedWrites = new ArrayDeque<>();
+
+    private long bytesPerSecond;
+    private long publishesPerSecond;
+    private double byteBudget;
+    private double publishBudget;
+    private long lastRefill;
+
+    private @Nullable ChannelHandlerContext ctx;
+    private @Nullable Timeout releaseTimeout;
+    // invalidates a scheduled release that was replaced by a direct release
+    private long releaseGeneration;
+    private boolean flushDelayed;
+    private long throttledSince;
+
+    ClientTrafficShapingHandler(
+            final @NotNull ClientTrafficShaper shaper, final long bytesPerSecond, final long publishesPerSecond) {
+
+        this.shaper = shaper;
+        setBudgets(bytesPerSecond, publishesPerSecond);
+    }
+
+    /**
+     * Changes the budgets of the client, must be called on the event loop of the channel.
+     *
+     * @param bytesPerSecond     the bytes per second, {@link ClientShapingProperties#UNLIMITED} to not limit the bytes
+     * @param publishesPerSecond the PUBLISHes per second, {@link ClientShapingProperties#UNLIMITED} to not limit the
+     *                           PUBLISHes
+     */
+    public void setLimits(final long bytesPerSecond, final long publishesPerSecond) {
+        setBudgets(bytesPerSecond, publishesPerSecond);
+        if (releaseTimeout != null) {
+            cancelRelease();
+            release();
+        }
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public long getPublishesPerSecond() {
+        return publishesPerSecond;
+    }
+
+    @Override
+    public void handlerAdded(final @NotNull ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void handlerRemoved(final @NotNull ChannelHandlerContext ctx) {
+        if (delayedWrites.isEmpty()) {
+            return;
+        }
+        cancelRelease();
+        final boolean active = ctx.channel().isActive();
+        DelayedWrite delayedWrite;
+        while ((delayedWrite = delayedWrites.poll()) != null) {
+            if (active) {
+                ctx.write(delayedWrite.message, delayedWrite.promise);
+            } else {
+                ReferenceCountUtil.release(delayedWrite.message);
+                delayedWrite.promise.tryFailure(new ClosedChannelException());
+            }
+        }
+        if (active) {
+            ctx.flush();
+            setWritable(ctx, true);
+        }
+        shaper.throttlingFinished(shaper.nanoTime() - throttledSince);
+    }
+
+    @Override
+    public void write(final @NotNull ChannelHandlerContext ctx, final @NotNull Object msg, final @NotNull ChannelPromise promise) {
+        if (!isPublish(msg)) {
+            acquireBytes(msg);
+            ctx.write(msg, promise);
+            return;
+        }
+        if (delayedWrites.isEmpty() && tryAcquire(msg)) {
+            ctx.write(msg, promise);
+            return;
+        }
+        delayedWrites.add(new DelayedWrite(msg, promise));
+        shaper.writeDelayed();
+        if (delayedWrites.size() == 1) {
+            throttledSince = shaper.nanoTime();
+            shaper.throttlingStarted();
+            setWritable(ctx, false);
+            scheduleRelease(ctx);
+        }
+    }
+
+    @Override
+    public void flush(final @NotNull ChannelHandlerContext ctx) {
+        if (!delayedWrites.isEmpty()) {
+            flushDelayed = true;
+        }
+        // the messages that were not delayed are flushed immediately
+        ctx.flush();
+    }
+
+    /**
+     * Writes the delayed messages that fit into the budgets, runs on the event loop of the channel.
+     */
+    void release() {
+        releaseTimeout = null;
+        final ChannelHandlerContext ctx = this.ctx;
+        if (ctx == null || ctx.isRemoved() || delayedWrites.isEmpty()) {
+            return;
+        }
+        boolean written = false;
+        DelayedWrite delayedWrite;
+        while ((delayedWrite = delayedWrites.peek()) != null && tryAcquire(delayedWrite.message)) {
+            delayedWrites.poll();
+            ctx.write(delayedWrite.message, delayedWrite.promise);
+            written = true;
+        }
+        if (written && flushDelayed) {
+            ctx.flush();
+        }
+        if (delayedWrites.isEmpty()) {
+            flushDelayed = false;
+            setWritable(ctx, true);
+            shaper.throttlingFinished(shaper.nanoTime() - throttledSince);
+        } else {
+            scheduleRelease(ctx);
+        }
+    }
+
+    private void setBudgets(final long bytesPerSecond, final long publishesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.publishesPerSecond = publishesPerSecond;
+        // the budgets allow a burst of one second
+        byteBudget = bytesPerSecond;
+        publishBudget = Math.max(publishesPerSecond, 1);
+        lastRefill = shaper.nanoTime();
+    }
+
+    private boolean tryAcquire(final @NotNull Object publish) {
+        refill();
+        // a message may exceed the remaining bytes, the following PUBLISHes are then delayed until the budget is paid off
+        if (bytesPerSecond != ClientShapingProperties.UNLIMITED && byteBudget < 0) {
+            return false;
+        }
+        if (publishesPerSecond != ClientShapingProperties.UNLIMITED && publishBudget < 1) {
+            return false;
+        }
+        if (bytesPerSecond != ClientShapingProperties.UNLIMITED) {
+            byteBudget -= size(publish);
+        }
+        if (publishesPerSecond != ClientShapingProperties.UNLIMITED) {
+            publishBudget--;
+        }
+        return true;
+    }
+
+    private void acquireBytes(final @NotNull Object msg) {
+        if (bytesPerSecond != ClientShapingProperties.UNLIMITED) {
+            refill();
+            byteBudget -= size(msg);
+        }
+    }
+
+    private void refill() {
+        final long now = shaper.nanoTime();
+        final long elapsed = now - lastRefill;
+        if (elapsed <= 0) {
+            return;
+        }
+        lastRefill = now;
+        if (bytesPerSecond != ClientShapingProperties.UNLIMITED) {
+            byteBudget = Math.min(bytesPerSecond, byteBudget + (double) elapsed * bytesPerSecond / NANOS_PER_SECOND);
+        }
+        if (publishesPerSecond != ClientShapingProperties.UNLIMITED) {
+            publishBudget = Math.min(Math.max(publishesPerSecond, 1),
+                    publishBudget + (double) elapsed * publishesPerSecond / NANOS_PER_SECOND);
+        }
+    }
+
+    private void scheduleRelease(final @NotNull ChannelHandlerContext ctx) {
+        final DelayedWrite next = delayedWrites.peek();
+        if (releaseTimeout != null || next == null) {
+            return;
+        }
+        double seconds = 0;
+        if (bytesPerSecond != ClientShapingProperties.UNLIMITED && byteBudget < 0) {
+            seconds = -byteBudget / bytesPerSecond;
+        }
+        if (publishesPerSecond != ClientShapingProperties.UNLIMITED && publishBudget < 1) {
+            seconds = Math.max(seconds, (1 - publishBudget) / publishesPerSecond);
+        }
+        final long delayNanos = Math.max(MIN_DELAY_NANOS, (long) (seconds * NANOS_PER_SECOND));
+        final long generation = releaseGeneration;
+        releaseTimeout = shaper.schedule(ctx.executor(), () -> {
+            if (generation == releaseGeneration) {
+                release();
+            }
+        }, delayNanos);
+    }
+
+    private void cancelRelease() {
+        if (releaseTimeout != null) {
+            releaseTimeout.cancel();
+            releaseTimeout = null;
+            releaseGeneration++;
+        }
+    }
+
+    private static void setWritable(final @NotNull ChannelHandlerContext ctx, final boolean writable) {
+        final ChannelOutboundBuffer outboundBuffer = ctx.channel().unsafe().outboundBuffer();
+        if (outboundBuffer != null) {
+            outboundBuffer.setUserDefinedWritability(WRITABILITY_INDEX, writable);
+            if (writable && !ctx.channel().isWritable()) {
+                // Netty only fires an event if the writability of the channel changes, but the socket may have become
+                // not writable while the traffic was shaped
+                ctx.channel().pipeline().fireChannelWritabilityChanged();
+            }
+        }
+    }
+
+    private static boolean isPublish(final @NotNull Object msg) {
+        if (!(msg instanceof ByteBuf)) {
+            return false;
+        }
+        final ByteBuf buf = (ByteBuf) msg;
+        return buf.isReadable() && (buf.getUnsignedByte(buf.readerIndex()) >> 4) == MessageType.PUBLISH.ordinal();
+    }
+
+    private static long size(final @NotNull Object msg) {
+        if (msg instanceof ByteBuf) {
+            return ((ByteBuf) msg).readableBytes();
+        }
+        if (msg instanceof ByteBufHolder) {
+            return ((ByteBufHolder) msg).content().readableBytes();
+        }
+        return 0;
+    }
+
+    private static class DelayedWrite {
+
+        private final @NotNull Object message;
+        private final @NotNull ChannelPromise promise;
+
+        DelayedWrite(final @NotNull Object message, final @NotNull ChannelPromise promise) {
+            this.message = message;
+            this.promise = promise;
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package com.hivemq.util;
 
 import com.google.common.util.concurrent.SettableFuture;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.configuration.service.entity.Listener;
 import com.hivemq.extension.sdk.api.auth.parameter.OverloadProtectionThrottlingLevel;
 import com.hivemq.extension.sdk.api.client.parameter.ClientInformation;
@@ -26,21 +27,16 @@ import com.hivemq.extensions.client.ClientAuthorizers;
 import com.hivemq.extensions.client.ClientContextImpl;
 import com.hivemq.extensions.client.parameter.ConnectionAttributes;
 import com.hivemq.extensions.events.client.parameters.ClientEventListeners;
-import com.hivemq.mqtt.message.ProtocolVersion;
 import com.hivemq.mqtt.message.connect.CONNECT;
 import com.hivemq.mqtt.message.mqtt5.Mqtt5UserProperties;
 import com.hivemq.security.auth.SslClientCertificate;
 import io.netty.util.AttributeKey;
 
-import java.util.concurrent.atomic.AtomicInteger;
-
 /**
  * @author Dominik Obermaier
  */
 public class ChannelAttributes {
 
-    public static final AttributeKey<ProtocolVersion> MQTT_VERSION = AttributeKey.valueOf("MQTT.Version");
-    public static final AttributeKey<String> CLIENT_ID = AttributeKey.valueOf("MQTT.ClientId");
     public static final AttributeKey<Integer> CONNECT_KEEP_ALIVE = AttributeKey.valueOf("MQTT.KeepAlive");
     public static final AttributeKey<Boolean> CLEAN_START = AttributeKey.valueOf("MQTT.CleanStart");
     public static final AttributeKey<Boolean> GRACEFUL_DISCONNECT = AttributeKey.valueOf("MQTT.GracefulDisconnect");
@@ -50,21 +46,16 @@ public class ChannelAttributes {
     public static final AttributeKey<Boolean> PREVENT_LWT = AttributeKey.valueOf("MQTT.PreventLWT");
 
     /**
-     * The define the way the client should be affected by the overload protection.
-     * <code>null</code> is interpreted as {@link OverloadProtectionThrottlingLevel#DEFAULT}.
+     * The per connection state that is read on the hot paths, see {@link ClientConnection}.
+     * Use {@link ClientConnection#of(io.netty.channel.Channel)} to access it.
      */
-    public static final AttributeKey<OverloadProtectionThrottlingLevel> OVERLOAD_PROTECTION_THROTTLING_LEVEL = AttributeKey.valueOf("Restriction.OverloadProtectionThrottlingLevel");
+    public static final AttributeKey<ClientConnection> CLIENT_CONNECTION = AttributeKey.valueOf("Client.Connection");
 
     /**
-     * This reveres to the in-flight messages in the client queue, not the ones in the ordered topic queue
-     */
-    public static final AttributeKey<Boolean> IN_FLIGHT_MESSAGES_SENT = AttributeKey.valueOf("MQTT.inflight-messages.sent");
-
-    /**
-     * True if it is guarantied that this client has no shared subscriptions, if null it is unclear.
-     * The value is never set to false.
+     * The define the way the client should be affected by the overload protection.
+     * <code>null</code> is interpreted as {@link OverloadProtectionThrottlingLevel#DEFAULT}.
      */
-    public static final AttributeKey<Boolean> NO_SHARED_SUBSCRIPTION = AttributeKey.valueOf("MQTT.no-shared-subscriptions");
+    public static final AttributeKey<OverloadProtectionThrottlingLevel> OVERLOAD_PROTECTION_THROTTLING_LEVEL = AttributeKey.valueOf("Restriction.OverloadProtectionThrottlingLevel");
 
     /**
      * This attribute is added during connection. The future is set, when the client disconnect handling is complete.
@@ -82,8 +73,6 @@ public class ChannelAttributes {
     public static final AttributeKey<Boolean> AUTH_AUTHENTICATED = AttributeKey.valueOf("Auth.Authenticated");
     public static final AttributeKey<Boolean> AUTHENTICATED_OR_AUTHENTICATION_BYPASSED = AttributeKey.valueOf("AuthenticatedOrAuthenticationBypassed");
 
-    public static final AttributeKey<Long> MAX_PACKET_SIZE_SEND = AttributeKey.valueOf("Restriction.MaxPacketSize.Send");
-
     public static final AttributeKey<ClientContextImpl> PLUGIN_CLIENT_CONTEXT = AttributeKey.valueOf("Extension.Client.Context");
     public static final AttributeKey<ClientEventListeners> PLUGIN_CLIENT_EVENT_LISTENERS = AttributeKey.valueOf("Extension.Client.Event.Listeners");
     public static final AttributeKey<Boolean> PLUGIN_CONNECT_EVENT_SENT = AttributeKey.valueOf("Extension.Connect.Event.Sent");
@@ -108,28 +97,17 @@ public class ChannelAttributes {
      */
     public static final AttributeKey<Long> CLIENT_SESSION_EXPIRY_INTERVAL = AttributeKey.valueOf("ClientSession.ExpiryInterval");
 
-    /**
-     * The amount of messages that have been polled but not yet delivered
-     */
-    public static final AttributeKey<AtomicInteger> IN_FLIGHT_MESSAGES = AttributeKey.valueOf("Client.InFlightMessages");
-
 
     /* *****************
      *      MQTT 5     *
      *******************/
 
-    public static final AttributeKey<String[]> TOPIC_ALIAS_MAPPING = AttributeKey.valueOf("TopicAlias.Mapping");
-
     public static final AttributeKey<Boolean> CLIENT_ID_ASSIGNED = AttributeKey.valueOf("Client.Identifier.Assigned");
 
-    public static final AttributeKey<Integer> CLIENT_RECEIVE_MAXIMUM = AttributeKey.valueOf("Client.Receive.Maximum");
-
     public static final AttributeKey<Boolean> DISCONNECT_EVENT_LOGGED = AttributeKey.valueOf("Disconnect.Event.Logged");
 
     public static final AttributeKey<Boolean> REQUEST_RESPONSE_INFORMATION = AttributeKey.valueOf("Request.Response.Information");
 
-    public static final AttributeKey<Boolean> REQUEST_PROBLEM_INFORMATION = AttributeKey.valueOf("Request.Problem.Information");
-
     public static final AttributeKey<Mqtt5UserProperties> AUTH_USER_PROPERTIES = AttributeKey.valueOf("Auth.User.Properties");
     public static final AttributeKey<ModifiableDefaultPermissions> AUTH_PERMISSIONS = AttributeKey.valueOf("Auth.User.Permissions");
 
@@ -19,6 +19,7 @@ package com.hivemq.util;
 import com.google.common.base.Optional;
 import com.hivemq.annotations.NotNull;
 import com.hivemq.annotations.Nullable;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.configuration.service.InternalConfigurations;
 import com.hivemq.configuration.service.entity.Listener;
 import com.hivemq.security.auth.ClientToken;
@@ -73,10 +74,10 @@ public class ChannelUtils {
     }
 
     /**
-     * Fetches the clientId from the channel attributes of the passed channel
+     * Fetches the clientId from the client connection of the passed channel
      */
     public static String getClientId(final @NotNull Channel channel) {
-        return channel.attr(ChannelAttributes.CLIENT_ID).get();
+        return ClientConnection.of(channel).getClientId();
     }
 
     public static ClientToken tokenFromChannel(@NotNull final Channel channel, @NotNull final Long disconnectTimestamp) {
@@ -89,11 +90,12 @@ public class ChannelUtils {
     }
 
     public static boolean messagesInFlight(@NotNull final Channel channel) {
-        final boolean inFlightMessagesSent = channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES_SENT).get() != null;
+        final ClientConnection clientConnection = ClientConnection.of(channel);
+        final boolean inFlightMessagesSent = clientConnection.getInFlightMessagesSent() != null;
         if (!inFlightMessagesSent) {
             return true;
         }
-        final AtomicInteger inFlightMessages = channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES).get();
+        final AtomicInteger inFlightMessages = clientConnection.getInFlightMessages();
         if (inFlightMessages == null) {
             return false;
         }
@@ -101,7 +103,7 @@ public class ChannelUtils {
     }
 
     public static int maxInflightWindow(@NotNull final Channel channel) {
-        final Integer clientReceiveMaximum = channel.attr(ChannelAttributes.CLIENT_RECEIVE_MAXIMUM).get();
+        final Integer clientReceiveMaximum = ClientConnection.of(channel).getClientReceiveMaximum();
         final int max = InternalConfigurations.MAX_INFLIGHT_WINDOW_SIZE;
         if (clientReceiveMaximum == null) {
             return max;
@@ -34,6 +34,7 @@ import com.hivemq.mqtt.handler.auth.AuthHandler;
 import com.hivemq.mqtt.handler.auth.AuthInProgressMessageHandler;
 import com.hivemq.mqtt.handler.connect.ConnectHandler;
 import com.hivemq.mqtt.handler.connect.ConnectPersistenceUpdateHandler;
+import com.hivemq.mqtt.handler.connect.KeepAliveManager;
 import com.hivemq.mqtt.handler.connect.StopReadingAfterConnectHandler;
 import com.hivemq.mqtt.handler.disconnect.DisconnectHandler;
 import com.hivemq.mqtt.handler.ping.PingRequestHandler;
@@ -41,11 +42,13 @@ import com.hivemq.mqtt.handler.publish.DropOutgoingPublishesHandler;
 import com.hivemq.mqtt.handler.publish.PublishMessageExpiryHandler;
 import com.hivemq.mqtt.handler.publish.PublishUserEventReceivedHandler;
 import com.hivemq.mqtt.handler.publish.ReturnMessageIdToPoolHandler;
+import com.hivemq.mqtt.handler.publish.SlowConsumerTracker;
 import com.hivemq.mqtt.handler.publish.qos.QoSReceiverHandler;
 import com.hivemq.mqtt.handler.publish.qos.QoSSenderHandler;
 import com.hivemq.mqtt.handler.subscribe.SubscribeHandler;
 import com.hivemq.mqtt.handler.unsubscribe.UnsubscribeHandler;
 import com.hivemq.security.ssl.SslParameterHandler;
+import com.hivemq.throttling.ClientTrafficShaper;
 import io.netty.channel.group.ChannelGroup;
 import io.netty.handler.traffic.GlobalTrafficShapingHandler;
 import org.junit.Before;
@@ -100,6 +103,12 @@ public class ChannelDependenciesTest {
     @Mock
     private GlobalTrafficShapingHandler globalTrafficShapingHandler;
 
+    @Mock
+    private ClientTrafficShaper clientTrafficShaper;
+
+    @Mock
+    private SlowConsumerTracker slowConsumerTracker;
+
     @Mock
     private MetricsHolder metricsHolder;
 
@@ -187,6 +196,8 @@ public class ChannelDependenciesTest {
                 channelGroup,
                 fullConfigurationService,
                 globalTrafficShapingHandler,
+                clientTrafficShaper,
+                slowConsumerTracker,
                 metricsHolder,
                 exceptionHandler,
                 pingRequestHandler,
@@ -209,7 +220,8 @@ public class ChannelDependenciesTest {
                 () -> publishMessageExpiryHandler,
                 publishOutboundInterceptorHandler,
                 connectInterceptorHandler,
-                connackOutboundInterceptorHandler);
+                connackOutboundInterceptorHandler,
+                new KeepAliveManager());
 
     }
 
@@ -227,7 +239,10 @@ public class ChannelDependenciesTest {
         assertNotNull(channelDependencies.getChannelGroup());
         assertNotNull(channelDependencies.getConfigurationService());
         assertNotNull(channelDependencies.getGlobalTrafficShapingHandler());
+        assertNotNull(channelDependencies.getClientTrafficShaper());
+        assertNotNull(channelDependencies.getSlowConsumerTracker());
         assertNotNull(channelDependencies.getMetricsHolder());
+        assertNotNull(channelDependencies.getKeepAliveManager());
         assertNotNull(channelDependencies.getExceptionHandler());
         assertNotNull(channelDependencies.getPingRequestHandler());
         assertNotNull(channelDependencies.getConnectPersistenceUpdateHandler());
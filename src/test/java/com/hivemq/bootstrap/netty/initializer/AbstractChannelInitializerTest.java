@@ -17,13 +17,21 @@
 package com.hivemq.bootstrap.netty.initializer;
 
 import com.hivemq.annotations.NotNull;
+import com.codahale.metrics.MetricRegistry;
 import com.hivemq.bootstrap.netty.ChannelDependencies;
 import com.hivemq.configuration.service.FullConfigurationService;
 import com.hivemq.configuration.service.MqttConfigurationService;
 import com.hivemq.configuration.service.RestrictionsConfigurationService;
+import com.hivemq.configuration.service.entity.ClientShapingProperties;
 import com.hivemq.configuration.service.entity.Listener;
+import com.hivemq.configuration.service.entity.TcpListener;
 import com.hivemq.logging.EventLog;
+import com.hivemq.metrics.MetricsHolder;
+import com.hivemq.mqtt.handler.connect.KeepAliveManager;
 import com.hivemq.security.exception.SslException;
+import com.hivemq.throttling.ClientTrafficShaper;
+import com.hivemq.throttling.ClientTrafficShapingHandler;
+import com.hivemq.util.ChannelAttributes;
 import io.netty.channel.*;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.channel.socket.SocketChannel;
@@ -36,7 +44,9 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import util.TestChannelAttribute;
 
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -78,6 +88,7 @@ public class AbstractChannelInitializerTest {
     public void before() {
         MockitoAnnotations.initMocks(this);
         when(socketChannel.pipeline()).thenReturn(pipeline);
+        when(socketChannel.attr(ChannelAttributes.CLIENT_CONNECTION)).thenReturn(new TestChannelAttribute<>(null));
 
         when(channelDependencies.getListenerAttributeAdderFactory()).thenReturn(listenerAttributeAdderFactory);
         when(channelDependencies.getGlobalTrafficShapingHandler())
@@ -87,6 +98,7 @@ public class AbstractChannelInitializerTest {
         when(configurationService.mqttConfiguration()).thenReturn(mqttConfigurationService);
 
         when(channelDependencies.getRestrictionsConfigurationService()).thenReturn(restrictionsConfigurationService);
+        when(channelDependencies.getKeepAliveManager()).thenReturn(new KeepAliveManager());
 
         when(restrictionsConfigurationService.noConnectIdleTimeout()).thenReturn(500L);
 
@@ -120,6 +132,69 @@ public class AbstractChannelInitializerTest {
     }
 
 
+    @Test
+    public void test_flush_consolidation_disabled_by_default() throws Exception {
+
+        final ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+
+        abstractChannelInitializer.initChannel(socketChannel);
+
+        verify(pipeline, atLeastOnce()).addLast(captor.capture(), any(ChannelHandler.class));
+
+        assertFalse(captor.getAllValues().contains(FLUSH_METRICS_HANDLER));
+        assertFalse(captor.getAllValues().contains(FLUSH_CONSOLIDATION_HANDLER));
+    }
+
+    @Test
+    public void test_flush_consolidation_enabled_for_listener() throws Exception {
+
+        when(channelDependencies.getMetricsHolder()).thenReturn(new MetricsHolder(new MetricRegistry()));
+        abstractChannelInitializer = new TestAbstractChannelInitializer(channelDependencies,
+                new TcpListener(1883, "0.0.0.0", "listener", 64));
+
+        final ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+
+        abstractChannelInitializer.initChannel(socketChannel);
+
+        verify(pipeline, atLeastOnce()).addLast(captor.capture(), any(ChannelHandler.class));
+
+        final List<String> handlerNames = captor.getAllValues();
+        assertTrue(handlerNames.indexOf(GLOBAL_THROTTLING_HANDLER) < handlerNames.indexOf(FLUSH_METRICS_HANDLER));
+        assertTrue(handlerNames.indexOf(FLUSH_METRICS_HANDLER) < handlerNames.indexOf(FLUSH_CONSOLIDATION_HANDLER));
+        assertTrue(handlerNames.indexOf(FLUSH_CONSOLIDATION_HANDLER) < handlerNames.indexOf(MQTT_MESSAGE_ENCODER));
+    }
+
+    @Test
+    public void test_client_traffic_shaping_enabled_for_listener() throws Exception {
+
+        final ClientTrafficShaper clientTrafficShaper = mock(ClientTrafficShaper.class);
+        when(clientTrafficShaper.newHandler(any(ClientShapingProperties.class))).thenReturn(mock(ClientTrafficShapingHandler.class));
+        when(channelDependencies.getClientTrafficShaper()).thenReturn(clientTrafficShaper);
+        abstractChannelInitializer = new TestAbstractChannelInitializer(channelDependencies,
+                new TcpListener(1883, "0.0.0.0", "listener", 0, new ClientShapingProperties(1000, 10, 0, 0)));
+
+        final ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+
+        abstractChannelInitializer.initChannel(socketChannel);
+
+        verify(pipeline, atLeastOnce()).addLast(captor.capture(), any(ChannelHandler.class));
+
+        final List<String> handlerNames = captor.getAllValues();
+        assertEquals(handlerNames.indexOf(GLOBAL_THROTTLING_HANDLER) + 1, handlerNames.indexOf(CLIENT_THROTTLING_HANDLER));
+    }
+
+    @Test
+    public void test_client_traffic_shaping_disabled_by_default() throws Exception {
+
+        final ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+
+        abstractChannelInitializer.initChannel(socketChannel);
+
+        verify(pipeline, atLeastOnce()).addLast(captor.capture(), any(ChannelHandler.class));
+
+        assertFalse(captor.getAllValues().contains(CLIENT_THROTTLING_HANDLER));
+    }
+
     @Test
     public void test_no_connect_idle_handler_disabled() throws Exception {
 
@@ -174,6 +249,10 @@ public class AbstractChannelInitializerTest {
 
     private class TestAbstractChannelInitializer extends AbstractChannelInitializer {
 
+        public TestAbstractChannelInitializer(final ChannelDependencies channelDependencies, final Listener listener) {
+            super(channelDependencies, listener, eventLog);
+        }
+
         public TestAbstractChannelInitializer(final ChannelDependencies channelDependencies) {
             super(channelDependencies, new Listener() {
                 @Override
@@ -16,8 +16,8 @@
 
 package com.hivemq.codec.decoder;
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.message.ProtocolVersion;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
@@ -61,7 +61,7 @@ public class MQTTMessageDecoderTest {
     @Test
     public void test_reserved_fifteen_received() {
 
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
 
         final ByteBuf buf = Unpooled.buffer();
         buf.writeByte(0b1111_0000);
@@ -16,10 +16,10 @@
 
 package com.hivemq.codec.decoder;
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.message.ProtocolVersion;
 import com.hivemq.mqtt.message.connack.CONNACK;
 import com.hivemq.mqtt.message.connack.Mqtt3ConnAckReturnCode;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
@@ -41,14 +41,14 @@ public class Mqtt3ConnackDecoderTest {
         MockitoAnnotations.initMocks(this);
 
         embeddedChannel = new EmbeddedChannel(TestMqttDecoder.create(false));
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
 
     }
 
     @Test
     public void test_session_present_mqtt_311() throws Exception {
 
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
 
         final ByteBuf buf = Unpooled.buffer();
         buf.writeByte(0b0010_0000);
@@ -68,7 +68,7 @@ public class Mqtt3ConnackDecoderTest {
     @Test
     public void test_session_present_mqtt_31() throws Exception {
 
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv3_1);
 
         final ByteBuf buf = Unpooled.buffer();
         buf.writeByte(0b0010_0000);
@@ -163,7 +163,7 @@ public class Mqtt3ConnackDecoderTest {
     @Test
     public void test_connack_invalid_header_mqtt_311() throws Exception {
 
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
 
         final ByteBuf buf = Unpooled.buffer();
         buf.writeByte(0b0010_0100);
@@ -181,7 +181,7 @@ public class Mqtt3ConnackDecoderTest {
 
         //In this test we check that additional headers are ignored in MQTT 3.1 if they're invalid
 
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv3_1);
 
         final ByteBuf buf = Unpooled.buffer();
         buf.writeByte(0b0010_0100);
@@ -16,9 +16,9 @@
 
 package com.hivemq.codec.decoder;
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.message.ProtocolVersion;
 import com.hivemq.mqtt.message.disconnect.DISCONNECT;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
@@ -45,7 +45,7 @@ public class Mqtt3DisconnectDecoderTest {
     public void test_disconnect_received() throws Exception {
 
 
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
 
         final ByteBuf buf = Unpooled.buffer();
         buf.writeByte(0b1110_0000);
@@ -62,7 +62,7 @@ public class Mqtt3DisconnectDecoderTest {
     @Test
     public void test_disconnect_invalid_header_mqtt_311() throws Exception {
 
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
 
         final ByteBuf buf = Unpooled.buffer();
         buf.writeByte(0b1110_0010);
@@ -79,7 +79,7 @@ public class Mqtt3DisconnectDecoderTest {
 
         //In this test we check that additional headers are ignored in MQTT 3.1 if they're invalid
 
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv3_1);
 
         final ByteBuf buf = Unpooled.buffer();
         buf.writeByte(0b1110_0010);
@@ -16,6 +16,7 @@
 
 package com.hivemq.codec.decoder;
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.configuration.HivemqId;
 import com.hivemq.configuration.service.MqttConfigurationService;
 import com.hivemq.logging.EventLog;
@@ -31,13 +32,14 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
-import io.netty.util.Attribute;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import util.TestChannelAttribute;
 import util.TestConfigurationBootstrap;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.*;
 
 public class MqttConnectDecoderTest {
@@ -51,8 +53,7 @@ public class MqttConnectDecoderTest {
     @Mock
     MqttConfigurationService mqttConfigurationService;
 
-    @Mock
-    Attribute<ProtocolVersion> protocolVersionAttribute;
+    private ClientConnection clientConnection;
 
     private MqttConnectDecoder decoder;
 
@@ -62,6 +63,8 @@ public class MqttConnectDecoderTest {
     public void setUp() throws Exception {
 
         MockitoAnnotations.initMocks(this);
+        clientConnection = new ClientConnection();
+        when(channel.attr(ChannelAttributes.CLIENT_CONNECTION)).thenReturn(new TestChannelAttribute<>(clientConnection));
         final HivemqId hiveMQId = new HivemqId();
 
         final MqttDisconnectUtil mqttDisconnectUtil = new MqttDisconnectUtil(eventLog);
@@ -112,7 +115,6 @@ public class MqttConnectDecoderTest {
 
         final ChannelFuture cf = mock(ChannelFuture.class);
         when(channel.writeAndFlush(any())).thenReturn(cf);
-        when(channel.attr(ChannelAttributes.MQTT_VERSION)).thenReturn(protocolVersionAttribute);
 
         final ByteBuf buf = Unpooled.wrappedBuffer(new byte[]{0, 4, 'M', 'Q', 'T', 'T', 5});
 
@@ -122,7 +124,7 @@ public class MqttConnectDecoderTest {
             //ignore because mqtt5ConnectDecoder not tested here
         }
 
-        verify(protocolVersionAttribute).set(ProtocolVersion.MQTTv5);
+        assertEquals(ProtocolVersion.MQTTv5, clientConnection.getProtocolVersion());
 
     }
 
@@ -131,13 +133,12 @@ public class MqttConnectDecoderTest {
 
         final ChannelFuture cf = mock(ChannelFuture.class);
         when(channel.writeAndFlush(any())).thenReturn(cf);
-        when(channel.attr(ChannelAttributes.MQTT_VERSION)).thenReturn(protocolVersionAttribute);
 
         final ByteBuf buf = Unpooled.wrappedBuffer(new byte[]{0, 4, 'M', 'Q', 'T', 'T', 4});
 
         decoder.decode(channel, buf, fixedHeader);
 
-        verify(protocolVersionAttribute).set(ProtocolVersion.MQTTv3_1_1);
+        assertEquals(ProtocolVersion.MQTTv3_1_1, clientConnection.getProtocolVersion());
 
     }
 
@@ -146,13 +147,12 @@ public class MqttConnectDecoderTest {
 
         final ChannelFuture cf = mock(ChannelFuture.class);
         when(channel.writeAndFlush(any())).thenReturn(cf);
-        when(channel.attr(ChannelAttributes.MQTT_VERSION)).thenReturn(protocolVersionAttribute);
 
         final ByteBuf buf = Unpooled.wrappedBuffer(new byte[]{0, 6, 'M', 'Q', 'T', 'T', 3, 1});
 
         decoder.decode(channel, buf, fixedHeader);
 
-        verify(protocolVersionAttribute).set(ProtocolVersion.MQTTv3_1);
+        assertEquals(ProtocolVersion.MQTTv3_1, clientConnection.getProtocolVersion());
 
     }
 
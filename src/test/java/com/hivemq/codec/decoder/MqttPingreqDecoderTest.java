@@ -16,9 +16,9 @@
 
 package com.hivemq.codec.decoder;
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.message.PINGREQ;
 import com.hivemq.mqtt.message.ProtocolVersion;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
@@ -46,7 +46,7 @@ public class MqttPingreqDecoderTest {
     @Test
     public void test_ping_request_received_mqtt_311() {
 
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
 
         final ByteBuf buf = Unpooled.buffer();
         buf.writeByte(0b1100_0000);
@@ -63,7 +63,7 @@ public class MqttPingreqDecoderTest {
     @Test
     public void test_ping_request_received_mqtt_5() {
 
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final ByteBuf buf = Unpooled.buffer();
         buf.writeByte(0b1100_0000);
@@ -80,7 +80,7 @@ public class MqttPingreqDecoderTest {
     @Test
     public void test_ping_request_invalid_header_mqtt_311() {
 
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
 
         final ByteBuf buf = Unpooled.buffer();
         buf.writeByte(0b1100_0001);
@@ -95,7 +95,7 @@ public class MqttPingreqDecoderTest {
     @Test
     public void test_ping_request_invalid_header_mqtt_5() {
 
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final ByteBuf buf = Unpooled.buffer();
         buf.writeByte(0b1100_0001);
@@ -110,7 +110,7 @@ public class MqttPingreqDecoderTest {
     @Test
     public void test_ping_request_invalid_header_ignored_mqtt_31() {
 
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv3_1);
         //In this test we check that additional headers are ignored in MQTT 3.1 if they're invalid
 
         final ByteBuf buf = Unpooled.buffer();
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.codec.decoder;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.hivemq.metrics.HiveMQMetrics;
+import com.hivemq.mqtt.topic.TokenizedTopic;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+public class TopicInternCacheTest {
+
+    private MetricRegistry metricRegistry;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+    }
+
+    @Test
+    public void test_disabled_cache_returns_nothing() {
+        final TopicInternCache cache = new TopicInternCache(metricRegistry, false, 16, 256);
+        final ByteBuf buf = Unpooled.wrappedBuffer("a/b".getBytes(UTF_8));
+
+        assertNull(cache.put(buf, 0, 3, "a/b"));
+        assertNull(cache.get(buf, 3));
+        assertEquals(0, buf.readerIndex());
+    }
+
+    @Test
+    public void test_cached_topic_is_returned_and_skipped() {
+        final TopicInternCache cache = new TopicInternCache(metricRegistry, true, 16, 256);
+        final ByteBuf buf = Unpooled.wrappedBuffer("a/b/c".getBytes(UTF_8));
+
+        assertNull(cache.get(buf, 5));
+        assertEquals(0, buf.readerIndex());
+        final TokenizedTopic topic = cache.put(buf, 0, 5, "a/b/c");
+        assertNotNull(topic);
+
+        final ByteBuf sameTopic = Unpooled.wrappedBuffer("a/b/c+payload".getBytes(UTF_8));
+        assertSame(topic, cache.get(sameTopic, 5));
+        assertEquals(5, sameTopic.readerIndex());
+
+        assertEquals(1, metricRegistry.counter(HiveMQMetrics.TOPIC_INTERN_CACHE_HIT_COUNT.name()).getCount());
+        assertEquals(1, metricRegistry.counter(HiveMQMetrics.TOPIC_INTERN_CACHE_MISS_COUNT.name()).getCount());
+        assertEquals(1L, gauge(HiveMQMetrics.TOPIC_INTERN_CACHE_ENTRIES_CURRENT.name()));
+        assertTrue(gauge(HiveMQMetrics.TOPIC_INTERN_CACHE_MEMORY_CURRENT.name()).longValue() > 0);
+    }
+
+    @Test
+    public void test_different_topic_is_not_returned() {
+        // a single slot, so every topic is mapped to the same slot
+        final TopicInternCache cache = new TopicInternCache(metricRegistry, true, 1, 256);
+        cache.put(Unpooled.wrappedBuffer("a/b".getBytes(UTF_8)), 0, 3, "a/b");
+
+        final ByteBuf other = Unpooled.wrappedBuffer("a/c".getBytes(UTF_8));
+        assertNull(cache.get(other, 3));
+        assertEquals(0, other.readerIndex());
+
+        final TokenizedTopic replaced = cache.put(other, 0, 3, "a/c");
+        assertSame(replaced, cache.get(other, 3));
+        assertNull(cache.get(Unpooled.wrappedBuffer("a/b".getBytes(UTF_8)), 3));
+        assertEquals(1L, gauge(HiveMQMetrics.TOPIC_INTERN_CACHE_ENTRIES_CURRENT.name()));
+    }
+
+    @Test
+    public void test_long_topic_not_cached() {
+        final TopicInternCache cache = new TopicInternCache(metricRegistry, true, 16, 4);
+        final ByteBuf buf = Unpooled.wrappedBuffer("a/b/c".getBytes(UTF_8));
+
+        assertNull(cache.put(buf, 0, 5, "a/b/c"));
+        assertNull(cache.get(buf, 5));
+        assertEquals(0L, gauge(HiveMQMetrics.TOPIC_INTERN_CACHE_ENTRIES_CURRENT.name()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Number gauge(final String name) {
+        return ((Gauge<Number>) metricRegistry.getGauges().get(name)).getValue();
+    }
+}
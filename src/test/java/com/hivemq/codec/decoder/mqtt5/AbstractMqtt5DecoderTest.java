@@ -16,9 +16,9 @@
 
 package com.hivemq.codec.decoder.mqtt5;
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.message.Message;
 import com.hivemq.mqtt.message.ProtocolVersion;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.buffer.ByteBuf;
 
 import static org.junit.Assert.assertFalse;
@@ -29,7 +29,7 @@ abstract class AbstractMqtt5DecoderTest extends AbstractMqttDecoderTest {
     @Override
     protected void createChannel() {
         super.createChannel();
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
     }
 
@@ -18,11 +18,11 @@ package com.hivemq.codec.decoder.mqtt5;
 
 import com.google.common.collect.ImmutableList;
 import com.hivemq.annotations.NotNull;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.message.ProtocolVersion;
 import com.hivemq.mqtt.message.auth.AUTH;
 import com.hivemq.mqtt.message.mqtt5.MqttUserProperty;
 import com.hivemq.mqtt.message.reason.Mqtt5AuthReasonCode;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.buffer.ByteBuf;
 import org.junit.Before;
 import org.junit.Test;
@@ -39,7 +39,7 @@ public class Mqtt5AuthDecoderTest extends AbstractMqtt5DecoderTest {
     @Before
     public void before() {
 
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
     }
 
     // Tests for Fixed/Variable Header
@@ -1055,7 +1055,7 @@ public class Mqtt5AuthDecoderTest extends AbstractMqtt5DecoderTest {
         assertNull(auth);
 
         createChannel();
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
     }
 
 }
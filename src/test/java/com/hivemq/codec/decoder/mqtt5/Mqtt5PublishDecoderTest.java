@@ -18,6 +18,7 @@ package com.hivemq.codec.decoder.mqtt5;
 
 import com.google.common.collect.ImmutableList;
 import com.hivemq.annotations.NotNull;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.codec.encoder.mqtt5.Mqtt5PayloadFormatIndicator;
 import com.hivemq.codec.encoder.mqtt5.UnsignedDataTypes;
 import com.hivemq.configuration.service.FullConfigurationService;
@@ -26,7 +27,6 @@ import com.hivemq.mqtt.message.ProtocolVersion;
 import com.hivemq.mqtt.message.QoS;
 import com.hivemq.mqtt.message.mqtt5.MqttUserProperty;
 import com.hivemq.mqtt.message.publish.PUBLISH;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.embedded.EmbeddedChannel;
 import org.junit.Before;
@@ -45,14 +45,14 @@ public class Mqtt5PublishDecoderTest extends AbstractMqtt5DecoderTest {
 
     @Before
     public void before() {
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
     }
 
     @Test
     public void test_decode_allProperties() {
 
         InternalConfigurations.TOPIC_ALIAS_GLOBAL_MEMORY_HARD_LIMIT.set(1024 * 1024 * 200);
-        channel.attr(ChannelAttributes.TOPIC_ALIAS_MAPPING).set(new String[3]);
+        ClientConnection.of(channel).setTopicAliasMapping(new String[3]);
 
         final byte[] encoded = {
                 // fixed header
@@ -175,8 +175,8 @@ public class Mqtt5PublishDecoderTest extends AbstractMqtt5DecoderTest {
         InternalConfigurations.TOPIC_ALIAS_GLOBAL_MEMORY_HARD_LIMIT.set(47);
 
         channel = new EmbeddedChannel(TestMqttDecoder.create(fullConfig));
-        channel.attr(ChannelAttributes.TOPIC_ALIAS_MAPPING).set(new String[3]);
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setTopicAliasMapping(new String[3]);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final byte[] encoded = {
                 // fixed header
@@ -204,8 +204,8 @@ public class Mqtt5PublishDecoderTest extends AbstractMqtt5DecoderTest {
         InternalConfigurations.TOPIC_ALIAS_GLOBAL_MEMORY_HARD_LIMIT.set(100);
 
         channel = new EmbeddedChannel(TestMqttDecoder.create(fullConfig));
-        channel.attr(ChannelAttributes.TOPIC_ALIAS_MAPPING).set(new String[3]);
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setTopicAliasMapping(new String[3]);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final byte[] encoded = {
                 // fixed header
@@ -441,7 +441,7 @@ public class Mqtt5PublishDecoderTest extends AbstractMqtt5DecoderTest {
         fullConfig.mqttConfiguration().setMaxMessageExpiryInterval(100);
 
         channel = new EmbeddedChannel(TestMqttDecoder.create(fullConfig));
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final byte[] encoded = {
                 // fixed header
@@ -610,7 +610,7 @@ public class Mqtt5PublishDecoderTest extends AbstractMqtt5DecoderTest {
         fullConfigurationService.securityConfiguration().setPayloadFormatValidation(true);
 
         channel = new EmbeddedChannel(TestMqttDecoder.create(fullConfigurationService));
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final byte[] encoded = {
                 // fixed header
@@ -1150,8 +1150,8 @@ public class Mqtt5PublishDecoderTest extends AbstractMqtt5DecoderTest {
 
         InternalConfigurations.TOPIC_ALIAS_GLOBAL_MEMORY_HARD_LIMIT.set(1024 * 1024 * 200);
         channel = new EmbeddedChannel(TestMqttDecoder.create());
-        channel.attr(ChannelAttributes.TOPIC_ALIAS_MAPPING).set(new String[3]);
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setTopicAliasMapping(new String[3]);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final byte[] encodedWithTopicName = {
                 // fixed header
@@ -1193,7 +1193,7 @@ public class Mqtt5PublishDecoderTest extends AbstractMqtt5DecoderTest {
     @Test
     public void test_decode_to_may_topic_aliases_returnsNull() {
 
-        channel.attr(ChannelAttributes.TOPIC_ALIAS_MAPPING).set(new String[3]);
+        ClientConnection.of(channel).setTopicAliasMapping(new String[3]);
 
         final byte[] encodedWithWrongTopicAlias = {
                 // fixed header
@@ -1258,7 +1258,7 @@ public class Mqtt5PublishDecoderTest extends AbstractMqtt5DecoderTest {
     @Test
     public void test_decode_topicAliasTooLarge_returnsNull() {
 
-        channel.attr(ChannelAttributes.TOPIC_ALIAS_MAPPING).set(new String[3]);
+        ClientConnection.of(channel).setTopicAliasMapping(new String[3]);
 
         final byte[] encoded = {
                 // fixed header
@@ -1488,6 +1488,40 @@ public class Mqtt5PublishDecoderTest extends AbstractMqtt5DecoderTest {
         return decodeInternal(encoded);
     }
 
+    @Test
+    public void test_decode_topic_from_intern_cache() {
+        InternalConfigurations.MQTT_TOPIC_INTERN_CACHE_ENABLED.set(true);
+        try {
+            channel.close();
+            createChannel();
+        } finally {
+            InternalConfigurations.MQTT_TOPIC_INTERN_CACHE_ENABLED.set(false);
+        }
+
+        final byte[] encoded = {
+                // fixed header
+                //   type, flags
+                0b0011_0000,
+                //   remaining length
+                12,
+                // variable header
+                //   topic name
+                0, 5, 't', 'o', 'p', 'i', 'c',
+                //   properties
+                0,
+                // payload
+                1, 2, 3, 4
+        };
+
+        final PUBLISH publish1 = decodeInternal(encoded);
+        final PUBLISH publish2 = decodeInternal(encoded);
+
+        assertEquals("topic", publish2.getTopic());
+        assertSame(publish1.getTopic(), publish2.getTopic());
+        assertSame(publish1.getTokenizedTopic(), publish2.getTokenizedTopic());
+        assertArrayEquals(new byte[]{1, 2, 3, 4}, publish2.getPayload());
+    }
+
     private @NotNull PUBLISH decodeInternal(final @NotNull byte[] encoded) {
         final ByteBuf byteBuf = channel.alloc().buffer();
         byteBuf.writeBytes(encoded);
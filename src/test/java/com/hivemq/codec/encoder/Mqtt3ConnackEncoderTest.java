@@ -16,11 +16,11 @@
 
 package com.hivemq.codec.encoder;
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.codec.encoder.mqtt3.Mqtt3ConnackEncoder;
 import com.hivemq.mqtt.message.ProtocolVersion;
 import com.hivemq.mqtt.message.connack.CONNACK;
 import com.hivemq.mqtt.message.connack.Mqtt3ConnAckReturnCode;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.embedded.EmbeddedChannel;
 import org.junit.Before;
@@ -39,14 +39,14 @@ public class Mqtt3ConnackEncoderTest {
 
         encoder = new Mqtt3ConnackEncoder();
         channel = new EmbeddedChannel(encoder);
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv3_1);
     }
 
 
     @Test
     public void test_mqtt311_connack_no_sp() throws Exception {
 
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
         final CONNACK connack = new CONNACK(Mqtt3ConnAckReturnCode.ACCEPTED, false);
         channel.writeOutbound(connack);
 
@@ -73,7 +73,7 @@ public class Mqtt3ConnackEncoderTest {
     @Test
     public void test_mqtt311_connack_session_present() throws Exception {
 
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
 
         final CONNACK connack = new CONNACK(Mqtt3ConnAckReturnCode.ACCEPTED, true);
         channel.writeOutbound(connack);
@@ -128,7 +128,7 @@ public class Mqtt3ConnackEncoderTest {
     @Test
     public void test_mqtt31_unacceptable_protocol_version() throws Exception {
 
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv3_1);
         final CONNACK connack = new CONNACK(Mqtt3ConnAckReturnCode.REFUSED_UNACCEPTABLE_PROTOCOL_VERSION);
         channel.writeOutbound(connack);
 
@@ -156,7 +156,7 @@ public class Mqtt3ConnackEncoderTest {
     public void test_disconnected_after_identifier_rejected() throws Exception {
 
         final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new Mqtt3ConnackEncoder());
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv3_1);
         embeddedChannel.writeOutbound(new CONNACK(Mqtt3ConnAckReturnCode.REFUSED_IDENTIFIER_REJECTED));
 
         assertEquals(false, embeddedChannel.isActive());
@@ -166,7 +166,7 @@ public class Mqtt3ConnackEncoderTest {
     public void test_disconnected_after_unacceptable_protocol_version() throws Exception {
 
         final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new Mqtt3ConnackEncoder());
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv3_1);
         embeddedChannel.writeOutbound(new CONNACK(Mqtt3ConnAckReturnCode.REFUSED_UNACCEPTABLE_PROTOCOL_VERSION));
 
         assertEquals(false, embeddedChannel.isActive());
@@ -176,7 +176,7 @@ public class Mqtt3ConnackEncoderTest {
     public void test_disconnected_after_bad_username_pasword() throws Exception {
 
         final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new Mqtt3ConnackEncoder());
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv3_1);
         embeddedChannel.writeOutbound(new CONNACK(Mqtt3ConnAckReturnCode.REFUSED_BAD_USERNAME_OR_PASSWORD));
 
         assertEquals(false, embeddedChannel.isActive());
@@ -186,7 +186,7 @@ public class Mqtt3ConnackEncoderTest {
     public void test_disconnected_after_not_authorized() throws Exception {
 
         final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new Mqtt3ConnackEncoder());
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv3_1);
         embeddedChannel.writeOutbound(new CONNACK(Mqtt3ConnAckReturnCode.REFUSED_NOT_AUTHORIZED));
 
         assertEquals(false, embeddedChannel.isActive());
@@ -196,7 +196,7 @@ public class Mqtt3ConnackEncoderTest {
     public void test_disconnected_after_server_unavailable() throws Exception {
 
         final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new Mqtt3ConnackEncoder());
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv3_1);
         embeddedChannel.writeOutbound(new CONNACK(Mqtt3ConnAckReturnCode.REFUSED_SERVER_UNAVAILABLE));
 
         assertEquals(false, embeddedChannel.isActive());
@@ -16,13 +16,13 @@
 
 package com.hivemq.codec.encoder;
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.codec.encoder.mqtt3.Mqtt3ConnectEncoder;
 import com.hivemq.mqtt.message.ProtocolVersion;
 import com.hivemq.mqtt.message.QoS;
 import com.hivemq.mqtt.message.connect.CONNECT;
 import com.hivemq.mqtt.message.connect.MqttWillPublish;
 import com.hivemq.util.Bytes;
-import com.hivemq.util.ChannelAttributes;
 import com.hivemq.util.Strings;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.UnpooledByteBufAllocator;
@@ -48,7 +48,7 @@ public class Mqtt3ConnectEncoderTest {
         channel = new EmbeddedChannel(mqtt3ConnectEncoder);
         channel.config().setAllocator(new UnpooledByteBufAllocator(false));
 
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv3_1);
     }
 
     @After
@@ -117,7 +117,7 @@ public class Mqtt3ConnectEncoderTest {
 
         builder.withWillPublish(willBuilder.build());
 
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
 
         final CONNECT connect = builder.build();
 
@@ -165,7 +165,7 @@ public class Mqtt3ConnectEncoderTest {
     @Test
     public void test_mqtt_3_1_1() {
         final CONNECT connect = new CONNECT.Mqtt3Builder().withProtocolVersion(ProtocolVersion.MQTTv3_1_1).withCleanStart(false).withClientIdentifier("clientId").build();
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
 
 
         channel.writeOutbound(connect);
@@ -456,7 +456,7 @@ public class Mqtt3ConnectEncoderTest {
 
     @Test
     public void test_mqtt_3_1_1_will_and_username_and_pw_and_cleanSession() {
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
 
         final CONNECT.Mqtt3Builder connectBuilder = new CONNECT.Mqtt3Builder()
                 .withProtocolVersion(ProtocolVersion.MQTTv3_1_1)
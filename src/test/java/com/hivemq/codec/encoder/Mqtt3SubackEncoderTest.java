@@ -16,13 +16,13 @@
 
 package com.hivemq.codec.encoder;
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.codec.encoder.mqtt3.Mqtt3SubackEncoder;
 import com.hivemq.mqtt.message.ProtocolVersion;
 import com.hivemq.mqtt.message.mqtt5.Mqtt5UserProperties;
 import com.hivemq.mqtt.message.mqtt5.MqttUserProperty;
 import com.hivemq.mqtt.message.reason.Mqtt5SubAckReasonCode;
 import com.hivemq.mqtt.message.suback.SUBACK;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.embedded.EmbeddedChannel;
 import org.junit.Before;
@@ -51,7 +51,7 @@ public class Mqtt3SubackEncoderTest {
 
     @Test
     public void test_mqtt_3_1_return_codes() throws Exception {
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv3_1);
         final SUBACK suback = new SUBACK(10, newArrayList(GRANTED_QOS_0, GRANTED_QOS_1, GRANTED_QOS_2));
         channel.writeOutbound(suback);
 
@@ -74,7 +74,7 @@ public class Mqtt3SubackEncoderTest {
 
     @Test
     public void test_mqtt_3_1_return_codes_huge_size() throws Exception {
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv3_1);
         final List<Mqtt5SubAckReasonCode> objects = new ArrayList<>();
         for (int i = 0; i < 1000; i++) {
             objects.add(GRANTED_QOS_0);
@@ -103,7 +103,7 @@ public class Mqtt3SubackEncoderTest {
 
     @Test
     public void test_mqtt_3_1_1_return_codes() throws Exception {
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
         final SUBACK suback = new SUBACK(10, newArrayList(GRANTED_QOS_0, GRANTED_QOS_1, GRANTED_QOS_2, UNSPECIFIED_ERROR));
         channel.writeOutbound(suback);
 
@@ -126,7 +126,7 @@ public class Mqtt3SubackEncoderTest {
 
     @Test
     public void test_mqtt_5_suback_for_mqtt_3() throws Exception {
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
         final SUBACK suback = new SUBACK(10, newArrayList(GRANTED_QOS_0, GRANTED_QOS_1, GRANTED_QOS_2, UNSPECIFIED_ERROR), "reason-string", Mqtt5UserProperties.of(MqttUserProperty.of("user", "prop")));
         channel.writeOutbound(suback);
 
@@ -151,7 +151,7 @@ public class Mqtt3SubackEncoderTest {
     public void test_invalid_mqtt_3_1_client_failure_code() throws Exception {
 
         try {
-            channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1);
+            ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv3_1);
             channel.writeOutbound(new SUBACK(10, UNSPECIFIED_ERROR));
             //This is ugly but in the meantime the channel could be closed
         } catch (final Exception e) {
@@ -167,7 +167,7 @@ public class Mqtt3SubackEncoderTest {
     public void test_invalid_send_wrong_byte() throws Exception {
 
         try {
-            channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1);
+            ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv3_1);
             channel.writeOutbound(new SUBACK(10, Mqtt5SubAckReasonCode.IMPLEMENTATION_SPECIFIC_ERROR));
             //This is ugly but in the meantime the channel could be closed
         } catch (final Exception e) {
@@ -17,11 +17,11 @@
 package com.hivemq.codec.encoder.mqtt5;
 
 import com.google.common.collect.ImmutableList;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.message.MessageWithID;
 import com.hivemq.mqtt.message.ProtocolVersion;
 import com.hivemq.mqtt.message.mqtt5.Mqtt5UserProperties;
 import com.hivemq.mqtt.message.mqtt5.MqttUserProperty;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.channel.ChannelHandler;
@@ -46,10 +46,10 @@ public class AbstractMqtt5EncoderTest {
 
         channel = new EmbeddedChannel(encoder);
         channel.config().setAllocator(new UnpooledByteBufAllocator(false));
-        channel.attr(ChannelAttributes.MAX_PACKET_SIZE_SEND).set((long) MAX_PACKET_SIZE);
-        channel.attr(ChannelAttributes.REQUEST_PROBLEM_INFORMATION).set(true);
-        channel.attr(ChannelAttributes.CLIENT_ID).set("clientId");
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setMaxPacketSizeSend((long) MAX_PACKET_SIZE);
+        ClientConnection.of(channel).setProblemInformationRequested(true);
+        ClientConnection.of(channel).setClientId("clientId");
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
     }
 
@@ -16,13 +16,13 @@
 
 package com.hivemq.codec.encoder.mqtt5;
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.configuration.service.SecurityConfigurationService;
 import com.hivemq.mqtt.message.auth.AUTH;
 import com.hivemq.mqtt.message.dropping.MessageDroppedService;
 import com.hivemq.mqtt.message.mqtt5.Mqtt5UserProperties;
 import com.hivemq.mqtt.message.mqtt5.MqttUserProperty;
 import com.hivemq.mqtt.message.reason.Mqtt5AuthReasonCode;
-import com.hivemq.util.ChannelAttributes;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -291,7 +291,7 @@ public class Mqtt5AuthEncoderTest extends AbstractMqtt5EncoderTest {
     public void test_encode_user_properties_request_problem_information_false() {
 
         when(securityConfigurationService.allowRequestProblemInformation()).thenReturn(true);
-        channel.attr(ChannelAttributes.REQUEST_PROBLEM_INFORMATION).set(false);
+        ClientConnection.of(channel).setProblemInformationRequested(false);
 
         final byte[] expected = {
                 // fixed header
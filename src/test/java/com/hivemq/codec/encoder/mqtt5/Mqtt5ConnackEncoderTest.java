@@ -16,6 +16,7 @@
 
 package com.hivemq.codec.encoder.mqtt5;
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.configuration.service.SecurityConfigurationService;
 import com.hivemq.mqtt.message.QoS;
 import com.hivemq.mqtt.message.connack.CONNACK;
@@ -24,7 +25,6 @@ import com.hivemq.mqtt.message.dropping.MessageDroppedService;
 import com.hivemq.mqtt.message.mqtt5.Mqtt5UserProperties;
 import com.hivemq.mqtt.message.mqtt5.MqttUserProperty;
 import com.hivemq.mqtt.message.reason.Mqtt5ConnAckReasonCode;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import org.junit.Before;
@@ -65,7 +65,7 @@ public class Mqtt5ConnackEncoderTest extends AbstractMqtt5EncoderTest {
     @Test
     public void test_all_props() {
 
-        channel.attr(ChannelAttributes.MAX_PACKET_SIZE_SEND).set(150L);
+        ClientConnection.of(channel).setMaxPacketSizeSend(150L);
 
         final byte[] expected = {
                 // fixed header
@@ -245,7 +245,7 @@ public class Mqtt5ConnackEncoderTest extends AbstractMqtt5EncoderTest {
     @Test
     public void test_reason_string_request_problem_information_false() {
 
-        channel.attr(ChannelAttributes.REQUEST_PROBLEM_INFORMATION).set(false);
+        ClientConnection.of(channel).setProblemInformationRequested(false);
 
         final byte[] expected = {
                 // fixed header
@@ -296,7 +296,7 @@ public class Mqtt5ConnackEncoderTest extends AbstractMqtt5EncoderTest {
     @Test
     public void test_user_props_request_problem_information_false() {
 
-        channel.attr(ChannelAttributes.REQUEST_PROBLEM_INFORMATION).set(false);
+        ClientConnection.of(channel).setProblemInformationRequested(false);
 
         final byte[] expected = {
                 // fixed header
@@ -1205,7 +1205,7 @@ public class Mqtt5ConnackEncoderTest extends AbstractMqtt5EncoderTest {
     public void encode_propertyLengthExceeded_omitReasonString() {
 
         final int maxPacketSize = 130;
-        channel.attr(ChannelAttributes.MAX_PACKET_SIZE_SEND).set((long) maxPacketSize);
+        ClientConnection.of(channel).setMaxPacketSizeSend((long) maxPacketSize);
 
         final int maxUserPropertiesCount = maxPacketSize / userPropertyBytes;
         final Mqtt5UserProperties maxUserProperties = getUserProperties(maxUserPropertiesCount);
@@ -1262,7 +1262,7 @@ public class Mqtt5ConnackEncoderTest extends AbstractMqtt5EncoderTest {
     @Test
     public void encode_maximumPacketSizeExceeded_omitUserProperties() {
         final int maxPacketSize = 130;
-        channel.attr(ChannelAttributes.MAX_PACKET_SIZE_SEND).set((long) maxPacketSize);
+        ClientConnection.of(channel).setMaxPacketSizeSend((long) maxPacketSize);
 
         final MaximumPacketBuilder maxPacket = new MaximumPacketBuilder().build(maxPacketSize);
         final byte[] expected = {
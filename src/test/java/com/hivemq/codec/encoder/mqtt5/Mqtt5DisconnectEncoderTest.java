@@ -17,13 +17,13 @@
 package com.hivemq.codec.encoder.mqtt5;
 
 import com.google.common.collect.ImmutableList;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.configuration.service.SecurityConfigurationService;
 import com.hivemq.mqtt.message.disconnect.DISCONNECT;
 import com.hivemq.mqtt.message.dropping.MessageDroppedService;
 import com.hivemq.mqtt.message.mqtt5.Mqtt5UserProperties;
 import com.hivemq.mqtt.message.mqtt5.MqttUserProperty;
 import com.hivemq.mqtt.message.reason.Mqtt5DisconnectReasonCode;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import org.junit.Before;
@@ -185,7 +185,7 @@ public class Mqtt5DisconnectEncoderTest extends AbstractMqtt5EncoderTest {
     @Test
     public void encode_reasonString_request_problem_information_false() {
 
-        channel.attr(ChannelAttributes.REQUEST_PROBLEM_INFORMATION).set(false);
+        ClientConnection.of(channel).setProblemInformationRequested(false);
 
         final byte[] expected = {
                 // fixed header
@@ -214,7 +214,7 @@ public class Mqtt5DisconnectEncoderTest extends AbstractMqtt5EncoderTest {
     @Test
     public void encode_allProperties_request_problem_information_false() {
 
-        channel.attr(ChannelAttributes.REQUEST_PROBLEM_INFORMATION).set(false);
+        ClientConnection.of(channel).setProblemInformationRequested(false);
 
         final byte[] expected = {
                 // fixed header
@@ -17,13 +17,13 @@
 package com.hivemq.codec.encoder.mqtt5;
 
 import com.google.common.collect.ImmutableList;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.configuration.service.SecurityConfigurationService;
 import com.hivemq.mqtt.message.dropping.MessageDroppedService;
 import com.hivemq.mqtt.message.mqtt5.Mqtt5UserProperties;
 import com.hivemq.mqtt.message.mqtt5.MqttUserProperty;
 import com.hivemq.mqtt.message.puback.PUBACK;
 import com.hivemq.mqtt.message.reason.Mqtt5PubAckReasonCode;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.buffer.ByteBuf;
 import org.junit.Before;
 import org.junit.Test;
@@ -121,7 +121,7 @@ public class Mqtt5PubackEncoderTest extends AbstractMqtt5EncoderTest {
     @Test
     public void encode_reason_string_request_problem_information_false() {
 
-        channel.attr(ChannelAttributes.REQUEST_PROBLEM_INFORMATION).set(false);
+        ClientConnection.of(channel).setProblemInformationRequested(false);
         when(securityConfigurationService.allowRequestProblemInformation()).thenReturn(false);
 
         // MQTT v5.0 Spec §3.4.2.2
@@ -143,7 +143,7 @@ public class Mqtt5PubackEncoderTest extends AbstractMqtt5EncoderTest {
     public void encode_user_property_request_problem_information_false() {
 
         when(securityConfigurationService.allowRequestProblemInformation()).thenReturn(true);
-        channel.attr(ChannelAttributes.REQUEST_PROBLEM_INFORMATION).set(false);
+        ClientConnection.of(channel).setProblemInformationRequested(false);
 
         final byte[] expected = {
                 // fixed header
@@ -167,7 +167,7 @@ public class Mqtt5PubackEncoderTest extends AbstractMqtt5EncoderTest {
     public void encode_reason_string_and_user_property_request_problem_information_false() {
 
         when(securityConfigurationService.allowRequestProblemInformation()).thenReturn(true);
-        channel.attr(ChannelAttributes.REQUEST_PROBLEM_INFORMATION).set(false);
+        ClientConnection.of(channel).setProblemInformationRequested(false);
 
         final byte[] expected = {
                 // fixed header
@@ -344,7 +344,7 @@ public class Mqtt5PubackEncoderTest extends AbstractMqtt5EncoderTest {
     @Test
     public void encode_maximum_packet_size_exceeded() {
 
-        channel.attr(ChannelAttributes.MAX_PACKET_SIZE_SEND).set(1L);
+        ClientConnection.of(channel).setMaxPacketSizeSend(1L);
 
         final MaximumPacketBuilder maxPacket = new MaximumPacketBuilder().build(MAX_PACKET_SIZE);
 
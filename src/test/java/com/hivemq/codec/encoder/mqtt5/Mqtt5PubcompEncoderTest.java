@@ -17,13 +17,13 @@
 package com.hivemq.codec.encoder.mqtt5;
 
 import com.google.common.collect.ImmutableList;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.configuration.service.SecurityConfigurationService;
 import com.hivemq.mqtt.message.dropping.MessageDroppedService;
 import com.hivemq.mqtt.message.mqtt5.Mqtt5UserProperties;
 import com.hivemq.mqtt.message.mqtt5.MqttUserProperty;
 import com.hivemq.mqtt.message.pubcomp.PUBCOMP;
 import com.hivemq.mqtt.message.reason.Mqtt5PubCompReasonCode;
-import com.hivemq.util.ChannelAttributes;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -144,7 +144,7 @@ public class Mqtt5PubcompEncoderTest extends AbstractMqtt5EncoderTest {
     @Test
     public void encode_reason_string_request_problem_information_false() {
 
-        channel.attr(ChannelAttributes.REQUEST_PROBLEM_INFORMATION).set(false);
+        ClientConnection.of(channel).setProblemInformationRequested(false);
 
         // MQTT v5.0 Spec §3.4.2.2
         final byte[] expected = {
@@ -166,7 +166,7 @@ public class Mqtt5PubcompEncoderTest extends AbstractMqtt5EncoderTest {
     public void encode_user_property_request_problem_information_false() {
 
         when(securityConfigurationService.allowRequestProblemInformation()).thenReturn(true);
-        channel.attr(ChannelAttributes.REQUEST_PROBLEM_INFORMATION).set(false);
+        ClientConnection.of(channel).setProblemInformationRequested(false);
 
         final byte[] expected = {
                 // fixed header
@@ -191,7 +191,7 @@ public class Mqtt5PubcompEncoderTest extends AbstractMqtt5EncoderTest {
     public void encode_reason_string_and_user_property_request_problem_information_false() {
 
         when(securityConfigurationService.allowRequestProblemInformation()).thenReturn(true);
-        channel.attr(ChannelAttributes.REQUEST_PROBLEM_INFORMATION).set(false);
+        ClientConnection.of(channel).setProblemInformationRequested(false);
 
         final byte[] expected = {
                 // fixed header
@@ -17,15 +17,17 @@
 package com.hivemq.codec.encoder.mqtt5;
 
 import com.google.common.collect.ImmutableList;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.configuration.HivemqId;
 import com.hivemq.configuration.entity.mqtt.MqttConfigurationDefaults;
 import com.hivemq.configuration.service.SecurityConfigurationService;
+import com.hivemq.limitation.TopicAliasLimiter;
 import com.hivemq.mqtt.message.QoS;
 import com.hivemq.mqtt.message.dropping.MessageDroppedService;
 import com.hivemq.mqtt.message.mqtt5.Mqtt5UserProperties;
 import com.hivemq.mqtt.message.mqtt5.MqttUserProperty;
 import com.hivemq.mqtt.message.publish.PUBLISH;
-import com.hivemq.util.ChannelAttributes;
+import com.hivemq.mqtt.message.publish.PUBLISHFactory;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import org.junit.Before;
@@ -42,7 +44,12 @@ import static com.hivemq.codec.encoder.mqtt5.MqttVariableByteInteger.MAXIMUM_PAC
 import static com.hivemq.mqtt.message.mqtt5.MessageProperties.CORRELATION_DATA;
 import static com.hivemq.mqtt.message.mqtt5.MessageProperties.PAYLOAD_FORMAT_INDICATOR;
 import static com.hivemq.mqtt.message.mqtt5.Mqtt5UserProperties.NO_USER_PROPERTIES;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -60,6 +67,9 @@ public class Mqtt5PublishEncoderTest extends AbstractMqtt5EncoderTest {
     @Mock
     private SecurityConfigurationService securityConfigurationService;
 
+    @Mock
+    private TopicAliasLimiter topicAliasLimiter;
+
     @Before
     public void setUp() throws Exception {
 
@@ -76,7 +86,7 @@ public class Mqtt5PublishEncoderTest extends AbstractMqtt5EncoderTest {
     @Test
     public void test_encode_all() {
 
-        channel.attr(ChannelAttributes.MAX_PACKET_SIZE_SEND).set(200L);
+        ClientConnection.of(channel).setMaxPacketSizeSend(200L);
 
         final byte[] expected = {
                 // fixed header
@@ -522,7 +532,7 @@ public class Mqtt5PublishEncoderTest extends AbstractMqtt5EncoderTest {
     @Test
     public void test_encode_userProperties_request_problem_information_false() {
 
-        channel.attr(ChannelAttributes.REQUEST_PROBLEM_INFORMATION).set(false);
+        ClientConnection.of(channel).setProblemInformationRequested(false);
 
         final byte[] expected = {
                 // fixed header
@@ -734,7 +744,7 @@ public class Mqtt5PublishEncoderTest extends AbstractMqtt5EncoderTest {
                         Mqtt5PayloadFormatIndicator.UNSPECIFIED, null, null, correlationData, userProperties,
                         -1, false, true, null);
 
-        channel.attr(ChannelAttributes.CLIENT_ID).set("clientid");
+        ClientConnection.of(channel).setClientId("clientid");
         channel.writeOutbound(publish);
         final ByteBuf buf = channel.readOutbound();
         assertEquals(0, buf.readableBytes());
@@ -742,4 +752,114 @@ public class Mqtt5PublishEncoderTest extends AbstractMqtt5EncoderTest {
         expected.release();
     }
 
-}
\ No newline at end of file
+    @Test
+    public void test_encode_outbound_topic_alias() {
+
+        when(topicAliasLimiter.aliasesAvailable()).thenReturn(true);
+        ClientConnection.of(channel).setOutboundTopicAliasMapping(new OutboundTopicAliasMapping(10, 1, topicAliasLimiter));
+
+        final byte[] expectedNewAlias = {
+                // fixed header
+                //   type, flags
+                0b0011_0000,
+                //   remaining length
+                12,
+                // variable header
+                //   topic name
+                0, 5, 't', 'o', 'p', 'i', 'c',
+                //   properties
+                3,
+                //     topic alias
+                0x23, 0, 1,
+                // payload
+                1
+        };
+        final byte[] expectedKnownAlias = {
+                // fixed header
+                //   type, flags
+                0b0011_0000,
+                //   remaining length
+                7,
+                // variable header
+                //   empty topic name
+                0, 0,
+                //   properties
+                3,
+                //     topic alias
+                0x23, 0, 1,
+                // payload
+                1
+        };
+
+        assertArrayEquals(expectedNewAlias, encodeOutbound(createMinimalPublish("topic")));
+        verify(topicAliasLimiter).addUsage("topic");
+        assertArrayEquals(expectedKnownAlias, encodeOutbound(createMinimalPublish("topic")));
+        assertEquals(1, ClientConnection.of(channel).getOutboundTopicAliasMapping().size());
+    }
+
+    @Test
+    public void test_encode_outbound_topic_alias_not_mapped_if_dropped() {
+
+        when(topicAliasLimiter.aliasesAvailable()).thenReturn(true);
+        ClientConnection.of(channel).setOutboundTopicAliasMapping(new OutboundTopicAliasMapping(10, 1, topicAliasLimiter));
+
+        final PUBLISH expired =
+                TestMessageUtil.createMqtt5Publish(hiveMQId.get(), "topic", new byte[]{1},
+                        QoS.AT_MOST_ONCE, false, 0, null, null, null, null, NO_USER_PROPERTIES,
+                        -1, false, true, null);
+        channel.writeOutbound(expired);
+
+        assertEquals(0, ClientConnection.of(channel).getOutboundTopicAliasMapping().size());
+        verify(topicAliasLimiter, never()).addUsage("topic");
+    }
+
+    @Test
+    public void test_encode_shared_properties() throws Exception {
+
+        ClientConnection.of(channel).setMaxPacketSizeSend((long) MAXIMUM_PACKET_SIZE_LIMIT);
+
+        final PUBLISH publish = TestMessageUtil.createMqtt5Publish(hiveMQId.get(), "topic", new byte[]{1, 2, 3, 4, 5},
+                QoS.AT_LEAST_ONCE, false, 10, Mqtt5PayloadFormatIndicator.UTF_8,
+                "myContentType", "responseTopic", new byte[]{1, 2, 3, 4, 5},
+                getUserProperties(20),
+                1, false, true, null);
+
+        final byte[] expected1 = encodeOutbound(
+                PUBLISHFactory.forSubscriber(publish, QoS.AT_LEAST_ONCE, false, 1, ImmutableList.of(10), null, null));
+        final byte[] expected2 = encodeOutbound(
+                PUBLISHFactory.forSubscriber(publish, QoS.AT_LEAST_ONCE, false, 2, ImmutableList.of(20), null, null));
+
+        super.setUp(new Mqtt5PublishEncoder(messageDroppedService, securityConfigurationService, true));
+        ClientConnection.of(channel).setMaxPacketSizeSend((long) MAXIMUM_PACKET_SIZE_LIMIT);
+
+        final PUBLISH subscriberPublish1 =
+                PUBLISHFactory.forSubscriber(publish, QoS.AT_LEAST_ONCE, false, 1, ImmutableList.of(10), null, null);
+        final PUBLISH subscriberPublish2 =
+                PUBLISHFactory.forSubscriber(publish, QoS.AT_LEAST_ONCE, false, 2, ImmutableList.of(20), null, null);
+
+        assertArrayEquals(expected1, encodeOutbound(subscriberPublish1));
+        assertArrayEquals(expected2, encodeOutbound(subscriberPublish2));
+
+        assertNotNull(subscriberPublish1.getEncodedSharedProperties());
+        assertSame(subscriberPublish1.getEncodedSharedProperties(), subscriberPublish2.getEncodedSharedProperties());
+    }
+
+    private PUBLISH createMinimalPublish(final String topic) {
+        return TestMessageUtil.createMqtt5Publish(hiveMQId.get(), topic, new byte[]{1},
+                QoS.AT_MOST_ONCE, false, MqttConfigurationDefaults.MAX_EXPIRY_INTERVAL_DEFAULT,
+                null, null, null, null, NO_USER_PROPERTIES,
+                -1, false, true, null);
+    }
+
+    private byte[] encodeOutbound(final PUBLISH publish) {
+        channel.writeOutbound(publish);
+        final ByteBuf buf = channel.readOutbound();
+        try {
+            final byte[] bytes = new byte[buf.readableBytes()];
+            buf.readBytes(bytes);
+            return bytes;
+        } finally {
+            buf.release();
+        }
+    }
+}
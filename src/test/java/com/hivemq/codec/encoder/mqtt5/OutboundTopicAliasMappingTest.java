@@ -0,0 +1,105 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.codec.encoder.mqtt5;
+
+import com.hivemq.limitation.TopicAliasLimiter;
+import com.hivemq.mqtt.message.QoS;
+import com.hivemq.mqtt.message.publish.PUBLISH;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import util.TestMessageUtil;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OutboundTopicAliasMappingTest {
+
+    @Mock
+    private TopicAliasLimiter topicAliasLimiter;
+
+    private OutboundTopicAliasMapping mapping;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(topicAliasLimiter.aliasesAvailable()).thenReturn(true);
+        mapping = new OutboundTopicAliasMapping(2, 3, topicAliasLimiter);
+    }
+
+    @Test
+    public void test_lookup_new_and_known_topic() {
+        assertEquals(-1, mapping.lookup("topic1"));
+        mapping.sent("topic1", -1);
+        assertEquals(1, mapping.lookup("topic1"));
+        assertEquals(-2, mapping.lookup("topic2"));
+        verify(topicAliasLimiter).addUsage("topic1");
+    }
+
+    @Test
+    public void test_lookup_short_topic() {
+        assertEquals(OutboundTopicAliasMapping.NO_TOPIC_ALIAS, mapping.lookup("ab"));
+    }
+
+    @Test
+    public void test_lookup_limit_reached() {
+        when(topicAliasLimiter.aliasesAvailable()).thenReturn(false);
+        assertEquals(OutboundTopicAliasMapping.NO_TOPIC_ALIAS, mapping.lookup("topic1"));
+    }
+
+    @Test
+    public void test_alias_is_kept_for_the_looked_up_publish() {
+        final PUBLISH publish = TestMessageUtil.createMqtt3Publish("topic1", new byte[]{1}, QoS.AT_MOST_ONCE);
+        final PUBLISH other = TestMessageUtil.createMqtt3Publish("topic1", new byte[]{1}, QoS.AT_MOST_ONCE);
+
+        assertEquals(-1, mapping.lookup(publish));
+        assertEquals(OutboundTopicAliasMapping.NO_TOPIC_ALIAS, mapping.pollTopicAlias(other));
+        assertEquals(-1, mapping.pollTopicAlias(publish));
+        assertEquals(OutboundTopicAliasMapping.NO_TOPIC_ALIAS, mapping.pollTopicAlias(publish));
+        assertEquals(0, mapping.size());
+    }
+
+    @Test
+    public void test_least_recently_sent_alias_is_reused() {
+        mapping.sent("topic1", -1);
+        mapping.sent("topic2", -2);
+
+        // topic1 is sent again, so topic2 is the least recently sent topic
+        assertEquals(1, mapping.lookup("topic1"));
+        mapping.sent("topic1", 1);
+        assertEquals(-2, mapping.lookup("topic3"));
+
+        mapping.sent("topic3", -2);
+        verify(topicAliasLimiter).removeUsage("topic2");
+        assertEquals(2, mapping.size());
+        assertEquals(-1, mapping.lookup("topic2"));
+        assertArrayEquals(new String[]{"topic1", "topic3"}, mapping.getTopics());
+    }
+
+    @Test
+    public void test_lookup_does_not_change_least_recently_sent_alias() {
+        mapping.sent("topic1", -1);
+        mapping.sent("topic2", -2);
+
+        // topic1 is only looked up but not sent, so it stays the least recently sent topic
+        assertEquals(1, mapping.lookup("topic1"));
+        assertEquals(-1, mapping.lookup("topic3"));
+    }
+}
@@ -16,6 +16,7 @@
 
 package com.hivemq.extensions;
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.message.ProtocolVersion;
 import com.hivemq.security.auth.SslClientCertificate;
 import io.netty.channel.embedded.EmbeddedChannel;
@@ -43,7 +44,7 @@ public class ExtensionInformationUtilTest {
     public void test_get_tls_fails_no_cipher() {
 
         final EmbeddedChannel channel = new EmbeddedChannel();
-        channel.attr(MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         channel.attr(AUTH_PROTOCOL).set("1.3");
 
@@ -69,7 +70,7 @@ public class ExtensionInformationUtilTest {
     public void test_get_tls_fails_no_protocol() {
 
         final EmbeddedChannel channel = new EmbeddedChannel();
-        channel.attr(MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         channel.attr(AUTH_CIPHER_SUITE).set("cipher");
 
@@ -17,6 +17,7 @@
 package com.hivemq.extensions.client.parameter;
 
 import com.google.common.collect.Lists;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.configuration.service.entity.*;
 import com.hivemq.extension.sdk.api.client.parameter.Listener;
 import com.hivemq.extension.sdk.api.client.parameter.ListenerType;
@@ -56,7 +57,7 @@ public class ConnectionInformationImplTest {
     public void test_mqtt_v31() {
 
         final EmbeddedChannel channel = new EmbeddedChannel();
-        channel.attr(MQTT_VERSION).set(ProtocolVersion.MQTTv3_1);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv3_1);
 
         final ConnectionInformationImpl connectionInformation = new ConnectionInformationImpl(channel);
 
@@ -67,7 +68,7 @@ public class ConnectionInformationImplTest {
     public void test_mqtt_v311() {
 
         final EmbeddedChannel channel = new EmbeddedChannel();
-        channel.attr(MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
 
         final ConnectionInformationImpl connectionInformation = new ConnectionInformationImpl(channel);
 
@@ -78,7 +79,7 @@ public class ConnectionInformationImplTest {
     public void test_mqtt_v5() {
 
         final EmbeddedChannel channel = new EmbeddedChannel();
-        channel.attr(MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final ConnectionInformationImpl connectionInformation = new ConnectionInformationImpl(channel);
 
@@ -99,7 +100,7 @@ public class ConnectionInformationImplTest {
     public void test_minimum_information() {
 
         final EmbeddedChannel channel = new EmbeddedChannel();
-        channel.attr(MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final ConnectionInformationImpl connectionInformation = new ConnectionInformationImpl(channel);
 
@@ -115,7 +116,7 @@ public class ConnectionInformationImplTest {
     public void test_inet_address() {
 
         final EmbeddedChannel channel = new EmbeddedChannel();
-        channel.attr(MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final ConnectionInformationImpl connectionInformation = new ConnectionInformationImpl(channel);
 
@@ -127,7 +128,7 @@ public class ConnectionInformationImplTest {
     public void test_tcp_listener() {
 
         final EmbeddedChannel channel = new EmbeddedChannel();
-        channel.attr(MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
         channel.attr(LISTENER).set(new TcpListener(1337, "127.0.0.1"));
 
         final ConnectionInformationImpl connectionInformation = new ConnectionInformationImpl(channel);
@@ -148,7 +149,7 @@ public class ConnectionInformationImplTest {
     public void test_tls_tcp_listener() {
 
         final EmbeddedChannel channel = new EmbeddedChannel();
-        channel.attr(MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
         channel.attr(LISTENER).set(new TlsTcpListener(1337, "127.0.0.1", createDefaultTls().build()));
 
         final ConnectionInformationImpl connectionInformation = new ConnectionInformationImpl(channel);
@@ -169,7 +170,7 @@ public class ConnectionInformationImplTest {
     public void test_websocket_listener() {
 
         final EmbeddedChannel channel = new EmbeddedChannel();
-        channel.attr(MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
         channel.attr(LISTENER).set(new WebsocketListener.Builder().port(1337).bindAddress("127.0.0.1").build());
 
         final ConnectionInformationImpl connectionInformation = new ConnectionInformationImpl(channel);
@@ -191,7 +192,7 @@ public class ConnectionInformationImplTest {
 
 
         final EmbeddedChannel channel = new EmbeddedChannel();
-        channel.attr(MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
         channel.attr(LISTENER).set(new TlsWebsocketListener.Builder().port(1337).bindAddress("127.0.0.1").tls(createDefaultTls().build()).build());
 
         final ConnectionInformationImpl connectionInformation = new ConnectionInformationImpl(channel);
@@ -212,7 +213,7 @@ public class ConnectionInformationImplTest {
     public void test_full_tls_information() {
 
         final EmbeddedChannel channel = new EmbeddedChannel();
-        channel.attr(MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
         channel.attr(AUTH_CIPHER_SUITE).set("cipher");
         channel.attr(AUTH_PROTOCOL).set("1.3");
 
@@ -16,8 +16,8 @@
 
 package com.hivemq.extensions.events.client.parameters;
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.message.ProtocolVersion;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.channel.embedded.EmbeddedChannel;
 import org.junit.Test;
 
@@ -37,7 +37,7 @@ public class AuthenticationSuccessfulInputImplTest {
     @Test
     public void test_construction_values() {
         final EmbeddedChannel channel = new EmbeddedChannel();
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
         final AuthenticationSuccessfulInputImpl successfulInput = new AuthenticationSuccessfulInputImpl("client", channel);
         assertNotNull(successfulInput);
         assertNotNull(successfulInput.get());
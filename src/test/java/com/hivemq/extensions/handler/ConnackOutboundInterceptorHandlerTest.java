@@ -18,6 +18,7 @@ package com.hivemq.extensions.handler;
 
 import com.google.common.collect.ImmutableMap;
 import com.hivemq.annotations.NotNull;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.common.shutdown.ShutdownHooks;
 import com.hivemq.configuration.service.FullConfigurationService;
 import com.hivemq.extension.sdk.api.annotations.Nullable;
@@ -113,7 +114,7 @@ public class ConnackOutboundInterceptorHandlerTest {
         executor1.postConstruct();
 
         channel = new EmbeddedChannel();
-        channel.attr(ChannelAttributes.CLIENT_ID).set("client");
+        ClientConnection.of(channel).setClientId("client");
         channel.attr(ChannelAttributes.REQUEST_RESPONSE_INFORMATION).set(true);
         when(plugin.getId()).thenReturn("plugin");
 
@@ -128,7 +129,7 @@ public class ConnackOutboundInterceptorHandlerTest {
     @Test(timeout = 5000)
     public void test_client_id_not_set() {
 
-        channel.attr(ChannelAttributes.CLIENT_ID).set(null);
+        ClientConnection.of(channel).setClientId(null);
 
         channel.writeOutbound(testConnack());
         channel.runPendingTasks();
@@ -154,7 +155,7 @@ public class ConnackOutboundInterceptorHandlerTest {
     public void test_no_interceptors() throws Exception {
 
         when(interceptors.connackOutboundInterceptorProviders()).thenReturn(ImmutableMap.of());
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         channel.writeOutbound(testConnack());
         channel.runPendingTasks();
@@ -173,7 +174,7 @@ public class ConnackOutboundInterceptorHandlerTest {
 
         final ConnackOutboundInterceptorProvider interceptorProvider = getInterceptor("TestNullOutboundInterceptor");
         when(interceptors.connackOutboundInterceptorProviders()).thenReturn(ImmutableMap.of("plugin", interceptorProvider));
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         channel.writeOutbound(testConnack());
         channel.runPendingTasks();
@@ -193,7 +194,7 @@ public class ConnackOutboundInterceptorHandlerTest {
         final ConnackOutboundInterceptorProvider interceptorProvider = getInterceptor("TestModifyOutboundInterceptor");
         when(interceptors.connackOutboundInterceptorProviders()).thenReturn(ImmutableMap.of("plugin", interceptorProvider));
         when(hiveMQExtensions.getExtension(eq("plugin"))).thenReturn(plugin);
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         channel.writeOutbound(testConnack());
         channel.runPendingTasks();
@@ -213,7 +214,7 @@ public class ConnackOutboundInterceptorHandlerTest {
         final ConnackOutboundInterceptorProvider interceptorProvider = getInterceptor("TestModifyOutboundInterceptor");
         when(interceptors.connackOutboundInterceptorProviders()).thenReturn(ImmutableMap.of("plugin", interceptorProvider));
         when(hiveMQExtensions.getExtension(eq("plugin"))).thenReturn(null);
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         channel.writeOutbound(testConnack());
         channel.runPendingTasks();
@@ -233,7 +234,7 @@ public class ConnackOutboundInterceptorHandlerTest {
         final ConnackOutboundInterceptorProvider interceptorProvider = getInterceptor("TestTimeoutFailedOutboundInterceptor");
         when(interceptors.connackOutboundInterceptorProviders()).thenReturn(ImmutableMap.of("plugin", interceptorProvider));
         when(hiveMQExtensions.getExtension(eq("plugin"))).thenReturn(plugin);
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         channel.writeOutbound(testConnack());
 
@@ -252,7 +253,7 @@ public class ConnackOutboundInterceptorHandlerTest {
         final ConnackOutboundInterceptorProvider interceptorProvider = getInterceptor("TestExceptionOutboundInterceptor");
         when(interceptors.connackOutboundInterceptorProviders()).thenReturn(ImmutableMap.of("plugin", interceptorProvider));
         when(hiveMQExtensions.getExtension(eq("plugin"))).thenReturn(plugin);
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         channel.writeOutbound(testConnack());
 
@@ -19,6 +19,7 @@ package com.hivemq.extensions.handler;
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.Lists;
 import com.hivemq.annotations.NotNull;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.common.shutdown.ShutdownHooks;
 import com.hivemq.configuration.service.FullConfigurationService;
 import com.hivemq.extension.sdk.api.async.Async;
@@ -140,7 +141,7 @@ public class IncomingSubscribeHandlerTest {
 
     private void createChannel() {
         channel = new EmbeddedChannel();
-        channel.attr(ChannelAttributes.CLIENT_ID).set("test_client");
+        ClientConnection.of(channel).setClientId("test_client");
         channel.pipeline().addFirst(incomingSubscribeHandler);
         channelHandlerContext = channel.pipeline().context(IncomingPublishHandler.class);
     }
@@ -157,7 +158,7 @@ public class IncomingSubscribeHandlerTest {
     @Test(timeout = 5000)
     public void test_read_subscribe_client_id_not_set() {
 
-        channel.attr(ChannelAttributes.CLIENT_ID).set(null);
+        ClientConnection.of(channel).setClientId(null);
 
         channel.writeInbound(TestMessageUtil.createFullMqtt5Subscribe());
 
@@ -197,7 +198,7 @@ public class IncomingSubscribeHandlerTest {
         clientContext.addSubscribeInboundInterceptor(isolatedInterceptors.get(0));
 
         channel.attr(ChannelAttributes.PLUGIN_CLIENT_CONTEXT).set(clientContext);
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         when(hiveMQExtensions.getExtensionForClassloader(any(IsolatedPluginClassloader.class))).thenReturn(plugin);
 
@@ -224,7 +225,7 @@ public class IncomingSubscribeHandlerTest {
         clientContext.addSubscribeInboundInterceptor(isolatedInterceptors.get(0));
 
         channel.attr(ChannelAttributes.PLUGIN_CLIENT_CONTEXT).set(clientContext);
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
 
         when(hiveMQExtensions.getExtensionForClassloader(any(IsolatedPluginClassloader.class))).thenReturn(plugin);
 
@@ -250,7 +251,7 @@ public class IncomingSubscribeHandlerTest {
         clientContext.addSubscribeInboundInterceptor(isolatedInterceptors.get(1));
 
         channel.attr(ChannelAttributes.PLUGIN_CLIENT_CONTEXT).set(clientContext);
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final CountDownLatch subackLatch = new CountDownLatch(1);
 
@@ -289,7 +290,7 @@ public class IncomingSubscribeHandlerTest {
         clientContext.addSubscribeInboundInterceptor(isolatedInterceptors.get(2));
 
         channel.attr(ChannelAttributes.PLUGIN_CLIENT_CONTEXT).set(clientContext);
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
 
         final CountDownLatch subackLatch = new CountDownLatch(1);
 
@@ -328,7 +329,7 @@ public class IncomingSubscribeHandlerTest {
         clientContext.addSubscribeInboundInterceptor(isolatedInterceptors.get(2));
 
         channel.attr(ChannelAttributes.PLUGIN_CLIENT_CONTEXT).set(clientContext);
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final CountDownLatch subackLatch = new CountDownLatch(1);
 
@@ -365,7 +366,7 @@ public class IncomingSubscribeHandlerTest {
         clientContext.addSubscribeInboundInterceptor(isolatedInterceptors.get(2));
 
         channel.attr(ChannelAttributes.PLUGIN_CLIENT_CONTEXT).set(clientContext);
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final CountDownLatch subackLatch = new CountDownLatch(1);
 
@@ -17,6 +17,7 @@
 package com.hivemq.extensions.handler;
 
 import com.google.common.util.concurrent.Futures;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.configuration.info.SystemInformationImpl;
 import com.hivemq.configuration.service.impl.listener.ListenerConfigurationService;
 import com.hivemq.extension.sdk.api.auth.parameter.TopicPermission;
@@ -116,8 +117,8 @@ public class PluginInitializerHandlerTest {
         executor1.postConstruct();
 
         embeddedChannel = new EmbeddedChannel();
-        embeddedChannel.attr(ChannelAttributes.CLIENT_ID).set("test_client");
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(embeddedChannel).setClientId("test_client");
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         when(channelHandlerContext.channel()).thenReturn(embeddedChannel);
         when(channelHandlerContext.executor()).thenReturn(ImmediateEventExecutor.INSTANCE);
@@ -196,8 +197,8 @@ public class PluginInitializerHandlerTest {
         when(initializers.getClientInitializerMap()).thenReturn(createClientInitializerMap());
 
         final EmbeddedChannel embeddedChannel = new EmbeddedChannel();
-        embeddedChannel.attr(ChannelAttributes.CLIENT_ID).set("test_client");
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(embeddedChannel).setClientId("test_client");
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv5);
         when(channelHandlerContext.channel())
                 .thenReturn(embeddedChannel)
                 .thenReturn(embeddedChannel)
@@ -220,7 +221,7 @@ public class PluginInitializerHandlerTest {
     public void test_user_event_other_event() {
 
         final EmbeddedChannel embeddedChannel = new EmbeddedChannel();
-        embeddedChannel.attr(ChannelAttributes.CLIENT_ID).set("test_client");
+        ClientConnection.of(embeddedChannel).setClientId("test_client");
         embeddedChannel.pipeline().addLast(pluginInitializerHandler);
 
         embeddedChannel.pipeline().fireUserEventTriggered("Hallo");
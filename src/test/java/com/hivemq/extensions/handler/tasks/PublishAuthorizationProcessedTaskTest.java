@@ -16,6 +16,7 @@
 
 package com.hivemq.extensions.handler.tasks;
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.common.shutdown.ShutdownHooks;
 import com.hivemq.extension.sdk.api.packets.disconnect.DisconnectReasonCode;
 import com.hivemq.extension.sdk.api.packets.publish.AckReasonCode;
@@ -29,7 +30,6 @@ import com.hivemq.mqtt.message.ProtocolVersion;
 import com.hivemq.mqtt.message.QoS;
 import com.hivemq.mqtt.message.publish.PUBLISH;
 import com.hivemq.mqtt.message.reason.Mqtt5DisconnectReasonCode;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.embedded.EmbeddedChannel;
 import org.junit.Before;
@@ -83,7 +83,7 @@ public class PublishAuthorizationProcessedTaskTest {
     @Test
     public void test_mqtt5_disconnect() {
 
-        ctx.channel().attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(ctx.channel()).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         output.disconnectClient();
         task.onSuccess(output);
@@ -95,7 +95,7 @@ public class PublishAuthorizationProcessedTaskTest {
     @Test
     public void test_mqtt5_disconnect_code() {
 
-        ctx.channel().attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(ctx.channel()).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         output.disconnectClient(DisconnectReasonCode.QUOTA_EXCEEDED);
         task.onSuccess(output);
@@ -107,7 +107,7 @@ public class PublishAuthorizationProcessedTaskTest {
     @Test
     public void test_mqtt5_disconnect_code_string() {
 
-        ctx.channel().attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(ctx.channel()).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         output.disconnectClient(DisconnectReasonCode.QUOTA_EXCEEDED, "test-string");
         task.onSuccess(output);
@@ -119,7 +119,7 @@ public class PublishAuthorizationProcessedTaskTest {
     @Test
     public void test_mqtt3_disconnect() {
 
-        ctx.channel().attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1);
+        ClientConnection.of(ctx.channel()).setProtocolVersion(ProtocolVersion.MQTTv3_1);
 
         output.disconnectClient();
         task.onSuccess(output);
@@ -130,7 +130,7 @@ public class PublishAuthorizationProcessedTaskTest {
     @Test
     public void test_mqtt3_1_disconnect() {
 
-        ctx.channel().attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(ctx.channel()).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
 
         output.disconnectClient();
         task.onSuccess(output);
@@ -143,7 +143,7 @@ public class PublishAuthorizationProcessedTaskTest {
 
         final ArgumentCaptor<PublishAuthorizerResult> captor = ArgumentCaptor.forClass(PublishAuthorizerResult.class);
 
-        ctx.channel().attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(ctx.channel()).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         output.failAuthorization();
         task.onSuccess(output);
@@ -162,7 +162,7 @@ public class PublishAuthorizationProcessedTaskTest {
 
         final ArgumentCaptor<PublishAuthorizerResult> captor = ArgumentCaptor.forClass(PublishAuthorizerResult.class);
 
-        ctx.channel().attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(ctx.channel()).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         output.failAuthorization(AckReasonCode.TOPIC_NAME_INVALID);
         task.onSuccess(output);
@@ -181,7 +181,7 @@ public class PublishAuthorizationProcessedTaskTest {
 
         final ArgumentCaptor<PublishAuthorizerResult> captor = ArgumentCaptor.forClass(PublishAuthorizerResult.class);
 
-        ctx.channel().attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(ctx.channel()).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         output.failAuthorization(AckReasonCode.TOPIC_NAME_INVALID, "test-string");
         task.onSuccess(output);
@@ -200,7 +200,7 @@ public class PublishAuthorizationProcessedTaskTest {
 
         final ArgumentCaptor<PublishAuthorizerResult> captor = ArgumentCaptor.forClass(PublishAuthorizerResult.class);
 
-        ctx.channel().attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1);
+        ClientConnection.of(ctx.channel()).setProtocolVersion(ProtocolVersion.MQTTv3_1);
 
         output.failAuthorization();
         task.onSuccess(output);
@@ -219,7 +219,7 @@ public class PublishAuthorizationProcessedTaskTest {
 
         final ArgumentCaptor<PublishAuthorizerResult> captor = ArgumentCaptor.forClass(PublishAuthorizerResult.class);
 
-        ctx.channel().attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(ctx.channel()).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
 
         output.failAuthorization();
         task.onSuccess(output);
@@ -300,7 +300,7 @@ public class PublishAuthorizationProcessedTaskTest {
 
     @Test
     public void test_failure() {
-        ctx.channel().attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(ctx.channel()).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         task.onFailure(new RuntimeException("test"));
 
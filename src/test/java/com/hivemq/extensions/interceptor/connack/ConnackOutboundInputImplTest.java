@@ -16,9 +16,9 @@
 
 package com.hivemq.extensions.interceptor.connack;
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.extensions.packets.connack.ConnackPacketImpl;
 import com.hivemq.mqtt.message.ProtocolVersion;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.channel.embedded.EmbeddedChannel;
 import org.junit.Test;
 import util.TestMessageUtil;
@@ -36,7 +36,7 @@ public class ConnackOutboundInputImplTest {
     public void test_construction_success() {
 
         final EmbeddedChannel embeddedChannel = new EmbeddedChannel();
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final ConnackOutboundInputImpl input = new ConnackOutboundInputImpl(new ConnackPacketImpl(TestMessageUtil.createFullMqtt5Connack()), "client", embeddedChannel);
         assertNotNull(input.get().getClientInformation());
@@ -64,7 +64,7 @@ public class ConnackOutboundInputImplTest {
     public void test_update() {
 
         final EmbeddedChannel embeddedChannel = new EmbeddedChannel();
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv5);
         final ConnackPacketImpl connackPacket1 = new ConnackPacketImpl(TestMessageUtil.createFullMqtt5Connack());
         final ConnackPacketImpl connackPacket2 = new ConnackPacketImpl(TestMessageUtil.createFullMqtt5Connack());
 
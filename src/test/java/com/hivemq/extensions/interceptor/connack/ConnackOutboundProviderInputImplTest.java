@@ -16,9 +16,9 @@
 
 package com.hivemq.extensions.interceptor.connack;
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.extension.sdk.api.client.parameter.ServerInformation;
 import com.hivemq.mqtt.message.ProtocolVersion;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.channel.embedded.EmbeddedChannel;
 import org.junit.Before;
 import org.junit.Test;
@@ -62,7 +62,7 @@ public class ConnackOutboundProviderInputImplTest {
     public void test_success() {
 
         final EmbeddedChannel channel = new EmbeddedChannel();
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final ConnackOutboundProviderInputImpl input = new ConnackOutboundProviderInputImpl(serverInformation, channel, "client");
 
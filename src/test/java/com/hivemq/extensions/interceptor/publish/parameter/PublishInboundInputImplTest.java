@@ -16,12 +16,12 @@
 
 package com.hivemq.extensions.interceptor.publish.parameter;
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.extension.sdk.api.packets.general.Qos;
 import com.hivemq.extension.sdk.api.packets.publish.PayloadFormatIndicator;
 import com.hivemq.extensions.packets.publish.PublishPacketImpl;
 import com.hivemq.mqtt.message.ProtocolVersion;
 import com.hivemq.util.Bytes;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.channel.embedded.EmbeddedChannel;
 import org.junit.Test;
 import util.TestMessageUtil;
@@ -42,7 +42,7 @@ public class PublishInboundInputImplTest {
     public void test_values_set_correctly() {
 
         final EmbeddedChannel channel = new EmbeddedChannel();
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final PublishInboundInputImpl publishInboundInput = new PublishInboundInputImpl(new PublishPacketImpl(TestMessageUtil.createFullMqtt5Publish()), "client", channel);
 
@@ -71,7 +71,7 @@ public class PublishInboundInputImplTest {
     public void test_values_set_correctly_empty_optionals() {
 
         final EmbeddedChannel channel = new EmbeddedChannel();
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final PublishInboundInputImpl publishInboundInput = new PublishInboundInputImpl(new PublishPacketImpl(TestMessageUtil.createMqtt5Publish("topic")), "client", channel);
 
@@ -17,6 +17,7 @@
 package com.hivemq.extensions.interceptor.subscribe.parameter;
 
 import com.google.common.collect.ImmutableList;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.extension.sdk.api.packets.general.MqttVersion;
 import com.hivemq.extensions.packets.subscribe.SubscribePacketImpl;
 import com.hivemq.mqtt.message.ProtocolVersion;
@@ -25,7 +26,6 @@ import com.hivemq.mqtt.message.mqtt5.Mqtt5RetainHandling;
 import com.hivemq.mqtt.message.subscribe.Mqtt5SUBSCRIBE;
 import com.hivemq.mqtt.message.subscribe.SUBSCRIBE;
 import com.hivemq.mqtt.message.subscribe.Topic;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.channel.embedded.EmbeddedChannel;
 import org.junit.Test;
 import util.TestMessageUtil;
@@ -47,8 +47,8 @@ public class SubscribeInboundInputImplTest {
         final SubscribePacketImpl subscribePacket = new SubscribePacketImpl(subscribe);
 
         final EmbeddedChannel embeddedChannel = new EmbeddedChannel();
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
-        embeddedChannel.attr(ChannelAttributes.CLIENT_ID).set("client");
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv5);
+        ClientConnection.of(embeddedChannel).setClientId("client");
 
         final SubscribeInboundInputImpl client = new SubscribeInboundInputImpl(subscribePacket, "client", embeddedChannel);
 
@@ -17,60 +17,127 @@
 package com.hivemq.extensions.services;
 
 
+import com.codahale.metrics.MetricRegistry;
 import com.hivemq.configuration.service.InternalConfigurations;
+import com.hivemq.extensions.classloader.IsolatedPluginClassloader;
+import com.hivemq.metrics.HiveMQMetrics;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.MockitoAnnotations;
 
-import static org.junit.Assert.assertFalse;
-import static org.junit.Assert.assertTrue;
+import java.net.URL;
+
+import static com.hivemq.extensions.services.RateLimitedService.PUBLISH_SERVICE;
+import static com.hivemq.extensions.services.RateLimitedService.SUBSCRIPTION_STORE;
+import static org.junit.Assert.*;
 
 /**
  * @author Lukas Brandl
  */
 public class PluginServiceRateLimitServiceTest {
 
+    private MetricRegistry metricRegistry;
     private PluginServiceRateLimitService pluginServiceRateLimitService;
 
     @Before
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
-        pluginServiceRateLimitService = new PluginServiceRateLimitService();
+        metricRegistry = new MetricRegistry();
+        pluginServiceRateLimitService = new PluginServiceRateLimitService(metricRegistry);
+    }
+
+    @After
+    public void tearDown() {
+        InternalConfigurations.PLUGIN_SERVICE_RATE_LIMIT.set(0);
     }
 
     @Test
     public void test_no_limit() {
-        assertFalse(pluginServiceRateLimitService.rateLimitExceeded());
+        assertFalse(pluginServiceRateLimitService.rateLimitExceeded(PUBLISH_SERVICE));
     }
 
     @Test
     public void test_limit() {
         InternalConfigurations.PLUGIN_SERVICE_RATE_LIMIT.set(10);
 
-        pluginServiceRateLimitService = new PluginServiceRateLimitService();
+        pluginServiceRateLimitService = new PluginServiceRateLimitService(metricRegistry);
 
         //use up the current second
         for (int i = 0; i < 10; i++) {
-            assertFalse(pluginServiceRateLimitService.rateLimitExceeded());
+            assertFalse(pluginServiceRateLimitService.rateLimitExceeded(PUBLISH_SERVICE));
         }
         //use up the 10s reserve
         for (int i = 0; i < 10; i++) {
-            assertFalse(pluginServiceRateLimitService.rateLimitExceeded());
+            assertFalse(pluginServiceRateLimitService.rateLimitExceeded(PUBLISH_SERVICE));
         }
-        assertTrue(pluginServiceRateLimitService.rateLimitExceeded());
+        assertTrue(pluginServiceRateLimitService.rateLimitExceeded(PUBLISH_SERVICE));
     }
 
     @Test
     public void test_limit_not_exceeded() {
         InternalConfigurations.PLUGIN_SERVICE_RATE_LIMIT.set(2);
 
-        pluginServiceRateLimitService = new PluginServiceRateLimitService();
+        pluginServiceRateLimitService = new PluginServiceRateLimitService(metricRegistry);
 
         //use up the first second
-        assertFalse(pluginServiceRateLimitService.rateLimitExceeded());
+        assertFalse(pluginServiceRateLimitService.rateLimitExceeded(PUBLISH_SERVICE));
 
         //use up the reserve
-        assertFalse(pluginServiceRateLimitService.rateLimitExceeded());
+        assertFalse(pluginServiceRateLimitService.rateLimitExceeded(PUBLISH_SERVICE));
+    }
+
+    @Test
+    public void test_per_extension_burst() {
+        pluginServiceRateLimitService = new PluginServiceRateLimitService(metricRegistry, 1, 5, true);
+
+        for (int i = 0; i < 5; i++) {
+            assertFalse(pluginServiceRateLimitService.rateLimitExceeded(PUBLISH_SERVICE));
+        }
+        assertTrue(pluginServiceRateLimitService.rateLimitExceeded(PUBLISH_SERVICE));
+
+        assertEquals(5, metricRegistry.counter(HiveMQMetrics.EXTENSION_SERVICE_RATE_LIMIT_ADMITTED_COUNT.name()).getCount());
+        assertEquals(1, metricRegistry.counter(HiveMQMetrics.EXTENSION_SERVICE_RATE_LIMIT_REJECTED_COUNT.name()).getCount());
+    }
+
+    @Test
+    public void test_per_extension_separate_service_budgets() {
+        pluginServiceRateLimitService = new PluginServiceRateLimitService(metricRegistry, 1, 1, true);
+
+        assertFalse(pluginServiceRateLimitService.rateLimitExceeded(PUBLISH_SERVICE));
+        assertTrue(pluginServiceRateLimitService.rateLimitExceeded(PUBLISH_SERVICE));
+
+        assertFalse(pluginServiceRateLimitService.rateLimitExceeded(SUBSCRIPTION_STORE));
+    }
+
+    @Test
+    public void test_per_extension_separate_extension_budgets() {
+        pluginServiceRateLimitService = new PluginServiceRateLimitService(metricRegistry, 1, 1, true);
+
+        final ClassLoader previousClassLoader = Thread.currentThread().getContextClassLoader();
+        try {
+            Thread.currentThread().setContextClassLoader(new IsolatedPluginClassloader(new URL[0], previousClassLoader));
+            assertFalse(pluginServiceRateLimitService.rateLimitExceeded(PUBLISH_SERVICE));
+            assertTrue(pluginServiceRateLimitService.rateLimitExceeded(PUBLISH_SERVICE));
+
+            Thread.currentThread().setContextClassLoader(new IsolatedPluginClassloader(new URL[0], previousClassLoader));
+            assertFalse(pluginServiceRateLimitService.rateLimitExceeded(PUBLISH_SERVICE));
+        } finally {
+            Thread.currentThread().setContextClassLoader(previousClassLoader);
+        }
+
+        assertFalse(pluginServiceRateLimitService.rateLimitExceeded(PUBLISH_SERVICE));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void test_per_extension_refill() throws Exception {
+        pluginServiceRateLimitService = new PluginServiceRateLimitService(metricRegistry, 100, 1, true);
+
+        assertFalse(pluginServiceRateLimitService.rateLimitExceeded(PUBLISH_SERVICE));
+        assertTrue(pluginServiceRateLimitService.rateLimitExceeded(PUBLISH_SERVICE));
+
+        Thread.sleep(50);
+
+        assertFalse(pluginServiceRateLimitService.rateLimitExceeded(PUBLISH_SERVICE));
+    }
+}
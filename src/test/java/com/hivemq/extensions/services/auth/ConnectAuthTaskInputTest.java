@@ -16,10 +16,10 @@
 
 package com.hivemq.extensions.services.auth;
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.extension.sdk.api.packets.connect.ConnectPacket;
 import com.hivemq.mqtt.message.ProtocolVersion;
 import com.hivemq.mqtt.message.connect.CONNECT;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.embedded.EmbeddedChannel;
 import org.junit.Before;
@@ -45,7 +45,7 @@ public class ConnectAuthTaskInputTest {
 
         final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new DummyHandler());
         final ChannelHandlerContext ctx = embeddedChannel.pipeline().context(DummyHandler.class);
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         connect = new CONNECT.Mqtt5Builder().withClientIdentifier("client").withUsername("user").withPassword("password".getBytes(Charset.defaultCharset())).withAuthMethod("method").withAuthData(new byte[]{'a', 'b', 'c'}).build();
         connectAuthTaskInput = new ConnectAuthTaskInput(connect, ctx);
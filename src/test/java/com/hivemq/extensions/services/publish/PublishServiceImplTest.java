@@ -27,6 +27,7 @@ import com.hivemq.extension.sdk.api.services.exception.RateLimitExceededExceptio
 import com.hivemq.extension.sdk.api.services.publish.Publish;
 import com.hivemq.extension.sdk.api.services.publish.PublishToClientResult;
 import com.hivemq.extensions.services.PluginServiceRateLimitService;
+import com.hivemq.extensions.services.RateLimitedService;
 import com.hivemq.extensions.services.builder.PublishBuilderImpl;
 import com.hivemq.mqtt.handler.publish.PublishReturnCode;
 import com.hivemq.mqtt.handler.publish.PublishStatus;
@@ -39,18 +40,22 @@ import com.hivemq.mqtt.topic.tree.TopicTreeImpl;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import util.InitFutureUtilsExecutorRule;
 import util.TestConfigurationBootstrap;
 
 import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -81,7 +86,7 @@ public class PublishServiceImplTest {
     @Before
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
-        when(rateLimitService.rateLimitExceeded()).thenReturn(false);
+        when(rateLimitService.rateLimitExceeded(RateLimitedService.PUBLISH_SERVICE)).thenReturn(false);
         publishService = new PublishServiceImpl(rateLimitService, internalPublishService, publishDistributor, hiveMQId, topicTree);
     }
 
@@ -96,7 +101,7 @@ public class PublishServiceImplTest {
 
     @Test(expected = RateLimitExceededException.class)
     public void test_publish_rate_limit_exceeded() throws Throwable {
-        when(rateLimitService.rateLimitExceeded()).thenReturn(true);
+        when(rateLimitService.rateLimitExceeded(RateLimitedService.PUBLISH_SERVICE)).thenReturn(true);
         final Publish publish = new PublishBuilderImpl(fullConfigurationService).topic("topic").payload(ByteBuffer.wrap("message".getBytes())).build();
         try {
             publishService.publish(publish).get();
@@ -116,7 +121,7 @@ public class PublishServiceImplTest {
 
     @Test(expected = RateLimitExceededException.class)
     public void test_publish_to_client_rate_limit_exceeded() throws Throwable {
-        when(rateLimitService.rateLimitExceeded()).thenReturn(true);
+        when(rateLimitService.rateLimitExceeded(RateLimitedService.PUBLISH_SERVICE)).thenReturn(true);
         final Publish publish = new PublishBuilderImpl(fullConfigurationService).topic("topic").payload(ByteBuffer.wrap("message".getBytes())).build();
         try {
             publishService.publishToClient(publish, "client").get();
@@ -135,6 +140,33 @@ public class PublishServiceImplTest {
         verify(internalPublishService).publish(any(PUBLISH.class), any(ExecutorService.class), isNull(String.class));
     }
 
+    @Test
+    public void test_publish_batch() throws Throwable {
+        final Publish publish1 = new PublishBuilderImpl(fullConfigurationService).topic("topic1").payload(ByteBuffer.wrap("message".getBytes())).build();
+        final Publish publish2 = new PublishBuilderImpl(fullConfigurationService).topic("topic2").payload(ByteBuffer.wrap("message".getBytes())).build();
+        when(internalPublishService.publish(anyListOf(PUBLISH.class), any(ExecutorService.class), isNull(String.class)))
+                .thenReturn(Futures.immediateFuture(null));
+
+        publishService.publish(List.of(publish1, publish2)).get();
+
+        final ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(internalPublishService).publish(captor.capture(), any(ExecutorService.class), isNull(String.class));
+        verify(rateLimitService, times(1)).rateLimitExceeded(RateLimitedService.PUBLISH_SERVICE);
+        assertEquals(2, captor.getValue().size());
+    }
+
+    @Test(expected = DoNotImplementException.class)
+    public void test_publish_batch_implemented_publish() throws Throwable {
+        final Publish publish = new PublishBuilderImpl(fullConfigurationService).topic("topic").payload(ByteBuffer.wrap("message".getBytes())).build();
+        try {
+            publishService.publish(List.of(publish, new TestPublish())).get();
+        } catch (final ExecutionException e) {
+            throw e.getCause();
+        } finally {
+            verify(internalPublishService, never()).publish(anyListOf(PUBLISH.class), any(ExecutorService.class), isNull(String.class));
+        }
+    }
+
     @Test
     public void test_publish_to_client() throws Exception {
         final byte subscriptionFlags = SubscriptionFlags.getDefaultFlags(false, false, false);
@@ -26,6 +26,7 @@ import com.hivemq.extension.sdk.api.services.publish.RetainedMessageStore;
 import com.hivemq.extension.sdk.api.services.publish.RetainedPublish;
 import com.hivemq.extensions.packets.general.UserPropertiesImpl;
 import com.hivemq.extensions.services.PluginServiceRateLimitService;
+import com.hivemq.extensions.services.RateLimitedService;
 import com.hivemq.persistence.RetainedMessage;
 import com.hivemq.persistence.retained.RetainedMessagePersistence;
 import org.junit.Before;
@@ -62,13 +63,13 @@ public class RetainedMessageStoreImplTest {
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
         retainedMessageStore = new RetainedMessageStoreImpl(retainedMessagePersistence, pluginServiceRateLimitService);
-        when(pluginServiceRateLimitService.rateLimitExceeded()).thenReturn(false);
+        when(pluginServiceRateLimitService.rateLimitExceeded(RateLimitedService.RETAINED_MESSAGE_STORE)).thenReturn(false);
     }
 
     @Test(expected = RateLimitExceededException.class)
     public void test_get_retained_message_rate_limit_exceeded() throws Throwable {
 
-        when(pluginServiceRateLimitService.rateLimitExceeded()).thenReturn(true);
+        when(pluginServiceRateLimitService.rateLimitExceeded(RateLimitedService.RETAINED_MESSAGE_STORE)).thenReturn(true);
         try {
             retainedMessageStore.getRetainedMessage("topic").get();
         } catch (final InterruptedException | ExecutionException e) {
@@ -80,7 +81,7 @@ public class RetainedMessageStoreImplTest {
     @Test(expected = RateLimitExceededException.class)
     public void test_clear_rate_limit_exceeded() throws Throwable {
 
-        when(pluginServiceRateLimitService.rateLimitExceeded()).thenReturn(true);
+        when(pluginServiceRateLimitService.rateLimitExceeded(RateLimitedService.RETAINED_MESSAGE_STORE)).thenReturn(true);
         try {
             retainedMessageStore.clear().get();
         } catch (final InterruptedException | ExecutionException e) {
@@ -92,7 +93,7 @@ public class RetainedMessageStoreImplTest {
     @Test(expected = RateLimitExceededException.class)
     public void test_remove_rate_limit_exceeded() throws Throwable {
 
-        when(pluginServiceRateLimitService.rateLimitExceeded()).thenReturn(true);
+        when(pluginServiceRateLimitService.rateLimitExceeded(RateLimitedService.RETAINED_MESSAGE_STORE)).thenReturn(true);
         try {
             retainedMessageStore.remove("topic").get();
         } catch (final InterruptedException | ExecutionException e) {
@@ -104,7 +105,7 @@ public class RetainedMessageStoreImplTest {
     @Test(expected = RateLimitExceededException.class)
     public void test_add_or_replace_rate_limit_exceeded() throws Throwable {
 
-        when(pluginServiceRateLimitService.rateLimitExceeded()).thenReturn(true);
+        when(pluginServiceRateLimitService.rateLimitExceeded(RateLimitedService.RETAINED_MESSAGE_STORE)).thenReturn(true);
         try {
             retainedMessageStore.addOrReplace(Mockito.mock(RetainedPublish.class)).get();
         } catch (final InterruptedException | ExecutionException e) {
@@ -29,6 +29,7 @@ import com.hivemq.extensions.iteration.AsyncIteratorFactory;
 import com.hivemq.extensions.iteration.ChunkResult;
 import com.hivemq.extensions.iteration.FetchCallback;
 import com.hivemq.extensions.services.PluginServiceRateLimitService;
+import com.hivemq.extensions.services.RateLimitedService;
 import com.hivemq.extensions.services.executor.GlobalManagedPluginExecutorService;
 import com.hivemq.mqtt.message.connect.MqttWillPublish;
 import com.hivemq.persistence.clientsession.ChunkCursor;
@@ -81,12 +82,12 @@ public class ClientServiceImplTest {
         MockitoAnnotations.initMocks(this);
         clientService = new ClientServiceImpl(pluginServiceRateLimitService, clientSessionPersistence,
                 getManagedExtensionExecutorService(), asyncIteratorFactory);
-        when(pluginServiceRateLimitService.rateLimitExceeded()).thenReturn(false);
+        when(pluginServiceRateLimitService.rateLimitExceeded(RateLimitedService.CLIENT_SERVICE)).thenReturn(false);
     }
 
     @Test(expected = RateLimitExceededException.class)
     public void test_get_session_limit_exceeded() throws Throwable {
-        when(pluginServiceRateLimitService.rateLimitExceeded()).thenReturn(true);
+        when(pluginServiceRateLimitService.rateLimitExceeded(RateLimitedService.CLIENT_SERVICE)).thenReturn(true);
         try {
             clientService.getSession(clientId).get();
         } catch (final InterruptedException | ExecutionException e) {
@@ -96,7 +97,7 @@ public class ClientServiceImplTest {
 
     @Test(expected = RateLimitExceededException.class)
     public void test_client_connected_limit_exceeded() throws Throwable {
-        when(pluginServiceRateLimitService.rateLimitExceeded()).thenReturn(true);
+        when(pluginServiceRateLimitService.rateLimitExceeded(RateLimitedService.CLIENT_SERVICE)).thenReturn(true);
         try {
             clientService.isClientConnected(clientId).get();
         } catch (final InterruptedException | ExecutionException e) {
@@ -106,7 +107,7 @@ public class ClientServiceImplTest {
 
     @Test(expected = RateLimitExceededException.class)
     public void test_disconnect_client_do_not_prevent_lwt_limit_exceeded() throws Throwable {
-        when(pluginServiceRateLimitService.rateLimitExceeded()).thenReturn(true);
+        when(pluginServiceRateLimitService.rateLimitExceeded(RateLimitedService.CLIENT_SERVICE)).thenReturn(true);
         try {
             clientService.disconnectClient(clientId).get();
         } catch (final InterruptedException | ExecutionException e) {
@@ -116,7 +117,7 @@ public class ClientServiceImplTest {
 
     @Test(expected = RateLimitExceededException.class)
     public void test_disconnect_client_prevent_lwt_limit_exceeded() throws Throwable {
-        when(pluginServiceRateLimitService.rateLimitExceeded()).thenReturn(true);
+        when(pluginServiceRateLimitService.rateLimitExceeded(RateLimitedService.CLIENT_SERVICE)).thenReturn(true);
         try {
             clientService.disconnectClient(clientId, true).get();
         } catch (final InterruptedException | ExecutionException e) {
@@ -126,7 +127,7 @@ public class ClientServiceImplTest {
 
     @Test(expected = RateLimitExceededException.class)
     public void test_invalidate_session_limit_exceeded() throws Throwable {
-        when(pluginServiceRateLimitService.rateLimitExceeded()).thenReturn(true);
+        when(pluginServiceRateLimitService.rateLimitExceeded(RateLimitedService.CLIENT_SERVICE)).thenReturn(true);
         try {
             clientService.invalidateSession(clientId).get();
         } catch (final InterruptedException | ExecutionException e) {
@@ -289,7 +290,7 @@ public class ClientServiceImplTest {
 
     @Test(timeout = 10000, expected = RateLimitExceededException.class)
     public void test_iterate_all_rate_limit_exceeded() throws Throwable {
-        when(pluginServiceRateLimitService.rateLimitExceeded()).thenReturn(true);
+        when(pluginServiceRateLimitService.rateLimitExceeded(RateLimitedService.CLIENT_SERVICE)).thenReturn(true);
 
         try {
             clientService.iterateAllClients((context, value) -> {
@@ -39,10 +39,12 @@ import com.hivemq.extensions.iteration.AsyncIteratorFactory;
 import com.hivemq.extensions.iteration.ChunkResult;
 import com.hivemq.extensions.iteration.FetchCallback;
 import com.hivemq.extensions.services.PluginServiceRateLimitService;
+import com.hivemq.extensions.services.RateLimitedService;
 import com.hivemq.extensions.services.executor.GlobalManagedPluginExecutorService;
 import com.hivemq.mqtt.message.QoS;
 import com.hivemq.mqtt.message.mqtt5.Mqtt5RetainHandling;
 import com.hivemq.mqtt.message.subscribe.Topic;
+import com.hivemq.mqtt.topic.tree.ChunkedSubscriberIterator;
 import com.hivemq.mqtt.topic.tree.LocalTopicTree;
 import com.hivemq.persistence.clientsession.ChunkCursor;
 import com.hivemq.persistence.clientsession.ClientSessionSubscriptionPersistence;
@@ -58,6 +60,7 @@ import util.TestException;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
@@ -92,13 +95,13 @@ public class SubscriptionStoreImplTest {
         MockitoAnnotations.initMocks(this);
         subscriptionStore = new SubscriptionStoreImpl(clientSessionSubscriptionPersistence, rateLimitService, topicTree,
                 getManagedExtensionExecutorService(), asyncIteratorFactory);
-        when(rateLimitService.rateLimitExceeded()).thenReturn(false);
+        when(rateLimitService.rateLimitExceeded(RateLimitedService.SUBSCRIPTION_STORE)).thenReturn(false);
     }
 
     @Test(timeout = 10000)
     public void test_get_rate_limit_exceeded() {
 
-        when(rateLimitService.rateLimitExceeded()).thenReturn(true);
+        when(rateLimitService.rateLimitExceeded(RateLimitedService.SUBSCRIPTION_STORE)).thenReturn(true);
 
         subscriptionStore.getSubscriptions("client");
 
@@ -109,7 +112,7 @@ public class SubscriptionStoreImplTest {
     @Test(timeout = 10000)
     public void test_add_rate_limit_exceeded() {
 
-        when(rateLimitService.rateLimitExceeded()).thenReturn(true);
+        when(rateLimitService.rateLimitExceeded(RateLimitedService.SUBSCRIPTION_STORE)).thenReturn(true);
 
         subscriptionStore.addSubscription(
                 "client", new TopicSubscriptionImpl("topic", Qos.AT_MOST_ONCE, false, false, 0));
@@ -121,7 +124,7 @@ public class SubscriptionStoreImplTest {
     @Test(timeout = 10000)
     public void test_add_multi_rate_limit_exceeded() {
 
-        when(rateLimitService.rateLimitExceeded()).thenReturn(true);
+        when(rateLimitService.rateLimitExceeded(RateLimitedService.SUBSCRIPTION_STORE)).thenReturn(true);
 
         subscriptionStore.addSubscriptions(
                 "client", ImmutableSet.of(new TopicSubscriptionImpl("topic", Qos.AT_MOST_ONCE, false, false, 0)));
@@ -133,7 +136,7 @@ public class SubscriptionStoreImplTest {
     @Test(timeout = 10000)
     public void test_remove_rate_limit_exceeded() {
 
-        when(rateLimitService.rateLimitExceeded()).thenReturn(true);
+        when(rateLimitService.rateLimitExceeded(RateLimitedService.SUBSCRIPTION_STORE)).thenReturn(true);
 
         subscriptionStore.removeSubscription("client", "topic");
 
@@ -144,7 +147,7 @@ public class SubscriptionStoreImplTest {
     @Test(timeout = 10000)
     public void test_remove_multi_rate_limit_exceeded() {
 
-        when(rateLimitService.rateLimitExceeded()).thenReturn(true);
+        when(rateLimitService.rateLimitExceeded(RateLimitedService.SUBSCRIPTION_STORE)).thenReturn(true);
 
         subscriptionStore.removeSubscriptions("client", Sets.newHashSet("topic"));
 
@@ -555,8 +558,7 @@ public class SubscriptionStoreImplTest {
             builder.add("client-" + i);
         }
 
-        when(topicTree.getSubscribersForTopic(
-                anyString(), any(LocalTopicTree.ItemFilter.class), anyBoolean())).thenReturn(builder.build());
+        mockIterateSubscribersForTopic(builder.build());
 
 
         final ImmutableSet.Builder<String> resultBuilder = ImmutableSet.builder();
@@ -570,8 +572,7 @@ public class SubscriptionStoreImplTest {
     @Test(timeout = 10_000)
     public void test_iterate_topic_empty_result() throws Exception {
 
-        when(topicTree.getSubscribersForTopic(anyString(), any(LocalTopicTree.ItemFilter.class), anyBoolean()))
-                .thenReturn(ImmutableSet.of());
+        mockIterateSubscribersForTopic(ImmutableSet.of());
 
         subscriptionStore.iterateAllSubscribersForTopic("topic", (context, value) -> {
         }, MoreExecutors.directExecutor()).get();
@@ -587,8 +588,7 @@ public class SubscriptionStoreImplTest {
             builder.add("client-" + i);
         }
 
-        when(topicTree.getSubscribersForTopic(anyString(), any(LocalTopicTree.ItemFilter.class), anyBoolean()))
-                .thenReturn(builder.build());
+        mockIterateSubscribersForTopic(builder.build());
 
         final ImmutableSet.Builder<String> resultBuilder = ImmutableSet.builder();
         final AtomicInteger counter = new AtomicInteger(0);
@@ -606,8 +606,7 @@ public class SubscriptionStoreImplTest {
     @Test(timeout = 10_000, expected = ExecutionException.class)
     public void test_iterate_topic_throw_exception() throws Exception {
 
-        when(topicTree.getSubscribersForTopic(anyString(), any(LocalTopicTree.ItemFilter.class), anyBoolean()))
-                .thenReturn(ImmutableSet.of("client"));
+        mockIterateSubscribersForTopic(ImmutableSet.of("client"));
 
         final CompletableFuture<Void> future =
                 subscriptionStore.iterateAllSubscribersForTopic("topic", (context, value) -> {
@@ -638,8 +637,7 @@ public class SubscriptionStoreImplTest {
             builder.add("client-" + i);
         }
 
-        when(topicTree.getSubscribersWithFilter(anyString(), any(LocalTopicTree.ItemFilter.class)))
-                .thenReturn(builder.build());
+        mockIterateSubscribersWithFilter(builder.build());
 
 
         final ImmutableSet.Builder<String> resultBuilder = ImmutableSet.builder();
@@ -653,8 +651,7 @@ public class SubscriptionStoreImplTest {
     @Test(timeout = 10_000)
     public void test_iterate_topic_filter_empty_result() throws Exception {
 
-        when(topicTree.getSubscribersForTopic(anyString(), any(LocalTopicTree.ItemFilter.class), anyBoolean()))
-                .thenReturn(ImmutableSet.of());
+        mockIterateSubscribersForTopic(ImmutableSet.of());
 
         subscriptionStore.iterateAllSubscribersForTopic("topic", (context, value) -> {
         }, MoreExecutors.directExecutor()).get();
@@ -670,8 +667,7 @@ public class SubscriptionStoreImplTest {
             builder.add("client-" + i);
         }
 
-        when(topicTree.getSubscribersWithFilter(anyString(), any(LocalTopicTree.ItemFilter.class))).thenReturn(
-                builder.build());
+        mockIterateSubscribersWithFilter(builder.build());
 
         final ImmutableSet.Builder<String> resultBuilder = ImmutableSet.builder();
         final AtomicInteger counter = new AtomicInteger(0);
@@ -689,8 +685,7 @@ public class SubscriptionStoreImplTest {
     @Test(timeout = 10_000, expected = ExecutionException.class)
     public void test_iterate_topic_filter_throw_exception() throws Exception {
 
-        when(topicTree.getSubscribersWithFilter(anyString(), any(LocalTopicTree.ItemFilter.class)))
-                .thenReturn(ImmutableSet.of("client"));
+        mockIterateSubscribersWithFilter(ImmutableSet.of("client"));
 
         final CompletableFuture<Void> future =
                 subscriptionStore.iterateAllSubscribersWithTopicFilter("topic", (context, value) -> {
@@ -703,7 +698,7 @@ public class SubscriptionStoreImplTest {
 
     @Test(timeout = 10000, expected = RateLimitExceededException.class)
     public void test_iterate_topic_filter_rate_limit_exceeded() throws Throwable {
-        when(rateLimitService.rateLimitExceeded()).thenReturn(true);
+        when(rateLimitService.rateLimitExceeded(RateLimitedService.SUBSCRIPTION_STORE)).thenReturn(true);
 
         try {
             subscriptionStore.iterateAllSubscribersWithTopicFilter("topic/#", (context, value) -> {
@@ -715,7 +710,7 @@ public class SubscriptionStoreImplTest {
 
     @Test(timeout = 10000, expected = RateLimitExceededException.class)
     public void test_iterate_topic_rate_limit_exceeded() throws Throwable {
-        when(rateLimitService.rateLimitExceeded()).thenReturn(true);
+        when(rateLimitService.rateLimitExceeded(RateLimitedService.SUBSCRIPTION_STORE)).thenReturn(true);
 
         try {
             subscriptionStore.iterateAllSubscribersForTopic("topic", (context, value) -> {
@@ -727,7 +722,7 @@ public class SubscriptionStoreImplTest {
 
     @Test(timeout = 10000, expected = RateLimitExceededException.class)
     public void test_iterate_all_rate_limit_exceeded() throws Throwable {
-        when(rateLimitService.rateLimitExceeded()).thenReturn(true);
+        when(rateLimitService.rateLimitExceeded(RateLimitedService.SUBSCRIPTION_STORE)).thenReturn(true);
 
         try {
             subscriptionStore.iterateAllSubscriptions((context, value) -> {
@@ -909,4 +904,28 @@ public class SubscriptionStoreImplTest {
                 new TestConfigurationBootstrap().getFullConfigurationService();
         return new GlobalManagedPluginExecutorService(mock(ShutdownHooks.class));
     }
+
+    private void mockIterateSubscribersForTopic(final @NotNull ImmutableSet<String> subscribers) {
+        final ChunkedSubscriberIterator iterator = mockChunkedSubscriberIterator(subscribers);
+        when(topicTree.iterateSubscribersForTopic(anyString(), any(LocalTopicTree.ItemFilter.class), anyBoolean()))
+                .thenReturn(iterator);
+    }
+
+    private void mockIterateSubscribersWithFilter(final @NotNull ImmutableSet<String> subscribers) {
+        final ChunkedSubscriberIterator iterator = mockChunkedSubscriberIterator(subscribers);
+        when(topicTree.iterateSubscribersWithFilter(anyString(), any(LocalTopicTree.ItemFilter.class)))
+                .thenReturn(iterator);
+    }
+
+    private @NotNull ChunkedSubscriberIterator mockChunkedSubscriberIterator(final @NotNull ImmutableSet<String> subscribers) {
+        final ChunkedSubscriberIterator iterator = mock(ChunkedSubscriberIterator.class);
+        final AtomicBoolean finished = new AtomicBoolean(false);
+        when(iterator.nextChunk(anyInt())).thenAnswer(invocation -> {
+            final ImmutableList<String> chunk = finished.get() ? ImmutableList.of() : subscribers.asList();
+            finished.set(true);
+            return chunk;
+        });
+        when(iterator.isFinished()).thenAnswer(invocation -> finished.get());
+        return iterator;
+    }
 }
@@ -17,6 +17,7 @@
 package com.hivemq.logging;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.util.ChannelAttributes;
 import io.netty.channel.Channel;
 import io.netty.util.Attribute;
@@ -26,6 +27,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.slf4j.LoggerFactory;
 import util.LogbackCapturingAppender;
+import util.TestChannelAttribute;
 
 import java.net.InetSocketAddress;
 
@@ -58,14 +60,15 @@ public class EventLogTest {
     private Channel channel;
 
     @Mock
-    private Attribute attributeClientId, attributeCleanStart, attributeSessionExpiry, attributeDisconnect, attributeDisconnectEventLogged;
+    private Attribute attributeCleanStart, attributeSessionExpiry, attributeDisconnect, attributeDisconnectEventLogged;
 
     @Before
     public void setUp() throws Exception {
 
         MockitoAnnotations.initMocks(this);
-        when(channel.attr(ChannelAttributes.CLIENT_ID)).thenReturn(attributeClientId);
-        when(attributeClientId.get()).thenReturn(clientId);
+        final ClientConnection clientConnection = new ClientConnection();
+        clientConnection.setClientId(clientId);
+        when(channel.attr(ChannelAttributes.CLIENT_CONNECTION)).thenReturn(new TestChannelAttribute<>(clientConnection));
 
         when(channel.attr(ChannelAttributes.CLEAN_START)).thenReturn(attributeCleanStart);
         when(attributeCleanStart.get()).thenReturn(cleanStart);
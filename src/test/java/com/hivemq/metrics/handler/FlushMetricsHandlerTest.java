@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.metrics.handler;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.hivemq.metrics.HiveMQMetrics;
+import com.hivemq.metrics.MetricsHolder;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FlushMetricsHandlerTest {
+
+    private EmbeddedChannel embeddedChannel;
+    private Histogram histogram;
+
+    @Before
+    public void before() {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final MetricsHolder metricsHolder = new MetricsHolder(metricRegistry);
+        histogram = metricRegistry.histogram(HiveMQMetrics.MESSAGES_PER_FLUSH.name());
+
+        embeddedChannel = new EmbeddedChannel(new FlushMetricsHandler(metricsHolder.getMessagesPerFlushHistogram()),
+                new FlushConsolidationHandler(10, true));
+    }
+
+    @Test
+    public void test_messages_per_flush_with_consolidation() {
+        for (int i = 0; i < 5; i++) {
+            embeddedChannel.writeAndFlush("message" + i);
+        }
+        embeddedChannel.runPendingTasks();
+
+        assertEquals(1, histogram.getCount());
+        assertEquals(5, histogram.getSnapshot().getMax());
+        assertEquals(5, embeddedChannel.outboundMessages().size());
+    }
+
+    @Test
+    public void test_explicit_flush_after_limit() {
+        for (int i = 0; i < 10; i++) {
+            embeddedChannel.writeAndFlush("message" + i);
+        }
+
+        assertEquals(1, histogram.getCount());
+        assertEquals(10, histogram.getSnapshot().getMax());
+    }
+
+    @Test
+    public void test_flush_without_write_not_recorded() {
+        embeddedChannel.flush();
+        embeddedChannel.runPendingTasks();
+
+        assertEquals(0, histogram.getCount());
+    }
+}
@@ -16,9 +16,13 @@
 
 package com.hivemq.mqtt;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.hivemq.configuration.service.InternalConfigurations;
 import com.hivemq.mqtt.handler.publish.PublishReturnCode;
 import com.hivemq.mqtt.message.QoS;
 import com.hivemq.mqtt.message.publish.PUBLISH;
@@ -26,8 +30,11 @@ import com.hivemq.mqtt.services.InternalPublishServiceImpl;
 import com.hivemq.mqtt.services.PublishDistributor;
 import com.hivemq.mqtt.topic.SubscriberWithIdentifiers;
 import com.hivemq.mqtt.topic.SubscriptionFlags;
+import com.hivemq.mqtt.topic.TokenizedTopic;
 import com.hivemq.mqtt.topic.tree.LocalTopicTree;
+import com.hivemq.persistence.inbound.InboundPublishLog;
 import com.hivemq.persistence.retained.RetainedMessagePersistence;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -38,11 +45,13 @@ import util.InitFutureUtilsExecutorRule;
 import util.TestException;
 import util.TestMessageUtil;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 
+import static com.hivemq.mqtt.handler.publish.PublishReturnCode.DELIVERED;
 import static com.hivemq.mqtt.handler.publish.PublishReturnCode.FAILED;
 import static com.hivemq.mqtt.handler.publish.PublishReturnCode.NO_MATCHING_SUBSCRIBERS;
 import static org.junit.Assert.*;
@@ -68,6 +77,9 @@ public class InternalPublishServiceImplTest {
     @Mock
     private PublishDistributor publishDistributor;
 
+    @Mock
+    private InboundPublishLog inboundPublishLog;
+
     private ExecutorService executorService;
 
     private InternalPublishServiceImpl publishService;
@@ -85,14 +97,20 @@ public class InternalPublishServiceImplTest {
         publishService = new InternalPublishServiceImpl(
                 retainedMessagePersistence,
                 topicTree,
-                publishDistributor);
+                publishDistributor,
+                () -> inboundPublishLog);
+    }
+
+    @After
+    public void after() {
+        InternalConfigurations.PIPELINED_ACKNOWLEDGE_ENABLED.set(false);
     }
 
     @Test(timeout = 20000)
     public void test_retained_message_remove() throws Exception {
 
-        when(topicTree.getSubscribers(anyString())).thenReturn(ImmutableSet.of());
-        publishService = new InternalPublishServiceImpl(retainedMessagePersistence, topicTree, publishDistributor);
+        when(topicTree.getSubscribers(any(TokenizedTopic.class))).thenReturn(ImmutableSet.of());
+        publishService = new InternalPublishServiceImpl(retainedMessagePersistence, topicTree, publishDistributor, () -> inboundPublishLog);
 
         final PUBLISH publish = TestMessageUtil.createMqtt3Publish("hivemqId", "subonly", QoS.AT_LEAST_ONCE, new byte[0], true);
 
@@ -107,8 +125,8 @@ public class InternalPublishServiceImplTest {
     @Test(timeout = 20000)
     public void test_retained_message_remove_failed() throws Exception {
 
-        when(topicTree.getSubscribers(anyString())).thenReturn(ImmutableSet.of());
-        publishService = new InternalPublishServiceImpl(retainedMessagePersistence, topicTree, publishDistributor);
+        when(topicTree.getSubscribers(any(TokenizedTopic.class))).thenReturn(ImmutableSet.of());
+        publishService = new InternalPublishServiceImpl(retainedMessagePersistence, topicTree, publishDistributor, () -> inboundPublishLog);
 
         final PUBLISH publish = TestMessageUtil.createMqtt3Publish("hivemqId", "subonly", QoS.AT_LEAST_ONCE, new byte[0], true);
 
@@ -122,7 +140,7 @@ public class InternalPublishServiceImplTest {
     @Test(timeout = 20000)
     public void test_no_subs() throws ExecutionException, InterruptedException {
 
-        when(topicTree.getSubscribers(anyString())).thenReturn(ImmutableSet.of());
+        when(topicTree.getSubscribers(any(TokenizedTopic.class))).thenReturn(ImmutableSet.of());
 
         final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic");
 
@@ -140,7 +158,7 @@ public class InternalPublishServiceImplTest {
         final SubscriberWithIdentifiers sub1 = new SubscriberWithIdentifiers("sub1", 1, noLocalFlag, null);
         final SubscriberWithIdentifiers sub2 = new SubscriberWithIdentifiers("sub2", 1, (byte) 0, null);
 
-        when(topicTree.getSubscribers("topic")).thenReturn(ImmutableSet.of(sub1, sub2));
+        when(topicTree.getSubscribers(TokenizedTopic.of("topic"))).thenReturn(ImmutableSet.of(sub1, sub2));
 
         final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic");
 
@@ -162,7 +180,7 @@ public class InternalPublishServiceImplTest {
         final SubscriberWithIdentifiers sub1 = new SubscriberWithIdentifiers("sub1", 1, (byte) 0, null);
         final SubscriberWithIdentifiers sub2 = new SubscriberWithIdentifiers("sub2", 1, (byte) 0, null);
 
-        when(topicTree.getSubscribers("topic")).thenReturn(ImmutableSet.of(sub1, sub2));
+        when(topicTree.getSubscribers(TokenizedTopic.of("topic"))).thenReturn(ImmutableSet.of(sub1, sub2));
 
         final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic");
 
@@ -184,7 +202,7 @@ public class InternalPublishServiceImplTest {
         final SubscriberWithIdentifiers sub1 = new SubscriberWithIdentifiers("sub1", 1, (byte) 0, null);
         final SubscriberWithIdentifiers sub2 = new SubscriberWithIdentifiers("sub2", 1, (byte) 0, null);
 
-        when(topicTree.getSubscribers("topic")).thenReturn(ImmutableSet.of(sub1, sub2));
+        when(topicTree.getSubscribers(TokenizedTopic.of("topic"))).thenReturn(ImmutableSet.of(sub1, sub2));
 
         final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic");
         publish.setDuplicateDelivery(true);
@@ -205,7 +223,7 @@ public class InternalPublishServiceImplTest {
         final SubscriberWithIdentifiers sub1 = new SubscriberWithIdentifiers("sub1", 1, (byte) 0, null);
         final SubscriberWithIdentifiers sub2 = new SubscriberWithIdentifiers("sub2", 1, (byte) 0, null);
 
-        when(topicTree.getSubscribers("topic")).thenReturn(ImmutableSet.of(sub1, sub2));
+        when(topicTree.getSubscribers(TokenizedTopic.of("topic"))).thenReturn(ImmutableSet.of(sub1, sub2));
 
         final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic");
 
@@ -222,7 +240,7 @@ public class InternalPublishServiceImplTest {
         final SubscriberWithIdentifiers sub1 = new SubscriberWithIdentifiers("sub1", 1, (byte) 2, "group1", null, "topic");
         final SubscriberWithIdentifiers sub2 = new SubscriberWithIdentifiers("sub2", 1, (byte) 2, "group2", null, "topic");
 
-        when(topicTree.getSubscribers("topic")).thenReturn(ImmutableSet.of(sub1, sub2));
+        when(topicTree.getSubscribers(TokenizedTopic.of("topic"))).thenReturn(ImmutableSet.of(sub1, sub2));
 
         final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic");
 
@@ -245,7 +263,7 @@ public class InternalPublishServiceImplTest {
         final SubscriberWithIdentifiers sub1 = new SubscriberWithIdentifiers("sub1", 1, (byte) 2, "group1", null, "topic");
         final SubscriberWithIdentifiers sub2 = new SubscriberWithIdentifiers("sub2", 1, (byte) 2, "group1", null, "#");
 
-        when(topicTree.getSubscribers("topic")).thenReturn(ImmutableSet.of(sub1, sub2));
+        when(topicTree.getSubscribers(TokenizedTopic.of("topic"))).thenReturn(ImmutableSet.of(sub1, sub2));
 
         final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic");
 
@@ -268,7 +286,7 @@ public class InternalPublishServiceImplTest {
         final SubscriberWithIdentifiers sub1 = new SubscriberWithIdentifiers("sub1", 1, (byte) 2, "group1", null, "topic");
         final SubscriberWithIdentifiers sub2 = new SubscriberWithIdentifiers("sub2", 1, (byte) 0, null);
 
-        when(topicTree.getSubscribers("topic")).thenReturn(ImmutableSet.of(sub1, sub2));
+        when(topicTree.getSubscribers(TokenizedTopic.of("topic"))).thenReturn(ImmutableSet.of(sub1, sub2));
 
         final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic");
 
@@ -291,5 +309,193 @@ public class InternalPublishServiceImplTest {
         assertTrue(sharedSet.contains("group1/topic"));
     }
 
+    @Test(timeout = 20000)
+    public void test_batch_looks_up_subscribers_once_per_topic() throws Exception {
+
+        final SubscriberWithIdentifiers sub1 = new SubscriberWithIdentifiers("sub1", 1, (byte) 0, null);
+        final SubscriberWithIdentifiers sub2 = new SubscriberWithIdentifiers("sub2", 1, (byte) 2, "group1", null, "topic1");
+
+        when(topicTree.getSubscribers(TokenizedTopic.of("topic1"))).thenReturn(ImmutableSet.of(sub1, sub2));
+        when(topicTree.getSubscribers(TokenizedTopic.of("topic2"))).thenReturn(ImmutableSet.of());
+        when(publishDistributor.distributeBatch(anyList(), anyList(), anyList(), eq(executorService))).thenReturn(Futures.immediateFuture(null));
+
+        final PUBLISH publish1 = TestMessageUtil.createMqtt5Publish("topic1");
+        final PUBLISH publish2 = TestMessageUtil.createMqtt5Publish("topic2");
+        final PUBLISH publish3 = TestMessageUtil.createMqtt5Publish("topic1");
+        publish3.setDuplicateDelivery(true);
+
+        publishService.publish(ImmutableList.of(publish1, publish2, publish3), executorService, "sender").get();
+
+        verify(topicTree, times(1)).getSubscribers(TokenizedTopic.of("topic1"));
+        verify(topicTree, times(1)).getSubscribers(TokenizedTopic.of("topic2"));
+
+        final ArgumentCaptor<List> nonSharedCaptor = ArgumentCaptor.forClass(List.class);
+        final ArgumentCaptor<List> sharedCaptor = ArgumentCaptor.forClass(List.class);
+        verify(publishDistributor).distributeBatch(anyList(), nonSharedCaptor.capture(), sharedCaptor.capture(), eq(executorService));
+
+        final List<Map<String, SubscriberWithIdentifiers>> nonShared = nonSharedCaptor.getValue();
+        final List<Set<String>> shared = sharedCaptor.getValue();
+        assertEquals(3, nonShared.size());
+        assertEquals(ImmutableSet.of("sub1"), nonShared.get(0).keySet());
+        assertTrue(nonShared.get(1).isEmpty());
+        assertSame(nonShared.get(0), nonShared.get(2));
+        assertEquals(ImmutableSet.of("group1/topic1"), shared.get(0));
+        assertTrue(shared.get(1).isEmpty());
+        assertFalse(publish3.isDuplicateDelivery());
+    }
+
+    @Test(timeout = 20000)
+    public void test_pipelined_acknowledge_before_distribution() throws Exception {
+
+        InternalConfigurations.PIPELINED_ACKNOWLEDGE_ENABLED.set(true);
+        publishService = new InternalPublishServiceImpl(retainedMessagePersistence, topicTree, publishDistributor, () -> inboundPublishLog);
+
+        final SubscriberWithIdentifiers sub1 = new SubscriberWithIdentifiers("sub1", 1, (byte) 0, null);
+        when(topicTree.getSubscribers(TokenizedTopic.of("topic"))).thenReturn(ImmutableSet.of(sub1));
+        final SettableFuture<Void> distributeFuture = SettableFuture.create();
+        when(publishDistributor.distributeToNonSharedSubscribers(anyMap(), any(PUBLISH.class), eq(executorService))).thenReturn(distributeFuture);
+
+        final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic");
+        when(inboundPublishLog.append(publish, "sender")).thenReturn(Futures.immediateFuture(5L));
+
+        assertEquals(DELIVERED, publishService.publish(publish, executorService, "sender").get());
+        verify(inboundPublishLog, never()).complete(anyLong());
+
+        distributeFuture.set(null);
+        verify(inboundPublishLog).complete(5L);
+    }
+
+    @Test(timeout = 20000)
+    public void test_pipelined_distribution_after_append() throws Exception {
+
+        InternalConfigurations.PIPELINED_ACKNOWLEDGE_ENABLED.set(true);
+        publishService = new InternalPublishServiceImpl(retainedMessagePersistence, topicTree, publishDistributor, () -> inboundPublishLog);
+
+        final SubscriberWithIdentifiers sub1 = new SubscriberWithIdentifiers("sub1", 1, (byte) 0, null);
+        when(topicTree.getSubscribers(TokenizedTopic.of("topic"))).thenReturn(ImmutableSet.of(sub1));
+
+        final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic");
+        final SettableFuture<Long> appendFuture = SettableFuture.create();
+        when(inboundPublishLog.append(publish, "sender")).thenReturn(appendFuture);
+
+        final ListenableFuture<PublishReturnCode> returnCodeFuture = publishService.publish(publish, executorService, "sender");
+        verify(publishDistributor, never()).distributeToNonSharedSubscribers(anyMap(), any(PUBLISH.class), any(ExecutorService.class));
+        assertFalse(returnCodeFuture.isDone());
+
+        appendFuture.set(5L);
+
+        assertEquals(DELIVERED, returnCodeFuture.get());
+        verify(publishDistributor).distributeToNonSharedSubscribers(anyMap(), eq(publish), eq(executorService));
+        verify(inboundPublishLog).complete(5L);
+    }
+
+    @Test(timeout = 20000)
+    public void test_pipelined_distribution_failed_retried() throws Exception {
+
+        InternalConfigurations.PIPELINED_ACKNOWLEDGE_ENABLED.set(true);
+        publishService = new InternalPublishServiceImpl(retainedMessagePersistence, topicTree, publishDistributor, () -> inboundPublishLog);
+
+        final SubscriberWithIdentifiers sub1 = new SubscriberWithIdentifiers("sub1", 1, (byte) 0, null);
+        when(topicTree.getSubscribers(TokenizedTopic.of("topic"))).thenReturn(ImmutableSet.of(sub1));
+        when(publishDistributor.distributeToNonSharedSubscribers(anyMap(), any(PUBLISH.class), eq(executorService)))
+                .thenReturn(Futures.immediateFailedFuture(TestException.INSTANCE))
+                .thenReturn(Futures.immediateFuture(null));
+
+        final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic");
+        when(inboundPublishLog.append(publish, "sender")).thenReturn(Futures.immediateFuture(5L));
+
+        assertEquals(DELIVERED, publishService.publish(publish, executorService, "sender").get());
+        verify(publishDistributor, times(2)).distributeToNonSharedSubscribers(anyMap(), any(PUBLISH.class), eq(executorService));
+        verify(inboundPublishLog).complete(5L);
+    }
+
+    @Test(timeout = 20000)
+    public void test_pipelined_distribution_failed_dropped_after_max_attempts() throws Exception {
+
+        InternalConfigurations.PIPELINED_ACKNOWLEDGE_ENABLED.set(true);
+        publishService = new InternalPublishServiceImpl(retainedMessagePersistence, topicTree, publishDistributor, () -> inboundPublishLog);
+
+        final SubscriberWithIdentifiers sub1 = new SubscriberWithIdentifiers("sub1", 1, (byte) 0, null);
+        when(topicTree.getSubscribers(TokenizedTopic.of("topic"))).thenReturn(ImmutableSet.of(sub1));
+        when(publishDistributor.distributeToNonSharedSubscribers(anyMap(), any(PUBLISH.class), eq(executorService)))
+                .thenReturn(Futures.immediateFailedFuture(TestException.INSTANCE));
+
+        final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic");
+        when(inboundPublishLog.append(publish, "sender")).thenReturn(Futures.immediateFuture(5L));
+
+        assertEquals(DELIVERED, publishService.publish(publish, executorService, "sender").get());
+        verify(publishDistributor, times(InternalConfigurations.INBOUND_PUBLISH_LOG_MAX_DELIVERY_ATTEMPTS))
+                .distributeToNonSharedSubscribers(anyMap(), any(PUBLISH.class), eq(executorService));
+        // the entry does not keep its segment of the log alive
+        verify(inboundPublishLog).complete(5L);
+    }
+
+    @Test(timeout = 20000)
+    public void test_pipelined_append_failed() throws Exception {
+
+        InternalConfigurations.PIPELINED_ACKNOWLEDGE_ENABLED.set(true);
+        publishService = new InternalPublishServiceImpl(retainedMessagePersistence, topicTree, publishDistributor, () -> inboundPublishLog);
+
+        final SubscriberWithIdentifiers sub1 = new SubscriberWithIdentifiers("sub1", 1, (byte) 0, null);
+        when(topicTree.getSubscribers(TokenizedTopic.of("topic"))).thenReturn(ImmutableSet.of(sub1));
+
+        final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic");
+        when(inboundPublishLog.append(publish, "sender")).thenReturn(Futures.immediateFailedFuture(TestException.INSTANCE));
+
+        assertEquals(FAILED, publishService.publish(publish, executorService, "sender").get());
+        // the publisher sends the PUBLISH again, so it must not be delivered to any subscriber
+        verify(publishDistributor, never()).distributeToNonSharedSubscribers(anyMap(), any(PUBLISH.class), any(ExecutorService.class));
+        verify(publishDistributor, never()).distributeToSharedSubscribers(anySet(), any(PUBLISH.class), any(ExecutorService.class));
+        verify(inboundPublishLog, never()).complete(anyLong());
+    }
 
-}
\ No newline at end of file
+    @Test(timeout = 20000)
+    public void test_pipelined_qos_0_not_appended() throws Exception {
+
+        InternalConfigurations.PIPELINED_ACKNOWLEDGE_ENABLED.set(true);
+        publishService = new InternalPublishServiceImpl(retainedMessagePersistence, topicTree, publishDistributor, () -> inboundPublishLog);
+
+        final SubscriberWithIdentifiers sub1 = new SubscriberWithIdentifiers("sub1", 1, (byte) 0, null);
+        when(topicTree.getSubscribers(TokenizedTopic.of("topic"))).thenReturn(ImmutableSet.of(sub1));
+
+        final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic", QoS.AT_MOST_ONCE);
+
+        assertEquals(DELIVERED, publishService.publish(publish, executorService, "sender").get());
+        verify(inboundPublishLog, never()).append(any(PUBLISH.class), anyString());
+    }
+
+    @Test(timeout = 20000)
+    public void test_replay_inbound_publish_log() throws Exception {
+
+        InternalConfigurations.PIPELINED_ACKNOWLEDGE_ENABLED.set(true);
+        publishService = new InternalPublishServiceImpl(retainedMessagePersistence, topicTree, publishDistributor, () -> inboundPublishLog);
+
+        final SubscriberWithIdentifiers sub1 = new SubscriberWithIdentifiers("sub1", 1, (byte) 0, null);
+        when(topicTree.getSubscribers(TokenizedTopic.of("topic1"))).thenReturn(ImmutableSet.of(sub1));
+        when(topicTree.getSubscribers(TokenizedTopic.of("topic2"))).thenReturn(ImmutableSet.of());
+        when(publishDistributor.distributeToNonSharedSubscribers(anyMap(), any(PUBLISH.class), any(ExecutorService.class)))
+                .thenReturn(Futures.immediateFuture(null));
+
+        final InboundPublishLog.Entry entry1 = mock(InboundPublishLog.Entry.class);
+        when(entry1.getSequence()).thenReturn(1L);
+        when(entry1.getPublish()).thenReturn(TestMessageUtil.createMqtt5Publish("topic1"));
+        final InboundPublishLog.Entry entry2 = mock(InboundPublishLog.Entry.class);
+        when(entry2.getSequence()).thenReturn(2L);
+        when(entry2.getPublish()).thenReturn(TestMessageUtil.createMqtt5Publish("topic2"));
+        when(inboundPublishLog.recover()).thenReturn(ImmutableList.of(entry1, entry2));
+
+        publishService.replayInboundPublishLog();
+
+        verify(publishDistributor, times(1)).distributeToNonSharedSubscribers(anyMap(), any(PUBLISH.class), any(ExecutorService.class));
+        verify(inboundPublishLog).complete(1L);
+        verify(inboundPublishLog).complete(2L);
+    }
+
+    @Test(timeout = 20000)
+    public void test_replay_inbound_publish_log_disabled() throws Exception {
+
+        publishService.replayInboundPublishLog();
+
+        verify(inboundPublishLog, never()).recover();
+    }
+}
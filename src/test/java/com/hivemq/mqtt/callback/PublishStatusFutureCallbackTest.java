@@ -17,6 +17,7 @@
 package com.hivemq.mqtt.callback;
 
 import com.google.common.util.concurrent.Futures;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.handler.publish.PublishStatus;
 import com.hivemq.mqtt.message.QoS;
 import com.hivemq.mqtt.message.pool.MessageIDPool;
@@ -111,7 +112,7 @@ public class PublishStatusFutureCallbackTest {
     @Test
     public void test_on_success_qos_0_no_new_messages_available() {
 
-        channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES).set(new AtomicInteger(1000));
+        ClientConnection.of(channel).setInFlightMessages(new AtomicInteger(1000));
         publish = TestMessageUtil.getDefaultPublishBuilder(payloadPersistence).withQoS(QoS.AT_MOST_ONCE).build();
         publishStatusFutureCallback = new PublishStatusFutureCallback(payloadPersistence, publishPollService, sharedSubscription, queueId, publish, messageIDPool, channel, client);
         publishStatusFutureCallback.onSuccess(PublishStatus.DELIVERED);
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.mqtt.handler;
+
+import com.hivemq.mqtt.message.PINGREQ;
+import com.hivemq.mqtt.message.disconnect.DISCONNECT;
+import com.hivemq.mqtt.message.puback.PUBACK;
+import com.hivemq.mqtt.message.publish.PUBLISH;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Before;
+import org.junit.Test;
+import util.TestMessageUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hivemq.bootstrap.netty.ChannelHandlerNames.*;
+import static org.junit.Assert.*;
+
+public class MqttMessageDispatcherTest {
+
+    private EmbeddedChannel embeddedChannel;
+    private RecordingHandler idReturnHandler;
+    private RecordingHandler disconnectHandler;
+    private RecordingHandler qosReceiverHandler;
+
+    @Before
+    public void before() {
+        idReturnHandler = new RecordingHandler();
+        disconnectHandler = new RecordingHandler();
+        qosReceiverHandler = new RecordingHandler();
+
+        embeddedChannel = new EmbeddedChannel();
+        embeddedChannel.pipeline().addLast(MQTT_MESSAGE_ID_RETURN_HANDLER, idReturnHandler);
+        embeddedChannel.pipeline().addLast(MQTT_DISCONNECT_HANDLER, disconnectHandler);
+        embeddedChannel.pipeline().addLast(MQTT_QOS_RECEIVER_HANDLER, qosReceiverHandler);
+        embeddedChannel.pipeline().addFirst(MQTT_MESSAGE_DISPATCHER, new MqttMessageDispatcher());
+    }
+
+    @Test
+    public void test_publish_skips_handlers_in_between() {
+        final PUBLISH publish = TestMessageUtil.createMqtt3Publish();
+        embeddedChannel.writeInbound(publish);
+
+        assertTrue(idReturnHandler.messages.isEmpty());
+        assertTrue(disconnectHandler.messages.isEmpty());
+        assertEquals(1, qosReceiverHandler.messages.size());
+        assertSame(publish, embeddedChannel.readInbound());
+    }
+
+    @Test
+    public void test_puback_dispatched_to_first_interested_handler() {
+        embeddedChannel.writeInbound(new PUBACK(1));
+
+        assertEquals(1, idReturnHandler.messages.size());
+        assertEquals(1, disconnectHandler.messages.size());
+        assertEquals(1, qosReceiverHandler.messages.size());
+    }
+
+    @Test
+    public void test_disconnect_dispatched() {
+        embeddedChannel.writeInbound(new DISCONNECT());
+
+        assertTrue(idReturnHandler.messages.isEmpty());
+        assertEquals(1, disconnectHandler.messages.size());
+    }
+
+    @Test
+    public void test_missing_target_passes_message_on() {
+        embeddedChannel.writeInbound(new PINGREQ());
+
+        assertEquals(1, idReturnHandler.messages.size());
+        assertEquals(1, disconnectHandler.messages.size());
+        assertEquals(1, qosReceiverHandler.messages.size());
+    }
+
+    @Test
+    public void test_removed_target_passes_message_on() {
+        embeddedChannel.pipeline().remove(MQTT_QOS_RECEIVER_HANDLER);
+
+        embeddedChannel.writeInbound(TestMessageUtil.createMqtt3Publish());
+
+        assertEquals(1, idReturnHandler.messages.size());
+        assertEquals(1, disconnectHandler.messages.size());
+        assertTrue(qosReceiverHandler.messages.isEmpty());
+    }
+
+    @Test
+    public void test_target_handler_invoked_with_own_context() {
+        embeddedChannel.writeInbound(TestMessageUtil.createMqtt3Publish());
+
+        assertSame(embeddedChannel.pipeline().context(MQTT_QOS_RECEIVER_HANDLER), qosReceiverHandler.context);
+    }
+
+    @Test
+    public void test_exception_of_target_handler_not_passed_to_handlers_before() {
+        qosReceiverHandler.exception = new RuntimeException("test");
+
+        embeddedChannel.writeInbound(TestMessageUtil.createMqtt3Publish());
+
+        assertTrue(idReturnHandler.exceptions.isEmpty());
+        assertTrue(disconnectHandler.exceptions.isEmpty());
+        assertEquals(1, qosReceiverHandler.exceptions.size());
+    }
+
+    @Test
+    public void test_non_mqtt_message_passed_on() {
+        embeddedChannel.writeInbound("test");
+
+        assertEquals(1, idReturnHandler.messages.size());
+        assertEquals("test", embeddedChannel.readInbound());
+    }
+
+    private static class RecordingHandler extends ChannelInboundHandlerAdapter {
+
+        private final List<Object> messages = new ArrayList<>();
+        private final List<Throwable> exceptions = new ArrayList<>();
+        private ChannelHandlerContext context;
+        private RuntimeException exception;
+
+        @Override
+        public void channelRead(final ChannelHandlerContext ctx, final Object msg) throws Exception {
+            messages.add(msg);
+            context = ctx;
+            if (exception != null) {
+                throw exception;
+            }
+            super.channelRead(ctx, msg);
+        }
+
+        @Override
+        public void exceptionCaught(final ChannelHandlerContext ctx, final Throwable cause) {
+            exceptions.add(cause);
+        }
+    }
+}
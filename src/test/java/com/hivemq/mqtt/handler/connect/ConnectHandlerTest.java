@@ -21,6 +21,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.SettableFuture;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.bootstrap.netty.ChannelDependencies;
 import com.hivemq.bootstrap.netty.ChannelHandlerNames;
 import com.hivemq.configuration.service.FullConfigurationService;
@@ -157,6 +158,7 @@ public class ConnectHandlerTest {
 
         when(channelDependencies.getAuthInProgressMessageHandler()).thenReturn(
                 new AuthInProgressMessageHandler(mqttConnacker));
+        when(channelDependencies.getKeepAliveManager()).thenReturn(new KeepAliveManager());
 
         buildPipeline();
     }
@@ -358,10 +360,7 @@ public class ConnectHandlerTest {
         embeddedChannel.writeInbound(connect1);
         assertEquals(true, embeddedChannel.isOpen());
 
-        final Long maximumPacketSize = embeddedChannel.attr(ChannelAttributes.MAX_PACKET_SIZE_SEND).get();
-
-        assertNotNull(maximumPacketSize);
-        assertEquals(300, maximumPacketSize.longValue());
+        assertEquals(300, ClientConnection.of(embeddedChannel).getMaxPacketSizeSend());
     }
 
     @Test
@@ -403,7 +402,7 @@ public class ConnectHandlerTest {
         embeddedChannel.writeInbound(connect1);
         assertEquals(true, embeddedChannel.isOpen());
 
-        final String[] mapping = embeddedChannel.attr(ChannelAttributes.TOPIC_ALIAS_MAPPING).get();
+        final String[] mapping = ClientConnection.of(embeddedChannel).getTopicAliasMapping();
 
         assertEquals(5, mapping.length);
     }
@@ -425,7 +424,7 @@ public class ConnectHandlerTest {
         embeddedChannel.writeInbound(connect1);
         assertEquals(true, embeddedChannel.isOpen());
 
-        final String[] mapping = embeddedChannel.attr(ChannelAttributes.TOPIC_ALIAS_MAPPING).get();
+        final String[] mapping = ClientConnection.of(embeddedChannel).getTopicAliasMapping();
         assertNull(mapping);
 
     }
@@ -772,7 +771,7 @@ public class ConnectHandlerTest {
 
     @Test
     public void test_will_retain_not_supported_mqtt3() throws InterruptedException {
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
 
         configurationService.mqttConfiguration().setRetainedMessagesEnabled(false);
 
@@ -804,7 +803,7 @@ public class ConnectHandlerTest {
 
     @Test
     public void test_will_retain_supported_mqtt3() {
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
 
         configurationService.mqttConfiguration().setRetainedMessagesEnabled(true);
 
@@ -834,7 +833,7 @@ public class ConnectHandlerTest {
 
     @Test
     public void test_will_retain_not_supported_mqtt5() throws InterruptedException {
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         configurationService.mqttConfiguration().setRetainedMessagesEnabled(false);
 
@@ -863,7 +862,7 @@ public class ConnectHandlerTest {
 
     @Test
     public void test_will_retain_supported_mqtt5() {
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         configurationService.mqttConfiguration().setRetainedMessagesEnabled(true);
 
@@ -1257,7 +1256,7 @@ public class ConnectHandlerTest {
         handler.connectSuccessfulAuthenticated(ctx, connect, clientSettings);
 
         assertTrue(embeddedChannel.attr(ChannelAttributes.AUTH_AUTHENTICATED).get());
-        assertEquals(123, embeddedChannel.attr(ChannelAttributes.CLIENT_RECEIVE_MAXIMUM).get().intValue());
+        assertEquals(123, ClientConnection.of(embeddedChannel).getClientReceiveMaximum().intValue());
         assertEquals(123, connect.getReceiveMaximum());
         assertEquals(NONE, embeddedChannel.attr(ChannelAttributes.OVERLOAD_PROTECTION_THROTTLING_LEVEL).get());
     }
@@ -1305,8 +1304,8 @@ public class ConnectHandlerTest {
                 .addFirst(ChannelHandlerNames.MQTT_MESSAGE_DECODER,
                         TestMqttDecoder.create(true));
         embeddedChannel.pipeline().addLast(ChannelHandlerNames.GLOBAL_THROTTLING_HANDLER, new DummyHandler());
-        embeddedChannel.attr(ChannelAttributes.CLIENT_ID).set("clientId");
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(embeddedChannel).setClientId("clientId");
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         createHandler();
 
@@ -18,6 +18,7 @@ package com.hivemq.mqtt.handler.connect;
 
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.SettableFuture;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.message.MessageIDPools;
 import com.hivemq.mqtt.message.ProtocolVersion;
 import com.hivemq.mqtt.message.connect.CONNECT;
@@ -109,7 +110,9 @@ public class ConnectPersistenceUpdateHandlerTest {
     public void test_start_connection_persistent() throws Exception {
         final CONNECT connect = new CONNECT.Mqtt3Builder().withClientIdentifier("client").withProtocolVersion(ProtocolVersion.MQTTv3_1_1).withCleanStart(false).build();
 
-        when(channel.attr(eq(ChannelAttributes.CLIENT_ID))).thenReturn(new TestChannelAttribute<>("client"));
+        final ClientConnection clientConnection = new ClientConnection();
+        clientConnection.setClientId("client");
+        when(channel.attr(ChannelAttributes.CLIENT_CONNECTION)).thenReturn(new TestChannelAttribute<>(clientConnection));
         when(channel.attr(eq(ChannelAttributes.CLIENT_SESSION_EXPIRY_INTERVAL))).thenReturn(new TestChannelAttribute<>(20000L));
 
         final StartConnectPersistence startConnectPersistence = new StartConnectPersistence(connect, true, SESSION_EXPIRY_MAX);
@@ -122,7 +125,9 @@ public class ConnectPersistenceUpdateHandlerTest {
     public void test_update_persistence_data_fails() throws Exception {
         final CONNECT connect = new CONNECT.Mqtt3Builder().withClientIdentifier("client").withProtocolVersion(ProtocolVersion.MQTTv3_1_1).withCleanStart(false).build();
 
-        when(channel.attr(eq(ChannelAttributes.CLIENT_ID))).thenReturn(new TestChannelAttribute<>("client"));
+        final ClientConnection clientConnection = new ClientConnection();
+        clientConnection.setClientId("client");
+        when(channel.attr(ChannelAttributes.CLIENT_CONNECTION)).thenReturn(new TestChannelAttribute<>(clientConnection));
         when(channel.attr(eq(ChannelAttributes.CLEAN_START))).thenReturn(new TestChannelAttribute<>(true));
         when(clientSessionPersistence.clientConnected(anyString(), anyBoolean(), anyInt(), any(MqttWillPublish.class))).thenReturn(Futures.immediateFailedFuture(new RuntimeException("test")));
 
@@ -144,7 +149,9 @@ public class ConnectPersistenceUpdateHandlerTest {
         when(channel.attr(ChannelAttributes.DISCONNECT_FUTURE)).thenReturn(new TestChannelAttribute<SettableFuture<Void>>(null));
 
         final CONNECT connect = new CONNECT.Mqtt3Builder().withClientIdentifier("client").withProtocolVersion(ProtocolVersion.MQTTv3_1_1).withCleanStart(true).build();
-        when(channel.attr(eq(ChannelAttributes.CLIENT_ID))).thenReturn(new TestChannelAttribute<>("client"));
+        final ClientConnection clientConnection = new ClientConnection();
+        clientConnection.setClientId("client");
+        when(channel.attr(ChannelAttributes.CLIENT_CONNECTION)).thenReturn(new TestChannelAttribute<>(clientConnection));
         when(channel.attr(eq(ChannelAttributes.CLIENT_SESSION_EXPIRY_INTERVAL))).thenReturn(new TestChannelAttribute<>(0L));
 
         final StartConnectPersistence startConnectPersistence = new StartConnectPersistence(connect, true, SESSION_EXPIRY_MAX);
@@ -193,7 +200,9 @@ public class ConnectPersistenceUpdateHandlerTest {
     public void test_DisconnectFutureListener_future_channel_not_authenticated() throws Exception {
         final SettableFuture<Void> disconnectFuture = SettableFuture.create();
         when(clientSessionPersistence.clientDisconnected(anyString(), anyBoolean(), anyLong())).thenReturn(Futures.immediateFuture(null));
-        when(channel.attr(eq(ChannelAttributes.CLIENT_ID))).thenReturn(new TestChannelAttribute<>("client"));
+        final ClientConnection clientConnection = new ClientConnection();
+        clientConnection.setClientId("client");
+        when(channel.attr(ChannelAttributes.CLIENT_CONNECTION)).thenReturn(new TestChannelAttribute<>(clientConnection));
         when(channel.attr(eq(ChannelAttributes.CLEAN_START))).thenReturn(new TestChannelAttribute<>(false));
         when(channel.attr(ChannelAttributes.AUTHENTICATED_OR_AUTHENTICATION_BYPASSED)).thenReturn(new TestChannelAttribute<>(false));
         when(channel.attr(ChannelAttributes.DISCONNECT_FUTURE)).thenReturn(new TestChannelAttribute<>(disconnectFuture));
@@ -208,7 +217,8 @@ public class ConnectPersistenceUpdateHandlerTest {
     public void test_DisconnectFutureListener_future_client_id_null() throws Exception {
         final SettableFuture<Void> disconnectFuture = SettableFuture.create();
         when(clientSessionPersistence.clientDisconnected(anyString(), anyBoolean(), anyLong())).thenReturn(Futures.immediateFuture(null));
-        when(channel.attr(eq(ChannelAttributes.CLIENT_ID))).thenReturn(new TestChannelAttribute<String>(null));
+        final ClientConnection clientConnection = new ClientConnection();
+        when(channel.attr(ChannelAttributes.CLIENT_CONNECTION)).thenReturn(new TestChannelAttribute<>(clientConnection));
         when(channel.attr(eq(ChannelAttributes.CLEAN_START))).thenReturn(new TestChannelAttribute<>(false));
         when(channel.attr(ChannelAttributes.DISCONNECT_FUTURE)).thenReturn(new TestChannelAttribute<>(disconnectFuture));
         when(channel.attr(ChannelAttributes.AUTHENTICATED_OR_AUTHENTICATION_BYPASSED)).thenReturn(new TestChannelAttribute<>(false));
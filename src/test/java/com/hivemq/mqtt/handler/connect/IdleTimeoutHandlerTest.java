@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.mqtt.handler.connect;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.timeout.IdleStateEvent;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class IdleTimeoutHandlerTest {
+
+    private KeepAliveManager keepAliveManager;
+    private EventRecorder eventRecorder;
+
+    @Before
+    public void before() {
+        keepAliveManager = new KeepAliveManager(10, 8);
+        eventRecorder = new EventRecorder();
+    }
+
+    @Test(timeout = 5000)
+    public void test_idle_event_fired_after_timeout() throws Exception {
+        final EmbeddedChannel channel = new EmbeddedChannel(
+                new IdleTimeoutHandler(keepAliveManager, TimeUnit.MILLISECONDS.toNanos(50)), eventRecorder);
+
+        while (eventRecorder.events.isEmpty()) {
+            Thread.sleep(10);
+            channel.runScheduledPendingTasks();
+        }
+
+        assertEquals(1, eventRecorder.events.size());
+        assertSame(IdleStateEvent.FIRST_READER_IDLE_STATE_EVENT, eventRecorder.events.get(0));
+    }
+
+    @Test
+    public void test_reads_postpone_timeout() throws Exception {
+        final EmbeddedChannel channel = new EmbeddedChannel(
+                new IdleTimeoutHandler(keepAliveManager, TimeUnit.MILLISECONDS.toNanos(200)), eventRecorder);
+
+        for (int i = 0; i < 10; i++) {
+            Thread.sleep(50);
+            channel.writeInbound("message");
+            channel.runScheduledPendingTasks();
+        }
+
+        assertTrue(eventRecorder.events.isEmpty());
+    }
+
+    @Test
+    public void test_no_event_after_handler_removed() throws Exception {
+        final IdleTimeoutHandler handler = new IdleTimeoutHandler(keepAliveManager, TimeUnit.MILLISECONDS.toNanos(20));
+        final EmbeddedChannel channel = new EmbeddedChannel(handler, eventRecorder);
+
+        channel.pipeline().remove(handler);
+        Thread.sleep(100);
+        channel.runScheduledPendingTasks();
+
+        assertTrue(eventRecorder.events.isEmpty());
+    }
+
+    @Test
+    public void test_timeout_wheel_wraps_around() throws Exception {
+        // 8 buckets with 10ms ticks, so the deadline is more than one round of the wheel away
+        final EmbeddedChannel channel = new EmbeddedChannel(
+                new IdleTimeoutHandler(keepAliveManager, TimeUnit.MILLISECONDS.toNanos(150)), eventRecorder);
+
+        Thread.sleep(80);
+        channel.runScheduledPendingTasks();
+        assertTrue(eventRecorder.events.isEmpty());
+
+        Thread.sleep(150);
+        channel.runScheduledPendingTasks();
+        assertEquals(1, eventRecorder.events.size());
+    }
+
+    private static class EventRecorder extends ChannelInboundHandlerAdapter {
+
+        private final List<Object> events = new ArrayList<>();
+
+        @Override
+        public void userEventTriggered(final ChannelHandlerContext ctx, final Object evt) throws Exception {
+            events.add(evt);
+        }
+    }
+}
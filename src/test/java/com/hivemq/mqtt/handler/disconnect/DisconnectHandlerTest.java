@@ -17,6 +17,7 @@
 package com.hivemq.mqtt.handler.disconnect;
 
 import com.codahale.metrics.MetricRegistry;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.limitation.TopicAliasLimiter;
 import com.hivemq.logging.EventLog;
 import com.hivemq.metrics.MetricsHolder;
@@ -95,7 +96,7 @@ public class DisconnectHandlerTest {
     public void test_graceful_disconnect_remove_mapping() throws Exception {
 
         final String[] topics = new String[]{"topic1", "topic2", "topic3"};
-        embeddedChannel.attr(ChannelAttributes.TOPIC_ALIAS_MAPPING).set(topics);
+        ClientConnection.of(embeddedChannel).setTopicAliasMapping(topics);
 
         embeddedChannel.writeInbound(new DISCONNECT());
 
@@ -106,7 +107,7 @@ public class DisconnectHandlerTest {
     public void test_ungraceful_disconnect_remove_mapping() throws Exception {
 
         final String[] topics = new String[]{"topic1", "topic2", "topic3"};
-        embeddedChannel.attr(ChannelAttributes.TOPIC_ALIAS_MAPPING).set(topics);
+        ClientConnection.of(embeddedChannel).setTopicAliasMapping(topics);
 
         final ChannelFuture future = embeddedChannel.close();
         future.await();
@@ -132,7 +133,7 @@ public class DisconnectHandlerTest {
 
     @Test
     public void test_disconnect_timestamp() {
-        embeddedChannel.attr(ChannelAttributes.CLIENT_ID).set("clientId");
+        ClientConnection.of(embeddedChannel).setClientId("clientId");
 
         final Long timestamp = System.currentTimeMillis();
         final ClientData clientData = ChannelUtils.tokenFromChannel(embeddedChannel, timestamp);
@@ -141,7 +142,7 @@ public class DisconnectHandlerTest {
 
     @Test
     public void test_disconnect_timestamp_not_present() {
-        embeddedChannel.attr(ChannelAttributes.CLIENT_ID).set("clientId");
+        ClientConnection.of(embeddedChannel).setClientId("clientId");
 
         final ClientData clientData = ChannelUtils.tokenFromChannel(embeddedChannel);
         assertFalse(clientData.getDisconnectTimestamp().isPresent());
@@ -152,7 +153,7 @@ public class DisconnectHandlerTest {
 
         final String disconnectReason = "disconnectReason";
         final DISCONNECT disconnect = new DISCONNECT(Mqtt5DisconnectReasonCode.NORMAL_DISCONNECTION, disconnectReason, Mqtt5UserProperties.NO_USER_PROPERTIES, null, 0);
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         embeddedChannel.writeInbound(disconnect);
 
@@ -17,6 +17,7 @@
 package com.hivemq.mqtt.handler.ordering;
 
 import com.google.common.util.concurrent.SettableFuture;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.codec.encoder.mqtt5.PublishDroppedEvent;
 import com.hivemq.configuration.service.InternalConfigurations;
 import com.hivemq.mqtt.handler.publish.PublishStatus;
@@ -29,7 +30,6 @@ import com.hivemq.mqtt.message.publish.PUBLISHFactory;
 import com.hivemq.mqtt.message.publish.PublishWithFuture;
 import com.hivemq.mqtt.message.pubrec.PUBREC;
 import com.hivemq.mqtt.message.reason.Mqtt5PubRecReasonCode;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.DefaultEventLoopGroup;
@@ -63,7 +63,7 @@ public class OrderedTopicHandlerTest {
 
         channel = new EmbeddedChannel();
 
-        channel.attr(ChannelAttributes.CLIENT_ID).getAndSet("client");
+        ClientConnection.of(channel).setClientId("client");
         eventExecutors.register(channel);
 
         orderedTopicHandler = new OrderedTopicHandler();
@@ -157,7 +157,7 @@ public class OrderedTopicHandlerTest {
     @Test(timeout = 5000)
     public void test_qos1_send_puback_queued_messages_multiple_pubacks() throws Exception {
 
-        channel.attr(ChannelAttributes.CLIENT_RECEIVE_MAXIMUM).set(3);
+        ClientConnection.of(channel).setClientReceiveMaximum(3);
 
         final PUBLISH publish = createPublish("topic", 1, QoS.AT_LEAST_ONCE);
         final PUBLISH publish2 = createPublish("topic", 2, QoS.AT_LEAST_ONCE);
@@ -342,7 +342,7 @@ public class OrderedTopicHandlerTest {
     @Test(timeout = 5000)
     public void test_max_inflight_window() throws Exception {
 
-        channel.attr(ChannelAttributes.CLIENT_RECEIVE_MAXIMUM).set(50);
+        ClientConnection.of(channel).setClientReceiveMaximum(50);
         InternalConfigurations.MAX_INFLIGHT_WINDOW_SIZE = 3;
 
 
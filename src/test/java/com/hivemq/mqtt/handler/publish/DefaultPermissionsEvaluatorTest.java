@@ -16,6 +16,8 @@
 
 package com.hivemq.mqtt.handler.publish;
 
+import com.hivemq.annotations.NotNull;
+import com.hivemq.configuration.service.InternalConfigurations;
 import com.hivemq.extension.sdk.api.auth.parameter.TopicPermission;
 import com.hivemq.extension.sdk.api.packets.auth.DefaultAuthorizationBehaviour;
 import com.hivemq.extensions.packets.general.ModifiableDefaultPermissionsImpl;
@@ -25,16 +27,22 @@ import com.hivemq.mqtt.message.connect.MqttWillPublish;
 import com.hivemq.mqtt.message.publish.PUBLISH;
 import com.hivemq.mqtt.message.publish.PUBLISHFactory;
 import com.hivemq.mqtt.message.subscribe.Topic;
+import org.junit.After;
 import org.junit.Test;
 import util.TestConfigurationBootstrap;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 /**
  * @author Christoph Schäbel
  */
 public class DefaultPermissionsEvaluatorTest {
 
+    @After
+    public void tearDown() {
+        InternalConfigurations.AUTH_COMPILED_PERMISSIONS_ENABLED.set(false);
+    }
+
     @Test
     public void test_null_deny() {
         final PUBLISH publish = new PUBLISHFactory.Mqtt5Builder()
@@ -434,5 +442,106 @@ public class DefaultPermissionsEvaluatorTest {
         assertEquals(false, DefaultPermissionsEvaluator.checkSubscription(permissions, topic3));
     }
 
+    @Test
+    public void test_compiled_permissions_match_linear_evaluation() {
+
+        final ModifiableDefaultPermissionsImpl permissions = new ModifiableDefaultPermissionsImpl();
+        permissions.add(permission("a/b/c", TopicPermission.PermissionType.DENY));
+        permissions.add(permission("a/+/c", TopicPermission.PermissionType.ALLOW));
+        permissions.add(permission("a/#", TopicPermission.PermissionType.DENY));
+        permissions.add(permission("x/y/", TopicPermission.PermissionType.ALLOW));
+        permissions.add(permission("+/+", TopicPermission.PermissionType.ALLOW));
+        permissions.add(new TopicPermissionBuilderImpl(new TestConfigurationBootstrap().getFullConfigurationService())
+                .topicFilter("r/#").retain(TopicPermission.Retain.RETAINED).qos(TopicPermission.Qos.ONE).build());
+        permissions.add(new TopicPermissionBuilderImpl(new TestConfigurationBootstrap().getFullConfigurationService())
+                .topicFilter("s/+").sharedSubscription(TopicPermission.SharedSubscription.SHARED).sharedGroup("g1").build());
+        permissions.add(permission("/", TopicPermission.PermissionType.ALLOW));
+        permissions.add(permission("+/+/+/+", TopicPermission.PermissionType.DENY));
+        permissions.add(permission("#", TopicPermission.PermissionType.ALLOW));
+
+        final String[] topics = {"a/b/c", "a/x/c", "a/b", "a", "a/", "x/y", "x/y/", "x/y/z", "b/z/c", "b/z", "r/1", "r/1/2",
+                "s/1", "/", "//", "1/2/3/4", "1/2/3", "q"};
+        final String[] topicFilters = {"a/b/c", "a/+/c", "a/#", "#", "+/+", "s/+", "r/#", "x/y/", "+/+/+/+"};
+
+        final boolean[] publishResults = new boolean[topics.length * 6];
+        final boolean[] subscriptionResults = new boolean[topicFilters.length * 3];
+        evaluate(permissions, topics, topicFilters, publishResults, subscriptionResults);
+
+        InternalConfigurations.AUTH_COMPILED_PERMISSIONS_ENABLED.set(true);
+        final ModifiableDefaultPermissionsImpl compiledPermissions = new ModifiableDefaultPermissionsImpl();
+        compiledPermissions.addAll(permissions.asList());
+        assertNotNull(compiledPermissions.getCompiledPermissions());
+
+        final boolean[] compiledPublishResults = new boolean[topics.length * 6];
+        final boolean[] compiledSubscriptionResults = new boolean[topicFilters.length * 3];
+        // twice, the second time the decisions come from the cache
+        for (int i = 0; i < 2; i++) {
+            evaluate(compiledPermissions, topics, topicFilters, compiledPublishResults, compiledSubscriptionResults);
+            assertArrayEquals(publishResults, compiledPublishResults);
+            assertArrayEquals(subscriptionResults, compiledSubscriptionResults);
+        }
+    }
+
+    @Test
+    public void test_compiled_permissions_not_used_below_threshold() {
+
+        InternalConfigurations.AUTH_COMPILED_PERMISSIONS_ENABLED.set(true);
+        final ModifiableDefaultPermissionsImpl permissions = new ModifiableDefaultPermissionsImpl();
+        permissions.add(permission("a/#", TopicPermission.PermissionType.ALLOW));
+
+        assertNull(permissions.getCompiledPermissions());
+    }
+
+    @Test
+    public void test_compiled_permissions_invalidated_on_change() {
 
-}
\ No newline at end of file
+        InternalConfigurations.AUTH_COMPILED_PERMISSIONS_ENABLED.set(true);
+        final ModifiableDefaultPermissionsImpl permissions = new ModifiableDefaultPermissionsImpl();
+        permissions.setDefaultBehaviour(DefaultAuthorizationBehaviour.DENY);
+        for (int i = 0; i < InternalConfigurations.AUTH_COMPILED_PERMISSIONS_THRESHOLD; i++) {
+            permissions.add(permission("topic/" + i, TopicPermission.PermissionType.ALLOW));
+        }
+        final PUBLISH publish = new PUBLISHFactory.Mqtt5Builder()
+                .withHivemqId("hivemqId1").withPayload(new byte[]{1, 2, 3})
+                .withTopic("test/topic").withQoS(QoS.AT_LEAST_ONCE).withRetain(false).build();
+
+        assertEquals(false, DefaultPermissionsEvaluator.checkPublish(permissions, publish));
+
+        final TopicPermission allowTest = permission("test/#", TopicPermission.PermissionType.ALLOW);
+        permissions.add(allowTest);
+        assertEquals(true, DefaultPermissionsEvaluator.checkPublish(permissions, publish));
+
+        permissions.remove(allowTest);
+        assertEquals(false, DefaultPermissionsEvaluator.checkPublish(permissions, publish));
+    }
+
+    private static @NotNull TopicPermission permission(final @NotNull String topicFilter, final @NotNull TopicPermission.PermissionType type) {
+        return new TopicPermissionBuilderImpl(new TestConfigurationBootstrap().getFullConfigurationService())
+                .topicFilter(topicFilter).type(type).build();
+    }
+
+    private static void evaluate(
+            final @NotNull ModifiableDefaultPermissionsImpl permissions, final @NotNull String[] topics,
+            final @NotNull String[] topicFilters, final @NotNull boolean[] publishResults,
+            final @NotNull boolean[] subscriptionResults) {
+
+        int i = 0;
+        for (final String topic : topics) {
+            for (final QoS qos : new QoS[]{QoS.AT_MOST_ONCE, QoS.AT_LEAST_ONCE, QoS.EXACTLY_ONCE}) {
+                for (final boolean retain : new boolean[]{false, true}) {
+                    final PUBLISH publish = new PUBLISHFactory.Mqtt5Builder()
+                            .withHivemqId("hivemqId1").withPayload(new byte[]{1, 2, 3})
+                            .withTopic(topic).withQoS(qos).withRetain(retain).build();
+                    publishResults[i++] = DefaultPermissionsEvaluator.checkPublish(permissions, publish);
+                }
+            }
+        }
+        i = 0;
+        for (final String topicFilter : topicFilters) {
+            for (final String prefix : new String[]{"", "$share/g1/", "$share/g2/"}) {
+                subscriptionResults[i++] = DefaultPermissionsEvaluator.checkSubscription(
+                        permissions, new Topic(prefix + topicFilter, QoS.AT_LEAST_ONCE));
+            }
+        }
+    }
+}
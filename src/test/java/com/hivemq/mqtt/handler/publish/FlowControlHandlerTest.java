@@ -17,6 +17,7 @@
 package com.hivemq.mqtt.handler.publish;
 
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.configuration.service.impl.MqttConfigurationServiceImpl;
 import com.hivemq.logging.EventLog;
 import com.hivemq.mqtt.handler.disconnect.Mqtt5ServerDisconnector;
@@ -78,7 +79,7 @@ public class FlowControlHandlerTest {
         builder.withTopic("topic").withQoS(QoS.AT_LEAST_ONCE).withUserProperties(Mqtt5UserProperties.NO_USER_PROPERTIES)
                 .withPayload(new byte[0]).withHivemqId("hivemqId1");
 
-        channel.attr(ChannelAttributes.CLIENT_RECEIVE_MAXIMUM).set(10);
+        ClientConnection.of(channel).setClientReceiveMaximum(10);
 
         for (int i = 0; i < 11; i++) {
             channel.writeInbound(builder.build());
@@ -99,7 +100,7 @@ public class FlowControlHandlerTest {
         builder.withTopic("topic").withQoS(QoS.AT_LEAST_ONCE).withUserProperties(Mqtt5UserProperties.NO_USER_PROPERTIES)
                 .withPayload(new byte[0]).withHivemqId("hivemqId1");
 
-        channel.attr(ChannelAttributes.CLIENT_RECEIVE_MAXIMUM).set(10);
+        ClientConnection.of(channel).setClientReceiveMaximum(10);
 
         for (int i = 0; i < 12; i++) {
             channel.writeInbound(builder.build());
@@ -116,7 +117,7 @@ public class FlowControlHandlerTest {
         builder.withTopic("topic").withQoS(QoS.AT_LEAST_ONCE).withUserProperties(Mqtt5UserProperties.NO_USER_PROPERTIES)
                 .withPayload(new byte[0]).withHivemqId("hivemqId1");
 
-        channel.attr(ChannelAttributes.CLIENT_RECEIVE_MAXIMUM).set(10);
+        ClientConnection.of(channel).setClientReceiveMaximum(10);
 
         for (int i = 0; i < 10; i++) {
             channel.writeInbound(builder.build());
@@ -145,7 +146,7 @@ public class FlowControlHandlerTest {
         builder.withTopic("topic").withQoS(QoS.AT_LEAST_ONCE).withUserProperties(Mqtt5UserProperties.NO_USER_PROPERTIES)
                 .withPayload(new byte[0]).withHivemqId("hivemqId1");
 
-        channel.attr(ChannelAttributes.CLIENT_RECEIVE_MAXIMUM).set(10);
+        ClientConnection.of(channel).setClientReceiveMaximum(10);
 
         for (int i = 0; i < 10; i++) {
             channel.writeInbound(builder.build());
@@ -171,7 +172,7 @@ public class FlowControlHandlerTest {
         builder.withTopic("topic").withQoS(QoS.EXACTLY_ONCE).withUserProperties(Mqtt5UserProperties.NO_USER_PROPERTIES)
                 .withPayload(new byte[0]).withHivemqId("hivemqId1");
 
-        channel.attr(ChannelAttributes.CLIENT_RECEIVE_MAXIMUM).set(10);
+        ClientConnection.of(channel).setClientReceiveMaximum(10);
 
         for (int i = 0; i < 10; i++) {
             channel.writeInbound(builder.build());
@@ -200,7 +201,7 @@ public class FlowControlHandlerTest {
         builder.withTopic("topic").withQoS(QoS.EXACTLY_ONCE).withUserProperties(Mqtt5UserProperties.NO_USER_PROPERTIES)
                 .withPayload(new byte[0]).withHivemqId("hivemqId1");
 
-        channel.attr(ChannelAttributes.CLIENT_RECEIVE_MAXIMUM).set(10);
+        ClientConnection.of(channel).setClientReceiveMaximum(10);
 
         for (int i = 0; i < 10; i++) {
             channel.writeInbound(builder.build());
@@ -229,7 +230,7 @@ public class FlowControlHandlerTest {
         builder.withTopic("topic").withQoS(QoS.EXACTLY_ONCE).withUserProperties(Mqtt5UserProperties.NO_USER_PROPERTIES)
                 .withPayload(new byte[0]).withHivemqId("hivemqId1");
 
-        channel.attr(ChannelAttributes.CLIENT_RECEIVE_MAXIMUM).set(10);
+        ClientConnection.of(channel).setClientReceiveMaximum(10);
 
         for (int i = 0; i < 10; i++) {
             channel.writeInbound(builder.build());
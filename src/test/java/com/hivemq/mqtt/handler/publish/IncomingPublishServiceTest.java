@@ -16,8 +16,11 @@
 
 package com.hivemq.mqtt.handler.publish;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.util.concurrent.Futures;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.codec.encoder.mqtt5.Mqtt5PayloadFormatIndicator;
+import com.hivemq.common.shutdown.ShutdownHooks;
 import com.hivemq.configuration.entity.mqtt.MqttConfigurationDefaults;
 import com.hivemq.configuration.service.MqttConfigurationService;
 import com.hivemq.configuration.service.impl.MqttConfigurationServiceImpl;
@@ -100,14 +103,15 @@ public class IncomingPublishServiceTest {
 
     private void setupHandlerAndChannel() {
 
-        incomingPublishService = new IncomingPublishService(publishService, eventLog, mqttConfigurationService, mqtt5ServerDisconnector);
+        incomingPublishService = new IncomingPublishService(publishService, eventLog, mqttConfigurationService, mqtt5ServerDisconnector,
+                new PublishProcessingExecutor(new MetricRegistry(), mock(ShutdownHooks.class)));
 
         final CheckUserEventTriggeredOnSuper triggeredUserEvents = new CheckUserEventTriggeredOnSuper();
 
         embeddedChannel = new EmbeddedChannel(triggeredUserEvents);
 
-        embeddedChannel.attr(ChannelAttributes.CLIENT_ID).set("clientid");
-        embeddedChannel.attr(ChannelAttributes.MAX_PACKET_SIZE_SEND).set(1000L);
+        ClientConnection.of(embeddedChannel).setClientId("clientid");
+        ClientConnection.of(embeddedChannel).setMaxPacketSizeSend(1000L);
     }
 
     @Test
@@ -121,8 +125,8 @@ public class IncomingPublishServiceTest {
     @Test
     public void test_publish_size_too_big() {
 
-        embeddedChannel.attr(ChannelAttributes.MAX_PACKET_SIZE_SEND).set(5L);
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1);
+        ClientConnection.of(embeddedChannel).setMaxPacketSizeSend(5L);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv3_1);
 
         final PUBLISH publish = TestMessageUtil.createMqtt3Publish("testtopic", "123456790".getBytes(), QoS.AT_MOST_ONCE);
 
@@ -135,7 +139,7 @@ public class IncomingPublishServiceTest {
     @Test
     public void test_publish_size_ok() {
 
-        embeddedChannel.attr(ChannelAttributes.MAX_PACKET_SIZE_SEND).set(5L);
+        ClientConnection.of(embeddedChannel).setMaxPacketSizeSend(5L);
 
         final PUBLISH publish = TestMessageUtil.createMqtt3Publish("testtopic", "1234".getBytes(), QoS.AT_MOST_ONCE);
 
@@ -186,7 +190,7 @@ public class IncomingPublishServiceTest {
 
     @Test
     public void test_publish_mqtt5_valid_qos1_authorized() throws InterruptedException {
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic1", QoS.AT_LEAST_ONCE);
 
@@ -213,7 +217,7 @@ public class IncomingPublishServiceTest {
 
     @Test
     public void test_publish_mqtt5_valid_qos1_authorizer_allow() throws InterruptedException {
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic1", QoS.AT_LEAST_ONCE);
 
@@ -236,7 +240,7 @@ public class IncomingPublishServiceTest {
 
     @Test
     public void test_publish_mqtt5_valid_qos1_authorizer_undecided() {
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic1", QoS.AT_LEAST_ONCE);
 
@@ -254,7 +258,7 @@ public class IncomingPublishServiceTest {
 
     @Test
     public void test_publish_mqtt5_valid_qos0_authorizer_allow() throws InterruptedException {
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic1", QoS.AT_MOST_ONCE);
 
@@ -268,7 +272,7 @@ public class IncomingPublishServiceTest {
 
     @Test
     public void test_publish_mqtt5_valid_qos1_authorizer_failed() {
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic1", QoS.AT_LEAST_ONCE);
 
@@ -287,7 +291,7 @@ public class IncomingPublishServiceTest {
 
     @Test
     public void test_publish_mqtt5_valid_qos0_authorizer_failed() {
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic1", QoS.AT_MOST_ONCE);
 
@@ -302,7 +306,7 @@ public class IncomingPublishServiceTest {
 
     @Test
     public void test_publish_mqtt5_valid_qos2_authorizer_allow() throws InterruptedException {
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic1", QoS.EXACTLY_ONCE);
 
@@ -325,7 +329,7 @@ public class IncomingPublishServiceTest {
 
     @Test
     public void test_publish_mqtt5_valid_qos2_authorizer_failed() {
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic1", QoS.EXACTLY_ONCE);
 
@@ -345,7 +349,7 @@ public class IncomingPublishServiceTest {
 
     @Test
     public void test_publish_mqtt3_valid_qos1_authorized() throws InterruptedException {
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
 
         final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic1", QoS.AT_LEAST_ONCE);
 
@@ -364,7 +368,7 @@ public class IncomingPublishServiceTest {
     @Test
     public void test_publish_mqtt5_valid_qos1_not_authorized() throws InterruptedException {
 
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic1", QoS.AT_LEAST_ONCE);
 
@@ -389,7 +393,7 @@ public class IncomingPublishServiceTest {
     @Test
     public void test_publish_mqtt3_valid_qos1_not_authorized() {
 
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
 
         final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic1", QoS.AT_LEAST_ONCE);
 
@@ -408,7 +412,7 @@ public class IncomingPublishServiceTest {
     @Test
     public void test_publish_mqtt3_valid_qos2_not_authorized() {
 
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
 
         final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic1", QoS.EXACTLY_ONCE);
 
@@ -426,7 +430,7 @@ public class IncomingPublishServiceTest {
 
     @Test
     public void test_publish_mqtt5_valid_qos0_authorized() throws InterruptedException {
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic1", QoS.AT_MOST_ONCE);
 
@@ -445,7 +449,7 @@ public class IncomingPublishServiceTest {
     @Test
     public void test_publish_mqtt5_valid_qos0_not_authorized() {
 
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic1", QoS.AT_MOST_ONCE);
 
@@ -464,7 +468,7 @@ public class IncomingPublishServiceTest {
 
     @Test
     public void test_publish_mqtt5_valid_qos2_authorized() throws InterruptedException {
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic1", QoS.EXACTLY_ONCE);
 
@@ -483,7 +487,7 @@ public class IncomingPublishServiceTest {
     @Test
     public void test_publish_mqtt5_valid_qos2_not_authorized() {
 
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final PUBLISH publish = TestMessageUtil.createMqtt5Publish("topic1", QoS.EXACTLY_ONCE);
 
@@ -643,7 +647,7 @@ public class IncomingPublishServiceTest {
     public void test_qos_exceeded_disconnect() {
         when(mqttConfigurationService.maximumQos()).thenReturn(QoS.AT_MOST_ONCE);
         setupHandlerAndChannel();
-        ctx.channel().attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(ctx.channel()).setProtocolVersion(ProtocolVersion.MQTTv5);
 
         final PUBLISH publish = TestMessageUtil.createMqtt5Publish("none", "topic", new byte[0], QoS.EXACTLY_ONCE, false,
                 MqttConfigurationDefaults.MAX_EXPIRY_INTERVAL_DEFAULT, Mqtt5PayloadFormatIndicator.UTF_8, null,
@@ -662,7 +666,7 @@ public class IncomingPublishServiceTest {
     public void test_qos_exceeded_mqtt3_disconnect() {
         when(mqttConfigurationService.maximumQos()).thenReturn(QoS.AT_MOST_ONCE);
         setupHandlerAndChannel();
-        embeddedChannel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1);
+        ClientConnection.of(embeddedChannel).setProtocolVersion(ProtocolVersion.MQTTv3_1);
 
         final PUBLISH publish = TestMessageUtil.createMqtt3Publish("none", "topic", QoS.EXACTLY_ONCE, new byte[0], false);
 
@@ -16,10 +16,10 @@
 
 package com.hivemq.mqtt.handler.publish;
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.message.ProtocolVersion;
 import com.hivemq.mqtt.message.QoS;
 import com.hivemq.mqtt.message.publish.PUBLISH;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.embedded.EmbeddedChannel;
@@ -53,8 +53,8 @@ public class PublishMessageExpiryHandlerTest {
         MockitoAnnotations.initMocks(this);
         messageExpiryHandler = new PublishMessageExpiryHandler();
         channel = new EmbeddedChannel();
-        channel.attr(ChannelAttributes.CLIENT_ID).set("ClientId");
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv5);
+        ClientConnection.of(channel).setClientId("ClientId");
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv5);
         when(ctx.channel()).thenReturn(channel);
         logCapture = LogbackCapturingAppender.Factory.weaveInto(PublishMessageExpiryHandler.log);
     }
@@ -116,7 +116,7 @@ public class PublishMessageExpiryHandlerTest {
     @Test
     public void test_message_not_expired_not_mqtt_5() throws Exception {
 
-        channel.attr(ChannelAttributes.MQTT_VERSION).set(ProtocolVersion.MQTTv3_1_1);
+        ClientConnection.of(channel).setProtocolVersion(ProtocolVersion.MQTTv3_1_1);
 
         final PUBLISH publish = TestMessageUtil.createMqtt3Publish();
         publish.setMessageExpiryInterval(1000);
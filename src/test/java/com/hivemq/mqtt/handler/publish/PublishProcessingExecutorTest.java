@@ -0,0 +1,152 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.mqtt.handler.publish;
+
+import com.codahale.metrics.MetricRegistry;
+import com.hivemq.common.shutdown.HiveMQShutdownHook;
+import com.hivemq.common.shutdown.ShutdownHooks;
+import com.hivemq.metrics.HiveMQMetrics;
+import com.hivemq.util.ChannelAttributes;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.EventLoop;
+import io.netty.util.DefaultAttributeMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class PublishProcessingExecutorTest {
+
+    @Mock
+    private Channel channel;
+    @Mock
+    private EventLoop eventLoop;
+    @Mock
+    private ChannelConfig channelConfig;
+    @Mock
+    private ShutdownHooks shutdownHooks;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        final DefaultAttributeMap attributeMap = new DefaultAttributeMap();
+        when(channel.attr(ChannelAttributes.CLIENT_CONNECTION))
+                .thenReturn(attributeMap.attr(ChannelAttributes.CLIENT_CONNECTION));
+        when(channel.eventLoop()).thenReturn(eventLoop);
+        when(channel.config()).thenReturn(channelConfig);
+        when(eventLoop.inEventLoop()).thenReturn(true);
+        doAnswer(invocation -> {
+            synchronized (eventLoop) {
+                ((Runnable) invocation.getArguments()[0]).run();
+            }
+            return null;
+        }).when(eventLoop).execute(any(Runnable.class));
+    }
+
+    @Test(timeout = 10000)
+    public void test_tasks_of_a_channel_are_executed_in_order() throws Exception {
+        final PublishProcessingExecutor executor = new PublishProcessingExecutor(metricRegistry, shutdownHooks, true, 4, 1000);
+        final List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch latch = new CountDownLatch(500);
+
+        final List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            final int task = i;
+            expected.add(task);
+            executor.execute(channel, () -> {
+                executed.add(task);
+                latch.countDown();
+            });
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(expected, executed);
+        verify(channelConfig, never()).setAutoRead(anyBoolean());
+    }
+
+    @Test(timeout = 10000)
+    public void test_reads_paused_and_resumed() throws Exception {
+        final PublishProcessingExecutor executor = new PublishProcessingExecutor(metricRegistry, shutdownHooks, true, 1, 4);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(4);
+
+        executor.execute(channel, () -> {
+            try {
+                blocked.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        });
+        for (int i = 0; i < 3; i++) {
+            executor.execute(channel, done::countDown);
+        }
+
+        verify(channelConfig).setAutoRead(false);
+        verify(channelConfig, never()).setAutoRead(true);
+        assertEquals(1, metricRegistry.counter(HiveMQMetrics.STAGED_PUBLISH_PROCESSING_READS_PAUSED_COUNT.name()).getCount());
+
+        blocked.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        verify(channelConfig, timeout(5000)).setAutoRead(true);
+    }
+
+    @Test(timeout = 10000)
+    public void test_queued_tasks_are_processed_on_shutdown() throws Exception {
+        final PublishProcessingExecutor executor = new PublishProcessingExecutor(metricRegistry, shutdownHooks, true, 1, 1000);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(2);
+
+        executor.execute(channel, () -> {
+            try {
+                blocked.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        });
+        executor.execute(channel, done::countDown);
+
+        final ArgumentCaptor<HiveMQShutdownHook> shutdownHook = ArgumentCaptor.forClass(HiveMQShutdownHook.class);
+        verify(shutdownHooks).add(shutdownHook.capture());
+
+        blocked.countDown();
+        shutdownHook.getValue().run();
+
+        assertEquals(0, done.getCount());
+        assertTrue(executor.executorService().isShutdown());
+    }
+
+    @Test
+    public void test_disabled() {
+        final PublishProcessingExecutor executor = new PublishProcessingExecutor(metricRegistry, shutdownHooks, false, 1, 4);
+        assertFalse(executor.isEnabled());
+    }
+}
@@ -16,12 +16,12 @@
 
 package com.hivemq.mqtt.handler.publish;
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.message.MessageIDPools;
 import com.hivemq.mqtt.message.pool.MessageIDPool;
 import com.hivemq.mqtt.message.puback.PUBACK;
 import com.hivemq.mqtt.message.pubcomp.PUBCOMP;
 import com.hivemq.mqtt.message.pubrel.PUBREL;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.channel.embedded.EmbeddedChannel;
 import org.junit.Before;
 import org.junit.Test;
@@ -51,7 +51,7 @@ public class ReturnMessageIdToPoolHandlerTest {
         when(pool.takeNextId()).thenReturn(100);
         when(pools.forClientOrNull(anyString())).thenReturn(pool);
         embeddedChannel = new EmbeddedChannel(new ReturnMessageIdToPoolHandler(pools));
-        embeddedChannel.attr(ChannelAttributes.CLIENT_ID).set("clientId");
+        ClientConnection.of(embeddedChannel).setClientId("clientId");
     }
 
     @Test
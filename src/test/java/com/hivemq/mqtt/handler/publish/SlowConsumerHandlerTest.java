@@ -0,0 +1,216 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.mqtt.handler.publish;
+
+import com.codahale.metrics.MetricRegistry;
+import com.hivemq.bootstrap.ClientConnection;
+import com.hivemq.logging.EventLog;
+import com.hivemq.metrics.HiveMQMetrics;
+import com.hivemq.mqtt.services.PublishPollService;
+import com.hivemq.throttling.ClientTrafficShapingHandler;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.group.ChannelGroup;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class SlowConsumerHandlerTest {
+
+    @Mock
+    private ChannelGroup channelGroup;
+
+    @Mock
+    private PublishPollService publishPollService;
+
+    @Mock
+    private EventLog eventLog;
+
+    private MetricRegistry metricRegistry;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        metricRegistry = new MetricRegistry();
+    }
+
+    @Test
+    public void test_poll_when_writable_after_polling_was_suspended() {
+        final EmbeddedChannel channel = createChannel(0);
+
+        setWritable(channel, false);
+        assertEquals(1L, notWritableClients());
+        ClientConnection.of(channel).setPollingSuspended(true);
+
+        setWritable(channel, true);
+
+        verify(publishPollService).pollMessages("client", channel);
+        assertFalse(ClientConnection.of(channel).isPollingSuspended());
+        assertEquals(0L, notWritableClients());
+        assertEquals(1, metricRegistry.timer(HiveMQMetrics.SLOW_CONSUMER_NOT_WRITABLE_TIME.name()).getCount());
+    }
+
+    @Test
+    public void test_no_poll_when_polling_was_not_suspended() {
+        final EmbeddedChannel channel = createChannel(0);
+
+        setWritable(channel, false);
+        setWritable(channel, true);
+
+        verify(publishPollService, never()).pollMessages(anyString(), any(EmbeddedChannel.class));
+    }
+
+    @Test
+    public void test_disconnect_when_not_writable_past_timeout() throws Exception {
+        final EmbeddedChannel channel = createChannel(10);
+
+        setWritable(channel, false);
+        Thread.sleep(20);
+        channel.runScheduledPendingTasks();
+
+        assertFalse(channel.isActive());
+        verify(eventLog).clientWasDisconnected(same(channel), anyString());
+        assertEquals(1, metricRegistry.counter(HiveMQMetrics.SLOW_CONSUMER_DISCONNECTED_COUNT.name()).getCount());
+        assertEquals(0L, notWritableClients());
+    }
+
+    @Test
+    public void test_no_disconnect_when_writable_before_timeout() throws Exception {
+        final EmbeddedChannel channel = createChannel(10);
+
+        setWritable(channel, false);
+        setWritable(channel, true);
+        Thread.sleep(20);
+        channel.runScheduledPendingTasks();
+
+        assertTrue(channel.isActive());
+        verify(eventLog, never()).clientWasDisconnected(any(EmbeddedChannel.class), anyString());
+    }
+
+    @Test
+    public void test_no_disconnect_when_not_writable_because_of_traffic_shaping() throws Exception {
+        final EmbeddedChannel channel = createChannel(10);
+
+        setShaped(channel, true);
+        assertFalse(channel.isWritable());
+        Thread.sleep(20);
+        channel.runScheduledPendingTasks();
+
+        assertTrue(channel.isActive());
+        assertEquals(0L, notWritableClients());
+        verify(eventLog, never()).clientWasDisconnected(any(EmbeddedChannel.class), anyString());
+    }
+
+    @Test
+    public void test_disconnect_when_socket_not_writable_while_traffic_shaped() throws Exception {
+        final EmbeddedChannel channel = createChannel(10);
+
+        setShaped(channel, true);
+        setWritable(channel, false);
+        // the socket is not writable when the shaping ends
+        setShaped(channel, false);
+        assertFalse(channel.isWritable());
+        assertEquals(1L, notWritableClients());
+        Thread.sleep(20);
+        channel.runScheduledPendingTasks();
+
+        assertFalse(channel.isActive());
+        verify(eventLog).clientWasDisconnected(same(channel), anyString());
+    }
+
+    @Test
+    public void test_slow_consumer_stays_not_writable_while_traffic_shaped() throws Exception {
+        final EmbeddedChannel channel = createChannel(0);
+
+        setWritable(channel, false);
+        assertEquals(1L, notWritableClients());
+        setShaped(channel, true);
+        channel.pipeline().fireChannelWritabilityChanged();
+
+        assertEquals(1L, notWritableClients());
+    }
+
+    @Test
+    public void test_poll_when_traffic_shaping_ends_after_polling_was_suspended() {
+        final EmbeddedChannel channel = createChannel(0);
+
+        setShaped(channel, true);
+        assertFalse(channel.isWritable());
+        // like the PublishPollService when the channel is not writable
+        ClientConnection.of(channel).setPollingSuspended(true);
+        setShaped(channel, false);
+
+        verify(publishPollService).pollMessages("client", channel);
+        assertFalse(ClientConnection.of(channel).isPollingSuspended());
+        assertEquals(0L, notWritableClients());
+    }
+
+    @Test
+    public void test_poll_when_socket_writable_after_traffic_shaping_ended() {
+        final EmbeddedChannel channel = createChannel(0);
+
+        setShaped(channel, true);
+        ClientConnection.of(channel).setPollingSuspended(true);
+        setWritable(channel, false);
+        setShaped(channel, false);
+        verify(publishPollService, never()).pollMessages(anyString(), any(EmbeddedChannel.class));
+
+        setWritable(channel, true);
+
+        verify(publishPollService).pollMessages("client", channel);
+        assertFalse(ClientConnection.of(channel).isPollingSuspended());
+    }
+
+    private EmbeddedChannel createChannel(final long disconnectTimeoutMillis) {
+        final SlowConsumerTracker tracker =
+                new SlowConsumerTracker(metricRegistry, channelGroup, () -> publishPollService, eventLog, disconnectTimeoutMillis);
+        final EmbeddedChannel channel = new EmbeddedChannel(tracker.newHandler());
+        ClientConnection.of(channel).setClientId("client");
+        ClientConnection.of(channel).setInFlightMessagesSent(true);
+        return channel;
+    }
+
+    private static void setWritable(final EmbeddedChannel channel, final boolean writable) {
+        if (writable) {
+            channel.flush();
+        } else {
+            // the pending bytes exceed the high water mark like a socket that can not keep up
+            channel.write(Unpooled.buffer().writeZero(channel.config().getWriteBufferHighWaterMark() + 1));
+        }
+    }
+
+    private static void setShaped(final EmbeddedChannel channel, final boolean shaped) {
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(ClientTrafficShapingHandler.WRITABILITY_INDEX, !shaped);
+        if (!shaped && !channel.isWritable()) {
+            // like the ClientTrafficShapingHandler, if the writability of the channel did not change
+            channel.pipeline().fireChannelWritabilityChanged();
+        }
+    }
+
+    private long notWritableClients() {
+        final Object value = metricRegistry.getGauges()
+                .get(HiveMQMetrics.SLOW_CONSUMER_NOT_WRITABLE_CLIENTS_CURRENT.name())
+                .getValue();
+        return ((Number) value).longValue();
+    }
+}
@@ -16,6 +16,7 @@
 
 package com.hivemq.mqtt.handler.publish.qos;
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.message.QoS;
 import com.hivemq.mqtt.message.connect.Mqtt5CONNECT;
 import com.hivemq.mqtt.message.puback.PUBACK;
@@ -50,7 +51,7 @@ public class QoSReceiverHandlerTest {
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
         embeddedChannel = new EmbeddedChannel(new QoSReceiverHandler(incomingMessageFlowPersistence));
-        embeddedChannel.attr(ChannelAttributes.CLIENT_ID).set(CLIENT_ID);
+        ClientConnection.of(embeddedChannel).setClientId(CLIENT_ID);
     }
 
     @Test
@@ -18,6 +18,7 @@ package com.hivemq.mqtt.handler.publish.qos;
 
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.SettableFuture;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.handler.publish.PublishStatus;
 import com.hivemq.mqtt.message.MessageWithID;
 import com.hivemq.mqtt.message.QoS;
@@ -31,7 +32,6 @@ import com.hivemq.mqtt.message.pubrec.PUBREC;
 import com.hivemq.mqtt.message.pubrel.PUBREL;
 import com.hivemq.mqtt.message.reason.Mqtt5PubRelReasonCode;
 import com.hivemq.mqtt.services.PublishPollService;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.channel.embedded.EmbeddedChannel;
 import org.junit.Before;
 import org.junit.Rule;
@@ -66,7 +66,7 @@ public class QoSSenderHandlerTest {
 
         embeddedChannel = new EmbeddedChannel(qoSSenderHandler);
 
-        embeddedChannel.attr(ChannelAttributes.CLIENT_ID).set(CLIENT_ID);
+        ClientConnection.of(embeddedChannel).setClientId(CLIENT_ID);
 
     }
 
@@ -1,6 +1,7 @@
 package com.hivemq.mqtt.handler.subscribe.retained;
 
 import com.google.common.util.concurrent.Futures;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.mqtt.message.QoS;
 import com.hivemq.mqtt.message.pool.exception.NoMessageIdAvailableException;
 import com.hivemq.mqtt.message.subscribe.Topic;
@@ -75,7 +76,9 @@ public class SendRetainedMessageListenerAndScheduleNextTest {
     @Test
     public void failure() {
         when(channel.isActive()).thenReturn(true);
-        when(channel.attr(ChannelAttributes.CLIENT_ID)).thenReturn(new TestChannelAttribute<>("client"));
+        final ClientConnection clientConnection = new ClientConnection();
+        clientConnection.setClientId("client");
+        when(channel.attr(ChannelAttributes.CLIENT_CONNECTION)).thenReturn(new TestChannelAttribute<>(clientConnection));
         final Topic topic = new Topic("#", QoS.AT_LEAST_ONCE);
         final Queue<String> topics = new ArrayDeque<>();
         for (int i = 0; i < 90; i++) {
@@ -93,7 +96,9 @@ public class SendRetainedMessageListenerAndScheduleNextTest {
     @Test
     public void failure_no_more_message_id() {
         when(channel.isActive()).thenReturn(true);
-        when(channel.attr(ChannelAttributes.CLIENT_ID)).thenReturn(new TestChannelAttribute<>("client"));
+        final ClientConnection clientConnection = new ClientConnection();
+        clientConnection.setClientId("client");
+        when(channel.attr(ChannelAttributes.CLIENT_CONNECTION)).thenReturn(new TestChannelAttribute<>(clientConnection));
         when(retainedMessagesSender.writeRetainedMessages(any(Channel.class), Matchers.<Topic>anyVararg())).thenReturn(
                 Futures.immediateFuture(null));
         final Topic topic = new Topic("#", QoS.AT_LEAST_ONCE);
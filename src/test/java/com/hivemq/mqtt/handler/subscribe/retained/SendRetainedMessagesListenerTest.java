@@ -19,6 +19,7 @@ package com.hivemq.mqtt.handler.subscribe.retained;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.Futures;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.configuration.HivemqId;
 import com.hivemq.configuration.entity.mqtt.MqttConfigurationDefaults;
 import com.hivemq.mqtt.handler.publish.PublishUserEventReceivedHandler;
@@ -34,7 +35,6 @@ import com.hivemq.persistence.clientqueue.ClientQueuePersistence;
 import com.hivemq.persistence.clientsession.callback.SubscriptionResult;
 import com.hivemq.persistence.payload.PublishPayloadPersistence;
 import com.hivemq.persistence.retained.RetainedMessagePersistence;
-import com.hivemq.util.ChannelAttributes;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.embedded.EmbeddedChannel;
 import org.junit.Assert;
@@ -164,7 +164,7 @@ public class SendRetainedMessagesListenerTest {
         ignoredTopics.add(anothertopic);
         final SendRetainedMessagesListener listener = createListener(subscriptions, ignoredTopics);
         final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new PublishUserEventReceivedHandler());
-        embeddedChannel.attr(ChannelAttributes.CLIENT_ID).set("client");
+        ClientConnection.of(embeddedChannel).setClientId("client");
 
         when(retainedMessagePersistence.get("topic")).thenReturn(Futures.immediateFuture(
                 new RetainedMessage("test".getBytes(UTF_8), QoS.EXACTLY_ONCE, 1L,
@@ -197,7 +197,7 @@ public class SendRetainedMessagesListenerTest {
         final List<SubscriptionResult> subscriptions = newArrayList(subResult(topic, false));
         final SendRetainedMessagesListener listener = createListener(subscriptions, ignoredTopics);
         final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new PublishUserEventReceivedHandler());
-        embeddedChannel.attr(ChannelAttributes.CLIENT_ID).set("client");
+        ClientConnection.of(embeddedChannel).setClientId("client");
 
         listener.operationComplete(embeddedChannel.newSucceededFuture());
 
@@ -280,7 +280,7 @@ public class SendRetainedMessagesListenerTest {
         final List<SubscriptionResult> subscriptions = newArrayList(subResult(topic, false));
         final SendRetainedMessagesListener listener = createListener(subscriptions, ignoredTopics);
         final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new PublishUserEventReceivedHandler());
-        embeddedChannel.attr(ChannelAttributes.CLIENT_ID).set("client");
+        ClientConnection.of(embeddedChannel).setClientId("client");
 
         listener.operationComplete(embeddedChannel.newSucceededFuture());
 
@@ -315,7 +315,7 @@ public class SendRetainedMessagesListenerTest {
                 subResult(new Topic("topic2", QoS.AT_MOST_ONCE), false));
         final SendRetainedMessagesListener listener = createListener(subscriptions, ignoredTopics);
         final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new PublishUserEventReceivedHandler());
-        embeddedChannel.attr(ChannelAttributes.CLIENT_ID).set("client");
+        ClientConnection.of(embeddedChannel).setClientId("client");
 
         listener.operationComplete(embeddedChannel.newSucceededFuture());
 
@@ -471,7 +471,7 @@ public class SendRetainedMessagesListenerTest {
                 subResult(new Topic("topic2", QoS.AT_LEAST_ONCE), false));
         final SendRetainedMessagesListener listener = createListener(subscriptions, ignoredTopics);
         final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new PublishUserEventReceivedHandler());
-        embeddedChannel.attr(ChannelAttributes.CLIENT_ID).set("client");
+        ClientConnection.of(embeddedChannel).setClientId("client");
 
         listener.operationComplete(embeddedChannel.newSucceededFuture());
 
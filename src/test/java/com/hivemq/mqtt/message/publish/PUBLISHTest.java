@@ -16,6 +16,7 @@
 
 package com.hivemq.mqtt.message.publish;
 
+import com.google.common.collect.ImmutableList;
 import com.hivemq.mqtt.message.QoS;
 import com.hivemq.mqtt.message.mqtt5.Mqtt5UserProperties;
 import com.hivemq.mqtt.message.mqtt5.MqttUserProperty;
@@ -32,7 +33,9 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 
 /**
  * @author Florian Limpöck
@@ -291,4 +294,55 @@ public class PUBLISHTest {
         return Mqtt5UserProperties.of(userProperties.toArray(new MqttUserProperty[]{}));
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void test_for_subscriber() {
+
+        final PublishPayloadPersistence persistence = Mockito.mock(PublishPayloadPersistence.class);
+        final PUBLISH publish = new PUBLISHFactory.Mqtt5Builder()
+                .withHivemqId("hivemqId")
+                .withTopic("topic/a")
+                .withQoS(QoS.EXACTLY_ONCE)
+                .withPayload(new byte[]{1, 2, 3})
+                .withRetain(true)
+                .withPacketIdentifier(5)
+                .withContentType("contentType")
+                .withResponseTopic("responseTopic")
+                .withNewTopicAlias(true)
+                .withUserProperties(Mqtt5UserProperties.of(new MqttUserProperty("name", "value")))
+                .build();
+
+        final PUBLISH copy = PUBLISHFactory.forSubscriber(publish, QoS.AT_LEAST_ONCE, false, 5,
+                ImmutableList.of(1, 2), 10L, persistence);
+
+        assertEquals(QoS.AT_LEAST_ONCE, copy.getQoS());
+        assertFalse(copy.isRetain());
+        assertFalse(copy.isNewTopicAlias());
+        assertEquals(5, copy.getPacketIdentifier());
+        assertEquals(ImmutableList.of(1, 2), copy.getSubscriptionIdentifiers());
+        assertEquals(10L, copy.getPayloadId().longValue());
+        assertSame(publish.getPayload(), copy.getPayload());
+        assertSame(publish.getUniqueId(), copy.getUniqueId());
+        assertSame(publish.getTokenizedTopic(), copy.getTokenizedTopic());
+        assertEquals(publish.getLocalPublishId(), copy.getLocalPublishId());
+        assertEquals(publish.getTimestamp(), copy.getTimestamp());
+        assertEquals("contentType", copy.getContentType());
+        assertEquals("responseTopic", copy.getResponseTopic());
+        assertEquals(publish.getUserProperties(), copy.getUserProperties());
+    }
+
+    @Test
+    public void test_unique_id_is_created_lazily() {
+
+        final PUBLISH publish = new PUBLISHFactory.Mqtt3Builder()
+                .withHivemqId("hivemqId")
+                .withTopic("topic")
+                .withQoS(QoS.AT_MOST_ONCE)
+                .withPayload(new byte[0])
+                .withPublishId(42)
+                .build();
+
+        assertEquals("hivemqId_pub_42", publish.getUniqueId());
+        assertSame(publish.getUniqueId(), publish.getUniqueId());
+    }
+}
@@ -18,7 +18,9 @@ package com.hivemq.mqtt.services;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import com.hivemq.mqtt.handler.publish.PublishStatus;
 import com.hivemq.mqtt.message.QoS;
 import com.hivemq.mqtt.message.publish.PUBLISH;
@@ -43,8 +45,15 @@ import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -71,6 +80,7 @@ public class PublishDistributorImplTest {
         MockitoAnnotations.initMocks(this);
         singleWriterService = TestSingleWriterFactory.defaultSingleWriter();
         publishDistributor = new PublishDistributorImpl(payloadPersistence, clientQueuePersistence, clientSessionPersistence, singleWriterService);
+        when(payloadPersistence.whenPersisted(anyLong())).thenReturn(Futures.immediateFuture(null));
     }
 
     @Test(timeout = 5000)
@@ -163,6 +173,66 @@ public class PublishDistributorImplTest {
         verify(clientQueuePersistence).add(eq("name/topic2"), eq(true), any(PUBLISH.class));
     }
 
+    @Test(timeout = 5000)
+    public void test_queued_after_payload_is_persisted() throws ExecutionException, InterruptedException {
+        final SettableFuture<Void> payloadFuture = SettableFuture.create();
+        when(payloadPersistence.whenPersisted(anyLong())).thenReturn(payloadFuture);
+        when(clientSessionPersistence.getSession("client", false)).thenReturn(new ClientSession(true, 1000L));
+        when(clientQueuePersistence.add(eq("client"), eq(false), any(PUBLISH.class))).thenReturn(Futures.immediateFuture(null));
+
+        final ListenableFuture<PublishStatus> future = publishDistributor.sendMessageToSubscriber(createPublish(QoS.AT_LEAST_ONCE), "client",
+                1, false, false, ImmutableList.of(1));
+
+        // if the process stops before the payload is written, no queued message references the lost payload
+        verify(clientQueuePersistence, never()).add(eq("client"), eq(false), any(PUBLISH.class));
+        assertFalse(future.isDone());
+
+        payloadFuture.set(null);
+
+        verify(clientQueuePersistence).add(eq("client"), eq(false), any(PUBLISH.class));
+        assertEquals(PublishStatus.DELIVERED, future.get());
+    }
+
+    @Test
+    public void test_batch_queued_after_payloads_are_persisted() {
+        final SettableFuture<Void> payloadFuture = SettableFuture.create();
+        when(payloadPersistence.whenPersisted(anyLong())).thenReturn(payloadFuture);
+        when(clientSessionPersistence.getSession("client", false)).thenReturn(new ClientSession(true, 1000L));
+        when(clientQueuePersistence.add(eq("client"), eq(false), anyListOf(PUBLISH.class), eq(false))).thenReturn(Futures.immediateFuture(null));
+
+        final ListenableFuture<Void> future = publishDistributor.distributeBatch(ImmutableList.of(createPublish(QoS.AT_LEAST_ONCE)),
+                ImmutableList.of(Map.of("client", new SubscriberWithIdentifiers("client", 1, (byte) 0, null))),
+                ImmutableList.of(Set.of()), MoreExecutors.newDirectExecutorService());
+
+        verify(clientQueuePersistence, never()).add(eq("client"), eq(false), anyListOf(PUBLISH.class), eq(false));
+        assertFalse(future.isDone());
+
+        payloadFuture.set(null);
+
+        verify(clientQueuePersistence).add(eq("client"), eq(false), anyListOf(PUBLISH.class), eq(false));
+    }
+
+    @Test
+    public void test_batch_fails_if_not_queued() throws Exception {
+        when(payloadPersistence.whenPersisted(anyLong())).thenReturn(Futures.immediateFuture(null));
+        when(clientSessionPersistence.getSession("client", false)).thenReturn(new ClientSession(true, 1000L));
+        final RuntimeException exception = new RuntimeException("queue not available");
+        when(clientQueuePersistence.add(eq("client"), eq(false), anyListOf(PUBLISH.class), eq(false)))
+                .thenReturn(Futures.immediateFailedFuture(exception));
+
+        final ListenableFuture<Void> future = publishDistributor.distributeBatch(ImmutableList.of(createPublish(QoS.AT_LEAST_ONCE)),
+                ImmutableList.of(Map.of("client", new SubscriberWithIdentifiers("client", 1, (byte) 0, null))),
+                ImmutableList.of(Set.of()), MoreExecutors.newDirectExecutorService());
+
+        assertTrue(future.isDone());
+        try {
+            future.get();
+            fail();
+        } catch (final ExecutionException e) {
+            assertSame(exception, e.getCause());
+        }
+    }
+
     private PUBLISH createPublish(final QoS qos) {
         return new PUBLISHFactory.Mqtt5Builder().withPacketIdentifier(0)
                 .withQoS(qos)
@@ -20,6 +20,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.primitives.ImmutableIntArray;
 import com.google.common.util.concurrent.Futures;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.configuration.service.InternalConfigurations;
 import com.hivemq.mqtt.handler.ordering.OrderedTopicHandler;
 import com.hivemq.mqtt.handler.publish.ChannelInactiveHandler;
@@ -29,6 +30,7 @@ import com.hivemq.mqtt.message.dropping.MessageDroppedService;
 import com.hivemq.mqtt.message.pool.MessageIDPool;
 import com.hivemq.mqtt.message.pool.exception.NoMessageIdAvailableException;
 import com.hivemq.mqtt.message.publish.PUBLISH;
+import com.hivemq.mqtt.message.publish.PUBLISHFactory;
 import com.hivemq.mqtt.message.publish.PubrelWithFuture;
 import com.hivemq.mqtt.message.pubrel.PUBREL;
 import com.hivemq.mqtt.topic.SubscriberWithQoS;
@@ -41,7 +43,6 @@ import com.hivemq.util.ChannelAttributes;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
-import io.netty.util.Attribute;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -58,6 +59,8 @@ import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.*;
@@ -102,6 +105,8 @@ public class PublishPollServiceImplTest {
 
     private PublishPollService publishPollService;
 
+    private ClientConnection clientConnection;
+
     @Before
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
@@ -109,7 +114,8 @@ public class PublishPollServiceImplTest {
         when(channelPersistence.get(anyString())).thenReturn(channel);
         when(channel.pipeline()).thenReturn(pipeline);
         when(pipeline.get(ChannelInactiveHandler.class)).thenReturn(channelInactiveHandler);
-        when(channel.attr(ChannelAttributes.CLIENT_RECEIVE_MAXIMUM)).thenReturn(new TestChannelAttribute<>(null));
+        clientConnection = new ClientConnection();
+        when(channel.attr(ChannelAttributes.CLIENT_CONNECTION)).thenReturn(new TestChannelAttribute<>(clientConnection));
         InternalConfigurations.PUBLISH_POLL_BATCH_SIZE = 50;
         InternalConfigurations.MAX_INFLIGHT_WINDOW_SIZE = 50;
 
@@ -123,7 +129,7 @@ public class PublishPollServiceImplTest {
         when(messageIDPool.takeNextId()).thenReturn(1);
         when(clientQueuePersistence.readNew(eq("client"), eq(false), any(ImmutableIntArray.class), anyLong())).thenReturn(Futures.immediateFuture(ImmutableList.of(createPublish(1), createPublish(1))));
         when(channel.isActive()).thenReturn(true);
-        when(channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES)).thenReturn(new TestChannelAttribute<>(new AtomicInteger(0)));
+        clientConnection.setInFlightMessages(new AtomicInteger(0));
 
         publishPollService.pollNewMessages("client");
 
@@ -137,13 +143,13 @@ public class PublishPollServiceImplTest {
     public void test_new_messages_inflight_batch_size() throws NoMessageIdAvailableException {
 
         InternalConfigurations.PUBLISH_POLL_BATCH_SIZE = 1;
-        when(channel.attr(ChannelAttributes.CLIENT_RECEIVE_MAXIMUM)).thenReturn(new TestChannelAttribute<>(10));
+        clientConnection.setClientReceiveMaximum(10);
 
         when(messageIDPool.takeNextId()).thenReturn(1);
         when(clientQueuePersistence.readNew(eq("client"), eq(false), any(ImmutableIntArray.class), anyLong())).thenReturn(Futures.immediateFuture(ImmutableList.of(createPublish(1))));
         when(channel.isActive()).thenReturn(true);
-        when(channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES)).thenReturn(new TestChannelAttribute<>(new AtomicInteger(0)));
-        when(channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES_SENT)).thenReturn(new TestChannelAttribute<>(true));
+        clientConnection.setInFlightMessages(new AtomicInteger(0));
+        clientConnection.setInFlightMessagesSent(true);
 
         publishPollService.pollNewMessages("client");
 
@@ -158,8 +164,8 @@ public class PublishPollServiceImplTest {
         when(messageIDPool.takeNextId()).thenReturn(1);
         when(clientQueuePersistence.readNew(eq("client"), eq(false), any(ImmutableIntArray.class), anyLong())).thenReturn(Futures.immediateFuture(ImmutableList.of(createPublish(1))));
         when(channel.isActive()).thenReturn(false);
-        when(channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES)).thenReturn(new TestChannelAttribute<>(new AtomicInteger(0)));
-        when(channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES_SENT)).thenReturn(new TestChannelAttribute<>(true));
+        clientConnection.setInFlightMessages(new AtomicInteger(0));
+        clientConnection.setInFlightMessagesSent(true);
 
         publishPollService.pollNewMessages("client");
 
@@ -177,7 +183,7 @@ public class PublishPollServiceImplTest {
 
         when(channel.isActive()).thenReturn(true);
         when(channel.newPromise()).thenReturn(mock(ChannelPromise.class));
-        when(channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES)).thenReturn(new TestChannelAttribute<>(new AtomicInteger(0)));
+        clientConnection.setInFlightMessages(new AtomicInteger(0));
 
         publishPollService.pollInflightMessages("client", channel);
 
@@ -194,7 +200,7 @@ public class PublishPollServiceImplTest {
                 .thenReturn(Futures.immediateFuture(ImmutableList.of(createPublish(1))));
 
         when(channel.isActive()).thenReturn(true);
-        when(channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES)).thenReturn(new TestChannelAttribute<>(new AtomicInteger(0)));
+        clientConnection.setInFlightMessages(new AtomicInteger(0));
 
         publishPollService.pollInflightMessages("client", channel);
 
@@ -206,15 +212,12 @@ public class PublishPollServiceImplTest {
 
     @Test
     public void test_inflight_messages_empty() throws NoMessageIdAvailableException {
-        final Attribute attribute = mock(Attribute.class);
-        when(attribute.get()).thenReturn(true);
-        when(channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES_SENT)).thenReturn(attribute);
 
         when(clientQueuePersistence.readInflight(eq("client"), anyLong(), anyInt())).thenReturn(Futures.immediateFuture(ImmutableList.of()));
         publishPollService.pollInflightMessages("client", channel);
 
         verify(messageIDPool, never()).takeIfAvailable(anyInt());
-        verify(attribute).set(true);
+        assertTrue(clientConnection.getInFlightMessagesSent());
     }
 
     @Test
@@ -233,8 +236,8 @@ public class PublishPollServiceImplTest {
         when(messageIDPool.takeNextId()).thenReturn(2).thenReturn(3);
         when(channel.isActive()).thenReturn(true);
         final AtomicInteger inFlightCount = new AtomicInteger(0);
-        when(channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES)).thenReturn(new TestChannelAttribute<>(inFlightCount));
-        when(channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES_SENT)).thenReturn(new TestChannelAttribute<>(true));
+        clientConnection.setInFlightMessages(inFlightCount);
+        clientConnection.setInFlightMessagesSent(true);
 
         when(pipeline.get(OrderedTopicHandler.class)).thenReturn(orderedTopicHandler);
         when(orderedTopicHandler.unacknowledgedMessages()).thenReturn(new HashSet<>());
@@ -266,8 +269,8 @@ public class PublishPollServiceImplTest {
 
         when(messageIDPool.takeNextId()).thenReturn(2).thenReturn(3);
         when(channel.isActive()).thenReturn(true);
-        when(channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES)).thenReturn(new TestChannelAttribute<>(new AtomicInteger(1)));
-        when(channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES_SENT)).thenReturn(new TestChannelAttribute<>(true));
+        clientConnection.setInFlightMessages(new AtomicInteger(1));
+        clientConnection.setInFlightMessagesSent(true);
 
         publishPollService.pollSharedPublishes("group/topic");
 
@@ -287,8 +290,8 @@ public class PublishPollServiceImplTest {
 
         when(pipeline.get(OrderedTopicHandler.class)).thenReturn(orderedTopicHandler);
         when(orderedTopicHandler.unacknowledgedMessages()).thenReturn(new HashSet<>());
-        when(channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES)).thenReturn(new TestChannelAttribute<>(new AtomicInteger(1)));
-        when(channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES_SENT)).thenReturn(new TestChannelAttribute<>(true));
+        clientConnection.setInFlightMessages(new AtomicInteger(1));
+        clientConnection.setInFlightMessagesSent(true);
 
         publishPollService.pollSharedPublishes("group/topic");
 
@@ -300,8 +303,8 @@ public class PublishPollServiceImplTest {
         final OrderedTopicHandler orderedTopicHandler = mock(OrderedTopicHandler.class);
 
         when(channel.isActive()).thenReturn(true);
-        when(channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES)).thenReturn(new TestChannelAttribute<>(new AtomicInteger(0)));
-        when(channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES_SENT)).thenReturn(new TestChannelAttribute<>(true));
+        clientConnection.setInFlightMessages(new AtomicInteger(0));
+        clientConnection.setInFlightMessagesSent(true);
         when(pipeline.get(OrderedTopicHandler.class)).thenReturn(orderedTopicHandler);
         when(orderedTopicHandler.unacknowledgedMessages()).thenReturn(new HashSet<>());
 
@@ -317,6 +320,29 @@ public class PublishPollServiceImplTest {
         verify(clientQueuePersistence).removeShared("group/topic", publish.getUniqueId());
     }
 
+    @Test
+    public void test_sent_publishes_share_subscriber_independent_fields() {
+        final PUBLISH publish = createPublish(1);
+        final PUBLISH copy1 = PUBLISHFactory.forSubscriber(publish, QoS.AT_MOST_ONCE, false, 0, ImmutableList.of(1), null, null);
+        final PUBLISH copy2 = PUBLISHFactory.forSubscriber(publish, QoS.AT_MOST_ONCE, false, 0, ImmutableList.of(2), null, null);
+
+        when(clientQueuePersistence.readNew(eq("client"), eq(false), any(ImmutableIntArray.class), anyLong())).thenReturn(Futures.immediateFuture(ImmutableList.of(copy1, copy2)));
+        when(channel.isActive()).thenReturn(true);
+        clientConnection.setInFlightMessages(new AtomicInteger(0));
+
+        publishPollService.pollNewMessages("client");
+
+        final ArgumentCaptor<PUBLISH> captor = ArgumentCaptor.forClass(PUBLISH.class);
+        verify(pipeline, times(2)).fireUserEventTriggered(captor.capture());
+        final List<PUBLISH> sent = captor.getAllValues();
+
+        // the shared properties encoded for the first subscriber are reused for the second one
+        final byte[] encodedSharedProperties = new byte[]{1, 2, 3};
+        sent.get(0).setEncodedSharedProperties(encodedSharedProperties);
+        assertSame(encodedSharedProperties, sent.get(1).getEncodedSharedProperties());
+        assertEquals(ImmutableList.of(2), sent.get(1).getSubscriptionIdentifiers());
+    }
+
     private PUBLISH createPublish(final int packetId) {
         return TestMessageUtil.createMqtt5Publish(packetId);
     }
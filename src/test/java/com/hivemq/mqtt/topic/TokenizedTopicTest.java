@@ -0,0 +1,60 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.mqtt.topic;
+
+import com.hivemq.mqtt.message.QoS;
+import com.hivemq.mqtt.message.publish.PUBLISH;
+import org.junit.Test;
+import util.TestMessageUtil;
+
+import static org.junit.Assert.*;
+
+public class TokenizedTopicTest {
+
+    @Test
+    public void test_levels_preserve_empty_levels() {
+        final TokenizedTopic topic = TokenizedTopic.of("/a//b/");
+
+        assertArrayEquals(new String[]{"", "a", "", "b", ""}, topic.getLevels());
+        assertEquals("/a//b/", topic.getTopic());
+        assertEquals("/a//b", topic.getStrippedTopic());
+    }
+
+    @Test
+    public void test_single_character_topic_not_stripped() {
+        assertEquals("/", TokenizedTopic.of("/").getStrippedTopic());
+        assertEquals("a", TokenizedTopic.of("a").getStrippedTopic());
+        assertEquals("a", TokenizedTopic.of("a///").getStrippedTopic());
+    }
+
+    @Test
+    public void test_equal_by_topic() {
+        assertEquals(TokenizedTopic.of("a/b"), TokenizedTopic.of("a/b"));
+        assertEquals(TokenizedTopic.of("a/b").hashCode(), TokenizedTopic.of("a/b").hashCode());
+        assertNotEquals(TokenizedTopic.of("a/b"), TokenizedTopic.of("a/b/"));
+    }
+
+    @Test
+    public void test_publish_splits_topic_once() {
+        final PUBLISH publish = TestMessageUtil.createMqtt5Publish("a/b/c", QoS.AT_LEAST_ONCE);
+
+        final TokenizedTopic topic = publish.getTokenizedTopic();
+        assertEquals("a/b/c", topic.getTopic());
+        assertSame(topic, publish.getTokenizedTopic());
+        assertSame(topic.getLevels(), publish.getTokenizedTopic().getLevels());
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.mqtt.topic.tree;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.hivemq.annotations.NotNull;
+import com.hivemq.extension.sdk.api.services.subscription.SubscriptionType;
+import com.hivemq.metrics.MetricsHolder;
+import com.hivemq.mqtt.message.QoS;
+import com.hivemq.mqtt.message.subscribe.Topic;
+import com.hivemq.mqtt.topic.SubscriptionFlags;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ChunkedSubscriberIteratorTest {
+
+    private TopicTreeImpl topicTree;
+
+    @Before
+    public void setUp() {
+        topicTree = new TopicTreeImpl(new MetricsHolder(new MetricRegistry()));
+    }
+
+    @Test
+    public void test_iterate_for_topic_matches_get_subscribers_for_topic() {
+        // more subscribers than the map creation threshold
+        for (int i = 0; i < 100; i++) {
+            topicTree.addTopic("exact-" + i, new Topic("a/b/c", QoS.AT_MOST_ONCE), (byte) 0, null);
+        }
+        topicTree.addTopic("wildcard", new Topic("a/#", QoS.AT_MOST_ONCE), (byte) 0, null);
+        topicTree.addTopic("single", new Topic("a/+/c", QoS.AT_MOST_ONCE), (byte) 0, null);
+        topicTree.addTopic("root", new Topic("#", QoS.AT_MOST_ONCE), (byte) 0, null);
+        topicTree.addTopic("plus", new Topic("+/b/c", QoS.AT_MOST_ONCE), (byte) 0, null);
+        // matches with more than one subscription
+        topicTree.addTopic("exact-1", new Topic("a/#", QoS.AT_MOST_ONCE), (byte) 0, null);
+        topicTree.addTopic("other", new Topic("a/b/d", QoS.AT_MOST_ONCE), (byte) 0, null);
+
+        final Set<String> expected = topicTree.getSubscribersForTopic("a/b/c", all(), false);
+        final List<String> iterated = drain(topicTree.iterateSubscribersForTopic("a/b/c", all(), false), 7);
+
+        assertEquals(104, expected.size());
+        assertEquals(expected.size(), iterated.size());
+        assertEquals(expected, new HashSet<>(iterated));
+    }
+
+    @Test
+    public void test_iterate_for_topic_exclude_root_level_wildcard() {
+        topicTree.addTopic("root", new Topic("#", QoS.AT_MOST_ONCE), (byte) 0, null);
+        topicTree.addTopic("plus", new Topic("+/b", QoS.AT_MOST_ONCE), (byte) 0, null);
+        topicTree.addTopic("exact", new Topic("a/b", QoS.AT_MOST_ONCE), (byte) 0, null);
+
+        final List<String> iterated = drain(topicTree.iterateSubscribersForTopic("a/b", all(), true), 10);
+
+        assertEquals(ImmutableList.of("exact"), iterated);
+    }
+
+    @Test
+    public void test_iterate_with_filter_shared_subscriptions_returned_once() {
+        final byte sharedFlags = SubscriptionFlags.getDefaultFlags(true, false, false);
+        for (int i = 0; i < 50; i++) {
+            topicTree.addTopic("client-" + i, new Topic("a/+", QoS.AT_MOST_ONCE), (byte) 0, null);
+            topicTree.addTopic("client-" + i, new Topic("a/+", QoS.AT_MOST_ONCE), sharedFlags, "group1");
+            topicTree.addTopic("client-" + i, new Topic("a/+", QoS.AT_MOST_ONCE), sharedFlags, "group2");
+        }
+
+        final List<String> iterated = drain(topicTree.iterateSubscribersWithFilter("a/+", all()), 3);
+        assertEquals(50, iterated.size());
+        assertEquals(topicTree.getSubscribersWithFilter("a/+", all()), new HashSet<>(iterated));
+    }
+
+    @Test
+    public void test_iterate_with_filter_applies_item_filter() {
+        final byte sharedFlags = SubscriptionFlags.getDefaultFlags(true, false, false);
+        topicTree.addTopic("individual", new Topic("a/#", QoS.AT_MOST_ONCE), (byte) 0, null);
+        topicTree.addTopic("shared", new Topic("a/#", QoS.AT_MOST_ONCE), sharedFlags, "group");
+
+        final List<String> iterated = drain(topicTree.iterateSubscribersWithFilter(
+                "a/#", new SubscriptionTypeItemFilter(SubscriptionType.SHARED)), 10);
+
+        assertEquals(ImmutableList.of("shared"), iterated);
+    }
+
+    @Test
+    public void test_iterate_with_filter_no_matching_node() {
+        topicTree.addTopic("subscriber", new Topic("a/b", QoS.AT_MOST_ONCE), (byte) 0, null);
+
+        final ChunkedSubscriberIterator iterator = topicTree.iterateSubscribersWithFilter("a/c", all());
+
+        assertTrue(iterator.nextChunk(10).isEmpty());
+        assertTrue(iterator.isFinished());
+    }
+
+    @Test
+    public void test_chunks_are_bounded() {
+        for (int i = 0; i < 25; i++) {
+            topicTree.addTopic("client-" + i, new Topic("topic", QoS.AT_MOST_ONCE), (byte) 0, null);
+        }
+
+        final ChunkedSubscriberIterator iterator = topicTree.iterateSubscribersWithFilter("topic", all());
+
+        assertEquals(10, iterator.nextChunk(10).size());
+        assertEquals(10, iterator.nextChunk(10).size());
+        assertFalse(iterator.isFinished());
+        assertEquals(5, iterator.nextChunk(10).size());
+        assertTrue(iterator.isFinished());
+    }
+
+    private static @NotNull List<String> drain(final @NotNull ChunkedSubscriberIterator iterator, final int chunkSize) {
+        final List<String> subscribers = new ArrayList<>();
+        while (!iterator.isFinished()) {
+            final ImmutableList<String> chunk = iterator.nextChunk(chunkSize);
+            assertTrue(chunk.size() <= chunkSize);
+            subscribers.addAll(chunk);
+        }
+        return subscribers;
+    }
+
+    private static @NotNull LocalTopicTree.ItemFilter all() {
+        return subscriber -> true;
+    }
+}
@@ -35,6 +35,7 @@ import org.mockito.MockitoAnnotations;
 import util.InitFutureUtilsExecutorRule;
 
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -92,6 +93,7 @@ public class PersistenceShutdownHookTest {
         verify(clientSessionSubscriptionPersistence).closeDB();
         verify(incomingMessageFlowPersistence).closeDB();
         verify(retainedMessagePersistence).closeDB();
+        verify(payloadPersistence).checkpointReferenceCounters();
         verify(payloadPersistence).closeDB();
         verify(persistenceExecutorService).shutdown();
         verify(persistenceScheduledExecutorService).shutdownNow();
@@ -117,6 +119,9 @@ public class PersistenceShutdownHookTest {
     public void test_exception() throws Exception {
         when(retainedMessagePersistence.closeDB()).thenReturn(Futures.immediateFailedFuture(new RuntimeException("test")));
         persistenceShutdownHook.run();
+
+        verify(payloadPersistence, never()).checkpointReferenceCounters();
+        verify(payloadPersistence).closeDB();
     }
 
 }
\ No newline at end of file
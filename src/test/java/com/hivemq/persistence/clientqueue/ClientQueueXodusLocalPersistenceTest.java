@@ -28,6 +28,7 @@ import com.hivemq.mqtt.message.publish.PUBLISHFactory;
 import com.hivemq.mqtt.message.pubrel.PUBREL;
 import com.hivemq.persistence.PersistenceStartup;
 import com.hivemq.persistence.local.xodus.EnvironmentUtil;
+import com.hivemq.persistence.payload.PayloadReferenceSnapshot;
 import com.hivemq.persistence.payload.PublishPayloadPersistence;
 import com.hivemq.util.LocalPersistenceFileUtil;
 import com.hivemq.util.ThreadPreConditions;
@@ -37,9 +38,11 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -51,6 +54,7 @@ import static com.hivemq.configuration.service.MqttConfigurationService.QueuedMe
 import static com.hivemq.persistence.clientqueue.ClientQueuePersistenceImpl.Key;
 import static com.hivemq.persistence.clientqueue.ClientQueuePersistenceImpl.SHARED_IN_FLIGHT_MARKER;
 import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -104,6 +108,8 @@ public class ClientQueueXodusLocalPersistenceTest {
 
     @After
     public void tearDown() {
+        InternalConfigurations.PERSISTENCE_BOOTSTRAP_CHECKPOINT_ENABLED.set(false);
+        InternalConfigurations.PAYLOAD_REFERENCE_SNAPSHOT_MAX_LIFETIME_MILLIS.set(300_000);
         ThreadPreConditions.enable();
     }
 
@@ -138,6 +144,87 @@ public class ClientQueueXodusLocalPersistenceTest {
 
     }
 
+    @Test
+    public void test_start_from_checkpoint() {
+        InternalConfigurations.PERSISTENCE_BOOTSTRAP_CHECKPOINT_ENABLED.set(true);
+        when(payloadPersistence.restoreReferenceCountersOnBootstrap()).thenReturn(true);
+
+        for (int i = 0; i < 10; i++) {
+            final PUBLISH publish = createPublish(i, QoS.AT_LEAST_ONCE, "topic" + i);
+            persistence.add("client" + i, false, publish, 100L, DISCARD, false, i % bucketCount);
+        }
+        persistence.add("client0", false, createPublish(10, QoS.AT_LEAST_ONCE, "topic"), 100L, DISCARD, true, 0);
+        final long nextPublishNumber = ClientQueuePersistenceSerializer.NEXT_PUBLISH_NUMBER.get();
+
+        persistence.stop();
+        ClientQueuePersistenceSerializer.NEXT_PUBLISH_NUMBER.set(0);
+
+        persistence = new ClientQueueXodusLocalPersistence(
+                payloadPersistence,
+                new EnvironmentUtil(),
+                localPersistenceFileUtil,
+                new PersistenceStartup(),
+                messageDroppedService);
+        persistence.start();
+
+        assertEquals(2, persistence.size("client0", false, 0));
+        for (int i = 1; i < 10; i++) {
+            assertEquals(1, persistence.size("client" + i, false, i % bucketCount));
+        }
+        assertEquals(nextPublishNumber, ClientQueuePersistenceSerializer.NEXT_PUBLISH_NUMBER.get());
+        verify(payloadPersistence, never()).incrementReferenceCounterOnBootstrap(anyLong());
+
+        // the restored reference counts are reconciled with the persisted references
+        final ArgumentCaptor<PayloadReferenceSnapshot> snapshot = ArgumentCaptor.forClass(PayloadReferenceSnapshot.class);
+        verify(payloadPersistence).reconcileReferenceCountersOnBootstrap(snapshot.capture());
+        final Map<Long, Long> references = new HashMap<>();
+        assertTrue(snapshot.getValue().countReferences(references));
+        assertEquals(11L, references.get(1L).longValue());
+
+        persistence.stop();
+        assertFalse(snapshot.getValue().countReferences(new HashMap<>()));
+    }
+
+    @Test
+    public void test_start_from_checkpoint_snapshot_expired() {
+        InternalConfigurations.PERSISTENCE_BOOTSTRAP_CHECKPOINT_ENABLED.set(true);
+        InternalConfigurations.PAYLOAD_REFERENCE_SNAPSHOT_MAX_LIFETIME_MILLIS.set(0);
+        when(payloadPersistence.restoreReferenceCountersOnBootstrap()).thenReturn(true);
+
+        persistence.add("client", false, createPublish(1, QoS.AT_LEAST_ONCE, "topic"), 100L, DISCARD, false, 0);
+        persistence.stop();
+
+        persistence = new ClientQueueXodusLocalPersistence(
+                payloadPersistence,
+                new EnvironmentUtil(),
+                localPersistenceFileUtil,
+                new PersistenceStartup(),
+                messageDroppedService);
+        persistence.start();
+
+        final ArgumentCaptor<PayloadReferenceSnapshot> snapshot = ArgumentCaptor.forClass(PayloadReferenceSnapshot.class);
+        verify(payloadPersistence).reconcileReferenceCountersOnBootstrap(snapshot.capture());
+        assertFalse(snapshot.getValue().countReferences(new HashMap<>()));
+        snapshot.getValue().release();
+
+        // the transactions of the snapshot are finished, so the persistence can be closed
+        persistence.stop();
+    }
+
+    @Test
+    public void test_close_releases_qos0_references() {
+        persistence.add("client", false, createPublish(1, QoS.AT_MOST_ONCE, "topic"), 100L, DISCARD, false, 0);
+        persistence.add("client", false, createPublish(2, QoS.AT_LEAST_ONCE, "topic"), 100L, DISCARD, false, 0);
+        assertEquals(2, persistence.size("client", false, 0));
+
+        persistence.closeDB(0);
+
+        // only the qos 0 message is not persisted
+        verify(payloadPersistence, times(1)).decrementReferenceCounter(1L);
+        assertEquals(1, persistence.size("client", false, 0));
+        assertEquals(0, persistence.qos0Size("client", false, 0));
+    }
+
     @Test
     public void test_readNew_lessAvailable() {
         final PUBLISH publish = createPublish(10, QoS.AT_LEAST_ONCE, "topic1");
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.persistence.inbound;
+
+import com.codahale.metrics.MetricRegistry;
+import com.hivemq.metrics.HiveMQMetrics;
+import com.hivemq.mqtt.message.publish.PUBLISH;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import util.TestMessageUtil;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InboundPublishLogTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test(timeout = 20000)
+    public void test_incomplete_publishes_are_recovered() throws Exception {
+        final File folder = temporaryFolder.newFolder();
+
+        final InboundPublishLog log = new InboundPublishLog(folder, new MetricRegistry(), 1024 * 1024, 16);
+        assertTrue(log.recover().isEmpty());
+
+        final PUBLISH publish = TestMessageUtil.createFullMqtt5Publish();
+        final long sequence1 = log.append(TestMessageUtil.createMqtt5Publish("topic1"), "sender1").get();
+        final long sequence2 = log.append(publish, "sender2").get();
+        final long sequence3 = log.append(TestMessageUtil.createMqtt5Publish("topic3"), null).get();
+        assertTrue(sequence1 < sequence2 && sequence2 < sequence3);
+        log.complete(sequence1);
+        log.close();
+
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final InboundPublishLog recovered = new InboundPublishLog(folder, metricRegistry, 1024 * 1024, 16);
+        final List<InboundPublishLog.Entry> entries = recovered.recover();
+        recovered.close();
+
+        assertEquals(2, entries.size());
+        final InboundPublishLog.Entry entry = entries.get(0);
+        assertEquals(sequence2, entry.getSequence());
+        assertEquals("sender2", entry.getSender());
+        assertEquals(publish.getTopic(), entry.getPublish().getTopic());
+        assertEquals(publish.getQoS(), entry.getPublish().getQoS());
+        assertEquals(publish.isRetain(), entry.getPublish().isRetain());
+        assertEquals(publish.getLocalPublishId(), entry.getPublish().getLocalPublishId());
+        assertEquals(publish.getMessageExpiryInterval(), entry.getPublish().getMessageExpiryInterval());
+        assertEquals(publish.getContentType(), entry.getPublish().getContentType());
+        assertEquals(publish.getResponseTopic(), entry.getPublish().getResponseTopic());
+        assertEquals(publish.getPayloadFormatIndicator(), entry.getPublish().getPayloadFormatIndicator());
+        assertEquals(publish.getUserProperties(), entry.getPublish().getUserProperties());
+        assertArrayEquals(publish.getCorrelationData(), entry.getPublish().getCorrelationData());
+        assertArrayEquals(publish.getPayload(), entry.getPublish().getPayload());
+
+        assertEquals(sequence3, entries.get(1).getSequence());
+        assertNull(entries.get(1).getSender());
+        assertEquals(2, metricRegistry.counter(HiveMQMetrics.INBOUND_PUBLISH_LOG_REPLAYED_COUNT.name()).getCount());
+        assertEquals(2L, metricRegistry.getGauges().get(HiveMQMetrics.INBOUND_PUBLISH_LOG_PENDING_CURRENT.name()).getValue());
+    }
+
+    @Test(timeout = 20000)
+    public void test_completed_segments_are_deleted() throws Exception {
+        final File folder = temporaryFolder.newFolder();
+
+        // every write starts a new segment
+        final InboundPublishLog log = new InboundPublishLog(folder, new MetricRegistry(), 1, 16);
+        log.recover();
+
+        final long sequence1 = log.append(TestMessageUtil.createMqtt5Publish("topic1"), "sender").get();
+        final long sequence2 = log.append(TestMessageUtil.createMqtt5Publish("topic2"), "sender").get();
+        log.complete(sequence2);
+        log.close();
+
+        // the segment of the first PUBLISH is kept, so the segments after it are not deleted either
+        assertEquals(4, folder.listFiles().length);
+
+        final InboundPublishLog recovered = new InboundPublishLog(folder, new MetricRegistry(), 1, 16);
+        final List<InboundPublishLog.Entry> entries = recovered.recover();
+        assertEquals(1, entries.size());
+        assertEquals(sequence1, entries.get(0).getSequence());
+
+        recovered.complete(sequence1);
+        final long sequence3 = recovered.append(TestMessageUtil.createMqtt5Publish("topic3"), "sender").get();
+        assertTrue(sequence3 > sequence2);
+        recovered.complete(sequence3);
+        recovered.close();
+
+        // nothing is pending, so no segment is kept
+        assertEquals(0, folder.listFiles().length);
+        final InboundPublishLog empty = new InboundPublishLog(folder, new MetricRegistry(), 1, 16);
+        assertTrue(empty.recover().isEmpty());
+        empty.close();
+    }
+
+    @Test(timeout = 20000)
+    public void test_corrupt_records_are_skipped() throws Exception {
+        final File folder = temporaryFolder.newFolder();
+
+        final InboundPublishLog log = new InboundPublishLog(folder, new MetricRegistry(), 1024 * 1024, 16);
+        log.recover();
+        final long sequence = log.append(TestMessageUtil.createMqtt5Publish("topic"), "sender").get();
+        log.close();
+
+        final File[] files = folder.listFiles();
+        assertEquals(1, files.length);
+        try (final FileOutputStream output = new FileOutputStream(files[0], true)) {
+            // a record that was not written completely
+            output.write(new byte[]{0, 0, 0, 100, 1, 2, 3});
+        }
+
+        final InboundPublishLog recovered = new InboundPublishLog(folder, new MetricRegistry(), 1024 * 1024, 16);
+        final List<InboundPublishLog.Entry> entries = recovered.recover();
+        recovered.close();
+        assertEquals(1, entries.size());
+        assertEquals(sequence, entries.get(0).getSequence());
+    }
+
+    @Test(timeout = 20000)
+    public void test_segments_are_kept_if_publishes_are_pending() throws Exception {
+        final File folder = temporaryFolder.newFolder();
+
+        final InboundPublishLog log = new InboundPublishLog(folder, new MetricRegistry(), 1024 * 1024, 16);
+        assertFalse(log.hasSegments());
+        log.recover();
+        log.append(TestMessageUtil.createMqtt5Publish("topic"), "sender").get();
+        log.close();
+
+        final InboundPublishLog recovered = new InboundPublishLog(folder, new MetricRegistry(), 1024 * 1024, 16);
+        assertTrue(recovered.hasSegments());
+        final List<InboundPublishLog.Entry> entries = recovered.recover();
+        assertEquals(1, entries.size());
+        recovered.complete(entries.get(0).getSequence());
+        recovered.close();
+
+        assertFalse(new InboundPublishLog(folder, new MetricRegistry(), 1024 * 1024, 16).hasSegments());
+    }
+
+    @Test(timeout = 20000)
+    public void test_append_before_recover_fails() throws Exception {
+        final InboundPublishLog log = new InboundPublishLog(temporaryFolder.newFolder(), new MetricRegistry(), 1024 * 1024, 16);
+
+        try {
+            log.append(TestMessageUtil.createMqtt5Publish("topic"), "sender").get();
+            fail();
+        } catch (final Exception e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+}
@@ -41,6 +41,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import util.TestBucketUtil;
 
+import java.io.File;
 import java.util.*;
 
 import static com.hivemq.mqtt.message.connect.Mqtt5CONNECT.SESSION_EXPIRE_ON_DISCONNECT;
@@ -61,6 +62,8 @@ public class ClientSessionXodusLocalPersistenceTest {
 
     private ClientSessionXodusLocalPersistence persistence;
 
+    private File persistenceFolder;
+
     @Mock
     private LocalPersistenceFileUtil localPersistenceFileUtil;
 
@@ -80,7 +83,8 @@ public class ClientSessionXodusLocalPersistenceTest {
         InternalConfigurations.PERSISTENCE_CLOSE_RETRIES.set(3);
         InternalConfigurations.PERSISTENCE_CLOSE_RETRY_INTERVAL.set(5);
         InternalConfigurations.PERSISTENCE_BUCKET_COUNT.set(BUCKET_COUNT);
-        when(localPersistenceFileUtil.getVersionedLocalPersistenceFolder(anyString(), anyString())).thenReturn(temporaryFolder.newFolder());
+        persistenceFolder = temporaryFolder.newFolder();
+        when(localPersistenceFileUtil.getVersionedLocalPersistenceFolder(anyString(), anyString())).thenReturn(persistenceFolder);
 
         persistence = new ClientSessionXodusLocalPersistence(localPersistenceFileUtil, mqttConfigurationService,
                 new EnvironmentUtil(), payloadPersistence, eventLog,
@@ -90,6 +94,7 @@ public class ClientSessionXodusLocalPersistenceTest {
 
     @After
     public void cleanUp() {
+        InternalConfigurations.PERSISTENCE_BOOTSTRAP_CHECKPOINT_ENABLED.set(false);
         for (int i = 0; i < BUCKET_COUNT; i++) {
             persistence.closeDB(i);
         }
@@ -622,6 +627,49 @@ public class ClientSessionXodusLocalPersistenceTest {
         assertEquals(100, clientIds.size());
     }
 
+    @Test
+    public void test_sessions_count_restored_from_checkpoint() {
+        InternalConfigurations.PERSISTENCE_BOOTSTRAP_CHECKPOINT_ENABLED.set(true);
+
+        persistence.put("client1", new ClientSession(false, SESSION_EXPIRY_MAX), 123L, BucketUtils.getBucket("client1", BUCKET_COUNT));
+        persistence.put("client2", new ClientSession(false, SESSION_EXPIRY_MAX), 123L, BucketUtils.getBucket("client2", BUCKET_COUNT));
+        persistence.put("client3", new ClientSession(false, 0), 123L, BucketUtils.getBucket("client3", BUCKET_COUNT));
+        assertEquals(2, persistence.getSessionsCount());
+
+        close();
+        assertTrue(new File(persistenceFolder, "bootstrap.checkpoint").exists());
+        start();
+
+        assertEquals(2, persistence.getSessionsCount());
+        // the checkpoint is only valid for a single start
+        assertFalse(new File(persistenceFolder, "bootstrap.checkpoint").exists());
+    }
+
+    @Test
+    public void test_sessions_count_scanned_without_checkpoint() {
+        persistence.put("client1", new ClientSession(false, SESSION_EXPIRY_MAX), 123L, BucketUtils.getBucket("client1", BUCKET_COUNT));
+        persistence.put("client2", new ClientSession(false, SESSION_EXPIRY_MAX), 123L, BucketUtils.getBucket("client2", BUCKET_COUNT));
+
+        close();
+        assertFalse(new File(persistenceFolder, "bootstrap.checkpoint").exists());
+        start();
+
+        assertEquals(2, persistence.getSessionsCount());
+    }
+
+    private void close() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            persistence.closeDB(i);
+        }
+    }
+
+    private void start() {
+        persistence = new ClientSessionXodusLocalPersistence(localPersistenceFileUtil, mqttConfigurationService,
+                new EnvironmentUtil(), payloadPersistence, eventLog,
+                new PersistenceStartup());
+        persistence.start();
+    }
+
     @NotNull
     public ArrayList<String> getRandomUniqueIds() {
         final Set<String> clientIdSet = new HashSet<>();
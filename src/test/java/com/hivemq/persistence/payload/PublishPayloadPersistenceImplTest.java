@@ -16,21 +16,27 @@
 
 package com.hivemq.persistence.payload;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.util.concurrent.ListeningScheduledExecutorService;
 import com.hivemq.configuration.service.InternalConfigurations;
+import com.hivemq.metrics.HiveMQMetrics;
 import net.openhft.hashing.LongHashFunction;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import util.LogbackCapturingAppender;
 
 import java.util.Arrays;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyMapOf;
 import static org.mockito.Mockito.*;
 
 /**
@@ -59,11 +65,16 @@ public class PublishPayloadPersistenceImplTest {
         InternalConfigurations.PAYLOAD_PERSISTENCE_CLEANUP_SCHEDULE.set(10000);
         InternalConfigurations.PAYLOAD_PERSISTENCE_BUCKET_COUNT.set(64);
 
-        persistence = new PublishPayloadPersistenceImpl(localPersistence, scheduledExecutorService);
+        persistence = new PublishPayloadPersistenceImpl(localPersistence, scheduledExecutorService, new MetricRegistry());
         persistence.init();
         logCapture = LogbackCapturingAppender.Factory.weaveInto(PublishPayloadPersistenceImpl.log);
     }
 
+    @After
+    public void tearDown() throws Exception {
+        InternalConfigurations.PAYLOAD_PERSISTENCE_CONTENT_ADDRESSED_ENABLED.set(false);
+    }
+
     @Test
     public void add_new_entries() throws Exception {
         final byte[] payload1 = "payload1".getBytes();
@@ -198,7 +209,7 @@ public class PublishPayloadPersistenceImplTest {
         InternalConfigurations.PAYLOAD_PERSISTENCE_CLEANUP_SCHEDULE.set(250);
         InternalConfigurations.PAYLOAD_PERSISTENCE_CLEANUP_THREADS.set(4);
 
-        persistence = new PublishPayloadPersistenceImpl(localPersistence, scheduledExecutorService);
+        persistence = new PublishPayloadPersistenceImpl(localPersistence, scheduledExecutorService, new MetricRegistry());
 
         persistence.init();
 
@@ -214,4 +225,162 @@ public class PublishPayloadPersistenceImplTest {
         assertEquals(1, persistence.suspectedReferences.size());
         assertEquals(1L, persistence.suspectedReferences.iterator().next().longValue());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void add_existent_entry_content_addressed() throws Exception {
+        InternalConfigurations.PAYLOAD_PERSISTENCE_CONTENT_ADDRESSED_ENABLED.set(true);
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        persistence = new PublishPayloadPersistenceImpl(localPersistence, scheduledExecutorService, metricRegistry);
+        persistence.init();
+
+        final byte[] payload = "payload".getBytes();
+        final long id1 = persistence.add(payload, 1);
+
+        final long id2 = persistence.add(payload, 2);
+
+        assertEquals(id1, id2);
+        assertEquals(3, persistence.referenceCounter.get(id1).get());
+        verify(localPersistence, times(1)).put(anyLong(), any(byte[].class));
+        assertEquals(1, metricRegistry.counter(HiveMQMetrics.PAYLOAD_DEDUPLICATION_HIT_COUNT.name()).getCount());
+        assertEquals(1, metricRegistry.counter(HiveMQMetrics.PAYLOAD_DEDUPLICATION_MISS_COUNT.name()).getCount());
+        assertEquals(payload.length,
+                metricRegistry.counter(HiveMQMetrics.PAYLOAD_DEDUPLICATION_SAVED_BYTES_COUNT.name()).getCount());
+    }
+
+    @Test
+    public void add_existent_entry_not_cached_content_addressed() throws Exception {
+        InternalConfigurations.PAYLOAD_PERSISTENCE_CONTENT_ADDRESSED_ENABLED.set(true);
+        persistence = new PublishPayloadPersistenceImpl(localPersistence, scheduledExecutorService, new MetricRegistry());
+        persistence.init();
+
+        final byte[] payload = "payload".getBytes();
+        final long id1 = persistence.add(payload, 1);
+        persistence.payloadCache.invalidate(id1);
+        when(localPersistence.get(id1)).thenReturn(payload);
+
+        final long id2 = persistence.add(payload, 2);
+
+        // the local persistence is not read to compare the payloads
+        assertNotEquals(id1, id2);
+        verify(localPersistence, never()).get(anyLong());
+        assertEquals(1, persistence.referenceCounter.get(id1).get());
+        assertEquals(2, persistence.referenceCounter.get(id2).get());
+        assertEquals(id2, persistence.contentIndex.get(hashFunction.hashBytes(payload)).longValue());
+    }
+
+    @Test
+    public void add_existent_entry_not_cached_without_content_addressing() throws Exception {
+        final byte[] payload = "payload".getBytes();
+        final long id1 = persistence.add(payload, 1);
+        persistence.payloadCache.invalidate(id1);
+
+        final long id2 = persistence.add(payload, 2);
+
+        assertNotEquals(id1, id2);
+        assertNull(persistence.contentIndex);
+        assertNull(persistence.indexedHashes);
+    }
+
+    @Test
+    public void add_removed_entry_content_addressed() throws Exception {
+        InternalConfigurations.PAYLOAD_PERSISTENCE_CONTENT_ADDRESSED_ENABLED.set(true);
+        persistence = new PublishPayloadPersistenceImpl(localPersistence, scheduledExecutorService, new MetricRegistry());
+        persistence.init();
+
+        final byte[] payload = "payload".getBytes();
+        final long id1 = persistence.add(payload, 1);
+        persistence.payloadCache.invalidate(id1);
+        persistence.referenceCounter.remove(id1);
+
+        final long id2 = persistence.add(payload, 1);
+
+        assertNotEquals(id1, id2);
+        assertEquals(id2, persistence.contentIndex.get(hashFunction.hashBytes(payload)).longValue());
+        assertEquals(hashFunction.hashBytes(payload), persistence.indexedHashes.get(id2).longValue());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void restored_reference_counters_reconciled() throws Exception {
+        when(localPersistence.restoreReferenceCounters(anyMapOf(Long.class, AtomicLong.class))).thenAnswer(invocation -> {
+            final Map<Long, AtomicLong> counters = (Map<Long, AtomicLong>) invocation.getArguments()[0];
+            counters.put(1L, new AtomicLong(3));
+            counters.put(2L, new AtomicLong(1));
+            return true;
+        });
+        final PayloadReferenceSnapshot snapshot = mock(PayloadReferenceSnapshot.class);
+        when(snapshot.countReferences(anyMapOf(Long.class, Long.class))).thenAnswer(invocation -> {
+            final Map<Long, Long> references = (Map<Long, Long>) invocation.getArguments()[0];
+            references.put(1L, 2L);
+            references.put(3L, 1L);
+            return true;
+        });
+
+        persistence = new PublishPayloadPersistenceImpl(localPersistence, scheduledExecutorService, new MetricRegistry());
+        assertTrue(persistence.restoreReferenceCountersOnBootstrap());
+        persistence.reconcileReferenceCountersOnBootstrap(snapshot);
+        persistence.init();
+        // a persisted reference is removed before the reconciliation runs
+        persistence.decrementReferenceCounter(1L);
+
+        final ArgumentCaptor<Runnable> reconciliation = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduledExecutorService).execute(reconciliation.capture());
+        reconciliation.getValue().run();
+
+        assertEquals(1, persistence.referenceCounter.get(1L).get());
+        // the reference was only held in memory when the counters were written
+        assertEquals(0, persistence.referenceCounter.get(2L).get());
+        assertEquals(2L, persistence.removablePayloads.peek().getId());
+        // the reference count was missing in the checkpoint
+        assertEquals(1, persistence.referenceCounter.get(3L).get());
+        verify(snapshot).release();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void restored_reference_counters_not_reconciled_below_zero() throws Exception {
+        when(localPersistence.restoreReferenceCounters(anyMapOf(Long.class, AtomicLong.class))).thenAnswer(invocation -> {
+            ((Map<Long, AtomicLong>) invocation.getArguments()[0]).put(1L, new AtomicLong(2));
+            return true;
+        });
+        final PayloadReferenceSnapshot snapshot = mock(PayloadReferenceSnapshot.class);
+        when(snapshot.countReferences(anyMapOf(Long.class, Long.class))).thenReturn(true);
+
+        persistence = new PublishPayloadPersistenceImpl(localPersistence, scheduledExecutorService, new MetricRegistry());
+        assertTrue(persistence.restoreReferenceCountersOnBootstrap());
+        persistence.reconcileReferenceCountersOnBootstrap(snapshot);
+        persistence.init();
+        // both restored references were only held in memory, but one of them is removed before the reconciliation
+        persistence.decrementReferenceCounter(1L);
+
+        final ArgumentCaptor<Runnable> reconciliation = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduledExecutorService).execute(reconciliation.capture());
+        reconciliation.getValue().run();
+
+        assertEquals(0, persistence.referenceCounter.get(1L).get());
+        assertEquals(1L, persistence.removablePayloads.peek().getId());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void restored_reference_counters_not_reconciled_if_snapshot_released() throws Exception {
+        when(localPersistence.restoreReferenceCounters(anyMapOf(Long.class, AtomicLong.class))).thenAnswer(invocation -> {
+            ((Map<Long, AtomicLong>) invocation.getArguments()[0]).put(1L, new AtomicLong(3));
+            return true;
+        });
+        final PayloadReferenceSnapshot snapshot = mock(PayloadReferenceSnapshot.class);
+        when(snapshot.countReferences(anyMapOf(Long.class, Long.class))).thenReturn(false);
+
+        persistence = new PublishPayloadPersistenceImpl(localPersistence, scheduledExecutorService, new MetricRegistry());
+        assertTrue(persistence.restoreReferenceCountersOnBootstrap());
+        persistence.reconcileReferenceCountersOnBootstrap(snapshot);
+        persistence.init();
+
+        final ArgumentCaptor<Runnable> reconciliation = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduledExecutorService).execute(reconciliation.capture());
+        reconciliation.getValue().run();
+
+        assertEquals(3, persistence.referenceCounter.get(1L).get());
+        assertTrue(persistence.removablePayloads.isEmpty());
+    }
+}
@@ -31,10 +31,12 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNull;
+import static org.junit.Assert.*;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.when;
 
@@ -66,6 +68,7 @@ public class PublishPayloadXodusLocalPersistenceTest {
 
     @After
     public void cleanUp() {
+        InternalConfigurations.PERSISTENCE_BOOTSTRAP_CHECKPOINT_ENABLED.set(false);
         persistence.closeDB();
     }
 
@@ -154,4 +157,40 @@ public class PublishPayloadXodusLocalPersistenceTest {
         assertEquals(false, allIds.contains(1L));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void test_reference_counters_restored_once() throws Exception {
+        InternalConfigurations.PERSISTENCE_BOOTSTRAP_CHECKPOINT_ENABLED.set(true);
+
+        final Map<Long, AtomicLong> referenceCounters = new HashMap<>();
+        referenceCounters.put(1L, new AtomicLong(3));
+        referenceCounters.put(2L, new AtomicLong(0));
+        referenceCounters.put(5L, new AtomicLong(1));
+        persistence.checkpointReferenceCounters(referenceCounters);
+
+        final Map<Long, AtomicLong> restored = new HashMap<>();
+        assertTrue(persistence.restoreReferenceCounters(restored));
+        assertEquals(2, restored.size());
+        assertEquals(3L, restored.get(1L).get());
+        assertEquals(1L, restored.get(5L).get());
+
+        assertFalse(persistence.restoreReferenceCounters(new HashMap<>()));
+    }
+
+    @Test
+    public void test_reference_counters_not_restored_if_disabled() throws Exception {
+        InternalConfigurations.PERSISTENCE_BOOTSTRAP_CHECKPOINT_ENABLED.set(true);
+
+        final Map<Long, AtomicLong> referenceCounters = new HashMap<>();
+        referenceCounters.put(1L, new AtomicLong(3));
+        persistence.checkpointReferenceCounters(referenceCounters);
+
+        InternalConfigurations.PERSISTENCE_BOOTSTRAP_CHECKPOINT_ENABLED.set(false);
+        final Map<Long, AtomicLong> restored = new HashMap<>();
+        assertFalse(persistence.restoreReferenceCounters(restored));
+        assertTrue(restored.isEmpty());
+
+        // the checkpoint is outdated once it was not restored
+        InternalConfigurations.PERSISTENCE_BOOTSTRAP_CHECKPOINT_ENABLED.set(true);
+        assertFalse(persistence.restoreReferenceCounters(restored));
+    }
+}
@@ -18,6 +18,7 @@ package com.hivemq.persistence.payload;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import net.openhft.hashing.LongHashFunction;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -30,6 +31,8 @@ import java.util.concurrent.atomic.AtomicLong;
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 /**
  * @author Lukas Brandl
@@ -60,7 +63,7 @@ public class RemoveEntryTaskTest {
         removablePayloads.add(new RemovablePayload(1, System.currentTimeMillis()));
         payloadCache.put(1L, "test".getBytes());
         referenceCounter.put(1L, new AtomicLong(0));
-        final RemoveEntryTask task = new RemoveEntryTask(payloadCache, localPersistence, bucketLock, removablePayloads, 10000L, referenceCounter, 10000);
+        final RemoveEntryTask task = new RemoveEntryTask(payloadCache, localPersistence, bucketLock, removablePayloads, 10000L, referenceCounter, 10000, null, null);
         task.run();
         assertNotNull(payloadCache.getIfPresent(1L));
         assertEquals(1, removablePayloads.size());
@@ -72,7 +75,7 @@ public class RemoveEntryTaskTest {
         removablePayloads.add(new RemovablePayload(1, System.currentTimeMillis() - 100L));
         payloadCache.put(1L, "test".getBytes());
         referenceCounter.put(1L, new AtomicLong(1));
-        final RemoveEntryTask task = new RemoveEntryTask(payloadCache, localPersistence, bucketLock, removablePayloads, 10L, referenceCounter, 10000);
+        final RemoveEntryTask task = new RemoveEntryTask(payloadCache, localPersistence, bucketLock, removablePayloads, 10L, referenceCounter, 10000, null, null);
         task.run();
         assertNotNull(payloadCache.getIfPresent(1L));
         assertEquals(0, removablePayloads.size());
@@ -84,7 +87,7 @@ public class RemoveEntryTaskTest {
         removablePayloads.add(new RemovablePayload(1, System.currentTimeMillis() - 100L));
         payloadCache.put(1L, "test".getBytes());
         referenceCounter.put(1L, new AtomicLong(0));
-        final RemoveEntryTask task = new RemoveEntryTask(payloadCache, localPersistence, bucketLock, removablePayloads, 10L, referenceCounter, 10000);
+        final RemoveEntryTask task = new RemoveEntryTask(payloadCache, localPersistence, bucketLock, removablePayloads, 10L, referenceCounter, 10000, null, null);
         task.run();
         assertNull(payloadCache.getIfPresent(1L));
         assertEquals(0, removablePayloads.size());
@@ -99,7 +102,7 @@ public class RemoveEntryTaskTest {
         payloadCache.put(2L, "test".getBytes());
         referenceCounter.put(1L, new AtomicLong(0));
         referenceCounter.put(2L, new AtomicLong(0));
-        final RemoveEntryTask task = new RemoveEntryTask(payloadCache, localPersistence, bucketLock, removablePayloads, 10000L, referenceCounter, 10000);
+        final RemoveEntryTask task = new RemoveEntryTask(payloadCache, localPersistence, bucketLock, removablePayloads, 10000L, referenceCounter, 10000, null, null);
         task.run();
         assertNull(payloadCache.getIfPresent(1L));
         assertNotNull(payloadCache.getIfPresent(2L));
@@ -113,7 +116,7 @@ public class RemoveEntryTaskTest {
         removablePayloads.add(new RemovablePayload(1, System.currentTimeMillis() - 500L));
         payloadCache.put(1L, "test".getBytes());
         referenceCounter.put(1L, new AtomicLong(0));
-        final RemoveEntryTask task = new RemoveEntryTask(payloadCache, localPersistence, bucketLock, removablePayloads, 10L, referenceCounter, 10000);
+        final RemoveEntryTask task = new RemoveEntryTask(payloadCache, localPersistence, bucketLock, removablePayloads, 10L, referenceCounter, 10000, null, null);
         task.run();
         assertNull(payloadCache.getIfPresent(1L));
         assertEquals(0, removablePayloads.size());
@@ -128,7 +131,7 @@ public class RemoveEntryTaskTest {
         referenceCounter.put(1L, new AtomicLong(0));
         doThrow(new RuntimeException("expected")).doNothing().when(localPersistence).remove(anyLong());
         final ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor();
-        final RemoveEntryTask task = new RemoveEntryTask(payloadCache, localPersistence, bucketLock, removablePayloads, 10L, referenceCounter, 10000);
+        final RemoveEntryTask task = new RemoveEntryTask(payloadCache, localPersistence, bucketLock, removablePayloads, 10L, referenceCounter, 10000, null, null);
         executorService.scheduleAtFixedRate(task, 10, 10, TimeUnit.MILLISECONDS);
 
         while (payloadCache.getIfPresent(1L) != null || removablePayloads.size() > 0 || referenceCounter.size() > 0) {
@@ -140,4 +143,38 @@ public class RemoveEntryTaskTest {
         assertEquals(0, referenceCounter.size());
         executorService.shutdown();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void test_remove_from_content_index() throws Exception {
+        final ConcurrentHashMap<Long, Long> contentIndex = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<Long, Long> indexedHashes = new ConcurrentHashMap<>();
+        final long hash = LongHashFunction.xx().hashBytes("payload".getBytes());
+        contentIndex.put(hash, 1L);
+        indexedHashes.put(1L, hash);
+        referenceCounter.put(1L, new AtomicLong(0));
+        removablePayloads.add(new RemovablePayload(1, 0L));
+        final RemoveEntryTask task = new RemoveEntryTask(payloadCache, localPersistence, bucketLock, removablePayloads, 10L, referenceCounter, 10000, contentIndex, indexedHashes);
+        task.run();
+        assertTrue(contentIndex.isEmpty());
+        assertTrue(indexedHashes.isEmpty());
+        assertNull(referenceCounter.get(1L));
+        // the payload is not read again to hash it
+        verify(localPersistence, never()).get(anyLong());
+    }
+
+    @Test
+    public void test_remove_keeps_content_index_of_colliding_payload() throws Exception {
+        final ConcurrentHashMap<Long, Long> contentIndex = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<Long, Long> indexedHashes = new ConcurrentHashMap<>();
+        contentIndex.put(42L, 2L);
+        indexedHashes.put(1L, 42L);
+        indexedHashes.put(2L, 42L);
+        referenceCounter.put(1L, new AtomicLong(0));
+        removablePayloads.add(new RemovablePayload(1, 0L));
+        final RemoveEntryTask task = new RemoveEntryTask(payloadCache, localPersistence, bucketLock, removablePayloads, 10L, referenceCounter, 10000, contentIndex, indexedHashes);
+        task.run();
+        assertEquals(2L, contentIndex.get(42L).longValue());
+        assertNull(indexedHashes.get(1L));
+        assertEquals(42L, indexedHashes.get(2L).longValue());
+    }
+}
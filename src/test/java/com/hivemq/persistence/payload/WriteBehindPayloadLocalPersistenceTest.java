@@ -0,0 +1,181 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.persistence.payload;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningScheduledExecutorService;
+import com.hivemq.metrics.HiveMQMetrics;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Mockito.*;
+
+public class WriteBehindPayloadLocalPersistenceTest {
+
+    @Mock
+    private PublishPayloadLocalPersistence delegate;
+    @Mock
+    private ListeningScheduledExecutorService scheduledExecutorService;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private WriteBehindPayloadLocalPersistence persistence;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        persistence = new WriteBehindPayloadLocalPersistence(delegate, scheduledExecutorService, metricRegistry, 2, 10, 3);
+    }
+
+    @Test
+    public void test_staged_payload_is_read_from_staging_until_flushed() {
+        final byte[] payload = "payload".getBytes();
+        persistence.put(1, payload);
+
+        assertSame(payload, persistence.get(1));
+        verify(delegate, never()).get(anyLong());
+        verify(delegate, never()).put(anyLong(), any(byte[].class));
+
+        persistence.flush();
+
+        verify(delegate).putAll(ImmutableMap.of(1L, payload));
+        assertTrue(persistence.staged.isEmpty());
+        persistence.get(1);
+        verify(delegate).get(1);
+        assertEquals(1, metricRegistry.histogram(HiveMQMetrics.PAYLOAD_WRITE_BEHIND_BATCH_SIZE.name()).getCount());
+    }
+
+    @Test
+    public void test_payloads_are_written_in_batches() {
+        persistence.put(1, "payload1".getBytes());
+        persistence.put(2, "payload2".getBytes());
+        persistence.put(3, "payload3".getBytes());
+
+        // the batch size is reached with the second payload
+        verify(scheduledExecutorService).execute(any(Runnable.class));
+
+        persistence.flush();
+
+        verify(delegate, times(2)).putAll(anyMapOf(Long.class, byte[].class));
+        assertEquals(2, metricRegistry.histogram(HiveMQMetrics.PAYLOAD_WRITE_BEHIND_BATCH_SIZE.name()).getSnapshot().getMax());
+    }
+
+    @Test
+    public void test_payload_removed_while_staged_is_not_written() {
+        persistence.put(1, "payload".getBytes());
+        persistence.remove(1);
+
+        assertNull(persistence.get(1));
+
+        persistence.flush();
+
+        verify(delegate, never()).putAll(anyMapOf(Long.class, byte[].class));
+        verify(delegate, never()).remove(anyLong());
+        assertTrue(persistence.staged.isEmpty());
+    }
+
+    @Test
+    public void test_payload_removed_during_flush_is_removed_after_commit() {
+        persistence.put(1, "payload".getBytes());
+        doAnswer(invocation -> {
+            persistence.remove(1);
+            return null;
+        }).when(delegate).putAll(anyMapOf(Long.class, byte[].class));
+
+        persistence.flush();
+
+        verify(delegate).remove(1);
+        assertTrue(persistence.staged.isEmpty());
+    }
+
+    @Test
+    public void test_payload_written_directly_if_staging_is_full() {
+        persistence.put(1, "payload1".getBytes());
+        persistence.put(2, "payload2".getBytes());
+        persistence.put(3, "payload3".getBytes());
+        final byte[] payload = "payload4".getBytes();
+        persistence.put(4, payload);
+
+        verify(delegate).put(4, payload);
+        assertEquals(3, persistence.staged.size());
+    }
+
+    @Test
+    public void test_close_flushes_staged_payloads() {
+        final byte[] payload = "payload".getBytes();
+        persistence.put(1, payload);
+
+        persistence.closeDB();
+
+        verify(delegate).putAll(ImmutableMap.of(1L, payload));
+        verify(delegate).closeDB();
+    }
+
+    @Test
+    public void test_failed_flush_keeps_payloads_staged() {
+        final byte[] payload = "payload".getBytes();
+        persistence.put(1, payload);
+        doThrow(new RuntimeException("test")).when(delegate).putAll(anyMapOf(Long.class, byte[].class));
+
+        persistence.flush();
+
+        assertSame(payload, persistence.get(1));
+        doNothing().when(delegate).putAll(anyMapOf(Long.class, byte[].class));
+
+        persistence.flush();
+
+        verify(delegate, times(2)).putAll(ImmutableMap.of(1L, payload));
+        assertTrue(persistence.staged.isEmpty());
+    }
+
+    @Test
+    public void test_payload_is_not_persisted_before_flush() {
+        final byte[] payload = "payload".getBytes();
+        persistence.put(1, payload);
+
+        final ListenableFuture<Void> writtenFuture = persistence.whenWritten(1);
+
+        // a crash now loses the payload, so nothing may persist a reference to it yet
+        assertFalse(writtenFuture.isDone());
+        verify(delegate, never()).put(anyLong(), any(byte[].class));
+        verify(delegate, never()).putAll(anyMapOf(Long.class, byte[].class));
+
+        persistence.flush();
+
+        assertTrue(writtenFuture.isDone());
+        assertTrue(persistence.whenWritten(1).isDone());
+    }
+
+    @Test
+    public void test_failed_flush_does_not_complete_written_future() {
+        persistence.put(1, "payload".getBytes());
+        final ListenableFuture<Void> writtenFuture = persistence.whenWritten(1);
+        doThrow(new RuntimeException("test")).when(delegate).putAll(anyMapOf(Long.class, byte[].class));
+
+        persistence.flush();
+
+        assertFalse(writtenFuture.isDone());
+    }
+}
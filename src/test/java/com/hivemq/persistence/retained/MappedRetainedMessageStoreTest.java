@@ -0,0 +1,392 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.persistence.retained;
+
+import com.codahale.metrics.MetricRegistry;
+import com.hivemq.metrics.HiveMQMetrics;
+import com.hivemq.mqtt.message.QoS;
+import com.hivemq.mqtt.message.publish.PUBLISH;
+import com.hivemq.persistence.RetainedMessage;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+
+public class MappedRetainedMessageStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private RetainedMessageLocalPersistence localPersistence;
+
+    private MetricRegistry metricRegistry = new MetricRegistry();
+
+    private File localPersistenceFolder;
+    private File folder;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        localPersistenceFolder = temporaryFolder.newFolder();
+        folder = new File(localPersistenceFolder, MappedRetainedMessageStore.PERSISTENCE_NAME + File.separator +
+                MappedRetainedMessageStore.PERSISTENCE_VERSION);
+        assertTrue(folder.mkdirs());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_load_and_get() {
+        final MappedRetainedMessageStore store = new MappedRetainedMessageStore(folder, metricRegistry, 4, 1024);
+        doAnswer(invocation -> {
+            ((BiConsumer<String, RetainedMessage>) invocation.getArguments()[0]).accept("topic", retainedMessage(5L));
+            return null;
+        }).when(localPersistence).iterate(any(BiConsumer.class), eq(0));
+
+        assertFalse(store.open());
+        assertFalse(store.isLoaded(0));
+        store.load(0, localPersistence);
+        assertTrue(store.isLoaded(0));
+        assertFalse(store.isLoaded(1));
+
+        final RetainedMessage retainedMessage = store.get("topic", 0);
+        assertNotNull(retainedMessage);
+        assertNull(retainedMessage.getMessage());
+        assertEquals(5L, retainedMessage.getPayloadId().longValue());
+        assertEquals(QoS.AT_LEAST_ONCE, retainedMessage.getQos());
+        assertNotSame(retainedMessage, store.get("topic", 0));
+        assertNull(store.get("other", 0));
+        assertEquals(recordSize("topic"), recordBytes());
+    }
+
+    @Test
+    public void test_put_replace_remove() {
+        final MappedRetainedMessageStore store = loadedStore(1024);
+
+        store.put("topic", retainedMessage(1L), 0);
+        assertEquals(1L, store.get("topic", 0).getPayloadId().longValue());
+
+        store.put("topic", retainedMessage(2L), 0);
+        assertEquals(2L, store.get("topic", 0).getPayloadId().longValue());
+        assertEquals(recordSize("topic"), recordBytes());
+
+        store.remove("topic", 0);
+        assertNull(store.get("topic", 0));
+        assertEquals(0L, recordBytes());
+    }
+
+    @Test
+    public void test_message_without_payload_id_is_not_stored() {
+        final MappedRetainedMessageStore store = loadedStore(1024);
+
+        store.put("topic", retainedMessage(1L), 0);
+        store.put("topic", new RetainedMessage("payload".getBytes(), QoS.AT_LEAST_ONCE, null, PUBLISH.MESSAGE_EXPIRY_INTERVAL_NOT_SET), 0);
+
+        assertNull(store.get("topic", 0));
+        assertEquals(0L, recordBytes());
+    }
+
+    @Test
+    public void test_writes_to_unloaded_bucket_are_ignored() {
+        final MappedRetainedMessageStore store = new MappedRetainedMessageStore(folder, metricRegistry, 4, 1024);
+        store.open();
+
+        store.put("topic", retainedMessage(1L), 0);
+
+        assertFalse(store.isLoaded(0));
+        assertNull(store.get("topic", 0));
+    }
+
+    @Test
+    public void test_expired_messages() {
+        final MappedRetainedMessageStore store = loadedStore(1024);
+        final RetainedMessage expired = new RetainedMessage(null, QoS.AT_LEAST_ONCE, 1L, 1,
+                retainedMessage(1L).getUserProperties(), null, null, null, null, System.currentTimeMillis() - 10_000);
+
+        store.put("topic", expired, 0);
+        assertNull(store.get("topic", 0));
+
+        store.removeExpired(0);
+        assertEquals(0L, recordBytes());
+    }
+
+    @Test
+    public void test_empty_segments_are_deleted() {
+        // a single record fits into a segment
+        final MappedRetainedMessageStore store = loadedStore(4 + recordSize("topic1"));
+
+        store.put("topic1", retainedMessage(1L), 0);
+        store.put("topic2", retainedMessage(2L), 0);
+        store.put("topic3", retainedMessage(3L), 0);
+        assertEquals(3, segmentFiles());
+
+        store.remove("topic1", 0);
+        assertEquals(2, segmentFiles());
+        assertEquals(2, metricRegistry.getGauges().get(HiveMQMetrics.RETAINED_MESSAGE_MAPPED_STORE_SEGMENTS_CURRENT.name()).getValue());
+        assertEquals(2L, store.get("topic2", 0).getPayloadId().longValue());
+        assertEquals(3L, store.get("topic3", 0).getPayloadId().longValue());
+    }
+
+    @Test
+    public void test_sparse_segments_are_compacted() {
+        // four records fit into a segment
+        final MappedRetainedMessageStore store = loadedStore(4 + 4 * recordSize("topic1"));
+
+        for (int i = 1; i <= 4; i++) {
+            store.put("topic" + i, retainedMessage(i), 0);
+        }
+        for (int i = 2; i <= 4; i++) {
+            store.remove("topic" + i, 0);
+        }
+        // the first segment is full, only one record is still live in it
+        for (int i = 5; i <= 8; i++) {
+            store.put("topic" + i, retainedMessage(i), 0);
+        }
+        assertEquals(2, segmentFiles());
+
+        // the live record is moved, so the first segment is deleted
+        store.put("topic9", retainedMessage(9L), 0);
+        assertEquals(2, segmentFiles());
+        assertEquals(1L, store.get("topic1", 0).getPayloadId().longValue());
+        assertEquals(5L, store.get("topic5", 0).getPayloadId().longValue());
+        assertEquals(9L, store.get("topic9", 0).getPayloadId().longValue());
+    }
+
+    @Test
+    public void test_record_larger_than_segment() {
+        final MappedRetainedMessageStore store = loadedStore(16);
+
+        store.put("topic", retainedMessage(1L), 0);
+        assertEquals(1L, store.get("topic", 0).getPayloadId().longValue());
+        assertEquals(1, segmentFiles());
+
+        store.remove("topic", 0);
+        assertEquals(0, segmentFiles());
+    }
+
+    @Test
+    public void test_clear() {
+        final MappedRetainedMessageStore store = loadedStore(1024);
+        store.put("topic1", retainedMessage(1L), 0);
+        store.put("topic2", retainedMessage(2L), 0);
+
+        store.clear(0);
+
+        assertNull(store.get("topic1", 0));
+        assertNull(store.get("topic2", 0));
+        assertEquals(0L, recordBytes());
+    }
+
+    @Test
+    public void test_reopen_after_clean_shutdown() {
+        final MappedRetainedMessageStore store = allBucketsLoadedStore(4, 4 + 4 * recordSize("topic1"));
+        for (int i = 1; i <= 6; i++) {
+            store.put("topic" + i, retainedMessage(i), i % 4);
+        }
+        store.put("topic2", retainedMessage(20L), 2);
+        store.remove("topic3", 3);
+        store.close();
+        assertFalse(store.isLoaded(0));
+
+        metricRegistry = new MetricRegistry();
+        final MappedRetainedMessageStore reopened = new MappedRetainedMessageStore(folder, metricRegistry, 4, 4 + 4 * recordSize("topic1"));
+        assertTrue(reopened.open());
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(reopened.isLoaded(i));
+        }
+        assertEquals(1L, reopened.get("topic1", 1).getPayloadId().longValue());
+        assertEquals(20L, reopened.get("topic2", 2).getPayloadId().longValue());
+        assertNull(reopened.get("topic3", 3));
+        assertEquals(6L, reopened.get("topic6", 2).getPayloadId().longValue());
+        assertEquals(5 * recordSize("topic1"), recordBytes());
+
+        // the reopened segments are used like the segments that were written
+        reopened.put("topic7", retainedMessage(7L), 3);
+        reopened.remove("topic1", 1);
+        assertEquals(7L, reopened.get("topic7", 3).getPayloadId().longValue());
+        assertNull(reopened.get("topic1", 1));
+    }
+
+    @Test
+    public void test_segments_are_deleted_without_clean_shutdown() {
+        final MappedRetainedMessageStore store = allBucketsLoadedStore(4, 1024);
+        store.put("topic", retainedMessage(1L), 0);
+        assertEquals(1, segmentFiles());
+
+        final MappedRetainedMessageStore reopened = new MappedRetainedMessageStore(folder, new MetricRegistry(), 4, 1024);
+        assertFalse(reopened.open());
+
+        assertFalse(reopened.isLoaded(0));
+        assertEquals(0, segmentFiles());
+    }
+
+    @Test
+    public void test_segments_are_not_reused_after_a_second_start() {
+        final MappedRetainedMessageStore store = allBucketsLoadedStore(4, 1024);
+        store.put("topic", retainedMessage(1L), 0);
+        store.close();
+
+        assertTrue(new MappedRetainedMessageStore(folder, new MetricRegistry(), 4, 1024).open());
+        // the first start did not shut down cleanly
+        assertFalse(new MappedRetainedMessageStore(folder, new MetricRegistry(), 4, 1024).open());
+    }
+
+    @Test
+    public void test_segments_are_deleted_if_a_record_is_corrupt() throws Exception {
+        final MappedRetainedMessageStore store = allBucketsLoadedStore(4, 1024);
+        store.put("topic", retainedMessage(1L), 0);
+        store.close();
+
+        try (final RandomAccessFile file = new RandomAccessFile(new File(folder, "0.segment"), "rw")) {
+            // a byte of the topic
+            file.seek(4 + 9 + 16);
+            file.write('x');
+        }
+
+        final MappedRetainedMessageStore reopened = new MappedRetainedMessageStore(folder, new MetricRegistry(), 4, 1024);
+        assertFalse(reopened.open());
+        assertEquals(0, segmentFiles());
+    }
+
+    @Test
+    public void test_segments_are_deleted_if_the_bucket_count_changed() {
+        final MappedRetainedMessageStore store = allBucketsLoadedStore(4, 1024);
+        store.put("topic", retainedMessage(1L), 0);
+        store.close();
+
+        final MappedRetainedMessageStore reopened = new MappedRetainedMessageStore(folder, new MetricRegistry(), 8, 1024);
+        assertFalse(reopened.open());
+        assertEquals(0, segmentFiles());
+    }
+
+    @Test
+    public void test_discarded_segments_are_not_reused() {
+        final MappedRetainedMessageStore store = allBucketsLoadedStore(4, 1024);
+        store.put("topic", retainedMessage(1L), 0);
+        store.close();
+
+        MappedRetainedMessageStore.discard(localPersistenceFolder);
+
+        final MappedRetainedMessageStore reopened = new MappedRetainedMessageStore(folder, new MetricRegistry(), 4, 1024);
+        assertFalse(reopened.open());
+    }
+
+    @Test(timeout = 30000)
+    public void test_buckets_are_written_concurrently() throws Exception {
+        final int bucketCount = 4;
+        final int segmentSize = 4 + 3 * recordSize("topic00");
+        final MappedRetainedMessageStore store = allBucketsLoadedStore(bucketCount, segmentSize);
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final List<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < bucketCount; i++) {
+            final int bucketIndex = i;
+            final Thread writer = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int j = 0; j < 2000; j++) {
+                        store.put(String.format("topic%02d", j % 20), retainedMessage(bucketIndex * 10_000L + j), bucketIndex);
+                    }
+                } catch (final Throwable t) {
+                    failure.set(t);
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        start.countDown();
+        for (final Thread writer : writers) {
+            writer.join();
+        }
+
+        assertNull(failure.get());
+        for (int i = 0; i < bucketCount; i++) {
+            for (int j = 0; j < 20; j++) {
+                final long expected = i * 10_000L + 1980 + j;
+                assertEquals(expected, store.get(String.format("topic%02d", j), i).getPayloadId().longValue());
+            }
+        }
+        assertEquals(bucketCount * 20 * recordSize("topic00"), recordBytes());
+        assertEquals(segmentFiles(),
+                metricRegistry.getGauges().get(HiveMQMetrics.RETAINED_MESSAGE_MAPPED_STORE_SEGMENTS_CURRENT.name()).getValue());
+    }
+
+    private MappedRetainedMessageStore loadedStore(final int segmentSize) {
+        final MappedRetainedMessageStore store = new MappedRetainedMessageStore(folder, metricRegistry, 4, segmentSize);
+        store.open();
+        store.load(0, localPersistence);
+        return store;
+    }
+
+    private MappedRetainedMessageStore allBucketsLoadedStore(final int bucketCount, final int segmentSize) {
+        final MappedRetainedMessageStore store = new MappedRetainedMessageStore(folder, metricRegistry, bucketCount, segmentSize);
+        store.open();
+        for (int i = 0; i < bucketCount; i++) {
+            store.load(i, localPersistence);
+        }
+        return store;
+    }
+
+    /**
+     * @return the size of the record of a retained message of {@link #retainedMessage(long)} for the topic
+     */
+    private int recordSize(final String topic) {
+        final File sizeFolder;
+        try {
+            sizeFolder = temporaryFolder.newFolder();
+        } catch (final Exception e) {
+            throw new RuntimeException(e);
+        }
+        final MetricRegistry sizeRegistry = new MetricRegistry();
+        final MappedRetainedMessageStore store = new MappedRetainedMessageStore(sizeFolder, sizeRegistry, 1, 1024);
+        store.open();
+        store.load(0, localPersistence);
+        store.put(topic, retainedMessage(1L), 0);
+        return ((Number) sizeRegistry.getGauges()
+                .get(HiveMQMetrics.RETAINED_MESSAGE_MAPPED_STORE_RECORD_BYTES_CURRENT.name()).getValue()).intValue();
+    }
+
+    private long recordBytes() {
+        return ((Number) metricRegistry.getGauges()
+                .get(HiveMQMetrics.RETAINED_MESSAGE_MAPPED_STORE_RECORD_BYTES_CURRENT.name()).getValue()).longValue();
+    }
+
+    private int segmentFiles() {
+        return folder.listFiles((dir, name) -> name.endsWith(".segment")).length;
+    }
+
+    private static RetainedMessage retainedMessage(final long payloadId) {
+        return new RetainedMessage(null, QoS.AT_LEAST_ONCE, payloadId, PUBLISH.MESSAGE_EXPIRY_INTERVAL_NOT_SET);
+    }
+}
@@ -16,6 +16,7 @@
 
 package com.hivemq.persistence.retained;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -27,6 +28,7 @@ import com.hivemq.persistence.payload.PublishPayloadPersistence;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import util.InitFutureUtilsExecutorRule;
@@ -49,6 +51,9 @@ public class RetainedMessagePersistenceImplTest {
     @Rule
     public InitFutureUtilsExecutorRule initFutureUtilsExecutorRule = new InitFutureUtilsExecutorRule();
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Mock
     private RetainedMessageLocalPersistence localPersistence;
 
@@ -66,7 +71,7 @@ public class RetainedMessagePersistenceImplTest {
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
         message = new RetainedMessage(TestMessageUtil.createMqtt3Publish(), 1L, 1000);
-        retainedMessagePersistence = new RetainedMessagePersistenceImpl(localPersistence, topicMatcher, payloadPersistence, TestSingleWriterFactory.defaultSingleWriter());
+        retainedMessagePersistence = new RetainedMessagePersistenceImpl(localPersistence, topicMatcher, payloadPersistence, TestSingleWriterFactory.defaultSingleWriter(), null);
     }
 
     @Test(expected = NullPointerException.class)
@@ -127,6 +132,35 @@ public class RetainedMessagePersistenceImplTest {
         assertEquals(message, retainedMessagePersistence.get("topic").get());
     }
 
+    @Test
+    public void test_get_from_mapped_store() throws Exception {
+        retainedMessagePersistence = new RetainedMessagePersistenceImpl(localPersistence, topicMatcher, payloadPersistence,
+                TestSingleWriterFactory.defaultSingleWriter(), mappedStore());
+        retainedMessagePersistence.persist("topic", message).get();
+        when(payloadPersistence.getPayloadOrNull(1L)).thenReturn("payload".getBytes());
+        when(payloadPersistence.add("payload".getBytes(), 1)).thenReturn(1L);
+
+        final RetainedMessage retainedMessage = retainedMessagePersistence.get("topic").get();
+
+        assertArrayEquals("payload".getBytes(), retainedMessage.getMessage());
+        assertEquals(1L, retainedMessage.getPayloadId().longValue());
+        verify(payloadPersistence).add("payload".getBytes(), 1);
+        verify(localPersistence, never()).get(anyString(), anyInt());
+    }
+
+    @Test
+    public void test_get_from_mapped_store_without_payload() throws Exception {
+        retainedMessagePersistence = new RetainedMessagePersistenceImpl(localPersistence, topicMatcher, payloadPersistence,
+                TestSingleWriterFactory.defaultSingleWriter(), mappedStore());
+        retainedMessagePersistence.persist("topic", message).get();
+        when(payloadPersistence.getPayloadOrNull(1L)).thenReturn(null);
+
+        // the payload was removed, the local persistence decides which retained message is returned
+        assertNull(retainedMessagePersistence.get("topic").get());
+        verify(localPersistence).get(eq("topic"), anyInt());
+        verify(payloadPersistence, never()).add(any(byte[].class), anyLong());
+    }
+
     @Test
     public void test_get_with_wildcards_success() throws ExecutionException, InterruptedException {
         when(localPersistence.getAllTopics(any(PersistenceFilter.class), anyInt())).thenReturn(Sets.newHashSet("topic/1", "topic/2", "topic/3"));
@@ -228,4 +262,8 @@ public class RetainedMessagePersistenceImplTest {
         retainedMessagePersistence.clear().get();
         verify(localPersistence, times(64)).clear(anyInt());
     }
+
+    private MappedRetainedMessageStore mappedStore() throws Exception {
+        return new MappedRetainedMessageStore(temporaryFolder.newFolder(), new MetricRegistry(), 64, 1024);
+    }
 }
\ No newline at end of file
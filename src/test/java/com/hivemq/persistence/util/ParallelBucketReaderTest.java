@@ -0,0 +1,120 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.persistence.util;
+
+import com.hivemq.common.shutdown.HiveMQShutdownHook;
+import com.hivemq.common.shutdown.ShutdownHooks;
+import com.hivemq.persistence.local.xodus.BucketChunkResult;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class ParallelBucketReaderTest {
+
+    private final ShutdownHooks shutdownHooks = mock(ShutdownHooks.class);
+
+    @Test(timeout = 10000)
+    public void test_read_returns_chunk() throws Exception {
+        final ParallelBucketReader reader = new ParallelBucketReader(shutdownHooks, true, 2, 0);
+
+        final BucketChunkResult<Map<String, Integer>> result =
+                reader.read(() -> new BucketChunkResult<>(Map.of("client", 1), true, "client", 3)).get();
+
+        assertEquals(3, result.getBucketIndex());
+        assertEquals(Map.of("client", 1), result.getValue());
+        assertTrue(reader.isEnabled());
+    }
+
+    @Test(timeout = 10000)
+    public void test_buckets_are_read_concurrently() throws Exception {
+        final ParallelBucketReader reader = new ParallelBucketReader(shutdownHooks, true, 2, 0);
+        final CountDownLatch bothReading = new CountDownLatch(2);
+
+        final Runnable awaitOther = () -> {
+            bothReading.countDown();
+            try {
+                assertTrue(bothReading.await(5, TimeUnit.SECONDS));
+            } catch (final InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        };
+
+        reader.read(() -> {
+            awaitOther.run();
+            return new BucketChunkResult<>(Map.of(), true, null, 0);
+        });
+        reader.read(() -> {
+            awaitOther.run();
+            return new BucketChunkResult<>(Map.of(), true, null, 1);
+        }).get();
+    }
+
+    @Test(timeout = 10000)
+    public void test_entries_per_second_capped() throws Exception {
+        final ParallelBucketReader reader = new ParallelBucketReader(shutdownHooks, true, 1, 100);
+
+        final Map<String, Integer> entries = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            entries.put("client-" + i, i);
+        }
+
+        final long start = System.nanoTime();
+        reader.read(() -> new BucketChunkResult<>(entries, false, "client-49", 0)).get();
+        reader.read(() -> new BucketChunkResult<>(entries, false, "client-49", 0)).get();
+        reader.read(() -> new BucketChunkResult<>(entries, true, "client-49", 0)).get();
+
+        // the first 50 entries are admitted immediately, the next 100 take one second
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(900));
+    }
+
+    @Test
+    public void test_max_results_per_bucket() {
+        final ParallelBucketReader reader = new ParallelBucketReader(shutdownHooks, false, 1, 0);
+
+        assertFalse(reader.isEnabled());
+        assertEquals(10000 / 64, reader.maxResultsPerBucket(64));
+        assertEquals(1, reader.maxResultsPerBucket(100000));
+    }
+
+    @Test(timeout = 10000)
+    public void test_threads_stopped_on_shutdown() throws Exception {
+        final ParallelBucketReader reader = new ParallelBucketReader(shutdownHooks, true, 1, 0);
+        verify(shutdownHooks, never()).add(any(HiveMQShutdownHook.class));
+
+        reader.read(() -> new BucketChunkResult<>(Map.of(), true, null, 0)).get();
+
+        final ArgumentCaptor<HiveMQShutdownHook> shutdownHook = ArgumentCaptor.forClass(HiveMQShutdownHook.class);
+        verify(shutdownHooks).add(shutdownHook.capture());
+        shutdownHook.getValue().run();
+
+        try {
+            reader.read(() -> new BucketChunkResult<>(Map.of(), true, null, 0));
+            fail();
+        } catch (final RejectedExecutionException e) {
+            // expected
+        }
+    }
+}
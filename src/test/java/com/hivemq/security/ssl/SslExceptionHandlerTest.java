@@ -16,16 +16,17 @@
 
 package com.hivemq.security.ssl;
 
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.logging.EventLog;
 import com.hivemq.util.ChannelAttributes;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.ssl.NotSslRecordException;
-import io.netty.util.Attribute;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import util.TestChannelAttribute;
 
 import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLHandshakeException;
@@ -47,9 +48,6 @@ public class SslExceptionHandlerTest {
     @Mock
     Throwable throwable;
 
-    @Mock
-    Attribute<String> clientIdAttribute;
-
     @Mock
     EventLog eventLog;
 
@@ -59,8 +57,9 @@ public class SslExceptionHandlerTest {
     public void setUp() {
         MockitoAnnotations.initMocks(this);
         when(ctx.channel()).thenReturn(channel);
-        when(channel.attr(ChannelAttributes.CLIENT_ID)).thenReturn(clientIdAttribute);
-        when(clientIdAttribute.get()).thenReturn("client");
+        final ClientConnection clientConnection = new ClientConnection();
+        clientConnection.setClientId("client");
+        when(channel.attr(ChannelAttributes.CLIENT_CONNECTION)).thenReturn(new TestChannelAttribute<>(clientConnection));
         sslExceptionHandler = new SslExceptionHandler(eventLog);
     }
 
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.throttling;
+
+import com.hivemq.bootstrap.ClientConnection;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.Timeout;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ClientIncomingRateLimiterTest {
+
+    private static final long MILLIS = 1_000_000L;
+
+    @Mock
+    private ClientTrafficShaper shaper;
+
+    @Mock
+    private Timeout timeout;
+
+    private EmbeddedChannel channel;
+
+    private long nanoTime;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(shaper.nanoTime()).thenAnswer(invocation -> nanoTime);
+        when(shaper.schedule(any(Executor.class), any(Runnable.class), anyLong())).thenReturn(timeout);
+        channel = new EmbeddedChannel();
+    }
+
+    @Test
+    public void test_reads_suspended_when_publishes_exceed_limit() {
+        final ClientIncomingRateLimiter rateLimiter = new ClientIncomingRateLimiter(shaper, channel, 0, 2);
+
+        rateLimiter.messageDecoded(10, true);
+        assertTrue(channel.config().isAutoRead());
+
+        rateLimiter.messageDecoded(10, true);
+        assertFalse(channel.config().isAutoRead());
+        verify(shaper).readsSuspended();
+
+        final ArgumentCaptor<Runnable> resume = ArgumentCaptor.forClass(Runnable.class);
+        verify(shaper).schedule(any(Executor.class), resume.capture(), eq(500 * MILLIS));
+
+        nanoTime = 500 * MILLIS;
+        resume.getValue().run();
+
+        assertTrue(channel.config().isAutoRead());
+        verify(shaper).readsResumed(500 * MILLIS);
+    }
+
+    @Test
+    public void test_other_messages_do_not_use_publish_limit() {
+        final ClientIncomingRateLimiter rateLimiter = new ClientIncomingRateLimiter(shaper, channel, 0, 1);
+
+        rateLimiter.messageDecoded(4, false);
+        rateLimiter.messageDecoded(4, false);
+        rateLimiter.messageDecoded(4, false);
+
+        assertTrue(channel.config().isAutoRead());
+        verify(shaper, never()).readsSuspended();
+    }
+
+    @Test
+    public void test_byte_debt_is_paid_off_before_reads_are_resumed() {
+        final ClientIncomingRateLimiter rateLimiter = new ClientIncomingRateLimiter(shaper, channel, 16, 0);
+
+        rateLimiter.messageDecoded(24, false);
+        assertFalse(channel.config().isAutoRead());
+
+        final ArgumentCaptor<Runnable> resume = ArgumentCaptor.forClass(Runnable.class);
+        verify(shaper).schedule(any(Executor.class), resume.capture(), eq(500 * MILLIS));
+
+        nanoTime = 250 * MILLIS;
+        resume.getValue().run();
+        assertFalse(channel.config().isAutoRead());
+        verify(shaper).schedule(any(Executor.class), resume.capture(), eq(250 * MILLIS));
+
+        nanoTime = 500 * MILLIS;
+        resume.getValue().run();
+        assertTrue(channel.config().isAutoRead());
+    }
+
+    @Test
+    public void test_set_limits_resumes_reads() {
+        final ClientIncomingRateLimiter rateLimiter = new ClientIncomingRateLimiter(shaper, channel, 0, 1);
+
+        rateLimiter.messageDecoded(10, true);
+        assertFalse(channel.config().isAutoRead());
+
+        rateLimiter.setLimits(0, 0);
+
+        assertTrue(channel.config().isAutoRead());
+        verify(timeout).cancel();
+        verify(shaper).readsResumed(anyLong());
+        assertEquals(0, rateLimiter.getPublishesPerSecond());
+    }
+
+    @Test
+    public void test_suspension_finished_when_channel_is_closed() {
+        final ClientIncomingRateLimiter rateLimiter = new ClientIncomingRateLimiter(shaper, channel, 0, 1);
+
+        rateLimiter.messageDecoded(10, true);
+        final ArgumentCaptor<Runnable> resume = ArgumentCaptor.forClass(Runnable.class);
+        verify(shaper).schedule(any(Executor.class), resume.capture(), anyLong());
+
+        channel.close();
+        resume.getValue().run();
+
+        verify(shaper).readsResumed(anyLong());
+        verify(shaper, times(1)).schedule(any(Executor.class), any(Runnable.class), anyLong());
+    }
+
+    @Test
+    public void test_resume_keeps_reads_suspended_by_publish_lane() {
+        final ClientIncomingRateLimiter rateLimiter = new ClientIncomingRateLimiter(shaper, channel, 0, 1);
+
+        ClientConnection.suspendReads(channel, ClientConnection.READS_SUSPENDED_BY_PUBLISH_LANE);
+        rateLimiter.messageDecoded(10, true);
+        assertEquals(ClientConnection.READS_SUSPENDED_BY_PUBLISH_LANE | ClientConnection.READS_SUSPENDED_BY_RATE_LIMIT,
+                ClientConnection.of(channel).getReadSuspensions());
+
+        final ArgumentCaptor<Runnable> resume = ArgumentCaptor.forClass(Runnable.class);
+        verify(shaper).schedule(any(Executor.class), resume.capture(), eq(1000 * MILLIS));
+        nanoTime = 1000 * MILLIS;
+        resume.getValue().run();
+
+        // the publish lane still wants reads to be suspended
+        assertFalse(channel.config().isAutoRead());
+        verify(shaper).readsResumed(1000 * MILLIS);
+
+        ClientConnection.resumeReads(channel, ClientConnection.READS_SUSPENDED_BY_PUBLISH_LANE);
+        assertTrue(channel.config().isAutoRead());
+        assertEquals(0, ClientConnection.of(channel).getReadSuspensions());
+    }
+
+    @Test
+    public void test_publish_lane_resume_keeps_reads_suspended_by_rate_limit() {
+        final ClientIncomingRateLimiter rateLimiter = new ClientIncomingRateLimiter(shaper, channel, 0, 1);
+
+        rateLimiter.messageDecoded(10, true);
+        ClientConnection.suspendReads(channel, ClientConnection.READS_SUSPENDED_BY_PUBLISH_LANE);
+        ClientConnection.resumeReads(channel, ClientConnection.READS_SUSPENDED_BY_PUBLISH_LANE);
+
+        assertFalse(channel.config().isAutoRead());
+    }
+
+    @Test
+    public void test_resume_keeps_reads_suspended_until_connack() {
+        final ClientIncomingRateLimiter rateLimiter = new ClientIncomingRateLimiter(shaper, channel, 16, 0);
+
+        // the CONNECT itself drains the byte budget
+        ClientConnection.suspendReads(channel, ClientConnection.READS_SUSPENDED_BY_CONNECT);
+        rateLimiter.messageDecoded(24, false);
+
+        final ArgumentCaptor<Runnable> resume = ArgumentCaptor.forClass(Runnable.class);
+        verify(shaper).schedule(any(Executor.class), resume.capture(), eq(500 * MILLIS));
+        nanoTime = 500 * MILLIS;
+        resume.getValue().run();
+
+        assertFalse(channel.config().isAutoRead());
+    }
+}
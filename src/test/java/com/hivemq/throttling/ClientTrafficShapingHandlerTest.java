@@ -0,0 +1,255 @@
+/*
+ * Copyright 2019 dc-square GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hivemq.throttling;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.Timeout;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ClientTrafficShapingHandlerTest {
+
+    private static final long MILLIS = 1_000_000L;
+
+    @Mock
+    private ClientTrafficShaper shaper;
+
+    @Mock
+    private Timeout timeout;
+
+    private long nanoTime;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(shaper.nanoTime()).thenAnswer(invocation -> nanoTime);
+        when(shaper.schedule(any(Executor.class), any(Runnable.class), anyLong())).thenReturn(timeout);
+    }
+
+    @Test
+    public void test_publishes_over_budget_are_delayed() {
+        final EmbeddedChannel channel = new EmbeddedChannel(new ClientTrafficShapingHandler(shaper, 0, 2));
+
+        channel.writeOutbound(publish(), publish(), publish());
+
+        assertReleased(channel.readOutbound());
+        assertReleased(channel.readOutbound());
+        assertNull(channel.readOutbound());
+        assertFalse(channel.isWritable());
+        verify(shaper).throttlingStarted();
+        verify(shaper).writeDelayed();
+
+        final ArgumentCaptor<Runnable> release = ArgumentCaptor.forClass(Runnable.class);
+        verify(shaper).schedule(any(Executor.class), release.capture(), eq(500 * MILLIS));
+
+        nanoTime = 500 * MILLIS;
+        release.getValue().run();
+
+        assertReleased(channel.readOutbound());
+        assertTrue(channel.isWritable());
+        verify(shaper).throttlingFinished(500 * MILLIS);
+    }
+
+    @Test
+    public void test_other_messages_do_not_use_publish_budget() {
+        final EmbeddedChannel channel = new EmbeddedChannel(new ClientTrafficShapingHandler(shaper, 0, 1));
+
+        channel.writeOutbound(publish(), puback(), puback());
+
+        assertReleased(channel.readOutbound());
+        assertReleased(channel.readOutbound());
+        assertReleased(channel.readOutbound());
+        verify(shaper, never()).writeDelayed();
+    }
+
+    @Test
+    public void test_other_messages_are_not_delayed() {
+        final EmbeddedChannel channel = new EmbeddedChannel(new ClientTrafficShapingHandler(shaper, 16, 1));
+
+        channel.writeOutbound(publish(), publish());
+        assertReleased(channel.readOutbound());
+        assertNull(channel.readOutbound());
+
+        channel.writeOutbound(puback(), pingresp());
+        assertReleased(channel.readOutbound());
+        assertReleased(channel.readOutbound());
+        assertNull(channel.readOutbound());
+        assertFalse(channel.isWritable());
+        verify(shaper, times(1)).writeDelayed();
+    }
+
+    @Test
+    public void test_other_messages_use_byte_budget() {
+        final EmbeddedChannel channel = new EmbeddedChannel(new ClientTrafficShapingHandler(shaper, 16, 0));
+
+        channel.writeOutbound(buffer(20), publish());
+
+        assertReleased(channel.readOutbound());
+        assertNull(channel.readOutbound());
+        // the budget is 4 bytes in debt after the first message
+        verify(shaper).schedule(any(Executor.class), any(Runnable.class), eq(250 * MILLIS));
+    }
+
+    @Test
+    public void test_bytes_over_budget_are_delayed() {
+        final EmbeddedChannel channel = new EmbeddedChannel(new ClientTrafficShapingHandler(shaper, 16, 0));
+
+        channel.writeOutbound(publish(12), publish(12), publish(12));
+
+        assertReleased(channel.readOutbound());
+        assertReleased(channel.readOutbound());
+        assertNull(channel.readOutbound());
+
+        // the budget is 8 bytes in debt after the second message
+        final ArgumentCaptor<Runnable> release = ArgumentCaptor.forClass(Runnable.class);
+        verify(shaper).schedule(any(Executor.class), release.capture(), eq(500 * MILLIS));
+
+        nanoTime = 250 * MILLIS;
+        release.getValue().run();
+        assertNull(channel.readOutbound());
+        verify(shaper).schedule(any(Executor.class), release.capture(), eq(250 * MILLIS));
+
+        nanoTime = 500 * MILLIS;
+        release.getValue().run();
+        assertReleased(channel.readOutbound());
+    }
+
+    @Test
+    public void test_set_limits_releases_delayed_writes() {
+        final ClientTrafficShapingHandler handler = new ClientTrafficShapingHandler(shaper, 0, 1);
+        final EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+        channel.writeOutbound(publish(), publish());
+        assertReleased(channel.readOutbound());
+        assertNull(channel.readOutbound());
+
+        handler.setLimits(0, 0);
+
+        assertReleased(channel.readOutbound());
+        verify(timeout).cancel();
+        assertEquals(0, handler.getPublishesPerSecond());
+    }
+
+    @Test
+    public void test_delayed_writes_fail_when_channel_is_closed() {
+        final EmbeddedChannel channel = new EmbeddedChannel(new ClientTrafficShapingHandler(shaper, 0, 1));
+
+        channel.writeOutbound(publish());
+        final ByteBuf delayed = publish();
+        final ChannelFuture future = channel.writeAndFlush(delayed);
+        assertReleased(channel.readOutbound());
+
+        channel.close();
+
+        assertFalse(future.isSuccess());
+        assertEquals(0, delayed.refCnt());
+        verify(shaper).throttlingFinished(anyLong());
+    }
+
+    @Test
+    public void test_removed_handler_restores_writability() {
+        final ClientTrafficShapingHandler handler = new ClientTrafficShapingHandler(shaper, 0, 1);
+        final EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+        channel.writeOutbound(publish(), publish());
+        assertReleased(channel.readOutbound());
+        assertFalse(channel.isWritable());
+
+        channel.pipeline().remove(handler);
+
+        assertReleased(channel.readOutbound());
+        assertTrue(channel.isWritable());
+        verify(timeout).cancel();
+        verify(shaper).throttlingFinished(anyLong());
+    }
+
+    @Test
+    public void test_writability_changed_when_released_while_socket_not_writable() {
+        final AtomicInteger writabilityChanges = new AtomicInteger();
+        final ClientTrafficShapingHandler handler = new ClientTrafficShapingHandler(shaper, 0, 1);
+        final EmbeddedChannel channel = new EmbeddedChannel(handler, new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelWritabilityChanged(final ChannelHandlerContext ctx) {
+                writabilityChanges.incrementAndGet();
+            }
+        });
+
+        channel.writeOutbound(publish());
+        channel.write(publish());
+        assertEquals(1, writabilityChanges.get());
+
+        // the socket does not keep up while the traffic is shaped
+        final ByteBuf pending = buffer(channel.config().getWriteBufferHighWaterMark() + 1);
+        channel.pipeline().context(handler).write(pending);
+        assertEquals(1, writabilityChanges.get());
+
+        final ArgumentCaptor<Runnable> release = ArgumentCaptor.forClass(Runnable.class);
+        verify(shaper).schedule(any(Executor.class), release.capture(), eq(1000 * MILLIS));
+        nanoTime = 1000 * MILLIS;
+        release.getValue().run();
+
+        assertFalse(channel.isWritable());
+        assertEquals(2, writabilityChanges.get());
+        assertTrue(channel.unsafe().outboundBuffer().getUserDefinedWritability(ClientTrafficShapingHandler.WRITABILITY_INDEX));
+        assertReleased(channel.readOutbound());
+        channel.finishAndReleaseAll();
+    }
+
+    private static ByteBuf publish() {
+        return Unpooled.wrappedBuffer(new byte[]{0x30, 0});
+    }
+
+    private static ByteBuf publish(final int size) {
+        final byte[] publish = new byte[size];
+        publish[0] = 0x30;
+        return Unpooled.wrappedBuffer(publish);
+    }
+
+    private static ByteBuf pingresp() {
+        return Unpooled.wrappedBuffer(new byte[]{(byte) 0xD0, 0});
+    }
+
+    private static ByteBuf puback() {
+        return Unpooled.wrappedBuffer(new byte[]{0x40, 2, 0, 1});
+    }
+
+    private static ByteBuf buffer(final int size) {
+        return Unpooled.wrappedBuffer(new byte[size]);
+    }
+
+    private static void assertReleased(final Object message) {
+        assertNotNull(message);
+        ((ByteBuf) message).release();
+    }
+}
@@ -17,6 +17,7 @@
 package com.hivemq.util;
 
 import com.google.common.base.Optional;
+import com.hivemq.bootstrap.ClientConnection;
 import com.hivemq.security.auth.ClientToken;
 import com.hivemq.security.ssl.SslClientCertificateImpl;
 import io.netty.channel.Channel;
@@ -80,7 +81,7 @@ public class ChannelUtilsTest {
     @Test
     public void test_token_from_channel_only_client_id() throws Exception {
         final EmbeddedChannel channel = new EmbeddedChannel(new DummyHandler());
-        channel.attr(ChannelAttributes.CLIENT_ID).set("theId");
+        ClientConnection.of(channel).setClientId("theId");
 
         final ClientToken clientToken = ChannelUtils.tokenFromChannel(channel);
 
@@ -94,7 +95,7 @@ public class ChannelUtilsTest {
     @Test
     public void test_token_from_channel_client_id_and_cert() throws Exception {
         final EmbeddedChannel channel = new EmbeddedChannel(new DummyHandler());
-        channel.attr(ChannelAttributes.CLIENT_ID).set("theId");
+        ClientConnection.of(channel).setClientId("theId");
         channel.attr(ChannelAttributes.AUTH_CERTIFICATE).set(new SslClientCertificateImpl(new Certificate[]{}));
 
         final ClientToken clientToken = ChannelUtils.tokenFromChannel(channel);
@@ -109,7 +110,7 @@ public class ChannelUtilsTest {
     @Test
     public void test_token_from_channel_client_id_and_username() throws Exception {
         final EmbeddedChannel channel = new EmbeddedChannel(new DummyHandler());
-        channel.attr(ChannelAttributes.CLIENT_ID).set("theId");
+        ClientConnection.of(channel).setClientId("theId");
         channel.attr(ChannelAttributes.AUTH_USERNAME).set("user");
 
         final ClientToken clientToken = ChannelUtils.tokenFromChannel(channel);
@@ -124,7 +125,7 @@ public class ChannelUtilsTest {
     @Test
     public void test_token_from_channel_client_id_and_username_and_password() throws Exception {
         final EmbeddedChannel channel = new EmbeddedChannel(new DummyHandler());
-        channel.attr(ChannelAttributes.CLIENT_ID).set("theId");
+        ClientConnection.of(channel).setClientId("theId");
         channel.attr(ChannelAttributes.AUTH_USERNAME).set("user");
         channel.attr(ChannelAttributes.AUTH_PASSWORD).set("pass".getBytes(UTF_8));
 
@@ -142,14 +143,17 @@ public class ChannelUtilsTest {
         final Channel channel = mock(Channel.class);
         final ChannelPipeline pipeline = mock(ChannelPipeline.class);
         when(channel.pipeline()).thenReturn(pipeline);
-        when(channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES)).thenReturn(new TestChannelAttribute<>(null));
-        when(channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES_SENT)).thenReturn(new TestChannelAttribute<>(true));
+        final ClientConnection clientConnection = new ClientConnection();
+        when(channel.attr(ChannelAttributes.CLIENT_CONNECTION)).thenReturn(new TestChannelAttribute<>(clientConnection));
+        assertTrue(ChannelUtils.messagesInFlight(channel));
+
+        clientConnection.setInFlightMessagesSent(true);
         assertFalse(ChannelUtils.messagesInFlight(channel));
 
-        when(channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES)).thenReturn(new TestChannelAttribute<>(new AtomicInteger(1)));
+        clientConnection.setInFlightMessages(new AtomicInteger(1));
         assertTrue(ChannelUtils.messagesInFlight(channel));
 
-        when(channel.attr(ChannelAttributes.IN_FLIGHT_MESSAGES)).thenReturn(new TestChannelAttribute<>(new AtomicInteger(0)));
+        clientConnection.setInFlightMessages(new AtomicInteger(0));
         assertFalse(ChannelUtils.messagesInFlight(channel));
     }
 
@@ -16,10 +16,12 @@
 
 package util;
 
+import com.codahale.metrics.MetricRegistry;
 import com.hivemq.codec.decoder.MQTTMessageDecoder;
 import com.hivemq.codec.decoder.MqttConnectDecoder;
 import com.hivemq.codec.decoder.MqttDecoders;
 import com.hivemq.codec.decoder.MqttPingreqDecoder;
+import com.hivemq.codec.decoder.TopicInternCache;
 import com.hivemq.codec.decoder.mqtt3.*;
 import com.hivemq.codec.decoder.mqtt5.*;
 import com.hivemq.configuration.HivemqId;
@@ -68,6 +70,7 @@ public class TestMqttDecoder {
         final Mqtt3ServerDisconnector mqtt3ServerDisconnector = new Mqtt3ServerDisconnector(mqttDisconnectUtil);
         final MqttConnacker mqttConnacker = new MqttConnacker(mqttConnackSendUtil);
         final HivemqId hiveMQId = new HivemqId();
+        final TopicInternCache topicInternCache = new TopicInternCache(new MetricRegistry());
 
         final MqttConnectDecoder mqttConnectDecoder = new MqttConnectDecoder(mqtt5ServerDisconnector,
                 mqtt3ServerDisconnector,
@@ -83,7 +86,7 @@ public class TestMqttDecoder {
                 fullConfigurationService.mqttConfiguration(),
                 eventLog,
                 new MqttDecoders(new Mqtt3ConnackDecoder(eventLog),
-                        new Mqtt3PublishDecoder(hiveMQId, mqtt3ServerDisconnector, fullConfigurationService),
+                        new Mqtt3PublishDecoder(hiveMQId, mqtt3ServerDisconnector, fullConfigurationService, topicInternCache),
                         new Mqtt3PubackDecoder(eventLog),
                         new Mqtt3PubrecDecoder(eventLog),
                         new Mqtt3PubcompDecoder(eventLog),
@@ -94,7 +97,7 @@ public class TestMqttDecoder {
                         new Mqtt3SubackDecoder(eventLog),
                         new Mqtt3UnsubackDecoder(eventLog),
                         new MqttPingreqDecoder(eventLog),
-                        new Mqtt5PublishDecoder(mqtt5ServerDisconnector, hiveMQId, fullConfigurationService, new TopicAliasLimiterImpl()),
+                        new Mqtt5PublishDecoder(mqtt5ServerDisconnector, hiveMQId, fullConfigurationService, new TopicAliasLimiterImpl(), topicInternCache),
                         new Mqtt5DisconnectDecoder(mqtt5ServerDisconnector, fullConfigurationService),
                         new Mqtt5SubscribeDecoder(mqtt5ServerDisconnector, fullConfigurationService),
                         new Mqtt5PubackDecoder(mqtt5ServerDisconnector, fullConfigurationService),